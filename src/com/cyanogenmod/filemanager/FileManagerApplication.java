@@ -35,8 +35,11 @@ import com.cyanogenmod.filemanager.preferences.ObjectStringIdentifier;
 import com.cyanogenmod.filemanager.preferences.Preferences;
 import com.cyanogenmod.filemanager.ui.ThemeManager;
 import com.cyanogenmod.filemanager.ui.ThemeManager.Theme;
+import com.cyanogenmod.filemanager.util.CopyJournal;
 import com.cyanogenmod.filemanager.util.FileHelper;
 import com.cyanogenmod.filemanager.util.MimeTypeHelper;
+import com.cyanogenmod.filemanager.util.SearchIndex;
+import com.cyanogenmod.filemanager.util.TraceHelper;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -81,6 +84,7 @@ public final class FileManagerApplication extends Application {
                         key.compareTo(FileManagerSettings.SETTINGS_SHOW_TRACES.getId()) == 0) {
 
                         // The debug traces setting has changed. Notify to consoles
+                        TraceHelper.reloadTrace();
                         Console c = null;
                         try {
                             c = getBackgroundConsole();
@@ -94,6 +98,16 @@ public final class FileManagerApplication extends Application {
                                 c.reloadTrace();
                             }
                         } catch (Throwable _throw) {/**NON BLOCK**/}
+
+                    } else if (key != null &&
+                        key.compareTo(FileManagerSettings.SETTINGS_SEARCH_INDEX.getId()) == 0) {
+
+                        // The search index was enabled or disabled
+                        if (SearchIndex.isEnabled()) {
+                            SearchIndex.requestUpdate(context);
+                        } else {
+                            SearchIndex.clear(context);
+                        }
                     }
                 }
             }
@@ -244,9 +258,18 @@ public final class FileManagerApplication extends Application {
             }
         }
 
+        //Load the trace recording status
+        TraceHelper.reloadTrace();
+
+        //The journal of the interrupted copies
+        CopyJournal.setJournalDir(new File(getFilesDir(), "copy-journal")); //$NON-NLS-1$
+
         //Create a console for background tasks
         allocBackgroundConsole(getApplicationContext());
 
+        //Refresh the search index (if enabled)
+        SearchIndex.requestUpdate(getApplicationContext());
+
         //Force the load of mime types
         try {
             MimeTypeHelper.loadMimeTypes(getApplicationContext());
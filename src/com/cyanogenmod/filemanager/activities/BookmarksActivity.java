@@ -65,6 +65,7 @@ import com.cyanogenmod.filemanager.util.StorageHelper;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * An activity for show bookmarks and links.
@@ -150,6 +151,12 @@ public class BookmarksActivity extends Activity implements OnItemClickListener,
      * @hide
      */
     ListView mBookmarksListView;
+    /**
+     * The information of the bookmarks, retrieved in a single invocation when the
+     * bookmarks are loaded
+     * @hide
+     */
+    Map<String, FileSystemObject> mBookmarksInfo;
 
     private boolean mChRooted;
 
@@ -280,11 +287,13 @@ public class BookmarksActivity extends Activity implements OnItemClickListener,
         AsyncTask<Void, Void, Boolean> task = new AsyncTask<Void, Void, Boolean>() {
             Exception mCause;
             List<Bookmark> mBookmarks;
+            Map<String, FileSystemObject> mInfo;
 
             @Override
             protected Boolean doInBackground(Void... params) {
                 try {
                     this.mBookmarks = loadBookmarks();
+                    this.mInfo = loadBookmarksInfo(this.mBookmarks);
                     return Boolean.TRUE;
 
                 } catch (Exception e) {
@@ -303,6 +312,7 @@ public class BookmarksActivity extends Activity implements OnItemClickListener,
             protected void onPostExecute(Boolean result) {
                 waiting.setVisibility(View.GONE);
                 if (result.booleanValue()) {
+                    BookmarksActivity.this.mBookmarksInfo = this.mInfo;
                     adapter.addAll(this.mBookmarks);
                     adapter.notifyDataSetChanged();
                     BookmarksActivity.this.mBookmarksListView.setSelection(0);
@@ -409,9 +419,17 @@ public class BookmarksActivity extends Activity implements OnItemClickListener,
         if (cancelled) {
             setResult(RESULT_CANCELED, intent);
         } else {
-            // Check that the bookmark exists
+            // Check that the bookmark exists (the information retrieved when the bookmarks
+            // were loaded is used if the bookmark exists; a missing bookmark is checked again
+            // prior to remove it)
             try {
-                FileSystemObject fso = CommandHelper.getFileInfo(this, path, null);
+                FileSystemObject fso = null;
+                if (this.mBookmarksInfo != null) {
+                    fso = this.mBookmarksInfo.get(path);
+                }
+                if (fso == null) {
+                    fso = CommandHelper.getFileInfo(this, path, null);
+                }
                 if (fso != null) {
                     intent.putExtra(NavigationActivity.EXTRA_BOOKMARK_SELECTION, fso);
                     setResult(RESULT_OK, intent);
@@ -460,6 +478,28 @@ public class BookmarksActivity extends Activity implements OnItemClickListener,
         return bookmarks;
     }
 
+    /**
+     * Method that retrieves the information of all the bookmarks in a single invocation.
+     *
+     * @param bookmarks The bookmarks
+     * @return Map<String, FileSystemObject> The information of the bookmarks (indexed by
+     * the path of the bookmark), or <code>null</code> if the information can't be retrieved
+     * @hide
+     */
+    Map<String, FileSystemObject> loadBookmarksInfo(List<Bookmark> bookmarks) {
+        try {
+            int cc = bookmarks.size();
+            String[] paths = new String[cc];
+            for (int i = 0; i < cc; i++) {
+                paths[i] = bookmarks.get(i).mPath;
+            }
+            return CommandHelper.getFilesInfo(this, paths, true, null);
+        } catch (Throwable ex) {
+            Log.w(TAG, "Load bookmarks info failed", ex); //$NON-NLS-1$
+        }
+        return null;
+    }
+
     /**
      * Method that loads the home bookmark from the user preference.
      *
@@ -85,6 +85,7 @@ import com.cyanogenmod.filemanager.ui.widgets.NavigationView.OnNavigationRequest
 import com.cyanogenmod.filemanager.ui.widgets.NavigationView.OnNavigationSelectionChangedListener;
 import com.cyanogenmod.filemanager.ui.widgets.SelectionView;
 import com.cyanogenmod.filemanager.util.AndroidHelper;
+import com.cyanogenmod.filemanager.util.ArchiveIndex;
 import com.cyanogenmod.filemanager.util.CommandHelper;
 import com.cyanogenmod.filemanager.util.DialogHelper;
 import com.cyanogenmod.filemanager.util.ExceptionUtil;
@@ -1323,7 +1324,12 @@ public class NavigationActivity extends Activity
         // Prior to show the dialog, refresh the item reference
         FileSystemObject fso = null;
         try {
-            fso = CommandHelper.getFileInfo(this, path, false, null);
+            if (!global && ArchiveIndex.isInsideArchive(path)) {
+                // An entry of an archive
+                fso = ArchiveIndex.getFileInfo(this, path);
+            } else {
+                fso = CommandHelper.getFileInfo(this, path, false, null);
+            }
             if (fso == null) {
                 throw new NoSuchFileOrDirectory(path);
             }
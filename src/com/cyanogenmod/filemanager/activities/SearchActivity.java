@@ -26,6 +26,7 @@ import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.res.Configuration;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Parcelable;
 import android.preference.PreferenceActivity;
@@ -81,8 +82,10 @@ import com.cyanogenmod.filemanager.util.CommandHelper;
 import com.cyanogenmod.filemanager.util.DialogHelper;
 import com.cyanogenmod.filemanager.util.ExceptionUtil;
 import com.cyanogenmod.filemanager.util.FileHelper;
+import com.cyanogenmod.filemanager.util.SearchIndex;
 import com.cyanogenmod.filemanager.util.StorageHelper;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.List;
@@ -641,6 +644,11 @@ public class SearchActivity extends Activity
                             new MessageProgressDialog.OnCancelListener() {
                                 @Override
                                 public boolean onCancel() {
+                                    //The search index is being queried (it's fast)
+                                    if (SearchActivity.this.mExecutable == null) {
+                                        return false;
+                                    }
+
                                     //User has requested the cancellation of the search
                                     //Broadcast the cancellation
                                     if (!SearchActivity.this.mExecutable.isCancelled()) {
@@ -662,13 +670,12 @@ public class SearchActivity extends Activity
                     SearchActivity.this.mDialog.show();
 
                     //Execute the query (search are process in background)
-                    SearchActivity.this.mExecutable =
-                            CommandHelper.findFiles(
-                                    SearchActivity.this,
-                                    searchDirectory,
-                                    SearchActivity.this.mQuery,
-                                    SearchActivity.this,
-                                    null);
+                    SearchActivity.this.mExecutable = null;
+                    if (SearchIndex.isEnabled()) {
+                        searchInIndex(searchDirectory);
+                    } else {
+                        findFiles(searchDirectory);
+                    }
 
                 } catch (Throwable ex) {
                     //Remove all elements
@@ -696,6 +703,104 @@ public class SearchActivity extends Activity
         });
     }
 
+    /**
+     * Method that searches the files walking the search directory.
+     *
+     * @param searchDirectory The directory of the search
+     * @throws Exception If the search can't be started
+     * @hide
+     */
+    void findFiles(String searchDirectory) throws Exception {
+        this.mExecutable =
+                CommandHelper.findFiles(
+                        this,
+                        searchDirectory,
+                        this.mQuery,
+                        this,
+                        null);
+    }
+
+    /**
+     * Method that searches the files in the search index of the storage volume (the
+     * index is opened in background). If the index can't answer the search (the volume
+     * wasn't indexed yet), the search directory is walked instead.
+     *
+     * @param searchDirectory The directory of the search
+     * @hide
+     */
+    void searchInIndex(final String searchDirectory) {
+        final Query query = this.mQuery;
+        AsyncTask<Void, Void, List<FileSystemObject>> task =
+                new AsyncTask<Void, Void, List<FileSystemObject>>() {
+            @Override
+            protected List<FileSystemObject> doInBackground(Void... params) {
+                try {
+                    SearchIndex index =
+                            SearchIndex.getIndex(SearchActivity.this, searchDirectory);
+                    if (index == null) {
+                        return null;
+                    }
+                    List<File> files = index.search(query, searchDirectory);
+                    if (files == null) {
+                        return null;
+                    }
+
+                    // All the files are created with the owner and permissions of the
+                    // search directory (like the java find command)
+                    FileSystemObject template = FileHelper.createFileSystemObject(
+                            SearchActivity.this, new File(searchDirectory));
+                    List<FileSystemObject> result =
+                            new ArrayList<FileSystemObject>(files.size());
+                    int cc = files.size();
+                    for (int i = 0; i < cc; i++) {
+                        File file = files.get(i);
+                        FileSystemObject fso;
+                        if (template != null) {
+                            fso = FileHelper.createFileSystemObject(
+                                    file, file.isDirectory(), template.getUser(),
+                                    template.getGroup(), template.getPermissions());
+                        } else {
+                            fso = FileHelper.createFileSystemObject(SearchActivity.this, file);
+                        }
+                        if (fso != null) {
+                            result.add(fso);
+                        }
+                    }
+                    return result;
+                } catch (Throwable ex) {
+                    Log.w(TAG, "Search index failed", ex); //$NON-NLS-1$
+                    return null;
+                }
+            }
+
+            @Override
+            protected void onPostExecute(List<FileSystemObject> result) {
+                if (result == null) {
+                    // Not indexed yet. Walk the search directory
+                    try {
+                        findFiles(searchDirectory);
+                    } catch (Throwable ex) {
+                        Log.e(TAG, "Search failed", ex); //$NON-NLS-1$
+                        if (SearchActivity.this.mDialog != null) {
+                            SearchActivity.this.mDialog.dismiss();
+                        }
+                        DialogHelper.showToast(
+                                SearchActivity.this,
+                                R.string.search_error_msg, Toast.LENGTH_SHORT);
+                    }
+                } else {
+                    onAsyncStart();
+                    onPartialResult(result);
+                    onAsyncEnd(false);
+                }
+
+                // Keep the index fresh for the next searches
+                SearchIndex.requestUpdate(SearchActivity.this);
+            }
+        };
+        task.execute();
+    }
+
     /**
      * Method that restore the activity from the cached data.
      */
@@ -50,7 +50,9 @@ import com.cyanogenmod.filemanager.ui.ThemeManager;
 import com.cyanogenmod.filemanager.ui.ThemeManager.Theme;
 import com.cyanogenmod.filemanager.ui.preferences.ThemeSelectorPreference;
 import com.cyanogenmod.filemanager.util.DialogHelper;
+import com.cyanogenmod.filemanager.util.TraceHelper;
 
+import java.io.File;
 import java.util.List;
 
 /**
@@ -171,18 +173,52 @@ public class SettingsPreferences extends PreferenceActivity {
      */
     public static class GeneralPreferenceFragment extends PreferenceFragment {
 
+        // Internal keys
+        private static final String EXPORT_DEBUG_TRACES_KEY =
+                                            "cm_filemanager_export_debug_traces"; //$NON-NLS-1$
+        private static final String TRACES_FILENAME = "traces.json"; //$NON-NLS-1$
+
         private CheckBoxPreference mCaseSensitiveSort;
         private ListPreference mFreeDiskSpaceWarningLevel;
         private CheckBoxPreference mComputeFolderStatistics;
 //        private CheckBoxPreference mUseFlinger;
         private ListPreference mAccessMode;
         private CheckBoxPreference mDebugTraces;
+        private Preference mExportDebugTraces;
 
         /**
          * @hide
          */
         boolean mLoaded = false;
 
+        private final OnPreferenceClickListener mOnClickListener =
+                new Preference.OnPreferenceClickListener() {
+            @Override
+            public boolean onPreferenceClick(Preference preference) {
+                if (preference.getKey().compareTo(EXPORT_DEBUG_TRACES_KEY) == 0) {
+                    // Export the recorded traces
+                    String msg = null;
+                    try {
+                        File dir = getActivity().getExternalFilesDir(null);
+                        if (dir == null) {
+                            dir = getActivity().getFilesDir();
+                        }
+                        File file = new File(dir, TRACES_FILENAME);
+                        TraceHelper.exportChromeTrace(file);
+                        msg = getActivity().getString(
+                                R.string.pref_export_debug_traces_msg, file.getAbsolutePath());
+                    } catch (Exception e) {
+                        Log.e(TAG, "Failed to export the traces", e); //$NON-NLS-1$
+                        msg = getActivity().getString(R.string.pref_export_debug_traces_error);
+                    }
+
+                    // Advise the user
+                    DialogHelper.showToast(getActivity(), msg, Toast.LENGTH_SHORT);
+                }
+                return false;
+            }
+        };
+
         private final OnPreferenceChangeListener mOnChangeListener =
                 new OnPreferenceChangeListener() {
             @Override
@@ -313,6 +349,10 @@ public class SettingsPreferences extends PreferenceActivity {
                             FileManagerSettings.SETTINGS_SHOW_TRACES.getId());
             this.mDebugTraces.setOnPreferenceChangeListener(this.mOnChangeListener);
 
+            // Export debug traces
+            this.mExportDebugTraces = findPreference(EXPORT_DEBUG_TRACES_KEY);
+            this.mExportDebugTraces.setOnPreferenceClickListener(this.mOnClickListener);
+
             // Loaded
             this.mLoaded = true;
         }
@@ -330,6 +370,8 @@ public class SettingsPreferences extends PreferenceActivity {
         private CheckBoxPreference mHighlightTerms;
         private CheckBoxPreference mShowRelevanceWidget;
         private ListPreference mSortSearchResultMode;
+        private ListPreference mMaxSearchResults;
+        private CheckBoxPreference mSearchIndex;
         private CheckBoxPreference mSaveSearchTerms;
         private Preference mRemoveSearchTerms;
 
@@ -366,6 +408,14 @@ public class SettingsPreferences extends PreferenceActivity {
                     String[] summary = getResources().getStringArray(
                             R.array.sort_search_results_mode_labels);
                     preference.setSummary(summary[value]);
+
+                // Maximum number of results
+                } else if (FileManagerSettings.SETTINGS_MAX_SEARCH_RESULTS.
+                        getId().compareTo(key) == 0) {
+                    int value = ((ListPreference)preference).findIndexOfValue((String)newValue);
+                    String[] summary = getResources().getStringArray(
+                            R.array.max_search_results_labels);
+                    preference.setSummary(summary[Math.max(0, value)]);
                 }
 
                 // Notify the change (only if fragment is loaded. Default values are loaded
@@ -438,6 +488,24 @@ public class SettingsPreferences extends PreferenceActivity {
                                     defaultValue);
             this.mOnChangeListener.onPreferenceChange(this.mSortSearchResultMode, value);
 
+            // Maximum number of results
+            this.mMaxSearchResults =
+                    (ListPreference)findPreference(
+                            FileManagerSettings.SETTINGS_MAX_SEARCH_RESULTS.getId());
+            this.mMaxSearchResults.setOnPreferenceChangeListener(this.mOnChangeListener);
+            defaultValue = ((String)FileManagerSettings.
+                                    SETTINGS_MAX_SEARCH_RESULTS.getDefaultValue());
+            value = Preferences.getSharedPreferences().getString(
+                                    FileManagerSettings.SETTINGS_MAX_SEARCH_RESULTS.getId(),
+                                    defaultValue);
+            this.mOnChangeListener.onPreferenceChange(this.mMaxSearchResults, value);
+
+            // Search index
+            this.mSearchIndex =
+                    (CheckBoxPreference)findPreference(
+                            FileManagerSettings.SETTINGS_SEARCH_INDEX.getId());
+            this.mSearchIndex.setOnPreferenceChangeListener(this.mOnChangeListener);
+
             // Saved search terms
             this.mSaveSearchTerms =
                     (CheckBoxPreference)findPreference(
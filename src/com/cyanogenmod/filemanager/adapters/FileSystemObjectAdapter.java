@@ -17,7 +17,6 @@
 package com.cyanogenmod.filemanager.adapters;
 
 import android.content.Context;
-import android.content.res.Resources;
 import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -36,6 +35,7 @@ import com.cyanogenmod.filemanager.ui.ThemeManager;
 import com.cyanogenmod.filemanager.ui.ThemeManager.Theme;
 import com.cyanogenmod.filemanager.util.FileHelper;
 import com.cyanogenmod.filemanager.util.MimeTypeHelper;
+import com.cyanogenmod.filemanager.util.TraceHelper;
 
 import java.text.DateFormat;
 import java.util.ArrayList;
@@ -98,6 +98,7 @@ public class FileSystemObjectAdapter
 
     private DataHolder[] mData;
     private IconHolder mIconHolder;
+    private final DateFormat mDateFormat;
     private final int mItemViewResourceId;
     private List<FileSystemObject> mSelectedItems;
     private final boolean mPickable;
@@ -132,6 +133,7 @@ public class FileSystemObjectAdapter
         this.mItemViewResourceId = itemViewResourceId;
         this.mSelectedItems = new ArrayList<FileSystemObject>();
         this.mPickable = pickable;
+        this.mDateFormat = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT);
 
         //Do cache of the data for better performance
         loadDefaultIcons();
@@ -197,25 +199,14 @@ public class FileSystemObjectAdapter
      * Method that process the data before use {@link #getView} method.
      */
     private void processData() {
+        TraceHelper.begin("processData", TraceHelper.CAT_UI, null, null); //$NON-NLS-1$
         Theme theme = ThemeManager.getCurrentTheme(getContext());
-        Resources res = getContext().getResources();
-        DateFormat df = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT);
         this.mData = new DataHolder[getCount()];
         int cc = getCount();
         for (int i = 0; i < cc; i++) {
             //File system object info
             FileSystemObject fso = getItem(i);
 
-            //Parse the last modification time and permissions
-            StringBuilder sbSummary = new StringBuilder();
-            if (fso instanceof ParentDirectory) {
-                sbSummary.append(res.getString(R.string.parent_dir));
-            } else {
-                sbSummary.append(df.format(fso.getLastModifiedTime()));
-                sbSummary.append("   "); //$NON-NLS-1$
-                sbSummary.append(fso.toRawString());
-            }
-
             //Build the data holder
             this.mData[i] = new FileSystemObjectAdapter.DataHolder();
             this.mData[i].mSelected = this.mSelectedItems.contains(fso);
@@ -232,10 +223,31 @@ public class FileSystemObjectAdapter
                     getContext(),
                     MimeTypeHelper.getIcon(getContext(), fso));
             this.mData[i].mName = fso.getName();
-            this.mData[i].mSummary = sbSummary.toString();
-            this.mData[i].mSize = FileHelper.getHumanReadableSize(fso);
+            // The summary and size are resolved when the item is drawn (and only if the
+            // layout shows them), so the lazy attributes of the files are not read here
+            this.mData[i].mSummary = null;
+            this.mData[i].mSize = null;
+        }
+        TraceHelper.end("processData", TraceHelper.CAT_UI, cc); //$NON-NLS-1$
+    }
 
+    /**
+     * Method that returns the summary of a file system object (the last modification time
+     * and permissions).
+     *
+     * @param fso The file system object
+     * @return String The summary of the file system object
+     */
+    private String getSummary(FileSystemObject fso) {
+        StringBuilder sbSummary = new StringBuilder();
+        if (fso instanceof ParentDirectory) {
+            sbSummary.append(getContext().getResources().getString(R.string.parent_dir));
+        } else {
+            sbSummary.append(this.mDateFormat.format(fso.getLastModifiedTime()));
+            sbSummary.append("   "); //$NON-NLS-1$
+            sbSummary.append(fso.toRawString());
         }
+        return sbSummary.toString();
     }
 
     /**
@@ -243,6 +255,8 @@ public class FileSystemObjectAdapter
      */
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
+        TraceHelper.begin("getView", TraceHelper.CAT_UI, null, null); //$NON-NLS-1$
+
         //Check to reuse view
         View v = convertView;
         if (v == null) {
@@ -290,9 +304,15 @@ public class FileSystemObjectAdapter
         viewHolder.mIvIcon.setImageDrawable(dataHolder.mDwIcon);
         viewHolder.mTvName.setText(dataHolder.mName);
         if (viewHolder.mTvSummary != null) {
+            if (dataHolder.mSummary == null) {
+                dataHolder.mSummary = getSummary(getItem(position));
+            }
             viewHolder.mTvSummary.setText(dataHolder.mSummary);
         }
         if (viewHolder.mTvSize != null) {
+            if (dataHolder.mSize == null) {
+                dataHolder.mSize = FileHelper.getHumanReadableSize(getItem(position));
+            }
             viewHolder.mTvSize.setText(dataHolder.mSize);
         }
         if (!this.mPickable) {
@@ -313,6 +333,7 @@ public class FileSystemObjectAdapter
         }
 
         //Return the view
+        TraceHelper.end("getView", TraceHelper.CAT_UI, 1); //$NON-NLS-1$
         return v;
     }
 
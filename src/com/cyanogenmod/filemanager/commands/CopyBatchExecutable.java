@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands;
+
+import java.util.Map;
+
+/**
+ * An interface that represents an executable for copy a set of file system objects
+ * to a destination directory in a single invocation.
+ */
+public interface CopyBatchExecutable extends WritableExecutable {
+
+    /**
+     * {@inheritDoc}
+     * <br/>
+     * The map contains an entry for every source that couldn't be copied, with
+     * the reason of the failure. An empty map means that all the sources were copied.
+     */
+    @Override
+    Map<String, String> getResult();
+}
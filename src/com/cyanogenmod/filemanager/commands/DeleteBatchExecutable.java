@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands;
+
+import java.util.Map;
+
+/**
+ * An interface that represents an executable for delete a set of files and
+ * directories (recursively) in a single invocation.
+ */
+public interface DeleteBatchExecutable extends WritableExecutable {
+
+    /**
+     * {@inheritDoc}
+     * <br/>
+     * The map contains an entry for every path that couldn't be deleted, with the reason
+     * of the failure. An empty map means that all the paths were deleted. Paths that
+     * doesn't exist are not reported as failures.
+     */
+    @Override
+    Map<String, String> getResult();
+}
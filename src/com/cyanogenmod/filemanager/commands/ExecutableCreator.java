@@ -66,6 +66,19 @@ public interface ExecutableCreator {
     ChangePermissionsExecutable createChangePermissionsExecutable(
             String fso, Permissions newPermissions) throws CommandNotFoundException;
 
+    /**
+     * Method that creates an executable for copy a set of file system objects to a
+     * destination directory in a single invocation.
+     *
+     * @param srcs The absolute paths to the source file system objects
+     * @param dst The absolute path to the destination directory
+     * @return CopyBatchExecutable A {@link CopyBatchExecutable} executable implementation
+     * reference
+     * @throws CommandNotFoundException If the executable can't be created
+     */
+    CopyBatchExecutable createCopyBatchExecutable(String[] srcs, String dst)
+            throws CommandNotFoundException;
+
     /**
      * Method that creates an executable for copy a file system object to
      * other file system object.
@@ -117,6 +130,18 @@ public interface ExecutableCreator {
      */
     DeleteDirExecutable createDeleteDirExecutable(String dir) throws CommandNotFoundException;
 
+    /**
+     * Method that creates an executable for delete a set of files and directories
+     * in a single invocation.
+     *
+     * @param paths The absolute paths to the files and directories to be deleted
+     * @return DeleteBatchExecutable A {@link DeleteBatchExecutable} executable implementation
+     * reference
+     * @throws CommandNotFoundException If the executable can't be created
+     */
+    DeleteBatchExecutable createDeleteBatchExecutable(String[] paths)
+            throws CommandNotFoundException;
+
     /**
      * Method that creates an executable for delete a file.
      *
@@ -182,6 +207,33 @@ public interface ExecutableCreator {
             String directory, Query query, AsyncResultListener asyncResultListener)
             throws CommandNotFoundException;
 
+    /**
+     * Method that creates an executable for find the duplicate files of one or more folders.
+     *
+     * @param directories The directories where to search
+     * @param asyncResultListener The listener where to return partial results
+     * @return FindDuplicatesExecutable A {@link FindDuplicatesExecutable} executable
+     * implementation reference
+     * @throws CommandNotFoundException If the executable can't be created
+     */
+    FindDuplicatesExecutable createFindDuplicatesExecutable(
+            String[] directories, AsyncResultListener asyncResultListener)
+            throws CommandNotFoundException;
+
+    /**
+     * Method that creates an executable for retrieve the largest files and folders of a volume.
+     *
+     * @param directory The directory to analyze
+     * @param count The number of files and folders of the ranking
+     * @param asyncResultListener The listener where to return partial results
+     * @return LargestFilesExecutable A {@link LargestFilesExecutable} executable
+     * implementation reference
+     * @throws CommandNotFoundException If the executable can't be created
+     */
+    LargestFilesExecutable createLargestFilesExecutable(
+            String directory, int count, AsyncResultListener asyncResultListener)
+            throws CommandNotFoundException;
+
     /**
      * Method that creates an executable for compute the disk usage of a folder.
      *
@@ -246,6 +298,19 @@ public interface ExecutableCreator {
     ListExecutable createFileInfoExecutable(String src, boolean followSymlinks)
             throws CommandNotFoundException;
 
+    /**
+     * Method that creates an executable for retrieve information of a set of files
+     * in a single invocation.
+     *
+     * @param src The file system objects
+     * @param followSymlinks If follow the symlinks
+     * @return FileInfoBatchExecutable A {@link FileInfoBatchExecutable} executable
+     * implementation reference
+     * @throws CommandNotFoundException If the executable can't be created
+     */
+    FileInfoBatchExecutable createFileInfoBatchExecutable(String[] src, boolean followSymlinks)
+            throws CommandNotFoundException;
+
     /**
      * Method that creates an executable for retrieve identity information of the current user.
      *
@@ -266,6 +331,19 @@ public interface ExecutableCreator {
      */
     MountPointInfoExecutable createMountPointInfoExecutable() throws CommandNotFoundException;
 
+    /**
+     * Method that creates an executable for move a set of file system objects to a
+     * destination directory in a single invocation.
+     *
+     * @param srcs The absolute paths to the source file system objects
+     * @param dst The absolute path to the destination directory
+     * @return MoveBatchExecutable A {@link MoveBatchExecutable} executable implementation
+     * reference
+     * @throws CommandNotFoundException If the executable can't be created
+     */
+    MoveBatchExecutable createMoveBatchExecutable(String[] srcs, String dst)
+            throws CommandNotFoundException;
+
     /**
      * Method that creates an executable for move a file system object to
      * other file system object.
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands;
+
+import com.cyanogenmod.filemanager.model.FileSystemObject;
+
+import java.util.Map;
+
+/**
+ * An interface that represents an executable for retrieve the information of a set
+ * of file system objects in a single invocation.
+ */
+public interface FileInfoBatchExecutable extends SyncResultExecutable {
+
+    /**
+     * {@inheritDoc}
+     * <br/>
+     * The map contains an entry for every requested path (in the same order of the request).
+     * The value of the entry is <code>null</code> if the file system object doesn't
+     * exists or its information can't be retrieved.
+     */
+    @Override
+    Map<String, FileSystemObject> getResult();
+}
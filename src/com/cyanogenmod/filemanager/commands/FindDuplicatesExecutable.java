@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands;
+
+import com.cyanogenmod.filemanager.util.DuplicateFinder;
+
+/**
+ * An interface that represents an executable for find the duplicate files of one or
+ * more folders. The groups of duplicates are returned as partial results
+ * ({@link com.cyanogenmod.filemanager.model.DuplicateGroup}).
+ */
+public interface FindDuplicatesExecutable extends AsyncResultExecutable {
+
+    /**
+     * The stage that walks the folders and groups the files by size.
+     */
+    public static final int STAGE_SIZE = DuplicateFinder.STAGE_SIZE;
+    /**
+     * The stage that hashes the start and the end of the files of the same size.
+     */
+    public static final int STAGE_PARTIAL_HASH = DuplicateFinder.STAGE_PARTIAL_HASH;
+    /**
+     * The stage that hashes completely the files with the same partial hash.
+     */
+    public static final int STAGE_FULL_HASH = DuplicateFinder.STAGE_FULL_HASH;
+
+    /**
+     * Method that returns the time spent in a stage of the search (available when the
+     * search ends).
+     *
+     * @param stage The stage ({@link #STAGE_SIZE}, {@link #STAGE_PARTIAL_HASH} or
+     * {@link #STAGE_FULL_HASH})
+     * @return long The time in milliseconds
+     */
+    long getStageTime(int stage);
+
+    /**
+     * Method that returns the number of files that entered in a stage of the search
+     * (available when the search ends).
+     *
+     * @param stage The stage ({@link #STAGE_SIZE}, {@link #STAGE_PARTIAL_HASH} or
+     * {@link #STAGE_FULL_HASH})
+     * @return int The number of files
+     */
+    int getStageFiles(int stage);
+
+    /**
+     * Method that returns the space used by the duplicate files found (all the copies
+     * but one of every group).
+     *
+     * @return long The space in bytes
+     */
+    long getWastedSize();
+}
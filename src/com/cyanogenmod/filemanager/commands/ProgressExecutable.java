@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands;
+
+import com.cyanogenmod.filemanager.util.ProgressTracker;
+
+/**
+ * An interface that represents an executable that reports by itself the progress of the
+ * bytes and files transferred. The progress of the executables that don't implement this
+ * interface is measured by polling the destination.
+ */
+public interface ProgressExecutable {
+
+    /**
+     * Method that sets the tracker where the executable reports its progress.
+     *
+     * @param tracker The progress tracker, or null to not report the progress
+     */
+    void setProgressTracker(ProgressTracker tracker);
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands;
+
+import com.cyanogenmod.filemanager.model.TransferProgress;
+
+/**
+ * An interface for communicate the progress of a copy or move operation.<br/>
+ * <br/>
+ * The events are throttled, so the listener is not invoked more often than the time it
+ * takes allows (see {@link com.cyanogenmod.filemanager.util.ProgressTracker}).
+ */
+public interface TransferProgressListener {
+
+    /**
+     * Method invoked when the progress of the operation changed.
+     *
+     * @param progress The progress of the operation
+     */
+    void onTransferProgress(TransferProgress progress);
+}
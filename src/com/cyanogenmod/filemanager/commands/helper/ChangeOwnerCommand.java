@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.helper;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.commands.ChangeOwnerExecutable;
+import com.cyanogenmod.filemanager.console.ExecutionException;
+import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.console.ReadOnlyFilesystemException;
+import com.cyanogenmod.filemanager.console.helper.HelperClient;
+import com.cyanogenmod.filemanager.model.Group;
+import com.cyanogenmod.filemanager.model.MountPoint;
+import com.cyanogenmod.filemanager.model.User;
+import com.cyanogenmod.filemanager.util.AIDHelper;
+import com.cyanogenmod.filemanager.util.MountPointHelper;
+
+import java.io.IOException;
+
+
+/**
+ * A class for change the owner of an object through the helper process.
+ */
+public class ChangeOwnerCommand extends Program implements ChangeOwnerExecutable {
+
+    private static final String TAG = "ChangeOwnerCommand"; //$NON-NLS-1$
+
+    private final Context mCtx;
+    private final String mFileName;
+    private final User mNewUser;
+    private final Group mNewGroup;
+
+    /**
+     * Constructor of <code>ChangeOwnerCommand</code>.
+     *
+     * @param ctx The current context
+     * @param fileName The name of the file or directory to be changed
+     * @param newUser The new user owner of the file system object
+     * @param newGroup The new group owner of the file system object
+     */
+    public ChangeOwnerCommand(Context ctx, String fileName, User newUser, Group newGroup) {
+        super();
+        this.mCtx = ctx;
+        this.mFileName = fileName;
+        this.mNewUser = newUser;
+        this.mNewGroup = newGroup;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Boolean getResult() {
+        return Boolean.TRUE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute(HelperClient client)
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory,
+            ReadOnlyFilesystemException, ExecutionException {
+        if (isTrace()) {
+            Log.v(TAG,
+                    String.format("Changing owner of %s to %s:%s", //$NON-NLS-1$
+                            this.mFileName, this.mNewUser, this.mNewGroup));
+        }
+
+        // The helper works with numeric identifiers
+        int uid = this.mNewUser.getId();
+        if (uid < 0) {
+            uid = AIDHelper.getAIDFromName(this.mCtx, this.mNewUser.getName()).getId();
+        }
+        int gid = this.mNewGroup.getId();
+        if (gid < 0) {
+            gid = AIDHelper.getAIDFromName(this.mCtx, this.mNewGroup.getName()).getId();
+        }
+        if (uid < 0 || gid < 0) {
+            throw new ExecutionException(
+                    String.format("unknown owner %s:%s", //$NON-NLS-1$
+                            this.mNewUser, this.mNewGroup));
+        }
+
+        try {
+            client.chown(this.mFileName, uid, gid);
+        } catch (IOException ioEx) {
+            if (isTrace()) {
+                Log.v(TAG, "Result: FAIL. " + ioEx.getMessage()); //$NON-NLS-1$
+            }
+            throw translateException(ioEx, this.mFileName);
+        }
+
+        if (isTrace()) {
+            Log.v(TAG, "Result: OK"); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MountPoint getSrcWritableMountPoint() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MountPoint getDstWritableMountPoint() {
+        return MountPointHelper.getMountPointFromDirectory(this.mFileName);
+    }
+}
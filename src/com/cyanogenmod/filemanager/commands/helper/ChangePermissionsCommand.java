@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.helper;
+
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.commands.ChangePermissionsExecutable;
+import com.cyanogenmod.filemanager.console.ExecutionException;
+import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.console.ReadOnlyFilesystemException;
+import com.cyanogenmod.filemanager.console.helper.HelperClient;
+import com.cyanogenmod.filemanager.model.MountPoint;
+import com.cyanogenmod.filemanager.model.Permissions;
+import com.cyanogenmod.filemanager.util.MountPointHelper;
+
+import java.io.IOException;
+
+
+/**
+ * A class for change the permissions of an object through the helper process.
+ */
+public class ChangePermissionsCommand extends Program implements ChangePermissionsExecutable {
+
+    private static final String TAG = "ChangePermissionsCommand"; //$NON-NLS-1$
+
+    private final String mFileName;
+    private final Permissions mPermissions;
+
+    /**
+     * Constructor of <code>ChangePermissionsCommand</code>.
+     *
+     * @param fileName The name of the file or directory to be changed
+     * @param newPermissions The new permissions to apply to the object
+     */
+    public ChangePermissionsCommand(String fileName, Permissions newPermissions) {
+        super();
+        this.mFileName = fileName;
+        this.mPermissions = newPermissions;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Boolean getResult() {
+        return Boolean.TRUE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute(HelperClient client)
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory,
+            ReadOnlyFilesystemException, ExecutionException {
+        String octal = this.mPermissions.toOctalString();
+        if (isTrace()) {
+            Log.v(TAG,
+                    String.format("Changing permissions of %s to %s", //$NON-NLS-1$
+                            this.mFileName, octal));
+        }
+
+        try {
+            client.chmod(this.mFileName, Integer.parseInt(octal, 8));
+        } catch (IOException ioEx) {
+            if (isTrace()) {
+                Log.v(TAG, "Result: FAIL. " + ioEx.getMessage()); //$NON-NLS-1$
+            }
+            throw translateException(ioEx, this.mFileName);
+        }
+
+        if (isTrace()) {
+            Log.v(TAG, "Result: OK"); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MountPoint getSrcWritableMountPoint() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MountPoint getDstWritableMountPoint() {
+        return MountPointHelper.getMountPointFromDirectory(this.mFileName);
+    }
+}
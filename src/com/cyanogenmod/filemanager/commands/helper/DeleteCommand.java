@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.helper;
+
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.commands.DeleteDirExecutable;
+import com.cyanogenmod.filemanager.commands.DeleteFileExecutable;
+import com.cyanogenmod.filemanager.console.ExecutionException;
+import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.console.ReadOnlyFilesystemException;
+import com.cyanogenmod.filemanager.console.helper.HelperClient;
+import com.cyanogenmod.filemanager.model.MountPoint;
+import com.cyanogenmod.filemanager.util.MountPointHelper;
+
+import java.io.IOException;
+
+
+/**
+ * A class for delete a file or a directory (recursively) through the helper process.
+ */
+public class DeleteCommand extends Program
+    implements DeleteFileExecutable, DeleteDirExecutable {
+
+    private static final String TAG = "DeleteCommand"; //$NON-NLS-1$
+
+    private final String mPath;
+
+    /**
+     * Constructor of <code>DeleteCommand</code>.
+     *
+     * @param path The name of the file or directory to be deleted
+     */
+    public DeleteCommand(String path) {
+        super();
+        this.mPath = path;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Boolean getResult() {
+        return Boolean.TRUE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute(HelperClient client)
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory,
+            ReadOnlyFilesystemException, ExecutionException {
+        if (isTrace()) {
+            Log.v(TAG,
+                    String.format("Deleting %s", //$NON-NLS-1$
+                            this.mPath));
+        }
+
+        try {
+            client.delete(this.mPath);
+        } catch (IOException ioEx) {
+            if (isTrace()) {
+                Log.v(TAG, "Result: FAIL. " + ioEx.getMessage()); //$NON-NLS-1$
+            }
+            throw translateException(ioEx, this.mPath);
+        }
+
+        if (isTrace()) {
+            Log.v(TAG, "Result: OK"); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MountPoint getSrcWritableMountPoint() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MountPoint getDstWritableMountPoint() {
+        return MountPointHelper.getMountPointFromDirectory(this.mPath);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.helper;
+
+import com.cyanogenmod.filemanager.commands.ChangeOwnerExecutable;
+import com.cyanogenmod.filemanager.commands.ChangePermissionsExecutable;
+import com.cyanogenmod.filemanager.commands.CopyExecutable;
+import com.cyanogenmod.filemanager.commands.DeleteDirExecutable;
+import com.cyanogenmod.filemanager.commands.DeleteFileExecutable;
+import com.cyanogenmod.filemanager.commands.ListExecutable;
+import com.cyanogenmod.filemanager.commands.ResolveLinkExecutable;
+import com.cyanogenmod.filemanager.commands.shell.ShellExecutableCreator;
+import com.cyanogenmod.filemanager.console.CommandNotFoundException;
+import com.cyanogenmod.filemanager.console.helper.HelperConsole;
+import com.cyanogenmod.filemanager.model.Group;
+import com.cyanogenmod.filemanager.model.Permissions;
+import com.cyanogenmod.filemanager.model.User;
+
+/**
+ * A class for create {@link "Executable"} objects that are resolved by the privileged
+ * helper process. The executables not supported by the helper are created as shell
+ * executables of the privileged shell.
+ */
+public class HelperExecutableCreator extends ShellExecutableCreator {
+
+    private final HelperConsole mConsole;
+
+    /**
+     * Constructor of <code>HelperExecutableCreator</code>.
+     *
+     * @param console A helper console that use for create objects
+     */
+    HelperExecutableCreator(HelperConsole console) {
+        super(console);
+        this.mConsole = console;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ChangeOwnerExecutable createChangeOwnerExecutable(
+            String fso, User newUser, Group newGroup) throws CommandNotFoundException {
+        return new ChangeOwnerCommand(this.mConsole.getCtx(), fso, newUser, newGroup);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ChangePermissionsExecutable createChangePermissionsExecutable(
+            String fso, Permissions newPermissions) throws CommandNotFoundException {
+        return new ChangePermissionsCommand(fso, newPermissions);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CopyExecutable createCopyExecutable(String src, String dst)
+            throws CommandNotFoundException {
+        return new CopyCommand(src, dst);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DeleteDirExecutable createDeleteDirExecutable(String dir)
+            throws CommandNotFoundException {
+        return new DeleteCommand(dir);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DeleteFileExecutable createDeleteFileExecutable(String file)
+            throws CommandNotFoundException {
+        return new DeleteCommand(file);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ListExecutable createListExecutable(String src)
+            throws CommandNotFoundException {
+        return new ListCommand(this.mConsole.getCtx(), src);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ListExecutable createFileInfoExecutable(String src, boolean followSymlinks)
+            throws CommandNotFoundException {
+        return new ListCommand(this.mConsole.getCtx(), src, followSymlinks);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResolveLinkExecutable createResolveLinkExecutable(String fso)
+            throws CommandNotFoundException {
+        return new ResolveLinkCommand(this.mConsole.getCtx(), fso);
+    }
+
+}
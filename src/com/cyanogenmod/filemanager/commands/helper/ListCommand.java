@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.helper;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.commands.ListExecutable;
+import com.cyanogenmod.filemanager.console.ExecutionException;
+import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.console.ReadOnlyFilesystemException;
+import com.cyanogenmod.filemanager.console.helper.HelperClient;
+import com.cyanogenmod.filemanager.console.helper.HelperStat;
+import com.cyanogenmod.filemanager.model.FileSystemObject;
+import com.cyanogenmod.filemanager.model.ParentDirectory;
+import com.cyanogenmod.filemanager.model.Symlink;
+import com.cyanogenmod.filemanager.util.FileHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * A class for list information about files and directories through the helper process.
+ * The helper returns the stat of every entry (and of the target of the symlinks) in a
+ * single response, so there is no need to parse or to resolve the symlinks one by one.
+ */
+public class ListCommand extends Program implements ListExecutable {
+
+    private static final String TAG = "ListCommand"; //$NON-NLS-1$
+
+    private final Context mCtx;
+    private final String mSrc;
+    private final LIST_MODE mMode;
+    private final boolean mFollowSymlinks;
+    private final List<FileSystemObject> mFiles;
+
+    /**
+     * Constructor of <code>ListCommand</code>. List mode.
+     *
+     * @param ctx The current context
+     * @param src The file system object to be listed
+     */
+    public ListCommand(Context ctx, String src) {
+        this(ctx, src, LIST_MODE.DIRECTORY, false);
+    }
+
+    /**
+     * Constructor of <code>ListCommand</code>. FileInfo mode
+     *
+     * @param ctx The current context
+     * @param src The file system object to be listed
+     * @param followSymlinks If follow the symlink
+     */
+    public ListCommand(Context ctx, String src, boolean followSymlinks) {
+        this(ctx, src, LIST_MODE.FILEINFO, followSymlinks);
+    }
+
+    /**
+     * Constructor of <code>ListCommand</code>.
+     *
+     * @param ctx The current context
+     * @param src The file system object to be listed
+     * @param mode The mode of listing
+     * @param followSymlinks If follow the symlink
+     */
+    private ListCommand(Context ctx, String src, LIST_MODE mode, boolean followSymlinks) {
+        super();
+        this.mCtx = ctx;
+        this.mSrc = src;
+        this.mMode = mode;
+        this.mFollowSymlinks = followSymlinks;
+        this.mFiles = new ArrayList<FileSystemObject>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FileSystemObject> getResult() {
+        return this.mFiles;
+    }
+
+    /**
+     * Method that returns a single result of the program invocation.
+     * Only must be called within a <code>FILEINFO</code> mode listing.
+     *
+     * @return FileSystemObject The file system object reference
+     */
+    public FileSystemObject getSingleResult() {
+        return this.mFiles.get(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute(HelperClient client)
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory,
+            ReadOnlyFilesystemException, ExecutionException {
+        if (isTrace()) {
+            Log.v(TAG,
+                    String.format("Listing %s. Mode: %s", //$NON-NLS-1$
+                            this.mSrc, this.mMode));
+        }
+
+        try {
+            if (this.mMode.compareTo(LIST_MODE.DIRECTORY) == 0) {
+                List<HelperStat> stats = client.list(this.mSrc);
+                int cc = stats.size();
+                for (int i = 0; i < cc; i++) {
+                    this.mFiles.add(toFileSystemObject(this.mSrc, stats.get(i)));
+                }
+
+                //Now if not is the root directory
+                if (this.mSrc.compareTo(FileHelper.ROOT_DIRECTORY) != 0) {
+                    this.mFiles.add(0, new ParentDirectory(new File(this.mSrc).getParent()));
+                }
+
+            } else {
+                String src = this.mSrc;
+                if (this.mFollowSymlinks) {
+                    src = client.readlink(this.mSrc);
+                }
+                HelperStat stat = client.stat(src, false);
+                this.mFiles.add(toFileSystemObject(new File(src).getParent(), stat));
+            }
+
+        } catch (IOException ioEx) {
+            if (isTrace()) {
+                Log.v(TAG, "Result: FAIL. " + ioEx.getMessage()); //$NON-NLS-1$
+            }
+            throw translateException(ioEx, this.mSrc);
+        }
+
+        if (isTrace()) {
+            Log.v(TAG, "Result: OK"); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Method that creates a file system object, resolving the reference of the symlinks
+     *
+     * @param parent The parent directory
+     * @param stat The stat of the object
+     * @return FileSystemObject The file system object
+     * @throws ExecutionException If the stat can't be translated
+     */
+    private FileSystemObject toFileSystemObject(String parent, HelperStat stat)
+            throws ExecutionException {
+        FileSystemObject fso = toFileSystemObject(this.mCtx, parent, stat);
+        if (fso instanceof Symlink && stat.getLinkRef() != null) {
+            File link = new File(stat.getLinkPath());
+            ((Symlink)fso).setLinkRef(
+                    toFileSystemObject(this.mCtx, link.getParent(), stat.getLinkRef()));
+        }
+        if (isTrace()) {
+            Log.v(TAG, String.valueOf(fso));
+        }
+        return fso;
+    }
+
+}
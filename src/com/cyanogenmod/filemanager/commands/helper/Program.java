@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.helper;
+
+import android.content.Context;
+import android.util.SparseArray;
+
+import com.cyanogenmod.filemanager.commands.Executable;
+import com.cyanogenmod.filemanager.console.ExecutionException;
+import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.console.ReadOnlyFilesystemException;
+import com.cyanogenmod.filemanager.console.helper.HelperClient;
+import com.cyanogenmod.filemanager.console.helper.HelperException;
+import com.cyanogenmod.filemanager.console.helper.HelperProtocol;
+import com.cyanogenmod.filemanager.console.helper.HelperStat;
+import com.cyanogenmod.filemanager.model.AID;
+import com.cyanogenmod.filemanager.model.FileSystemObject;
+import com.cyanogenmod.filemanager.model.Group;
+import com.cyanogenmod.filemanager.model.Permissions;
+import com.cyanogenmod.filemanager.model.User;
+import com.cyanogenmod.filemanager.util.AIDHelper;
+import com.cyanogenmod.filemanager.util.MountPointHelper;
+import com.cyanogenmod.filemanager.util.ParseHelper;
+
+import java.io.IOException;
+import java.util.Date;
+
+
+/**
+ * An abstract base class for all the executables that are resolved by the privileged
+ * helper process.
+ *
+ * @see HelperClient
+ */
+public abstract class Program implements Executable {
+
+    private boolean mTrace;
+
+    /**
+     * Constructor of <code>Program</code>
+     */
+    public Program() {
+        super();
+    }
+
+    /**
+     * Method that return if the command has to trace his operations
+     *
+     * @return boolean If the command has to trace
+     */
+    public boolean isTrace() {
+        return this.mTrace;
+    }
+
+    /**
+     * Method that sets if the command has to trace his operations
+     *
+     * @param trace If the command has to trace
+     */
+    public void setTrace(boolean trace) {
+        this.mTrace = trace;
+    }
+
+    /**
+     * Method that executes the program through the helper process
+     *
+     * @param client The client of the helper process
+     * @throws NoSuchFileOrDirectory If the file or directory was not found
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @throws ReadOnlyFilesystemException If the operation writes in a read-only filesystem
+     * @throws ExecutionException If the operation fails or the helper is not reachable
+     */
+    public abstract void execute(HelperClient client)
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory,
+            ReadOnlyFilesystemException, ExecutionException;
+
+    /**
+     * Method that translates an error of the helper process into the exceptions
+     * used by the consoles.
+     *
+     * @param ex The error of the helper process
+     * @param path The path affected by the operation
+     * @return ExecutionException The exception to throw if the error isn't translated into
+     * other exception
+     * @throws NoSuchFileOrDirectory If the file or directory was not found
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @throws ReadOnlyFilesystemException If the operation writes in a read-only filesystem
+     */
+    protected static ExecutionException translateException(IOException ex, String path)
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory,
+            ReadOnlyFilesystemException {
+        if (ex instanceof HelperException) {
+            switch (((HelperException)ex).getStatus()) {
+                case HelperProtocol.STATUS_NOT_FOUND:
+                    throw new NoSuchFileOrDirectory(path);
+                case HelperProtocol.STATUS_PERMISSION_DENIED:
+                    throw new InsufficientPermissionsException();
+                case HelperProtocol.STATUS_READ_ONLY:
+                    throw new ReadOnlyFilesystemException(
+                            MountPointHelper.getMountPointFromDirectory(path));
+                default:
+                    break;
+            }
+        }
+        return new ExecutionException(String.valueOf(ex.getMessage()), ex);
+    }
+
+    /**
+     * Method that creates a file system object from the information returned by
+     * the helper process.
+     *
+     * @param ctx The current context
+     * @param parent The parent directory of the object
+     * @param stat The information of the object
+     * @return FileSystemObject The file system object
+     * @throws ExecutionException If the information can't be translated
+     */
+    protected static FileSystemObject toFileSystemObject(
+            Context ctx, String parent, HelperStat stat) throws ExecutionException {
+        try {
+            SparseArray<AID> aids = AIDHelper.getAIDs(ctx, false);
+            User user = new User(stat.getUid(), getAIDName(aids, stat.getUid()));
+            Group group = new Group(stat.getGid(), getAIDName(aids, stat.getGid()));
+            Permissions permissions = Permissions.fromOctalString(stat.toOctalString());
+            return ParseHelper.createObject(
+                    parent, stat.getType(), stat.getName(), stat.getLink(), user, group,
+                    permissions, new Date(stat.getLastModified()), stat.getSize());
+        } catch (Exception ex) {
+            throw new ExecutionException(
+                    String.format("can't parse %s", stat), ex); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Method that returns the name of an user or group identifier
+     *
+     * @param aids The known identifiers
+     * @param id The identifier
+     * @return String The name of the identifier
+     */
+    private static String getAIDName(SparseArray<AID> aids, int id) {
+        AID aid = aids != null ? aids.get(id) : null;
+        return aid != null ? aid.getName() : String.valueOf(id);
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.helper;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.commands.ResolveLinkExecutable;
+import com.cyanogenmod.filemanager.console.ExecutionException;
+import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.console.ReadOnlyFilesystemException;
+import com.cyanogenmod.filemanager.console.helper.HelperClient;
+import com.cyanogenmod.filemanager.model.FileSystemObject;
+
+
+/**
+ * A class for retrieve the real file name of a symlink through the helper process. This
+ * command can be used too for retrieve the absolute path of a file or directory
+ */
+public class ResolveLinkCommand extends Program implements ResolveLinkExecutable {
+
+    private static final String TAG = "ResolveLinkCommand"; //$NON-NLS-1$
+
+    private final Context mCtx;
+    private final String mSrc;
+    private FileSystemObject mFso;
+
+    /**
+     * Constructor of <code>ResolveLinkCommand</code>.
+     *
+     * @param ctx The current context
+     * @param src The file system object to read
+     */
+    public ResolveLinkCommand(Context ctx, String src) {
+        super();
+        this.mCtx = ctx;
+        this.mSrc = src;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FileSystemObject getResult() {
+        return this.mFso;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute(HelperClient client)
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory,
+            ReadOnlyFilesystemException, ExecutionException {
+        if (isTrace()) {
+            Log.v(TAG,
+                    String.format("Resolving link of %s", //$NON-NLS-1$
+                            this.mSrc));
+        }
+
+        // The list command already resolves the link of the file
+        ListCommand cmd = new ListCommand(this.mCtx, this.mSrc, true);
+        cmd.setTrace(isTrace());
+        cmd.execute(client);
+        this.mFso = cmd.getSingleResult();
+
+        if (isTrace()) {
+            Log.v(TAG,
+                    String.format("Link: %s", //$NON-NLS-1$
+                            this.mFso));
+        }
+    }
+
+}
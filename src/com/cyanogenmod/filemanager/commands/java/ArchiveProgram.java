@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.java;
+
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.commands.AsyncResultExecutable;
+import com.cyanogenmod.filemanager.commands.AsyncResultListener;
+import com.cyanogenmod.filemanager.commands.ProgressExecutable;
+import com.cyanogenmod.filemanager.console.ExecutionException;
+import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.util.Archiver;
+import com.cyanogenmod.filemanager.util.ProgressTracker;
+
+import java.io.IOException;
+
+/**
+ * An abstract class for the programs that create or extract archives and compressed files
+ * in-process (see {@link Archiver}).<br/>
+ * <br/>
+ * The name of every entry is delivered as a partial result, and the bytes processed are
+ * reported to the progress tracker (if any).
+ */
+public abstract class ArchiveProgram extends Program
+    implements AsyncResultExecutable, ProgressExecutable {
+
+    private final String mTag;
+    private final AsyncResultListener mAsyncResultListener;
+    private final Archiver mArchiver;
+
+    private Boolean mResult;
+    private volatile boolean mFinished;
+    private final Object mSync = new Object();
+
+    /**
+     * Constructor of <code>ArchiveProgram</code>.
+     *
+     * @param tag The log tag of the program
+     * @param asyncResultListener The partial result listener
+     */
+    public ArchiveProgram(String tag, AsyncResultListener asyncResultListener) {
+        super();
+        this.mTag = tag;
+        this.mAsyncResultListener = asyncResultListener;
+        this.mArchiver = new Archiver();
+        this.mArchiver.setOnEntryListener(new Archiver.OnEntryListener() {
+            @Override
+            public void onEntry(String name) {
+                if (ArchiveProgram.this.mAsyncResultListener != null) {
+                    ArchiveProgram.this.mAsyncResultListener.onPartialResult(name);
+                }
+            }
+        });
+        this.mResult = Boolean.FALSE;
+        this.mFinished = false;
+    }
+
+    /**
+     * Method that does the operation.
+     *
+     * @param archiver The archiver that does the operation
+     * @return boolean If the operation was completed (false if it was cancelled)
+     * @throws IOException If the operation fails
+     */
+    protected abstract boolean doOperation(Archiver archiver) throws IOException;
+
+    /**
+     * Method that returns the result of the operation
+     *
+     * @return Boolean The result of the operation
+     */
+    public Boolean getResult() {
+        return this.mResult;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setProgressTracker(ProgressTracker tracker) {
+        this.mArchiver.setProgressTracker(tracker);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isAsynchronous() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute()
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory, ExecutionException {
+        if (this.mAsyncResultListener != null) {
+            this.mAsyncResultListener.onAsyncStart();
+        }
+
+        int exitCode = 0;
+        try {
+            this.mResult = Boolean.valueOf(doOperation(this.mArchiver));
+            if (isTrace()) {
+                Log.v(this.mTag, "Result: " + //$NON-NLS-1$
+                        (this.mResult.booleanValue() ? "OK" : "CANCELLED")); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+        } catch (IOException e) {
+            Log.e(this.mTag, "Archive operation failed", e); //$NON-NLS-1$
+            exitCode = 1;
+            if (this.mAsyncResultListener != null) {
+                this.mAsyncResultListener.onException(new ExecutionException(e.getMessage(), e));
+            }
+        } finally {
+            this.mFinished = true;
+            synchronized (this.mSync) {
+                this.mSync.notifyAll();
+            }
+        }
+
+        if (this.mAsyncResultListener != null) {
+            this.mAsyncResultListener.onAsyncEnd(this.mArchiver.isCancelled());
+        }
+        if (this.mAsyncResultListener != null) {
+            this.mAsyncResultListener.onAsyncExitCode(exitCode);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCancelled() {
+        return this.mArchiver.isCancelled();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean cancel() {
+        this.mArchiver.cancel();
+        try {
+            synchronized (this.mSync) {
+                if (!this.mFinished) {
+                    this.mSync.wait(5000L);
+                }
+            }
+        } catch (Exception e) {/**NON BLOCK**/}
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean end() {
+        return cancel();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setOnEndListener(OnEndListener onEndListener) {
+        //Ignore. Java console don't use this
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setOnCancelListener(OnCancelListener onCancelListener) {
+        //Ignore. Java console don't use this
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCancellable() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncResultListener getAsyncResultListener() {
+        return this.mAsyncResultListener;
+    }
+}
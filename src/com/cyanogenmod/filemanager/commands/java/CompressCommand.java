@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.java;
+
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.commands.AsyncResultListener;
+import com.cyanogenmod.filemanager.commands.CompressExecutable;
+import com.cyanogenmod.filemanager.preferences.CompressionMode;
+import com.cyanogenmod.filemanager.util.Archiver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A class for compress file system objects (tar, tar.gz, tar.bz2, gz and bz2), without
+ * forking the <code>tar</code>, <code>gzip</code> or <code>bzip2</code> programs.<br/>
+ * <br/>
+ * As the <code>gzip</code> and <code>bzip2</code> programs do, the source file of a
+ * compressed (not archived) file is deleted when the compression ends.
+ */
+public class CompressCommand extends ArchiveProgram implements CompressExecutable {
+
+    private static final String TAG = "CompressCommand"; //$NON-NLS-1$
+
+    private final CompressionMode mMode;
+    private final String[] mSrc;
+    private final String mOutFile;
+
+    /**
+     * Constructor of <code>CompressCommand</code>. This method creates an archive-compressed
+     * file from one or various file system objects.
+     *
+     * @param mode The compression mode
+     * @param dst The absolute path of the new compress file
+     * @param src An array of file system objects to compress
+     * @param asyncResultListener The partial result listener
+     */
+    public CompressCommand(
+            CompressionMode mode, String dst, String[] src,
+            AsyncResultListener asyncResultListener) {
+        super(TAG, asyncResultListener);
+        this.mMode = mode;
+        this.mSrc = src;
+        this.mOutFile = dst;
+    }
+
+    /**
+     * Constructor of <code>CompressCommand</code>. This method creates a compressed
+     * file from one file.
+     *
+     * @param mode The compression mode
+     * @param src The file to compress
+     * @param asyncResultListener The partial result listener
+     */
+    public CompressCommand(
+            CompressionMode mode, String src, AsyncResultListener asyncResultListener) {
+        super(TAG, asyncResultListener);
+        this.mMode = mode;
+        this.mSrc = new String[]{src};
+        this.mOutFile = String.format("%s.%s", src, mode.mExtension); //$NON-NLS-1$
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean doOperation(Archiver archiver) throws IOException {
+        if (isTrace()) {
+            Log.v(TAG,
+                    String.format("Compressing %s to %s (%s)", //$NON-NLS-1$
+                            Arrays.toString(this.mSrc), this.mOutFile, this.mMode));
+        }
+        if (Archiver.isParallelCompression(this.mMode)) {
+            archiver.setCompressionThreads(Runtime.getRuntime().availableProcessors());
+        }
+        File dst = new File(this.mOutFile);
+        if (this.mMode.mArchive) {
+            File[] srcs = new File[this.mSrc.length];
+            for (int i = 0; i < srcs.length; i++) {
+                srcs[i] = new File(this.mSrc[i]);
+            }
+            File base = dst.getParentFile();
+            if (base == null) {
+                base = new File(File.separator);
+            }
+            return archiver.archive(this.mMode, dst, srcs, base);
+        }
+
+        File src = new File(this.mSrc[0]);
+        if (!archiver.compress(this.mMode, src, dst)) {
+            return false;
+        }
+        if (!src.delete()) {
+            Log.w(TAG, String.format("Failed to delete the source file %s", src)); //$NON-NLS-1$
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getOutCompressedFile() {
+        return this.mOutFile;
+    }
+}
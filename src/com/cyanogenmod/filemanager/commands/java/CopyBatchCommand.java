@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.java;
+
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.commands.CopyBatchExecutable;
+import com.cyanogenmod.filemanager.commands.ProgressExecutable;
+import com.cyanogenmod.filemanager.console.ExecutionException;
+import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.console.InsufficientSpaceException;
+import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.console.ReadOnlyFilesystemException;
+import com.cyanogenmod.filemanager.model.MountPoint;
+import com.cyanogenmod.filemanager.util.FileHelper;
+import com.cyanogenmod.filemanager.util.MountPointHelper;
+import com.cyanogenmod.filemanager.util.ProgressTracker;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * A class for copy a set of files and directories to a destination directory
+ * in a single pass.
+ */
+public class CopyBatchCommand extends Program
+    implements CopyBatchExecutable, ProgressExecutable {
+
+    private static final String TAG = "CopyBatchCommand"; //$NON-NLS-1$
+
+    private final String[] mSrcs;
+    private final String mDst;
+    private ProgressTracker mTracker;
+    private final Map<String, String> mFailures;
+
+    /**
+     * Constructor of <code>CopyBatchCommand</code>.
+     *
+     * @param srcs The files and directories to be copied
+     * @param dst The directory in which copy the files and directories
+     */
+    public CopyBatchCommand(String[] srcs, String dst) {
+        super();
+        this.mSrcs = srcs;
+        this.mDst = dst;
+        this.mFailures = new LinkedHashMap<String, String>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, String> getResult() {
+        return this.mFailures;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setProgressTracker(ProgressTracker tracker) {
+        this.mTracker = tracker;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute()
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory, ExecutionException,
+            ReadOnlyFilesystemException {
+        if (isTrace()) {
+            Log.v(TAG,
+                    String.format("Copying %d files to %s", //$NON-NLS-1$
+                            Integer.valueOf(this.mSrcs.length), this.mDst));
+        }
+
+        this.mFailures.clear();
+        for (int i = 0; i < this.mSrcs.length; i++) {
+            File s = new File(this.mSrcs[i]);
+            File d = new File(this.mDst, s.getName());
+            if (!s.exists()) {
+                this.mFailures.put(this.mSrcs[i], "No such file or directory"); //$NON-NLS-1$
+                continue;
+            }
+
+            //Copy recursively
+            boolean copied = false;
+            String failure = "Failed to copy"; //$NON-NLS-1$
+            try {
+                copied = FileHelper.copyRecursive(s, d, getBufferSize(), this.mTracker);
+            } catch (InsufficientSpaceException e) {
+                // No more files can be copied
+                throw e;
+            } catch (ExecutionException e) {
+                failure = String.valueOf(e.getMessage());
+            } catch (NoSuchFileOrDirectory e) {
+                failure = "No such file or directory"; //$NON-NLS-1$
+            }
+            if (!copied) {
+                if (isTrace()) {
+                    Log.v(TAG, String.format("Failed to copy: %s", //$NON-NLS-1$
+                            this.mSrcs[i]));
+                }
+                this.mFailures.put(this.mSrcs[i], failure);
+            }
+        }
+
+        if (isTrace()) {
+            Log.v(TAG,
+                    String.format("Result: %d failures", //$NON-NLS-1$
+                            Integer.valueOf(this.mFailures.size())));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MountPoint getSrcWritableMountPoint() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MountPoint getDstWritableMountPoint() {
+        return MountPointHelper.getMountPointFromDirectory(this.mDst);
+    }
+}
@@ -19,12 +19,15 @@ package com.cyanogenmod.filemanager.commands.java;
 import android.util.Log;
 
 import com.cyanogenmod.filemanager.commands.CopyExecutable;
+import com.cyanogenmod.filemanager.commands.ProgressExecutable;
 import com.cyanogenmod.filemanager.console.ExecutionException;
 import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
 import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.console.ReadOnlyFilesystemException;
 import com.cyanogenmod.filemanager.model.MountPoint;
-import com.cyanogenmod.filemanager.util.FileHelper;
 import com.cyanogenmod.filemanager.util.MountPointHelper;
+import com.cyanogenmod.filemanager.util.ProgressTracker;
+import com.cyanogenmod.filemanager.util.TreeCopier;
 
 import java.io.File;
 
@@ -32,12 +35,14 @@ import java.io.File;
 /**
  * A class for copy a file or directory.
  */
-public class CopyCommand extends Program implements CopyExecutable {
+public class CopyCommand extends Program
+    implements CopyExecutable, ProgressExecutable {
 
     private static final String TAG = "CopyCommand"; //$NON-NLS-1$
 
     private final String mSrc;
     private final String mDst;
+    private ProgressTracker mTracker;
 
     /**
      * Constructor of <code>CopyCommand</code>.
@@ -59,12 +64,21 @@ public class CopyCommand extends Program implements CopyExecutable {
         return Boolean.TRUE;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setProgressTracker(ProgressTracker tracker) {
+        this.mTracker = tracker;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void execute()
-            throws InsufficientPermissionsException, NoSuchFileOrDirectory, ExecutionException {
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory, ExecutionException,
+            ReadOnlyFilesystemException {
         if (isTrace()) {
             Log.v(TAG,
                     String.format("Moving from %s to %s", //$NON-NLS-1$
@@ -80,12 +94,14 @@ public class CopyCommand extends Program implements CopyExecutable {
             throw new NoSuchFileOrDirectory(this.mSrc);
         }
 
-        //Copy recursively
-        if (!FileHelper.copyRecursive(s, d, getBufferSize())) {
+        //Copy the tree in parallel
+        TreeCopier copier = new TreeCopier(s, d, getBufferSize());
+        copier.setProgressTracker(this.mTracker);
+        if (!copier.copy()) {
             if (isTrace()) {
-                Log.v(TAG, "Result: FAIL. InsufficientPermissionsException"); //$NON-NLS-1$
+                Log.v(TAG, "Result: FAIL. Cancelled"); //$NON-NLS-1$
             }
-            throw new InsufficientPermissionsException();
+            throw new ExecutionException("the copy was cancelled"); //$NON-NLS-1$
         }
 
         if (isTrace()) {
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.java;
+
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.commands.DeleteBatchExecutable;
+import com.cyanogenmod.filemanager.commands.ProgressExecutable;
+import com.cyanogenmod.filemanager.console.ExecutionException;
+import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.model.MountPoint;
+import com.cyanogenmod.filemanager.util.FileHelper;
+import com.cyanogenmod.filemanager.util.MountPointHelper;
+import com.cyanogenmod.filemanager.util.ProgressTracker;
+import com.cyanogenmod.filemanager.util.TreeDeleter;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * A class for delete a set of files and directories (recursively) in a single pass.
+ */
+public class DeleteBatchCommand extends Program
+    implements DeleteBatchExecutable, ProgressExecutable {
+
+    private static final String TAG = "DeleteBatchCommand"; //$NON-NLS-1$
+
+    private final String[] mPaths;
+    private final Map<String, String> mFailures;
+    private ProgressTracker mTracker;
+
+    /**
+     * Constructor of <code>DeleteBatchCommand</code>.
+     *
+     * @param paths The files and directories to be deleted (should be in the same mount point)
+     */
+    public DeleteBatchCommand(String[] paths) {
+        super();
+        this.mPaths = paths;
+        this.mFailures = new LinkedHashMap<String, String>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, String> getResult() {
+        return this.mFailures;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setProgressTracker(ProgressTracker tracker) {
+        this.mTracker = tracker;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute()
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory, ExecutionException {
+        if (isTrace()) {
+            Log.v(TAG,
+                    String.format("Deleting %d files", //$NON-NLS-1$
+                            Integer.valueOf(this.mPaths.length)));
+        }
+
+        this.mFailures.clear();
+        for (int i = 0; i < this.mPaths.length; i++) {
+            File f = new File(this.mPaths[i]);
+            if (!f.exists() && !FileHelper.isLink(f)) {
+                // Already deleted (a dangling link doesn't exist, but it must be deleted)
+                continue;
+            }
+            String failure = "Failed to delete"; //$NON-NLS-1$
+            boolean ret;
+            if (f.isDirectory()) {
+                // Delete the tree in parallel (a failure doesn't stop the delete)
+                TreeDeleter deleter = new TreeDeleter(f);
+                deleter.setProgressTracker(this.mTracker);
+                ret = deleter.delete();
+                if (deleter.isCancelled()) {
+                    if (isTrace()) {
+                        Log.v(TAG, "Result: FAIL. Cancelled"); //$NON-NLS-1$
+                    }
+                    throw new ExecutionException("the delete was cancelled"); //$NON-NLS-1$
+                }
+                Map<String, String> failures = deleter.getFailures();
+                if (!failures.isEmpty()) {
+                    failure = String.format("Failed to delete %d files: %s", //$NON-NLS-1$
+                            Integer.valueOf(failures.size()),
+                            failures.keySet().iterator().next());
+                }
+            } else {
+                if (this.mTracker != null) {
+                    this.mTracker.addFilesTotal(1);
+                }
+                ret = f.delete();
+                if (ret && this.mTracker != null) {
+                    this.mTracker.addFile();
+                }
+            }
+            if (!ret) {
+                if (isTrace()) {
+                    Log.v(TAG, String.format("Failed to delete: %s", //$NON-NLS-1$
+                            this.mPaths[i]));
+                }
+                this.mFailures.put(this.mPaths[i], failure);
+            }
+        }
+
+        if (isTrace()) {
+            Log.v(TAG,
+                    String.format("Result: %d failures", //$NON-NLS-1$
+                            Integer.valueOf(this.mFailures.size())));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MountPoint getSrcWritableMountPoint() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MountPoint getDstWritableMountPoint() {
+        return MountPointHelper.getMountPointFromDirectory(this.mPaths[0]);
+    }
+}
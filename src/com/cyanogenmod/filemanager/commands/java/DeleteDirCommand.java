@@ -19,12 +19,14 @@ package com.cyanogenmod.filemanager.commands.java;
 import android.util.Log;
 
 import com.cyanogenmod.filemanager.commands.DeleteDirExecutable;
+import com.cyanogenmod.filemanager.commands.ProgressExecutable;
 import com.cyanogenmod.filemanager.console.ExecutionException;
 import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
 import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
 import com.cyanogenmod.filemanager.model.MountPoint;
-import com.cyanogenmod.filemanager.util.FileHelper;
 import com.cyanogenmod.filemanager.util.MountPointHelper;
+import com.cyanogenmod.filemanager.util.ProgressTracker;
+import com.cyanogenmod.filemanager.util.TreeDeleter;
 
 import java.io.File;
 
@@ -32,11 +34,13 @@ import java.io.File;
 /**
  * A class for delete a folder.
  */
-public class DeleteDirCommand extends Program implements DeleteDirExecutable {
+public class DeleteDirCommand extends Program
+    implements DeleteDirExecutable, ProgressExecutable {
 
     private static final String TAG = "DeleteDirCommand"; //$NON-NLS-1$
 
     private final String mPath;
+    private ProgressTracker mTracker;
 
     /**
      * Constructor of <code>DeleteDirCommand</code>.
@@ -56,6 +60,14 @@ public class DeleteDirCommand extends Program implements DeleteDirExecutable {
         return Boolean.TRUE;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setProgressTracker(ProgressTracker tracker) {
+        this.mTracker = tracker;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -84,10 +96,20 @@ public class DeleteDirCommand extends Program implements DeleteDirExecutable {
             throw new ExecutionException("the path exists but is not a folder"); //$NON-NLS-1$
         }
 
-        // Delete the file
-        if (!FileHelper.deleteFolder(f)) {
+        // Delete the tree in parallel
+        TreeDeleter deleter = new TreeDeleter(f);
+        deleter.setProgressTracker(this.mTracker);
+        if (!deleter.delete()) {
+            if (deleter.isCancelled()) {
+                if (isTrace()) {
+                    Log.v(TAG, "Result: FAIL. Cancelled"); //$NON-NLS-1$
+                }
+                throw new ExecutionException("the delete was cancelled"); //$NON-NLS-1$
+            }
             if (isTrace()) {
-                Log.v(TAG, "Result: FAIL. InsufficientPermissionsException"); //$NON-NLS-1$
+                Log.v(TAG, String.format(
+                        "Result: FAIL. InsufficientPermissionsException. %d failures", //$NON-NLS-1$
+                        Integer.valueOf(deleter.getFailures().size())));
             }
             throw new InsufficientPermissionsException();
         }
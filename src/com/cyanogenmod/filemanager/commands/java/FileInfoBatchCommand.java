@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.java;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.commands.FileInfoBatchExecutable;
+import com.cyanogenmod.filemanager.console.ExecutionException;
+import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.model.FileSystemObject;
+import com.cyanogenmod.filemanager.util.FileHelper;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * A class for retrieve the information of a set of files and directories in
+ * a single pass.
+ */
+public class FileInfoBatchCommand extends Program implements FileInfoBatchExecutable {
+
+    private static final String TAG = "FileInfoBatchCommand"; //$NON-NLS-1$
+
+    private final Context mCtx;
+    private final String[] mSrc;
+    private final boolean mFollowSymlinks;
+    private final Map<String, FileSystemObject> mFiles;
+
+    /**
+     * Constructor of <code>FileInfoBatchCommand</code>.
+     *
+     * @param ctx The current context
+     * @param src The file system objects
+     * @param followSymlinks If follow the symlinks
+     */
+    public FileInfoBatchCommand(Context ctx, String[] src, boolean followSymlinks) {
+        super();
+        this.mCtx = ctx;
+        this.mSrc = src;
+        this.mFollowSymlinks = followSymlinks;
+        this.mFiles = new LinkedHashMap<String, FileSystemObject>(src.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, FileSystemObject> getResult() {
+        return this.mFiles;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute()
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory, ExecutionException {
+        if (isTrace()) {
+            Log.v(TAG,
+                    String.format("Retrieving info of %d files", //$NON-NLS-1$
+                            Integer.valueOf(this.mSrc.length)));
+        }
+
+        this.mFiles.clear();
+        for (int i = 0; i < this.mSrc.length; i++) {
+            FileSystemObject fso = null;
+            try {
+                File f = new File(this.mSrc[i]);
+                if (this.mFollowSymlinks) {
+                    f = f.getCanonicalFile();
+                }
+                if (f.exists()) {
+                    fso = FileHelper.createFileSystemObject(this.mCtx, f);
+                }
+            } catch (Exception e) {
+                // The information can't be retrieved. Treat as a missing file
+                fso = null;
+            }
+            if (isTrace()) {
+                Log.v(TAG, String.format("%s: %s", //$NON-NLS-1$
+                        this.mSrc[i], String.valueOf(fso)));
+            }
+            this.mFiles.put(this.mSrc[i], fso);
+        }
+
+        if (isTrace()) {
+            Log.v(TAG, "Result: OK"); //$NON-NLS-1$
+        }
+    }
+
+}
@@ -27,27 +27,52 @@ import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
 import com.cyanogenmod.filemanager.model.FileSystemObject;
 import com.cyanogenmod.filemanager.model.Query;
 import com.cyanogenmod.filemanager.util.FileHelper;
+import com.cyanogenmod.filemanager.util.ParallelTreeWalker;
 import com.cyanogenmod.filemanager.util.SearchHelper;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
- * A class for search files.
+ * A class for search files.<br/>
+ * <br/>
+ * The tree is walked in parallel (see {@link ParallelTreeWalker}). The slots of the query are
+ * compiled once in a single pattern, and the matches are delivered to the listener in batches.
  */
 public class FindCommand extends Program implements FindExecutable {
 
     private static final String TAG = "FindCommand"; //$NON-NLS-1$
 
+    /**
+     * No limit of results.
+     */
+    public static final int NO_LIMIT = 0;
+
+    // The maximum number of results of a batch, and the maximum time that a worker
+    // retains its results before deliver them
+    private static final int BATCH_SIZE = 50;
+    private static final long BATCH_INTERVAL = 250L;
+
     private final Context mCtx;
     private final String mDirectory;
     private final String[] mQueryRegExp;
+    private final Pattern mPattern;
+    private final int mMaxResults;
+    private final int mParallelism;
     private final AsyncResultListener mAsyncResultListener;
 
-    private boolean mCancelled;
-    private boolean mEnded;
+    private volatile boolean mCancelled;
+    private volatile boolean mEnded;
     private final Object mSync = new Object();
 
+    private final AtomicInteger mResults = new AtomicInteger();
+    private final Object mDeliverSync = new Object();
+
     /**
      * Constructor of <code>FindCommand</code>.
      *
@@ -58,10 +83,28 @@ public class FindCommand extends Program implements FindExecutable {
      */
     public FindCommand(
             Context ctx, String directory, Query query, AsyncResultListener asyncResultListener) {
+        this(ctx, directory, query, NO_LIMIT, asyncResultListener);
+    }
+
+    /**
+     * Constructor of <code>FindCommand</code>.
+     *
+     * @param ctx The current context
+     * @param directory The absolute directory where start the search
+     * @param query The terms to be searched
+     * @param maxResults The maximum number of results (or {@link #NO_LIMIT})
+     * @param asyncResultListener The partial result listener
+     */
+    public FindCommand(
+            Context ctx, String directory, Query query, int maxResults,
+            AsyncResultListener asyncResultListener) {
         super();
         this.mCtx = ctx;
         this.mDirectory = directory;
         this.mQueryRegExp = createRegexp(directory, query);
+        this.mPattern = SearchHelper.toPattern(query);
+        this.mMaxResults = maxResults;
+        this.mParallelism = Runtime.getRuntime().availableProcessors();
         this.mAsyncResultListener = asyncResultListener;
         this.mCancelled = false;
         this.mEnded = false;
@@ -110,7 +153,12 @@ public class FindCommand extends Program implements FindExecutable {
         }
 
         // Find the data
-        findRecursive(f);
+        if (this.mPattern != null) {
+            findParallel(f);
+        }
+        synchronized (this.mSync) {
+            this.mSync.notify();
+        }
 
         if (this.mAsyncResultListener != null) {
             this.mAsyncResultListener.onAsyncEnd(this.mCancelled);
@@ -125,48 +173,101 @@ public class FindCommand extends Program implements FindExecutable {
     }
 
     /**
-     * Method that search files recursively
+     * Method that search files in parallel
      *
      * @param folder The folder where to start the search
      */
-    private void findRecursive(File folder) {
-        // Obtains the files and folders of the folders
-        File[] files = folder.listFiles();
-        if (files != null) {
-            int cc = files.length;
-            for (int i = 0; i < cc; i++) {
-                if (files[i].isDirectory()) {
-                    findRecursive(files[i]);
-                }
+    private void findParallel(File folder) {
+        // All the files are created with the owner and permissions of the chroot
+        // environment, so resolve them only once
+        final FileSystemObject template = FileHelper.createFileSystemObject(this.mCtx, folder);
 
-                // Check if the file or folder matches the regexp
-                try {
-                    int ccc = this.mQueryRegExp.length;
-                    for (int j = 0; j < ccc; j++) {
-                        if (files[i].getName().matches(this.mQueryRegExp[j])) {
-                            FileSystemObject fso =
-                                    FileHelper.createFileSystemObject(this.mCtx, files[i]);
-                            if (fso != null) {
-                                if (isTrace()) {
-                                    Log.v(TAG, String.valueOf(fso));
-                                }
-                                if (this.mAsyncResultListener != null) {
-                                    this.mAsyncResultListener.onPartialResult(fso);
-                                }
-                            }
-                        }
-                    }
-                } catch (Exception e) {/**NON-BLOCK**/}
+        final Matcher[] matchers = new Matcher[this.mParallelism];
+        final List<List<FileSystemObject>> batches =
+                new ArrayList<List<FileSystemObject>>(this.mParallelism);
+        final long[] lastDeliveries = new long[this.mParallelism];
+        for (int i = 0; i < this.mParallelism; i++) {
+            matchers[i] = this.mPattern.matcher(""); //$NON-NLS-1$
+            batches.add(new ArrayList<FileSystemObject>(BATCH_SIZE));
+            lastDeliveries[i] = System.currentTimeMillis();
+        }
 
-                // Check if the process was cancelled
+        ParallelTreeWalker walker = new ParallelTreeWalker(this.mParallelism) {
+            @Override
+            public boolean isStopped() {
+                return super.isStopped()
+                        || FindCommand.this.mCancelled || FindCommand.this.mEnded;
+            }
+
+            @Override
+            protected boolean onVisit(int worker, File file, boolean isDirectory) {
+                // Check if the file or folder matches the regexp
+                if (!matchers[worker].reset(file.getName()).matches()) {
+                    return true;
+                }
+                if (FindCommand.this.mMaxResults != NO_LIMIT &&
+                    FindCommand.this.mResults.incrementAndGet() > FindCommand.this.mMaxResults) {
+                    // The limit of results was reached
+                    stop();
+                    return false;
+                }
+                FileSystemObject fso = null;
                 try {
-                    synchronized (this.mSync) {
-                        if (this.mCancelled  || this.mEnded) {
-                            this.mSync.notify();
-                            break;
-                        }
+                    if (template != null) {
+                        fso = FileHelper.createFileSystemObject(
+                                file, isDirectory, template.getUser(), template.getGroup(),
+                                template.getPermissions());
+                    } else {
+                        fso = FileHelper.createFileSystemObject(FindCommand.this.mCtx, file);
                     }
                 } catch (Exception e) {/**NON BLOCK**/}
+                if (fso != null) {
+                    if (isTrace()) {
+                        Log.v(TAG, String.valueOf(fso));
+                    }
+                    List<FileSystemObject> batch = batches.get(worker);
+                    batch.add(fso);
+                    if (batch.size() >= BATCH_SIZE) {
+                        lastDeliveries[worker] = System.currentTimeMillis();
+                        batches.set(worker, new ArrayList<FileSystemObject>(BATCH_SIZE));
+                        deliver(batch);
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            protected void onFolderWalked(int worker, File dir) {
+                List<FileSystemObject> batch = batches.get(worker);
+                long now = System.currentTimeMillis();
+                if (!batch.isEmpty() && now - lastDeliveries[worker] >= BATCH_INTERVAL) {
+                    lastDeliveries[worker] = now;
+                    batches.set(worker, new ArrayList<FileSystemObject>(BATCH_SIZE));
+                    deliver(batch);
+                }
+            }
+
+            @Override
+            protected void onWorkerEnd(int worker) {
+                List<FileSystemObject> batch = batches.get(worker);
+                if (!batch.isEmpty()) {
+                    deliver(batch);
+                }
+            }
+        };
+        walker.walk(folder);
+    }
+
+    /**
+     * Method that delivers a batch of results to the listener. The batches of the
+     * workers are delivered one by one.
+     *
+     * @param batch The batch of results
+     */
+    void deliver(List<FileSystemObject> batch) {
+        if (this.mAsyncResultListener != null) {
+            synchronized (this.mDeliverSync) {
+                this.mAsyncResultListener.onPartialResult(batch);
             }
         }
     }
@@ -176,9 +277,7 @@ public class FindCommand extends Program implements FindExecutable {
      */
     @Override
     public boolean isCancelled() {
-        synchronized (this.mSync) {
-            return this.mCancelled;
-        }
+        return this.mCancelled;
     }
 
     /**
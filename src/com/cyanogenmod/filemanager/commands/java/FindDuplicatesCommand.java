@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.java;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.commands.AsyncResultListener;
+import com.cyanogenmod.filemanager.commands.FindDuplicatesExecutable;
+import com.cyanogenmod.filemanager.console.ExecutionException;
+import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.model.DuplicateGroup;
+import com.cyanogenmod.filemanager.model.FileSystemObject;
+import com.cyanogenmod.filemanager.util.DuplicateFinder;
+import com.cyanogenmod.filemanager.util.FileHelper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A class for find the duplicate files of one or more folders.<br/>
+ * <br/>
+ * The files are compared by size, then by a partial hash and finally by a full hash
+ * (see {@link DuplicateFinder}). Every group of duplicates is delivered to the listener
+ * as a {@link DuplicateGroup} when it is confirmed.
+ */
+public class FindDuplicatesCommand extends Program implements FindDuplicatesExecutable {
+
+    private static final String TAG = "FindDuplicatesCommand"; //$NON-NLS-1$
+
+    private final Context mCtx;
+    private final String[] mDirectories;
+    private final AsyncResultListener mAsyncResultListener;
+    private final DuplicateFinder mFinder;
+
+    private volatile boolean mCancelled;
+    private volatile boolean mEnded;
+    private final Object mSync = new Object();
+
+    /**
+     * Constructor of <code>FindDuplicatesCommand</code>.
+     *
+     * @param ctx The current context
+     * @param directories The absolute directories where to search the duplicates
+     * @param asyncResultListener The partial result listener
+     */
+    public FindDuplicatesCommand(
+            Context ctx, String[] directories, AsyncResultListener asyncResultListener) {
+        super();
+        this.mCtx = ctx;
+        this.mDirectories = directories;
+        this.mAsyncResultListener = asyncResultListener;
+        File[] roots = new File[directories.length];
+        for (int i = 0; i < directories.length; i++) {
+            roots[i] = new File(directories[i]);
+        }
+        this.mFinder = new DuplicateFinder(roots);
+        this.mCancelled = false;
+        this.mEnded = false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isAsynchronous() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getStageTime(int stage) {
+        return this.mFinder.getStageTime(stage);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getStageFiles(int stage) {
+        return this.mFinder.getStageFiles(stage);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getWastedSize() {
+        return this.mFinder.getWastedSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute()
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory, ExecutionException {
+        if (isTrace()) {
+            Log.v(TAG,
+                    String.format("Finding duplicates in %s", //$NON-NLS-1$
+                            Arrays.toString(this.mDirectories)));
+        }
+        if (this.mAsyncResultListener != null) {
+            this.mAsyncResultListener.onAsyncStart();
+        }
+
+        for (int i = 0; i < this.mDirectories.length; i++) {
+            File f = new File(this.mDirectories[i]);
+            if (!f.exists()) {
+                if (isTrace()) {
+                    Log.v(TAG, "Result: FAIL. NoSuchFileOrDirectory"); //$NON-NLS-1$
+                }
+                if (this.mAsyncResultListener != null) {
+                    this.mAsyncResultListener.onException(
+                            new NoSuchFileOrDirectory(this.mDirectories[i]));
+                }
+            } else if (!f.isDirectory()) {
+                if (isTrace()) {
+                    Log.v(TAG, "Result: FAIL. NoSuchFileOrDirectory"); //$NON-NLS-1$
+                }
+                if (this.mAsyncResultListener != null) {
+                    this.mAsyncResultListener.onException(new ExecutionException(
+                            "path exists but it's not a folder")); //$NON-NLS-1$
+                }
+            }
+        }
+
+        // Find the duplicates
+        findDuplicates();
+        synchronized (this.mSync) {
+            this.mSync.notify();
+        }
+
+        if (isTrace()) {
+            Log.v(TAG, String.format(
+                    "Stages: size=%dms (%d files), partial hash=%dms (%d files), " + //$NON-NLS-1$
+                    "full hash=%dms (%d files)", //$NON-NLS-1$
+                    Long.valueOf(getStageTime(STAGE_SIZE)),
+                    Integer.valueOf(getStageFiles(STAGE_SIZE)),
+                    Long.valueOf(getStageTime(STAGE_PARTIAL_HASH)),
+                    Integer.valueOf(getStageFiles(STAGE_PARTIAL_HASH)),
+                    Long.valueOf(getStageTime(STAGE_FULL_HASH)),
+                    Integer.valueOf(getStageFiles(STAGE_FULL_HASH))));
+        }
+
+        if (this.mAsyncResultListener != null) {
+            this.mAsyncResultListener.onAsyncEnd(this.mCancelled);
+        }
+        if (this.mAsyncResultListener != null) {
+            this.mAsyncResultListener.onAsyncExitCode(0);
+        }
+
+        if (isTrace()) {
+            Log.v(TAG, "Result: OK"); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Method that finds the duplicates and delivers them to the listener.
+     */
+    private void findDuplicates() {
+        // All the files are created with the owner and permissions of the chroot
+        // environment, so resolve them only once
+        final FileSystemObject template = this.mDirectories.length == 0 ? null :
+                FileHelper.createFileSystemObject(this.mCtx, new File(this.mDirectories[0]));
+
+        this.mFinder.setOnDuplicatesListener(new DuplicateFinder.OnDuplicatesListener() {
+            @Override
+            public void onDuplicates(long size, List<File> files) {
+                List<FileSystemObject> fsos = new ArrayList<FileSystemObject>(files.size());
+                int cc = files.size();
+                for (int i = 0; i < cc; i++) {
+                    File file = files.get(i);
+                    FileSystemObject fso = null;
+                    try {
+                        if (template != null) {
+                            fso = FileHelper.createFileSystemObject(
+                                    file, false, template.getUser(), template.getGroup(),
+                                    template.getPermissions());
+                        } else {
+                            fso = FileHelper.createFileSystemObject(
+                                    FindDuplicatesCommand.this.mCtx, file);
+                        }
+                    } catch (Exception e) {/**NON BLOCK**/}
+                    if (fso != null) {
+                        fsos.add(fso);
+                    }
+                }
+                if (fsos.size() < 2) {
+                    return;
+                }
+                DuplicateGroup group = new DuplicateGroup(size, fsos);
+                if (isTrace()) {
+                    Log.v(TAG, String.valueOf(group));
+                }
+                if (FindDuplicatesCommand.this.mAsyncResultListener != null) {
+                    FindDuplicatesCommand.this.mAsyncResultListener.onPartialResult(group);
+                }
+            }
+        });
+        this.mFinder.find();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCancelled() {
+        return this.mCancelled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean cancel() {
+        try {
+            synchronized (this.mSync) {
+                this.mCancelled = true;
+                this.mFinder.cancel();
+                this.mSync.wait(5000L);
+            }
+        } catch (Exception e) {/**NON BLOCK**/}
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean end() {
+        try {
+            synchronized (this.mSync) {
+                this.mEnded = true;
+                this.mFinder.cancel();
+                this.mSync.wait(5000L);
+            }
+        } catch (Exception e) {/**NON BLOCK**/}
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setOnEndListener(OnEndListener onEndListener) {
+        //Ignore. Java console don't use this
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setOnCancelListener(OnCancelListener onCancelListener) {
+        //Ignore. Java console don't use this
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCancellable() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncResultListener getAsyncResultListener() {
+        return this.mAsyncResultListener;
+    }
+}
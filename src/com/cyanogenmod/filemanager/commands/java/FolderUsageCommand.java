@@ -26,24 +26,34 @@ import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
 import com.cyanogenmod.filemanager.model.FolderUsage;
 import com.cyanogenmod.filemanager.util.MimeTypeHelper;
 import com.cyanogenmod.filemanager.util.MimeTypeHelper.MimeTypeCategory;
+import com.cyanogenmod.filemanager.util.ParallelTreeWalker;
 
 import java.io.File;
 
 /**
- * A class for retrieve the disk usage of a folder.
+ * A class for retrieve the disk usage of a folder.<br/>
+ * <br/>
+ * The tree is walked in parallel (see {@link ParallelTreeWalker}). Every worker computes its
+ * own {@link FolderUsage} that is merged periodically into the result of the command.
  */
 public class FolderUsageCommand extends Program implements FolderUsageExecutable {
 
     private static final String TAG = "FolderUsage"; //$NON-NLS-1$
 
+    // The minimum time between partial results and between merges of the workers usages
+    private static final long PARTIAL_RESULT_INTERVAL = 250L;
+
     private final String mDirectory;
     private final AsyncResultListener mAsyncResultListener;
     private final FolderUsage mFolderUsage;
+    private final int mParallelism;
 
-    private boolean mCancelled;
-    private boolean mEnded;
+    private volatile boolean mCancelled;
+    private volatile boolean mEnded;
     private final Object mSync = new Object();
 
+    private long mLastPartialResult;
+
     /**
      * Constructor of <code>FolderUsageCommand</code>.
      *
@@ -52,10 +62,23 @@ public class FolderUsageCommand extends Program implements FolderUsageExecutable
      */
     public FolderUsageCommand(
             String directory, AsyncResultListener asyncResultListener) {
+        this(directory, asyncResultListener, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor of <code>FolderUsageCommand</code>.
+     *
+     * @param directory The absolute directory to compute
+     * @param asyncResultListener The partial result listener
+     * @param parallelism The number of threads that computes the folder usage
+     */
+    public FolderUsageCommand(
+            String directory, AsyncResultListener asyncResultListener, int parallelism) {
         super();
         this.mDirectory = directory;
         this.mAsyncResultListener = asyncResultListener;
         this.mFolderUsage = new FolderUsage(directory);
+        this.mParallelism = Math.max(1, parallelism);
         this.mCancelled = false;
         this.mEnded = false;
     }
@@ -110,8 +133,8 @@ public class FolderUsageCommand extends Program implements FolderUsageExecutable
             }
         }
 
-        // Compute data recursively
-        computeRecursive(f);
+        // Compute data in parallel
+        computeParallel(f);
 
         synchronized (this.mSync) {
             this.mEnded = true;
@@ -131,52 +154,89 @@ public class FolderUsageCommand extends Program implements FolderUsageExecutable
     }
 
     /**
-     * Method that computes the folder usage recursively
+     * Method that computes the folder usage in parallel.
      *
      * @param folder The folder where to start the computation
      */
-    private void computeRecursive(File folder) {
-        // Obtains the files and folders of the folders
-        try {
-            File[] files = folder.listFiles();
-            int c = 0;
-            if (files != null) {
-                int cc = files.length;
-                for (int i = 0; i < cc; i++) {
-                    if (files[i].isDirectory()) {
-                        this.mFolderUsage.addFolder();
-                        computeRecursive(files[i]);
-                    } else {
-                        this.mFolderUsage.addFile();
-                        // Compute statistics and size
-                        MimeTypeCategory category =
-                                MimeTypeHelper.getCategory(null, files[i]);
-                        this.mFolderUsage.addFileToCategory(category);
-                        this.mFolderUsage.addSize(files[i].length());
-                    }
-
-                    // Partial notification
-                    if (c % 5 == 0) {
-                        //If a listener is defined, then send the partial result
-                        if (getAsyncResultListener() != null) {
-                            getAsyncResultListener().onPartialResult(this.mFolderUsage);
-                        }
-                    }
-
-                    // Check if the process was cancelled
-                    try {
-                        synchronized (this.mSync) {
-                            if (this.mCancelled  || this.mEnded) {
-                                this.mSync.notify();
-                                break;
-                            }
-                        }
-                    } catch (Exception e) {/**NON BLOCK**/}
+    private void computeParallel(File folder) {
+        final FolderUsage[] usages = new FolderUsage[this.mParallelism];
+        final long[] lastMerges = new long[this.mParallelism];
+        for (int i = 0; i < this.mParallelism; i++) {
+            usages[i] = new FolderUsage(this.mDirectory);
+            lastMerges[i] = System.currentTimeMillis();
+        }
+        ParallelTreeWalker walker = new ParallelTreeWalker(this.mParallelism) {
+            @Override
+            public boolean isStopped() {
+                return super.isStopped()
+                        || FolderUsageCommand.this.mCancelled || FolderUsageCommand.this.mEnded;
+            }
+
+            @Override
+            protected boolean onVisit(int worker, File file, boolean isDirectory) {
+                FolderUsage usage = usages[worker];
+                if (isDirectory) {
+                    usage.addFolder();
+                } else {
+                    usage.addFile();
+                    // Compute statistics and size
+                    MimeTypeCategory category =
+                            MimeTypeHelper.getCategoryFromName(null, file.getName());
+                    usage.addFileToCategory(category);
+                    usage.addSize(file.length());
+                }
+                return true;
+            }
+
+            @Override
+            protected void onFolderWalked(int worker, File dir) {
+                // Merge the usage computed
+                long now = System.currentTimeMillis();
+                if (now - lastMerges[worker] >= PARTIAL_RESULT_INTERVAL) {
+                    lastMerges[worker] = now;
+                    FolderUsage usage = usages[worker];
+                    usages[worker] = new FolderUsage(FolderUsageCommand.this.mDirectory);
+                    merge(usage);
                 }
             }
-        } finally {
-            //If a listener is defined, then send the partial result
-            if (getAsyncResultListener() != null) {
+
+            @Override
+            protected void onWorkerEnd(int worker) {
+                merge(usages[worker]);
+            }
+        };
+        walker.walk(folder);
+
+        //If a listener is defined, then send the final result
+        notifyPartialResult(true);
+    }
+
+    /**
+     * Method that merges the usage computed by a worker into the result of the command,
+     * and sends a partial result to the listener (if the last one is old enough)
+     *
+     * @param usage The usage computed by a worker (since its last merge)
+     */
+    void merge(FolderUsage usage) {
+        synchronized (this.mFolderUsage) {
+            this.mFolderUsage.addFolderUsage(usage);
+        }
+        notifyPartialResult(false);
+    }
+
+    /**
+     * Method that sends a partial result to the listener.
+     *
+     * @param force Send the result although the last one is recent
+     */
+    private void notifyPartialResult(boolean force) {
+        if (getAsyncResultListener() == null) {
+            return;
+        }
+        synchronized (this.mFolderUsage) {
+            long now = System.currentTimeMillis();
+            if (force || now - this.mLastPartialResult >= PARTIAL_RESULT_INTERVAL) {
+                this.mLastPartialResult = now;
                 getAsyncResultListener().onPartialResult(this.mFolderUsage);
             }
         }
@@ -187,9 +247,7 @@ public class FolderUsageCommand extends Program implements FolderUsageExecutable
      */
     @Override
     public boolean isCancelled() {
-        synchronized (this.mSync) {
-            return this.mCancelled;
-        }
+        return this.mCancelled;
     }
 
     /**
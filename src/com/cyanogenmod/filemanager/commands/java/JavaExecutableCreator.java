@@ -22,25 +22,31 @@ import com.cyanogenmod.filemanager.commands.ChangeCurrentDirExecutable;
 import com.cyanogenmod.filemanager.commands.ChangeOwnerExecutable;
 import com.cyanogenmod.filemanager.commands.ChangePermissionsExecutable;
 import com.cyanogenmod.filemanager.commands.CompressExecutable;
+import com.cyanogenmod.filemanager.commands.CopyBatchExecutable;
 import com.cyanogenmod.filemanager.commands.CopyExecutable;
 import com.cyanogenmod.filemanager.commands.CreateDirExecutable;
 import com.cyanogenmod.filemanager.commands.CreateFileExecutable;
 import com.cyanogenmod.filemanager.commands.CurrentDirExecutable;
+import com.cyanogenmod.filemanager.commands.DeleteBatchExecutable;
 import com.cyanogenmod.filemanager.commands.DeleteDirExecutable;
 import com.cyanogenmod.filemanager.commands.DeleteFileExecutable;
 import com.cyanogenmod.filemanager.commands.DiskUsageExecutable;
 import com.cyanogenmod.filemanager.commands.EchoExecutable;
 import com.cyanogenmod.filemanager.commands.ExecExecutable;
 import com.cyanogenmod.filemanager.commands.ExecutableCreator;
+import com.cyanogenmod.filemanager.commands.FileInfoBatchExecutable;
+import com.cyanogenmod.filemanager.commands.FindDuplicatesExecutable;
 import com.cyanogenmod.filemanager.commands.FindExecutable;
 import com.cyanogenmod.filemanager.commands.FolderUsageExecutable;
 import com.cyanogenmod.filemanager.commands.GroupsExecutable;
 import com.cyanogenmod.filemanager.commands.IdentityExecutable;
+import com.cyanogenmod.filemanager.commands.LargestFilesExecutable;
 import com.cyanogenmod.filemanager.commands.LinkExecutable;
 import com.cyanogenmod.filemanager.commands.ListExecutable;
 import com.cyanogenmod.filemanager.commands.ListExecutable.LIST_MODE;
 import com.cyanogenmod.filemanager.commands.MountExecutable;
 import com.cyanogenmod.filemanager.commands.MountPointInfoExecutable;
+import com.cyanogenmod.filemanager.commands.MoveBatchExecutable;
 import com.cyanogenmod.filemanager.commands.MoveExecutable;
 import com.cyanogenmod.filemanager.commands.ParentDirExecutable;
 import com.cyanogenmod.filemanager.commands.ProcessIdExecutable;
@@ -59,6 +65,8 @@ import com.cyanogenmod.filemanager.model.Permissions;
 import com.cyanogenmod.filemanager.model.Query;
 import com.cyanogenmod.filemanager.model.User;
 import com.cyanogenmod.filemanager.preferences.CompressionMode;
+import com.cyanogenmod.filemanager.preferences.FileManagerSettings;
+import com.cyanogenmod.filemanager.preferences.Preferences;
 
 /**
  * A class for create shell {@link "Executable"} objects.
@@ -104,6 +112,15 @@ public class JavaExecutableCreator implements ExecutableCreator {
         throw new CommandNotFoundException("Not implemented"); //$NON-NLS-1$
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CopyBatchExecutable createCopyBatchExecutable(String[] srcs, String dst)
+            throws CommandNotFoundException {
+        return new CopyBatchCommand(srcs, dst);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -148,6 +165,15 @@ public class JavaExecutableCreator implements ExecutableCreator {
         return new DeleteDirCommand(dir);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DeleteBatchExecutable createDeleteBatchExecutable(String[] paths)
+            throws CommandNotFoundException {
+        return new DeleteBatchCommand(paths);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -200,7 +226,38 @@ public class JavaExecutableCreator implements ExecutableCreator {
     public FindExecutable createFindExecutable(
             String directory, Query query, AsyncResultListener asyncResultListener)
             throws CommandNotFoundException {
-        return new FindCommand(this.mConsole.getCtx(), directory, query, asyncResultListener);
+        // The maximum number of results is a setting of the searches
+        int maxResults = FindCommand.NO_LIMIT;
+        try {
+            maxResults = Integer.parseInt(Preferences.getSharedPreferences().getString(
+                    FileManagerSettings.SETTINGS_MAX_SEARCH_RESULTS.getId(),
+                    (String)FileManagerSettings.SETTINGS_MAX_SEARCH_RESULTS.getDefaultValue()));
+        } catch (NumberFormatException e) {
+            // Ignore. No limit
+        }
+        return new FindCommand(
+                this.mConsole.getCtx(), directory, query, maxResults, asyncResultListener);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FindDuplicatesExecutable createFindDuplicatesExecutable(
+            String[] directories, AsyncResultListener asyncResultListener)
+            throws CommandNotFoundException {
+        return new FindDuplicatesCommand(
+                this.mConsole.getCtx(), directories, asyncResultListener);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LargestFilesExecutable createLargestFilesExecutable(
+            String directory, int count, AsyncResultListener asyncResultListener)
+            throws CommandNotFoundException {
+        return new LargestFilesCommand(directory, count, asyncResultListener);
     }
 
     /**
@@ -257,6 +314,15 @@ public class JavaExecutableCreator implements ExecutableCreator {
         return new ListCommand(this.mConsole.getCtx(), src, LIST_MODE.FILEINFO);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FileInfoBatchExecutable createFileInfoBatchExecutable(
+            String[] src, boolean followSymlinks) throws CommandNotFoundException {
+        return new FileInfoBatchCommand(this.mConsole.getCtx(), src, followSymlinks);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -276,6 +342,15 @@ public class JavaExecutableCreator implements ExecutableCreator {
         return new MountPointInfoCommand(mountsFile);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MoveBatchExecutable createMoveBatchExecutable(String[] srcs, String dst)
+            throws CommandNotFoundException {
+        return new MoveBatchCommand(srcs, dst);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -375,7 +450,7 @@ public class JavaExecutableCreator implements ExecutableCreator {
             CompressionMode mode, String dst, String[] src,
             AsyncResultListener asyncResultListener)
             throws CommandNotFoundException {
-        throw new CommandNotFoundException("Not implemented"); //$NON-NLS-1$
+        return new CompressCommand(mode, dst, src, asyncResultListener);
     }
 
     /**
@@ -386,7 +461,10 @@ public class JavaExecutableCreator implements ExecutableCreator {
             CompressionMode mode, String src,
             AsyncResultListener asyncResultListener)
             throws CommandNotFoundException {
-        throw new CommandNotFoundException("Not implemented"); //$NON-NLS-1$
+        if (mode.mArchive) {
+            throw new CommandNotFoundException("Unsupported compression mode"); //$NON-NLS-1$
+        }
+        return new CompressCommand(mode, src, asyncResultListener);
     }
 
     /**
@@ -397,7 +475,10 @@ public class JavaExecutableCreator implements ExecutableCreator {
             String src, String dst,
             AsyncResultListener asyncResultListener)
             throws CommandNotFoundException {
-        throw new CommandNotFoundException("Not implemented"); //$NON-NLS-1$
+        if (!UncompressCommand.isSupported(src)) {
+            throw new CommandNotFoundException("Unsupported uncompress mode"); //$NON-NLS-1$
+        }
+        return new UncompressCommand(src, dst, asyncResultListener);
     }
 
 }
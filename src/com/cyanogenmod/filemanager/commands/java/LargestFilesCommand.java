@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.java;
+
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.commands.AsyncResultListener;
+import com.cyanogenmod.filemanager.commands.LargestFilesExecutable;
+import com.cyanogenmod.filemanager.console.ExecutionException;
+import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.model.SizeRanking;
+import com.cyanogenmod.filemanager.util.LargestFilesAnalyzer;
+
+import java.io.File;
+
+/**
+ * A class for retrieve the largest files and folders of a volume.<br/>
+ * <br/>
+ * The volume is walked once (see {@link LargestFilesAnalyzer}), and the current
+ * {@link SizeRanking} is delivered periodically to the listener as a partial result.
+ */
+public class LargestFilesCommand extends Program implements LargestFilesExecutable {
+
+    private static final String TAG = "LargestFilesCommand"; //$NON-NLS-1$
+
+    private final String mDirectory;
+    private final AsyncResultListener mAsyncResultListener;
+    private final LargestFilesAnalyzer mAnalyzer;
+
+    private volatile boolean mCancelled;
+    private volatile boolean mEnded;
+    private final Object mSync = new Object();
+
+    /**
+     * Constructor of <code>LargestFilesCommand</code>.
+     *
+     * @param directory The absolute directory to analyze
+     * @param count The number of files and folders of the ranking
+     * @param asyncResultListener The partial result listener
+     */
+    public LargestFilesCommand(
+            String directory, int count, AsyncResultListener asyncResultListener) {
+        super();
+        this.mDirectory = directory;
+        this.mAsyncResultListener = asyncResultListener;
+        this.mAnalyzer = new LargestFilesAnalyzer(new File(directory), count);
+        this.mCancelled = false;
+        this.mEnded = false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isAsynchronous() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SizeRanking getRanking() {
+        return this.mAnalyzer.getRanking();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute()
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory, ExecutionException {
+        if (isTrace()) {
+            Log.v(TAG,
+                    String.format("Analyzing the largest files of %s", //$NON-NLS-1$
+                            this.mDirectory));
+        }
+        if (this.mAsyncResultListener != null) {
+            this.mAsyncResultListener.onAsyncStart();
+        }
+
+        File f = new File(this.mDirectory);
+        if (!f.exists()) {
+            if (isTrace()) {
+                Log.v(TAG, "Result: FAIL. NoSuchFileOrDirectory"); //$NON-NLS-1$
+            }
+            if (this.mAsyncResultListener != null) {
+                this.mAsyncResultListener.onException(new NoSuchFileOrDirectory(this.mDirectory));
+            }
+        } else if (!f.isDirectory()) {
+            if (isTrace()) {
+                Log.v(TAG, "Result: FAIL. NoSuchFileOrDirectory"); //$NON-NLS-1$
+            }
+            if (this.mAsyncResultListener != null) {
+                this.mAsyncResultListener.onException(
+                        new ExecutionException("path exists but it's not a folder")); //$NON-NLS-1$
+            }
+        } else {
+            // Analyze the volume, delivering the ranking while it's in progress
+            this.mAnalyzer.setOnRankingListener(new LargestFilesAnalyzer.OnRankingListener() {
+                @Override
+                public void onRanking(SizeRanking ranking) {
+                    if (LargestFilesCommand.this.mAsyncResultListener != null) {
+                        LargestFilesCommand.this.mAsyncResultListener.onPartialResult(ranking);
+                    }
+                }
+            });
+            this.mAnalyzer.analyze();
+        }
+        synchronized (this.mSync) {
+            this.mSync.notify();
+        }
+
+        if (this.mAsyncResultListener != null) {
+            this.mAsyncResultListener.onAsyncEnd(this.mCancelled);
+        }
+        if (this.mAsyncResultListener != null) {
+            this.mAsyncResultListener.onAsyncExitCode(0);
+        }
+
+        if (isTrace()) {
+            Log.v(TAG, "Result: OK"); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCancelled() {
+        return this.mCancelled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean cancel() {
+        try {
+            synchronized (this.mSync) {
+                this.mCancelled = true;
+                this.mAnalyzer.cancel();
+                this.mSync.wait(5000L);
+            }
+        } catch (Exception e) {/**NON BLOCK**/}
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean end() {
+        try {
+            synchronized (this.mSync) {
+                this.mEnded = true;
+                this.mAnalyzer.cancel();
+                this.mSync.wait(5000L);
+            }
+        } catch (Exception e) {/**NON BLOCK**/}
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setOnEndListener(OnEndListener onEndListener) {
+        //Ignore. Java console don't use this
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setOnCancelListener(OnCancelListener onCancelListener) {
+        //Ignore. Java console don't use this
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCancellable() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncResultListener getAsyncResultListener() {
+        return this.mAsyncResultListener;
+    }
+}
@@ -99,8 +99,20 @@ public class ListCommand extends Program implements ListExecutable {
         if (this.mMode.compareTo(LIST_MODE.DIRECTORY) == 0) {
             File[] files = f.listFiles();
             if (files != null) {
+                // The owner and permissions are the same for all the files. Resolve
+                // them once, and read the rest of the attributes in a single stat (or
+                // on demand, if the navigation doesn't need them)
+                FileSystemObject template = FileHelper.createFileSystemObject(this.mCtx, f);
+                boolean lazy = !FileHelper.isListingAttributesNeeded();
                 for (int i = 0; i < files.length; i++) {
-                    FileSystemObject fso = FileHelper.createFileSystemObject(this.mCtx, files[i]);
+                    FileSystemObject fso = template == null ?
+                            FileHelper.createFileSystemObject(this.mCtx, files[i]) :
+                            FileHelper.createFileSystemObject(
+                                    files[i],
+                                    template.getUser(),
+                                    template.getGroup(),
+                                    template.getPermissions(),
+                                    lazy);
                     if (fso != null) {
                         if (isTrace()) {
                             Log.v(TAG, String.valueOf(fso));
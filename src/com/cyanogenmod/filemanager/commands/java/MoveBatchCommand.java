@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.java;
+
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.commands.MoveBatchExecutable;
+import com.cyanogenmod.filemanager.commands.ProgressExecutable;
+import com.cyanogenmod.filemanager.console.ExecutionException;
+import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.console.InsufficientSpaceException;
+import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.console.ReadOnlyFilesystemException;
+import com.cyanogenmod.filemanager.model.MountPoint;
+import com.cyanogenmod.filemanager.util.FileHelper;
+import com.cyanogenmod.filemanager.util.MountPointHelper;
+import com.cyanogenmod.filemanager.util.ProgressTracker;
+import com.cyanogenmod.filemanager.util.TreeCopier;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * A class for move a set of files and directories to a destination directory
+ * in a single pass. The sources that doesn't exist are not reported as failures, and
+ * the sources which destination already exists are not moved (they are reported as
+ * failures instead of merged into the destination).
+ */
+public class MoveBatchCommand extends Program
+    implements MoveBatchExecutable, ProgressExecutable {
+
+    private static final String TAG = "MoveBatchCommand"; //$NON-NLS-1$
+
+    private final String[] mSrcs;
+    private final String mDst;
+    private ProgressTracker mTracker;
+    private final Map<String, String> mFailures;
+
+    /**
+     * Constructor of <code>MoveBatchCommand</code>.
+     *
+     * @param srcs The files and directories to be moved
+     * @param dst The directory in which move the files and directories
+     */
+    public MoveBatchCommand(String[] srcs, String dst) {
+        super();
+        this.mSrcs = srcs;
+        this.mDst = dst;
+        this.mFailures = new LinkedHashMap<String, String>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, String> getResult() {
+        return this.mFailures;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setProgressTracker(ProgressTracker tracker) {
+        this.mTracker = tracker;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute()
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory, ExecutionException,
+            ReadOnlyFilesystemException {
+        if (isTrace()) {
+            Log.v(TAG,
+                    String.format("Moving %d files to %s", //$NON-NLS-1$
+                            Integer.valueOf(this.mSrcs.length), this.mDst));
+        }
+
+        this.mFailures.clear();
+        for (int i = 0; i < this.mSrcs.length; i++) {
+            File s = new File(this.mSrcs[i]);
+            File d = new File(this.mDst, s.getName());
+            if (!s.exists()) {
+                // Already moved
+                continue;
+            }
+            if (d.exists() || FileHelper.isLink(d)) {
+                if (isTrace()) {
+                    Log.v(TAG, String.format("Destination exists: %s", //$NON-NLS-1$
+                            d.getAbsolutePath()));
+                }
+                this.mFailures.put(this.mSrcs[i], "File exists"); //$NON-NLS-1$
+                continue;
+            }
+
+            // Move between filesystem is not allow. If rename fails then move every file
+            // (copy and delete the source)
+            if (!s.renameTo(d)) {
+                boolean moved = false;
+                String failure = "Failed to move"; //$NON-NLS-1$
+                TreeCopier copier = new TreeCopier(s, d, getBufferSize());
+                copier.setProgressTracker(this.mTracker);
+                copier.setMoveMode(true);
+                try {
+                    moved = copier.copy();
+                } catch (InsufficientSpaceException e) {
+                    // No more files can be moved
+                    throw e;
+                } catch (ExecutionException e) {
+                    failure = String.valueOf(e.getMessage());
+                } catch (NoSuchFileOrDirectory e) {
+                    failure = "No such file or directory"; //$NON-NLS-1$
+                }
+                if (copier.isCancelled()) {
+                    if (isTrace()) {
+                        Log.v(TAG, "Result: FAIL. Cancelled"); //$NON-NLS-1$
+                    }
+                    throw new ExecutionException("the move was cancelled"); //$NON-NLS-1$
+                }
+                if (!moved) {
+                    if (isTrace()) {
+                        Log.v(TAG, String.format("Failed to move: %s", //$NON-NLS-1$
+                                this.mSrcs[i]));
+                    }
+                    this.mFailures.put(this.mSrcs[i], failure);
+                    continue;
+                }
+                if (s.exists()) {
+                    if (isTrace()) {
+                        Log.v(TAG, String.format("WARNING. Source not deleted: %s", //$NON-NLS-1$
+                                this.mSrcs[i]));
+                    }
+                }
+            }
+        }
+
+        if (isTrace()) {
+            Log.v(TAG,
+                    String.format("Result: %d failures", //$NON-NLS-1$
+                            Integer.valueOf(this.mFailures.size())));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MountPoint getSrcWritableMountPoint() {
+        return MountPointHelper.getMountPointFromDirectory(this.mSrcs[0]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MountPoint getDstWritableMountPoint() {
+        return MountPointHelper.getMountPointFromDirectory(this.mDst);
+    }
+}
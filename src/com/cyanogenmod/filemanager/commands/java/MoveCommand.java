@@ -19,12 +19,15 @@ package com.cyanogenmod.filemanager.commands.java;
 import android.util.Log;
 
 import com.cyanogenmod.filemanager.commands.MoveExecutable;
+import com.cyanogenmod.filemanager.commands.ProgressExecutable;
 import com.cyanogenmod.filemanager.console.ExecutionException;
 import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
 import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.console.ReadOnlyFilesystemException;
 import com.cyanogenmod.filemanager.model.MountPoint;
-import com.cyanogenmod.filemanager.util.FileHelper;
 import com.cyanogenmod.filemanager.util.MountPointHelper;
+import com.cyanogenmod.filemanager.util.ProgressTracker;
+import com.cyanogenmod.filemanager.util.TreeCopier;
 
 import java.io.File;
 
@@ -32,12 +35,14 @@ import java.io.File;
 /**
  * A class for move a file or directory.
  */
-public class MoveCommand extends Program implements MoveExecutable {
+public class MoveCommand extends Program
+    implements MoveExecutable, ProgressExecutable {
 
     private static final String TAG = "MoveCommand"; //$NON-NLS-1$
 
     private final String mSrc;
     private final String mDst;
+    private ProgressTracker mTracker;
 
     /**
      * Constructor of <code>MoveCommand</code>.
@@ -59,12 +64,21 @@ public class MoveCommand extends Program implements MoveExecutable {
         return Boolean.TRUE;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setProgressTracker(ProgressTracker tracker) {
+        this.mTracker = tracker;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void execute()
-            throws InsufficientPermissionsException, NoSuchFileOrDirectory, ExecutionException {
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory, ExecutionException,
+            ReadOnlyFilesystemException {
         if (isTrace()) {
             Log.v(TAG,
                     String.format("Creating from %s to %s", this.mSrc, this.mDst)); //$NON-NLS-1$
@@ -79,34 +93,15 @@ public class MoveCommand extends Program implements MoveExecutable {
             throw new NoSuchFileOrDirectory(this.mSrc);
         }
 
-        //Move or copy recursively
-        if (d.exists()) {
-            if (!FileHelper.copyRecursive(s, d, getBufferSize())) {
-                if (isTrace()) {
-                    Log.v(TAG, "Result: FAIL. InsufficientPermissionsException"); //$NON-NLS-1$
-                }
-                throw new InsufficientPermissionsException();
-            }
-            if (!FileHelper.deleteFolder(s)) {
+        //Move or copy recursively. Move between filesystem is not allow. If rename fails
+        //then move every file (copy and delete the source)
+        if (d.exists() || !s.renameTo(d)) {
+            moveTree(s, d);
+            if (s.exists()) {
                 if (isTrace()) {
                     Log.v(TAG, "Result: OK. WARNING. Source not deleted."); //$NON-NLS-1$
                 }
             }
-        } else {
-            // Move between filesystem is not allow. If rename fails then use copy operation
-            if (!s.renameTo(d)) {
-                if (!FileHelper.copyRecursive(s, d, getBufferSize())) {
-                    if (isTrace()) {
-                        Log.v(TAG, "Result: FAIL. InsufficientPermissionsException"); //$NON-NLS-1$
-                    }
-                    throw new InsufficientPermissionsException();
-                }
-                if (!FileHelper.deleteFolder(s)) {
-                    if (isTrace()) {
-                        Log.v(TAG, "Result: OK. WARNING. Source not deleted."); //$NON-NLS-1$
-                    }
-                }
-            }
         }
 
         if (isTrace()) {
@@ -114,6 +109,31 @@ public class MoveCommand extends Program implements MoveExecutable {
         }
     }
 
+    /**
+     * Method that moves the source tree to the destination (copying every file in parallel,
+     * and deleting it from the source once it's synced to the destination).
+     *
+     * @param s The source file or folder
+     * @param d The destination file or folder
+     * @throws NoSuchFileOrDirectory If a source file disappeared during the operation
+     * @throws InsufficientPermissionsException If a file or folder can't be read or written
+     * @throws ReadOnlyFilesystemException If the destination filesystem is read-only
+     * @throws ExecutionException If a problem was detected in the operation
+     */
+    private void moveTree(File s, File d)
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory, ExecutionException,
+            ReadOnlyFilesystemException {
+        TreeCopier copier = new TreeCopier(s, d, getBufferSize());
+        copier.setProgressTracker(this.mTracker);
+        copier.setMoveMode(true);
+        if (!copier.copy()) {
+            if (isTrace()) {
+                Log.v(TAG, "Result: FAIL. Cancelled"); //$NON-NLS-1$
+            }
+            throw new ExecutionException("the move was cancelled"); //$NON-NLS-1$
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
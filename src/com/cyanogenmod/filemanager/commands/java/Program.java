@@ -20,6 +20,7 @@ import com.cyanogenmod.filemanager.commands.Executable;
 import com.cyanogenmod.filemanager.console.ExecutionException;
 import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
 import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.console.ReadOnlyFilesystemException;
 
 
 /**
@@ -90,8 +91,10 @@ public abstract class Program implements Executable {
      * @throws NoSuchFileOrDirectory If the file or directory was not found
      * @throws InsufficientPermissionsException If an operation requires elevated permissions
      * @throws ExecutionException If the operation returns a invalid exit code
+     * @throws ReadOnlyFilesystemException If the operation writes in a read-only filesystem
      */
     public abstract void execute()
-            throws InsufficientPermissionsException, NoSuchFileOrDirectory, ExecutionException;
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory, ExecutionException,
+            ReadOnlyFilesystemException;
 
 }
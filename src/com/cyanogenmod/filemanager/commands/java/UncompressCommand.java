@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.java;
+
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.commands.AsyncResultListener;
+import com.cyanogenmod.filemanager.commands.UncompressExecutable;
+import com.cyanogenmod.filemanager.preferences.UncompressionMode;
+import com.cyanogenmod.filemanager.util.Archiver;
+import com.cyanogenmod.filemanager.util.FileHelper;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A class for uncompress file system objects (tar, zip, tar.gz, tar.bz2, gz and bz2),
+ * without forking the <code>tar</code>, <code>unzip</code>, <code>gunzip</code> or
+ * <code>bunzip2</code> programs.<br/>
+ * <br/>
+ * <ul>
+ * <li>For archive and archive-compressed files, the file is extracted in a directory
+ * of the current location of the file with the name of the file without the extension.</li>
+ * <li>For compressed files, the file is extracted in the same directory in a file without
+ * the extension, and the source file is deleted.</li>
+ * </ul>
+ */
+public class UncompressCommand extends ArchiveProgram implements UncompressExecutable {
+
+    private static final String TAG = "UncompressCommand"; //$NON-NLS-1$
+
+    private final String mSrc;
+    private final UncompressionMode mMode;
+    private final String mOutFile;
+
+    /**
+     * Constructor of <code>UncompressCommand</code>.
+     *
+     * @param src The archive-compressed file
+     * @param dst The destination file of folder (if null this method resolve with the best
+     * fit based on the src)
+     * @param asyncResultListener The partial result listener
+     */
+    public UncompressCommand(
+            String src, String dst, AsyncResultListener asyncResultListener) {
+        super(TAG, asyncResultListener);
+        this.mSrc = src;
+        this.mMode = Archiver.getUncompressionMode(src);
+        if (dst != null) {
+            this.mOutFile = dst;
+        } else {
+            String name = new File(FileHelper.getName(src)).getName();
+            this.mOutFile = new File(new File(src).getParent(), name).getAbsolutePath();
+        }
+    }
+
+    /**
+     * Method that returns if a file can be uncompressed by this program.
+     *
+     * @param src The compressed file
+     * @return boolean If the file can be uncompressed
+     */
+    public static boolean isSupported(String src) {
+        return Archiver.isSupported(Archiver.getUncompressionMode(src));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean doOperation(Archiver archiver) throws IOException {
+        if (isTrace()) {
+            Log.v(TAG,
+                    String.format("Uncompressing %s to %s (%s)", //$NON-NLS-1$
+                            this.mSrc, this.mOutFile, this.mMode));
+        }
+        File src = new File(this.mSrc);
+        if (!archiver.extract(this.mMode, src, new File(this.mOutFile))) {
+            return false;
+        }
+        if (!this.mMode.mArchive && !src.delete()) {
+            Log.w(TAG, String.format("Failed to delete the source file %s", src)); //$NON-NLS-1$
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getOutUncompressedFile() {
+        return this.mOutFile;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean IsArchive() {
+        return this.mMode != null && this.mMode.mArchive;
+    }
+}
@@ -20,6 +20,7 @@ import com.cyanogenmod.filemanager.commands.AsyncResultExecutable;
 import com.cyanogenmod.filemanager.commands.AsyncResultListener;
 import com.cyanogenmod.filemanager.commands.SIGNAL;
 import com.cyanogenmod.filemanager.util.FileHelper;
+import com.cyanogenmod.filemanager.util.TraceHelper;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -377,6 +378,9 @@ public abstract class AsyncResultProgram
                            }
                            Byte type = AsyncResultProgram.this.mPartialDataType.remove(0);
                            String data = AsyncResultProgram.this.mPartialData.remove(0);
+                           TraceHelper.begin(
+                                   "parsePartialResult", TraceHelper.CAT_PARSE, //$NON-NLS-1$
+                                   getId(), null);
                            try {
                                if (type.compareTo(STDIN) == 0) {
                                    AsyncResultProgram.this.onParsePartialResult(data);
@@ -385,6 +389,10 @@ public abstract class AsyncResultProgram
                                }
                            } catch (Throwable ex) {
                                /**NON BLOCK**/
+                           } finally {
+                               TraceHelper.end(
+                                       "parsePartialResult", TraceHelper.CAT_PARSE, //$NON-NLS-1$
+                                       data.length());
                            }
                        }
                    }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.shell;
+
+import com.cyanogenmod.filemanager.commands.DeleteBatchExecutable;
+import com.cyanogenmod.filemanager.console.CommandNotFoundException;
+import com.cyanogenmod.filemanager.console.ExecutionException;
+import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.model.MountPoint;
+import com.cyanogenmod.filemanager.util.MountPointHelper;
+import com.cyanogenmod.filemanager.util.ShellHelper;
+
+import java.text.ParseException;
+import java.util.Map;
+
+
+/**
+ * A class for delete a set of files and directories (recursively) in a single invocation.
+ *
+ * {@link "http://unixhelp.ed.ac.uk/CGI/man-cgi?rm"}
+ */
+public class DeleteBatchCommand extends SyncResultProgram implements DeleteBatchExecutable {
+
+    private static final String ID = "rmbatch";  //$NON-NLS-1$
+
+    private static final String NOT_EXISTS = "No such file or directory"; //$NON-NLS-1$
+    private static final String PERMISSION_DENIED = "Permission denied"; //$NON-NLS-1$
+    private static final String NOT_PERMITTED = "Operation not permitted"; //$NON-NLS-1$
+
+    private final String[] mPaths;
+    private Map<String, String> mFailures;
+
+    /**
+     * Constructor of <code>DeleteBatchCommand</code>.
+     *
+     * @param paths The files and directories to be deleted (should be in the same mount point)
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     */
+    public DeleteBatchCommand(String[] paths) throws InvalidCommandDefinitionException {
+        super(ID);
+        this.mPaths = paths;
+        addExpandedArguments(paths, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void parse(String in, String err) throws ParseException {
+        this.mFailures = ShellHelper.parsePathFailures(this.mPaths, err, NOT_EXISTS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, String> getResult() {
+        return this.mFailures;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isIgnoreShellStdErrCheck() {
+        // Failures are reported per path
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void checkExitCode(int exitCode)
+            throws InsufficientPermissionsException, CommandNotFoundException, ExecutionException {
+        // 1: Some of the paths couldn't be deleted (reported in the result)
+        if (exitCode != 0 && exitCode != 1) {
+            throw new ExecutionException("exitcode != 0 && != 1"); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void checkStdErr(int exitCode, String err)
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory,
+            CommandNotFoundException, ExecutionException {
+        // The paths not deleted because of permissions could be deleted by relaunching
+        // the command with a privileged console
+        if (exitCode != 0 &&
+            (err.indexOf(PERMISSION_DENIED) != -1 || err.indexOf(NOT_PERMITTED) != -1)) {
+            throw new InsufficientPermissionsException(this);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MountPoint getSrcWritableMountPoint() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MountPoint getDstWritableMountPoint() {
+        return MountPointHelper.getMountPointFromDirectory(this.mPaths[0]);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.shell;
+
+import com.cyanogenmod.filemanager.commands.FileInfoBatchExecutable;
+import com.cyanogenmod.filemanager.console.CommandNotFoundException;
+import com.cyanogenmod.filemanager.console.ExecutionException;
+import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.model.FileSystemObject;
+import com.cyanogenmod.filemanager.model.Symlink;
+import com.cyanogenmod.filemanager.util.FileHelper;
+import com.cyanogenmod.filemanager.util.ParseHelper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.text.ParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * A class for retrieve the information of a set of files and directories in
+ * a single invocation.
+ *
+ * {@link "http://unixhelp.ed.ac.uk/CGI/man-cgi?ls"}
+ */
+public class FileInfoBatchCommand extends SyncResultProgram implements FileInfoBatchExecutable {
+
+    private static final String ID = "fileinfobatch";  //$NON-NLS-1$
+
+    private static final String FILEINFO_REF = ">FILEINFO>";  //$NON-NLS-1$
+
+    private final String[] mSrc;
+    private final String[] mPaths;
+    private final Map<String, FileSystemObject> mFiles;
+
+    /**
+     * Constructor of <code>FileInfoBatchCommand</code>.
+     *
+     * @param src The file system objects
+     * @param followSymlinks If follow the symlinks
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     */
+    public FileInfoBatchCommand(String[] src, boolean followSymlinks)
+            throws InvalidCommandDefinitionException {
+        super(ID);
+        this.mSrc = src;
+        this.mFiles = new LinkedHashMap<String, FileSystemObject>(src.length);
+
+        // Resolve the paths to retrieve
+        this.mPaths = new String[src.length];
+        for (int i = 0; i < src.length; i++) {
+            String path = null;
+            try {
+                path = followSymlinks ?
+                        new File(src[i]).getCanonicalPath() :
+                        new File(src[i]).getAbsolutePath();
+            } catch (IOException ioEx) {
+                path = new File(src[i]).getAbsolutePath();
+            }
+            this.mPaths[i] = FileHelper.removeTrailingSlash(path);
+        }
+        addExpandedArguments(this.mPaths, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void parse(String in, String err) throws ParseException {
+        // Every requested path has an entry (null if the object not exists)
+        this.mFiles.clear();
+        for (int i = 0; i < this.mSrc.length; i++) {
+            this.mFiles.put(this.mSrc[i], null);
+        }
+
+        // The output is a control line per requested path (in the same order), followed
+        // by the information of the file (only if the file exists)
+        BufferedReader br = null;
+        int line = 0;
+        try {
+            br = new BufferedReader(new StringReader(in));
+            String szLine = null;
+            int index = -1;
+            while ((szLine = br.readLine()) != null) {
+                line++;
+                if (szLine.startsWith(FILEINFO_REF)) {
+                    index++;
+                    continue;
+                }
+                if (szLine.trim().length() == 0 || index < 0 || index >= this.mPaths.length) {
+                    continue;
+                }
+
+                // Parse the line into a FileSystemObject reference
+                File path = new File(this.mPaths[index]);
+                String parent = path.getParent();
+                if (parent == null) {
+                    parent = FileHelper.ROOT_DIRECTORY;
+                }
+                try {
+                    FileSystemObject fso = ParseHelper.toFileSystemObject(parent, szLine);
+                    if (fso instanceof Symlink) {
+                        // The name of a symlink can be incorrect resolved if has a "->",
+                        // but the src name is fine in this case
+                        fso.setName(path.getName());
+                    }
+                    this.mFiles.put(this.mSrc[index], fso);
+                } catch (ParseException pEx) {
+                    throw new ParseException(pEx.getMessage(), line);
+                }
+            }
+
+        } catch (IOException ioEx) {
+            throw new ParseException(ioEx.getMessage(), line);
+
+        } finally {
+            try {
+                if (br != null) {
+                    br.close();
+                }
+            } catch (Throwable ex) {
+                /**NON BLOCK**/
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, FileSystemObject> getResult() {
+        return this.mFiles;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isIgnoreShellStdErrCheck() {
+        // Missing files are reported in the result
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void checkExitCode(int exitCode)
+            throws InsufficientPermissionsException, CommandNotFoundException, ExecutionException {
+        // 1: the last file not exists
+        // 123: stat failed ... Function not implemented (for broken symlinks)
+        if (exitCode != 0 && exitCode != 1 && exitCode != 123) {
+            throw new ExecutionException("exitcode != 0 && != 1 && != 123"); //$NON-NLS-1$
+        }
+    }
+}
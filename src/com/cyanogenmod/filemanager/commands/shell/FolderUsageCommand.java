@@ -25,21 +25,16 @@ import com.cyanogenmod.filemanager.console.CommandNotFoundException;
 import com.cyanogenmod.filemanager.console.ExecutionException;
 import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
 import com.cyanogenmod.filemanager.model.Directory;
-import com.cyanogenmod.filemanager.model.FileSystemObject;
 import com.cyanogenmod.filemanager.model.FolderUsage;
-import com.cyanogenmod.filemanager.model.Symlink;
-import com.cyanogenmod.filemanager.util.FileHelper;
+import com.cyanogenmod.filemanager.model.RegularFile;
 import com.cyanogenmod.filemanager.util.MimeTypeHelper;
 import com.cyanogenmod.filemanager.util.MimeTypeHelper.MimeTypeCategory;
-import com.cyanogenmod.filemanager.util.ParseHelper;
-
-import java.io.BufferedReader;
-import java.io.StringReader;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
- * A class for retrieve the disk usage of a folder
+ * A class for retrieve the disk usage of a folder.<br/>
+ * <br/>
+ * The command doesn't return a full listing of the folder, but a compact record
+ * (type, size and name) per file system object, that is parsed in a streaming pass.
  *
  * {@link "http://unixhelp.ed.ac.uk/CGI/man-cgi?ls"}
  */
@@ -83,6 +78,13 @@ public class FolderUsageCommand extends AsyncResultProgram implements FolderUsag
      */
     @Override
     public void onEndParsePartialResult(boolean cancelled) {
+        // Process the last record if it wasn't ended by a new line
+        if (!cancelled && this.mPartial.length() > 0) {
+            if (parseRecord(this.mPartial, 0, this.mPartial.length())
+                    && getAsyncResultListener() != null) {
+                getAsyncResultListener().onPartialResult(this.mFolderUsage);
+            }
+        }
         this.mPartial = ""; //$NON-NLS-1$
     }
 
@@ -91,77 +93,30 @@ public class FolderUsageCommand extends AsyncResultProgram implements FolderUsag
      */
     @Override
     public void onParsePartialResult(final String partialIn) {
-
-        // Check the in buffer to extract information
-        BufferedReader br = null;
+        // The shell returns one compact record per file system object (symlinks are
+        // discarded by the command):
+        //
+        //   d                    (a directory)
+        //   <type> <size> <name> (a regular file, or a device, pipe or socket)
+        //
+        // Records are processed in a streaming pass, without create any FileSystemObject
+        // reference. Only the last incomplete record is kept for the next partial read.
         try {
-            //Read the partial + previous partial and clean partial
-            br = new BufferedReader(new StringReader(this.mPartial + partialIn));
-            this.mPartial = ""; //$NON-NLS-1$
-
-            //Add all lines to an array
-            List<String> lines = new ArrayList<String>();
-            String line = null;
-            while ((line = br.readLine()) != null) {
-                if (line.trim().length() == 0) {
-                    continue;
-                }
-                lines.add(line);
-            }
-
-            //2 lines per file system object translation
+            String in = this.mPartial.concat(partialIn);
             boolean newData = false;
-            int c = 0;
-            while (lines.size() > 0) {
-                try {
-                    // Retrieve the info
-                    String szLine = lines.get(0).trim();
-
-                    // Parent folder is not necessary here. Only the information relative to
-                    // type and size
-                    FileSystemObject fso =
-                            ParseHelper.toFileSystemObject(
-                                    FileHelper.ROOT_DIRECTORY, szLine, true);
-
-                    // Only regular files or directories. No compute Symlinks
-                    if (fso instanceof Symlink) {
-
-                    // Directory
-                    } else if (fso instanceof Directory) {
-                        // Folder
-                        this.mFolderUsage.addFolder();
-                        newData = true;
-
-                    // Regular File, Block device, ...
-                    } else {
-                        this.mFolderUsage.addFile();
-                        // Compute statistics and size
-                        MimeTypeCategory category =
-                                MimeTypeHelper.getCategory(null, fso);
-                        this.mFolderUsage.addFileToCategory(category);
-                        this.mFolderUsage.addSize(fso.getSize());
-                        newData = true;
-                    }
-
-                    // Partial notification
-                    if (c % 5 == 0) {
-                        //If a listener is defined, then send the partial result
-                        if (getAsyncResultListener() != null && newData) {
-                            getAsyncResultListener().onPartialResult(this.mFolderUsage);
-                        }
-                    }
-
-                } catch (Exception ex) { /**NON BLOCK **/ }
-
-                //Remove the the line
-                lines.remove(0);
-            }
-
-            //Saves the lines for the next partial read (At this point only one line
-            //can exists in the buffer. The rest was processed or discarded)
-            if (lines.size() > 0) {
-                this.mPartial = lines.get(0).concat(FileHelper.NEWLINE);
+            int cc = in.length();
+            int start = 0;
+            while (start < cc) {
+                int end = in.indexOf('\n', start);
+                if (end == -1) {
+                    break;
+                }
+                if (parseRecord(in, start, end)) {
+                    newData = true;
+                }
+                start = end + 1;
             }
+            this.mPartial = in.substring(start);
 
             //If a listener is defined, then send the partial result
             if (getAsyncResultListener() != null && newData) {
@@ -170,16 +125,62 @@ public class FolderUsageCommand extends AsyncResultProgram implements FolderUsag
 
         } catch (Exception ex) {
             Log.w(TAG, "Partial result fails", ex); //$NON-NLS-1$
+        }
+    }
 
-        } finally {
-            try {
-                if (br != null) {
-                    br.close();
-                }
-            } catch (Throwable ex) {
-                /**NON BLOCK**/
-            }
+    /**
+     * Method that parses a folder usage record and update the statistics
+     *
+     * @param in The input buffer
+     * @param start The start position of the record
+     * @param end The end position of the record (exclusive)
+     * @return boolean If the statistics were updated
+     */
+    private boolean parseRecord(String in, int start, int end) {
+        // Discard empty lines
+        int e = end;
+        if (e > start && in.charAt(e - 1) == '\r') {
+            e--;
+        }
+        if (start >= e) {
+            return false;
+        }
+
+        // Directory
+        char type = in.charAt(start);
+        if (type == Directory.UNIX_ID) {
+            this.mFolderUsage.addFolder();
+            return true;
         }
+
+        // Regular File, Block device, ...
+        int pos1 = in.indexOf(' ', start);
+        if (pos1 == -1 || pos1 >= e) {
+            return false;
+        }
+        int pos2 = in.indexOf(' ', pos1 + 1);
+        if (pos2 == -1 || pos2 > e) {
+            pos2 = e;
+        }
+        long size = 0;
+        try {
+            size = Long.parseLong(in.substring(pos1 + 1, pos2));
+        } catch (NumberFormatException nfEx) {
+            /**NON BLOCK**/
+        }
+        String name = pos2 < e ? in.substring(pos2 + 1, e) : ""; //$NON-NLS-1$
+
+        // Compute statistics and size
+        MimeTypeCategory category = MimeTypeHelper.getCategoryFromName(null, name);
+        if (category.compareTo(MimeTypeCategory.NONE) == 0
+                && type != RegularFile.UNIX_ID) {
+            // Devices, pipes and sockets are system files
+            category = MimeTypeCategory.SYSTEM;
+        }
+        this.mFolderUsage.addFile();
+        this.mFolderUsage.addFileToCategory(category);
+        this.mFolderUsage.addSize(size);
+        return true;
     }
 
     /**
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.shell;
+
+import com.cyanogenmod.filemanager.commands.MoveBatchExecutable;
+import com.cyanogenmod.filemanager.console.CommandNotFoundException;
+import com.cyanogenmod.filemanager.console.ExecutionException;
+import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.model.MountPoint;
+import com.cyanogenmod.filemanager.util.MountPointHelper;
+import com.cyanogenmod.filemanager.util.ShellHelper;
+
+import java.io.File;
+import java.text.ParseException;
+import java.util.Iterator;
+import java.util.Map;
+
+
+/**
+ * A class for move a set of files and directories to a destination directory
+ * in a single invocation. The sources that were already moved (the source doesn't exist
+ * but its target does) are not reported as failures, so the command can be relaunched
+ * when some of the sources were already moved.
+ *
+ * {@link "http://unixhelp.ed.ac.uk/CGI/man-cgi?mv"}
+ */
+public class MoveBatchCommand extends SyncResultProgram implements MoveBatchExecutable {
+
+    private static final String ID = "mvbatch";  //$NON-NLS-1$
+
+    private static final String NOT_EXISTS = "No such file or directory"; //$NON-NLS-1$
+    private static final String PERMISSION_DENIED = "Permission denied"; //$NON-NLS-1$
+    private static final String NOT_PERMITTED = "Operation not permitted"; //$NON-NLS-1$
+
+    private final String[] mSrcs;
+    private final String mDst;
+    private Map<String, String> mFailures;
+
+    /**
+     * Constructor of <code>MoveBatchCommand</code>.
+     *
+     * @param srcs The files and directories to be moved (should be in the same mount point)
+     * @param dst The directory in which move the files and directories (should be in
+     * the same mount point than the sources)
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     */
+    public MoveBatchCommand(String[] srcs, String dst) throws InvalidCommandDefinitionException {
+        super(ID, dst);
+        this.mSrcs = srcs;
+        this.mDst = dst;
+        addExpandedArguments(srcs, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void parse(String in, String err) throws ParseException {
+        this.mFailures = ShellHelper.parseTargetFailures(this.mSrcs, this.mDst, err);
+
+        // A source that doesn't exist is only expected if it was moved by a previous
+        // launch of the command
+        Iterator<Map.Entry<String, String>> it = this.mFailures.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, String> failure = it.next();
+            if (failure.getValue().indexOf(NOT_EXISTS) != -1 && isMoved(failure.getKey())) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Method that checks if a source was already moved to the destination directory.
+     *
+     * @param src The source
+     * @return boolean If the source doesn't exist but its target does
+     */
+    private boolean isMoved(String src) {
+        File s = new File(src);
+        return !s.exists() && new File(this.mDst, s.getName()).exists();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, String> getResult() {
+        return this.mFailures;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isIgnoreShellStdErrCheck() {
+        // Failures are reported per source
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void checkExitCode(int exitCode)
+            throws InsufficientPermissionsException, CommandNotFoundException, ExecutionException {
+        // 1: Some of the sources couldn't be moved (reported in the result)
+        if (exitCode != 0 && exitCode != 1) {
+            throw new ExecutionException("exitcode != 0 && != 1"); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void checkStdErr(int exitCode, String err)
+            throws InsufficientPermissionsException, NoSuchFileOrDirectory,
+            CommandNotFoundException, ExecutionException {
+        // The sources not moved because of permissions could be moved by relaunching
+        // the command with a privileged console
+        if (exitCode != 0 &&
+            (err.indexOf(PERMISSION_DENIED) != -1 || err.indexOf(NOT_PERMITTED) != -1)) {
+            throw new InsufficientPermissionsException(this);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MountPoint getSrcWritableMountPoint() {
+        return MountPointHelper.getMountPointFromDirectory(this.mSrcs[0]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MountPoint getDstWritableMountPoint() {
+        return MountPointHelper.getMountPointFromDirectory(this.mDst);
+    }
+}
@@ -21,24 +21,30 @@ import com.cyanogenmod.filemanager.commands.ChangeCurrentDirExecutable;
 import com.cyanogenmod.filemanager.commands.ChangeOwnerExecutable;
 import com.cyanogenmod.filemanager.commands.ChangePermissionsExecutable;
 import com.cyanogenmod.filemanager.commands.CompressExecutable;
+import com.cyanogenmod.filemanager.commands.CopyBatchExecutable;
 import com.cyanogenmod.filemanager.commands.CopyExecutable;
 import com.cyanogenmod.filemanager.commands.CreateDirExecutable;
 import com.cyanogenmod.filemanager.commands.CreateFileExecutable;
 import com.cyanogenmod.filemanager.commands.CurrentDirExecutable;
+import com.cyanogenmod.filemanager.commands.DeleteBatchExecutable;
 import com.cyanogenmod.filemanager.commands.DeleteDirExecutable;
 import com.cyanogenmod.filemanager.commands.DeleteFileExecutable;
 import com.cyanogenmod.filemanager.commands.DiskUsageExecutable;
 import com.cyanogenmod.filemanager.commands.EchoExecutable;
 import com.cyanogenmod.filemanager.commands.ExecExecutable;
 import com.cyanogenmod.filemanager.commands.ExecutableCreator;
+import com.cyanogenmod.filemanager.commands.FileInfoBatchExecutable;
+import com.cyanogenmod.filemanager.commands.FindDuplicatesExecutable;
 import com.cyanogenmod.filemanager.commands.FindExecutable;
 import com.cyanogenmod.filemanager.commands.FolderUsageExecutable;
 import com.cyanogenmod.filemanager.commands.GroupsExecutable;
 import com.cyanogenmod.filemanager.commands.IdentityExecutable;
+import com.cyanogenmod.filemanager.commands.LargestFilesExecutable;
 import com.cyanogenmod.filemanager.commands.LinkExecutable;
 import com.cyanogenmod.filemanager.commands.ListExecutable;
 import com.cyanogenmod.filemanager.commands.MountExecutable;
 import com.cyanogenmod.filemanager.commands.MountPointInfoExecutable;
+import com.cyanogenmod.filemanager.commands.MoveBatchExecutable;
 import com.cyanogenmod.filemanager.commands.MoveExecutable;
 import com.cyanogenmod.filemanager.commands.ParentDirExecutable;
 import com.cyanogenmod.filemanager.commands.ProcessIdExecutable;
@@ -70,7 +76,7 @@ public class ShellExecutableCreator implements ExecutableCreator {
      *
      * @param console A shell console that use for create objects
      */
-    ShellExecutableCreator(ShellConsole console) {
+    protected ShellExecutableCreator(ShellConsole console) {
         super();
         this.mConsole = console;
     }
@@ -114,6 +120,19 @@ public class ShellExecutableCreator implements ExecutableCreator {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CopyBatchExecutable createCopyBatchExecutable(String[] srcs, String dst)
+            throws CommandNotFoundException {
+        try {
+            return new CopyBatchCommand(srcs, dst);
+        } catch (InvalidCommandDefinitionException icdEx) {
+            throw new CommandNotFoundException("CopyBatchCommand", icdEx); //$NON-NLS-1$
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -178,6 +197,19 @@ public class ShellExecutableCreator implements ExecutableCreator {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DeleteBatchExecutable createDeleteBatchExecutable(String[] paths)
+            throws CommandNotFoundException {
+        try {
+            return new DeleteBatchCommand(paths);
+        } catch (InvalidCommandDefinitionException icdEx) {
+            throw new CommandNotFoundException("DeleteBatchCommand", icdEx); //$NON-NLS-1$
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -255,6 +287,26 @@ public class ShellExecutableCreator implements ExecutableCreator {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FindDuplicatesExecutable createFindDuplicatesExecutable(
+            String[] directories, AsyncResultListener asyncResultListener)
+            throws CommandNotFoundException {
+        throw new CommandNotFoundException("Not implemented"); //$NON-NLS-1$
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LargestFilesExecutable createLargestFilesExecutable(
+            String directory, int count, AsyncResultListener asyncResultListener)
+            throws CommandNotFoundException {
+        throw new CommandNotFoundException("Not implemented"); //$NON-NLS-1$
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -333,6 +385,19 @@ public class ShellExecutableCreator implements ExecutableCreator {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FileInfoBatchExecutable createFileInfoBatchExecutable(
+            String[] src, boolean followSymlinks) throws CommandNotFoundException {
+        try {
+            return new FileInfoBatchCommand(src, followSymlinks);
+        } catch (InvalidCommandDefinitionException icdEx) {
+            throw new CommandNotFoundException("FileInfoBatchCommand", icdEx); //$NON-NLS-1$
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -359,6 +424,19 @@ public class ShellExecutableCreator implements ExecutableCreator {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MoveBatchExecutable createMoveBatchExecutable(String[] srcs, String dst)
+            throws CommandNotFoundException {
+        try {
+            return new MoveBatchCommand(srcs, dst);
+        } catch (InvalidCommandDefinitionException icdEx) {
+            throw new CommandNotFoundException("MoveBatchCommand", icdEx); //$NON-NLS-1$
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
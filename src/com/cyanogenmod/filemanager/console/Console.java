@@ -22,6 +22,14 @@ import com.cyanogenmod.filemanager.model.Identity;
 import com.cyanogenmod.filemanager.preferences.FileManagerSettings;
 import com.cyanogenmod.filemanager.preferences.Preferences;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * This class represents a class for executing commands in the operating system layer,
  * being the base for all type of consoles (shell, java, ...).
@@ -29,6 +37,13 @@ import com.cyanogenmod.filemanager.preferences.Preferences;
 public abstract class Console
     implements AsyncResultExecutable.OnEndListener, AsyncResultExecutable.OnCancelListener {
 
+    // The number of threads of the shared executor of the asynchronous operations
+    private static final int ASYNC_THREADS = 4;
+    // The time that an idle thread of the executors is kept alive
+    private static final long ASYNC_KEEP_ALIVE = 30000L;
+
+    private static Executor sAsyncExecutor;
+
     private boolean mTrace;
 
     /**
@@ -124,4 +139,85 @@ public abstract class Console
            OperationTimeoutException, ExecutionException, CommandNotFoundException,
            ReadOnlyFilesystemException;
 
+   /**
+    * Method that submits an operation to be executed asynchronously in this console. The
+    * operation normally executes programs in this console. Independent operations
+    * (xe: the information of a file and the disk usage of its filesystem) are only
+    * overlapped if the console {@link #isConcurrent() is concurrent}; otherwise they are
+    * queued and executed one after another.
+    *
+    * @param callable The operation to execute
+    * @return ConsoleFuture<T> The future of the result of the operation
+    * @see ConsoleFuture
+    */
+   public <T> ConsoleFuture<T> submit(Callable<T> callable) {
+       ConsoleFuture<T> future = new ConsoleFuture<T>(callable, isInterruptible());
+       getAsyncExecutor().execute(future);
+       return future;
+   }
+
+   /**
+    * Method that returns the executor of the asynchronous operations of the console. By
+    * default, all the consoles shares a small pool of threads.
+    *
+    * @return Executor The executor of the asynchronous operations
+    */
+   protected Executor getAsyncExecutor() {
+       synchronized (Console.class) {
+           if (sAsyncExecutor == null) {
+               sAsyncExecutor = newAsyncExecutor("Console", ASYNC_THREADS); //$NON-NLS-1$
+           }
+           return sAsyncExecutor;
+       }
+   }
+
+   /**
+    * Method that returns if the console can execute several asynchronous operations at
+    * the same time. Callers should only submit independent operations at once to overlap
+    * them when the console is concurrent.
+    *
+    * @return boolean If the asynchronous operations are executed concurrently
+    */
+   @SuppressWarnings("static-method")
+   public boolean isConcurrent() {
+       return true;
+   }
+
+   /**
+    * Method that returns if the thread of a running asynchronous operation can be
+    * interrupted when the operation is cancelled.
+    *
+    * @return boolean If the running operations can be interrupted
+    */
+   @SuppressWarnings("static-method")
+   protected boolean isInterruptible() {
+       return true;
+   }
+
+   /**
+    * Method that creates an executor for asynchronous operations, which threads finish
+    * when they are idle.
+    *
+    * @param name The name of the threads
+    * @param threads The maximum number of threads
+    * @return Executor The executor
+    */
+   protected static Executor newAsyncExecutor(final String name, int threads) {
+       ThreadPoolExecutor executor = new ThreadPoolExecutor(
+               threads, threads, ASYNC_KEEP_ALIVE, TimeUnit.MILLISECONDS,
+               new LinkedBlockingQueue<Runnable>(),
+               new ThreadFactory() {
+                   private final AtomicInteger mCount = new AtomicInteger();
+                   @Override
+                   public Thread newThread(Runnable r) {
+                       String id = name + "Async#" + this.mCount.incrementAndGet(); //$NON-NLS-1$
+                       Thread t = new Thread(r, id);
+                       t.setDaemon(true);
+                       return t;
+                   }
+               });
+       executor.allowCoreThreadTimeOut(true);
+       return executor;
+   }
+
 }
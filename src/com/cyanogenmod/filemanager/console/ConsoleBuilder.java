@@ -23,6 +23,7 @@ import android.widget.Toast;
 import com.cyanogenmod.filemanager.FileManagerApplication;
 import com.cyanogenmod.filemanager.R;
 import com.cyanogenmod.filemanager.commands.shell.InvalidCommandDefinitionException;
+import com.cyanogenmod.filemanager.console.helper.HelperConsole;
 import com.cyanogenmod.filemanager.console.java.JavaConsole;
 import com.cyanogenmod.filemanager.console.shell.NonPriviledgeConsole;
 import com.cyanogenmod.filemanager.console.shell.PrivilegedConsole;
@@ -303,6 +304,24 @@ public final class ConsoleBuilder {
         return console;
     }
 
+    /**
+     * Method that creates a new java console, regardless of the root status of the device.
+     * This console is not the current console, so the caller must deallocate it.
+     *
+     * @param context The current context
+     * @param initialDirectory The initial directory of the console
+     * @return Console The java console
+     * @throws ConsoleAllocException If the console can't be allocated
+     * @see JavaConsole
+     */
+    public static Console createJavaConsole(Context context, String initialDirectory)
+            throws ConsoleAllocException {
+        int bufferSize = context.getResources().getInteger(R.integer.buffer_size);
+        JavaConsole console = new JavaConsole(context, initialDirectory, bufferSize);
+        console.alloc();
+        return console;
+    }
+
     /**
      * Method that creates a new privileged console. If the allocation of the
      * privileged console fails, the a non privileged console
@@ -320,7 +339,7 @@ public final class ConsoleBuilder {
     public static Console createPrivilegedConsole(Context context, String initialDirectory)
             throws FileNotFoundException, IOException, InvalidCommandDefinitionException,
             ConsoleAllocException, InsufficientPermissionsException {
-        PrivilegedConsole console = new PrivilegedConsole(initialDirectory);
+        PrivilegedConsole console = newPrivilegedConsole(context, initialDirectory);
         console.setBufferSize(context.getResources().getInteger(R.integer.buffer_size));
         console.alloc();
         if (console.getIdentity().getUser().getId() != ROOT_UID) {
@@ -375,7 +394,7 @@ public final class ConsoleBuilder {
             throws FileNotFoundException, IOException, InvalidCommandDefinitionException,
             ConsoleAllocException, InsufficientPermissionsException {
         try {
-            PrivilegedConsole console = new PrivilegedConsole(initialDirectory);
+            PrivilegedConsole console = newPrivilegedConsole(context, initialDirectory);
             console.setBufferSize(context.getResources().getInteger(R.integer.buffer_size));
             console.alloc();
             if (console.getIdentity().getUser().getId() != ROOT_UID) {
@@ -422,6 +441,31 @@ public final class ConsoleBuilder {
         }
     }
 
+    /**
+     * Method that instantiates (without allocating it) the privileged console to use,
+     * a {@link HelperConsole} if the user enabled the privileged helper or a plain
+     * {@link PrivilegedConsole} otherwise.
+     *
+     * @param context The current context
+     * @param initialDirectory The initial directory of the console
+     * @return PrivilegedConsole The privileged console
+     * @throws FileNotFoundException If the initial directory not exists
+     * @throws IOException If initial directory couldn't be checked
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     */
+    private static PrivilegedConsole newPrivilegedConsole(
+            Context context, String initialDirectory)
+            throws FileNotFoundException, IOException, InvalidCommandDefinitionException {
+        boolean useHelper = Preferences.getSharedPreferences().getBoolean(
+                FileManagerSettings.SETTINGS_USE_PRIVILEGED_HELPER.getId(),
+                ((Boolean)FileManagerSettings.SETTINGS_USE_PRIVILEGED_HELPER.
+                        getDefaultValue()).booleanValue());
+        if (useHelper) {
+            return new HelperConsole(context, initialDirectory);
+        }
+        return new PrivilegedConsole(initialDirectory);
+    }
+
     /**
      * Method that returns if the current console is a privileged console
      *
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.console;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A class that represents the pending result of an operation submitted to a {@link Console}.
+ * <br/>
+ * Besides the standard {@link java.util.concurrent.Future} operations (wait with or
+ * without timeout and cancel), it allows to chain operations over the result
+ * ({@link #then(Continuation)}), to be notified when the operation ends
+ * ({@link #addListener(OnCompleteListener)}) and to wait for several independent operations
+ * at once ({@link #awaitAll(long, ConsoleFuture...)}).
+ *
+ * @param <T> The type of the result
+ * @see Console#submit(Callable)
+ */
+public class ConsoleFuture<T> extends FutureTask<T> {
+
+    /**
+     * An interface for chain an operation over the result of other operation.
+     *
+     * @param <T> The type of the result of the previous operation
+     * @param <R> The type of the result of the chained operation
+     */
+    public interface Continuation<T, R> {
+        /**
+         * Method invoked with the result of the previous operation.
+         *
+         * @param result The result of the previous operation
+         * @return R The result of the chained operation
+         * @throws Exception If the chained operation fails
+         */
+        R onResult(T result) throws Exception;
+    }
+
+    /**
+     * An interface for be notified when the operation ends.
+     *
+     * @param <T> The type of the result
+     */
+    public interface OnCompleteListener<T> {
+        /**
+         * Method invoked when the operation ends (successfully, with an error or cancelled).
+         * This method is invoked in the thread that ends the operation.
+         *
+         * @param future The future of the operation
+         */
+        void onComplete(ConsoleFuture<T> future);
+    }
+
+    private final boolean mInterruptible;
+    private final List<OnCompleteListener<T>> mListeners;
+    private boolean mDone;
+
+    /**
+     * Constructor of <code>ConsoleFuture</code>.
+     *
+     * @param callable The operation
+     * @param interruptible If the thread of the operation can be interrupted when
+     * the operation is cancelled
+     */
+    public ConsoleFuture(Callable<T> callable, boolean interruptible) {
+        super(callable);
+        this.mInterruptible = interruptible;
+        this.mListeners = new ArrayList<OnCompleteListener<T>>();
+        this.mDone = false;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br/>
+     * The running operation is only interrupted if the console allows it. Otherwise the
+     * operation runs until it ends, but its result is discarded.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return super.cancel(mayInterruptIfRunning && this.mInterruptible);
+    }
+
+    /**
+     * Method that waits for the result of the operation, translating the errors
+     * into the exceptions of the consoles.
+     *
+     * @param timeout The maximum time to wait, in milliseconds
+     * @return T The result of the operation
+     * @throws OperationTimeoutException If the operation doesn't end in time
+     * @throws ExecutionException If the operation fails or was cancelled
+     */
+    public T getResult(long timeout) throws OperationTimeoutException, ExecutionException {
+        try {
+            return get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException tEx) {
+            throw new OperationTimeoutException(timeout, null);
+        } catch (InterruptedException iEx) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionException("interrupted", iEx); //$NON-NLS-1$
+        } catch (CancellationException cEx) {
+            throw new ExecutionException("cancelled", cEx); //$NON-NLS-1$
+        } catch (java.util.concurrent.ExecutionException eEx) {
+            Throwable cause = eEx.getCause();
+            if (cause instanceof ExecutionException) {
+                throw (ExecutionException)cause;
+            }
+            throw new ExecutionException(String.valueOf(cause), cause);
+        }
+    }
+
+    /**
+     * Method that registers a listener to be notified when the operation ends. If the
+     * operation already ended, the listener is notified immediately.
+     *
+     * @param listener The listener
+     */
+    public void addListener(OnCompleteListener<T> listener) {
+        synchronized (this.mListeners) {
+            if (!this.mDone) {
+                this.mListeners.add(listener);
+                return;
+            }
+        }
+        listener.onComplete(this);
+    }
+
+    /**
+     * Method that chains an operation over the result of this operation. The chained
+     * operation runs in the thread that ends this operation, so it must be a light
+     * operation (submit a new operation to a console otherwise). If this operation fails or
+     * is cancelled, the chained operation is not executed and the returned future ends in
+     * the same way.
+     *
+     * @param continuation The operation to chain
+     * @return ConsoleFuture<R> The future of the chained operation
+     */
+    public <R> ConsoleFuture<R> then(final Continuation<? super T, R> continuation) {
+        final ConsoleFuture<R> next = new ConsoleFuture<R>(new Callable<R>() {
+            @Override
+            public R call() throws Exception {
+                T result;
+                try {
+                    result = ConsoleFuture.this.get();
+                } catch (java.util.concurrent.ExecutionException eEx) {
+                    Throwable cause = eEx.getCause();
+                    if (cause instanceof Exception) {
+                        throw (Exception)cause;
+                    }
+                    throw eEx;
+                }
+                return continuation.onResult(result);
+            }
+        }, false);
+        addListener(new OnCompleteListener<T>() {
+            @Override
+            public void onComplete(ConsoleFuture<T> future) {
+                if (future.isCancelled()) {
+                    next.cancel(false);
+                } else {
+                    next.run();
+                }
+            }
+        });
+        return next;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void done() {
+        List<OnCompleteListener<T>> listeners;
+        synchronized (this.mListeners) {
+            this.mDone = true;
+            listeners = new ArrayList<OnCompleteListener<T>>(this.mListeners);
+            this.mListeners.clear();
+        }
+        int cc = listeners.size();
+        for (int i = 0; i < cc; i++) {
+            try {
+                listeners.get(i).onComplete(this);
+            } catch (Throwable ex) {/**NON BLOCK**/}
+        }
+    }
+
+    /**
+     * Method that waits until all the operations end, or the timeout expires. The errors
+     * of the operations are not thrown; every future must be checked separately.
+     *
+     * @param timeout The maximum time to wait for all the operations, in milliseconds
+     * @param futures The futures of the operations
+     * @return boolean If all the operations ended in time
+     * @throws InterruptedException If the current thread was interrupted while waiting
+     */
+    public static boolean awaitAll(long timeout, ConsoleFuture<?>... futures)
+            throws InterruptedException {
+        long end = System.currentTimeMillis() + timeout;
+        for (int i = 0; i < futures.length; i++) {
+            long remaining = end - System.currentTimeMillis();
+            if (remaining <= 0 && !futures[i].isDone()) {
+                return false;
+            }
+            try {
+                futures[i].get(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException tEx) {
+                return false;
+            } catch (CancellationException cEx) {
+                // Ended
+            } catch (java.util.concurrent.ExecutionException eEx) {
+                // Ended
+            }
+        }
+        return true;
+    }
+
+}
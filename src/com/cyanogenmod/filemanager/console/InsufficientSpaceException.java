@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.console;
+
+/**
+ * An exception thrown when there is no free space in the destination filesystem
+ * to complete the operation.
+ */
+public class InsufficientSpaceException extends ExecutionException {
+
+    private static final long serialVersionUID = -2746349212960311852L;
+
+    /**
+     * Constructor of <code>InsufficientSpaceException</code>.
+     *
+     * @param path The path that couldn't be written
+     * @param throwable The cause of the exception
+     */
+    public InsufficientSpaceException(String path, Throwable throwable) {
+        super(path, throwable);
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.console.helper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The client side of the privileged helper process ({@link HelperMain}).<br/>
+ * <br/>
+ * Every method sends a request and waits for its response (the requests are serialized).
+ * The failures of the operations are thrown as {@link HelperException}, and any other
+ * {@link IOException} means that the helper process is not usable anymore.<br/>
+ * <br/>
+ * This class must not depend on the Android framework.
+ */
+public class HelperClient {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream mIn;
+    private final OutputStream mOut;
+    private final Process mProcess;
+    private boolean mClosed;
+
+    /**
+     * Constructor of <code>HelperClient</code>. Waits for the helper to be ready.
+     *
+     * @param in The input stream from which read the responses of the helper
+     * @param out The output stream in which write the requests to the helper
+     * @throws IOException If the helper is not ready or speaks other protocol version
+     */
+    public HelperClient(InputStream in, OutputStream out) throws IOException {
+        this(in, out, null);
+    }
+
+    /**
+     * Constructor of <code>HelperClient</code>. Waits for the helper to be ready.
+     *
+     * @param in The input stream from which read the responses of the helper
+     * @param out The output stream in which write the requests to the helper
+     * @param process The helper process (destroyed when the client is closed)
+     * @throws IOException If the helper is not ready or speaks other protocol version
+     */
+    private HelperClient(InputStream in, OutputStream out, Process process)
+            throws IOException {
+        super();
+        this.mIn = in;
+        this.mOut = out;
+        this.mProcess = process;
+        this.mClosed = false;
+
+        // Wait for the helper
+        DataInputStream hello = HelperProtocol.readFrame(this.mIn);
+        if (hello == null || hello.readByte() != HelperProtocol.STATUS_OK) {
+            throw new IOException("The helper is not ready"); //$NON-NLS-1$
+        }
+        int version = hello.readInt();
+        if (version != HelperProtocol.VERSION) {
+            throw new IOException("Unsupported helper version: " + version); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Method that launches the helper process and connects to it.
+     *
+     * @param cmd The command line that launches the helper process
+     * @return HelperClient The client connected to the helper process
+     * @throws IOException If the helper process can't be launched
+     */
+    public static HelperClient launch(String... cmd) throws IOException {
+        final Process process = new ProcessBuilder(cmd).start();
+
+        // Drain the standard error, so the helper never blocks writing on it
+        Thread drain = new Thread("helper-stderr") { //$NON-NLS-1$
+            @Override
+            public void run() {
+                byte[] buffer = new byte[1024];
+                try {
+                    InputStream err = process.getErrorStream();
+                    while (err.read(buffer) != -1) {
+                        // Discard
+                    }
+                } catch (IOException ioEx) {
+                    /**NON BLOCK**/
+                }
+            }
+        };
+        drain.setDaemon(true);
+        drain.start();
+
+        try {
+            return new HelperClient(
+                    new BufferedInputStream(process.getInputStream(), BUFFER_SIZE),
+                    new BufferedOutputStream(process.getOutputStream(), BUFFER_SIZE),
+                    process);
+        } catch (IOException ioEx) {
+            process.destroy();
+            throw ioEx;
+        }
+    }
+
+    /**
+     * Method that returns if the client is closed
+     *
+     * @return boolean If the client is closed
+     */
+    public synchronized boolean isClosed() {
+        return this.mClosed;
+    }
+
+    /**
+     * Method that returns the stat of a file system object.
+     *
+     * @param path The absolute path of the file system object
+     * @param followSymlinks If the symlinks must be followed
+     * @return HelperStat The stat of the file system object
+     * @throws IOException If the operation fails
+     */
+    public synchronized HelperStat stat(String path, boolean followSymlinks)
+            throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream req = new DataOutputStream(body);
+        req.writeByte(HelperProtocol.OP_STAT);
+        req.writeUTF(path);
+        req.writeBoolean(followSymlinks);
+        return HelperProtocol.readStat(call(body));
+    }
+
+    /**
+     * Method that lists a directory (the symlinks include the stat of their target).
+     *
+     * @param path The absolute path of the directory
+     * @return List<HelperStat> The stats of the children of the directory
+     * @throws IOException If the operation fails
+     */
+    public synchronized List<HelperStat> list(String path) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream req = new DataOutputStream(body);
+        req.writeByte(HelperProtocol.OP_LIST);
+        req.writeUTF(path);
+        DataInputStream res = call(body);
+        int cc = res.readInt();
+        List<HelperStat> stats = new ArrayList<HelperStat>(cc);
+        for (int i = 0; i < cc; i++) {
+            stats.add(HelperProtocol.readStat(res));
+        }
+        return stats;
+    }
+
+    /**
+     * Method that resolves the canonical path of a file system object.
+     *
+     * @param path The absolute path of the file system object
+     * @return String The canonical path of the file system object
+     * @throws IOException If the operation fails
+     */
+    public synchronized String readlink(String path) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream req = new DataOutputStream(body);
+        req.writeByte(HelperProtocol.OP_READLINK);
+        req.writeUTF(path);
+        return call(body).readUTF();
+    }
+
+    /**
+     * Method that copies a file system object (recursively).
+     *
+     * @param src The absolute path of the source file system object
+     * @param dst The absolute path of the destination file system object
+     * @throws IOException If the operation fails
+     */
+    public synchronized void copy(String src, String dst) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream req = new DataOutputStream(body);
+        req.writeByte(HelperProtocol.OP_COPY);
+        req.writeUTF(src);
+        req.writeUTF(dst);
+        call(body);
+    }
+
+    /**
+     * Method that deletes a file system object (recursively).
+     *
+     * @param path The absolute path of the file system object
+     * @throws IOException If the operation fails
+     */
+    public synchronized void delete(String path) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream req = new DataOutputStream(body);
+        req.writeByte(HelperProtocol.OP_DELETE);
+        req.writeUTF(path);
+        call(body);
+    }
+
+    /**
+     * Method that changes the permission bits of a file system object.
+     *
+     * @param path The absolute path of the file system object
+     * @param mode The new permission bits
+     * @throws IOException If the operation fails
+     */
+    public synchronized void chmod(String path, int mode) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream req = new DataOutputStream(body);
+        req.writeByte(HelperProtocol.OP_CHMOD);
+        req.writeUTF(path);
+        req.writeInt(mode);
+        call(body);
+    }
+
+    /**
+     * Method that changes the owner of a file system object.
+     *
+     * @param path The absolute path of the file system object
+     * @param uid The user identifier of the new owner
+     * @param gid The group identifier of the new owner
+     * @throws IOException If the operation fails
+     */
+    public synchronized void chown(String path, int uid, int gid) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream req = new DataOutputStream(body);
+        req.writeByte(HelperProtocol.OP_CHOWN);
+        req.writeUTF(path);
+        req.writeInt(uid);
+        req.writeInt(gid);
+        call(body);
+    }
+
+    /**
+     * Method that computes the digest of a file.
+     *
+     * @param path The absolute path of the file
+     * @param algorithm The digest algorithm (xe: MD5, SHA-1)
+     * @return byte[] The digest of the file
+     * @throws IOException If the operation fails
+     */
+    public synchronized byte[] hash(String path, String algorithm) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream req = new DataOutputStream(body);
+        req.writeByte(HelperProtocol.OP_HASH);
+        req.writeUTF(path);
+        req.writeUTF(algorithm);
+        DataInputStream res = call(body);
+        byte[] digest = new byte[res.readInt()];
+        res.readFully(digest);
+        return digest;
+    }
+
+    /**
+     * Method that ends the helper process and closes the client.
+     */
+    public synchronized void close() {
+        if (this.mClosed) return;
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            body.write(HelperProtocol.OP_QUIT);
+            call(body);
+        } catch (Throwable ex) {
+            /**NON BLOCK**/
+        }
+        this.mClosed = true;
+        try {
+            this.mOut.close();
+        } catch (Throwable ex) {/**NON BLOCK**/}
+        try {
+            this.mIn.close();
+        } catch (Throwable ex) {/**NON BLOCK**/}
+        if (this.mProcess != null) {
+            this.mProcess.destroy();
+        }
+    }
+
+    /**
+     * Method that sends a request and waits for its response.
+     *
+     * @param body The body of the request
+     * @return DataInputStream The results of the request
+     * @throws IOException If the operation fails
+     */
+    private DataInputStream call(ByteArrayOutputStream body) throws IOException {
+        if (this.mClosed) {
+            throw new IOException("The helper is closed"); //$NON-NLS-1$
+        }
+        DataInputStream res;
+        try {
+            HelperProtocol.writeFrame(this.mOut, body);
+            res = HelperProtocol.readFrame(this.mIn);
+        } catch (IOException ioEx) {
+            // The helper is not usable anymore
+            this.mClosed = true;
+            throw ioEx;
+        }
+        if (res == null) {
+            this.mClosed = true;
+            throw new IOException("The helper was closed"); //$NON-NLS-1$
+        }
+        byte status = res.readByte();
+        if (status != HelperProtocol.STATUS_OK) {
+            throw new HelperException(status, res.readUTF());
+        }
+        return res;
+    }
+}
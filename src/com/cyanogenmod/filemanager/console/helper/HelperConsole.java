@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.console.helper;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.commands.Executable;
+import com.cyanogenmod.filemanager.commands.ExecutableFactory;
+import com.cyanogenmod.filemanager.commands.helper.HelperExecutableFactory;
+import com.cyanogenmod.filemanager.commands.helper.Program;
+import com.cyanogenmod.filemanager.commands.shell.InvalidCommandDefinitionException;
+import com.cyanogenmod.filemanager.commands.shell.SuperuserShell;
+import com.cyanogenmod.filemanager.console.CommandNotFoundException;
+import com.cyanogenmod.filemanager.console.ConsoleAllocException;
+import com.cyanogenmod.filemanager.console.ExecutionException;
+import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.console.OperationTimeoutException;
+import com.cyanogenmod.filemanager.console.ReadOnlyFilesystemException;
+import com.cyanogenmod.filemanager.console.shell.PrivilegedConsole;
+import com.cyanogenmod.filemanager.util.TraceHelper;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+
+/**
+ * A privileged console that resolves the most frequent filesystem operations (stat, list,
+ * readlink, copy, delete, chmod and chown) through a long-running helper process launched
+ * once through <code>su</code>, instead of spawning a shell command and parsing his
+ * output for every operation.<br/>
+ * <br/>
+ * The helper is the {@link HelperMain} class of this apk, running in a root
+ * <code>app_process</code>. The rest of the executables, and all of them if the helper
+ * can't be started, are executed by the privileged shell.
+ *
+ * @see HelperMain
+ * @see HelperClient
+ */
+public class HelperConsole extends PrivilegedConsole {
+
+    private static final String TAG = "HelperConsole"; //$NON-NLS-1$
+
+    private static final String APP_PROCESS = "/system/bin/app_process"; //$NON-NLS-1$
+    private static final String APP_PROCESS_DIR = "/system/bin"; //$NON-NLS-1$
+
+    private final Context mCtx;
+    private volatile HelperClient mClient;
+
+    /**
+     * Constructor of <code>HelperConsole</code>.
+     *
+     * @param ctx The current context
+     * @param initialDirectory The initial directory of the shell
+     * @throws FileNotFoundException If the initial directory not exists
+     * @throws IOException If initial directory couldn't be checked
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     */
+    public HelperConsole(Context ctx, String initialDirectory)
+            throws FileNotFoundException, IOException, InvalidCommandDefinitionException {
+        super(initialDirectory);
+        this.mCtx = ctx;
+    }
+
+    /**
+     * Method that returns the current context
+     *
+     * @return Context The current context
+     */
+    public Context getCtx() {
+        return this.mCtx;
+    }
+
+    /**
+     * Method that returns if the helper process is running
+     *
+     * @return boolean If the helper process is running
+     */
+    public boolean isHelperActive() {
+        return getHelperClient() != null;
+    }
+
+    /**
+     * Method that returns the client of the helper process
+     *
+     * @return HelperClient The client of the helper process, or <code>null</code> if
+     * the helper process is not running
+     */
+    public HelperClient getHelperClient() {
+        HelperClient client = this.mClient;
+        return client != null && !client.isClosed() ? client : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ExecutableFactory getExecutableFactory() {
+        if (isHelperActive()) {
+            return new HelperExecutableFactory(this);
+        }
+        return super.getExecutableFactory();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void alloc() throws ConsoleAllocException {
+        // Allocate the privileged shell first. This ensures that the superuser access
+        // was granted before launch the helper
+        super.alloc();
+
+        try {
+            String cmd =
+                    String.format("CLASSPATH=%s %s %s %s", //$NON-NLS-1$
+                            this.mCtx.getPackageCodePath(), APP_PROCESS, APP_PROCESS_DIR,
+                            HelperMain.class.getName());
+            HelperClient client =
+                    HelperClient.launch(
+                            new SuperuserShell().getCommand(), "-c", cmd); //$NON-NLS-1$
+            this.mClient = client;
+            if (isTrace()) {
+                Log.v(TAG, String.format("Helper started: %s", cmd)); //$NON-NLS-1$
+            }
+        } catch (Exception ex) {
+            // The shell is still usable
+            Log.w(TAG, "Failed to start the helper. Using the privileged shell.", ex); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void dealloc() {
+        HelperClient client = this.mClient;
+        this.mClient = null;
+        if (client != null) {
+            client.close();
+        }
+        super.dealloc();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute(Executable executable)
+            throws ConsoleAllocException, InsufficientPermissionsException,
+            CommandNotFoundException, NoSuchFileOrDirectory,
+            OperationTimeoutException, ExecutionException, ReadOnlyFilesystemException {
+        if (!(executable instanceof Program)) {
+            super.execute(executable);
+            return;
+        }
+
+        HelperClient client = getHelperClient();
+        if (client == null) {
+            throw new ConsoleAllocException("The helper is not running."); //$NON-NLS-1$
+        }
+        Program program = (Program)executable;
+        program.setTrace(isTrace());
+        if (isTrace()) {
+            Log.v(TAG, String.format("Executing program: %s", //$NON-NLS-1$
+                    executable.getClass().toString()));
+        }
+        TraceHelper.begin(
+                "execute", TraceHelper.CAT_CONSOLE, program.getClass(), null); //$NON-NLS-1$
+        try {
+            program.execute(client);
+        } finally {
+            TraceHelper.end("execute", TraceHelper.CAT_CONSOLE, 0); //$NON-NLS-1$
+        }
+    }
+
+}
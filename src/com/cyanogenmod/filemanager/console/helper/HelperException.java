@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.console.helper;
+
+import java.io.IOException;
+
+/**
+ * An exception thrown when an operation of the privileged helper process fails.
+ */
+public class HelperException extends IOException {
+
+    private static final long serialVersionUID = -6425217425741317283L;
+
+    private final byte mStatus;
+
+    /**
+     * Constructor of <code>HelperException</code>.
+     *
+     * @param status The status of the operation (one of the <code>STATUS_*</code>
+     * constants of {@link HelperProtocol})
+     * @param detailMessage Message associated to the exception
+     */
+    public HelperException(byte status, String detailMessage) {
+        super(detailMessage);
+        this.mStatus = status;
+    }
+
+    /**
+     * Method that returns the status of the operation
+     *
+     * @return byte The status of the operation
+     */
+    public byte getStatus() {
+        return this.mStatus;
+    }
+}
@@ -0,0 +1,427 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.console.helper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The entry point of the privileged helper process.<br/>
+ * <br/>
+ * The helper is launched once through <code>su</code> (with <code>app_process</code> and
+ * the apk of the application as classpath) and serves the requests of the
+ * {@link HelperClient} over its standard input and output, using the
+ * {@link HelperProtocol}, until the client requests the end or closes the streams. This
+ * avoids to spawn a process and to parse the text output of a shell command for every
+ * operation.<br/>
+ * <br/>
+ * This class must not depend on the Android framework.
+ */
+public final class HelperMain {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String PERMISSION_DENIED = "Permission denied"; //$NON-NLS-1$
+    private static final String NOT_PERMITTED = "Operation not permitted"; //$NON-NLS-1$
+    private static final String NOT_EXISTS = "No such file or directory"; //$NON-NLS-1$
+    private static final String READ_ONLY = "Read-only file system"; //$NON-NLS-1$
+
+    private final InputStream mIn;
+    private final OutputStream mOut;
+    private final PosixBridge mPosix;
+
+    /**
+     * Constructor of <code>HelperMain</code>.
+     *
+     * @param in The input stream from which read the requests
+     * @param out The output stream in which write the responses
+     */
+    public HelperMain(InputStream in, OutputStream out) {
+        super();
+        this.mIn = in;
+        this.mOut = out;
+        this.mPosix = new PosixBridge();
+    }
+
+    /**
+     * The entry point of the helper process.
+     *
+     * @param args The arguments (not used)
+     */
+    public static void main(String[] args) {
+        // The standard output is reserved for the protocol
+        OutputStream out =
+                new BufferedOutputStream(
+                        new FileOutputStream(FileDescriptor.out), BUFFER_SIZE);
+        InputStream in =
+                new BufferedInputStream(new FileInputStream(FileDescriptor.in), BUFFER_SIZE);
+        System.setOut(System.err);
+        try {
+            new HelperMain(in, out).serve();
+        } catch (Throwable ex) {
+            System.err.println("helper: " + ex); //$NON-NLS-1$
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Method that serves the requests until the client requests the end or closes
+     * the streams.
+     *
+     * @throws IOException If the streams fail
+     */
+    public void serve() throws IOException {
+        // Without the posix functions the helper can't serve the requests. The client
+        // doesn't receive the ready frame, so the console uses the privileged shell
+        ByteArrayOutputStream hello = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(hello);
+        if (!this.mPosix.isAvailable()) {
+            dos.writeByte(HelperProtocol.STATUS_UNSUPPORTED);
+            dos.writeUTF("The posix functions are not available"); //$NON-NLS-1$
+            HelperProtocol.writeFrame(this.mOut, hello);
+            return;
+        }
+
+        // Ready
+        dos.writeByte(HelperProtocol.STATUS_OK);
+        dos.writeInt(HelperProtocol.VERSION);
+        HelperProtocol.writeFrame(this.mOut, hello);
+
+        while (true) {
+            DataInputStream request = HelperProtocol.readFrame(this.mIn);
+            if (request == null) {
+                // The client closed the stream
+                break;
+            }
+            byte op = request.readByte();
+
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            DataOutputStream res = new DataOutputStream(response);
+            res.writeByte(HelperProtocol.STATUS_OK);
+            try {
+                dispatch(op, request, res);
+            } catch (HelperException hEx) {
+                response.reset();
+                res.writeByte(hEx.getStatus());
+                res.writeUTF(String.valueOf(hEx.getMessage()));
+            } catch (IOException ioEx) {
+                HelperException hEx = toHelperException(String.valueOf(ioEx.getMessage()));
+                response.reset();
+                res.writeByte(hEx.getStatus());
+                res.writeUTF(String.valueOf(hEx.getMessage()));
+            }
+            HelperProtocol.writeFrame(this.mOut, response);
+
+            if (op == HelperProtocol.OP_QUIT) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Method that dispatches a request.
+     *
+     * @param op The operation code
+     * @param req The arguments of the request
+     * @param res The results of the request
+     * @throws IOException If the operation fails
+     */
+    private void dispatch(byte op, DataInputStream req, DataOutputStream res)
+            throws IOException {
+        switch (op) {
+            case HelperProtocol.OP_STAT:
+                String path = req.readUTF();
+                boolean follow = req.readBoolean();
+                HelperProtocol.writeStat(res, this.mPosix.stat(path, getName(path), follow));
+                break;
+
+            case HelperProtocol.OP_LIST:
+                list(req.readUTF(), res);
+                break;
+
+            case HelperProtocol.OP_READLINK:
+                File f = new File(req.readUTF());
+                if (!f.exists()) {
+                    throw new HelperException(HelperProtocol.STATUS_NOT_FOUND, f.getPath());
+                }
+                res.writeUTF(f.getCanonicalPath());
+                break;
+
+            case HelperProtocol.OP_COPY:
+                String src = req.readUTF();
+                String dst = req.readUTF();
+                checkCopyTarget(new File(src), new File(dst));
+                copy(new File(src), new File(dst), new byte[BUFFER_SIZE]);
+                break;
+
+            case HelperProtocol.OP_DELETE:
+                delete(new File(req.readUTF()));
+                break;
+
+            case HelperProtocol.OP_CHMOD:
+                String chmodPath = req.readUTF();
+                this.mPosix.chmod(chmodPath, req.readInt());
+                break;
+
+            case HelperProtocol.OP_CHOWN:
+                String chownPath = req.readUTF();
+                int uid = req.readInt();
+                int gid = req.readInt();
+                this.mPosix.chown(chownPath, uid, gid);
+                break;
+
+            case HelperProtocol.OP_HASH:
+                String hashPath = req.readUTF();
+                byte[] digest = hash(new File(hashPath), req.readUTF());
+                res.writeInt(digest.length);
+                res.write(digest);
+                break;
+
+            case HelperProtocol.OP_QUIT:
+                break;
+
+            default:
+                throw new HelperException(
+                        HelperProtocol.STATUS_UNSUPPORTED,
+                        "Unknown operation: " + op); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Method that lists a directory.
+     *
+     * @param path The absolute path of the directory
+     * @param res The results of the request
+     * @throws IOException If the directory can't be listed
+     */
+    private void list(String path, DataOutputStream res) throws IOException {
+        File dir = new File(path);
+        String[] names = dir.list();
+        if (names == null) {
+            if (!dir.exists()) {
+                throw new HelperException(HelperProtocol.STATUS_NOT_FOUND, path);
+            }
+            throw new HelperException(HelperProtocol.STATUS_PERMISSION_DENIED, path);
+        }
+
+        res.writeInt(names.length);
+        for (int i = 0; i < names.length; i++) {
+            String child = new File(dir, names[i]).getAbsolutePath();
+            HelperStat stat;
+            try {
+                stat = this.mPosix.stat(child, names[i], false);
+            } catch (HelperException hEx) {
+                // The object disappeared or is not accessible. Report a minimal stat
+                stat = new HelperStat(
+                        names[i], HelperStat.TYPE_FILE, 0, -1, -1, 0, 0, null);
+            }
+
+            // Resolve the symlinks
+            if (stat.getType() == HelperStat.TYPE_SYMLINK) {
+                try {
+                    File target = new File(child).getCanonicalFile();
+                    stat.setLinkRef(
+                            target.getAbsolutePath(),
+                            this.mPosix.stat(
+                                    target.getAbsolutePath(), getName(target.getPath()), true));
+                } catch (IOException ioEx) {
+                    // Broken link
+                }
+            }
+            HelperProtocol.writeStat(res, stat);
+        }
+    }
+
+    /**
+     * Method that copies a file system object (recursively), preserving the permissions,
+     * the owner and the modification time when possible.
+     *
+     * @param src The source file system object
+     * @param dst The destination file system object
+     * @param buffer The buffer to use for the copy
+     * @throws IOException If the copy fails
+     */
+    private void copy(File src, File dst, byte[] buffer) throws IOException {
+        HelperStat stat = this.mPosix.stat(src.getAbsolutePath(), src.getName(), false);
+        if (stat.getType() == HelperStat.TYPE_DIRECTORY) {
+            if (!dst.exists() && !dst.mkdir()) {
+                throw new HelperException(
+                        HelperProtocol.STATUS_PERMISSION_DENIED, dst.getAbsolutePath());
+            }
+            String[] names = src.list();
+            if (names != null) {
+                for (int i = 0; i < names.length; i++) {
+                    copy(new File(src, names[i]), new File(dst, names[i]), buffer);
+                }
+            }
+        } else if (stat.getType() == HelperStat.TYPE_FILE) {
+            InputStream is = new FileInputStream(src);
+            try {
+                OutputStream os = new FileOutputStream(dst);
+                try {
+                    int read;
+                    while ((read = is.read(buffer)) != -1) {
+                        os.write(buffer, 0, read);
+                    }
+                } finally {
+                    os.close();
+                }
+            } finally {
+                try {
+                    is.close();
+                } catch (Throwable ex) {/**NON BLOCK**/}
+            }
+        } else if (stat.getType() == HelperStat.TYPE_SYMLINK) {
+            // Copy the symlink, not its target
+            this.mPosix.symlink(stat.getLink(), dst.getAbsolutePath());
+            return;
+        } else {
+            throw new HelperException(
+                    HelperProtocol.STATUS_UNSUPPORTED, src.getAbsolutePath());
+        }
+
+        // Preserve the attributes (best effort)
+        String path = dst.getAbsolutePath();
+        try {
+            this.mPosix.chmod(path, stat.getMode());
+            if (stat.getUid() != -1 && stat.getGid() != -1) {
+                this.mPosix.chown(path, stat.getUid(), stat.getGid());
+            }
+        } catch (HelperException hEx) {
+            /**NON BLOCK**/
+        }
+        dst.setLastModified(stat.getLastModified());
+    }
+
+    /**
+     * Method that checks that the destination of a copy is not the source or a path
+     * inside the source (the copy of a directory into itself never ends).
+     *
+     * @param src The source file system object
+     * @param dst The destination file system object
+     * @throws IOException If the destination is the source or is inside the source
+     */
+    private static void checkCopyTarget(File src, File dst) throws IOException {
+        // The destination doesn't exist yet, so resolve its parent
+        String s = src.getCanonicalPath();
+        File parent = dst.getAbsoluteFile().getParentFile();
+        String d = parent == null ?
+                dst.getCanonicalPath() :
+                new File(parent.getCanonicalFile(), dst.getName()).getPath();
+        if (d.compareTo(s) == 0 || d.startsWith(s.endsWith(File.separator) ?
+                s : s + File.separator)) {
+            throw new HelperException(
+                    HelperProtocol.STATUS_IO_ERROR,
+                    String.format("Cannot copy %s into itself", s)); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Method that deletes a file system object (recursively). The symlinks are not followed.
+     *
+     * @param f The file system object
+     * @throws IOException If the deletion fails
+     */
+    private void delete(File f) throws IOException {
+        HelperStat stat = this.mPosix.stat(f.getAbsolutePath(), f.getName(), false);
+        if (stat.getType() == HelperStat.TYPE_DIRECTORY) {
+            String[] names = f.list();
+            if (names != null) {
+                for (int i = 0; i < names.length; i++) {
+                    delete(new File(f, names[i]));
+                }
+            }
+        }
+        if (!f.delete()) {
+            throw new HelperException(
+                    HelperProtocol.STATUS_PERMISSION_DENIED, f.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Method that computes the digest of a file.
+     *
+     * @param f The file
+     * @param algorithm The digest algorithm (xe: MD5, SHA-1)
+     * @return byte[] The digest
+     * @throws IOException If the file can't be read
+     */
+    private static byte[] hash(File f, String algorithm) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException nsaEx) {
+            throw new HelperException(HelperProtocol.STATUS_UNSUPPORTED, algorithm);
+        }
+        InputStream is = new FileInputStream(f);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                md.update(buffer, 0, read);
+            }
+        } finally {
+            try {
+                is.close();
+            } catch (Throwable ex) {/**NON BLOCK**/}
+        }
+        return md.digest();
+    }
+
+    /**
+     * Method that returns the name of a path.
+     *
+     * @param path The path
+     * @return String The name of the path
+     */
+    private static String getName(String path) {
+        String name = new File(path).getName();
+        return name.length() == 0 ? File.separator : name;
+    }
+
+    /**
+     * Method that translates an error message of an i/o operation.
+     *
+     * @param msg The error message
+     * @return HelperException The translated exception
+     */
+    static HelperException toHelperException(String msg) {
+        if (msg.indexOf(NOT_EXISTS) != -1) {
+            return new HelperException(HelperProtocol.STATUS_NOT_FOUND, msg);
+        }
+        if (msg.indexOf(PERMISSION_DENIED) != -1 || msg.indexOf(NOT_PERMITTED) != -1) {
+            return new HelperException(HelperProtocol.STATUS_PERMISSION_DENIED, msg);
+        }
+        if (msg.indexOf(READ_ONLY) != -1) {
+            return new HelperException(HelperProtocol.STATUS_READ_ONLY, msg);
+        }
+        return new HelperException(HelperProtocol.STATUS_IO_ERROR, msg);
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.console.helper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The wire protocol between the application and the privileged helper process
+ * ({@link HelperMain}).<br/>
+ * <br/>
+ * Every message is a frame with a 4 bytes big-endian length followed by the body. The body
+ * of a request starts with the operation code, and the body of a response starts with the
+ * status code, followed by the arguments or the results of the operation. The helper writes
+ * a {@link #STATUS_OK} frame with the protocol version when it's ready to accept requests.
+ * <br/>
+ * This class (and all the classes used by the helper process) must not depend on the
+ * Android framework, so the helper can be launched through <code>app_process</code> or in a
+ * plain java virtual machine.
+ */
+public final class HelperProtocol {
+
+    /**
+     * The version of the protocol.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The maximum length of a frame.
+     */
+    public static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * Stat a file system object. Args: path (UTF), follow symlinks (boolean).
+     * Result: a {@link HelperStat}.
+     */
+    public static final byte OP_STAT = 1;
+    /**
+     * List a directory. Args: path (UTF). Result: count (int) + count * {@link HelperStat}
+     * (symlinks include the stat of their target).
+     */
+    public static final byte OP_LIST = 2;
+    /**
+     * Resolve a symlink. Args: path (UTF). Result: the canonical path (UTF).
+     */
+    public static final byte OP_READLINK = 3;
+    /**
+     * Copy a file system object (recursively). Args: src (UTF), dst (UTF). No result.
+     */
+    public static final byte OP_COPY = 4;
+    /**
+     * Delete a file system object (recursively). Args: path (UTF). No result.
+     */
+    public static final byte OP_DELETE = 5;
+    /**
+     * Change the mode of a file system object. Args: path (UTF), mode (int). No result.
+     */
+    public static final byte OP_CHMOD = 6;
+    /**
+     * Change the owner of a file system object. Args: path (UTF), uid (int), gid (int).
+     * No result.
+     */
+    public static final byte OP_CHOWN = 7;
+    /**
+     * Compute the digest of a file. Args: path (UTF), algorithm (UTF).
+     * Result: length (int) + digest bytes.
+     */
+    public static final byte OP_HASH = 8;
+    /**
+     * Ends the helper process. No args and no result.
+     */
+    public static final byte OP_QUIT = 9;
+
+    /**
+     * The operation was completed.
+     */
+    public static final byte STATUS_OK = 0;
+    /**
+     * The file system object doesn't exists. Result: message (UTF).
+     */
+    public static final byte STATUS_NOT_FOUND = 1;
+    /**
+     * The operation is not permitted. Result: message (UTF).
+     */
+    public static final byte STATUS_PERMISSION_DENIED = 2;
+    /**
+     * The operation writes in a read-only filesystem. Result: message (UTF).
+     */
+    public static final byte STATUS_READ_ONLY = 3;
+    /**
+     * The operation failed. Result: message (UTF).
+     */
+    public static final byte STATUS_IO_ERROR = 4;
+    /**
+     * The operation is not supported. Result: message (UTF).
+     */
+    public static final byte STATUS_UNSUPPORTED = 5;
+
+    /**
+     * Constructor of <code>HelperProtocol</code>.
+     */
+    private HelperProtocol() {
+        super();
+    }
+
+    /**
+     * Method that writes a frame.
+     *
+     * @param out The output stream
+     * @param body The body of the frame
+     * @throws IOException If the frame couldn't be written
+     */
+    public static void writeFrame(OutputStream out, ByteArrayOutputStream body)
+            throws IOException {
+        int len = body.size();
+        out.write((len >>> 24) & 0xFF);
+        out.write((len >>> 16) & 0xFF);
+        out.write((len >>> 8) & 0xFF);
+        out.write(len & 0xFF);
+        body.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Method that reads a frame.
+     *
+     * @param in The input stream
+     * @return DataInputStream The body of the frame, or <code>null</code> if the
+     * stream was closed
+     * @throws IOException If the frame couldn't be read
+     */
+    public static DataInputStream readFrame(InputStream in) throws IOException {
+        DataInputStream dis = new DataInputStream(in);
+        int len;
+        try {
+            len = dis.readInt();
+        } catch (EOFException eofEx) {
+            return null;
+        }
+        if (len < 0 || len > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid frame length: " + len); //$NON-NLS-1$
+        }
+        byte[] body = new byte[len];
+        dis.readFully(body);
+        return new DataInputStream(new ByteArrayInputStream(body));
+    }
+
+    /**
+     * Method that writes the stat of a file system object.
+     *
+     * @param out The output stream
+     * @param stat The stat of the file system object
+     * @throws IOException If the stat couldn't be written
+     */
+    public static void writeStat(DataOutputStream out, HelperStat stat) throws IOException {
+        out.writeUTF(stat.getName());
+        out.writeChar(stat.getType());
+        out.writeInt(stat.getMode());
+        out.writeInt(stat.getUid());
+        out.writeInt(stat.getGid());
+        out.writeLong(stat.getSize());
+        out.writeLong(stat.getLastModified());
+        out.writeUTF(stat.getLink() == null ? "" : stat.getLink()); //$NON-NLS-1$
+        out.writeBoolean(stat.getLinkRef() != null);
+        if (stat.getLinkRef() != null) {
+            out.writeUTF(stat.getLinkPath());
+            writeStat(out, stat.getLinkRef());
+        }
+    }
+
+    /**
+     * Method that reads the stat of a file system object.
+     *
+     * @param in The input stream
+     * @return HelperStat The stat of the file system object
+     * @throws IOException If the stat couldn't be read
+     */
+    public static HelperStat readStat(DataInputStream in) throws IOException {
+        String name = in.readUTF();
+        char type = in.readChar();
+        int mode = in.readInt();
+        int uid = in.readInt();
+        int gid = in.readInt();
+        long size = in.readLong();
+        long lastModified = in.readLong();
+        String link = in.readUTF();
+        HelperStat stat = new HelperStat(
+                name, type, mode, uid, gid, size, lastModified,
+                link.length() == 0 ? null : link);
+        if (in.readBoolean()) {
+            String linkPath = in.readUTF();
+            stat.setLinkRef(linkPath, readStat(in));
+        }
+        return stat;
+    }
+}
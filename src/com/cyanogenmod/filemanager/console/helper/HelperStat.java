@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.console.helper;
+
+/**
+ * The stat of a file system object, as returned by the privileged helper process.
+ */
+public class HelperStat {
+
+    /**
+     * The type of a regular file.
+     */
+    public static final char TYPE_FILE = '-';
+    /**
+     * The type of a directory.
+     */
+    public static final char TYPE_DIRECTORY = 'd';
+    /**
+     * The type of a symlink.
+     */
+    public static final char TYPE_SYMLINK = 'l';
+    /**
+     * The type of a block device.
+     */
+    public static final char TYPE_BLOCK_DEVICE = 'b';
+    /**
+     * The type of a character device.
+     */
+    public static final char TYPE_CHARACTER_DEVICE = 'c';
+    /**
+     * The type of a named pipe.
+     */
+    public static final char TYPE_NAMED_PIPE = 'p';
+    /**
+     * The type of a domain socket.
+     */
+    public static final char TYPE_DOMAIN_SOCKET = 's';
+
+    private final String mName;
+    private final char mType;
+    private final int mMode;
+    private final int mUid;
+    private final int mGid;
+    private final long mSize;
+    private final long mLastModified;
+    private final String mLink;
+    private String mLinkPath;
+    private HelperStat mLinkRef;
+
+    /**
+     * Constructor of <code>HelperStat</code>.
+     *
+     * @param name The name of the file system object
+     * @param type The unix type of the file system object
+     * @param mode The permission bits of the file system object (setuid, setgid, sticky,
+     * user, group and others)
+     * @param uid The user identifier of the owner
+     * @param gid The group identifier of the owner
+     * @param size The size in bytes of the file system object
+     * @param lastModified The last modification time in milliseconds
+     * @param link The raw target of the symlink, or <code>null</code> if the object
+     * is not a symlink
+     */
+    public HelperStat(
+            String name, char type, int mode, int uid, int gid,
+            long size, long lastModified, String link) {
+        super();
+        this.mName = name;
+        this.mType = type;
+        this.mMode = mode;
+        this.mUid = uid;
+        this.mGid = gid;
+        this.mSize = size;
+        this.mLastModified = lastModified;
+        this.mLink = link;
+    }
+
+    /**
+     * Method that returns the name of the file system object
+     *
+     * @return String The name of the file system object
+     */
+    public String getName() {
+        return this.mName;
+    }
+
+    /**
+     * Method that returns the unix type of the file system object
+     *
+     * @return char The unix type of the file system object
+     */
+    public char getType() {
+        return this.mType;
+    }
+
+    /**
+     * Method that returns the permission bits of the file system object
+     *
+     * @return int The permission bits of the file system object
+     */
+    public int getMode() {
+        return this.mMode;
+    }
+
+    /**
+     * Method that returns the user identifier of the owner
+     *
+     * @return int The user identifier of the owner
+     */
+    public int getUid() {
+        return this.mUid;
+    }
+
+    /**
+     * Method that returns the group identifier of the owner
+     *
+     * @return int The group identifier of the owner
+     */
+    public int getGid() {
+        return this.mGid;
+    }
+
+    /**
+     * Method that returns the size in bytes of the file system object
+     *
+     * @return long The size in bytes of the file system object
+     */
+    public long getSize() {
+        return this.mSize;
+    }
+
+    /**
+     * Method that returns the last modification time in milliseconds
+     *
+     * @return long The last modification time in milliseconds
+     */
+    public long getLastModified() {
+        return this.mLastModified;
+    }
+
+    /**
+     * Method that returns the raw target of the symlink
+     *
+     * @return String The raw target of the symlink, or <code>null</code> if the
+     * object is not a symlink
+     */
+    public String getLink() {
+        return this.mLink;
+    }
+
+    /**
+     * Method that returns the absolute path of the target of the symlink
+     *
+     * @return String The absolute path of the target of the symlink, or <code>null</code>
+     * if the symlink wasn't resolved
+     */
+    public String getLinkPath() {
+        return this.mLinkPath;
+    }
+
+    /**
+     * Method that returns the stat of the target of the symlink
+     *
+     * @return HelperStat The stat of the target of the symlink, or <code>null</code>
+     * if the symlink wasn't resolved
+     */
+    public HelperStat getLinkRef() {
+        return this.mLinkRef;
+    }
+
+    /**
+     * Method that sets the resolved target of the symlink
+     *
+     * @param linkPath The absolute path of the target of the symlink
+     * @param linkRef The stat of the target of the symlink
+     */
+    public void setLinkRef(String linkPath, HelperStat linkRef) {
+        this.mLinkPath = linkPath;
+        this.mLinkRef = linkRef;
+    }
+
+    /**
+     * Method that returns the permissions in unix octal style (xe: 0755)
+     *
+     * @return String The permissions in unix octal style
+     */
+    public String toOctalString() {
+        return String.format("%04o", Integer.valueOf(this.mMode & 07777)); //$NON-NLS-1$
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "HelperStat [name=" + this.mName + ", type=" + this.mType //$NON-NLS-1$ //$NON-NLS-2$
+                + ", mode=" + toOctalString() + ", uid=" + this.mUid //$NON-NLS-1$ //$NON-NLS-2$
+                + ", gid=" + this.mGid + ", size=" + this.mSize //$NON-NLS-1$ //$NON-NLS-2$
+                + ", lastModified=" + this.mLastModified //$NON-NLS-1$
+                + ", link=" + this.mLink + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+}
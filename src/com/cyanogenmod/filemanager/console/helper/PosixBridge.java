@@ -0,0 +1,455 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.console.helper;
+
+import java.io.File;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * A bridge to the posix functions needed by the privileged helper process (stat, chmod,
+ * chown and readlink).<br/>
+ * <br/>
+ * The helper process doesn't have access to the Android framework, so the posix functions
+ * are resolved through reflection: <code>android.system.Os</code> or
+ * <code>libcore.io.Libcore.os</code> when running in an Android runtime, or the unix
+ * attribute view of <code>java.nio.file</code> when running in a standard java virtual
+ * machine. If none of them is available (see {@link #isAvailable()}) the helper refuses to
+ * start, and the console falls back to the privileged shell.
+ */
+final class PosixBridge {
+
+    // File type bits (st_mode)
+    private static final int S_IFMT = 0170000;
+    private static final int S_IFSOCK = 0140000;
+    private static final int S_IFLNK = 0120000;
+    private static final int S_IFREG = 0100000;
+    private static final int S_IFBLK = 0060000;
+    private static final int S_IFDIR = 0040000;
+    private static final int S_IFCHR = 0020000;
+    private static final int S_IFIFO = 0010000;
+
+    // Errno values
+    private static final int EPERM = 1;
+    private static final int ENOENT = 2;
+    private static final int EACCES = 13;
+    private static final int ENOTDIR = 20;
+    private static final int EROFS = 30;
+
+    private static final String NIO_UNIX_ATTRS =
+            "unix:mode,uid,gid,size,lastModifiedTime"; //$NON-NLS-1$
+
+    // Android backend
+    private Object mOs;
+    private Method mOsStat;
+    private Method mOsLstat;
+    private Method mOsChmod;
+    private Method mOsChown;
+    private Method mOsSymlink;
+
+    // Java nio backend
+    private Method mNioGetPath;
+    private Method mNioReadAttributes;
+    private Method mNioSetAttribute;
+    private Method mNioReadSymbolicLink;
+    private Method mNioCreateSymbolicLink;
+    private Object mNioNoFollow;
+    private Object mNioFollow;
+
+    /**
+     * A raw stat structure.
+     */
+    private static class RawStat {
+        int mMode;
+        int mUid;
+        int mGid;
+        long mSize;
+        long mLastModified;
+    }
+
+    /**
+     * Constructor of <code>PosixBridge</code>.
+     */
+    PosixBridge() {
+        super();
+        if (!resolveAndroidOs()) {
+            resolveNio();
+        }
+    }
+
+    /**
+     * Method that returns if the posix functions were resolved.
+     *
+     * @return boolean If the posix functions were resolved
+     */
+    boolean isAvailable() {
+        return this.mOsStat != null || this.mNioGetPath != null;
+    }
+
+    /**
+     * Method that resolves the Android posix functions.
+     *
+     * @return boolean If the functions were resolved
+     */
+    private boolean resolveAndroidOs() {
+        try {
+            Class<?> osClass;
+            Object os;
+            try {
+                // Public api (static methods)
+                osClass = Class.forName("android.system.Os"); //$NON-NLS-1$
+                os = null;
+            } catch (ClassNotFoundException cnfEx) {
+                // Old runtimes (instance methods)
+                Class<?> libcore = Class.forName("libcore.io.Libcore"); //$NON-NLS-1$
+                os = libcore.getField("os").get(null); //$NON-NLS-1$
+                osClass = os.getClass();
+            }
+            this.mOsStat = osClass.getMethod("stat", String.class); //$NON-NLS-1$
+            this.mOsLstat = osClass.getMethod("lstat", String.class); //$NON-NLS-1$
+            this.mOsChmod =
+                    osClass.getMethod("chmod", String.class, int.class); //$NON-NLS-1$
+            this.mOsChown =
+                    osClass.getMethod("chown", String.class, int.class, int.class); //$NON-NLS-1$
+            this.mOsSymlink =
+                    osClass.getMethod("symlink", String.class, String.class); //$NON-NLS-1$
+            this.mOs = os;
+            return true;
+        } catch (Throwable ex) {
+            this.mOsStat = null;
+            this.mOsLstat = null;
+            this.mOsChmod = null;
+            this.mOsChown = null;
+            this.mOsSymlink = null;
+            return false;
+        }
+    }
+
+    /**
+     * Method that resolves the java nio unix attribute view.
+     *
+     * @return boolean If the functions were resolved
+     */
+    private boolean resolveNio() {
+        try {
+            Class<?> paths = Class.forName("java.nio.file.Paths"); //$NON-NLS-1$
+            Class<?> files = Class.forName("java.nio.file.Files"); //$NON-NLS-1$
+            Class<?> path = Class.forName("java.nio.file.Path"); //$NON-NLS-1$
+            Class<?> linkOption = Class.forName("java.nio.file.LinkOption"); //$NON-NLS-1$
+            Class<?> linkOptions = Array.newInstance(linkOption, 0).getClass();
+            this.mNioGetPath =
+                    paths.getMethod("get", String.class, String[].class); //$NON-NLS-1$
+            this.mNioReadAttributes =
+                    files.getMethod(
+                            "readAttributes", path, String.class, linkOptions); //$NON-NLS-1$
+            this.mNioSetAttribute =
+                    files.getMethod(
+                            "setAttribute", //$NON-NLS-1$
+                            path, String.class, Object.class, linkOptions);
+            this.mNioReadSymbolicLink = files.getMethod("readSymbolicLink", path); //$NON-NLS-1$
+            Class<?> fileAttribute =
+                    Class.forName("java.nio.file.attribute.FileAttribute"); //$NON-NLS-1$
+            this.mNioCreateSymbolicLink =
+                    files.getMethod(
+                            "createSymbolicLink", //$NON-NLS-1$
+                            path, path, Array.newInstance(fileAttribute, 0).getClass());
+            this.mNioFollow = Array.newInstance(linkOption, 0);
+            this.mNioNoFollow = Array.newInstance(linkOption, 1);
+            Array.set(this.mNioNoFollow, 0,
+                    linkOption.getField("NOFOLLOW_LINKS").get(null)); //$NON-NLS-1$
+
+            // Check that the unix view is supported
+            readNioAttributes(File.separator, false);
+            return true;
+        } catch (Throwable ex) {
+            this.mNioGetPath = null;
+            return false;
+        }
+    }
+
+    /**
+     * Method that returns the stat of a file system object.
+     *
+     * @param path The absolute path of the file system object
+     * @param name The name to assign to the stat
+     * @param follow If the symlinks must be followed
+     * @return HelperStat The stat of the file system object
+     * @throws HelperException If the stat couldn't be obtained
+     */
+    HelperStat stat(String path, String name, boolean follow) throws HelperException {
+        RawStat raw;
+        if (this.mOsStat != null) {
+            raw = readOsStat(path, follow);
+        } else if (this.mNioGetPath != null) {
+            raw = readNioAttributes(path, follow);
+        } else {
+            throw new HelperException(HelperProtocol.STATUS_UNSUPPORTED, "stat"); //$NON-NLS-1$
+        }
+
+        // Resolve the symlink target
+        char type = toType(raw.mMode);
+        String link = null;
+        if (type == HelperStat.TYPE_SYMLINK) {
+            link = readlink(path);
+        }
+        return new HelperStat(
+                name, type, raw.mMode & 07777, raw.mUid, raw.mGid,
+                raw.mSize, raw.mLastModified, link);
+    }
+
+    /**
+     * Method that returns the raw target of a symlink.
+     *
+     * @param path The absolute path of the symlink
+     * @return String The raw target of the symlink
+     * @throws HelperException If the symlink couldn't be read
+     */
+    String readlink(String path) throws HelperException {
+        if (this.mNioGetPath != null) {
+            Object target = invoke(this.mNioReadSymbolicLink, null, toNioPath(path));
+            return String.valueOf(target);
+        }
+        try {
+            Method readlink = this.mOsStat == null ?
+                    null :
+                    this.mOsStat.getDeclaringClass().getMethod(
+                            "readlink", String.class); //$NON-NLS-1$
+            if (readlink != null) {
+                return (String)invoke(readlink, this.mOs, path);
+            }
+        } catch (NoSuchMethodException nsmEx) {
+            /**NON BLOCK**/
+        }
+        try {
+            return new File(path).getCanonicalPath();
+        } catch (Exception e) {
+            throw new HelperException(HelperProtocol.STATUS_IO_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Method that changes the permission bits of a file system object.
+     *
+     * @param path The absolute path of the file system object
+     * @param mode The new permission bits
+     * @throws HelperException If the permissions couldn't be changed
+     */
+    void chmod(String path, int mode) throws HelperException {
+        if (this.mOsChmod != null) {
+            invoke(this.mOsChmod, this.mOs, path, Integer.valueOf(mode));
+        } else if (this.mNioGetPath != null) {
+            invoke(this.mNioSetAttribute, null,
+                    toNioPath(path), "unix:mode", //$NON-NLS-1$
+                    Integer.valueOf(mode), this.mNioFollow);
+        } else {
+            throw new HelperException(HelperProtocol.STATUS_UNSUPPORTED, "chmod"); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Method that changes the owner of a file system object.
+     *
+     * @param path The absolute path of the file system object
+     * @param uid The user identifier of the new owner
+     * @param gid The group identifier of the new owner
+     * @throws HelperException If the owner couldn't be changed
+     */
+    void chown(String path, int uid, int gid) throws HelperException {
+        if (this.mOsChown != null) {
+            invoke(this.mOsChown, this.mOs, path, Integer.valueOf(uid), Integer.valueOf(gid));
+        } else if (this.mNioGetPath != null) {
+            Object nioPath = toNioPath(path);
+            invoke(this.mNioSetAttribute, null,
+                    nioPath, "unix:uid", Integer.valueOf(uid), this.mNioFollow); //$NON-NLS-1$
+            invoke(this.mNioSetAttribute, null,
+                    nioPath, "unix:gid", Integer.valueOf(gid), this.mNioFollow); //$NON-NLS-1$
+        } else {
+            throw new HelperException(HelperProtocol.STATUS_UNSUPPORTED, "chown"); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Method that creates a symlink.
+     *
+     * @param target The raw target of the symlink
+     * @param path The absolute path of the symlink
+     * @throws HelperException If the symlink couldn't be created
+     */
+    void symlink(String target, String path) throws HelperException {
+        if (this.mOsSymlink != null) {
+            invoke(this.mOsSymlink, this.mOs, target, path);
+        } else if (this.mNioGetPath != null) {
+            invoke(this.mNioCreateSymbolicLink, null,
+                    toNioPath(path), toNioPath(target),
+                    Array.newInstance(this.mNioCreateSymbolicLink.getParameterTypes()[2]
+                            .getComponentType(), 0));
+        } else {
+            throw new HelperException(HelperProtocol.STATUS_UNSUPPORTED, "symlink"); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Method that reads the stat from the Android posix functions.
+     *
+     * @param path The absolute path of the file system object
+     * @param follow If the symlinks must be followed
+     * @return RawStat The stat of the file system object
+     * @throws HelperException If the stat couldn't be obtained
+     */
+    private RawStat readOsStat(String path, boolean follow) throws HelperException {
+        Object st = invoke(follow ? this.mOsStat : this.mOsLstat, this.mOs, path);
+        try {
+            Class<?> c = st.getClass();
+            RawStat raw = new RawStat();
+            raw.mMode = c.getField("st_mode").getInt(st); //$NON-NLS-1$
+            raw.mUid = c.getField("st_uid").getInt(st); //$NON-NLS-1$
+            raw.mGid = c.getField("st_gid").getInt(st); //$NON-NLS-1$
+            raw.mSize = c.getField("st_size").getLong(st); //$NON-NLS-1$
+            raw.mLastModified = c.getField("st_mtime").getLong(st) * 1000L; //$NON-NLS-1$
+            return raw;
+        } catch (Exception e) {
+            throw new HelperException(HelperProtocol.STATUS_IO_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Method that reads the stat from the java nio unix attribute view.
+     *
+     * @param path The absolute path of the file system object
+     * @param follow If the symlinks must be followed
+     * @return RawStat The stat of the file system object
+     * @throws HelperException If the stat couldn't be obtained
+     */
+    private RawStat readNioAttributes(String path, boolean follow) throws HelperException {
+        Map<?, ?> attrs = (Map<?, ?>)invoke(
+                this.mNioReadAttributes, null,
+                toNioPath(path), NIO_UNIX_ATTRS, follow ? this.mNioFollow : this.mNioNoFollow);
+        try {
+            RawStat raw = new RawStat();
+            raw.mMode = ((Integer)attrs.get("mode")).intValue(); //$NON-NLS-1$
+            raw.mUid = ((Integer)attrs.get("uid")).intValue(); //$NON-NLS-1$
+            raw.mGid = ((Integer)attrs.get("gid")).intValue(); //$NON-NLS-1$
+            raw.mSize = ((Long)attrs.get("size")).longValue(); //$NON-NLS-1$
+            Object time = attrs.get("lastModifiedTime"); //$NON-NLS-1$
+            raw.mLastModified =
+                    ((Long)time.getClass().getMethod("toMillis").invoke(time)) //$NON-NLS-1$
+                        .longValue();
+            return raw;
+        } catch (Exception e) {
+            throw new HelperException(HelperProtocol.STATUS_IO_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Method that converts a path to a java nio path.
+     *
+     * @param path The path
+     * @return Object The java nio path
+     * @throws HelperException If the path couldn't be converted
+     */
+    private Object toNioPath(String path) throws HelperException {
+        return invoke(this.mNioGetPath, null, path, new String[0]);
+    }
+
+    /**
+     * Method that converts the file type bits to a unix type.
+     *
+     * @param mode The st_mode of the stat
+     * @return char The unix type
+     */
+    private static char toType(int mode) {
+        switch (mode & S_IFMT) {
+            case S_IFDIR: return HelperStat.TYPE_DIRECTORY;
+            case S_IFLNK: return HelperStat.TYPE_SYMLINK;
+            case S_IFBLK: return HelperStat.TYPE_BLOCK_DEVICE;
+            case S_IFCHR: return HelperStat.TYPE_CHARACTER_DEVICE;
+            case S_IFIFO: return HelperStat.TYPE_NAMED_PIPE;
+            case S_IFSOCK: return HelperStat.TYPE_DOMAIN_SOCKET;
+            default: return HelperStat.TYPE_FILE;
+        }
+    }
+
+    /**
+     * Method that invokes a method and translates the exceptions thrown.
+     *
+     * @param method The method to invoke
+     * @param target The target object (<code>null</code> for static methods)
+     * @param args The arguments of the method
+     * @return Object The result of the method
+     * @throws HelperException If the method fails
+     */
+    private static Object invoke(Method method, Object target, Object... args)
+            throws HelperException {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException itEx) {
+            throw toHelperException(itEx.getCause(), args.length > 0 ? args[0] : null);
+        } catch (Exception e) {
+            throw new HelperException(HelperProtocol.STATUS_IO_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Method that translates an exception of the posix functions.
+     *
+     * @param cause The exception
+     * @param path The path affected
+     * @return HelperException The translated exception
+     */
+    private static HelperException toHelperException(Throwable cause, Object path) {
+        String msg = String.valueOf(path) + ": " + cause.getMessage(); //$NON-NLS-1$
+        String name = cause.getClass().getSimpleName();
+
+        // Android (ErrnoException)
+        if (name.compareTo("ErrnoException") == 0) { //$NON-NLS-1$
+            try {
+                int errno = cause.getClass().getField("errno").getInt(cause); //$NON-NLS-1$
+                switch (errno) {
+                    case ENOENT:
+                    case ENOTDIR:
+                        return new HelperException(HelperProtocol.STATUS_NOT_FOUND, msg);
+                    case EPERM:
+                    case EACCES:
+                        return new HelperException(
+                                HelperProtocol.STATUS_PERMISSION_DENIED, msg);
+                    case EROFS:
+                        return new HelperException(HelperProtocol.STATUS_READ_ONLY, msg);
+                    default:
+                        break;
+                }
+            } catch (Exception e) {
+                /**NON BLOCK**/
+            }
+            return new HelperException(HelperProtocol.STATUS_IO_ERROR, msg);
+        }
+
+        // Java nio
+        if (name.compareTo("NoSuchFileException") == 0 || //$NON-NLS-1$
+            name.compareTo("NotDirectoryException") == 0) { //$NON-NLS-1$
+            return new HelperException(HelperProtocol.STATUS_NOT_FOUND, msg);
+        }
+        if (name.compareTo("AccessDeniedException") == 0) { //$NON-NLS-1$
+            return new HelperException(HelperProtocol.STATUS_PERMISSION_DENIED, msg);
+        }
+        if (cause instanceof UnsupportedOperationException) {
+            return new HelperException(HelperProtocol.STATUS_UNSUPPORTED, msg);
+        }
+        return HelperMain.toHelperException(msg);
+    }
+}
@@ -36,6 +36,7 @@ import com.cyanogenmod.filemanager.console.OperationTimeoutException;
 import com.cyanogenmod.filemanager.console.ReadOnlyFilesystemException;
 import com.cyanogenmod.filemanager.model.Identity;
 import com.cyanogenmod.filemanager.util.StorageHelper;
+import com.cyanogenmod.filemanager.util.TraceHelper;
 
 /**
  * An implementation of a {@link Console} based on a java implementation.<br/>
@@ -179,9 +180,13 @@ public final class JavaConsole extends Console {
 
     /**
      * {@inheritDoc}
+     * <br/>
+     * The java programs don't share state, so this method is not synchronized and
+     * independent programs (xe: submitted through {@link #submit(java.util.concurrent.Callable)})
+     * run in parallel.
      */
     @Override
-    public synchronized void execute(Executable executable) throws ConsoleAllocException,
+    public void execute(Executable executable) throws ConsoleAllocException,
                                 InsufficientPermissionsException, NoSuchFileOrDirectory,
                                 OperationTimeoutException, ExecutionException,
                                 CommandNotFoundException, ReadOnlyFilesystemException {
@@ -210,6 +215,9 @@ public final class JavaConsole extends Console {
             Thread t = new Thread() {
                 @Override
                 public void run() {
+                    TraceHelper.begin(
+                            "execute", TraceHelper.CAT_CONSOLE, //$NON-NLS-1$
+                            program.getClass(), null);
                     try {
                         program.execute();
                     } catch (Exception e) {
@@ -217,6 +225,8 @@ public final class JavaConsole extends Console {
                         Log.v(TAG,
                                 String.format("Async execute failed program: %s", //$NON-NLS-1$
                                 program.getClass().toString()));
+                    } finally {
+                        TraceHelper.end("execute", TraceHelper.CAT_CONSOLE, 0); //$NON-NLS-1$
                     }
                 }
             };
@@ -224,7 +234,13 @@ public final class JavaConsole extends Console {
 
         } else {
             // Synchronous execution
-            program.execute();
+            TraceHelper.begin(
+                    "execute", TraceHelper.CAT_CONSOLE, program.getClass(), null); //$NON-NLS-1$
+            try {
+                program.execute();
+            } finally {
+                TraceHelper.end("execute", TraceHelper.CAT_CONSOLE, 0); //$NON-NLS-1$
+            }
         }
     }
 
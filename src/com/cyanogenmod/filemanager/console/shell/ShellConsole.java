@@ -46,6 +46,7 @@ import com.cyanogenmod.filemanager.preferences.FileManagerSettings;
 import com.cyanogenmod.filemanager.preferences.Preferences;
 import com.cyanogenmod.filemanager.util.CommandHelper;
 import com.cyanogenmod.filemanager.util.FileHelper;
+import com.cyanogenmod.filemanager.util.TraceHelper;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -56,6 +57,7 @@ import java.security.SecureRandom;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -129,6 +131,7 @@ public abstract class ShellConsole extends Console implements Program.ProgramLis
     int mBufferSize;
 
     private final ShellExecutableFactory mExecutableFactory;
+    private final Executor mAsyncExecutor;
 
     /**
      * Constructor of <code>ShellConsole</code>.
@@ -156,6 +159,8 @@ public abstract class ShellConsole extends Console implements Program.ProgramLis
         super();
         this.mShell = shell;
         this.mExecutableFactory = new ShellExecutableFactory(this);
+        // The shell executes one command at once, so the asynchronous operations are queued
+        this.mAsyncExecutor = newAsyncExecutor(shell.getId(), 1);
 
         this.mBufferSize = DEFAULT_BUFFER;
 
@@ -197,6 +202,35 @@ public abstract class ShellConsole extends Console implements Program.ProgramLis
         return this.mIdentity;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Executor getAsyncExecutor() {
+        return this.mAsyncExecutor;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br/>
+     * The shell executes one command at once, so the asynchronous operations are queued.
+     */
+    @Override
+    public boolean isConcurrent() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br/>
+     * An interrupted command loses the synchronization with the shell, which must be
+     * reallocated, so the running commands are never interrupted.
+     */
+    @Override
+    protected boolean isInterruptible() {
+        return false;
+    }
+
     /**
      * Method that returns the buffer size
      *
@@ -227,7 +261,7 @@ public abstract class ShellConsole extends Console implements Program.ProgramLis
      * {@inheritDoc}
      */
     @Override
-    public final void alloc() throws ConsoleAllocException {
+    public void alloc() throws ConsoleAllocException {
         try {
             //Create command string
             List<String> cmd = new ArrayList<String>();
@@ -322,7 +356,7 @@ public abstract class ShellConsole extends Console implements Program.ProgramLis
      * {@inheritDoc}
      */
     @Override
-    public final void dealloc() {
+    public void dealloc() {
         synchronized (this.mSync) {
             if (this.mActive) {
                 this.mActive = false;
@@ -375,7 +409,7 @@ public abstract class ShellConsole extends Console implements Program.ProgramLis
      * {@inheritDoc}
      */
     @Override
-    public final synchronized void execute(final Executable executable)
+    public synchronized void execute(final Executable executable)
             throws ConsoleAllocException, InsufficientPermissionsException,
             CommandNotFoundException, NoSuchFileOrDirectory,
             OperationTimeoutException, ExecutionException, ReadOnlyFilesystemException {
@@ -449,6 +483,9 @@ public abstract class ShellConsole extends Console implements Program.ProgramLis
 
             //Saves the active command reference
             this.mActiveCommand = program;
+            TraceHelper.begin(
+                    "syncExecute", TraceHelper.CAT_CONSOLE, //$NON-NLS-1$
+                    program.getId(), program.getArguments());
 
             //Reset the buffers
             this.mStarted = false;
@@ -578,12 +615,17 @@ public abstract class ShellConsole extends Console implements Program.ProgramLis
 
             //Parse the result? Only if not partial results
             if (program instanceof SyncResultProgram) {
+                TraceHelper.begin(
+                        "parse", TraceHelper.CAT_PARSE, program.getId(), null); //$NON-NLS-1$
                 try {
                     ((SyncResultProgram)program).parse(
                             this.mSbIn.toString(), this.mSbErr.toString());
                 } catch (ParseException pEx) {
                     throw new ExecutionException(
                             "SyncResultProgram parse failed", pEx); //$NON-NLS-1$
+                } finally {
+                    TraceHelper.end(
+                            "parse", TraceHelper.CAT_PARSE, this.mSbIn.length()); //$NON-NLS-1$
                 }
             }
 
@@ -606,6 +648,12 @@ public abstract class ShellConsole extends Console implements Program.ProgramLis
 
         } finally {
             //Dereference the active command
+            if (this.mActiveCommand != null) {
+                StringBuffer sbIn = this.mSbIn;
+                TraceHelper.end(
+                        "syncExecute", TraceHelper.CAT_CONSOLE, //$NON-NLS-1$
+                        sbIn == null ? 0 : sbIn.length());
+            }
             this.mActiveCommand = null;
         }
 
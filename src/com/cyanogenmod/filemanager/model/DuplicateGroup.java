@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A class that represents a group of duplicate files (files with the same content).
+ */
+public class DuplicateGroup implements Serializable {
+
+    private static final long serialVersionUID = -4915724218163342761L;
+
+    private final long mSize;
+    private final List<FileSystemObject> mFiles;
+
+    /**
+     * Constructor of <code>DuplicateGroup</code>.
+     *
+     * @param size The size of every file of the group
+     * @param files The duplicate files
+     */
+    public DuplicateGroup(long size, List<FileSystemObject> files) {
+        super();
+        this.mSize = size;
+        this.mFiles = files;
+    }
+
+    /**
+     * Method that returns the size of every file of the group.
+     *
+     * @return long The size of a file
+     */
+    public long getSize() {
+        return this.mSize;
+    }
+
+    /**
+     * Method that returns the duplicate files.
+     *
+     * @return List<FileSystemObject> The duplicate files
+     */
+    public List<FileSystemObject> getFiles() {
+        return this.mFiles;
+    }
+
+    /**
+     * Method that returns the space used by the copies of the file (all the files of the
+     * group but one).
+     *
+     * @return long The space in bytes
+     */
+    public long getWastedSize() {
+        return this.mSize * (this.mFiles.size() - 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "DuplicateGroup [size=" + this.mSize + ", files=" //$NON-NLS-1$ //$NON-NLS-2$
+                + this.mFiles + "]"; //$NON-NLS-1$
+    }
+
+}
@@ -20,6 +20,8 @@ import com.cyanogenmod.filemanager.R;
 import com.cyanogenmod.filemanager.util.FileHelper;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Date;
 
@@ -47,6 +49,9 @@ public abstract class FileSystemObject implements Serializable, Comparable<FileS
     private Date mLastModifiedTime;
     private long mSize;
 
+    // The file from which read the modification time and size when they are requested
+    private transient File mLazyFile;
+
     /**
      * Constructor of <code>FileSystemObject</code>.
      *
@@ -71,6 +76,31 @@ public abstract class FileSystemObject implements Serializable, Comparable<FileS
         this.mResourceIconId = RESOURCE_ICON_DEFAULT;
     }
 
+    /**
+     * Method that defers the read of the modification time and size of the object until
+     * they are requested (the listings that don't show or sort by these attributes don't
+     * need to read them).
+     *
+     * @param file The file from which read the attributes
+     */
+    public void setLazyAttributes(File file) {
+        this.mLazyFile = file;
+    }
+
+    /**
+     * Method that reads the deferred attributes of the object (if any).
+     */
+    private void resolveAttributes() {
+        File file = this.mLazyFile;
+        if (file != null) {
+            this.mLastModifiedTime = new Date(file.lastModified());
+            if (!(this instanceof Directory)) {
+                this.mSize = file.length();
+            }
+            this.mLazyFile = null;
+        }
+    }
+
     /**
      * Method that returns the character that identifies the object in unix.
      *
@@ -174,6 +204,7 @@ public abstract class FileSystemObject implements Serializable, Comparable<FileS
      * @return Date The last time that the object was modified
      */
     public Date getLastModifiedTime() {
+        resolveAttributes();
         return this.mLastModifiedTime;
     }
 
@@ -183,6 +214,7 @@ public abstract class FileSystemObject implements Serializable, Comparable<FileS
      * @param lastModifiedTime The last time that the object was modified
      */
     public void setLastModifiedTime(Date lastModifiedTime) {
+        resolveAttributes();
         this.mLastModifiedTime = lastModifiedTime;
     }
 
@@ -192,6 +224,7 @@ public abstract class FileSystemObject implements Serializable, Comparable<FileS
      * @return long The size in bytes of the object
      */
     public long getSize() {
+        resolveAttributes();
         return this.mSize;
     }
 
@@ -201,6 +234,7 @@ public abstract class FileSystemObject implements Serializable, Comparable<FileS
      * @param size The size in bytes of the object
      */
     public void setSize(long size) {
+        resolveAttributes();
         this.mSize = size;
     }
 
@@ -264,26 +298,24 @@ public abstract class FileSystemObject implements Serializable, Comparable<FileS
 
     /**
      * {@inheritDoc}
+     * <br/>
+     * The identity of the object is its path (the attributes are not compared, so the
+     * deferred attributes are not read).
      */
     @Override
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + ((this.mGroup == null) ? 0 : this.mGroup.hashCode());
-        result = prime * result + ((this.mLastModifiedTime == null)
-                ? 0
-                : this.mLastModifiedTime.hashCode());
         result = prime * result + ((this.mName == null) ? 0 : this.mName.hashCode());
         result = prime * result + ((this.mParent == null) ? 0 : this.mParent.hashCode());
-        result = prime * result + ((this.mPermissions == null) ? 0 : this.mPermissions.hashCode());
-        result = prime * result + this.mResourceIconId;
-        result = prime * result + (int) (this.mSize ^ (this.mSize >>> 32));
-        result = prime * result + ((this.mUser == null) ? 0 : this.mUser.hashCode());
         return result;
     }
 
     /**
      * {@inheritDoc}
+     * <br/>
+     * The identity of the object is its path (the attributes are not compared, so the
+     * deferred attributes are not read).
      */
     @Override
     public boolean equals(Object obj) {
@@ -297,20 +329,6 @@ public abstract class FileSystemObject implements Serializable, Comparable<FileS
             return false;
         }
         FileSystemObject other = (FileSystemObject) obj;
-        if (this.mGroup == null) {
-            if (other.mGroup != null) {
-                return false;
-            }
-        } else if (!this.mGroup.equals(other.mGroup)) {
-            return false;
-        }
-        if (this.mLastModifiedTime == null) {
-            if (other.mLastModifiedTime != null) {
-                return false;
-            }
-        } else if (!this.mLastModifiedTime.equals(other.mLastModifiedTime)) {
-            return false;
-        }
         if (this.mName == null) {
             if (other.mName != null) {
                 return false;
@@ -325,26 +343,6 @@ public abstract class FileSystemObject implements Serializable, Comparable<FileS
         } else if (!this.mParent.equals(other.mParent)) {
             return false;
         }
-        if (this.mPermissions == null) {
-            if (other.mPermissions != null) {
-                return false;
-            }
-        } else if (!this.mPermissions.equals(other.mPermissions)) {
-            return false;
-        }
-        if (this.mResourceIconId != other.mResourceIconId) {
-            return false;
-        }
-        if (this.mSize != other.mSize) {
-            return false;
-        }
-        if (this.mUser == null) {
-            if (other.mUser != null) {
-                return false;
-            }
-        } else if (!this.mUser.equals(other.mUser)) {
-            return false;
-        }
         return true;
     }
 
@@ -365,12 +363,27 @@ public abstract class FileSystemObject implements Serializable, Comparable<FileS
      */
     @Override
     public String toString() {
+        // The deferred attributes are not read (they are shown as not resolved)
+        boolean lazy = this.mLazyFile != null;
         return "FileSystemObject [resourceIconId=" + this.mResourceIconId //$NON-NLS-1$
                 + ", name=" + this.mName //$NON-NLS-1$
                 + ", parent=" + this.mParent + ", user=" + this.mUser //$NON-NLS-1$ //$NON-NLS-2$
                 + ", group=" + this.mGroup  + ", permissions=" //$NON-NLS-1$ //$NON-NLS-2$
-                + this.mPermissions + ", lastModifiedTime=" + this.mLastModifiedTime //$NON-NLS-1$
-                + ", size=" + this.mSize + "]"; //$NON-NLS-1$//$NON-NLS-2$
+                + this.mPermissions + ", lastModifiedTime=" //$NON-NLS-1$
+                + (lazy ? "?" : String.valueOf(this.mLastModifiedTime)) //$NON-NLS-1$
+                + ", size=" + (lazy ? "?" : String.valueOf(this.mSize)) //$NON-NLS-1$//$NON-NLS-2$
+                + "]"; //$NON-NLS-1$
+    }
+
+    /**
+     * Method that serializes the object (with the deferred attributes read).
+     *
+     * @param out The output stream
+     * @throws IOException If the object can't be serialized
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        resolveAttributes();
+        out.defaultWriteObject();
     }
 
 }
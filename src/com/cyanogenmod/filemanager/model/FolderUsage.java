@@ -92,6 +92,52 @@ public class FolderUsage implements Serializable, Cloneable {
         this.mStatistics.put(category.ordinal(), Long.valueOf(count));
     }
 
+    /**
+     * Method that adds a number of folders and files (with its size) to the totals.
+     *
+     * @param folders The number of folders
+     * @param files The number of files
+     * @param size The size of the files
+     */
+    public void addTotals(int folders, int files, long size) {
+        this.mNumberOfFolders += folders;
+        this.mNumberOfFiles += files;
+        this.mTotalSize += size;
+    }
+
+    /**
+     * Method that adds a number of files to the category
+     *
+     * @param category The category
+     * @param files The number of files
+     */
+    public void addFilesToCategory(MimeTypeCategory category, long files) {
+        long count = this.mStatistics.get(category.ordinal()).longValue();
+        this.mStatistics.put(category.ordinal(), Long.valueOf(count + files));
+    }
+
+    /**
+     * Method that adds the usage of other folder usage (xe: the usage computed by other
+     * thread) to this usage.
+     *
+     * @param usage The folder usage to add
+     */
+    public void addFolderUsage(FolderUsage usage) {
+        this.mNumberOfFolders += usage.mNumberOfFolders;
+        this.mNumberOfFiles += usage.mNumberOfFiles;
+        this.mTotalSize += usage.mTotalSize;
+        int cc = usage.mStatistics.size();
+        for (int i = 0; i < cc; i++) {
+            int key = usage.mStatistics.keyAt(i);
+            long count = usage.mStatistics.valueAt(i).longValue();
+            if (count != 0) {
+                Long current = this.mStatistics.get(key);
+                this.mStatistics.put(
+                        key, Long.valueOf((current == null ? 0 : current.longValue()) + count));
+            }
+        }
+    }
+
     /**
      * Method that returns the folder of which retrieve the usage.
      *
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A class that holds the largest files and folders of a folder, ranked by size (the
+ * biggest first).
+ */
+public class SizeRanking implements Serializable {
+
+    private static final long serialVersionUID = 2863170716504512498L;
+
+    /**
+     * A ranked file or folder.
+     */
+    public static class Entry implements Serializable {
+
+        private static final long serialVersionUID = -1306417623598218640L;
+
+        private final String mPath;
+        private final long mSize;
+
+        /**
+         * Constructor of <code>Entry</code>.
+         *
+         * @param path The absolute path of the file or folder
+         * @param size The size of the file, or the size of all the files of the folder
+         */
+        public Entry(String path, long size) {
+            super();
+            this.mPath = path;
+            this.mSize = size;
+        }
+
+        /**
+         * Method that returns the absolute path of the file or folder.
+         *
+         * @return String The absolute path
+         */
+        public String getPath() {
+            return this.mPath;
+        }
+
+        /**
+         * Method that returns the size of the file, or the size of all the files of the
+         * folder (its subfolders included).
+         *
+         * @return long The size in bytes
+         */
+        public long getSize() {
+            return this.mSize;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return "Entry [path=" + this.mPath + //$NON-NLS-1$
+                    ", size=" + this.mSize + "]"; //$NON-NLS-1$//$NON-NLS-2$
+        }
+    }
+
+    private final String mFolder;
+    private final List<Entry> mFiles;
+    private final List<Entry> mFolders;
+
+    /**
+     * Constructor of <code>SizeRanking</code>.
+     *
+     * @param folder The folder analyzed
+     * @param files The largest files, the biggest first
+     * @param folders The largest folders, the biggest first
+     */
+    public SizeRanking(String folder, List<Entry> files, List<Entry> folders) {
+        super();
+        this.mFolder = folder;
+        this.mFiles = files;
+        this.mFolders = folders;
+    }
+
+    /**
+     * Method that returns the folder analyzed.
+     *
+     * @return String The folder analyzed
+     */
+    public String getFolder() {
+        return this.mFolder;
+    }
+
+    /**
+     * Method that returns the largest files, the biggest first.
+     *
+     * @return List<Entry> The largest files
+     */
+    public List<Entry> getFiles() {
+        return this.mFiles;
+    }
+
+    /**
+     * Method that returns the largest folders (by the size of all its files), the
+     * biggest first.
+     *
+     * @return List<Entry> The largest folders
+     */
+    public List<Entry> getFolders() {
+        return this.mFolders;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "SizeRanking [folder=" + this.mFolder + //$NON-NLS-1$
+                ", files=" + this.mFiles + //$NON-NLS-1$
+                ", folders=" + this.mFolders + "]"; //$NON-NLS-1$//$NON-NLS-2$
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.model;
+
+import java.io.Serializable;
+
+/**
+ * A class that holds a snapshot of the progress of a copy, move or delete operation.
+ */
+public class TransferProgress implements Serializable {
+
+    private static final long serialVersionUID = 2618350148729335461L;
+
+    /**
+     * An unknown value (the total of the operation or the remaining time).
+     */
+    public static final long UNKNOWN = -1;
+
+    private final long mBytesDone;
+    private final long mBytesTotal;
+    private final int mFilesDone;
+    private final int mFilesTotal;
+    private final long mRate;
+    private final long mFilesRate;
+    private final long mEta;
+
+    /**
+     * Constructor of <code>TransferProgress</code>.
+     *
+     * @param bytesDone The number of bytes transferred
+     * @param bytesTotal The number of bytes to transfer, or {@link #UNKNOWN}
+     * @param filesDone The number of files transferred
+     * @param filesTotal The number of files to transfer, or {@link #UNKNOWN}
+     * @param rate The current transfer rate (bytes per second)
+     * @param filesRate The current rate of files processed (files per second)
+     * @param eta The estimated remaining time (in milliseconds), or {@link #UNKNOWN}
+     */
+    public TransferProgress(
+            long bytesDone, long bytesTotal, int filesDone, int filesTotal,
+            long rate, long filesRate, long eta) {
+        super();
+        this.mBytesDone = bytesDone;
+        this.mBytesTotal = bytesTotal;
+        this.mFilesDone = filesDone;
+        this.mFilesTotal = filesTotal;
+        this.mRate = rate;
+        this.mFilesRate = filesRate;
+        this.mEta = eta;
+    }
+
+    /**
+     * Method that returns the number of bytes transferred.
+     *
+     * @return long The number of bytes transferred
+     */
+    public long getBytesDone() {
+        return this.mBytesDone;
+    }
+
+    /**
+     * Method that returns the number of bytes to transfer.
+     *
+     * @return long The number of bytes to transfer, or {@link #UNKNOWN}
+     */
+    public long getBytesTotal() {
+        return this.mBytesTotal;
+    }
+
+    /**
+     * Method that returns the number of files transferred.
+     *
+     * @return int The number of files transferred
+     */
+    public int getFilesDone() {
+        return this.mFilesDone;
+    }
+
+    /**
+     * Method that returns the number of files to transfer.
+     *
+     * @return int The number of files to transfer, or {@link #UNKNOWN}
+     */
+    public int getFilesTotal() {
+        return this.mFilesTotal;
+    }
+
+    /**
+     * Method that returns the current transfer rate.
+     *
+     * @return long The transfer rate (bytes per second)
+     */
+    public long getRate() {
+        return this.mRate;
+    }
+
+    /**
+     * Method that returns the current rate of files processed.
+     *
+     * @return long The rate of files (files per second)
+     */
+    public long getFilesRate() {
+        return this.mFilesRate;
+    }
+
+    /**
+     * Method that returns the estimated remaining time.
+     *
+     * @return long The remaining time (in milliseconds), or {@link #UNKNOWN}
+     */
+    public long getEta() {
+        return this.mEta;
+    }
+
+    /**
+     * Method that returns the percentage of bytes transferred.
+     *
+     * @return int The percentage (0-100), or {@link #UNKNOWN}
+     */
+    public int getPercentage() {
+        if (this.mBytesTotal <= 0) {
+            return (int)UNKNOWN;
+        }
+        return (int)Math.min(100, this.mBytesDone * 100 / this.mBytesTotal);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "TransferProgress [bytesDone=" + this.mBytesDone + //$NON-NLS-1$
+                ", bytesTotal=" + this.mBytesTotal + //$NON-NLS-1$
+                ", filesDone=" + this.mFilesDone + //$NON-NLS-1$
+                ", filesTotal=" + this.mFilesTotal + //$NON-NLS-1$
+                ", rate=" + this.mRate + //$NON-NLS-1$
+                ", filesRate=" + this.mFilesRate + //$NON-NLS-1$
+                ", eta=" + this.mEta + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+}
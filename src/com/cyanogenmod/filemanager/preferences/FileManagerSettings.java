@@ -122,6 +122,18 @@ public enum FileManagerSettings {
      * @hide
      */
     SETTINGS_SAVE_SEARCH_TERMS("cm_filemanager_save_search_terms", Boolean.TRUE), //$NON-NLS-1$
+    /**
+     * The maximum number of results of a search (0 = no limit)
+     * @hide
+     */
+    SETTINGS_MAX_SEARCH_RESULTS(
+            "cm_filemanager_max_search_results", //$NON-NLS-1$
+            new String("0")), //$NON-NLS-1$
+    /**
+     * When to index the names of the files of the storage volumes for the searches
+     * @hide
+     */
+    SETTINGS_SEARCH_INDEX("cm_filemanager_search_index", Boolean.FALSE), //$NON-NLS-1$
 
     /**
      * When to show debug traces
@@ -129,6 +141,22 @@ public enum FileManagerSettings {
      */
     SETTINGS_SHOW_TRACES("cm_filemanager_show_debug_traces", Boolean.FALSE), //$NON-NLS-1$
 
+    /**
+     * When to compress the gzip files in parallel
+     * @hide
+     */
+    SETTINGS_PARALLEL_GZIP(
+            "cm_filemanager_parallel_gzip", //$NON-NLS-1$
+            Boolean.TRUE),
+
+    /**
+     * When to use the privileged helper process in the root access mode
+     * @hide
+     */
+    SETTINGS_USE_PRIVILEGED_HELPER(
+            "cm_filemanager_use_privileged_helper", //$NON-NLS-1$
+            Boolean.FALSE),
+
     /**
      * The current theme to use in the app
      * @hide
@@ -24,12 +24,18 @@ import android.util.Log;
 import android.widget.ImageView;
 import android.widget.ProgressBar;
 
+import com.cyanogenmod.filemanager.FileManagerApplication;
+import com.cyanogenmod.filemanager.console.Console;
+import com.cyanogenmod.filemanager.console.ConsoleFuture;
 import com.cyanogenmod.filemanager.model.DiskUsage;
 import com.cyanogenmod.filemanager.model.MountPoint;
 import com.cyanogenmod.filemanager.ui.ThemeManager;
 import com.cyanogenmod.filemanager.ui.ThemeManager.Theme;
+import com.cyanogenmod.filemanager.util.CommandHelper;
 import com.cyanogenmod.filemanager.util.MountPointHelper;
 
+import java.util.concurrent.Callable;
+
 /**
  * A class for recovery information about filesystem status (mount point, disk usage, ...).
  */
@@ -37,6 +43,9 @@ public class FilesystemAsyncTask extends AsyncTask<String, Integer, Boolean> {
 
     private static final String TAG = "FilesystemAsyncTask"; //$NON-NLS-1$
 
+    // The maximum time to wait for every lookup
+    private static final long LOOKUP_TIMEOUT = 15000L;
+
     /**
      * @hide
      */
@@ -54,6 +63,8 @@ public class FilesystemAsyncTask extends AsyncTask<String, Integer, Boolean> {
      */
     final int mFreeDiskSpaceWarningLevel;
     private boolean mRunning;
+    private volatile ConsoleFuture<MountPoint> mMountPointFuture;
+    private volatile ConsoleFuture<DiskUsage> mDiskUsageFuture;
 
     /**
      * @hide
@@ -97,15 +108,39 @@ public class FilesystemAsyncTask extends AsyncTask<String, Integer, Boolean> {
         this.mRunning = true;
 
         //Extract the directory from arguments
-        String dir = params[0];
+        final String dir = params[0];
 
-        //Extract filesystem mount point from directory
+        //Extract filesystem mount point and disk usage from directory. Both lookups are
+        //independent, so they are submitted at once if the background console can run
+        //them concurrently. Otherwise the disk usage is requested after the mount point
         if (isCancelled()) {
             return Boolean.TRUE;
         }
-        final MountPoint mp = MountPointHelper.getMountPointFromDirectory(dir);
+        final Console console = FileManagerApplication.getBackgroundConsole();
+        ConsoleFuture<MountPoint> mpFuture = console.submit(new Callable<MountPoint>() {
+            @Override
+            public MountPoint call() {
+                return MountPointHelper.getMountPointFromDirectory(console, dir);
+            }
+        });
+        this.mMountPointFuture = mpFuture;
+        ConsoleFuture<DiskUsage> duFuture = null;
+        if (console.isConcurrent()) {
+            duFuture = submitDiskUsage(console, dir);
+        }
+
+        MountPoint mountPoint = null;
+        try {
+            mountPoint = mpFuture.getResult(LOOKUP_TIMEOUT);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to retrieve mount point information", e); //$NON-NLS-1$
+        }
+        final MountPoint mp = mountPoint;
         if (mp == null) {
             //There is no information about
+            if (duFuture != null) {
+                duFuture.cancel(true);
+            }
             if (isCancelled()) {
                 return Boolean.TRUE;
             }
@@ -142,20 +177,30 @@ public class FilesystemAsyncTask extends AsyncTask<String, Integer, Boolean> {
             });
 
             //Load information about disk usage
+            if (duFuture == null && !isCancelled()) {
+                duFuture = submitDiskUsage(console, dir);
+            }
+            DiskUsage diskUsage = null;
+            if (duFuture != null) {
+                try {
+                    diskUsage = duFuture.getResult(LOOKUP_TIMEOUT);
+                    if (diskUsage != null) {
+                        //The disk usage is referred to the mount point, not the directory
+                        diskUsage = new DiskUsage(
+                                mp.getMountPoint(), diskUsage.getTotal(),
+                                diskUsage.getUsed(), diskUsage.getFree());
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, "Failed to retrieve disk usage information", e); //$NON-NLS-1$
+                }
+            }
             if (isCancelled()) {
                 return Boolean.TRUE;
             }
+            final DiskUsage du = diskUsage;
             this.mDiskUsageInfo.post(new Runnable() {
                 @Override
                 public void run() {
-                    DiskUsage du = null;
-                    try {
-                         du = MountPointHelper.getMountPointDiskUsage(mp);
-                    } catch (Exception e) {
-                        Log.e(TAG, "Failed to retrieve disk usage information", e); //$NON-NLS-1$
-                        du = new DiskUsage(
-                                mp.getMountPoint(), 0, 0, 0);
-                    }
                     int usage = 0;
                     if (du != null && du.getTotal() != 0) {
                         usage = (int)(du.getUsed() * 100 / du.getTotal());
@@ -200,6 +245,7 @@ public class FilesystemAsyncTask extends AsyncTask<String, Integer, Boolean> {
     @Override
     protected void onCancelled(Boolean result) {
         this.mRunning = false;
+        cancelLookups();
         super.onCancelled(result);
     }
 
@@ -209,7 +255,42 @@ public class FilesystemAsyncTask extends AsyncTask<String, Integer, Boolean> {
     @Override
     protected void onCancelled() {
         this.mRunning = false;
+        cancelLookups();
         super.onCancelled();
     }
 
+    /**
+     * Method that submits the lookup of the disk usage of a directory.
+     *
+     * @param console The console in which realize the lookup
+     * @param dir The directory
+     * @return ConsoleFuture<DiskUsage> The future of the disk usage, or null if the
+     * lookup can't be submitted
+     */
+    private ConsoleFuture<DiskUsage> submitDiskUsage(Console console, String dir) {
+        try {
+            ConsoleFuture<DiskUsage> future =
+                    CommandHelper.getDiskUsageAsync(this.mContext, dir, console);
+            this.mDiskUsageFuture = future;
+            return future;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to retrieve disk usage information", e); //$NON-NLS-1$
+        }
+        return null;
+    }
+
+    /**
+     * Method that cancels the pending lookups of the task.
+     */
+    private void cancelLookups() {
+        ConsoleFuture<?> future = this.mMountPointFuture;
+        if (future != null) {
+            future.cancel(true);
+        }
+        future = this.mDiskUsageFuture;
+        if (future != null) {
+            future.cancel(true);
+        }
+    }
+
 }
@@ -52,6 +52,8 @@ import com.cyanogenmod.filemanager.ui.policy.InfoActionPolicy;
 import com.cyanogenmod.filemanager.ui.policy.IntentsActionPolicy;
 import com.cyanogenmod.filemanager.ui.policy.NavigationActionPolicy;
 import com.cyanogenmod.filemanager.ui.policy.NewActionPolicy;
+import com.cyanogenmod.filemanager.util.ArchiveIndex;
+import com.cyanogenmod.filemanager.util.Archiver;
 import com.cyanogenmod.filemanager.util.DialogHelper;
 import com.cyanogenmod.filemanager.util.FileHelper;
 import com.cyanogenmod.filemanager.util.MimeTypeHelper;
@@ -69,6 +71,32 @@ import java.util.List;
  */
 public class ActionsDialog implements OnItemClickListener, OnItemLongClickListener {
 
+    // The actions that modify the files or need a real file (not allowed inside an archive)
+    private static final int[] ARCHIVE_WRITE_ACTIONS = {
+        R.id.mnu_actions_new_directory,
+        R.id.mnu_actions_new_file,
+        R.id.mnu_actions_rename,
+        R.id.mnu_actions_create_copy,
+        R.id.mnu_actions_create_link,
+        R.id.mnu_actions_create_link_global,
+        R.id.mnu_actions_delete,
+        R.id.mnu_actions_delete_selection,
+        R.id.mnu_actions_paste_selection,
+        R.id.mnu_actions_move_selection,
+        R.id.mnu_actions_compress,
+        R.id.mnu_actions_compress_selection,
+        R.id.mnu_actions_extract,
+        R.id.mnu_actions_execute,
+        R.id.mnu_actions_send,
+        R.id.mnu_actions_properties,
+        R.id.mnu_actions_properties_current_folder,
+        R.id.mnu_actions_find_duplicates_current_folder,
+        R.id.mnu_actions_add_to_bookmarks,
+        R.id.mnu_actions_add_to_bookmarks_current_folder,
+        R.id.mnu_actions_add_shortcut,
+        R.id.mnu_actions_add_shortcut_current_folder,
+    };
+
     /**
      * @hide
      */
@@ -389,6 +417,11 @@ public class ActionsDialog implements OnItemClickListener, OnItemLongClickListen
                         this.mContext, this.mFso, this.mOnRequestRefreshListener);
                 break;
 
+            //- Find duplicates
+            case R.id.mnu_actions_find_duplicates_current_folder:
+                InfoActionPolicy.findDuplicates(this.mContext, this.mFso);
+                break;
+
             //- Navigate to parent
             case R.id.mnu_actions_open_parent_folder:
                 NavigationActionPolicy.openParentFolder(
@@ -610,6 +643,11 @@ public class ActionsDialog implements OnItemClickListener, OnItemLongClickListen
             menu.removeItem(R.id.mnu_actions_add_to_bookmarks_current_folder);
         }
 
+        //- Find duplicates -> Only directories
+        if (this.mFso == null || !FileHelper.isDirectory(this.mFso)) {
+            menu.removeItem(R.id.mnu_actions_find_duplicates_current_folder);
+        }
+
         //- Paste/Move only when have a selection
         if (this.mGlobal) {
             if (selection == null || selection.size() == 0 ||
@@ -668,6 +706,23 @@ public class ActionsDialog implements OnItemClickListener, OnItemLongClickListen
             menu.removeItem(R.id.mnu_actions_open_parent_folder);
         }
 
+        // The archives are browsed read-only (the entries can only be opened or copied out
+        // of the archive)
+        if (this.mFso != null && (this.mGlobal ?
+                ArchiveIndex.isArchivePath(this.mFso.getFullPath()) :
+                ArchiveIndex.isInsideArchive(this.mFso.getFullPath()))) {
+            for (int i = 0; i < ARCHIVE_WRITE_ACTIONS.length; i++) {
+                menu.removeItem(ARCHIVE_WRITE_ACTIONS[i]);
+            }
+        }
+        if (this.mGlobal && hasArchiveEntries(selection)) {
+            // The selection can be pasted out of the archive, but nothing more
+            menu.removeItem(R.id.mnu_actions_move_selection);
+            menu.removeItem(R.id.mnu_actions_delete_selection);
+            menu.removeItem(R.id.mnu_actions_compress_selection);
+            menu.removeItem(R.id.mnu_actions_create_link_global);
+        }
+
         // Remove not-ChRooted actions (actions that can't be present when running in
         // unprivileged mode)
         if (this.mChRooted) {
@@ -675,15 +730,31 @@ public class ActionsDialog implements OnItemClickListener, OnItemLongClickListen
             menu.removeItem(R.id.mnu_actions_create_link_global);
             menu.removeItem(R.id.mnu_actions_execute);
 
-            // NOTE: This actions are not implemented in chrooted environments. The reason is
-            // that the main target of this application is CyanogenMod (a rooted environment).
-            // Adding this actions requires the use of commons-compress, an external Apache
-            // library that will add more size to the ending apk.
-            // For now, will maintain without implementation. Maybe, in the future.
-            menu.removeItem(R.id.mnu_actions_compress);
-            menu.removeItem(R.id.mnu_actions_compress_selection);
-            menu.removeItem(R.id.mnu_actions_extract);
+            // NOTE: The compression is done in-process in chrooted environments, but not all
+            // the formats that the shell programs support can be extracted
+            if (!this.mGlobal && this.mFso != null &&
+                !Archiver.isSupported(Archiver.getUncompressionMode(this.mFso.getName()))) {
+                menu.removeItem(R.id.mnu_actions_extract);
+            }
+        }
+    }
+
+    /**
+     * Method that returns if a selection has entries of an archive.
+     *
+     * @param selection The selection
+     * @return boolean If the selection has entries of an archive
+     */
+    private static boolean hasArchiveEntries(List<FileSystemObject> selection) {
+        if (selection != null) {
+            int cc = selection.size();
+            for (int i = 0; i < cc; i++) {
+                if (ArchiveIndex.isInsideArchive(selection.get(i).getFullPath())) {
+                    return true;
+                }
+            }
         }
+        return false;
     }
 
     /**
@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.ui.dialogs;
+
+import android.app.AlertDialog;
+import android.content.Context;
+import android.content.DialogInterface;
+import android.text.TextUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.TextView;
+
+import com.cyanogenmod.filemanager.R;
+import com.cyanogenmod.filemanager.commands.FindDuplicatesExecutable;
+import com.cyanogenmod.filemanager.model.DuplicateGroup;
+import com.cyanogenmod.filemanager.model.FileSystemObject;
+import com.cyanogenmod.filemanager.ui.ThemeManager;
+import com.cyanogenmod.filemanager.ui.ThemeManager.Theme;
+import com.cyanogenmod.filemanager.util.DialogHelper;
+import com.cyanogenmod.filemanager.util.FileHelper;
+
+import java.util.List;
+
+/**
+ * A class that wraps a dialog for display the groups of duplicate files found by a
+ * {@link FindDuplicatesExecutable}, as they are confirmed.
+ */
+public class DuplicatesDialog implements DialogInterface.OnClickListener {
+
+    // The maximum number of groups displayed (the rest are only counted)
+    private static final int MAX_DISPLAYED_GROUPS = 500;
+
+    /**
+     * @hide
+     */
+    final Context mContext;
+    /**
+     * @hide
+     */
+    final AlertDialog mDialog;
+    /**
+     * @hide
+     */
+    final TextView mTvStatus;
+    /**
+     * @hide
+     */
+    final TextView mTvOutput;
+
+    /**
+     * @hide
+     */
+    volatile FindDuplicatesExecutable mCmd;
+    /**
+     * @hide
+     */
+    volatile boolean mFinished;
+    /**
+     * @hide
+     */
+    volatile boolean mCancelled;
+    /**
+     * @hide
+     */
+    volatile boolean mCancelRequested;
+    /**
+     * @hide
+     */
+    int mGroups;
+    /**
+     * @hide
+     */
+    boolean mResultShown;
+
+    // Shows the result when the search ended and the command is known
+    private final Runnable mShowResult = new Runnable() {
+        @Override
+        public void run() {
+            showResult();
+        }
+    };
+
+    /**
+     * Constructor of <code>DuplicatesDialog</code>.
+     *
+     * @param context The current context
+     * @param directories The folders where the duplicates are searched
+     */
+    public DuplicatesDialog(final Context context, final String[] directories) {
+        super();
+
+        //Save the context
+        this.mContext = context;
+        this.mFinished = false;
+        this.mCancelled = false;
+        this.mCancelRequested = false;
+        this.mGroups = 0;
+        this.mResultShown = false;
+
+        //Create the layout
+        LayoutInflater li =
+                (LayoutInflater)context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+        ViewGroup layout = (ViewGroup)li.inflate(R.layout.duplicates_dialog, null);
+        View tvFolderLabel = layout.findViewById(R.id.duplicates_folder_label);
+        TextView tvFolder = (TextView)layout.findViewById(R.id.duplicates_folder);
+        tvFolder.setText(TextUtils.join(", ", directories)); //$NON-NLS-1$
+        View tvStatusLabel = layout.findViewById(R.id.duplicates_status_label);
+        this.mTvStatus = (TextView)layout.findViewById(R.id.duplicates_status);
+        this.mTvStatus.setText(R.string.duplicates_dialog_searching);
+        this.mTvOutput = (TextView)layout.findViewById(R.id.duplicates_output);
+
+        // Apply the current theme
+        Theme theme = ThemeManager.getCurrentTheme(context);
+        theme.setBackgroundDrawable(context, layout, "background_drawable"); //$NON-NLS-1$
+        theme.setTextColor(context, (TextView)tvFolderLabel, "text_color"); //$NON-NLS-1$
+        theme.setTextColor(context, tvFolder, "text_color"); //$NON-NLS-1$
+        theme.setTextColor(context, (TextView)tvStatusLabel, "text_color"); //$NON-NLS-1$
+        theme.setTextColor(context, this.mTvStatus, "text_color"); //$NON-NLS-1$
+        theme.setBackgroundColor(context, this.mTvOutput, "console_bg_color"); //$NON-NLS-1$
+        theme.setTextColor(context, this.mTvOutput, "console_fg_color"); //$NON-NLS-1$
+
+        //Create the dialog
+        String title = context.getString(R.string.duplicates_dialog_title);
+        this.mDialog = DialogHelper.createDialog(
+                                        context,
+                                        0,
+                                        title,
+                                        layout);
+        this.mDialog.setButton(
+                DialogInterface.BUTTON_NEUTRAL, context.getString(android.R.string.cancel), this);
+        this.mDialog.setCancelable(false);
+    }
+
+    /**
+     * Method that sets the command that searches the duplicates
+     *
+     * @param cmd The command
+     */
+    public void setCmd(FindDuplicatesExecutable cmd) {
+        this.mCmd = cmd;
+        if (this.mCancelRequested) {
+            // The user cancelled the search before the command was returned
+            cancelCmd();
+        }
+        if (this.mFinished) {
+            // The search ended before the command was returned
+            this.mTvOutput.post(this.mShowResult);
+        }
+    }
+
+    /**
+     * Method that shows the dialog.
+     */
+    public void show() {
+        DialogHelper.delegateDialogShow(this.mContext, this.mDialog);
+    }
+
+    /**
+     * Method invoked when a group of duplicates is confirmed (from any thread)
+     *
+     * @param group The group of duplicate files
+     */
+    public void onDuplicates(final DuplicateGroup group) {
+        this.mTvOutput.post(new Runnable() {
+            @Override
+            public void run() {
+                DuplicatesDialog.this.mGroups++;
+                if (DuplicatesDialog.this.mGroups > MAX_DISPLAYED_GROUPS) {
+                    return;
+                }
+                StringBuilder sb = new StringBuilder();
+                if (DuplicatesDialog.this.mGroups > 1) {
+                    sb.append("\n"); //$NON-NLS-1$
+                }
+                List<FileSystemObject> files = group.getFiles();
+                sb.append(DuplicatesDialog.this.mContext.getString(
+                        R.string.duplicates_dialog_group,
+                        Integer.valueOf(files.size()),
+                        FileHelper.getHumanReadableSize(group.getSize())));
+                int cc = files.size();
+                for (int i = 0; i < cc; i++) {
+                    sb.append("\n  "); //$NON-NLS-1$
+                    sb.append(files.get(i).getFullPath());
+                }
+                DuplicatesDialog.this.mTvOutput.append(sb);
+            }
+        });
+    }
+
+    /**
+     * Method invoked when an exception is raised by the search (from any thread)
+     *
+     * @param msg The message of the exception
+     */
+    public void onException(final String msg) {
+        this.mTvOutput.post(new Runnable() {
+            @Override
+            public void run() {
+                DuplicatesDialog.this.mTvOutput.append(msg);
+                DuplicatesDialog.this.mTvOutput.append("\n"); //$NON-NLS-1$
+            }
+        });
+    }
+
+    /**
+     * Method invoked when the search ends (from any thread)
+     *
+     * @param cancelled If the search was cancelled (or couldn't be started)
+     */
+    public void onEnd(boolean cancelled) {
+        this.mCancelled = cancelled;
+        this.mFinished = true;
+        this.mTvOutput.post(this.mShowResult);
+    }
+
+    /**
+     * Method that shows the result and the time of every stage of the search, and
+     * enables the Ok button.
+     *
+     * @hide
+     */
+    void showResult() {
+        FindDuplicatesExecutable cmd = this.mCmd;
+        if (this.mResultShown || !this.mFinished || (cmd == null && !this.mCancelled)) {
+            return;
+        }
+        this.mResultShown = true;
+
+        int groups = this.mGroups;
+        if (groups > MAX_DISPLAYED_GROUPS) {
+            this.mTvOutput.append("\n"); //$NON-NLS-1$
+            this.mTvOutput.append(this.mContext.getString(
+                    R.string.duplicates_dialog_more,
+                    Integer.valueOf(groups - MAX_DISPLAYED_GROUPS)));
+        }
+        if (this.mCancelled) {
+            this.mTvStatus.setText(R.string.duplicates_dialog_cancelled);
+        } else {
+            String result = this.mContext.getResources().getQuantityString(
+                    R.plurals.duplicates_dialog_result, groups,
+                    Integer.valueOf(groups),
+                    FileHelper.getHumanReadableSize(cmd.getWastedSize()));
+            String stages = this.mContext.getString(
+                    R.string.duplicates_dialog_stages,
+                    Long.valueOf(cmd.getStageTime(FindDuplicatesExecutable.STAGE_SIZE)),
+                    Integer.valueOf(cmd.getStageFiles(FindDuplicatesExecutable.STAGE_SIZE)),
+                    Long.valueOf(cmd.getStageTime(FindDuplicatesExecutable.STAGE_PARTIAL_HASH)),
+                    Integer.valueOf(cmd.getStageFiles(FindDuplicatesExecutable.STAGE_PARTIAL_HASH)),
+                    Long.valueOf(cmd.getStageTime(FindDuplicatesExecutable.STAGE_FULL_HASH)),
+                    Integer.valueOf(cmd.getStageFiles(FindDuplicatesExecutable.STAGE_FULL_HASH)));
+            this.mTvStatus.setText(result + "\n" + stages); //$NON-NLS-1$
+        }
+
+        // Enable the Ok button
+        this.mDialog.setCancelable(true);
+        Button button = this.mDialog.getButton(DialogInterface.BUTTON_NEUTRAL);
+        if (button != null) {
+            button.setText(R.string.ok);
+        }
+    }
+
+    /**
+     * Method that cancels the search command, if it's known and still running
+     *
+     * @hide
+     */
+    synchronized void cancelCmd() {
+        try {
+            FindDuplicatesExecutable cmd = this.mCmd;
+            if (cmd != null && !this.mFinished) {
+                if (cmd.isCancellable() && !cmd.isCancelled()) {
+                    cmd.cancel();
+                }
+            }
+        } catch (Exception e) {/**NON BLOCK**/}
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onClick(DialogInterface dialog, int which) {
+        switch (which) {
+            case DialogInterface.BUTTON_NEUTRAL:
+                // Cancel the search. If the command wasn't returned yet, it will be
+                // cancelled when it's set
+                this.mCancelRequested = true;
+                cancelCmd();
+                this.mDialog.dismiss();
+                break;
+
+            default:
+                break;
+        }
+    }
+
+}
@@ -30,9 +30,14 @@ import android.widget.TextView;
 
 import com.cyanogenmod.filemanager.FileManagerApplication;
 import com.cyanogenmod.filemanager.R;
+import com.cyanogenmod.filemanager.commands.AsyncResultListener;
+import com.cyanogenmod.filemanager.commands.LargestFilesExecutable;
+import com.cyanogenmod.filemanager.console.Console;
 import com.cyanogenmod.filemanager.console.ConsoleBuilder;
+import com.cyanogenmod.filemanager.console.java.JavaConsole;
 import com.cyanogenmod.filemanager.model.DiskUsage;
 import com.cyanogenmod.filemanager.model.MountPoint;
+import com.cyanogenmod.filemanager.model.SizeRanking;
 import com.cyanogenmod.filemanager.preferences.AccessMode;
 import com.cyanogenmod.filemanager.preferences.FileManagerSettings;
 import com.cyanogenmod.filemanager.preferences.Preferences;
@@ -42,8 +47,11 @@ import com.cyanogenmod.filemanager.ui.widgets.DiskUsageGraph;
 import com.cyanogenmod.filemanager.util.CommandHelper;
 import com.cyanogenmod.filemanager.util.DialogHelper;
 import com.cyanogenmod.filemanager.util.FileHelper;
+import com.cyanogenmod.filemanager.util.LargestFilesAnalyzer;
 import com.cyanogenmod.filemanager.util.MountPointHelper;
 
+import java.util.List;
+
 /**
  * A class that wraps a dialog for showing information about a mount point.<br />
  * This class display information like mount point name, device name, size, type, ...
@@ -63,7 +71,68 @@ public class FilesystemInfoDialog implements OnClickListener, OnCheckedChangeLis
         void onRemount(MountPoint mountPoint);
     }
 
+    /**
+     * A listener of the analysis of the largest files and folders of the mount point.
+     */
+    private class LargestFilesListener implements AsyncResultListener {
+
+        /**
+         * @hide
+         */
+        Console mConsole;
 
+        /**
+         * Constructor of <code>LargestFilesListener</code>
+         */
+        public LargestFilesListener() {
+            super();
+        }
+
+        @Override
+        public void onPartialResult(final Object result) {
+            FilesystemInfoDialog.this.mLargestView.post(new Runnable() {
+                @Override
+                public void run() {
+                    showRanking((SizeRanking)result);
+                }
+            });
+        }
+
+        @Override
+        public void onException(final Exception cause) {
+            FilesystemInfoDialog.this.mLargestView.post(new Runnable() {
+                @Override
+                public void run() {
+                    FilesystemInfoDialog.this.mTvLargestStatus.setText(
+                            String.valueOf(cause.getMessage()));
+                }
+            });
+        }
+
+        @Override
+        public void onAsyncStart() {/**NON BLOCK**/}
+
+        @Override
+        public void onAsyncEnd(final boolean cancelled) {
+            FilesystemInfoDialog.this.mLargestView.post(new Runnable() {
+                @Override
+                public void run() {
+                    FilesystemInfoDialog.this.mTvLargestStatus.setText(
+                            cancelled ?
+                                R.string.filesystem_info_dialog_largest_cancelled :
+                                R.string.filesystem_info_dialog_largest_analyzed);
+                }
+            });
+        }
+
+        @Override
+        public void onAsyncExitCode(int exitCode) {
+            // The console used for the analysis is not needed anymore
+            if (this.mConsole != null) {
+                this.mConsole.dealloc();
+            }
+        }
+    }
 
     private static final String TAG = "FilesystemInfoDialog"; //$NON-NLS-1$
 
@@ -78,8 +147,19 @@ public class FilesystemInfoDialog implements OnClickListener, OnCheckedChangeLis
     private final View mContentView;
     private View mInfoViewTab;
     private View mDiskUsageViewTab;
+    private View mLargestViewTab;
     private View mInfoView;
     private View mDiskUsageView;
+    /**
+     * @hide
+     */
+    View mLargestView;
+    /**
+     * @hide
+     */
+    TextView mTvLargestStatus;
+    private TextView mTvLargestFiles;
+    private TextView mTvLargestFolders;
     private Switch mSwStatus;
     /**
      * @hide
@@ -92,6 +172,11 @@ public class FilesystemInfoDialog implements OnClickListener, OnCheckedChangeLis
     private boolean mIsMountAllowed;
     private final boolean mIsAdvancedMode;
 
+    private boolean mLargestStarted;
+    private LargestFilesExecutable mLargestCmd;
+    private boolean mDismissed;
+    private final Object mLargestSync = new Object();
+
     /**
      * Constructor of <code>FilesystemInfoDialog</code>.
      *
@@ -130,6 +215,12 @@ public class FilesystemInfoDialog implements OnClickListener, OnCheckedChangeLis
                 DialogInterface.BUTTON_NEGATIVE,
                 this.mContext.getString(android.R.string.cancel),
                 (DialogInterface.OnClickListener)null);
+        this.mDialog.setOnDismissListener(new DialogInterface.OnDismissListener() {
+            @Override
+            public void onDismiss(DialogInterface dialog) {
+                cancelLargestFiles();
+            }
+        });
 
         //Fill the dialog
         fillData(this.mContentView);
@@ -164,6 +255,14 @@ public class FilesystemInfoDialog implements OnClickListener, OnCheckedChangeLis
                 contentView.findViewById(R.id.filesystem_info_dialog_tab_disk_usage);
         this.mInfoView = contentView.findViewById(R.id.filesystem_tab_info);
         this.mDiskUsageView = contentView.findViewById(R.id.filesystem_tab_diskusage);
+        this.mLargestViewTab = contentView.findViewById(R.id.filesystem_info_dialog_tab_largest);
+        this.mLargestView = contentView.findViewById(R.id.filesystem_tab_largest);
+        this.mTvLargestStatus =
+                (TextView)contentView.findViewById(R.id.filesystem_info_largest_status);
+        this.mTvLargestFiles =
+                (TextView)contentView.findViewById(R.id.filesystem_info_largest_files);
+        this.mTvLargestFolders =
+                (TextView)contentView.findViewById(R.id.filesystem_info_largest_folders);
         this.mDiskUsageGraph =
                 (DiskUsageGraph)contentView.findViewById(R.id.filesystem_disk_usage_graph);
 
@@ -177,6 +276,7 @@ public class FilesystemInfoDialog implements OnClickListener, OnCheckedChangeLis
         //Register the listeners
         this.mInfoViewTab.setOnClickListener(this);
         this.mDiskUsageViewTab.setOnClickListener(this);
+        this.mLargestViewTab.setOnClickListener(this);
 
         //Gets text views
         this.mSwStatus = (Switch)contentView.findViewById(R.id.filesystem_info_status);
@@ -252,17 +352,7 @@ public class FilesystemInfoDialog implements OnClickListener, OnCheckedChangeLis
         switch (v.getId()) {
             case R.id.filesystem_info_dialog_tab_info:
                 if (!this.mInfoViewTab.isSelected()) {
-                    this.mInfoViewTab.setSelected(true);
-                    ((TextView)this.mInfoViewTab).setTextAppearance(
-                            this.mContext, R.style.primary_text_appearance);
-                    this.mDiskUsageViewTab.setSelected(false);
-                    ((TextView)this.mDiskUsageViewTab).setTextAppearance(
-                            this.mContext, R.style.secondary_text_appearance);
-                    this.mInfoView.setVisibility(View.VISIBLE);
-                    this.mDiskUsageView.setVisibility(View.GONE);
-
-                    // Apply theme
-                    applyTabTheme();
+                    selectTab(this.mInfoViewTab, this.mInfoView);
                 }
                 this.mInfoMsgView.setVisibility(
                         this.mIsMountAllowed || !this.mIsAdvancedMode ? View.GONE : View.VISIBLE);
@@ -270,17 +360,7 @@ public class FilesystemInfoDialog implements OnClickListener, OnCheckedChangeLis
 
             case R.id.filesystem_info_dialog_tab_disk_usage:
                 if (!this.mDiskUsageViewTab.isSelected()) {
-                    this.mInfoViewTab.setSelected(false);
-                    ((TextView)this.mInfoViewTab).setTextAppearance(
-                            this.mContext, R.style.secondary_text_appearance);
-                    this.mDiskUsageViewTab.setSelected(true);
-                    ((TextView)this.mDiskUsageViewTab).setTextAppearance(
-                            this.mContext, R.style.primary_text_appearance);
-                    this.mInfoView.setVisibility(View.GONE);
-                    this.mDiskUsageView.setVisibility(View.VISIBLE);
-
-                    // Apply theme
-                    applyTabTheme();
+                    selectTab(this.mDiskUsageViewTab, this.mDiskUsageView);
                 }
                 this.mDiskUsageGraph.post(new Runnable() {
                     @Override
@@ -292,6 +372,17 @@ public class FilesystemInfoDialog implements OnClickListener, OnCheckedChangeLis
                 });
                 break;
 
+            case R.id.filesystem_info_dialog_tab_largest:
+                if (!this.mLargestViewTab.isSelected()) {
+                    selectTab(this.mLargestViewTab, this.mLargestView);
+                }
+                // The volume is only analyzed if the user requests it
+                if (!this.mLargestStarted) {
+                    this.mLargestStarted = true;
+                    startLargestFiles();
+                }
+                break;
+
             case R.id.filesystem_info_msg:
                 //Change the console
                 boolean superuser = ConsoleBuilder.changeToPrivilegedConsole(this.mContext);
@@ -322,6 +413,128 @@ public class FilesystemInfoDialog implements OnClickListener, OnCheckedChangeLis
         }
     }
 
+    /**
+     * Method that selects a tab and shows its view.
+     *
+     * @param tab The tab to select
+     * @param view The view of the tab
+     */
+    private void selectTab(View tab, View view) {
+        View[] tabs = {this.mInfoViewTab, this.mDiskUsageViewTab, this.mLargestViewTab};
+        View[] views = {this.mInfoView, this.mDiskUsageView, this.mLargestView};
+        for (int i = 0; i < tabs.length; i++) {
+            boolean selected = tabs[i] == tab;
+            tabs[i].setSelected(selected);
+            ((TextView)tabs[i]).setTextAppearance(
+                    this.mContext,
+                    selected ? R.style.primary_text_appearance : R.style.secondary_text_appearance);
+            views[i].setVisibility(views[i] == view ? View.VISIBLE : View.GONE);
+        }
+
+        // Apply theme
+        applyTabTheme();
+    }
+
+    /**
+     * Method that starts the analysis of the largest files and folders of the mount point.
+     */
+    private void startLargestFiles() {
+        final String directory = this.mMountPoint.getMountPoint();
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                final LargestFilesListener listener = new LargestFilesListener();
+                try {
+                    // The analysis is only implemented by the java console
+                    if (!(ConsoleBuilder.getConsole(
+                            FilesystemInfoDialog.this.mContext) instanceof JavaConsole)) {
+                        listener.mConsole = ConsoleBuilder.createJavaConsole(
+                                FilesystemInfoDialog.this.mContext, directory);
+                    }
+                    LargestFilesExecutable cmd =
+                            CommandHelper.getLargestFiles(
+                                    FilesystemInfoDialog.this.mContext, directory,
+                                    LargestFilesAnalyzer.DEFAULT_COUNT,
+                                    listener, listener.mConsole);
+                    setLargestCmd(cmd);
+                } catch (Exception e) {
+                    Log.e(TAG, String.format(
+                            "Fail to analyze %s", directory), e); //$NON-NLS-1$
+                    listener.onException(e);
+                    listener.onAsyncExitCode(-1);
+                }
+            }
+        };
+        t.start();
+    }
+
+    /**
+     * Method that sets the running analysis (cancelled if the dialog was dismissed).
+     *
+     * @param cmd The command of the analysis
+     */
+    void setLargestCmd(LargestFilesExecutable cmd) {
+        boolean dismissed;
+        synchronized (this.mLargestSync) {
+            this.mLargestCmd = cmd;
+            dismissed = this.mDismissed;
+        }
+        if (dismissed) {
+            cmd.cancel();
+        }
+    }
+
+    /**
+     * Method that cancels the analysis of the largest files and folders.
+     */
+    void cancelLargestFiles() {
+        LargestFilesExecutable cmd;
+        synchronized (this.mLargestSync) {
+            this.mDismissed = true;
+            cmd = this.mLargestCmd;
+        }
+        if (cmd != null && !cmd.isCancelled()) {
+            try {
+                cmd.cancel();
+            } catch (Throwable ex) {/**NON BLOCK**/}
+        }
+    }
+
+    /**
+     * Method that shows the ranking of the largest files and folders.
+     *
+     * @param ranking The ranking
+     */
+    void showRanking(SizeRanking ranking) {
+        this.mTvLargestFiles.setText(toRankingText(ranking.getFiles()));
+        this.mTvLargestFolders.setText(toRankingText(ranking.getFolders()));
+    }
+
+    /**
+     * Method that returns the text of the entries of a ranking.
+     *
+     * @param entries The entries of the ranking
+     * @return String The text of the entries
+     */
+    private String toRankingText(List<SizeRanking.Entry> entries) {
+        if (entries.isEmpty()) {
+            return "-"; //$NON-NLS-1$
+        }
+        StringBuilder sb = new StringBuilder();
+        int cc = entries.size();
+        for (int i = 0; i < cc; i++) {
+            SizeRanking.Entry entry = entries.get(i);
+            if (i > 0) {
+                sb.append(FileHelper.NEWLINE);
+            }
+            sb.append(this.mContext.getString(
+                    R.string.filesystem_info_dialog_largest_entry,
+                    FileHelper.getHumanReadableSize(entry.getSize()),
+                    entry.getPath()));
+        }
+        return sb.toString();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -374,6 +587,8 @@ public class FilesystemInfoDialog implements OnClickListener, OnCheckedChangeLis
         theme.setBackgroundColor(this.mContext, v, "horizontal_divider_color"); //$NON-NLS-1$
         v = this.mContentView.findViewById(R.id.filesystem_info_dialog_tab_divider2);
         theme.setBackgroundColor(this.mContext, v, "vertical_divider_color"); //$NON-NLS-1$
+        v = this.mContentView.findViewById(R.id.filesystem_info_dialog_tab_divider3);
+        theme.setBackgroundColor(this.mContext, v, "horizontal_divider_color"); //$NON-NLS-1$
 
         v = this.mContentView.findViewById(R.id.filesystem_info_status_label);
         theme.setTextColor(this.mContext, (TextView)v, "text_color"); //$NON-NLS-1$
@@ -417,6 +632,17 @@ public class FilesystemInfoDialog implements OnClickListener, OnCheckedChangeLis
         theme.setTextColor(this.mContext, (TextView)v, "text_color"); //$NON-NLS-1$
         v = this.mContentView.findViewById(R.id.filesystem_info_free_disk_usage);
         theme.setTextColor(this.mContext, (TextView)v, "text_color"); //$NON-NLS-1$
+
+        v = this.mContentView.findViewById(R.id.filesystem_info_largest_status);
+        theme.setTextColor(this.mContext, (TextView)v, "text_color"); //$NON-NLS-1$
+        v = this.mContentView.findViewById(R.id.filesystem_info_largest_files_label);
+        theme.setTextColor(this.mContext, (TextView)v, "text_color"); //$NON-NLS-1$
+        v = this.mContentView.findViewById(R.id.filesystem_info_largest_files);
+        theme.setTextColor(this.mContext, (TextView)v, "text_color"); //$NON-NLS-1$
+        v = this.mContentView.findViewById(R.id.filesystem_info_largest_folders_label);
+        theme.setTextColor(this.mContext, (TextView)v, "text_color"); //$NON-NLS-1$
+        v = this.mContentView.findViewById(R.id.filesystem_info_largest_folders);
+        theme.setTextColor(this.mContext, (TextView)v, "text_color"); //$NON-NLS-1$
     }
 
     /**
@@ -429,6 +655,8 @@ public class FilesystemInfoDialog implements OnClickListener, OnCheckedChangeLis
         theme.setTextColor(this.mContext, (TextView)v, "text_color"); //$NON-NLS-1$
         v = this.mContentView.findViewById(R.id.filesystem_info_dialog_tab_disk_usage);
         theme.setTextColor(this.mContext, (TextView)v, "text_color"); //$NON-NLS-1$
+        v = this.mContentView.findViewById(R.id.filesystem_info_dialog_tab_largest);
+        theme.setTextColor(this.mContext, (TextView)v, "text_color"); //$NON-NLS-1$
     }
 
 }
@@ -62,11 +62,14 @@ import com.cyanogenmod.filemanager.util.CommandHelper;
 import com.cyanogenmod.filemanager.util.DialogHelper;
 import com.cyanogenmod.filemanager.util.ExceptionUtil;
 import com.cyanogenmod.filemanager.util.FileHelper;
+import com.cyanogenmod.filemanager.util.FolderUsageIndex;
+import com.cyanogenmod.filemanager.util.FolderUsageIndex.IndexedFolderUsage;
 import com.cyanogenmod.filemanager.util.MimeTypeHelper;
 import com.cyanogenmod.filemanager.util.MimeTypeHelper.MimeTypeCategory;
 import com.cyanogenmod.filemanager.util.ResourcesHelper;
 
 import java.text.DateFormat;
+import java.util.Date;
 
 /**
  * A class that wraps a dialog for showing information about a {@link FileSystemObject}
@@ -401,15 +404,21 @@ public class FsoPropertiesDialog
      */
     private void computeFolderUsage() {
         try {
+            String path = this.mFso.getFullPath();
             if (this.mFso instanceof Symlink && ((Symlink) this.mFso).getLinkRef() != null) {
-                this.mFolderUsageExecutable =
-                    CommandHelper.getFolderUsage(
-                            this.mContext,
-                            ((Symlink) this.mFso).getLinkRef().getFullPath(), this, null);
+                path = ((Symlink) this.mFso).getLinkRef().getFullPath();
+            }
+
+            // The folders of the storage volumes are computed through the folder usage
+            // index (instant if the folder was computed before)
+            FolderUsageIndex index = FolderUsageIndex.getIndex(this.mContext, path);
+            if (index != null) {
+                IndexedFolderUsage usage = index.newFolderUsage(path, this);
+                this.mFolderUsageExecutable = usage;
+                usage.start();
             } else {
                 this.mFolderUsageExecutable =
-                    CommandHelper.getFolderUsage(
-                        this.mContext, this.mFso.getFullPath(), this, null);
+                    CommandHelper.getFolderUsage(this.mContext, path, this, null);
             }
         } catch (Exception cause) {
             //Capture the exception
@@ -1043,7 +1052,19 @@ public class FsoPropertiesDialog
             this.mDrawingFolderUsage = false;
         } else {
             // Calculate size prior to use ui thread
-            final String size = FileHelper.getHumanReadableSize(this.mFolderUsage.getTotalSize());
+            String humanSize = FileHelper.getHumanReadableSize(this.mFolderUsage.getTotalSize());
+
+            // The usage of the last scan of the folder usage index, while is updated
+            long staleSince = 0;
+            if (this.mFolderUsageExecutable instanceof IndexedFolderUsage) {
+                staleSince = ((IndexedFolderUsage)this.mFolderUsageExecutable).getStaleSince();
+            }
+            if (computing && staleSince > 0) {
+                DateFormat df = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT);
+                humanSize = res.getString(R.string.fso_properties_dialog_stale_since,
+                        humanSize, df.format(new Date(staleSince)));
+            }
+            final String size = humanSize;
 
             // Compute folders and files string
             String folders = res.getQuantityString(
@@ -21,26 +21,33 @@ import android.content.Context;
 import android.content.DialogInterface;
 import android.text.Html;
 import android.text.Spanned;
+import android.util.Log;
 import android.widget.Toast;
 
 import com.cyanogenmod.filemanager.FileManagerApplication;
 import com.cyanogenmod.filemanager.R;
 import com.cyanogenmod.filemanager.commands.AsyncResultListener;
 import com.cyanogenmod.filemanager.commands.CompressExecutable;
+import com.cyanogenmod.filemanager.commands.TransferProgressListener;
 import com.cyanogenmod.filemanager.commands.UncompressExecutable;
+import com.cyanogenmod.filemanager.console.Console;
 import com.cyanogenmod.filemanager.console.ConsoleBuilder;
 import com.cyanogenmod.filemanager.console.ExecutionException;
 import com.cyanogenmod.filemanager.console.RelaunchableException;
+import com.cyanogenmod.filemanager.console.java.JavaConsole;
 import com.cyanogenmod.filemanager.listeners.OnRequestRefreshListener;
 import com.cyanogenmod.filemanager.listeners.OnSelectionListener;
 import com.cyanogenmod.filemanager.model.FileSystemObject;
+import com.cyanogenmod.filemanager.model.TransferProgress;
 import com.cyanogenmod.filemanager.preferences.CompressionMode;
+import com.cyanogenmod.filemanager.util.Archiver;
 import com.cyanogenmod.filemanager.util.CommandHelper;
 import com.cyanogenmod.filemanager.util.DialogHelper;
 import com.cyanogenmod.filemanager.util.ExceptionUtil;
 import com.cyanogenmod.filemanager.util.ExceptionUtil.OnRelaunchCommandResult;
 import com.cyanogenmod.filemanager.util.FileHelper;
 import com.cyanogenmod.filemanager.util.FixedQueue;
+import com.cyanogenmod.filemanager.util.ProgressTracker;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -51,6 +58,8 @@ import java.util.List;
  */
 public final class CompressActionPolicy extends ActionsPolicy {
 
+    private static final String TAG = "CompressActionPolicy"; //$NON-NLS-1$
+
     /**
      * A class that holds a listener for compression/uncompression operations
      */
@@ -206,6 +215,11 @@ public final class CompressActionPolicy extends ActionsPolicy {
             private String mMsg;
             private boolean mStarted = false;
 
+            // The progress of the bytes processed (reported by the engines that can
+            // measure them)
+            ProgressTracker mTracker;
+            volatile TransferProgress mProgress;
+
             @Override
             public int getDialogTitle() {
                 return R.string.waiting_dialog_compressing_title;
@@ -237,6 +251,12 @@ public final class CompressActionPolicy extends ActionsPolicy {
                           getString(
                               R.string.waiting_dialog_compressing_msg,
                               msg);
+                TransferProgress transferred = this.mProgress;
+                if (transferred != null) {
+                    progress += "<br/>" + //$NON-NLS-1$
+                            CopyMoveActionPolicy.getTransferProgressMsg(
+                                    this.mCtx, transferred);
+                }
                 return Html.fromHtml(progress);
             }
 
@@ -270,8 +290,21 @@ public final class CompressActionPolicy extends ActionsPolicy {
 
                 // This method expect to receive
                 // 1.- BackgroundAsyncTask
-                BackgroundAsyncTask task = (BackgroundAsyncTask)params[0];
+                final BackgroundAsyncTask task = (BackgroundAsyncTask)params[0];
                 String out = null;
+                TransferProgressListener progressListener = new TransferProgressListener() {
+                    @Override
+                    @SuppressWarnings("unqualified-field-access")
+                    public void onTransferProgress(TransferProgress progress) {
+                        mProgress = progress;
+                        task.onRequestProgress();
+                    }
+                };
+                this.mProgress = null;
+                // The gzip modes are compressed in parallel by the java console
+                Console console = createParallelConsole(
+                        ctx, Archiver.isParallelCompression(this.mMode),
+                        onSelectionListener.onRequestCurrentDir());
                 try {
                     // Archive or Archive-Compression
                     if (this.mMode.mArchive) {
@@ -304,13 +337,14 @@ public final class CompressActionPolicy extends ActionsPolicy {
                                         newName).getAbsolutePath();
 
                         // Do the compression
+                        this.mTracker = ProgressTracker.create(progressListener, src);
                         this.cmd =
                            CommandHelper.compress(
                                 ctx,
                                 this.mMode,
                                 newNameAbs,
                                 src,
-                                this.mListener, null);
+                                this.mListener, this.mTracker, console);
 
                     // Compression
                     } else {
@@ -319,12 +353,14 @@ public final class CompressActionPolicy extends ActionsPolicy {
                         String src = this.mFsos.get(0).getFullPath();
 
                         // Do the compression
+                        this.mTracker =
+                                ProgressTracker.create(progressListener, new String[]{src});
                         this.cmd =
                            CommandHelper.compress(
                                 ctx,
                                 this.mMode,
                                 src,
-                                this.mListener, null);
+                                this.mListener, this.mTracker, console);
                     }
                     out = this.cmd.getOutCompressedFile();
 
@@ -347,6 +383,7 @@ public final class CompressActionPolicy extends ActionsPolicy {
                     }
 
                     // Dialog is ended. Force the last redraw
+                    this.mTracker.finish();
                     List<String> msgs = this.mListener.mQueue.peekAll();
                     if (msgs.size() > 0) {
                         this.mMsg = msgs.get(msgs.size()-1);
@@ -398,6 +435,10 @@ public final class CompressActionPolicy extends ActionsPolicy {
                         // The exception must be elevated
                         throw e;
                     }
+                } finally {
+                    if (console != null) {
+                        console.dealloc();
+                    }
                 }
 
 
@@ -507,6 +548,11 @@ public final class CompressActionPolicy extends ActionsPolicy {
             private String mMsg;
             private boolean mStarted = false;
 
+            // The progress of the bytes processed (reported by the engines that can
+            // measure them)
+            ProgressTracker mTracker;
+            volatile TransferProgress mProgress;
+
             @Override
             public int getDialogTitle() {
                 return R.string.waiting_dialog_extracting_title;
@@ -538,6 +584,12 @@ public final class CompressActionPolicy extends ActionsPolicy {
                           getString(
                               R.string.waiting_dialog_extracting_msg,
                               msg);
+                TransferProgress transferred = this.mProgress;
+                if (transferred != null) {
+                    progress += "<br/>" + //$NON-NLS-1$
+                            CopyMoveActionPolicy.getTransferProgressMsg(
+                                    this.mCtx, transferred);
+                }
                 return Html.fromHtml(progress);
             }
 
@@ -571,15 +623,35 @@ public final class CompressActionPolicy extends ActionsPolicy {
 
                 // This method expect to receive
                 // 1.- BackgroundAsyncTask
-                BackgroundAsyncTask task = (BackgroundAsyncTask)params[0];
+                final BackgroundAsyncTask task = (BackgroundAsyncTask)params[0];
                 String out = null;
+                TransferProgressListener progressListener = new TransferProgressListener() {
+                    @Override
+                    @SuppressWarnings("unqualified-field-access")
+                    public void onTransferProgress(TransferProgress progress) {
+                        mProgress = progress;
+                        task.onRequestProgress();
+                    }
+                };
+                this.mProgress = null;
+                // The zip archives are extracted in parallel by the java console
+                Console console = createParallelConsole(
+                        ctx, Archiver.isParallelExtraction(
+                                Archiver.getUncompressionMode(this.mFso.getFullPath())),
+                        this.mFso.getParent());
                 try {
+                    // The progress is measured in bytes of the compressed file (or the
+                    // uncompressed bytes, if the extractor knows them)
+                    this.mTracker = new ProgressTracker(
+                            progressListener,
+                            new File(this.mFso.getFullPath()).length(),
+                            (int)TransferProgress.UNKNOWN);
                     this.cmd =
                         CommandHelper.uncompress(
                                 ctx,
                                 this.mFso.getFullPath(),
                                 null,
-                                this.mListener, null);
+                                this.mListener, this.mTracker, console);
                     out = this.cmd.getOutUncompressedFile();
 
                     // Request paint the
@@ -601,6 +673,7 @@ public final class CompressActionPolicy extends ActionsPolicy {
                     }
 
                     // Dialog is ended. Force the last redraw
+                    this.mTracker.finish();
                     List<String> msgs = this.mListener.mQueue.peekAll();
                     if (msgs.size() > 0) {
                         this.mMsg = msgs.get(msgs.size()-1);
@@ -652,6 +725,10 @@ public final class CompressActionPolicy extends ActionsPolicy {
                         // The exception must be elevated
                         throw e;
                     }
+                } finally {
+                    if (console != null) {
+                        console.dealloc();
+                    }
                 }
 
 
@@ -764,6 +841,33 @@ public final class CompressActionPolicy extends ActionsPolicy {
         }
     }
 
+    /**
+     * Method that creates the console where to compress or extract the files in parallel.
+     * The parallel operations are done by the java console, so it's only used when the
+     * current console has the same permissions of the application (a non privileged
+     * shell console).
+     *
+     * @param ctx The current context
+     * @param parallel If the operation can be done in parallel
+     * @param dir The current directory
+     * @return Console The console (must be deallocated), or null to use the current console
+     */
+    private static Console createParallelConsole(Context ctx, boolean parallel, String dir) {
+        if (!parallel || ConsoleBuilder.isPrivileged()) {
+            return null;
+        }
+        try {
+            if (ConsoleBuilder.getConsole(ctx) instanceof JavaConsole) {
+                // The current console already compresses in parallel
+                return null;
+            }
+            return ConsoleBuilder.createJavaConsole(ctx, dir);
+        } catch (Throwable ex) {
+            Log.w(TAG, "Failed to create the parallel console", ex); //$NON-NLS-1$
+            return null;
+        }
+    }
+
     /**
      * Method that returns the supported compression modes
      *
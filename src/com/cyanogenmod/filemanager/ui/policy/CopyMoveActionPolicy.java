@@ -21,22 +21,35 @@ import android.content.Context;
 import android.content.DialogInterface;
 import android.text.Html;
 import android.text.Spanned;
+import android.text.format.DateUtils;
 
 import com.cyanogenmod.filemanager.R;
+import com.cyanogenmod.filemanager.commands.CopyBatchExecutable;
+import com.cyanogenmod.filemanager.commands.MoveBatchExecutable;
+import com.cyanogenmod.filemanager.commands.MoveExecutable;
+import com.cyanogenmod.filemanager.commands.SyncResultExecutable;
+import com.cyanogenmod.filemanager.commands.TransferProgressListener;
+import com.cyanogenmod.filemanager.console.ExecutionException;
 import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
 import com.cyanogenmod.filemanager.console.RelaunchableException;
 import com.cyanogenmod.filemanager.listeners.OnRequestRefreshListener;
 import com.cyanogenmod.filemanager.listeners.OnSelectionListener;
 import com.cyanogenmod.filemanager.model.FileSystemObject;
+import com.cyanogenmod.filemanager.model.TransferProgress;
+import com.cyanogenmod.filemanager.util.ArchiveIndex;
 import com.cyanogenmod.filemanager.util.CommandHelper;
+import com.cyanogenmod.filemanager.util.CopyJournal;
 import com.cyanogenmod.filemanager.util.DialogHelper;
 import com.cyanogenmod.filemanager.util.ExceptionUtil;
 import com.cyanogenmod.filemanager.util.ExceptionUtil.OnRelaunchCommandResult;
 import com.cyanogenmod.filemanager.util.FileHelper;
+import com.cyanogenmod.filemanager.util.ProgressTracker;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A class with the convenience methods for resolve copy/move related actions
@@ -247,24 +260,49 @@ public final class CopyMoveActionPolicy extends ActionsPolicy {
                 return;
             }
         }
-        // 3.- Check the operation consistency
+        // 3.- The archives are read-only (their entries can only be copied out of them)
+        if (!checkArchiveConsistency(ctx, operation, files, currentDirectory)) {
+            return;
+        }
+        // 4.- Check the operation consistency
         if (operation.compareTo(COPY_MOVE_OPERATION.MOVE) == 0) {
             if (!checkMoveConsistency(ctx, files, currentDirectory)) {
                 return;
             }
         }
 
+        // The sources that keep their names can be copied or moved to the current directory
+        // in a few invocations. Put them first, so they can be processed in chunks
+        final List<LinkedResource> sortedFiles = new ArrayList<LinkedResource>(cc);
+        final List<LinkedResource> singleFiles = new ArrayList<LinkedResource>();
+        for (int i = 0; i < cc; i++) {
+            LinkedResource linkedRes = files.get(i);
+            if (isBatchable(operation, linkedRes)) {
+                sortedFiles.add(linkedRes);
+            } else {
+                singleFiles.add(linkedRes);
+            }
+        }
+        final int batchCount = sortedFiles.size();
+        sortedFiles.addAll(singleFiles);
+
         // The callable interface
         final BackgroundCallable callable = new BackgroundCallable() {
             // The current items
             private int mCurrent = 0;
             final Context mCtx = ctx;
             final COPY_MOVE_OPERATION mOperation = operation;
-            final List<LinkedResource> mFiles = files;
+            final List<LinkedResource> mFiles = sortedFiles;
+            final int mBatchCount = batchCount;
             final OnRequestRefreshListener mOnRequestRefreshListener = onRequestRefreshListener;
 
             final Object mSync = new Object();
             Throwable mCause;
+            boolean mRelaunched;
+
+            // The progress of the bytes transferred
+            ProgressTracker mTracker;
+            volatile TransferProgress mProgress;
 
             @Override
             public int getDialogTitle() {
@@ -284,8 +322,9 @@ public final class CopyMoveActionPolicy extends ActionsPolicy {
 
             @Override
             public Spanned requestProgress() {
-                File src = this.mFiles.get(this.mCurrent).mSrc;
-                File dst = this.mFiles.get(this.mCurrent).mDst;
+                int current = Math.min(this.mCurrent, this.mFiles.size() - 1);
+                File src = this.mFiles.get(current).mSrc;
+                File dst = this.mFiles.get(current).mDst;
 
                 // Return the current operation
                 String progress =
@@ -297,6 +336,11 @@ public final class CopyMoveActionPolicy extends ActionsPolicy {
                                    R.string.waiting_dialog_copying_msg,
                               src.getAbsolutePath(),
                               dst.getAbsolutePath());
+                TransferProgress transfer = this.mProgress;
+                if (transfer != null) {
+                    progress += "<br/>" + //$NON-NLS-1$
+                            getTransferProgressMsg(this.mCtx, transfer);
+                }
                 return Html.fromHtml(progress);
             }
 
@@ -316,10 +360,65 @@ public final class CopyMoveActionPolicy extends ActionsPolicy {
 
                 // This method expect to receive
                 // 1.- BackgroundAsyncTask
-                BackgroundAsyncTask task = (BackgroundAsyncTask)params[0];
+                final BackgroundAsyncTask task = (BackgroundAsyncTask)params[0];
 
+                // Measure the sources, to report the bytes transferred
                 int cc2 = this.mFiles.size();
+                String[] all = new String[cc2];
                 for (int i = 0; i < cc2; i++) {
+                    all[i] = this.mFiles.get(i).mSrc.getAbsolutePath();
+                }
+                this.mProgress = null;
+                this.mTracker = ProgressTracker.create(new TransferProgressListener() {
+                    @Override
+                    @SuppressWarnings("unqualified-field-access")
+                    public void onTransferProgress(TransferProgress progress) {
+                        mProgress = progress;
+                        task.onRequestProgress();
+                    }
+                }, all);
+
+                // Copy or move the sources in as few invocations as possible
+                if (this.mBatchCount > 0) {
+                    String dst = this.mFiles.get(0).mDst.getParent();
+                    String[] srcs = new String[this.mBatchCount];
+                    for (int i = 0; i < this.mBatchCount; i++) {
+                        srcs[i] = this.mFiles.get(i).mSrc.getAbsolutePath();
+                    }
+                    Map<String, String> failures =
+                            doBatchOperation(this.mCtx, srcs, dst, this.mOperation);
+
+                    // Next files
+                    this.mCurrent += this.mBatchCount;
+                    if (this.mCurrent < this.mFiles.size()) {
+                        task.onRequestProgress();
+                    }
+                    if (!failures.isEmpty()) {
+                        // Report the first failed resource
+                        LinkedResource failed = null;
+                        Map.Entry<String, String> failure =
+                                failures.entrySet().iterator().next();
+                        for (int i = 0; i < this.mBatchCount; i++) {
+                            if (srcs[i].compareTo(failure.getKey()) == 0) {
+                                failed = this.mFiles.get(i);
+                                break;
+                            }
+                        }
+                        throw new ExecutionException(
+                                String.format(
+                                        "Failed to %s %d files. %s -> %s: %s", //$NON-NLS-1$
+                                        this.mOperation.compareTo(
+                                                COPY_MOVE_OPERATION.COPY) == 0 ?
+                                                "copy" : "move", //$NON-NLS-1$ //$NON-NLS-2$
+                                        Integer.valueOf(failures.size()),
+                                        failure.getKey(),
+                                        failed != null ?
+                                                failed.mDst.getAbsolutePath() : dst,
+                                        failure.getValue()));
+                    }
+                }
+
+                for (int i = this.mBatchCount; i < cc2; i++) {
                     File src = this.mFiles.get(i).mSrc;
                     File dst = this.mFiles.get(i).mDst;
 
@@ -331,6 +430,88 @@ public final class CopyMoveActionPolicy extends ActionsPolicy {
                         task.onRequestProgress();
                     }
                 }
+
+                // Check that the operation was completed retrieving the fsos modified
+                // (all of them in a single invocation)
+                String[] dsts = new String[cc2];
+                for (int i = 0; i < cc2; i++) {
+                    dsts[i] = this.mFiles.get(i).mDst.getAbsolutePath();
+                }
+                Map<String, FileSystemObject> info =
+                        CommandHelper.getFilesInfo(this.mCtx, dsts, false, null);
+                for (int i = 0; i < cc2; i++) {
+                    if (info.get(dsts[i]) == null) {
+                        throw new NoSuchFileOrDirectory(dsts[i]);
+                    }
+                }
+            }
+
+            /**
+             * Method that copy or move a set of files to a directory
+             *
+             * @param ctx The current context
+             * @param srcs The source files
+             * @param dst The destination directory
+             * @param operation Indicates the operation to do
+             * @return Map<String, String> The sources that couldn't be copied or moved (by the
+             * relaunched operation if it was relaunched)
+             */
+            @SuppressWarnings("hiding")
+            private Map<String, String> doBatchOperation(
+                    Context ctx, String[] srcs, String dst, COPY_MOVE_OPERATION operation)
+                    throws Throwable {
+                try {
+                    // Copy or move?
+                    if (operation.compareTo(COPY_MOVE_OPERATION.MOVE) == 0) {
+                        return CommandHelper.moveFiles(ctx, srcs, dst, this.mTracker, null);
+                    }
+                    return CommandHelper.copyFiles(ctx, srcs, dst, this.mTracker, null);
+                } catch (Exception e) {
+                    relaunchOrElevate(ctx, e);
+                    return getRelaunchedFailures(e);
+                }
+            }
+
+            /**
+             * Method that returns the sources that the relaunched batch operation couldn't
+             * copy or move.
+             *
+             * @param e The exception that relaunched the operation
+             * @return Map<String, String> The sources that couldn't be copied or moved
+             * @throws ExecutionException If the operation wasn't relaunched, or it didn't
+             * report its result
+             */
+            private Map<String, String> getRelaunchedFailures(Exception e)
+                    throws ExecutionException {
+                Map<String, String> failures = null;
+                if (this.mRelaunched && e instanceof RelaunchableException) {
+                    List<SyncResultExecutable> executables =
+                            ((RelaunchableException)e).getExecutables();
+                    int cc = executables.size();
+                    for (int i = 0; i < cc; i++) {
+                        SyncResultExecutable executable = executables.get(i);
+                        Map<String, String> result = null;
+                        if (executable instanceof CopyBatchExecutable) {
+                            result = ((CopyBatchExecutable)executable).getResult();
+                        } else if (executable instanceof MoveBatchExecutable) {
+                            result = ((MoveBatchExecutable)executable).getResult();
+                        } else if (executable instanceof MoveExecutable) {
+                            // The sources of other filesystem are moved one by one
+                            result = new LinkedHashMap<String, String>();
+                        }
+                        if (result != null) {
+                            if (failures == null) {
+                                failures = new LinkedHashMap<String, String>();
+                            }
+                            failures.putAll(result);
+                        }
+                    }
+                }
+                if (failures == null) {
+                    throw new ExecutionException(
+                            "the relaunched operation didn't report its result"); //$NON-NLS-1$
+                }
+                return failures;
             }
 
             /**
@@ -349,6 +530,12 @@ public final class CopyMoveActionPolicy extends ActionsPolicy {
                 if (src.compareTo(dst) == 0) return;
 
                 try {
+                    // The entries of an archive are extracted
+                    if (ArchiveIndex.isInsideArchive(src.getAbsolutePath())) {
+                        ArchiveIndex.extract(src.getAbsolutePath(), dst);
+                        return;
+                    }
+
                     // Copy or move?
                     if (operation.compareTo(COPY_MOVE_OPERATION.MOVE) == 0 ||
                             operation.compareTo(COPY_MOVE_OPERATION.RENAME) == 0) {
@@ -356,66 +543,75 @@ public final class CopyMoveActionPolicy extends ActionsPolicy {
                                 ctx,
                                 src.getAbsolutePath(),
                                 dst.getAbsolutePath(),
+                                this.mTracker,
                                 null);
                     } else {
                         CommandHelper.copy(
                                 ctx,
                                 src.getAbsolutePath(),
                                 dst.getAbsolutePath(),
+                                this.mTracker,
                                 null);
                     }
                 } catch (Exception e) {
-                    // Need to be relaunched?
-                    if (e instanceof RelaunchableException) {
-                        OnRelaunchCommandResult rl = new OnRelaunchCommandResult() {
-                            @Override
-                            @SuppressWarnings("unqualified-field-access")
-                            public void onSuccess() {
-                                synchronized (mSync) {
-                                    mSync.notify();
-                                }
+                    relaunchOrElevate(ctx, e);
+                }
+            }
+
+            /**
+             * Method that relaunch the operation if the exception allows it, or
+             * elevates the exception otherwise
+             *
+             * @param ctx The current context
+             * @param e The exception thrown by the operation
+             */
+            @SuppressWarnings("hiding")
+            private void relaunchOrElevate(Context ctx, Exception e) throws Throwable {
+                // Need to be relaunched?
+                this.mRelaunched = false;
+                if (e instanceof RelaunchableException) {
+                    OnRelaunchCommandResult rl = new OnRelaunchCommandResult() {
+                        @Override
+                        @SuppressWarnings("unqualified-field-access")
+                        public void onSuccess() {
+                            mRelaunched = true;
+                            synchronized (mSync) {
+                                mSync.notify();
                             }
+                        }
 
-                            @Override
-                            @SuppressWarnings("unqualified-field-access")
-                            public void onFailed(Throwable cause) {
-                                mCause = cause;
-                                synchronized (mSync) {
-                                    mSync.notify();
-                                }
+                        @Override
+                        @SuppressWarnings("unqualified-field-access")
+                        public void onFailed(Throwable cause) {
+                            mCause = cause;
+                            synchronized (mSync) {
+                                mSync.notify();
                             }
-                            @Override
-                            @SuppressWarnings("unqualified-field-access")
-                            public void onCancelled() {
-                                synchronized (mSync) {
-                                    mSync.notify();
-                                }
+                        }
+                        @Override
+                        @SuppressWarnings("unqualified-field-access")
+                        public void onCancelled() {
+                            synchronized (mSync) {
+                                mSync.notify();
                             }
-                        };
-
-                        // Translate the exception (and wait for the result)
-                        ExceptionUtil.translateException(ctx, e, false, true, rl);
-                        synchronized (this.mSync) {
-                            this.mSync.wait();
                         }
+                    };
 
-                        // Persist the exception?
-                        if (this.mCause != null) {
-                            // The exception must be elevated
-                            throw this.mCause;
-                        }
+                    // Translate the exception (and wait for the result)
+                    ExceptionUtil.translateException(ctx, e, false, true, rl);
+                    synchronized (this.mSync) {
+                        this.mSync.wait();
+                    }
 
-                    } else {
+                    // Persist the exception?
+                    if (this.mCause != null) {
                         // The exception must be elevated
-                        throw e;
+                        throw this.mCause;
                     }
-                }
 
-                // Check that the operation was completed retrieving the fso modified
-                FileSystemObject fso =
-                        CommandHelper.getFileInfo(ctx, dst.getAbsolutePath(), false, null);
-                if (fso == null) {
-                    throw new NoSuchFileOrDirectory(dst.getAbsolutePath());
+                } else {
+                    // The exception must be elevated
+                    throw e;
                 }
             }
         };
@@ -424,6 +620,40 @@ public final class CopyMoveActionPolicy extends ActionsPolicy {
         // Prior to execute, we need to check if some of the files will be overwritten
         List<FileSystemObject> curFiles = onSelectionListener.onRequestCurrentItems();
         if (curFiles != null) {
+            // Are there interrupted copies that can be resumed?
+            if (isOverwriteNeeded(files, curFiles) && isResumeAllowed(operation, files)) {
+                //Show a dialog asking the user for resume or overwrite the files
+                AlertDialog dialog =
+                        DialogHelper.createThreeButtonsQuestionDialog(
+                                ctx,
+                                android.R.string.cancel,
+                                R.string.resume,
+                                R.string.overwrite,
+                                R.string.confirm_overwrite,
+                                ctx.getString(R.string.msgs_resume_copy),
+                                new DialogInterface.OnClickListener() {
+                                    @Override
+                                    public void onClick(DialogInterface alertDialog, int which) {
+                                        // NEGATIVE (overwrite)  NEUTRAL (resume)
+                                        // POSITIVE (cancel)
+                                        if (which == DialogInterface.BUTTON_NEGATIVE) {
+                                            // Discard the journals, and execute
+                                            int cc2 = files.size();
+                                            for (int i = 0; i < cc2; i++) {
+                                                CopyJournal.discardPendingCopies(
+                                                        files.get(i).mDst);
+                                            }
+                                            task.execute(task);
+                                        } else if (which == DialogInterface.BUTTON_NEUTRAL) {
+                                            // The journaled copies are resumed
+                                            task.execute(task);
+                                        }
+                                    }
+                               });
+                DialogHelper.delegateDialogShow(ctx, dialog);
+                return;
+            }
+
             // Is necessary to ask the user?
             if (isOverwriteNeeded(files, curFiles)) {
                 //Show a dialog asking the user for overwrite the files
@@ -453,6 +683,52 @@ public final class CopyMoveActionPolicy extends ActionsPolicy {
         task.execute(task);
     }
 
+    /**
+     * Method that checks if a resource can be copied or moved in a chunk of resources,
+     * this is, if the resource is copied or moved to another directory keeping its name.
+     * A resource moved over an existing destination is moved alone (the batch move fails
+     * when the destination exists).
+     *
+     * @param operation The operation to do
+     * @param linkedRes The source/destination file
+     * @return boolean If the resource can be copied or moved in a chunk of resources
+     */
+    private static boolean isBatchable(COPY_MOVE_OPERATION operation, LinkedResource linkedRes) {
+        if (operation.compareTo(COPY_MOVE_OPERATION.COPY) != 0 &&
+            operation.compareTo(COPY_MOVE_OPERATION.MOVE) != 0) {
+            return false;
+        }
+        String srcParent = linkedRes.mSrc.getParent();
+        return srcParent != null &&
+               !ArchiveIndex.isArchivePath(srcParent) &&
+               srcParent.compareTo(linkedRes.mDst.getParent()) != 0 &&
+               linkedRes.mSrc.getName().compareTo(linkedRes.mDst.getName()) == 0 &&
+               (operation.compareTo(COPY_MOVE_OPERATION.MOVE) != 0 ||
+                !linkedRes.mDst.exists());
+    }
+
+    /**
+     * Method that checks if the user can choose to resume the interrupted copies
+     * to the destination files (see {@link CopyJournal}).
+     *
+     * @param operation The operation to do
+     * @param files The list of source/destination files
+     * @return boolean If there are interrupted copies that can be resumed
+     */
+    private static boolean isResumeAllowed(
+            COPY_MOVE_OPERATION operation, List<LinkedResource> files) {
+        if (operation.compareTo(COPY_MOVE_OPERATION.RENAME) == 0) {
+            return false;
+        }
+        int cc = files.size();
+        for (int i = 0; i < cc; i++) {
+            if (CopyJournal.hasPendingCopies(files.get(i).mDst)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Method that check if is needed to prompt the user for overwrite prior to do
      * the operation.
@@ -533,4 +809,60 @@ public final class CopyMoveActionPolicy extends ActionsPolicy {
         }
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Method that checks that the operation doesn't modify an archive. The entries of an
+     * archive can be copied to a folder of the filesystem, but nothing can be moved or
+     * copied from or to an archive.
+     *
+     * @param ctx The current context
+     * @param operation The operation to do
+     * @param files The list of source/destination files
+     * @param currentDirectory The current directory
+     * @return boolean If the consistency is validate successfully
+     */
+    private static boolean checkArchiveConsistency(Context ctx,
+            COPY_MOVE_OPERATION operation, List<LinkedResource> files, String currentDirectory) {
+        boolean allowed = !ArchiveIndex.isArchivePath(currentDirectory);
+        if (allowed && operation.compareTo(COPY_MOVE_OPERATION.COPY) != 0) {
+            int cc = files.size();
+            for (int i = 0; i < cc; i++) {
+                if (ArchiveIndex.isInsideArchive(files.get(i).mSrc.getAbsolutePath())) {
+                    allowed = false;
+                    break;
+                }
+            }
+        }
+        if (!allowed) {
+            AlertDialog dialog =
+                    DialogHelper.createErrorDialog(
+                            ctx,
+                            R.string.error_title,
+                            R.string.msgs_archive_read_only);
+            DialogHelper.delegateDialogShow(ctx, dialog);
+        }
+        return allowed;
+    }
+
+    /**
+     * Method that returns the message of the progress of the bytes transferred.
+     *
+     * @param ctx The current context
+     * @param progress The progress of the operation
+     * @return String The message
+     */
+    static String getTransferProgressMsg(Context ctx, TransferProgress progress) {
+        String done = FileHelper.getHumanReadableSize(progress.getBytesDone());
+        String rate = FileHelper.getHumanReadableSize(progress.getRate());
+        if (progress.getBytesTotal() == TransferProgress.UNKNOWN ||
+            progress.getEta() == TransferProgress.UNKNOWN) {
+            return ctx.getString(R.string.waiting_dialog_transfer_msg, done, rate);
+        }
+        return ctx.getString(
+                R.string.waiting_dialog_transfer_eta_msg,
+                done,
+                FileHelper.getHumanReadableSize(progress.getBytesTotal()),
+                rate,
+                DateUtils.formatElapsedTime(progress.getEta() / 1000L));
+    }
+}
@@ -23,22 +23,29 @@ import android.text.Html;
 import android.text.Spanned;
 
 import com.cyanogenmod.filemanager.R;
+import com.cyanogenmod.filemanager.commands.DeleteBatchExecutable;
+import com.cyanogenmod.filemanager.commands.SyncResultExecutable;
+import com.cyanogenmod.filemanager.commands.TransferProgressListener;
 import com.cyanogenmod.filemanager.console.ExecutionException;
 import com.cyanogenmod.filemanager.console.RelaunchableException;
 import com.cyanogenmod.filemanager.listeners.OnRequestRefreshListener;
 import com.cyanogenmod.filemanager.listeners.OnSelectionListener;
 import com.cyanogenmod.filemanager.model.FileSystemObject;
+import com.cyanogenmod.filemanager.model.TransferProgress;
 import com.cyanogenmod.filemanager.ui.widgets.FlingerListView.OnItemFlingerResponder;
 import com.cyanogenmod.filemanager.util.CommandHelper;
 import com.cyanogenmod.filemanager.util.DialogHelper;
 import com.cyanogenmod.filemanager.util.ExceptionUtil;
 import com.cyanogenmod.filemanager.util.ExceptionUtil.OnRelaunchCommandResult;
-import com.cyanogenmod.filemanager.util.FileHelper;
+import com.cyanogenmod.filemanager.util.ProgressTracker;
+import com.cyanogenmod.filemanager.util.ShellHelper;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -156,6 +163,11 @@ public final class DeleteActionPolicy extends ActionsPolicy {
 
             final Object mSync = new Object();
             Throwable mCause;
+            boolean mRelaunched;
+
+            // The progress of the files deleted
+            ProgressTracker mTracker;
+            volatile TransferProgress mProgress;
 
             @Override
             public int getDialogTitle() {
@@ -172,7 +184,8 @@ public final class DeleteActionPolicy extends ActionsPolicy {
 
             @Override
             public Spanned requestProgress() {
-                FileSystemObject fso = this.mFiles.get(this.mCurrent);
+                int current = Math.min(this.mCurrent, this.mFiles.size() - 1);
+                FileSystemObject fso = this.mFiles.get(current);
 
                 // Return the current operation
                 String progress =
@@ -180,6 +193,11 @@ public final class DeleteActionPolicy extends ActionsPolicy {
                           getString(
                               R.string.waiting_dialog_deleting_msg,
                               fso.getFullPath());
+                TransferProgress deleted = this.mProgress;
+                if (deleted != null) {
+                    progress += "<br/>" + //$NON-NLS-1$
+                            getDeleteProgressMsg(this.mCtx, deleted);
+                }
                 return Html.fromHtml(progress);
             }
 
@@ -210,45 +228,110 @@ public final class DeleteActionPolicy extends ActionsPolicy {
 
                 // This method expect to receive
                 // 1.- BackgroundAsyncTask
-                BackgroundAsyncTask task = (BackgroundAsyncTask)params[0];
+                final BackgroundAsyncTask task = (BackgroundAsyncTask)params[0];
+
+                // The files deleted are reported by the engines that can count them (the
+                // total is discovered while deleting)
+                this.mProgress = null;
+                this.mTracker = new ProgressTracker(new TransferProgressListener() {
+                    @Override
+                    @SuppressWarnings("unqualified-field-access")
+                    public void onTransferProgress(TransferProgress progress) {
+                        mProgress = progress;
+                        task.onRequestProgress();
+                    }
+                }, TransferProgress.UNKNOWN, (int)TransferProgress.UNKNOWN);
 
                 int cc = this.mFiles.size();
+                String[] paths = new String[cc];
                 for (int i = 0; i < cc; i++) {
-                    FileSystemObject fso = this.mFiles.get(i);
+                    paths[i] = this.mFiles.get(i).getFullPath();
+                }
 
-                    doOperation(this.mCtx, fso);
+                // Delete the items in as few invocations as possible (the progress is
+                // reported after every chunk of items, and every chunk is relaunched
+                // independently)
+                Map<String, String> failures = new LinkedHashMap<String, String>();
+                List<String[]> chunks =
+                        CommandHelper.splitByMountPoint(
+                                paths, ShellHelper.MAX_EXPANDED_ARGS_LENGTH);
+                int chunksCount = chunks.size();
+                for (int i = 0; i < chunksCount; i++) {
+                    String[] chunk = chunks.get(i);
+
+                    Map<String, String> result = doOperation(this.mCtx, chunk);
+                    if (result != null) {
+                        failures.putAll(result);
+                    }
 
-                    // Next file
-                    this.mCurrent++;
+                    // Next chunk
+                    this.mCurrent += chunk.length;
                     if (this.mCurrent < this.mFiles.size()) {
                         task.onRequestProgress();
                     }
                 }
+                if (!failures.isEmpty()) {
+                    // Cancels the flinger
+                    if (onItemFlingerResponder != null) {
+                        onItemFlingerResponder.cancel();
+                    }
+
+                    Map.Entry<String, String> failure = failures.entrySet().iterator().next();
+                    throw new ExecutionException(
+                            String.format(
+                                    "Failed to delete %d files. %s: %s", //$NON-NLS-1$
+                                    Integer.valueOf(failures.size()),
+                                    failure.getKey(), failure.getValue()));
+                }
+
+                // Check that the operation was completed retrieving the deleted fsos
+                // (all of them in a single invocation)
+                Map<String, FileSystemObject> info = null;
+                try {
+                    info = CommandHelper.getFilesInfo(this.mCtx, paths, false, null);
+                } catch (Throwable e) {
+                    // Can't be checked. Assume that the operation completes successfully
+                }
+                if (info != null) {
+                    for (int i = 0; i < cc; i++) {
+                        if (info.get(paths[i]) != null) {
+                            // Failed. The file still exists
+                            // Cancels the flinger
+                            if (onItemFlingerResponder != null) {
+                                onItemFlingerResponder.cancel();
+                            }
+
+                            throw new ExecutionException(
+                                    String.format(
+                                            "Failed to delete file: %s", paths[i])); //$NON-NLS-1$
+                        }
+                    }
+                }
             }
 
             /**
-             * Method that deletes the file or directory
+             * Method that deletes a set of files or directories
              *
              * @param ctx The current context
-             * @param fso The file or folder to be deleted
+             * @param paths The files or folders to be deleted
+             * @return Map<String, String> The paths that couldn't be deleted (by the
+             * relaunched operation if it was relaunched)
              */
             @SuppressWarnings("hiding")
-            private void doOperation(
-                    final Context ctx, final FileSystemObject fso) throws Throwable {
+            private Map<String, String> doOperation(
+                    final Context ctx, final String[] paths) throws Throwable {
                 try {
-                    // Remove the item
-                    if (FileHelper.isDirectory(fso)) {
-                        CommandHelper.deleteDirectory(ctx, fso.getFullPath(), null);
-                    } else {
-                        CommandHelper.deleteFile(ctx, fso.getFullPath(), null);
-                    }
+                    // Remove the items
+                    return CommandHelper.deleteFiles(ctx, paths, this.mTracker, null);
                 } catch (Exception e) {
                     // Need to be relaunched?
+                    this.mRelaunched = false;
                     if (e instanceof RelaunchableException) {
                         OnRelaunchCommandResult rl = new OnRelaunchCommandResult() {
                             @Override
                             @SuppressWarnings("unqualified-field-access")
                             public void onSuccess() {
+                                mRelaunched = true;
                                 synchronized (mSync) {
                                     mSync.notify();
                                 }
@@ -287,42 +370,54 @@ public final class DeleteActionPolicy extends ActionsPolicy {
                             // The exception must be elevated
                             throw this.mCause;
                         }
-
-                    } else {
-                        // Cancels the flinger
-                        if (onItemFlingerResponder != null) {
-                            onItemFlingerResponder.cancel();
-                        }
-
-                        // The exception must be elevated
-                        throw e;
-                    }
-                }
-
-                // Check that the operation was completed retrieving the deleted fso
-                boolean failed = false;
-                try {
-                    CommandHelper.getFileInfo(ctx, fso.getFullPath(), false, null);
-                    FileSystemObject fso2 =
-                            CommandHelper.getFileInfo(ctx, fso.getFullPath(), false, null);
-                    if (fso2 != null) {
-                        // Failed. The file still exists
-                        failed = true;
+                        return getRelaunchedFailures(e);
                     }
 
-                } catch (Throwable e) {
-                    // Operation complete successfully
-                }
-                if (failed) {
                     // Cancels the flinger
                     if (onItemFlingerResponder != null) {
                         onItemFlingerResponder.cancel();
                     }
 
+                    // The exception must be elevated
+                    throw e;
+                }
+            }
+
+            /**
+             * Method that returns the paths that the relaunched batch delete couldn't
+             * delete.
+             *
+             * @param e The exception that relaunched the operation
+             * @return Map<String, String> The paths that couldn't be deleted
+             * @throws ExecutionException If the operation wasn't relaunched, or it didn't
+             * report its result
+             */
+            private Map<String, String> getRelaunchedFailures(Exception e)
+                    throws ExecutionException {
+                Map<String, String> failures = null;
+                if (this.mRelaunched && e instanceof RelaunchableException) {
+                    List<SyncResultExecutable> executables =
+                            ((RelaunchableException)e).getExecutables();
+                    int cc = executables.size();
+                    for (int i = 0; i < cc; i++) {
+                        SyncResultExecutable executable = executables.get(i);
+                        if (executable instanceof DeleteBatchExecutable) {
+                            Map<String, String> result =
+                                    ((DeleteBatchExecutable)executable).getResult();
+                            if (result != null) {
+                                if (failures == null) {
+                                    failures = new LinkedHashMap<String, String>();
+                                }
+                                failures.putAll(result);
+                            }
+                        }
+                    }
+                }
+                if (failures == null) {
                     throw new ExecutionException(
-                            String.format(
-                                    "Failed to delete file: %s", fso.getFullPath())); //$NON-NLS-1$
+                            "the relaunched operation didn't report its result"); //$NON-NLS-1$
                 }
+                return failures;
             }
         };
         final BackgroundAsyncTask task = new BackgroundAsyncTask(ctx, callable);
@@ -365,4 +460,22 @@ public final class DeleteActionPolicy extends ActionsPolicy {
         }
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Method that returns the message of the progress of the files deleted.
+     *
+     * @param ctx The current context
+     * @param progress The progress of the operation
+     * @return String The message
+     */
+    static String getDeleteProgressMsg(Context ctx, TransferProgress progress) {
+        Integer done = Integer.valueOf(progress.getFilesDone());
+        Long rate = Long.valueOf(progress.getFilesRate());
+        if (progress.getFilesTotal() == TransferProgress.UNKNOWN) {
+            return ctx.getString(R.string.waiting_dialog_deleted_msg, done, rate);
+        }
+        return ctx.getString(
+                R.string.waiting_dialog_deleted_total_msg,
+                done, Integer.valueOf(progress.getFilesTotal()), rate);
+    }
+}
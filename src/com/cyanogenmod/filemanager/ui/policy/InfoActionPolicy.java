@@ -18,18 +18,82 @@ package com.cyanogenmod.filemanager.ui.policy;
 
 import android.content.Context;
 import android.content.DialogInterface;
+import android.os.storage.StorageVolume;
 import android.widget.Toast;
 
+import com.cyanogenmod.filemanager.commands.AsyncResultListener;
+import com.cyanogenmod.filemanager.commands.FindDuplicatesExecutable;
+import com.cyanogenmod.filemanager.console.Console;
+import com.cyanogenmod.filemanager.console.ConsoleBuilder;
+import com.cyanogenmod.filemanager.console.java.JavaConsole;
 import com.cyanogenmod.filemanager.listeners.OnRequestRefreshListener;
+import com.cyanogenmod.filemanager.model.DuplicateGroup;
 import com.cyanogenmod.filemanager.model.FileSystemObject;
+import com.cyanogenmod.filemanager.ui.dialogs.DuplicatesDialog;
 import com.cyanogenmod.filemanager.ui.dialogs.FsoPropertiesDialog;
+import com.cyanogenmod.filemanager.util.CommandHelper;
 import com.cyanogenmod.filemanager.util.DialogHelper;
+import com.cyanogenmod.filemanager.util.ExceptionUtil;
+import com.cyanogenmod.filemanager.util.FileHelper;
+import com.cyanogenmod.filemanager.util.StorageHelper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A class with the convenience methods for resolve the display of info actions
  */
 public final class InfoActionPolicy extends ActionsPolicy {
 
+    /**
+     * A class that holds a listener of the search of duplicate files
+     */
+    private static class DuplicatesListener implements AsyncResultListener {
+
+        private final DuplicatesDialog mDialog;
+        /**
+         * @hide
+         */
+        Console mConsole;
+
+        /**
+         * Constructor of <code>DuplicatesListener</code>
+         *
+         * @param dialog The duplicates dialog
+         */
+        public DuplicatesListener(DuplicatesDialog dialog) {
+            super();
+            this.mDialog = dialog;
+        }
+
+        @Override
+        public void onPartialResult(Object result) {
+            this.mDialog.onDuplicates((DuplicateGroup)result);
+        }
+
+        @Override
+        public void onException(Exception cause) {
+            this.mDialog.onException(String.valueOf(cause.getMessage()));
+        }
+
+        @Override
+        public void onAsyncStart() {/**NON BLOCK**/}
+
+        @Override
+        public void onAsyncEnd(boolean cancelled) {
+            this.mDialog.onEnd(cancelled);
+        }
+
+        @Override
+        public void onAsyncExitCode(int exitCode) {
+            // The console used for the search is not needed anymore
+            if (this.mConsole != null) {
+                this.mConsole.dealloc();
+            }
+        }
+    }
+
     /**
      * Method that show a {@link Toast} with the content description of a {@link FileSystemObject}.
      *
@@ -68,4 +132,70 @@ public final class InfoActionPolicy extends ActionsPolicy {
         dialog.show();
     }
 
-}
\ No newline at end of file
+    /**
+     * Method that searches the duplicate files of a folder, and shows them in a dialog
+     * as they are found. The duplicates of the root folder are searched across all the
+     * storage volumes.
+     *
+     * @param ctx The current context
+     * @param fso The folder
+     */
+    public static void findDuplicates(final Context ctx, final FileSystemObject fso) {
+        try {
+            final String[] directories = getDuplicatesDirectories(ctx, fso);
+            final DuplicatesDialog dialog = new DuplicatesDialog(ctx, directories);
+            dialog.show();
+
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    final DuplicatesListener listener = new DuplicatesListener(dialog);
+                    try {
+                        // The search is only implemented by the java console
+                        if (!(ConsoleBuilder.getConsole(ctx) instanceof JavaConsole)) {
+                            listener.mConsole =
+                                    ConsoleBuilder.createJavaConsole(ctx, directories[0]);
+                        }
+                        FindDuplicatesExecutable cmd =
+                                CommandHelper.findDuplicates(
+                                        ctx, directories, listener, listener.mConsole);
+                        dialog.setCmd(cmd);
+                    } catch (Exception e) {
+                        listener.onException(e);
+                        dialog.onEnd(true);
+                        listener.onAsyncExitCode(-1);
+                    }
+                }
+            };
+            t.start();
+
+        } catch (Exception e) {
+            ExceptionUtil.translateException(ctx, e);
+        }
+    }
+
+    /**
+     * Method that returns the folders where to search the duplicates of a folder.
+     *
+     * @param ctx The current context
+     * @param fso The folder
+     * @return String[] The folders where to search
+     */
+    private static String[] getDuplicatesDirectories(Context ctx, FileSystemObject fso) {
+        if (FileHelper.isRootDirectory(fso)) {
+            List<String> directories = new ArrayList<String>();
+            StorageVolume[] volumes = StorageHelper.getStorageVolumes(ctx);
+            int cc = volumes.length;
+            for (int i = 0; i < cc; i++) {
+                if (new File(volumes[i].getPath()).isDirectory()) {
+                    directories.add(volumes[i].getPath());
+                }
+            }
+            if (!directories.isEmpty()) {
+                return directories.toArray(new String[directories.size()]);
+            }
+        }
+        return new String[]{fso.getFullPath()};
+    }
+
+}
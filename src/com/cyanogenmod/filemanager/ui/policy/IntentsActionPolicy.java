@@ -26,14 +26,18 @@ import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.net.Uri;
 import android.os.Bundle;
+import android.text.Html;
+import android.text.Spanned;
 import android.util.Log;
 import android.widget.Toast;
 
 import com.cyanogenmod.filemanager.R;
 import com.cyanogenmod.filemanager.activities.ShortcutActivity;
+import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
 import com.cyanogenmod.filemanager.model.FileSystemObject;
 import com.cyanogenmod.filemanager.model.RegularFile;
 import com.cyanogenmod.filemanager.ui.dialogs.AssociationsDialog;
+import com.cyanogenmod.filemanager.util.ArchiveIndex;
 import com.cyanogenmod.filemanager.util.DialogHelper;
 import com.cyanogenmod.filemanager.util.ExceptionUtil;
 import com.cyanogenmod.filemanager.util.FileHelper;
@@ -90,6 +94,12 @@ public final class IntentsActionPolicy extends ActionsPolicy {
     public static void openFileSystemObject(
             final Context ctx, final FileSystemObject fso, final boolean choose,
             OnCancelListener onCancelListener, OnDismissListener onDismissListener) {
+        // The entries of an archive are extracted prior to open them
+        if (ArchiveIndex.isInsideArchive(fso.getFullPath())) {
+            openArchiveEntry(ctx, fso, choose, onCancelListener, onDismissListener);
+            return;
+        }
+
         try {
             // Create the intent to open the file
             Intent intent = new Intent();
@@ -120,6 +130,60 @@ public final class IntentsActionPolicy extends ActionsPolicy {
         }
     }
 
+    /**
+     * Method that extracts an entry of an archive (only that entry) to the cache folder
+     * and opens the extracted file.
+     *
+     * @param ctx The current context
+     * @param fso The entry of the archive
+     * @param choose If allow the user to select the application to open with
+     * @param onCancelListener The cancel listener
+     * @param onDismissListener The dismiss listener
+     */
+    private static void openArchiveEntry(
+            final Context ctx, final FileSystemObject fso, final boolean choose,
+            final OnCancelListener onCancelListener, final OnDismissListener onDismissListener) {
+        final BackgroundCallable callable = new BackgroundCallable() {
+            FileSystemObject mExtracted;
+
+            @Override
+            public int getDialogTitle() {
+                return R.string.waiting_dialog_extracting_title;
+            }
+            @Override
+            public int getDialogIcon() {
+                return 0;
+            }
+            @Override
+            public boolean isDialogCancellable() {
+                return false;
+            }
+
+            @Override
+            public Spanned requestProgress() {
+                return Html.fromHtml(fso.getName());
+            }
+
+            @Override
+            public void doInBackground(Object... params) throws Throwable {
+                File file = ArchiveIndex.extractToCache(ctx, fso.getFullPath());
+                this.mExtracted = FileHelper.createFileSystemObject(ctx, file);
+                if (this.mExtracted == null) {
+                    throw new NoSuchFileOrDirectory(file.getAbsolutePath());
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                if (this.mExtracted != null) {
+                    openFileSystemObject(
+                            ctx, this.mExtracted, choose, onCancelListener, onDismissListener);
+                }
+            }
+        };
+        new BackgroundAsyncTask(ctx, callable).execute();
+    }
+
     /**
      * Method that sends a {@link FileSystemObject} with the default registered application
      * by the system, or ask the user for select a registered application.
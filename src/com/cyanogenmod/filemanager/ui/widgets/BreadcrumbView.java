@@ -34,6 +34,7 @@ import com.cyanogenmod.filemanager.model.MountPoint;
 import com.cyanogenmod.filemanager.tasks.FilesystemAsyncTask;
 import com.cyanogenmod.filemanager.ui.ThemeManager;
 import com.cyanogenmod.filemanager.ui.ThemeManager.Theme;
+import com.cyanogenmod.filemanager.util.ArchiveIndex;
 import com.cyanogenmod.filemanager.util.FileHelper;
 import com.cyanogenmod.filemanager.util.StorageHelper;
 
@@ -258,7 +259,8 @@ public class BreadcrumbView extends RelativeLayout implements Breadcrumb, OnClic
                 new FilesystemAsyncTask(
                         getContext(), filesystemInfo,
                         diskUsageInfo, this.mFreeDiskSpaceWarningLevel);
-        this.mFilesystemAsyncTask.execute(this.mCurrentPath);
+        // The filesystem of an archive is the filesystem of the folder of the archive
+        this.mFilesystemAsyncTask.execute(ArchiveIndex.getRealPath(this.mCurrentPath));
     }
 
     /**
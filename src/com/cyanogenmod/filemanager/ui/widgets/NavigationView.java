@@ -57,6 +57,7 @@ import com.cyanogenmod.filemanager.ui.policy.DeleteActionPolicy;
 import com.cyanogenmod.filemanager.ui.policy.IntentsActionPolicy;
 import com.cyanogenmod.filemanager.ui.widgets.FlingerListView.OnItemFlingerListener;
 import com.cyanogenmod.filemanager.ui.widgets.FlingerListView.OnItemFlingerResponder;
+import com.cyanogenmod.filemanager.util.ArchiveIndex;
 import com.cyanogenmod.filemanager.util.CommandHelper;
 import com.cyanogenmod.filemanager.util.DialogHelper;
 import com.cyanogenmod.filemanager.util.ExceptionUtil;
@@ -150,6 +151,10 @@ public class NavigationView extends RelativeLayout implements
                     if (fso instanceof ParentDirectory) {
                         return false;
                     }
+                    // The entries of an archive are read-only (they are virtual paths)
+                    if (ArchiveIndex.isInsideArchive(fso.getFullPath())) {
+                        return false;
+                    }
                     return true;
                 }
             } catch (Exception e) {
@@ -166,7 +171,7 @@ public class NavigationView extends RelativeLayout implements
                 // Response if the item can be removed
                 FileSystemObjectAdapter adapter = (FileSystemObjectAdapter)parent.getAdapter();
                 FileSystemObject fso = adapter.getItem(position);
-                if (fso != null) {
+                if (fso != null && !ArchiveIndex.isInsideArchive(fso.getFullPath())) {
                     DeleteActionPolicy.removeFileSystemObject(
                             getContext(),
                             fso,
@@ -796,7 +801,13 @@ public class NavigationView extends RelativeLayout implements
                                 //(sort, hidden, ...)
                                 List<FileSystemObject> files = NavigationView.this.mFiles;
                                 if (!useCurrent) {
-                                    files = CommandHelper.listFiles(getContext(), fNewDir, null);
+                                    // The entries of an archive are listed from its index
+                                    if (ArchiveIndex.isArchivePath(fNewDir)) {
+                                        files = ArchiveIndex.listFiles(getContext(), fNewDir);
+                                    } else {
+                                        files = CommandHelper.listFiles(
+                                                getContext(), fNewDir, null);
+                                    }
                                 }
                                 return files;
                             } catch (final ConsoleAllocException e) {
@@ -1031,6 +1042,13 @@ public class NavigationView extends RelativeLayout implements
                 }
             } else {
                 if (this.mNavigationMode.compareTo(NAVIGATION_MODE.BROWSABLE) == 0) {
+                    // Browse the archives (not the archives inside archives)
+                    String path = fso.getFullPath();
+                    if (ArchiveIndex.isBrowsable(path) && !ArchiveIndex.isInsideArchive(path)) {
+                        changeCurrentDir(path, true, false, false, null, null);
+                        return;
+                    }
+
                     // Open the file with the preferred registered app
                     IntentsActionPolicy.openFileSystemObject(getContext(), fso, false, null, null);
                 } else {
@@ -0,0 +1,885 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cyanogenmod.filemanager.util;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.model.Directory;
+import com.cyanogenmod.filemanager.model.FileSystemObject;
+import com.cyanogenmod.filemanager.model.ParentDirectory;
+import com.cyanogenmod.filemanager.model.Permissions;
+import com.cyanogenmod.filemanager.model.RegularFile;
+import com.cyanogenmod.filemanager.preferences.UncompressionMode;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of the entries of an archive, for browse the archive as a folder without
+ * extract it.<br/>
+ * <br/>
+ * The index is built once per archive (from the central directory of a zip archive, or
+ * from a scan of the headers of a tar archive, skipping the data of the entries) and is
+ * cached while the size and the modification time of the archive don't change. The
+ * entries are extracted on demand, one by one, so browsing an archive never decompresses
+ * more than the entry requested.<br/>
+ * <br/>
+ * The entries of an archive are addressed with virtual paths, this is, the path of the
+ * archive followed by the path of the entry (<code>/sdcard/a.zip/folder/file.txt</code>).
+ * Only zip and (uncompressed) tar archives can be browsed, because the entries of a
+ * compressed tar can't be reached without decompressing all the previous entries.
+ */
+public final class ArchiveIndex {
+
+    private static final String TAG = "ArchiveIndex"; //$NON-NLS-1$
+
+    private static boolean DEBUG = false;
+
+    /**
+     * The maximum number of indexes kept in memory.
+     */
+    public static final int MAX_CACHED_INDEXES = 8;
+
+    // The folder (inside the cache folder of the application) of the entries extracted
+    private static final String EXTRACT_DIR = "archives"; //$NON-NLS-1$
+
+    /**
+     * The maximum size of the entries extracted to the cache folder. The folders of the
+     * least recently used archives are deleted when the size is exceeded.
+     */
+    public static final long MAX_EXTRACTED_SIZE = 100L * 1024L * 1024L;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // The cache of indexes (in access order, so the least recently used is evicted)
+    private static final Map<String, ArchiveIndex> sCache =
+            new LinkedHashMap<String, ArchiveIndex>(MAX_CACHED_INDEXES * 2, 0.75f, true) {
+                private static final long serialVersionUID = -3011428425178447327L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ArchiveIndex> eldest) {
+                    return size() > MAX_CACHED_INDEXES;
+                }
+            };
+
+    /**
+     * An entry of the index of an archive.
+     */
+    public static final class Entry {
+        final String mPath;
+        final boolean mDirectory;
+        final long mSize;
+        final long mTime;
+        final int mMode;
+        // The data of the entry (the central directory record of a zip entry, or the
+        // offset of the data of a tar entry)
+        final ZipExtractor.Entry mZipEntry;
+        final long mDataOffset;
+
+        Entry(String path, boolean directory, long size, long time, int mode,
+                ZipExtractor.Entry zipEntry, long dataOffset) {
+            super();
+            this.mPath = path;
+            this.mDirectory = directory;
+            this.mSize = size;
+            this.mTime = time;
+            this.mMode = mode;
+            this.mZipEntry = zipEntry;
+            this.mDataOffset = dataOffset;
+        }
+
+        /**
+         * Method that returns the path of the entry inside the archive (without a
+         * leading or trailing separator).
+         *
+         * @return String The path of the entry
+         */
+        public String getPath() {
+            return this.mPath;
+        }
+
+        /**
+         * Method that returns the name of the entry.
+         *
+         * @return String The name of the entry
+         */
+        public String getName() {
+            return this.mPath.substring(this.mPath.lastIndexOf('/') + 1);
+        }
+
+        /**
+         * Method that returns if the entry is a folder.
+         *
+         * @return boolean If the entry is a folder
+         */
+        public boolean isDirectory() {
+            return this.mDirectory;
+        }
+
+        /**
+         * Method that returns the uncompressed size of the entry.
+         *
+         * @return long The size in bytes
+         */
+        public long getSize() {
+            return this.mSize;
+        }
+
+        /**
+         * Method that returns the modification time of the entry.
+         *
+         * @return long The modification time in milliseconds, or 0 if it is unknown
+         */
+        public long getModifiedTime() {
+            return this.mTime;
+        }
+
+        /**
+         * Method that returns the unix mode of the entry.
+         *
+         * @return int The unix mode, or 0 if it is unknown
+         */
+        public int getMode() {
+            return this.mMode;
+        }
+    }
+
+    private final File mArchive;
+    private final long mLength;
+    private final long mLastModified;
+    private final Map<String, Entry> mEntries = new HashMap<String, Entry>();
+    private final Map<String, List<Entry>> mChildren = new HashMap<String, List<Entry>>();
+
+    /**
+     * Constructor of <code>ArchiveIndex</code>.
+     *
+     * @param archive The archive
+     * @param length The size of the archive when the index was built
+     * @param lastModified The modification time of the archive when the index was built
+     */
+    private ArchiveIndex(File archive, long length, long lastModified) {
+        super();
+        this.mArchive = archive;
+        this.mLength = length;
+        this.mLastModified = lastModified;
+        this.mChildren.put("", new ArrayList<Entry>()); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that returns the index of an archive, building it if it isn't cached (or
+     * the archive was modified since the index was built).
+     *
+     * @param archive The archive
+     * @return ArchiveIndex The index of the archive
+     * @throws IOException If the archive can't be read
+     */
+    public static ArchiveIndex get(File archive) throws IOException {
+        String path = archive.getAbsolutePath();
+        long length = archive.length();
+        long lastModified = archive.lastModified();
+        synchronized (sCache) {
+            ArchiveIndex index = sCache.get(path);
+            if (index != null &&
+                    index.mLength == length && index.mLastModified == lastModified) {
+                return index;
+            }
+        }
+
+        // Build the index out of the lock (other archives can be listed meanwhile)
+        if (!archive.isFile()) {
+            throw new FileNotFoundException(path);
+        }
+        ArchiveIndex index = new ArchiveIndex(archive, length, lastModified);
+        long start = System.currentTimeMillis();
+        UncompressionMode mode = Archiver.getUncompressionMode(path);
+        if (mode != null && mode.compareTo(UncompressionMode.A_UNZIP) == 0) {
+            index.readZip();
+        } else if (mode != null && mode.compareTo(UncompressionMode.A_UNTAR) == 0) {
+            index.readTar();
+        } else {
+            throw new IOException("not a browsable archive: " + path); //$NON-NLS-1$
+        }
+        if (DEBUG) {
+            Log.v(TAG, String.format("Indexed %d entries of %s in %d ms", //$NON-NLS-1$
+                    Integer.valueOf(index.mEntries.size()), path,
+                    Long.valueOf(System.currentTimeMillis() - start)));
+        }
+        synchronized (sCache) {
+            sCache.put(path, index);
+        }
+        return index;
+    }
+
+    /**
+     * Method that removes all the indexes of the cache.
+     */
+    public static void clearCache() {
+        synchronized (sCache) {
+            sCache.clear();
+        }
+    }
+
+    /**
+     * Method that returns the archive of the index.
+     *
+     * @return File The archive
+     */
+    public File getArchive() {
+        return this.mArchive;
+    }
+
+    /**
+     * Method that returns the number of entries of the archive (including the folders
+     * that aren't stored in the archive).
+     *
+     * @return int The number of entries
+     */
+    public int size() {
+        return this.mEntries.size();
+    }
+
+    /**
+     * Method that returns an entry of the archive.
+     *
+     * @param path The path of the entry inside the archive
+     * @return Entry The entry, or null if the archive hasn't the entry
+     */
+    public Entry getEntry(String path) {
+        return this.mEntries.get(path);
+    }
+
+    /**
+     * Method that returns the entries of a folder of the archive.
+     *
+     * @param dir The path of the folder inside the archive ("" for the root of the archive)
+     * @return List<Entry> The entries of the folder, or null if the archive hasn't the folder
+     */
+    public List<Entry> list(String dir) {
+        List<Entry> children = this.mChildren.get(dir);
+        return children == null ? null : Collections.unmodifiableList(children);
+    }
+
+    /**
+     * Method that extracts an entry of the archive (a folder is extracted with all its
+     * entries). Only the data of the requested entries is read.
+     *
+     * @param entry The entry
+     * @param dst The file or folder to create
+     * @throws IOException If the entry can't be extracted
+     */
+    public void extract(Entry entry, File dst) throws IOException {
+        if (entry.mDirectory) {
+            if (!dst.isDirectory() && !dst.mkdirs()) {
+                throw new IOException("can't create the folder " + dst); //$NON-NLS-1$
+            }
+            List<Entry> children = this.mChildren.get(entry.mPath);
+            int cc = children.size();
+            for (int i = 0; i < cc; i++) {
+                Entry child = children.get(i);
+                extract(child, new File(dst, child.getName()));
+            }
+        } else if (entry.mZipEntry != null) {
+            ZipExtractor.extractEntry(this.mArchive, entry.mZipEntry, dst);
+            return;
+        } else {
+            extractTarEntry(entry, dst);
+        }
+        if (entry.mTime > 0) {
+            dst.setLastModified(entry.mTime);
+        }
+    }
+
+    /**
+     * Method that copies the data of a tar entry.
+     *
+     * @param entry The entry
+     * @param dst The file to create
+     * @throws IOException If the entry can't be extracted
+     */
+    private void extractTarEntry(Entry entry, File dst) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(this.mArchive, "r"); //$NON-NLS-1$
+        OutputStream out = null;
+        try {
+            raf.seek(entry.mDataOffset);
+            out = new FileOutputStream(dst);
+            byte[] data = new byte[BUFFER_SIZE];
+            long remaining = entry.mSize;
+            while (remaining > 0) {
+                int read = raf.read(data, 0, (int)Math.min(data.length, remaining));
+                if (read == -1) {
+                    throw new IOException(
+                            "unexpected end of the tar archive: " + entry.mPath); //$NON-NLS-1$
+                }
+                out.write(data, 0, read);
+                remaining -= read;
+            }
+            out.close();
+            out = null;
+        } catch (IOException ex) {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (Throwable ex2) {/**NON BLOCK**/}
+            }
+            dst.delete();
+            throw ex;
+        } finally {
+            try {
+                raf.close();
+            } catch (Throwable ex) {/**NON BLOCK**/}
+        }
+    }
+
+    /**
+     * Method that builds the index from the central directory of a zip archive.
+     *
+     * @throws IOException If the archive can't be read
+     */
+    private void readZip() throws IOException {
+        List<ZipExtractor.Entry> entries = ZipExtractor.readCentralDirectory(this.mArchive);
+        int cc = entries.size();
+        for (int i = 0; i < cc; i++) {
+            ZipExtractor.Entry entry = entries.get(i);
+            if (entry.isSymlink()) {
+                // The target of the link is stored as data; links are not browsable
+                continue;
+            }
+            boolean directory = entry.isDirectory();
+            addEntry(entry.mName, directory, directory ? 0 : entry.mSize,
+                    entry.mTime, entry.mMode, directory ? null : entry, 0);
+        }
+    }
+
+    /**
+     * Method that builds the index from the headers of a tar archive. The data of the
+     * entries is skipped (seeked), so the cost of the scan depends on the number of entries,
+     * not on the size of the archive.
+     *
+     * @throws IOException If the archive can't be read
+     */
+    private void readTar() throws IOException {
+        PositionInputStream in = new PositionInputStream(new FileInputStream(this.mArchive));
+        try {
+            TarInputStream tar = new TarInputStream(in);
+            List<TarEntry> links = new ArrayList<TarEntry>();
+            TarEntry entry;
+            while ((entry = tar.getNextEntry()) != null) {
+                switch (entry.getType()) {
+                    case TarEntry.TYPE_DIRECTORY:
+                        addEntry(entry.getName(), true, 0,
+                                entry.getModifiedTime(), entry.getMode(), null, 0);
+                        break;
+                    case TarEntry.TYPE_FILE:
+                        addEntry(entry.getName(), false, entry.getSize(),
+                                entry.getModifiedTime(), entry.getMode(), null,
+                                in.getPosition());
+                        break;
+                    case TarEntry.TYPE_LINK:
+                        // The data of hard links is the data of the linked file
+                        links.add(entry);
+                        break;
+                    default:
+                        // Symlinks are not browsable
+                        break;
+                }
+            }
+
+            int cc = links.size();
+            for (int i = 0; i < cc; i++) {
+                TarEntry link = links.get(i);
+                String target = normalize(link.getLinkName());
+                Entry file = target == null ? null : this.mEntries.get(target);
+                if (file != null && !file.mDirectory) {
+                    addEntry(link.getName(), false, file.mSize,
+                            file.mTime, file.mMode, null, file.mDataOffset);
+                }
+            }
+        } finally {
+            try {
+                in.close();
+            } catch (Throwable ex) {/**NON BLOCK**/}
+        }
+    }
+
+    /**
+     * Method that adds an entry to the index (and its parent folders, if the archive
+     * doesn't have them).
+     *
+     * @param name The name of the entry in the archive
+     * @param directory If the entry is a folder
+     * @param size The size of the entry
+     * @param time The modification time of the entry
+     * @param mode The unix mode of the entry
+     * @param zipEntry The zip entry, or null
+     * @param dataOffset The offset of the data of a tar entry
+     */
+    private void addEntry(String name, boolean directory, long size, long time, int mode,
+            ZipExtractor.Entry zipEntry, long dataOffset) {
+        String path = normalize(name);
+        if (path == null || path.length() == 0) {
+            // Entries outside the archive are ignored
+            return;
+        }
+        Entry entry = new Entry(path, directory, size, time, mode, zipEntry, dataOffset);
+        Entry previous = this.mEntries.get(path);
+        if (previous != null) {
+            if (previous.mDirectory && directory) {
+                // Replace the synthesized folder (keep its children)
+                replaceChild(parentOf(path), previous, entry);
+                this.mEntries.put(path, entry);
+            }
+            return;
+        }
+        this.mEntries.put(path, entry);
+        if (directory) {
+            this.mChildren.put(path, new ArrayList<Entry>());
+        }
+        getFolder(parentOf(path)).add(entry);
+    }
+
+    /**
+     * Method that returns the children of a folder, creating the folder if the archive
+     * doesn't have it.
+     *
+     * @param path The path of the folder
+     * @return List<Entry> The children of the folder
+     */
+    private List<Entry> getFolder(String path) {
+        List<Entry> children = this.mChildren.get(path);
+        if (children == null) {
+            Entry folder = new Entry(path, true, 0, 0, 0, null, 0);
+            this.mEntries.put(path, folder);
+            children = new ArrayList<Entry>();
+            this.mChildren.put(path, children);
+            getFolder(parentOf(path)).add(folder);
+        }
+        return children;
+    }
+
+    /**
+     * Method that replaces an entry in the children of a folder.
+     *
+     * @param parent The path of the folder
+     * @param previous The current entry
+     * @param entry The new entry
+     */
+    private void replaceChild(String parent, Entry previous, Entry entry) {
+        List<Entry> children = this.mChildren.get(parent);
+        int pos = children.indexOf(previous);
+        if (pos != -1) {
+            children.set(pos, entry);
+        }
+    }
+
+    /**
+     * Method that returns the path of the parent folder of an entry.
+     *
+     * @param path The path of the entry
+     * @return String The path of the parent ("" for the root of the archive)
+     */
+    private static String parentOf(String path) {
+        int pos = path.lastIndexOf('/');
+        return pos == -1 ? "" : path.substring(0, pos); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that normalizes the name of an entry (without leading or trailing
+     * separators, nor "." components).
+     *
+     * @param name The name of the entry
+     * @return String The normalized name, or null if the entry is outside the archive
+     */
+    static String normalize(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        String[] parts = name.split("/"); //$NON-NLS-1$
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i];
+            if (part.length() == 0 || part.compareTo(".") == 0) { //$NON-NLS-1$
+                continue;
+            }
+            if (part.compareTo("..") == 0) { //$NON-NLS-1$
+                return null;
+            }
+            if (sb.length() > 0) {
+                sb.append('/');
+            }
+            sb.append(part);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Method that returns if a file is an archive that can be browsed.
+     *
+     * @param path The path of the file
+     * @return boolean If the file is an archive that can be browsed
+     */
+    public static boolean isBrowsable(String path) {
+        UncompressionMode mode = Archiver.getUncompressionMode(path);
+        return mode != null &&
+                (mode.compareTo(UncompressionMode.A_UNZIP) == 0 ||
+                 mode.compareTo(UncompressionMode.A_UNTAR) == 0);
+    }
+
+    /**
+     * Method that splits a virtual path in the path of the archive and the path of the
+     * entry inside the archive.
+     *
+     * @param path The path
+     * @return String[] The path of the archive and the path of the entry ("" for the root of
+     * the archive), or null if the path isn't inside a browsable archive
+     */
+    public static String[] splitVirtualPath(String path) {
+        if (path == null) {
+            return null;
+        }
+        int pos = 0;
+        do {
+            int next = path.indexOf(File.separatorChar, pos + 1);
+            String archive = next == -1 ? path : path.substring(0, next);
+            // Only the components with an archive extension are checked in the filesystem
+            if (isBrowsable(archive) && new File(archive).isFile()) {
+                String entry = next == -1 ? "" : normalize(path.substring(next + 1)); //$NON-NLS-1$
+                return entry == null ? null : new String[]{archive, entry};
+            }
+            pos = next;
+        } while (pos != -1);
+        return null;
+    }
+
+    /**
+     * Method that returns if a path is a browsable archive or a path inside it.
+     *
+     * @param path The path
+     * @return boolean If the path is a browsable archive or a path inside it
+     */
+    public static boolean isArchivePath(String path) {
+        return splitVirtualPath(path) != null;
+    }
+
+    /**
+     * Method that returns if a path is an entry of a browsable archive (but not the
+     * archive itself).
+     *
+     * @param path The path
+     * @return boolean If the path is an entry of a browsable archive
+     */
+    public static boolean isInsideArchive(String path) {
+        String[] split = splitVirtualPath(path);
+        return split != null && split[1].length() > 0;
+    }
+
+    /**
+     * Method that returns the folder of the filesystem that contains a path (the path
+     * itself if it isn't a virtual path).
+     *
+     * @param path The path
+     * @return String The real folder
+     */
+    public static String getRealPath(String path) {
+        String[] split = splitVirtualPath(path);
+        return split == null ? path : new File(split[0]).getParent();
+    }
+
+    /**
+     * Method that lists the entries of a folder of an archive.
+     *
+     * @param ctx The current context
+     * @param path The virtual path of the folder
+     * @return List<FileSystemObject> The entries of the folder (the first one is the
+     * parent folder)
+     * @throws IOException If the archive can't be read or the folder doesn't exist
+     */
+    public static List<FileSystemObject> listFiles(Context ctx, String path)
+            throws IOException {
+        String[] split = splitVirtualPath(path);
+        if (split == null) {
+            throw new FileNotFoundException(path);
+        }
+        File archive = new File(split[0]);
+        ArchiveIndex index = get(archive);
+        List<Entry> entries = index.list(split[1]);
+        FileSystemObject template = FileHelper.createFileSystemObject(ctx, archive);
+        if (entries == null || template == null) {
+            throw new FileNotFoundException(path);
+        }
+
+        int cc = entries.size();
+        List<FileSystemObject> files = new ArrayList<FileSystemObject>(cc + 1);
+        files.add(new ParentDirectory(new File(path).getParent()));
+        for (int i = 0; i < cc; i++) {
+            files.add(toFileSystemObject(entries.get(i), path, template));
+        }
+        return files;
+    }
+
+    /**
+     * Method that returns the information of an entry of an archive.
+     *
+     * @param ctx The current context
+     * @param path The virtual path of the entry
+     * @return FileSystemObject The entry (the root of the archive is returned as a folder),
+     * or null if the archive hasn't the entry
+     * @throws IOException If the archive can't be read
+     */
+    public static FileSystemObject getFileInfo(Context ctx, String path) throws IOException {
+        String[] split = splitVirtualPath(path);
+        if (split == null) {
+            return null;
+        }
+        File archive = new File(split[0]);
+        FileSystemObject template = FileHelper.createFileSystemObject(ctx, archive);
+        if (template == null) {
+            return null;
+        }
+        if (split[1].length() == 0) {
+            return new Directory(
+                    archive.getName(), archive.getParent(),
+                    template.getUser(), template.getGroup(), template.getPermissions(),
+                    template.getLastModifiedTime());
+        }
+        Entry entry = get(archive).getEntry(split[1]);
+        if (entry == null) {
+            return null;
+        }
+        return toFileSystemObject(entry, new File(path).getParent(), template);
+    }
+
+    /**
+     * Method that extracts an entry of an archive (a folder is extracted with all its
+     * entries).
+     *
+     * @param path The virtual path of the entry
+     * @param dst The file or folder to create
+     * @throws IOException If the entry can't be extracted
+     */
+    public static void extract(String path, File dst) throws IOException {
+        String[] split = splitVirtualPath(path);
+        ArchiveIndex index = split == null ? null : get(new File(split[0]));
+        Entry entry = index == null ? null : index.getEntry(split[1]);
+        if (entry == null) {
+            throw new FileNotFoundException(path);
+        }
+        index.extract(entry, dst);
+    }
+
+    /**
+     * Method that extracts an entry of an archive to the cache folder of the application
+     * (so it can be opened by other applications). An entry already extracted from the
+     * same archive is not extracted again. The extracted entries of the least recently
+     * used archives are deleted when they exceed {@link #MAX_EXTRACTED_SIZE}.
+     *
+     * @param ctx The current context
+     * @param path The virtual path of the entry
+     * @return File The extracted file
+     * @throws IOException If the entry can't be extracted
+     */
+    public static File extractToCache(Context ctx, String path) throws IOException {
+        String[] split = splitVirtualPath(path);
+        if (split == null) {
+            throw new FileNotFoundException(path);
+        }
+        ArchiveIndex index = get(new File(split[0]));
+        Entry entry = index.getEntry(split[1]);
+        if (entry == null) {
+            throw new FileNotFoundException(path);
+        }
+
+        // A folder by archive (and version of the archive)
+        File cache = ctx.getExternalCacheDir();
+        if (cache == null) {
+            cache = ctx.getCacheDir();
+        }
+        String key = split[0] + ":" + index.mLength + ":" + index.mLastModified; //$NON-NLS-1$
+        File root = new File(cache, EXTRACT_DIR);
+        File dir = new File(root, Integer.toHexString(key.hashCode()));
+        File dst = new File(dir, entry.mPath);
+        if (!entry.mDirectory && dst.isFile() && dst.length() == entry.mSize) {
+            dir.setLastModified(System.currentTimeMillis());
+            return dst;
+        }
+        File parent = dst.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("can't create the folder " + parent); //$NON-NLS-1$
+        }
+        index.extract(entry, dst);
+        dir.setLastModified(System.currentTimeMillis());
+        trimExtracted(root, dir);
+        return dst;
+    }
+
+    /**
+     * Method that deletes the folders of the least recently used archives of the cache
+     * folder while the extracted entries exceed {@link #MAX_EXTRACTED_SIZE}.
+     *
+     * @param root The cache folder of the extracted entries
+     * @param current The folder of the archive in use (never deleted)
+     */
+    private static void trimExtracted(File root, File current) {
+        File[] dirs = root.listFiles();
+        if (dirs == null) {
+            return;
+        }
+
+        // The most recently used first
+        final long[] times = new long[dirs.length];
+        List<Integer> order = new ArrayList<Integer>(dirs.length);
+        for (int i = 0; i < dirs.length; i++) {
+            times[i] = dirs[i].lastModified();
+            order.add(Integer.valueOf(i));
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                long l = times[lhs.intValue()];
+                long r = times[rhs.intValue()];
+                return l < r ? 1 : (l > r ? -1 : 0);
+            }
+        });
+
+        long total = getExtractedSize(current);
+        int cc = order.size();
+        for (int i = 0; i < cc; i++) {
+            File dir = dirs[order.get(i).intValue()];
+            if (dir.equals(current)) {
+                continue;
+            }
+            total += getExtractedSize(dir);
+            if (total > MAX_EXTRACTED_SIZE) {
+                if (DEBUG) {
+                    Log.v(TAG, "Deleting the extracted entries of " + dir); //$NON-NLS-1$
+                }
+                if (dir.isDirectory()) {
+                    FileHelper.deleteFolder(dir);
+                } else {
+                    dir.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Method that returns the size of the entries extracted to a folder.
+     *
+     * @param file The file or folder
+     * @return long The size in bytes
+     */
+    private static long getExtractedSize(File file) {
+        File[] files = file.listFiles();
+        if (files == null) {
+            return file.length();
+        }
+        long size = 0;
+        for (int i = 0; i < files.length; i++) {
+            size += getExtractedSize(files[i]);
+        }
+        return size;
+    }
+
+    /**
+     * Method that creates the {@link FileSystemObject} of an entry.
+     *
+     * @param entry The entry
+     * @param parent The virtual path of the folder of the entry
+     * @param template The archive (owner and permissions used when the entry hasn't them)
+     * @return FileSystemObject The file system object
+     */
+    private static FileSystemObject toFileSystemObject(
+            Entry entry, String parent, FileSystemObject template) {
+        Permissions perm = template.getPermissions();
+        if ((entry.mMode & 0777) != 0) {
+            try {
+                perm = Permissions.fromOctalString(
+                        String.format("%03o", Integer.valueOf(entry.mMode & 0777))); //$NON-NLS-1$
+            } catch (Exception e) {/**NON BLOCK**/}
+        }
+        Date time = entry.mTime > 0 ? new Date(entry.mTime) : template.getLastModifiedTime();
+        if (entry.mDirectory) {
+            return new Directory(entry.getName(), parent,
+                    template.getUser(), template.getGroup(), perm, time);
+        }
+        return new RegularFile(entry.getName(), parent,
+                template.getUser(), template.getGroup(), perm, time, entry.mSize);
+    }
+
+    /**
+     * A stream that counts the position of the underlying stream (the data skipped is
+     * not read, so a file is seeked).
+     */
+    private static class PositionInputStream extends FilterInputStream {
+        private long mPosition;
+
+        PositionInputStream(InputStream in) {
+            super(in);
+            this.mPosition = 0;
+        }
+
+        long getPosition() {
+            return this.mPosition;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = this.in.read();
+            if (read != -1) {
+                this.mPosition++;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = this.in.read(b, off, len);
+            if (read > 0) {
+                this.mPosition += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = this.in.skip(n);
+            if (skipped > 0) {
+                this.mPosition += skipped;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
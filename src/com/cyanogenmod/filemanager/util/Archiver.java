@@ -0,0 +1,846 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.preferences.CompressionMode;
+import com.cyanogenmod.filemanager.preferences.FileManagerSettings;
+import com.cyanogenmod.filemanager.preferences.Preferences;
+import com.cyanogenmod.filemanager.preferences.UncompressionMode;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A class for create and extract archives and compressed files in-process (tar, zip, gzip
+ * and bzip2), without forking the <code>tar</code>, <code>gzip</code> or <code>bzip2</code>
+ * programs.<br/>
+ * <br/>
+ * The data is streamed through large buffers, and the progress is reported in bytes: the
+ * bytes of the source files read (when archiving or compressing) or the bytes of the
+ * compressed file read (when extracting). The operation can be cancelled with
+ * {@link #cancel()} or interrupting the thread that does it; a cancelled or failed archive
+ * or compressed file is deleted.
+ */
+public class Archiver {
+
+    private static final String TAG = "Archiver"; //$NON-NLS-1$
+
+    /**
+     * A listener of the entries processed.
+     */
+    public interface OnEntryListener {
+        /**
+         * Invoked when an entry is going to be archived or extracted.
+         *
+         * @param name The name of the entry
+         */
+        void onEntry(String name);
+    }
+
+    /**
+     * The size of the buffers of the operations.
+     */
+    public static final int BUFFER_SIZE = 256 * 1024;
+
+    // The symlink function (not available in all the platform versions)
+    private static Method sSymlink;
+    private static volatile boolean sSymlinkResolved = false;
+
+    private ProgressTracker mTracker;
+    private OnEntryListener mListener;
+    private volatile boolean mCancelled;
+    private volatile ZipExtractor mZipExtractor;
+    private final byte[] mBuffer;
+    private int mCompressionThreads;
+
+    /**
+     * Constructor of <code>Archiver</code>.
+     */
+    public Archiver() {
+        super();
+        this.mCancelled = false;
+        this.mBuffer = new byte[BUFFER_SIZE];
+        this.mCompressionThreads = 1;
+    }
+
+    /**
+     * Method that sets the tracker where the progress is reported.
+     *
+     * @param tracker The progress tracker, or null to not report the progress
+     */
+    public void setProgressTracker(ProgressTracker tracker) {
+        this.mTracker = tracker;
+    }
+
+    /**
+     * Method that sets the listener of the entries processed.
+     *
+     * @param listener The listener, or null
+     */
+    public void setOnEntryListener(OnEntryListener listener) {
+        this.mListener = listener;
+    }
+
+    /**
+     * Method that sets the number of threads used to compress the data. Only the gzip
+     * modes can be compressed in parallel.
+     *
+     * @param threads The number of threads
+     * @see ParallelGZIPOutputStream
+     */
+    public void setCompressionThreads(int threads) {
+        this.mCompressionThreads = Math.max(1, threads);
+    }
+
+    /**
+     * Method that cancels the operation.
+     */
+    public void cancel() {
+        this.mCancelled = true;
+        ZipExtractor extractor = this.mZipExtractor;
+        if (extractor != null) {
+            extractor.cancel();
+        }
+    }
+
+    /**
+     * Method that returns if the operation was cancelled.
+     *
+     * @return boolean If the operation was cancelled
+     */
+    public boolean isCancelled() {
+        return this.mCancelled;
+    }
+
+    /**
+     * Method that returns if a compression mode must be compressed in parallel, as
+     * the user preferences.
+     *
+     * @param mode The compression mode
+     * @return boolean If the mode must be compressed in parallel
+     */
+    public static boolean isParallelCompression(CompressionMode mode) {
+        if (mode == null || !isGzip(mode)
+                || Runtime.getRuntime().availableProcessors() < 2
+                || !ParallelGZIPOutputStream.isSupported()) {
+            return false;
+        }
+        return Preferences.getSharedPreferences().getBoolean(
+                FileManagerSettings.SETTINGS_PARALLEL_GZIP.getId(),
+                ((Boolean)FileManagerSettings.SETTINGS_PARALLEL_GZIP.
+                        getDefaultValue()).booleanValue());
+    }
+
+    /**
+     * Method that returns if an uncompression mode is extracted in parallel.
+     *
+     * @param mode The uncompression mode
+     * @return boolean If the mode is extracted in parallel
+     * @see ZipExtractor
+     */
+    public static boolean isParallelExtraction(UncompressionMode mode) {
+        return mode != null && mode.compareTo(UncompressionMode.A_UNZIP) == 0
+                && Runtime.getRuntime().availableProcessors() > 1;
+    }
+
+    /**
+     * Method that returns if a compression mode is supported.
+     *
+     * @param mode The compression mode
+     * @return boolean If the compression mode is supported
+     */
+    public static boolean isSupported(CompressionMode mode) {
+        return mode != null;
+    }
+
+    /**
+     * Method that returns if an uncompression mode is supported.
+     *
+     * @param mode The uncompression mode
+     * @return boolean If the uncompression mode is supported
+     */
+    public static boolean isSupported(UncompressionMode mode) {
+        if (mode == null) {
+            return false;
+        }
+        switch (mode) {
+            case A_UNTAR:
+            case A_UNZIP:
+            case AC_GUNZIP:
+            case AC_GUNZIP2:
+            case AC_BUNZIP:
+            case C_GUNZIP:
+            case C_BUNZIP:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Method that returns the uncompression mode of a file (from its extension).
+     *
+     * @param path The path of the file
+     * @return UncompressionMode The uncompression mode, or null if the file is not supported
+     */
+    public static UncompressionMode getUncompressionMode(String path) {
+        String ext = FileHelper.getExtension(new File(path).getName());
+        if (ext == null) {
+            return null;
+        }
+        UncompressionMode[] modes = UncompressionMode.values();
+        for (int i = 0; i < modes.length; i++) {
+            if (modes[i].mExtension.compareTo(ext) == 0) {
+                return modes[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method that archives (and compresses) files and folders.
+     *
+     * @param mode The compression mode (an archive mode)
+     * @param dst The archive to create
+     * @param srcs The files and folders to archive
+     * @param base The folder from which the names of the entries are relative
+     * @return boolean If the archive was created (false if the operation was cancelled)
+     * @throws IOException If the archive can't be created
+     */
+    public boolean archive(CompressionMode mode, File dst, File[] srcs, File base)
+            throws IOException {
+        boolean done = false;
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(dst), BUFFER_SIZE);
+        try {
+            TarOutputStream tar = new TarOutputStream(createCompressor(mode, out));
+            out = tar;
+            String basePath = base.getAbsolutePath();
+            for (int i = 0; i < srcs.length; i++) {
+                String name = FileHelper.toRelativePath(srcs[i].getAbsolutePath(), basePath);
+                archiveEntry(tar, srcs[i], name);
+            }
+            tar.close();
+            out = null;
+            done = true;
+        } catch (InterruptedIOException e) {
+            // Cancelled
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (Throwable ex) {/**NON BLOCK**/}
+            }
+            if (!done) {
+                dst.delete();
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Method that compresses a file.
+     *
+     * @param mode The compression mode (a compression mode, not an archive mode)
+     * @param src The file to compress
+     * @param dst The compressed file to create
+     * @return boolean If the file was compressed (false if the operation was cancelled)
+     * @throws IOException If the file can't be compressed
+     */
+    public boolean compress(CompressionMode mode, File src, File dst) throws IOException {
+        boolean done = false;
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(dst), BUFFER_SIZE);
+        try {
+            out = createCompressor(mode, out);
+            notifyEntry(src.getName());
+            InputStream in = new FileInputStream(src);
+            try {
+                transfer(in, out, true);
+            } finally {
+                in.close();
+            }
+            out.close();
+            out = null;
+            if (this.mTracker != null) {
+                this.mTracker.addFile();
+            }
+            done = true;
+        } catch (InterruptedIOException e) {
+            // Cancelled
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (Throwable ex) {/**NON BLOCK**/}
+            }
+            if (!done) {
+                dst.delete();
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Method that extracts an archive (into a folder) or decompresses a compressed file
+     * (into a file).
+     *
+     * @param mode The uncompression mode
+     * @param src The archive or compressed file
+     * @param dst The folder (for archives) or the file (for compressed files) to create
+     * @return boolean If the file was extracted (false if the operation was cancelled)
+     * @throws IOException If the file can't be extracted
+     */
+    public boolean extract(UncompressionMode mode, File src, File dst) throws IOException {
+        if (!isSupported(mode)) {
+            throw new IOException("unsupported uncompression mode: " + mode); //$NON-NLS-1$
+        }
+        if (mode.compareTo(UncompressionMode.A_UNZIP) == 0) {
+            return extractZip(src, dst);
+        }
+        InputStream in =
+                new BufferedInputStream(
+                        new CountingInputStream(new FileInputStream(src)), BUFFER_SIZE);
+        try {
+            in = createDecompressor(mode, in);
+            if (!mode.mArchive) {
+                return decompress(in, src, dst);
+            }
+            if (!dst.isDirectory() && !dst.mkdirs()) {
+                throw new IOException("can't create the folder " + dst); //$NON-NLS-1$
+            }
+            extractTar(new TarInputStream(in), dst);
+            return true;
+        } catch (InterruptedIOException e) {
+            // Cancelled
+            return false;
+        } finally {
+            try {
+                in.close();
+            } catch (Throwable ex) {/**NON BLOCK**/}
+        }
+    }
+
+    /**
+     * Method that decompresses a stream into a file.
+     *
+     * @param in The decompressed stream
+     * @param src The compressed file
+     * @param dst The file to create
+     * @return boolean If the file was decompressed
+     * @throws IOException If the file can't be decompressed
+     */
+    private boolean decompress(InputStream in, File src, File dst) throws IOException {
+        boolean done = false;
+        notifyEntry(dst.getName());
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(dst), BUFFER_SIZE);
+        try {
+            transfer(in, out, false);
+            out.close();
+            out = null;
+            dst.setLastModified(src.lastModified());
+            if (this.mTracker != null) {
+                this.mTracker.addFile();
+            }
+            done = true;
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (Throwable ex) {/**NON BLOCK**/}
+            }
+            if (!done) {
+                dst.delete();
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Method that archives a file or a folder (recursively).
+     *
+     * @param tar The archive
+     * @param file The file or folder
+     * @param name The name of the entry
+     * @throws IOException If the file can't be archived
+     */
+    private void archiveEntry(TarOutputStream tar, File file, String name) throws IOException {
+        checkCancelled();
+        if (!file.exists()) {
+            // A broken link (or a file deleted while archiving)
+            Log.w(TAG, String.format("Ignored missing file: %s", file)); //$NON-NLS-1$
+            return;
+        }
+        notifyEntry(name);
+        if (file.isDirectory()) {
+            if (FileHelper.isLink(file)) {
+                // Don't follow the links to folders (they can be cycles)
+                TarEntry entry = new TarEntry(
+                        name, TarEntry.TYPE_SYMLINK, 0, 0777, file.lastModified());
+                entry.setLinkName(getLinkTarget(file));
+                tar.putNextEntry(entry);
+                tar.closeEntry();
+                return;
+            }
+            tar.putNextEntry(new TarEntry(
+                    name, TarEntry.TYPE_DIRECTORY, 0, 0755, file.lastModified()));
+            tar.closeEntry();
+            String[] children = file.list();
+            if (children != null) {
+                for (int i = 0; i < children.length; i++) {
+                    archiveEntry(tar, new File(file, children[i]),
+                            name + "/" + children[i]); //$NON-NLS-1$
+                }
+            }
+            return;
+        }
+
+        InputStream in = new FileInputStream(file);
+        try {
+            long size = file.length();
+            int mode = file.canExecute() ? 0755 : 0644;
+            tar.putNextEntry(new TarEntry(
+                    name, TarEntry.TYPE_FILE, size, mode, file.lastModified()));
+            long written = transfer(in, tar, true, size);
+            if (written != size) {
+                throw new IOException(
+                        String.format("the file changed while archiving: %s", //$NON-NLS-1$
+                                file.getAbsolutePath()));
+            }
+            tar.closeEntry();
+        } finally {
+            in.close();
+        }
+        if (this.mTracker != null) {
+            this.mTracker.addFile();
+        }
+    }
+
+    /**
+     * Method that returns the target of a symbolic link as it was created (so a relative
+     * link still works when the archive is extracted in other place). When the platform
+     * can't read the link, the target is resolved and made relative to the folder of
+     * the link.
+     *
+     * @param link The symbolic link
+     * @return String The target of the link
+     * @throws IOException If the link can't be resolved
+     */
+    static String getLinkTarget(File link) throws IOException {
+        String target = FileHelper.readLink(link);
+        if (target != null) {
+            return target;
+        }
+        File parent = link.getAbsoluteFile().getParentFile();
+        String[] from = parent.getCanonicalPath().split(File.separator);
+        String[] to = link.getCanonicalPath().split(File.separator);
+        int common = 0;
+        while (common < from.length && common < to.length
+                && from[common].compareTo(to[common]) == 0) {
+            common++;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = common; i < from.length; i++) {
+            sb.append("../"); //$NON-NLS-1$
+        }
+        for (int i = common; i < to.length; i++) {
+            sb.append(to[i]).append('/');
+        }
+        if (sb.length() == 0) {
+            return "."; //$NON-NLS-1$
+        }
+        return sb.substring(0, sb.length() - 1);
+    }
+
+    /**
+     * Method that extracts a tar archive.
+     *
+     * @param tar The archive
+     * @param dst The destination folder
+     * @throws IOException If the archive can't be extracted
+     */
+    private void extractTar(TarInputStream tar, File dst) throws IOException {
+        String root = dst.getCanonicalPath();
+        List<TarEntry> folders = new ArrayList<TarEntry>();
+        TarEntry entry;
+        while ((entry = tar.getNextEntry()) != null) {
+            checkCancelled();
+            File file = resolveEntry(root, entry.getName());
+            if (file == null) {
+                continue;
+            }
+            notifyEntry(entry.getName());
+            switch (entry.getType()) {
+                case TarEntry.TYPE_DIRECTORY:
+                    file.mkdirs();
+                    folders.add(entry);
+                    break;
+
+                case TarEntry.TYPE_SYMLINK:
+                    file.getParentFile().mkdirs();
+                    if (!symlink(entry.getLinkName(), file)) {
+                        Log.w(TAG, String.format(
+                                "Can't create the symlink %s", file)); //$NON-NLS-1$
+                    }
+                    break;
+
+                case TarEntry.TYPE_LINK:
+                    // Hard links are extracted as copies of the linked file
+                    File target = resolveEntry(root, entry.getLinkName());
+                    if (target != null && target.isFile()) {
+                        file.getParentFile().mkdirs();
+                        InputStream in = new FileInputStream(target);
+                        try {
+                            extractFile(in, file, target.lastModified(), 0);
+                        } finally {
+                            in.close();
+                        }
+                    }
+                    break;
+
+                default:
+                    file.getParentFile().mkdirs();
+                    extractFile(tar, file, entry.getModifiedTime(), entry.getMode());
+                    break;
+            }
+        }
+
+        // The folders are modified while extracting its files
+        for (int i = folders.size() - 1; i >= 0; i--) {
+            TarEntry folder = folders.get(i);
+            File file = resolveEntry(root, folder.getName());
+            if (file != null) {
+                file.setLastModified(folder.getModifiedTime());
+            }
+        }
+    }
+
+    /**
+     * Method that extracts a zip archive. The entries are extracted in parallel, and the
+     * progress is reported in uncompressed bytes.
+     *
+     * @param src The archive
+     * @param dst The destination folder
+     * @return boolean If the archive was extracted (false if the operation was cancelled)
+     * @throws IOException If the archive can't be extracted
+     * @see ZipExtractor
+     */
+    private boolean extractZip(File src, File dst) throws IOException {
+        ZipExtractor extractor = new ZipExtractor(src, dst);
+        extractor.setProgressTracker(this.mTracker);
+        extractor.setOnEntryListener(this.mListener);
+        this.mZipExtractor = extractor;
+        try {
+            if (this.mCancelled) {
+                return false;
+            }
+            boolean done = extractor.extract();
+            if (!done) {
+                this.mCancelled = true;
+            }
+            return done;
+        } finally {
+            this.mZipExtractor = null;
+        }
+    }
+
+    /**
+     * Method that extracts the data of an entry to a file.
+     *
+     * @param in The data of the entry
+     * @param file The file to create
+     * @param modifiedTime The last modification time of the file (-1 if unknown)
+     * @param mode The permissions of the file (0 if unknown)
+     * @throws IOException If the file can't be created
+     */
+    private void extractFile(InputStream in, File file, long modifiedTime, int mode)
+            throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        try {
+            transfer(in, out, false);
+        } finally {
+            out.close();
+        }
+        if (modifiedTime > 0) {
+            file.setLastModified(modifiedTime);
+        }
+        if ((mode & 0100) != 0) {
+            file.setExecutable(true, (mode & 0011) == 0);
+        }
+        if (this.mTracker != null) {
+            this.mTracker.addFile();
+        }
+    }
+
+    /**
+     * Method that resolves the file of an entry, checking that the entry is inside the
+     * destination folder.
+     *
+     * @param root The canonical path of the destination folder
+     * @param name The name of the entry
+     * @return File The file of the entry, or null if the entry is outside of the folder
+     * @throws IOException If the path can't be resolved
+     */
+    static File resolveEntry(String root, String name) throws IOException {
+        File file = new File(root, name);
+        String path = file.getCanonicalPath();
+        if (path.compareTo(root) != 0 && !path.startsWith(root + File.separator)) {
+            Log.w(TAG, String.format(
+                    "Ignored entry outside of the destination: %s", name)); //$NON-NLS-1$
+            return null;
+        }
+        return file;
+    }
+
+    /**
+     * Method that transfers all the data of a stream to other stream.
+     *
+     * @param in The source stream
+     * @param out The destination stream
+     * @param count If the bytes read must be reported to the tracker
+     * @return long The bytes transferred
+     * @throws IOException If the data can't be transferred
+     */
+    private long transfer(InputStream in, OutputStream out, boolean count) throws IOException {
+        return transfer(in, out, count, Long.MAX_VALUE);
+    }
+
+    /**
+     * Method that transfers the data of a stream to other stream.
+     *
+     * @param in The source stream
+     * @param out The destination stream
+     * @param count If the bytes read must be reported to the tracker
+     * @param max The maximum number of bytes to transfer
+     * @return long The bytes transferred
+     * @throws IOException If the data can't be transferred
+     */
+    private long transfer(InputStream in, OutputStream out, boolean count, long max)
+            throws IOException {
+        byte[] buffer = this.mBuffer;
+        long total = 0;
+        while (total < max) {
+            checkCancelled();
+            int read = in.read(buffer, 0, (int)Math.min(buffer.length, max - total));
+            if (read == -1) {
+                break;
+            }
+            out.write(buffer, 0, read);
+            total += read;
+            if (count && this.mTracker != null) {
+                this.mTracker.addBytes(read);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Method that notifies the entry processed.
+     *
+     * @param name The name of the entry
+     */
+    private void notifyEntry(String name) {
+        if (this.mListener != null) {
+            this.mListener.onEntry(name);
+        }
+    }
+
+    /**
+     * Method that checks if the operation was cancelled (or the thread interrupted).
+     *
+     * @throws InterruptedIOException If the operation was cancelled
+     */
+    private void checkCancelled() throws InterruptedIOException {
+        if (Thread.interrupted()) {
+            this.mCancelled = true;
+            Thread.currentThread().interrupt();
+        }
+        if (this.mCancelled) {
+            throw new InterruptedIOException("cancelled"); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Method that creates the compressor stream of a compression mode.
+     *
+     * @param mode The compression mode
+     * @param out The stream of the compressed data
+     * @return OutputStream The stream where to write the data to compress
+     * @throws IOException If the stream can't be created
+     */
+    private OutputStream createCompressor(CompressionMode mode, OutputStream out)
+            throws IOException {
+        switch (mode) {
+            case AC_GZIP:
+            case AC_GZIP2:
+            case C_GZIP:
+                if (this.mCompressionThreads > 1 && ParallelGZIPOutputStream.isSupported()) {
+                    return new ParallelGZIPOutputStream(out, this.mCompressionThreads);
+                }
+                return new GZIPOutputStream(out, BUFFER_SIZE);
+            case AC_BZIP:
+            case C_BZIP:
+                return new BZip2OutputStream(out);
+            default:
+                return out;
+        }
+    }
+
+    /**
+     * Method that returns if a compression mode is a gzip mode.
+     *
+     * @param mode The compression mode
+     * @return boolean If the mode is a gzip mode
+     */
+    private static boolean isGzip(CompressionMode mode) {
+        return mode == CompressionMode.AC_GZIP
+                || mode == CompressionMode.AC_GZIP2
+                || mode == CompressionMode.C_GZIP;
+    }
+
+    /**
+     * Method that creates the decompressor stream of an uncompression mode.
+     *
+     * @param mode The uncompression mode
+     * @param in The stream of the compressed data
+     * @return InputStream The stream of the decompressed data
+     * @throws IOException If the stream can't be created
+     */
+    private static InputStream createDecompressor(UncompressionMode mode, InputStream in)
+            throws IOException {
+        switch (mode) {
+            case AC_GUNZIP:
+            case AC_GUNZIP2:
+            case C_GUNZIP:
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            case AC_BUNZIP:
+            case C_BUNZIP:
+                return new BZip2InputStream(in);
+            default:
+                return in;
+        }
+    }
+
+    /**
+     * Method that creates a symbolic link.
+     *
+     * @param target The target of the link
+     * @param link The link to create
+     * @return boolean If the link was created
+     */
+    static boolean symlink(String target, File link) {
+        if (!sSymlinkResolved) {
+            synchronized (Archiver.class) {
+                if (!sSymlinkResolved) {
+                    try {
+                        // API 21+
+                        Class<?> os = Class.forName("android.system.Os"); //$NON-NLS-1$
+                        sSymlink = os.getMethod(
+                                "symlink", String.class, String.class); //$NON-NLS-1$
+                    } catch (Throwable ex) {
+                        sSymlink = null;
+                    }
+                    sSymlinkResolved = true;
+                }
+            }
+        }
+        if (sSymlink == null || target == null) {
+            return false;
+        }
+        try {
+            sSymlink.invoke(null, target, link.getAbsolutePath());
+            return true;
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    /**
+     * A stream that reports the bytes read to the tracker of the operation.
+     */
+    private class CountingInputStream extends FilterInputStream {
+        /**
+         * Constructor of <code>CountingInputStream</code>.
+         *
+         * @param in The stream to count
+         */
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (skipped > 0) {
+                count(skipped);
+            }
+            return skipped;
+        }
+
+        /**
+         * Method that reports the bytes read.
+         *
+         * @param bytes The bytes read
+         */
+        @SuppressWarnings("synthetic-access")
+        private void count(long bytes) {
+            if (Archiver.this.mTracker != null) {
+                Archiver.this.mTracker.addBytes(bytes);
+            }
+        }
+    }
+}
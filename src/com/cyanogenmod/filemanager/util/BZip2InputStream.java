@@ -0,0 +1,489 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream that decompresses data compressed with the bzip2 algorithm.<br/>
+ * <br/>
+ * Concatenated streams (as the produced by the parallel implementations of bzip2) are
+ * decompressed as a single stream. The crc of every block and of every stream is verified.
+ */
+public class BZip2InputStream extends InputStream {
+
+    private static final int MAX_GROUPS = 6;
+    private static final int G_SIZE = 50;
+    private static final int MAX_CODE_LEN = 20;
+    private static final int MAX_SELECTORS = 18002;
+    private static final int RUNA = 0;
+    private static final int RUNB = 1;
+
+    private InputStream mIn;
+
+    // The bit buffer
+    private long mBitBuffer;
+    private int mBitCount;
+
+    // The current stream
+    private int mBlockSize;
+    private int mCombinedCrc;
+    private int mStoredCombinedCrc;
+    private boolean mEof;
+
+    // The decoded block (the inverse of the sort) and the state of its output
+    private byte[] mLl;
+    private int[] mTt;
+    private int mBlockLen;
+    private int mBlockPos;
+    private int mTPos;
+    private int mBlockCrc;
+    private int mStoredBlockCrc;
+    private int mLastChar;
+    private int mRunCount;
+    private int mRepeat;
+
+    private final byte[] mSingle = new byte[1];
+
+    /**
+     * Constructor of <code>BZip2InputStream</code>.
+     *
+     * @param in The stream of the compressed data
+     * @throws IOException If the stream header is not valid
+     */
+    public BZip2InputStream(InputStream in) throws IOException {
+        super();
+        this.mIn = in;
+        this.mEof = false;
+        if (!readStreamHeader(true)) {
+            throw new IOException("not a bzip2 stream"); //$NON-NLS-1$
+        }
+        initBlock();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read() throws IOException {
+        int read = read(this.mSingle, 0, 1);
+        return read == -1 ? -1 : (this.mSingle[0] & 0xff);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (this.mIn == null) {
+            throw new IOException("stream closed"); //$NON-NLS-1$
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int read = 0;
+        while (read < len && !this.mEof) {
+            // Pending repetitions of a run
+            if (this.mRepeat > 0) {
+                int n = Math.min(this.mRepeat, len - read);
+                byte c = (byte)this.mLastChar;
+                for (int i = 0; i < n; i++) {
+                    b[off + read + i] = c;
+                    this.mBlockCrc = BZip2OutputStream.CRC.update(this.mBlockCrc, c);
+                }
+                read += n;
+                this.mRepeat -= n;
+                continue;
+            }
+
+            // End of the block?
+            if (this.mBlockPos >= this.mBlockLen) {
+                endBlock();
+                initBlock();
+                continue;
+            }
+
+            // The next byte of the block
+            int c = this.mLl[this.mTPos] & 0xff;
+            this.mTPos = this.mTt[this.mTPos];
+            this.mBlockPos++;
+            if (this.mRunCount == 4) {
+                // The number of repetitions of the run
+                this.mRepeat = c;
+                this.mRunCount = 0;
+                continue;
+            }
+            if (c == this.mLastChar) {
+                this.mRunCount++;
+            } else {
+                this.mLastChar = c;
+                this.mRunCount = 1;
+            }
+            b[off + read] = (byte)c;
+            this.mBlockCrc = BZip2OutputStream.CRC.update(this.mBlockCrc, (byte)c);
+            read++;
+        }
+        return read == 0 ? -1 : read;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.mIn != null) {
+            this.mIn.close();
+            this.mIn = null;
+            this.mLl = null;
+            this.mTt = null;
+        }
+    }
+
+    /**
+     * Method that reads the header of a stream.
+     *
+     * @param first If this is the first stream (other streams are optional)
+     * @return boolean If a stream header was read
+     * @throws IOException If the header is not valid
+     */
+    private boolean readStreamHeader(boolean first) throws IOException {
+        int b = this.mIn.read();
+        if (b == -1 && !first) {
+            return false;
+        }
+        if (b != 'B' || this.mIn.read() != 'Z' || this.mIn.read() != 'h') {
+            if (first) {
+                return false;
+            }
+            throw new IOException("garbage after the bzip2 stream"); //$NON-NLS-1$
+        }
+        int level = this.mIn.read() - '0';
+        if (level < 1 || level > 9) {
+            throw new IOException("invalid bzip2 block size"); //$NON-NLS-1$
+        }
+        this.mBlockSize = level * 100000;
+        this.mCombinedCrc = 0;
+        this.mBitBuffer = 0;
+        this.mBitCount = 0;
+        return true;
+    }
+
+    /**
+     * Method that verifies the crc of the block that was completely read.
+     *
+     * @throws IOException If the crc doesn't match
+     */
+    private void endBlock() throws IOException {
+        int crc = ~this.mBlockCrc;
+        if (crc != this.mStoredBlockCrc) {
+            throw new IOException("bzip2 block crc error"); //$NON-NLS-1$
+        }
+        this.mCombinedCrc = ((this.mCombinedCrc << 1) | (this.mCombinedCrc >>> 31)) ^ crc;
+    }
+
+    /**
+     * Method that reads and decodes the next block (or the end of the stream).
+     *
+     * @throws IOException If the block is not valid
+     */
+    private void initBlock() throws IOException {
+        while (true) {
+            long magic = ((long)getBits(24) << 24) | getBits(24);
+            if (magic == 0x177245385090L) {
+                // End of the stream
+                this.mStoredCombinedCrc = getBits(32);
+                if (this.mStoredCombinedCrc != this.mCombinedCrc) {
+                    throw new IOException("bzip2 stream crc error"); //$NON-NLS-1$
+                }
+                if (!readStreamHeader(false)) {
+                    this.mEof = true;
+                    return;
+                }
+                continue;
+            }
+            if (magic != 0x314159265359L) {
+                throw new IOException("invalid bzip2 block"); //$NON-NLS-1$
+            }
+            break;
+        }
+
+        this.mStoredBlockCrc = getBits(32);
+        if (getBits(1) != 0) {
+            throw new IOException("randomised bzip2 blocks are not supported"); //$NON-NLS-1$
+        }
+        int origPtr = getBits(24);
+
+        // The bytes used in the block
+        int inUse16 = getBits(16);
+        byte[] seqToUnseq = new byte[256];
+        int nInUse = 0;
+        for (int i = 0; i < 16; i++) {
+            if ((inUse16 & (1 << (15 - i))) != 0) {
+                int bits = getBits(16);
+                for (int j = 0; j < 16; j++) {
+                    if ((bits & (1 << (15 - j))) != 0) {
+                        seqToUnseq[nInUse++] = (byte)(i * 16 + j);
+                    }
+                }
+            }
+        }
+        if (nInUse == 0) {
+            throw new IOException("invalid bzip2 block"); //$NON-NLS-1$
+        }
+        int alphaSize = nInUse + 2;
+
+        // The selectors
+        int nGroups = getBits(3);
+        int nSelectors = getBits(15);
+        if (nGroups < 2 || nGroups > MAX_GROUPS || nSelectors < 1) {
+            throw new IOException("invalid bzip2 block"); //$NON-NLS-1$
+        }
+        byte[] pos = new byte[nGroups];
+        for (int i = 0; i < nGroups; i++) {
+            pos[i] = (byte)i;
+        }
+        byte[] selectors = new byte[Math.min(nSelectors, MAX_SELECTORS)];
+        for (int i = 0; i < nSelectors; i++) {
+            int j = 0;
+            while (getBits(1) == 1) {
+                j++;
+                if (j >= nGroups) {
+                    throw new IOException("invalid bzip2 block"); //$NON-NLS-1$
+                }
+            }
+            byte s = pos[j];
+            for (; j > 0; j--) {
+                pos[j] = pos[j - 1];
+            }
+            pos[0] = s;
+            if (i < selectors.length) {
+                selectors[i] = s;
+            }
+        }
+        nSelectors = selectors.length;
+
+        // The Huffman tables
+        int[][] limit = new int[nGroups][MAX_CODE_LEN + 2];
+        int[][] base = new int[nGroups][MAX_CODE_LEN + 2];
+        int[][] perm = new int[nGroups][alphaSize];
+        int[] minLens = new int[nGroups];
+        int[] len = new int[alphaSize];
+        for (int t = 0; t < nGroups; t++) {
+            int curr = getBits(5);
+            for (int i = 0; i < alphaSize; i++) {
+                while (true) {
+                    if (curr < 1 || curr > MAX_CODE_LEN) {
+                        throw new IOException("invalid bzip2 block"); //$NON-NLS-1$
+                    }
+                    if (getBits(1) == 0) {
+                        break;
+                    }
+                    curr += getBits(1) == 0 ? 1 : -1;
+                }
+                len[i] = curr;
+            }
+            minLens[t] = createDecodeTables(len, alphaSize, limit[t], base[t], perm[t]);
+        }
+
+        // Decode the values, undoing the move-to-front and the runs of zeros
+        if (this.mLl == null || this.mLl.length < this.mBlockSize) {
+            this.mLl = new byte[this.mBlockSize];
+            this.mTt = new int[this.mBlockSize];
+        }
+        byte[] ll = this.mLl;
+        int[] unzftab = new int[256];
+        byte[] yy = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            yy[i] = (byte)i;
+        }
+        int eob = nInUse + 1;
+        int nblock = 0;
+        int groupNo = -1;
+        int groupPos = 0;
+        int[] gLimit = null;
+        int[] gBase = null;
+        int[] gPerm = null;
+        int gMinLen = 0;
+        int sym;
+        int es = 0;
+        int n = 1;
+        boolean inRun = false;
+        while (true) {
+            // Decode the next symbol
+            if (groupPos == 0) {
+                groupNo++;
+                if (groupNo >= nSelectors) {
+                    throw new IOException("invalid bzip2 block"); //$NON-NLS-1$
+                }
+                groupPos = G_SIZE;
+                int t = selectors[groupNo];
+                gLimit = limit[t];
+                gBase = base[t];
+                gPerm = perm[t];
+                gMinLen = minLens[t];
+            }
+            groupPos--;
+            int zn = gMinLen;
+            int zvec = getBits(zn);
+            while (zvec > gLimit[zn]) {
+                zn++;
+                if (zn > MAX_CODE_LEN) {
+                    throw new IOException("invalid bzip2 block"); //$NON-NLS-1$
+                }
+                zvec = (zvec << 1) | getBits(1);
+            }
+            int idx = zvec - gBase[zn];
+            if (idx < 0 || idx >= alphaSize) {
+                throw new IOException("invalid bzip2 block"); //$NON-NLS-1$
+            }
+            sym = gPerm[idx];
+
+            // A run of the first value
+            if (sym == RUNA || sym == RUNB) {
+                if (!inRun) {
+                    inRun = true;
+                    es = -1;
+                    n = 1;
+                }
+                es += (sym == RUNA ? 1 : 2) * n;
+                n <<= 1;
+                if (n > (1 << 21)) {
+                    throw new IOException("invalid bzip2 block"); //$NON-NLS-1$
+                }
+                continue;
+            }
+            if (inRun) {
+                inRun = false;
+                es++;
+                byte uc = seqToUnseq[yy[0] & 0xff];
+                if (nblock + es > this.mBlockSize) {
+                    throw new IOException("invalid bzip2 block"); //$NON-NLS-1$
+                }
+                unzftab[uc & 0xff] += es;
+                for (int i = 0; i < es; i++) {
+                    ll[nblock++] = uc;
+                }
+            }
+            if (sym == eob) {
+                break;
+            }
+
+            // A move-to-front value
+            int nn = sym - 1;
+            if (nn >= nInUse || nblock >= this.mBlockSize) {
+                throw new IOException("invalid bzip2 block"); //$NON-NLS-1$
+            }
+            byte v = yy[nn];
+            System.arraycopy(yy, 0, yy, 1, nn);
+            yy[0] = v;
+            byte uc = seqToUnseq[v & 0xff];
+            unzftab[uc & 0xff]++;
+            ll[nblock++] = uc;
+        }
+        if (origPtr < 0 || origPtr >= nblock) {
+            throw new IOException("invalid bzip2 block"); //$NON-NLS-1$
+        }
+
+        // Undo the sort
+        int[] cftab = new int[257];
+        for (int i = 0; i < 256; i++) {
+            cftab[i + 1] = cftab[i] + unzftab[i];
+        }
+        int[] tt = this.mTt;
+        for (int i = 0; i < nblock; i++) {
+            tt[cftab[ll[i] & 0xff]++] = i;
+        }
+        this.mTPos = tt[origPtr];
+        this.mBlockLen = nblock;
+        this.mBlockPos = 0;
+        this.mBlockCrc = 0xffffffff;
+        this.mLastChar = -1;
+        this.mRunCount = 0;
+        this.mRepeat = 0;
+    }
+
+    /**
+     * Method that creates the decode tables of a Huffman table from the lengths of its codes.
+     *
+     * @param len The lengths of the codes
+     * @param alphaSize The size of the alphabet
+     * @param limit The maximum code of every length
+     * @param base The base of the codes of every length
+     * @param perm The symbols sorted by the length of their codes
+     * @return int The minimum length of the codes
+     */
+    private static int createDecodeTables(
+            int[] len, int alphaSize, int[] limit, int[] base, int[] perm) {
+        int minLen = MAX_CODE_LEN;
+        int maxLen = 0;
+        for (int i = 0; i < alphaSize; i++) {
+            minLen = Math.min(minLen, len[i]);
+            maxLen = Math.max(maxLen, len[i]);
+        }
+        int pp = 0;
+        for (int i = minLen; i <= maxLen; i++) {
+            for (int j = 0; j < alphaSize; j++) {
+                if (len[j] == i) {
+                    perm[pp++] = j;
+                }
+            }
+        }
+        int[] count = new int[MAX_CODE_LEN + 2];
+        for (int i = 0; i < alphaSize; i++) {
+            count[len[i] + 1]++;
+        }
+        for (int i = 1; i < count.length; i++) {
+            count[i] += count[i - 1];
+        }
+        // No code is valid for the lengths out of the range
+        int vec = 0;
+        for (int i = 0; i < limit.length; i++) {
+            limit[i] = -1;
+        }
+        for (int i = minLen; i <= maxLen; i++) {
+            vec += count[i + 1] - count[i];
+            limit[i] = vec - 1;
+            vec <<= 1;
+        }
+        base[minLen] = count[minLen];
+        for (int i = minLen + 1; i <= maxLen; i++) {
+            base[i] = ((limit[i - 1] + 1) << 1) - count[i];
+        }
+        return minLen;
+    }
+
+    /**
+     * Method that reads bits from the stream.
+     *
+     * @param n The number of bits (up to 32)
+     * @return int The bits read
+     * @throws IOException If the stream ends
+     */
+    private int getBits(int n) throws IOException {
+        while (this.mBitCount < n) {
+            int b = this.mIn.read();
+            if (b == -1) {
+                throw new IOException("unexpected end of the bzip2 stream"); //$NON-NLS-1$
+            }
+            this.mBitBuffer = (this.mBitBuffer << 8) | b;
+            this.mBitCount += 8;
+        }
+        this.mBitCount -= n;
+        return (int)((this.mBitBuffer >>> this.mBitCount) & ((1L << n) - 1));
+    }
+}
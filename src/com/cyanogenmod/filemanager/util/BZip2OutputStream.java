@@ -0,0 +1,740 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * An output stream that compresses the data with the bzip2 algorithm.<br/>
+ * <br/>
+ * Every block is sorted (Burrows-Wheeler transform) by prefix doubling of its rotations,
+ * and coded with move-to-front and multiple Huffman tables, as the bzip2 reference
+ * implementation does. The stream is compatible with the <code>bzip2</code> program.
+ */
+public class BZip2OutputStream extends OutputStream {
+
+    /**
+     * The maximum block size (in units of 100000 bytes).
+     */
+    public static final int MAX_BLOCK_SIZE = 9;
+
+    // The maximum number of Huffman tables and the symbols coded with the same table
+    private static final int N_GROUPS = 6;
+    private static final int G_SIZE = 50;
+    // The maximum length of the Huffman codes
+    private static final int MAX_CODE_LEN = 17;
+    // The number of iterations of the refinement of the Huffman tables
+    private static final int N_ITERS = 4;
+
+    private static final int RUNA = 0;
+    private static final int RUNB = 1;
+
+    private OutputStream mOut;
+    private final int mBlockSize;
+    private final int mMaxBlock;
+
+    // The block (after the first run-length encoding) and its crc
+    private final byte[] mBlock;
+    private int mBlockLen;
+    private int mBlockCrc;
+    private int mCombinedCrc;
+
+    // The current run of the input
+    private int mRunChar;
+    private int mRunLength;
+
+    // The bit buffer
+    private long mBitBuffer;
+    private int mBitCount;
+
+    // The work arrays of the sort and the coding
+    private int[] mSa;
+    private int[] mRank;
+    private int[] mTmp;
+    private int[] mCount;
+    private char[] mMtfv;
+
+    private final byte[] mSingle = new byte[1];
+    private boolean mFinished;
+
+    /**
+     * Constructor of <code>BZip2OutputStream</code> (with the maximum block size).
+     *
+     * @param out The stream where to write the compressed data
+     * @throws IOException If the stream header can't be written
+     */
+    public BZip2OutputStream(OutputStream out) throws IOException {
+        this(out, MAX_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructor of <code>BZip2OutputStream</code>.
+     *
+     * @param out The stream where to write the compressed data
+     * @param blockSize The block size (in units of 100000 bytes), from 1 to 9
+     * @throws IOException If the stream header can't be written
+     */
+    public BZip2OutputStream(OutputStream out, int blockSize) throws IOException {
+        super();
+        if (blockSize < 1 || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("blockSize: " + blockSize); //$NON-NLS-1$
+        }
+        this.mOut = out;
+        this.mBlockSize = blockSize;
+        this.mMaxBlock = blockSize * 100000 - 19;
+        this.mBlock = new byte[this.mMaxBlock + 5];
+        this.mBlockLen = 0;
+        this.mBlockCrc = 0xffffffff;
+        this.mCombinedCrc = 0;
+        this.mRunChar = -1;
+        this.mRunLength = 0;
+        this.mFinished = false;
+
+        // The stream header
+        out.write('B');
+        out.write('Z');
+        out.write('h');
+        out.write('0' + blockSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(int b) throws IOException {
+        this.mSingle[0] = (byte)b;
+        write(this.mSingle, 0, 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (this.mFinished) {
+            throw new IOException("stream finished"); //$NON-NLS-1$
+        }
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            int c = b[i] & 0xff;
+            if (c == this.mRunChar && this.mRunLength < 255) {
+                this.mRunLength++;
+            } else {
+                if (this.mRunLength > 0) {
+                    writeRun();
+                }
+                this.mRunChar = c;
+                this.mRunLength = 1;
+            }
+        }
+    }
+
+    /**
+     * Method that finishes the compressed stream, without closing the underlying stream.
+     *
+     * @throws IOException If the data can't be written
+     */
+    public void finish() throws IOException {
+        if (this.mFinished) {
+            return;
+        }
+        if (this.mRunLength > 0) {
+            writeRun();
+        }
+        if (this.mBlockLen > 0) {
+            writeBlock();
+        }
+
+        // The end of stream marker and the combined crc
+        writeBits(24, 0x177245);
+        writeBits(24, 0x385090);
+        writeBits(32, this.mCombinedCrc);
+        if (this.mBitCount > 0) {
+            writeBits(8 - this.mBitCount, 0);
+        }
+        this.mFinished = true;
+
+        // Release the work arrays
+        this.mSa = null;
+        this.mRank = null;
+        this.mTmp = null;
+        this.mCount = null;
+        this.mMtfv = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void flush() throws IOException {
+        this.mOut.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.mOut != null) {
+            try {
+                finish();
+            } finally {
+                this.mOut.close();
+                this.mOut = null;
+            }
+        }
+    }
+
+    /**
+     * Method that writes the current run of the input in the block (a run of 4 or more
+     * bytes is written as 4 bytes and the number of remaining bytes).
+     *
+     * @throws IOException If the block is full and can't be written
+     */
+    private void writeRun() throws IOException {
+        if (this.mBlockLen >= this.mMaxBlock) {
+            writeBlock();
+        }
+        byte c = (byte)this.mRunChar;
+        int len = this.mRunLength;
+        for (int i = 0; i < len; i++) {
+            this.mBlockCrc = CRC.update(this.mBlockCrc, c);
+        }
+        byte[] block = this.mBlock;
+        if (len < 4) {
+            for (int i = 0; i < len; i++) {
+                block[this.mBlockLen++] = c;
+            }
+        } else {
+            block[this.mBlockLen++] = c;
+            block[this.mBlockLen++] = c;
+            block[this.mBlockLen++] = c;
+            block[this.mBlockLen++] = c;
+            block[this.mBlockLen++] = (byte)(len - 4);
+        }
+        this.mRunLength = 0;
+        this.mRunChar = -1;
+    }
+
+    /**
+     * Method that compresses and writes the current block.
+     *
+     * @throws IOException If the block can't be written
+     */
+    private void writeBlock() throws IOException {
+        int n = this.mBlockLen;
+        int crc = ~this.mBlockCrc;
+        this.mCombinedCrc = ((this.mCombinedCrc << 1) | (this.mCombinedCrc >>> 31)) ^ crc;
+
+        int origPtr = sortBlock(n);
+
+        // The block header
+        writeBits(24, 0x314159);
+        writeBits(24, 0x265359);
+        writeBits(32, crc);
+        writeBits(1, 0);
+        writeBits(24, origPtr);
+
+        // The bytes used in the block
+        boolean[] inUse = new boolean[256];
+        for (int i = 0; i < n; i++) {
+            inUse[this.mBlock[i] & 0xff] = true;
+        }
+        int nInUse = 0;
+        int[] unseqToSeq = new int[256];
+        int inUse16 = 0;
+        for (int i = 0; i < 256; i++) {
+            if (inUse[i]) {
+                unseqToSeq[i] = nInUse++;
+                inUse16 |= 1 << (15 - (i >> 4));
+            }
+        }
+        writeBits(16, inUse16);
+        for (int i = 0; i < 16; i++) {
+            if ((inUse16 & (1 << (15 - i))) != 0) {
+                int bits = 0;
+                for (int j = 0; j < 16; j++) {
+                    if (inUse[i * 16 + j]) {
+                        bits |= 1 << (15 - j);
+                    }
+                }
+                writeBits(16, bits);
+            }
+        }
+
+        // Move-to-front and run-length of the zeros
+        int alphaSize = nInUse + 2;
+        int[] mtfFreq = new int[alphaSize];
+        int nMtf = generateMtfValues(n, unseqToSeq, nInUse, mtfFreq);
+        sendMtfValues(nMtf, alphaSize, mtfFreq);
+
+        // Next block
+        this.mBlockLen = 0;
+        this.mBlockCrc = 0xffffffff;
+    }
+
+    /**
+     * Method that sorts the rotations of the block (prefix doubling, with a counting sort
+     * for every pass) and replaces the block with its last column.
+     *
+     * @param n The length of the block
+     * @return int The position of the original rotation in the sorted rotations
+     */
+    private int sortBlock(int n) {
+        if (this.mSa == null) {
+            int size = this.mMaxBlock + 5;
+            this.mSa = new int[size];
+            this.mRank = new int[size];
+            this.mTmp = new int[size];
+            this.mCount = new int[Math.max(256, size)];
+        }
+        byte[] block = this.mBlock;
+        int[] sa = this.mSa;
+        int[] rank = this.mRank;
+        int[] tmp = this.mTmp;
+        int[] count = this.mCount;
+
+        // Sort by the first byte
+        Arrays.fill(count, 0, 256, 0);
+        for (int i = 0; i < n; i++) {
+            count[block[i] & 0xff]++;
+        }
+        for (int i = 1; i < 256; i++) {
+            count[i] += count[i - 1];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            sa[--count[block[i] & 0xff]] = i;
+        }
+        rank[sa[0]] = 0;
+        for (int i = 1; i < n; i++) {
+            rank[sa[i]] = rank[sa[i - 1]] +
+                    ((block[sa[i]] != block[sa[i - 1]]) ? 1 : 0);
+        }
+        int classes = rank[sa[n - 1]] + 1;
+
+        // Sort by the first 2k bytes, using the order of the first k bytes
+        for (int k = 1; classes < n && k < n; k <<= 1) {
+            for (int i = 0; i < n; i++) {
+                int j = sa[i] - k;
+                tmp[i] = j < 0 ? j + n : j;
+            }
+            Arrays.fill(count, 0, classes, 0);
+            for (int i = 0; i < n; i++) {
+                count[rank[tmp[i]]]++;
+            }
+            for (int i = 1; i < classes; i++) {
+                count[i] += count[i - 1];
+            }
+            for (int i = n - 1; i >= 0; i--) {
+                sa[--count[rank[tmp[i]]]] = tmp[i];
+            }
+            tmp[sa[0]] = 0;
+            for (int i = 1; i < n; i++) {
+                int cur = sa[i];
+                int prev = sa[i - 1];
+                int cur2 = cur + k;
+                int prev2 = prev + k;
+                if (cur2 >= n) cur2 -= n;
+                if (prev2 >= n) prev2 -= n;
+                tmp[cur] = tmp[prev] +
+                        ((rank[cur] != rank[prev] || rank[cur2] != rank[prev2]) ? 1 : 0);
+            }
+            int[] swap = rank;
+            rank = tmp;
+            tmp = swap;
+            classes = rank[sa[n - 1]] + 1;
+        }
+        this.mRank = rank;
+        this.mTmp = tmp;
+
+        // The last column of the sorted rotations
+        int origPtr = -1;
+        for (int i = 0; i < n; i++) {
+            int j = sa[i];
+            if (j == 0) {
+                origPtr = i;
+                j = n;
+            }
+            tmp[i] = block[j - 1] & 0xff;
+        }
+        return origPtr;
+    }
+
+    /**
+     * Method that generates the move-to-front values of the last column of the block.
+     *
+     * @param n The length of the block
+     * @param unseqToSeq The index of every used byte
+     * @param nInUse The number of used bytes
+     * @param mtfFreq The frequencies of the values generated
+     * @return int The number of values generated
+     */
+    private int generateMtfValues(int n, int[] unseqToSeq, int nInUse, int[] mtfFreq) {
+        if (this.mMtfv == null) {
+            this.mMtfv = new char[this.mMaxBlock + 7];
+        }
+        char[] mtfv = this.mMtfv;
+        int[] last = this.mTmp;
+        int eob = nInUse + 1;
+        int[] yy = new int[nInUse];
+        for (int i = 0; i < nInUse; i++) {
+            yy[i] = i;
+        }
+
+        int wr = 0;
+        int zPend = 0;
+        for (int i = 0; i < n; i++) {
+            int ll = unseqToSeq[last[i]];
+            if (yy[0] == ll) {
+                zPend++;
+                continue;
+            }
+            if (zPend > 0) {
+                wr = writeZeroRun(mtfv, wr, zPend, mtfFreq);
+                zPend = 0;
+            }
+            int j = 1;
+            int prev = yy[0];
+            while (yy[j] != ll) {
+                int t = yy[j];
+                yy[j] = prev;
+                prev = t;
+                j++;
+            }
+            yy[j] = prev;
+            yy[0] = ll;
+            mtfv[wr++] = (char)(j + 1);
+            mtfFreq[j + 1]++;
+        }
+        if (zPend > 0) {
+            wr = writeZeroRun(mtfv, wr, zPend, mtfFreq);
+        }
+        mtfv[wr++] = (char)eob;
+        mtfFreq[eob]++;
+        return wr;
+    }
+
+    /**
+     * Method that writes a run of zeros of the move-to-front values (in bijective base 2,
+     * with the RUNA and RUNB symbols).
+     *
+     * @param mtfv The move-to-front values
+     * @param wr The position where to write
+     * @param zPend The length of the run
+     * @param mtfFreq The frequencies of the values
+     * @return int The new position where to write
+     */
+    private static int writeZeroRun(char[] mtfv, int wr, int zPend, int[] mtfFreq) {
+        int z = zPend - 1;
+        while (true) {
+            int sym = (z & 1) != 0 ? RUNB : RUNA;
+            mtfv[wr++] = (char)sym;
+            mtfFreq[sym]++;
+            if (z < 2) {
+                break;
+            }
+            z = (z - 2) / 2;
+        }
+        return wr;
+    }
+
+    /**
+     * Method that builds the Huffman tables of the move-to-front values and writes the
+     * tables, the selectors and the coded values.
+     *
+     * @param nMtf The number of move-to-front values
+     * @param alphaSize The size of the alphabet
+     * @param mtfFreq The frequencies of the values
+     * @throws IOException If the data can't be written
+     */
+    private void sendMtfValues(int nMtf, int alphaSize, int[] mtfFreq) throws IOException {
+        char[] mtfv = this.mMtfv;
+        int nGroups;
+        if (nMtf < 200) {
+            nGroups = 2;
+        } else if (nMtf < 600) {
+            nGroups = 3;
+        } else if (nMtf < 1200) {
+            nGroups = 4;
+        } else if (nMtf < 2400) {
+            nGroups = 5;
+        } else {
+            nGroups = N_GROUPS;
+        }
+
+        // The initial tables (every table codes cheaply a range of the alphabet)
+        int[][] len = new int[nGroups][alphaSize];
+        int nPart = nGroups;
+        int remF = nMtf;
+        int gs = 0;
+        while (nPart > 0) {
+            int tFreq = remF / nPart;
+            int ge = gs - 1;
+            int aFreq = 0;
+            while (aFreq < tFreq && ge < alphaSize - 1) {
+                ge++;
+                aFreq += mtfFreq[ge];
+            }
+            if (ge > gs && nPart != nGroups && nPart != 1 && ((nGroups - nPart) % 2 == 1)) {
+                aFreq -= mtfFreq[ge];
+                ge--;
+            }
+            for (int v = 0; v < alphaSize; v++) {
+                len[nPart - 1][v] = (v >= gs && v <= ge) ? 0 : 15;
+            }
+            nPart--;
+            gs = ge + 1;
+            remF -= aFreq;
+        }
+
+        // Refine the tables, choosing the cheapest table for every group of symbols
+        int nSelectors = (nMtf + G_SIZE - 1) / G_SIZE;
+        byte[] selectors = new byte[nSelectors];
+        int[][] rfreq = new int[nGroups][alphaSize];
+        int[] cost = new int[nGroups];
+        for (int iter = 0; iter < N_ITERS; iter++) {
+            for (int t = 0; t < nGroups; t++) {
+                Arrays.fill(rfreq[t], 0);
+            }
+            int sel = 0;
+            for (gs = 0; gs < nMtf; gs += G_SIZE) {
+                int ge = Math.min(gs + G_SIZE, nMtf);
+                Arrays.fill(cost, 0);
+                for (int i = gs; i < ge; i++) {
+                    int v = mtfv[i];
+                    for (int t = 0; t < nGroups; t++) {
+                        cost[t] += len[t][v];
+                    }
+                }
+                int bt = 0;
+                for (int t = 1; t < nGroups; t++) {
+                    if (cost[t] < cost[bt]) {
+                        bt = t;
+                    }
+                }
+                selectors[sel++] = (byte)bt;
+                for (int i = gs; i < ge; i++) {
+                    rfreq[bt][mtfv[i]]++;
+                }
+            }
+            for (int t = 0; t < nGroups; t++) {
+                makeCodeLengths(rfreq[t], len[t], alphaSize);
+            }
+        }
+
+        // The selectors (move-to-front coded, in unary)
+        writeBits(3, nGroups);
+        writeBits(15, nSelectors);
+        byte[] pos = new byte[nGroups];
+        for (int i = 0; i < nGroups; i++) {
+            pos[i] = (byte)i;
+        }
+        for (int i = 0; i < nSelectors; i++) {
+            byte s = selectors[i];
+            int j = 0;
+            byte prev = pos[0];
+            while (prev != s) {
+                j++;
+                byte t = pos[j];
+                pos[j] = prev;
+                prev = t;
+            }
+            pos[0] = s;
+            for (int k = 0; k < j; k++) {
+                writeBits(1, 1);
+            }
+            writeBits(1, 0);
+        }
+
+        // The code lengths (delta coded)
+        int[][] code = new int[nGroups][alphaSize];
+        for (int t = 0; t < nGroups; t++) {
+            int curr = len[t][0];
+            writeBits(5, curr);
+            for (int i = 0; i < alphaSize; i++) {
+                while (curr < len[t][i]) {
+                    writeBits(2, 2);
+                    curr++;
+                }
+                while (curr > len[t][i]) {
+                    writeBits(2, 3);
+                    curr--;
+                }
+                writeBits(1, 0);
+            }
+            assignCodes(len[t], code[t], alphaSize);
+        }
+
+        // The values
+        int sel = 0;
+        for (gs = 0; gs < nMtf; gs += G_SIZE) {
+            int ge = Math.min(gs + G_SIZE, nMtf);
+            int t = selectors[sel++];
+            int[] tlen = len[t];
+            int[] tcode = code[t];
+            for (int i = gs; i < ge; i++) {
+                int v = mtfv[i];
+                writeBits(tlen[v], tcode[v]);
+            }
+        }
+    }
+
+    /**
+     * Method that computes the lengths of the Huffman codes of an alphabet, limited to
+     * {@link #MAX_CODE_LEN} (the frequencies are flattened while the codes are too long).
+     *
+     * @param freq The frequencies of the symbols
+     * @param len The lengths computed
+     * @param alphaSize The size of the alphabet
+     */
+    private static void makeCodeLengths(int[] freq, int[] len, int alphaSize) {
+        long[] weight = new long[alphaSize];
+        for (int i = 0; i < alphaSize; i++) {
+            weight[i] = freq[i] == 0 ? 1 : freq[i];
+        }
+        int[] parent = new int[alphaSize * 2];
+        long[] nodeWeight = new long[alphaSize * 2];
+        boolean[] used = new boolean[alphaSize * 2];
+        while (true) {
+            // Build the tree merging the two lightest nodes
+            int nodes = alphaSize;
+            for (int i = 0; i < alphaSize; i++) {
+                nodeWeight[i] = weight[i];
+                used[i] = false;
+            }
+            for (int m = 0; m < alphaSize - 1; m++) {
+                int a = -1;
+                int b = -1;
+                for (int i = 0; i < nodes; i++) {
+                    if (used[i]) continue;
+                    if (a == -1 || nodeWeight[i] < nodeWeight[a]) {
+                        b = a;
+                        a = i;
+                    } else if (b == -1 || nodeWeight[i] < nodeWeight[b]) {
+                        b = i;
+                    }
+                }
+                used[a] = true;
+                used[b] = true;
+                parent[a] = nodes;
+                parent[b] = nodes;
+                nodeWeight[nodes] = nodeWeight[a] + nodeWeight[b];
+                used[nodes] = false;
+                nodes++;
+            }
+
+            // The length of a code is the depth of its leaf
+            boolean tooLong = false;
+            int root = nodes - 1;
+            for (int i = 0; i < alphaSize; i++) {
+                int depth = 0;
+                int k = i;
+                while (k != root) {
+                    k = parent[k];
+                    depth++;
+                }
+                len[i] = depth;
+                if (depth > MAX_CODE_LEN) {
+                    tooLong = true;
+                }
+            }
+            if (!tooLong) {
+                return;
+            }
+            for (int i = 0; i < alphaSize; i++) {
+                weight[i] = 1 + (weight[i] / 2);
+            }
+        }
+    }
+
+    /**
+     * Method that assigns the canonical Huffman codes from their lengths.
+     *
+     * @param len The lengths of the codes
+     * @param code The codes assigned
+     * @param alphaSize The size of the alphabet
+     */
+    private static void assignCodes(int[] len, int[] code, int alphaSize) {
+        int minLen = 32;
+        int maxLen = 0;
+        for (int i = 0; i < alphaSize; i++) {
+            minLen = Math.min(minLen, len[i]);
+            maxLen = Math.max(maxLen, len[i]);
+        }
+        int vec = 0;
+        for (int n = minLen; n <= maxLen; n++) {
+            for (int i = 0; i < alphaSize; i++) {
+                if (len[i] == n) {
+                    code[i] = vec++;
+                }
+            }
+            vec <<= 1;
+        }
+    }
+
+    /**
+     * Method that writes bits to the stream.
+     *
+     * @param n The number of bits (up to 32)
+     * @param v The bits (the lower n bits)
+     * @throws IOException If the data can't be written
+     */
+    private void writeBits(int n, int v) throws IOException {
+        this.mBitBuffer = (this.mBitBuffer << n) | (v & ((1L << n) - 1));
+        this.mBitCount += n;
+        while (this.mBitCount >= 8) {
+            this.mBitCount -= 8;
+            this.mOut.write((int)(this.mBitBuffer >>> this.mBitCount));
+        }
+    }
+
+    /**
+     * The crc of the bzip2 blocks (the crc32 polynomial, without bit reflection).
+     */
+    static final class CRC {
+        private static final int[] TABLE = new int[256];
+        static {
+            for (int i = 0; i < 256; i++) {
+                int c = i << 24;
+                for (int j = 0; j < 8; j++) {
+                    c = (c & 0x80000000) != 0 ? (c << 1) ^ 0x04c11db7 : c << 1;
+                }
+                TABLE[i] = c;
+            }
+        }
+
+        /**
+         * Constructor of <code>CRC</code>.
+         */
+        private CRC() {
+            super();
+        }
+
+        /**
+         * Method that updates a crc with a byte.
+         *
+         * @param crc The current crc
+         * @param b The byte
+         * @return int The new crc
+         */
+        static int update(int crc, byte b) {
+            return (crc << 8) ^ TABLE[((crc >>> 24) ^ b) & 0xff];
+        }
+    }
+}
@@ -23,27 +23,34 @@ import com.cyanogenmod.filemanager.commands.ChangeCurrentDirExecutable;
 import com.cyanogenmod.filemanager.commands.ChangeOwnerExecutable;
 import com.cyanogenmod.filemanager.commands.ChangePermissionsExecutable;
 import com.cyanogenmod.filemanager.commands.CompressExecutable;
+import com.cyanogenmod.filemanager.commands.CopyBatchExecutable;
 import com.cyanogenmod.filemanager.commands.CopyExecutable;
 import com.cyanogenmod.filemanager.commands.CreateDirExecutable;
 import com.cyanogenmod.filemanager.commands.CreateFileExecutable;
 import com.cyanogenmod.filemanager.commands.CurrentDirExecutable;
+import com.cyanogenmod.filemanager.commands.DeleteBatchExecutable;
 import com.cyanogenmod.filemanager.commands.DeleteDirExecutable;
 import com.cyanogenmod.filemanager.commands.DeleteFileExecutable;
 import com.cyanogenmod.filemanager.commands.DiskUsageExecutable;
 import com.cyanogenmod.filemanager.commands.EchoExecutable;
 import com.cyanogenmod.filemanager.commands.ExecExecutable;
 import com.cyanogenmod.filemanager.commands.Executable;
+import com.cyanogenmod.filemanager.commands.FileInfoBatchExecutable;
+import com.cyanogenmod.filemanager.commands.FindDuplicatesExecutable;
 import com.cyanogenmod.filemanager.commands.FindExecutable;
 import com.cyanogenmod.filemanager.commands.FolderUsageExecutable;
 import com.cyanogenmod.filemanager.commands.GroupsExecutable;
 import com.cyanogenmod.filemanager.commands.IdentityExecutable;
+import com.cyanogenmod.filemanager.commands.LargestFilesExecutable;
 import com.cyanogenmod.filemanager.commands.LinkExecutable;
 import com.cyanogenmod.filemanager.commands.ListExecutable;
 import com.cyanogenmod.filemanager.commands.MountExecutable;
 import com.cyanogenmod.filemanager.commands.MountPointInfoExecutable;
+import com.cyanogenmod.filemanager.commands.MoveBatchExecutable;
 import com.cyanogenmod.filemanager.commands.MoveExecutable;
 import com.cyanogenmod.filemanager.commands.ParentDirExecutable;
 import com.cyanogenmod.filemanager.commands.ProcessIdExecutable;
+import com.cyanogenmod.filemanager.commands.ProgressExecutable;
 import com.cyanogenmod.filemanager.commands.QuickFolderSearchExecutable;
 import com.cyanogenmod.filemanager.commands.ReadExecutable;
 import com.cyanogenmod.filemanager.commands.ResolveLinkExecutable;
@@ -58,12 +65,14 @@ import com.cyanogenmod.filemanager.console.CommandNotFoundException;
 import com.cyanogenmod.filemanager.console.Console;
 import com.cyanogenmod.filemanager.console.ConsoleAllocException;
 import com.cyanogenmod.filemanager.console.ConsoleBuilder;
+import com.cyanogenmod.filemanager.console.ConsoleFuture;
 import com.cyanogenmod.filemanager.console.ExecutionException;
 import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
 import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
 import com.cyanogenmod.filemanager.console.OperationTimeoutException;
 import com.cyanogenmod.filemanager.console.ReadOnlyFilesystemException;
 import com.cyanogenmod.filemanager.model.DiskUsage;
+import com.cyanogenmod.filemanager.model.DuplicateGroup;
 import com.cyanogenmod.filemanager.model.FileSystemObject;
 import com.cyanogenmod.filemanager.model.FolderUsage;
 import com.cyanogenmod.filemanager.model.Group;
@@ -72,12 +81,19 @@ import com.cyanogenmod.filemanager.model.MountPoint;
 import com.cyanogenmod.filemanager.model.Permissions;
 import com.cyanogenmod.filemanager.model.Query;
 import com.cyanogenmod.filemanager.model.SearchResult;
+import com.cyanogenmod.filemanager.model.SizeRanking;
 import com.cyanogenmod.filemanager.model.User;
 import com.cyanogenmod.filemanager.preferences.CompressionMode;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 
 /**
@@ -380,13 +396,129 @@ public final class CommandHelper {
             NoSuchFileOrDirectory, InsufficientPermissionsException,
             CommandNotFoundException, OperationTimeoutException,
             ExecutionException, InvalidCommandDefinitionException, ReadOnlyFilesystemException {
+        return deleteDirectory(context, directory, null, console);
+    }
+
+    /**
+     * Method that deletes a directory, reporting the files deleted.
+     *
+     * @param context The current context (needed if console == null)
+     * @param directory The directory to delete
+     * @param tracker The tracker where to report the progress of the operation (or null)
+     * @param console The console in which execute the program. <code>null</code>
+     * to attach to the default console
+     * @return boolean The operation result
+     * @throws FileNotFoundException If the initial directory not exists
+     * @throws IOException If initial directory couldn't be checked
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     * @throws NoSuchFileOrDirectory If the file or directory was not found
+     * @throws ConsoleAllocException If the console can't be allocated
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @throws CommandNotFoundException If the command was not found
+     * @throws OperationTimeoutException If the operation exceeded the maximum time of wait
+     * @throws ExecutionException If the operation returns a invalid exit code
+     * @throws ReadOnlyFilesystemException If the operation writes in a read-only filesystem
+     * @see DeleteDirExecutable
+     * @see ProgressTracker
+     */
+    public static boolean deleteDirectory(
+            Context context, String directory, ProgressTracker tracker, Console console)
+            throws FileNotFoundException, IOException, ConsoleAllocException,
+            NoSuchFileOrDirectory, InsufficientPermissionsException,
+            CommandNotFoundException, OperationTimeoutException,
+            ExecutionException, InvalidCommandDefinitionException, ReadOnlyFilesystemException {
         Console c = ensureConsole(context, console);
         DeleteDirExecutable executable =
                 c.getExecutableFactory().newCreator().createDeleteDirExecutable(directory);
-        writableExecute(context, executable, c);
+        trackedWritableExecute(context, executable, c, tracker, null);
+        if (tracker != null) {
+            tracker.finish();
+        }
         return executable.getResult().booleanValue();
     }
 
+    /**
+     * Method that deletes a set of files and directories (recursively). The paths are
+     * deleted in as few invocations as possible (the paths are grouped by mount point and
+     * split to not exceed the maximum length of the arguments of a command).
+     *
+     * @param context The current context (needed if console == null)
+     * @param paths The files and directories to delete
+     * @param console The console in which execute the program. <code>null</code>
+     * to attach to the default console
+     * @return Map<String, String> The paths that couldn't be deleted, with the reason
+     * of the failure
+     * @throws FileNotFoundException If the initial directory not exists
+     * @throws IOException If initial directory couldn't be checked
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     * @throws NoSuchFileOrDirectory If the file or directory was not found
+     * @throws ConsoleAllocException If the console can't be allocated
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @throws CommandNotFoundException If the command was not found
+     * @throws OperationTimeoutException If the operation exceeded the maximum time of wait
+     * @throws ExecutionException If the operation returns a invalid exit code
+     * @throws ReadOnlyFilesystemException If the operation writes in a read-only filesystem
+     * @see DeleteBatchExecutable
+     */
+    public static Map<String, String> deleteFiles(Context context, String[] paths, Console console)
+            throws FileNotFoundException, IOException, ConsoleAllocException,
+            NoSuchFileOrDirectory, InsufficientPermissionsException,
+            CommandNotFoundException, OperationTimeoutException,
+            ExecutionException, InvalidCommandDefinitionException, ReadOnlyFilesystemException {
+        return deleteFiles(context, paths, null, console);
+    }
+
+    /**
+     * Method that deletes a set of files and directories (recursively), reporting the
+     * files deleted.
+     *
+     * @param context The current context (needed if console == null)
+     * @param paths The files and directories to delete
+     * @param tracker The tracker where to report the progress of the operation (or null)
+     * @param console The console in which execute the program. <code>null</code>
+     * to attach to the default console
+     * @return Map<String, String> The paths that couldn't be deleted, with the reason
+     * of the failure
+     * @throws FileNotFoundException If the initial directory not exists
+     * @throws IOException If initial directory couldn't be checked
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     * @throws NoSuchFileOrDirectory If the file or directory was not found
+     * @throws ConsoleAllocException If the console can't be allocated
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @throws CommandNotFoundException If the command was not found
+     * @throws OperationTimeoutException If the operation exceeded the maximum time of wait
+     * @throws ExecutionException If the operation returns a invalid exit code
+     * @throws ReadOnlyFilesystemException If the operation writes in a read-only filesystem
+     * @see DeleteBatchExecutable
+     * @see ProgressTracker
+     */
+    public static Map<String, String> deleteFiles(
+            Context context, String[] paths, ProgressTracker tracker, Console console)
+            throws FileNotFoundException, IOException, ConsoleAllocException,
+            NoSuchFileOrDirectory, InsufficientPermissionsException,
+            CommandNotFoundException, OperationTimeoutException,
+            ExecutionException, InvalidCommandDefinitionException, ReadOnlyFilesystemException {
+        Console c = ensureConsole(context, console);
+        Map<String, String> failures = new LinkedHashMap<String, String>();
+        List<String[]> chunks =
+                splitByMountPoint(paths, ShellHelper.MAX_EXPANDED_ARGS_LENGTH);
+        int cc = chunks.size();
+        for (int i = 0; i < cc; i++) {
+            DeleteBatchExecutable executable =
+                    c.getExecutableFactory().newCreator().
+                        createDeleteBatchExecutable(chunks.get(i));
+            trackedWritableExecute(context, executable, c, tracker, null);
+            Map<String, String> result = executable.getResult();
+            if (result != null) {
+                failures.putAll(result);
+            }
+        }
+        if (tracker != null) {
+            tracker.finish();
+        }
+        return failures;
+    }
+
     /**
      * Method that deletes a file.
      *
@@ -582,6 +714,62 @@ public final class CommandHelper {
         return null;
     }
 
+    /**
+     * Method that retrieves the information of a set of file system objects. The
+     * information is retrieved in as few invocations as possible (the paths are split
+     * to not exceed the maximum length of the arguments of a command).
+     *
+     * @param context The current context (needed if console == null)
+     * @param src The file system objects
+     * @param followSymlinks It should be follow the symlinks
+     * @param console The console in which execute the program. <code>null</code>
+     * to attach to the default console
+     * @return Map<String, FileSystemObject> The file system objects references, indexed
+     * by the requested path. A <code>null</code> value means that the file system object
+     * doesn't exists.
+     * @throws FileNotFoundException If the initial directory not exists
+     * @throws IOException If initial directory couldn't be checked
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     * @throws NoSuchFileOrDirectory If the file or directory was not found
+     * @throws ConsoleAllocException If the console can't be allocated
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @throws CommandNotFoundException If the command was not found
+     * @throws OperationTimeoutException If the operation exceeded the maximum time of wait
+     * @throws ExecutionException If the operation returns a invalid exit code
+     * @see FileInfoBatchExecutable
+     */
+    public static Map<String, FileSystemObject> getFilesInfo(
+            Context context, String[] src, boolean followSymlinks, Console console)
+            throws FileNotFoundException, IOException, ConsoleAllocException,
+            NoSuchFileOrDirectory, InsufficientPermissionsException,
+            CommandNotFoundException, OperationTimeoutException,
+            ExecutionException, InvalidCommandDefinitionException {
+        Console c = ensureConsole(context, console);
+        Map<String, FileSystemObject> files =
+                new LinkedHashMap<String, FileSystemObject>(src.length);
+        List<String[]> chunks =
+                ShellHelper.splitArguments(src, ShellHelper.MAX_EXPANDED_ARGS_LENGTH);
+        int cc = chunks.size();
+        for (int i = 0; i < cc; i++) {
+            FileInfoBatchExecutable executable =
+                    c.getExecutableFactory().
+                        newCreator().createFileInfoBatchExecutable(
+                                chunks.get(i), followSymlinks);
+            execute(context, executable, c);
+            files.putAll(executable.getResult());
+        }
+
+        // Resolve symlinks prior to return the objects
+        List<FileSystemObject> found = new ArrayList<FileSystemObject>(files.size());
+        for (FileSystemObject fso : files.values()) {
+            if (fso != null) {
+                found.add(fso);
+            }
+        }
+        FileHelper.resolveSymlinks(context, found);
+        return files;
+    }
+
     /**
      * Method that retrieves the information of the groups of the current user.
      *
@@ -799,13 +987,151 @@ public final class CommandHelper {
             NoSuchFileOrDirectory, InsufficientPermissionsException,
             CommandNotFoundException, OperationTimeoutException,
             ExecutionException, InvalidCommandDefinitionException, ReadOnlyFilesystemException {
+        return move(context, src, dst, null, console);
+    }
+
+    /**
+     * Method that moves a file system object.
+     *
+     * @param context The current context (needed if console == null)
+     * @param src The file system object to move
+     * @param dst The destination file system object
+     * @param tracker The tracker where to report the progress of the operation (or null)
+     * @param console The console in which execute the program. <code>null</code>
+     * to attach to the default console
+     * @return boolean The operation result
+     * @throws FileNotFoundException If the initial directory not exists
+     * @throws IOException If initial directory couldn't be checked
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     * @throws NoSuchFileOrDirectory If the file or directory was not found
+     * @throws ConsoleAllocException If the console can't be allocated
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @throws CommandNotFoundException If the command was not found
+     * @throws OperationTimeoutException If the operation exceeded the maximum time of wait
+     * @throws ExecutionException If the operation returns a invalid exit code
+     * @throws ReadOnlyFilesystemException If the operation writes in a read-only filesystem
+     * @see MoveExecutable
+     * @see ProgressTracker
+     */
+    public static boolean move(
+            Context context, String src, String dst, ProgressTracker tracker, Console console)
+            throws FileNotFoundException, IOException, ConsoleAllocException,
+            NoSuchFileOrDirectory, InsufficientPermissionsException,
+            CommandNotFoundException, OperationTimeoutException,
+            ExecutionException, InvalidCommandDefinitionException, ReadOnlyFilesystemException {
         Console c = ensureConsole(context, console);
         MoveExecutable executable =
                 c.getExecutableFactory().newCreator().createMoveExecutable(src, dst);
-        writableExecute(context, executable, c);
+        trackedWritableExecute(context, executable, c, tracker, new String[]{dst});
+        if (tracker != null) {
+            tracker.finish();
+        }
         return executable.getResult().booleanValue();
     }
 
+    /**
+     * Method that moves a set of file system objects to a destination directory. The
+     * sources are moved in as few invocations as possible (the sources are grouped by
+     * mount point and split to not exceed the maximum length of the arguments of a
+     * command). The sources of other mount point than the destination are moved one by one.
+     *
+     * @param context The current context (needed if console == null)
+     * @param srcs The file system objects to move
+     * @param dst The destination directory
+     * @param console The console in which execute the program. <code>null</code>
+     * to attach to the default console
+     * @return Map<String, String> The sources that couldn't be moved, with the reason
+     * of the failure
+     * @throws FileNotFoundException If the initial directory not exists
+     * @throws IOException If initial directory couldn't be checked
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     * @throws NoSuchFileOrDirectory If the file or directory was not found
+     * @throws ConsoleAllocException If the console can't be allocated
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @throws CommandNotFoundException If the command was not found
+     * @throws OperationTimeoutException If the operation exceeded the maximum time of wait
+     * @throws ExecutionException If the operation returns a invalid exit code
+     * @throws ReadOnlyFilesystemException If the operation writes in a read-only filesystem
+     * @see MoveBatchExecutable
+     */
+    public static Map<String, String> moveFiles(
+            Context context, String[] srcs, String dst, Console console)
+            throws FileNotFoundException, IOException, ConsoleAllocException,
+            NoSuchFileOrDirectory, InsufficientPermissionsException,
+            CommandNotFoundException, OperationTimeoutException,
+            ExecutionException, InvalidCommandDefinitionException, ReadOnlyFilesystemException {
+        return moveFiles(context, srcs, dst, null, console);
+    }
+
+    /**
+     * Method that moves a set of file system objects to a destination directory. The
+     * sources are moved in as few invocations as possible (the sources are grouped by
+     * mount point and split to not exceed the maximum length of the arguments of a
+     * command). The sources of other mount point than the destination are moved one by one.
+     *
+     * @param context The current context (needed if console == null)
+     * @param srcs The file system objects to move
+     * @param dst The destination directory
+     * @param tracker The tracker where to report the progress of the operation (or null)
+     * @param console The console in which execute the program. <code>null</code>
+     * to attach to the default console
+     * @return Map<String, String> The sources that couldn't be moved, with the reason
+     * of the failure
+     * @throws FileNotFoundException If the initial directory not exists
+     * @throws IOException If initial directory couldn't be checked
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     * @throws NoSuchFileOrDirectory If the file or directory was not found
+     * @throws ConsoleAllocException If the console can't be allocated
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @throws CommandNotFoundException If the command was not found
+     * @throws OperationTimeoutException If the operation exceeded the maximum time of wait
+     * @throws ExecutionException If the operation returns a invalid exit code
+     * @throws ReadOnlyFilesystemException If the operation writes in a read-only filesystem
+     * @see MoveBatchExecutable
+     * @see ProgressTracker
+     */
+    public static Map<String, String> moveFiles(
+            Context context, String[] srcs, String dst, ProgressTracker tracker,
+            Console console)
+            throws FileNotFoundException, IOException, ConsoleAllocException,
+            NoSuchFileOrDirectory, InsufficientPermissionsException,
+            CommandNotFoundException, OperationTimeoutException,
+            ExecutionException, InvalidCommandDefinitionException, ReadOnlyFilesystemException {
+        Console c = ensureConsole(context, console);
+        List<String[]> chunks =
+                splitByMountPoint(
+                        srcs, ShellHelper.MAX_EXPANDED_ARGS_LENGTH - dst.length() - 3);
+
+        // The batch move only renames, so it can't move the sources of other filesystem.
+        // They are moved one by one (the single move copies and deletes them)
+        MountPoint mpDst = MountPointHelper.getMountPointFromDirectory(dst);
+        List<String[]> batches = new ArrayList<String[]>(chunks.size());
+        List<WritableExecutable> executables = new ArrayList<WritableExecutable>(chunks.size());
+        int cc = chunks.size();
+        for (int i = 0; i < cc; i++) {
+            String[] chunk = chunks.get(i);
+            MountPoint mpSrc = MountPointHelper.getMountPointFromDirectory(chunk[0]);
+            if (mpSrc != null && mpDst != null &&
+                mpSrc.getMountPoint().compareTo(mpDst.getMountPoint()) == 0) {
+                batches.add(chunk);
+                executables.add(
+                        c.getExecutableFactory().newCreator().
+                            createMoveBatchExecutable(chunk, dst));
+                continue;
+            }
+            for (int j = 0; j < chunk.length; j++) {
+                batches.add(new String[]{chunk[j]});
+                executables.add(
+                        c.getExecutableFactory().newCreator().
+                            createMoveExecutable(
+                                    chunk[j],
+                                    new File(dst, new File(chunk[j]).getName()).
+                                        getAbsolutePath()));
+            }
+        }
+        return batchWritableExecute(context, executables, batches, dst, c, tracker);
+    }
+
     /**
      * Method that copies a file system object.
      *
@@ -832,13 +1158,130 @@ public final class CommandHelper {
             NoSuchFileOrDirectory, InsufficientPermissionsException,
             CommandNotFoundException, OperationTimeoutException,
             ExecutionException, InvalidCommandDefinitionException, ReadOnlyFilesystemException {
+        return copy(context, src, dst, null, console);
+    }
+
+    /**
+     * Method that copies a file system object.
+     *
+     * @param context The current context (needed if console == null)
+     * @param src The file system object to copy
+     * @param dst The destination file system object
+     * @param tracker The tracker where to report the progress of the operation (or null)
+     * @param console The console in which execute the program. <code>null</code>
+     * to attach to the default console
+     * @return boolean The operation result
+     * @throws FileNotFoundException If the initial directory not exists
+     * @throws IOException If initial directory couldn't be checked
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     * @throws NoSuchFileOrDirectory If the file or directory was not found
+     * @throws ConsoleAllocException If the console can't be allocated
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @throws CommandNotFoundException If the command was not found
+     * @throws OperationTimeoutException If the operation exceeded the maximum time of wait
+     * @throws ExecutionException If the operation returns a invalid exit code
+     * @throws ReadOnlyFilesystemException If the operation writes in a read-only filesystem
+     * @see CopyExecutable
+     * @see ProgressTracker
+     */
+    public static boolean copy(
+            Context context, String src, String dst, ProgressTracker tracker, Console console)
+            throws FileNotFoundException, IOException, ConsoleAllocException,
+            NoSuchFileOrDirectory, InsufficientPermissionsException,
+            CommandNotFoundException, OperationTimeoutException,
+            ExecutionException, InvalidCommandDefinitionException, ReadOnlyFilesystemException {
         Console c = ensureConsole(context, console);
         CopyExecutable executable =
                 c.getExecutableFactory().newCreator().createCopyExecutable(src, dst);
-        writableExecute(context, executable, c);
+        trackedWritableExecute(context, executable, c, tracker, new String[]{dst});
+        if (tracker != null) {
+            tracker.finish();
+        }
         return executable.getResult().booleanValue();
     }
 
+    /**
+     * Method that copies a set of file system objects to a destination directory. The
+     * sources are copied in as few invocations as possible (the sources are grouped by
+     * mount point and split to not exceed the maximum length of the arguments of a
+     * command).
+     *
+     * @param context The current context (needed if console == null)
+     * @param srcs The file system objects to copy
+     * @param dst The destination directory
+     * @param console The console in which execute the program. <code>null</code>
+     * to attach to the default console
+     * @return Map<String, String> The sources that couldn't be copied, with the reason
+     * of the failure
+     * @throws FileNotFoundException If the initial directory not exists
+     * @throws IOException If initial directory couldn't be checked
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     * @throws NoSuchFileOrDirectory If the file or directory was not found
+     * @throws ConsoleAllocException If the console can't be allocated
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @throws CommandNotFoundException If the command was not found
+     * @throws OperationTimeoutException If the operation exceeded the maximum time of wait
+     * @throws ExecutionException If the operation returns a invalid exit code
+     * @throws ReadOnlyFilesystemException If the operation writes in a read-only filesystem
+     * @see CopyBatchExecutable
+     */
+    public static Map<String, String> copyFiles(
+            Context context, String[] srcs, String dst, Console console)
+            throws FileNotFoundException, IOException, ConsoleAllocException,
+            NoSuchFileOrDirectory, InsufficientPermissionsException,
+            CommandNotFoundException, OperationTimeoutException,
+            ExecutionException, InvalidCommandDefinitionException, ReadOnlyFilesystemException {
+        return copyFiles(context, srcs, dst, null, console);
+    }
+
+    /**
+     * Method that copies a set of file system objects to a destination directory. The
+     * sources are copied in as few invocations as possible (the sources are grouped by
+     * mount point and split to not exceed the maximum length of the arguments of a
+     * command).
+     *
+     * @param context The current context (needed if console == null)
+     * @param srcs The file system objects to copy
+     * @param dst The destination directory
+     * @param tracker The tracker where to report the progress of the operation (or null)
+     * @param console The console in which execute the program. <code>null</code>
+     * to attach to the default console
+     * @return Map<String, String> The sources that couldn't be copied, with the reason
+     * of the failure
+     * @throws FileNotFoundException If the initial directory not exists
+     * @throws IOException If initial directory couldn't be checked
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     * @throws NoSuchFileOrDirectory If the file or directory was not found
+     * @throws ConsoleAllocException If the console can't be allocated
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @throws CommandNotFoundException If the command was not found
+     * @throws OperationTimeoutException If the operation exceeded the maximum time of wait
+     * @throws ExecutionException If the operation returns a invalid exit code
+     * @throws ReadOnlyFilesystemException If the operation writes in a read-only filesystem
+     * @see CopyBatchExecutable
+     * @see ProgressTracker
+     */
+    public static Map<String, String> copyFiles(
+            Context context, String[] srcs, String dst, ProgressTracker tracker,
+            Console console)
+            throws FileNotFoundException, IOException, ConsoleAllocException,
+            NoSuchFileOrDirectory, InsufficientPermissionsException,
+            CommandNotFoundException, OperationTimeoutException,
+            ExecutionException, InvalidCommandDefinitionException, ReadOnlyFilesystemException {
+        Console c = ensureConsole(context, console);
+        List<String[]> chunks =
+                splitByMountPoint(
+                        srcs, ShellHelper.MAX_EXPANDED_ARGS_LENGTH - dst.length() - 3);
+        List<WritableExecutable> executables = new ArrayList<WritableExecutable>(chunks.size());
+        int cc = chunks.size();
+        for (int i = 0; i < cc; i++) {
+            executables.add(
+                    c.getExecutableFactory().newCreator().
+                        createCopyBatchExecutable(chunks.get(i), dst));
+        }
+        return batchWritableExecute(context, executables, chunks, dst, c, tracker);
+    }
+
     /**
      * Method that executes a command.
      *
@@ -910,6 +1353,79 @@ public final class CommandHelper {
         return executable;
     }
 
+    /**
+     * Method that finds the duplicate files of one or more folders.
+     *
+     * @param context The current context (needed if console == null)
+     * @param directories The "absolute" directories where start the search
+     * @param asyncResultListener The partial result listener
+     * @param console The console in which execute the program.
+     * <code>null</code> to attach to the default console
+     * @return FindDuplicatesExecutable The command executed in background
+     * @throws FileNotFoundException If the initial directory not exists
+     * @throws IOException If initial directory couldn't be checked
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     * @throws NoSuchFileOrDirectory If the file or directory was not found
+     * @throws ConsoleAllocException If the console can't be allocated
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @throws CommandNotFoundException If the command was not found
+     * @throws OperationTimeoutException If the operation exceeded the maximum time of wait
+     * @throws ExecutionException If the operation returns a invalid exit code
+     * @see DuplicateGroup
+     * @see FindDuplicatesExecutable
+     */
+    public static FindDuplicatesExecutable findDuplicates(
+            Context context, String[] directories,
+            AsyncResultListener asyncResultListener, Console console)
+            throws FileNotFoundException, IOException, ConsoleAllocException,
+            NoSuchFileOrDirectory, InsufficientPermissionsException,
+            CommandNotFoundException, OperationTimeoutException,
+            ExecutionException, InvalidCommandDefinitionException {
+        Console c = ensureConsole(context, console);
+        FindDuplicatesExecutable executable =
+                c.getExecutableFactory().newCreator().
+                    createFindDuplicatesExecutable(directories, asyncResultListener);
+        execute(context, executable, c);
+        return executable;
+    }
+
+    /**
+     * Method that retrieves the largest files and folders of a volume.
+     *
+     * @param context The current context (needed if console == null)
+     * @param directory The "absolute" directory to analyze
+     * @param count The number of files and folders of the ranking
+     * @param asyncResultListener The partial result listener
+     * @param console The console in which execute the program.
+     * <code>null</code> to attach to the default console
+     * @return LargestFilesExecutable The command executed in background
+     * @throws FileNotFoundException If the initial directory not exists
+     * @throws IOException If initial directory couldn't be checked
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     * @throws NoSuchFileOrDirectory If the file or directory was not found
+     * @throws ConsoleAllocException If the console can't be allocated
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @throws CommandNotFoundException If the command was not found
+     * @throws OperationTimeoutException If the operation exceeded the maximum time of wait
+     * @throws ExecutionException If the operation returns a invalid exit code
+     * @see SizeRanking
+     * @see LargestFilesExecutable
+     */
+    public static LargestFilesExecutable getLargestFiles(
+            Context context, String directory, int count,
+            AsyncResultListener asyncResultListener, Console console)
+            throws FileNotFoundException, IOException, ConsoleAllocException,
+            NoSuchFileOrDirectory, InsufficientPermissionsException,
+            CommandNotFoundException, OperationTimeoutException,
+            ExecutionException, InvalidCommandDefinitionException {
+        Console c = ensureConsole(context, console);
+        LargestFilesExecutable executable =
+                c.getExecutableFactory().newCreator().
+                    createLargestFilesExecutable(directory, count, asyncResultListener);
+        execute(context, executable, c);
+        return executable;
+    }
+
     /**
      * Method that compute the disk usage of a folder.
      *
@@ -1011,6 +1527,34 @@ public final class CommandHelper {
         return null;
     }
 
+    /**
+     * Method that retrieves asynchronously the disk usage of the filesystem of a directory.
+     *
+     * @param context The current context (needed if console == null)
+     * @param dir The directory of which obtain its disk usage
+     * @param console The console in which execute the program. <code>null</code>
+     * to attach to the default console
+     * @return ConsoleFuture<DiskUsage> The future of the disk usage information
+     * @throws FileNotFoundException If the initial directory not exists
+     * @throws IOException If initial directory couldn't be checked
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     * @throws ConsoleAllocException If the console can't be allocated
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @see #getDiskUsage(Context, String, Console)
+     */
+    public static ConsoleFuture<DiskUsage> getDiskUsageAsync(
+            final Context context, final String dir, Console console)
+            throws FileNotFoundException, IOException, InvalidCommandDefinitionException,
+            ConsoleAllocException, InsufficientPermissionsException {
+        final Console c = ensureConsole(context, console);
+        return c.submit(new Callable<DiskUsage>() {
+            @Override
+            public DiskUsage call() throws Exception {
+                return getDiskUsage(context, dir, c);
+            }
+        });
+    }
+
     /**
      * Method that retrieves the information about all mount points.
      *
@@ -1322,6 +1866,41 @@ public final class CommandHelper {
             NoSuchFileOrDirectory, InsufficientPermissionsException,
             CommandNotFoundException, OperationTimeoutException,
             ExecutionException, InvalidCommandDefinitionException, ReadOnlyFilesystemException {
+        return compress(context, mode, dst, src, asyncResultListener, null, console);
+    }
+
+    /**
+     * Method that archive-compress file system objects.
+     *
+     * @param context The current context (needed if console == null)
+     * @param mode The compression mode
+     * @param dst The destination compressed file
+     * @param src The array of source files to compress
+     * @param asyncResultListener The partial result listener
+     * @param tracker The tracker where to report the progress of the operation (or null)
+     * @param console The console in which execute the program.
+     * <code>null</code> to attach to the default console
+     * @return CompressExecutable The command executed in background
+     * @throws FileNotFoundException If the initial directory not exists
+     * @throws IOException If initial directory couldn't be checked
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     * @throws NoSuchFileOrDirectory If the file or directory was not found
+     * @throws ConsoleAllocException If the console can't be allocated
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @throws CommandNotFoundException If the command was not found
+     * @throws OperationTimeoutException If the operation exceeded the maximum time of wait
+     * @throws ExecutionException If the operation returns a invalid exit code
+     * @throws ReadOnlyFilesystemException If the operation writes in a read-only filesystem
+     * @see CompressExecutable
+     * @see ProgressTracker
+     */
+    public static CompressExecutable compress(
+            Context context, CompressionMode mode, String dst, String[] src,
+            AsyncResultListener asyncResultListener, ProgressTracker tracker, Console console)
+            throws FileNotFoundException, IOException, ConsoleAllocException,
+            NoSuchFileOrDirectory, InsufficientPermissionsException,
+            CommandNotFoundException, OperationTimeoutException,
+            ExecutionException, InvalidCommandDefinitionException, ReadOnlyFilesystemException {
         Console c = ensureConsole(context, console);
 
         // Create a wrapper listener, for unmount the filesystem if necessary
@@ -1349,6 +1928,9 @@ public final class CommandHelper {
             wrapperListener.mMountPoint = executable2.getDstWritableMountPoint();
 
             //- Compress
+            if (tracker != null && executable1 instanceof ProgressExecutable) {
+                ((ProgressExecutable)executable1).setProgressTracker(tracker);
+            }
             execute(context, executable1, c);
             return executable1;
         }
@@ -1385,6 +1967,40 @@ public final class CommandHelper {
             NoSuchFileOrDirectory, InsufficientPermissionsException,
             CommandNotFoundException, OperationTimeoutException,
             ExecutionException, InvalidCommandDefinitionException, ReadOnlyFilesystemException {
+        return compress(context, mode, src, asyncResultListener, null, console);
+    }
+
+    /**
+     * Method that compress a file system object.
+     *
+     * @param context The current context (needed if console == null)
+     * @param mode The compression mode
+     * @param src The file to compress
+     * @param asyncResultListener The partial result listener
+     * @param tracker The tracker where to report the progress of the operation (or null)
+     * @param console The console in which execute the program.
+     * <code>null</code> to attach to the default console
+     * @return CompressExecutable The command executed in background
+     * @throws FileNotFoundException If the initial directory not exists
+     * @throws IOException If initial directory couldn't be checked
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     * @throws NoSuchFileOrDirectory If the file or directory was not found
+     * @throws ConsoleAllocException If the console can't be allocated
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @throws CommandNotFoundException If the command was not found
+     * @throws OperationTimeoutException If the operation exceeded the maximum time of wait
+     * @throws ExecutionException If the operation returns a invalid exit code
+     * @throws ReadOnlyFilesystemException If the operation writes in a read-only filesystem
+     * @see CompressExecutable
+     * @see ProgressTracker
+     */
+    public static CompressExecutable compress(
+            Context context, CompressionMode mode, String src,
+            AsyncResultListener asyncResultListener, ProgressTracker tracker, Console console)
+            throws FileNotFoundException, IOException, ConsoleAllocException,
+            NoSuchFileOrDirectory, InsufficientPermissionsException,
+            CommandNotFoundException, OperationTimeoutException,
+            ExecutionException, InvalidCommandDefinitionException, ReadOnlyFilesystemException {
         Console c = ensureConsole(context, console);
 
         // Create a wrapper listener, for unmount the filesystem if necessary
@@ -1412,6 +2028,9 @@ public final class CommandHelper {
             wrapperListener.mMountPoint = executable2.getDstWritableMountPoint();
 
             //- Compress
+            if (tracker != null && executable1 instanceof ProgressExecutable) {
+                ((ProgressExecutable)executable1).setProgressTracker(tracker);
+            }
             execute(context, executable1, c);
             return executable1;
         }
@@ -1449,6 +2068,41 @@ public final class CommandHelper {
             NoSuchFileOrDirectory, InsufficientPermissionsException,
             CommandNotFoundException, OperationTimeoutException,
             ExecutionException, InvalidCommandDefinitionException, ReadOnlyFilesystemException {
+        return uncompress(context, src, dst, asyncResultListener, null, console);
+    }
+
+    /**
+     * Method that uncompress file system objects.
+     *
+     * @param context The current context (needed if console == null)
+     * @param src The file to compress
+     * @param dst The destination file of folder (if null this method resolve with the best
+     * fit based on the src)
+     * @param asyncResultListener The partial result listener
+     * @param tracker The tracker where to report the progress of the operation (or null)
+     * @param console The console in which execute the program.
+     * <code>null</code> to attach to the default console
+     * @return UncompressExecutable The command executed in background
+     * @throws FileNotFoundException If the initial directory not exists
+     * @throws IOException If initial directory couldn't be checked
+     * @throws InvalidCommandDefinitionException If the command has an invalid definition
+     * @throws NoSuchFileOrDirectory If the file or directory was not found
+     * @throws ConsoleAllocException If the console can't be allocated
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @throws CommandNotFoundException If the command was not found
+     * @throws OperationTimeoutException If the operation exceeded the maximum time of wait
+     * @throws ExecutionException If the operation returns a invalid exit code
+     * @throws ReadOnlyFilesystemException If the operation writes in a read-only filesystem
+     * @see CompressExecutable
+     * @see ProgressTracker
+     */
+    public static UncompressExecutable uncompress(
+            Context context, String src, String dst,
+            AsyncResultListener asyncResultListener, ProgressTracker tracker, Console console)
+            throws FileNotFoundException, IOException, ConsoleAllocException,
+            NoSuchFileOrDirectory, InsufficientPermissionsException,
+            CommandNotFoundException, OperationTimeoutException,
+            ExecutionException, InvalidCommandDefinitionException, ReadOnlyFilesystemException {
         Console c = ensureConsole(context, console);
 
         // Create a wrapper listener, for unmount the filesystem if necessary
@@ -1486,6 +2140,9 @@ public final class CommandHelper {
             wrapperListener.mMountPoint = executable2.getDstWritableMountPoint();
 
             //- Compress
+            if (tracker != null && executable1 instanceof ProgressExecutable) {
+                ((ProgressExecutable)executable1).setProgressTracker(tracker);
+            }
             execute(context, executable1, c);
             return executable1;
         }
@@ -1551,6 +2208,161 @@ public final class CommandHelper {
         }
     }
 
+    /**
+     * Method that splits a set of paths in chunks that can be passed as expanded arguments
+     * of a single writable command invocation. All the paths of a chunk belong to the same
+     * mount point, and a chunk doesn't exceed the maximum length of the arguments.
+     *
+     * @param paths The paths to split
+     * @param maxLength The maximum length of the arguments of every chunk
+     * @return List<String[]> The chunks of paths
+     */
+    public static List<String[]> splitByMountPoint(String[] paths, int maxLength) {
+        // Group by mount point (preserving the order of the paths). The mount point
+        // is resolved only once per parent directory
+        Map<String, String> parents = new HashMap<String, String>();
+        Map<String, List<String>> groups = new LinkedHashMap<String, List<String>>();
+        for (int i = 0; i < paths.length; i++) {
+            String parent = new File(paths[i]).getParent();
+            String key = parents.get(parent);
+            if (key == null) {
+                MountPoint mp = MountPointHelper.getMountPointFromDirectory(paths[i]);
+                key = mp == null ? "" : mp.getMountPoint(); //$NON-NLS-1$
+                parents.put(parent, key);
+            }
+            List<String> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<String>();
+                groups.put(key, group);
+            }
+            group.add(paths[i]);
+        }
+
+        // Split every group
+        List<String[]> chunks = new ArrayList<String[]>();
+        for (List<String> group : groups.values()) {
+            chunks.addAll(
+                    ShellHelper.splitArguments(
+                            group.toArray(new String[group.size()]), maxLength));
+        }
+        return chunks;
+    }
+
+    /**
+     * Method that executes the copies or moves of a set of sources to a destination
+     * directory, one after another. If an executable requires elevated permissions, the
+     * pending executables are queued behind it in the exception, so the relaunch completes
+     * the whole set.
+     *
+     * @param context The current context (needed if console == null)
+     * @param executables The copy or move executables
+     * @param srcs The sources of every executable
+     * @param dst The destination directory
+     * @param console The console in which execute the programs
+     * @param tracker The tracker where to report the progress of the operation (or null)
+     * @return Map<String, String> The sources that couldn't be copied or moved, with the
+     * reason of the failure
+     * @throws NoSuchFileOrDirectory If the file or directory was not found
+     * @throws ConsoleAllocException If the console can't be allocated
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @throws CommandNotFoundException If the command was not found
+     * @throws OperationTimeoutException If the operation exceeded the maximum time of wait
+     * @throws ExecutionException If the operation returns a invalid exit code
+     * @throws ReadOnlyFilesystemException If the operation writes in a read-only filesystem
+     */
+    private static Map<String, String> batchWritableExecute(
+            Context context, List<WritableExecutable> executables, List<String[]> srcs,
+            String dst, Console console, ProgressTracker tracker)
+            throws ConsoleAllocException, InsufficientPermissionsException, NoSuchFileOrDirectory,
+            OperationTimeoutException, ExecutionException,
+            CommandNotFoundException, ReadOnlyFilesystemException {
+        Map<String, String> failures = new LinkedHashMap<String, String>();
+        int cc = executables.size();
+        for (int i = 0; i < cc; i++) {
+            WritableExecutable executable = executables.get(i);
+            String[] chunk = srcs.get(i);
+            String[] dsts = new String[chunk.length];
+            for (int j = 0; j < chunk.length; j++) {
+                dsts[j] = new File(dst, new File(chunk[j]).getName()).getAbsolutePath();
+            }
+            try {
+                trackedWritableExecute(context, executable, console, tracker, dsts);
+            } catch (InsufficientPermissionsException ipEx) {
+                // Relaunch the pending executables before unmount the filesystem
+                List<SyncResultExecutable> queue = ipEx.getExecutables();
+                int pos = queue.indexOf(executable);
+                queue.addAll(
+                        pos == -1 ? queue.size() : pos + 1, executables.subList(i + 1, cc));
+                throw ipEx;
+            }
+            if (executable instanceof CopyBatchExecutable) {
+                Map<String, String> result = ((CopyBatchExecutable)executable).getResult();
+                if (result != null) {
+                    failures.putAll(result);
+                }
+            } else if (executable instanceof MoveBatchExecutable) {
+                Map<String, String> result = ((MoveBatchExecutable)executable).getResult();
+                if (result != null) {
+                    failures.putAll(result);
+                }
+            } else if (executable instanceof MoveExecutable) {
+                Boolean result = ((MoveExecutable)executable).getResult();
+                if (result == null || !result.booleanValue()) {
+                    failures.put(chunk[0], "Failed to move"); //$NON-NLS-1$
+                }
+            }
+        }
+        if (tracker != null) {
+            tracker.finish();
+        }
+        return failures;
+    }
+
+    /**
+     * Method that execute a program that requires write permissions over the filesystem,
+     * reporting the progress of the bytes and files transferred. The executables that
+     * don't report their progress (see {@link ProgressExecutable}) are measured polling
+     * the size of the destinations (if there are destinations).
+     *
+     * @param context The current context (needed if console == null)
+     * @param executable The writable executable program to execute
+     * @param console The console in which execute the program
+     * @param tracker The tracker where to report the progress (or null)
+     * @param dsts The destinations of the operation (or null if the operation has no
+     * destinations to measure)
+     * @throws NoSuchFileOrDirectory If the file or directory was not found
+     * @throws ConsoleAllocException If the console can't be allocated
+     * @throws InsufficientPermissionsException If an operation requires elevated permissions
+     * @throws CommandNotFoundException If the command was not found
+     * @throws OperationTimeoutException If the operation exceeded the maximum time of wait
+     * @throws ExecutionException If the operation returns a invalid exit code
+     * @throws ReadOnlyFilesystemException If the operation writes in a read-only filesystem
+     * @see TransferPoller
+     */
+    private static void trackedWritableExecute(
+            Context context, WritableExecutable executable, Console console,
+            ProgressTracker tracker, String[] dsts)
+            throws ConsoleAllocException, InsufficientPermissionsException, NoSuchFileOrDirectory,
+            OperationTimeoutException, ExecutionException,
+            CommandNotFoundException, ReadOnlyFilesystemException {
+        TransferPoller poller = null;
+        if (tracker != null) {
+            if (executable instanceof ProgressExecutable) {
+                ((ProgressExecutable)executable).setProgressTracker(tracker);
+            } else if (dsts != null) {
+                poller = new TransferPoller(tracker, dsts);
+                poller.start();
+            }
+        }
+        try {
+            writableExecute(context, executable, console);
+        } finally {
+            if (poller != null) {
+                poller.stop();
+            }
+        }
+    }
+
     /**
      * Method that execute a program that requires write permissions over the filesystem. This
      * method ensure mount/unmount the filesystem before/after executing the operation.
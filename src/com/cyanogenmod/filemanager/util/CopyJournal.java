@@ -0,0 +1,386 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * A journal of the in-flight copies of large files.<br/>
+ * <br/>
+ * While a large file is copied, the journal records periodically (every
+ * {@link #CHECKPOINT_INTERVAL} bytes) the offset up to which the destination file was
+ * flushed to the storage, with the checksum of the window of data that precedes that offset.
+ * If the copy is interrupted (the application is killed, the copy is cancelled or the media
+ * is ejected), the partial destination file is kept, and the next copy of the same source to
+ * the same destination verifies the checksum of the tail of the partial file and continues
+ * from the last good offset instead of starting from zero.<br/>
+ * <br/>
+ * A journal is only valid while the source file keeps its size and modification time. The
+ * journals are stored in the private directory of the application (see
+ * {@link #setJournalDir(File)}); if no directory was set, the copies are not journaled.
+ */
+public final class CopyJournal {
+
+    private static final String TAG = "CopyJournal"; //$NON-NLS-1$
+
+    /**
+     * The minimum size of a file to be journaled.
+     */
+    public static final long MIN_SIZE = 32L * 1024L * 1024L;
+
+    /**
+     * The number of bytes copied between two checkpoints.
+     */
+    public static final long CHECKPOINT_INTERVAL = 32L * 1024L * 1024L;
+
+    /**
+     * The size of the window of data checked before resume a copy.
+     */
+    static final int WINDOW_SIZE = 64 * 1024;
+
+    private static final String JOURNAL_EXTENSION = ".journal"; //$NON-NLS-1$
+
+    private static final String KEY_SRC = "src"; //$NON-NLS-1$
+    private static final String KEY_DST = "dst"; //$NON-NLS-1$
+    private static final String KEY_SRC_SIZE = "src.size"; //$NON-NLS-1$
+    private static final String KEY_SRC_MODIFIED = "src.modified"; //$NON-NLS-1$
+    private static final String KEY_OFFSET = "offset"; //$NON-NLS-1$
+    private static final String KEY_CRC = "crc"; //$NON-NLS-1$
+
+    private static File sJournalDir;
+
+    private final File mSrc;
+    private final File mDst;
+    private final File mFile;
+    private final long mSrcSize;
+    private final long mSrcModified;
+    private long mOffset;
+
+    /**
+     * Constructor of <code>CopyJournal</code>.
+     *
+     * @param src The source file
+     * @param dst The destination file
+     * @param file The file of the journal
+     * @param srcSize The size of the source file
+     */
+    private CopyJournal(File src, File dst, File file, long srcSize) {
+        super();
+        this.mSrc = src;
+        this.mDst = dst;
+        this.mFile = file;
+        this.mSrcSize = srcSize;
+        this.mSrcModified = src.lastModified();
+        this.mOffset = 0;
+    }
+
+    /**
+     * Method that sets the directory where the journals are stored.
+     *
+     * @param dir The directory of the journals, or null to disable the journal
+     */
+    public static synchronized void setJournalDir(File dir) {
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, String.format("Can't create the journal dir %s", dir)); //$NON-NLS-1$
+            dir = null;
+        }
+        sJournalDir = dir;
+    }
+
+    /**
+     * Method that opens the journal of the copy of a file.
+     *
+     * @param src The source file
+     * @param dst The destination file
+     * @param srcSize The size of the source file
+     * @return CopyJournal The journal of the copy, or null if the copy is not journaled
+     */
+    public static CopyJournal open(File src, File dst, long srcSize) {
+        File dir = getJournalDir();
+        if (dir == null || srcSize < MIN_SIZE) {
+            return null;
+        }
+        return new CopyJournal(src, dst, getJournalFile(dir, dst), srcSize);
+    }
+
+    /**
+     * Method that returns the offset from which the copy can be resumed. The journal is
+     * only honored if the source file didn't change and the tail window of the destination
+     * file matches the recorded checksum; otherwise the journal is discarded.
+     *
+     * @param out The channel of the destination file
+     * @return long The offset from which the copy can be resumed (0 to start from the
+     * beginning)
+     */
+    public long getResumeOffset(FileChannel out) {
+        Properties props = load(this.mFile);
+        if (props == null) {
+            return 0;
+        }
+        try {
+            long offset = Long.parseLong(props.getProperty(KEY_OFFSET));
+            long crc = Long.parseLong(props.getProperty(KEY_CRC));
+            if (this.mSrc.getAbsolutePath().compareTo(props.getProperty(KEY_SRC)) != 0 ||
+                this.mDst.getAbsolutePath().compareTo(props.getProperty(KEY_DST)) != 0 ||
+                Long.parseLong(props.getProperty(KEY_SRC_SIZE)) != this.mSrcSize ||
+                Long.parseLong(props.getProperty(KEY_SRC_MODIFIED)) != this.mSrcModified ||
+                offset <= 0 || offset > this.mSrcSize || out.size() < offset) {
+                Log.i(TAG, String.format(
+                        "Discarding stale journal of %s", this.mDst)); //$NON-NLS-1$
+                discard();
+                return 0;
+            }
+            if (checksum(out, offset) != crc) {
+                Log.w(TAG, String.format(
+                        "The tail of %s doesn't match the journal", this.mDst)); //$NON-NLS-1$
+                discard();
+                return 0;
+            }
+            Log.i(TAG, String.format("Resuming the copy of %s at %d", //$NON-NLS-1$
+                    this.mDst, Long.valueOf(offset)));
+            this.mOffset = offset;
+            return offset;
+
+        } catch (Exception e) {
+            Log.w(TAG, String.format("Invalid journal of %s", this.mDst), e); //$NON-NLS-1$
+            discard();
+            return 0;
+        }
+    }
+
+    /**
+     * Method that returns the offset of the last checkpoint.
+     *
+     * @return long The offset of the last checkpoint
+     */
+    public long getOffset() {
+        return this.mOffset;
+    }
+
+    /**
+     * Method that returns if the journal has a checkpoint, so the partial destination
+     * file must be kept if the copy fails.
+     *
+     * @return boolean If the journal has a checkpoint
+     */
+    public boolean hasCheckpoint() {
+        return this.mOffset > 0;
+    }
+
+    /**
+     * Method that records a checkpoint if there are enough bytes copied since the last one.
+     * The destination file is flushed to the storage prior to record the checkpoint.
+     *
+     * @param out The channel of the destination file
+     * @param copied The bytes copied
+     */
+    public void checkpoint(FileChannel out, long copied) {
+        if (copied - this.mOffset < CHECKPOINT_INTERVAL || copied >= this.mSrcSize) {
+            return;
+        }
+        try {
+            out.force(false);
+            Properties props = new Properties();
+            props.setProperty(KEY_SRC, this.mSrc.getAbsolutePath());
+            props.setProperty(KEY_DST, this.mDst.getAbsolutePath());
+            props.setProperty(KEY_SRC_SIZE, String.valueOf(this.mSrcSize));
+            props.setProperty(KEY_SRC_MODIFIED, String.valueOf(this.mSrcModified));
+            props.setProperty(KEY_OFFSET, String.valueOf(copied));
+            props.setProperty(KEY_CRC, String.valueOf(checksum(out, copied)));
+            store(this.mFile, props);
+            this.mOffset = copied;
+        } catch (IOException e) {
+            // The copy is not affected, only it can't be resumed from here
+            Log.w(TAG, String.format("Failed to checkpoint %s", this.mDst), e); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Method that discards the journal (the copy was completed, or can't be resumed).
+     */
+    public void discard() {
+        this.mOffset = 0;
+        if (this.mFile.exists() && !this.mFile.delete()) {
+            Log.w(TAG, String.format("Failed to delete %s", this.mFile)); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Method that returns if there are interrupted copies that can be resumed to a
+     * destination file or to any file under a destination folder.
+     *
+     * @param dst The destination file or folder
+     * @return boolean If there are interrupted copies to the destination
+     */
+    public static boolean hasPendingCopies(File dst) {
+        return !findPendingCopies(dst).isEmpty();
+    }
+
+    /**
+     * Method that discards the journals of the interrupted copies to a destination file
+     * or to any file under a destination folder (the destinations will be overwritten).
+     *
+     * @param dst The destination file or folder
+     */
+    public static void discardPendingCopies(File dst) {
+        List<File> journals = findPendingCopies(dst);
+        int cc = journals.size();
+        for (int i = 0; i < cc; i++) {
+            if (!journals.get(i).delete()) {
+                Log.w(TAG, String.format("Failed to delete %s", //$NON-NLS-1$
+                        journals.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Method that returns the journals of the interrupted copies whose partial destination
+     * file still exists.
+     *
+     * @param dst The destination file or folder
+     * @return List<File> The journals
+     */
+    private static List<File> findPendingCopies(File dst) {
+        List<File> journals = new ArrayList<File>();
+        File dir = getJournalDir();
+        File[] files = dir != null ? dir.listFiles() : null;
+        if (files == null) {
+            return journals;
+        }
+        String path = dst.getAbsolutePath();
+        String folder = path.endsWith(File.separator) ? path : path + File.separator;
+        for (int i = 0; i < files.length; i++) {
+            if (!files[i].getName().endsWith(JOURNAL_EXTENSION)) {
+                continue;
+            }
+            Properties props = load(files[i]);
+            String d = props != null ? props.getProperty(KEY_DST) : null;
+            if (d != null && (d.compareTo(path) == 0 || d.startsWith(folder)) &&
+                new File(d).isFile()) {
+                journals.add(files[i]);
+            }
+        }
+        return journals;
+    }
+
+    /**
+     * Method that computes the checksum of the window of data that precedes an offset.
+     *
+     * @param channel The channel of the file
+     * @param offset The offset
+     * @return long The checksum
+     * @throws IOException If the data can't be read
+     */
+    private static long checksum(FileChannel channel, long offset) throws IOException {
+        long start = Math.max(0, offset - WINDOW_SIZE);
+        ByteBuffer buffer = ByteBuffer.allocate((int)(offset - start));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) == -1) {
+                throw new IOException("Unexpected end of file"); //$NON-NLS-1$
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.limit());
+        return crc.getValue();
+    }
+
+    /**
+     * Method that returns the journal directory.
+     *
+     * @return File The journal directory (or null if there is no journal)
+     */
+    private static synchronized File getJournalDir() {
+        return sJournalDir;
+    }
+
+    /**
+     * Method that returns the journal file of a destination file.
+     *
+     * @param dir The journal directory
+     * @param dst The destination file
+     * @return File The journal file
+     */
+    private static File getJournalFile(File dir, File dst) {
+        return new File(dir,
+                Integer.toHexString(dst.getAbsolutePath().hashCode()) + JOURNAL_EXTENSION);
+    }
+
+    /**
+     * Method that loads a journal file.
+     *
+     * @param file The journal file
+     * @return Properties The journal, or null if the journal doesn't exist or can't be read
+     */
+    private static Properties load(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        InputStream is = null;
+        try {
+            is = new FileInputStream(file);
+            Properties props = new Properties();
+            props.load(is);
+            return props;
+        } catch (IOException e) {
+            Log.w(TAG, String.format("Failed to read %s", file), e); //$NON-NLS-1$
+            return null;
+        } finally {
+            try {
+                if (is != null) {
+                    is.close();
+                }
+            } catch (Throwable e) {/**NON BLOCK**/}
+        }
+    }
+
+    /**
+     * Method that stores a journal file atomically (a temporary file is written and
+     * synced, and then renamed).
+     *
+     * @param file The journal file
+     * @param props The journal
+     * @throws IOException If the journal can't be written
+     */
+    private static void store(File file, Properties props) throws IOException {
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp"); //$NON-NLS-1$
+        FileOutputStream fos = new FileOutputStream(tmp);
+        try {
+            props.store(fos, null);
+            fos.getFD().sync();
+        } finally {
+            try {
+                fos.close();
+            } catch (Throwable e) {/**NON BLOCK**/}
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException(String.format("Failed to rename %s", tmp)); //$NON-NLS-1$
+        }
+    }
+}
@@ -0,0 +1,876 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A class for find the duplicate files of one or more trees of folders.<br/>
+ * <br/>
+ * The files are compared in three stages, and every stage only reads the files that
+ * survived the previous one:<br/>
+ * <ul>
+ * <li>{@link #STAGE_SIZE}: the trees are walked in parallel (see {@link ParallelTreeWalker},
+ * the symbolic links are not followed) and the files are grouped by size in primitive
+ * arrays. The hard links of a file (and a file reached twice through a bind mount) are
+ * the same file, so they are not reported as duplicates.</li>
+ * <li>{@link #STAGE_PARTIAL_HASH}: the first and the last {@link #PARTIAL_SIZE} bytes of the
+ * files of the same size are hashed in parallel. The files small enough to be read
+ * completely in this stage are confirmed here.</li>
+ * <li>{@link #STAGE_FULL_HASH}: the files of the groups that survived are hashed completely
+ * in parallel, reading them through memory-mapped windows.</li>
+ * </ul>
+ * The groups are delivered to a {@link OnDuplicatesListener} as they are confirmed (the
+ * biggest files first), and the search can be cancelled with {@link #cancel()} or
+ * interrupting the thread that calls {@link #find()}. The time and the number of files
+ * of every stage are available when the search ends.
+ */
+public class DuplicateFinder {
+
+    private static final String TAG = "DuplicateFinder"; //$NON-NLS-1$
+
+    private static boolean DEBUG = false;
+
+    /**
+     * The stage that walks the trees and groups the files by size.
+     */
+    public static final int STAGE_SIZE = 0;
+    /**
+     * The stage that hashes the start and the end of the files of the same size.
+     */
+    public static final int STAGE_PARTIAL_HASH = 1;
+    /**
+     * The stage that hashes completely the files with the same partial hash.
+     */
+    public static final int STAGE_FULL_HASH = 2;
+    private static final int STAGES = 3;
+
+    /**
+     * The bytes hashed at the start and at the end of a file in the partial hash stage.
+     */
+    public static final int PARTIAL_SIZE = 64 * 1024;
+
+    // The size of the windows mapped in memory to hash a file completely
+    private static final long MAP_WINDOW = 8L * 1024 * 1024;
+
+    private static final String DIGEST_ALGORITHM = "SHA-1"; //$NON-NLS-1$
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+
+    /**
+     * An interface for receive the groups of duplicate files.
+     */
+    public interface OnDuplicatesListener {
+        /**
+         * Method invoked when a group of duplicate files is confirmed. It's invoked from
+         * the worker threads, but never concurrently.
+         *
+         * @param size The size of every file of the group
+         * @param files The duplicate files (two or more)
+         */
+        void onDuplicates(long size, List<File> files);
+    }
+
+    private final File[] mRoots;
+    private final int mParallelism;
+
+    private OnDuplicatesListener mListener;
+    private volatile boolean mCancelled;
+
+    // The files found in the trees (the files of a group are indexes of these arrays)
+    private File[] mFiles;
+    private long[] mSizes;
+
+    private final long[] mStageTimes = new long[STAGES];
+    private final int[] mStageFiles = new int[STAGES];
+    private int mGroups;
+    private long mWastedSize;
+    private final Object mDeliverSync = new Object();
+
+    /**
+     * Constructor of <code>DuplicateFinder</code>.
+     *
+     * @param roots The folders where to search duplicate files
+     */
+    public DuplicateFinder(File[] roots) {
+        this(roots, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor of <code>DuplicateFinder</code>.
+     *
+     * @param roots The folders where to search duplicate files
+     * @param parallelism The number of threads that walk the trees and hash the files
+     */
+    public DuplicateFinder(File[] roots, int parallelism) {
+        super();
+        this.mRoots = normalizeRoots(roots);
+        this.mParallelism = Math.max(1, parallelism);
+        this.mCancelled = false;
+    }
+
+    /**
+     * Method that sets the listener of the groups of duplicate files.
+     *
+     * @param listener The listener
+     */
+    public void setOnDuplicatesListener(OnDuplicatesListener listener) {
+        this.mListener = listener;
+    }
+
+    /**
+     * Method that cancels the search. The files being hashed are abandoned.
+     */
+    public void cancel() {
+        this.mCancelled = true;
+    }
+
+    /**
+     * Method that returns if the search was cancelled.
+     *
+     * @return boolean If the search was cancelled
+     */
+    public boolean isCancelled() {
+        return this.mCancelled;
+    }
+
+    /**
+     * Method that returns the time spent in a stage of the search.
+     *
+     * @param stage The stage ({@link #STAGE_SIZE}, {@link #STAGE_PARTIAL_HASH} or
+     * {@link #STAGE_FULL_HASH})
+     * @return long The time in milliseconds
+     */
+    public long getStageTime(int stage) {
+        return this.mStageTimes[stage];
+    }
+
+    /**
+     * Method that returns the number of files that entered in a stage of the search (the
+     * files found for {@link #STAGE_SIZE}, and the candidates of the hash stages).
+     *
+     * @param stage The stage ({@link #STAGE_SIZE}, {@link #STAGE_PARTIAL_HASH} or
+     * {@link #STAGE_FULL_HASH})
+     * @return int The number of files
+     */
+    public int getStageFiles(int stage) {
+        return this.mStageFiles[stage];
+    }
+
+    /**
+     * Method that returns the number of groups of duplicate files found.
+     *
+     * @return int The number of groups
+     */
+    public int getGroups() {
+        synchronized (this.mDeliverSync) {
+            return this.mGroups;
+        }
+    }
+
+    /**
+     * Method that returns the space used by the duplicate files (all the copies but one
+     * of every group).
+     *
+     * @return long The space in bytes
+     */
+    public long getWastedSize() {
+        synchronized (this.mDeliverSync) {
+            return this.mWastedSize;
+        }
+    }
+
+    /**
+     * Method that searches the duplicate files.
+     *
+     * @return boolean If the search was completed (false if was cancelled)
+     */
+    public boolean find() {
+        long start = System.currentTimeMillis();
+        List<int[]> groups = groupBySize();
+        this.mStageTimes[STAGE_SIZE] = System.currentTimeMillis() - start;
+        if (checkCancelled()) {
+            return false;
+        }
+
+        start = System.currentTimeMillis();
+        this.mStageFiles[STAGE_PARTIAL_HASH] = countFiles(groups);
+        List<int[]> survivors = hashPartially(groups);
+        this.mStageTimes[STAGE_PARTIAL_HASH] = System.currentTimeMillis() - start;
+        if (checkCancelled()) {
+            return false;
+        }
+
+        start = System.currentTimeMillis();
+        this.mStageFiles[STAGE_FULL_HASH] = countFiles(survivors);
+        hashFully(survivors);
+        this.mStageTimes[STAGE_FULL_HASH] = System.currentTimeMillis() - start;
+
+        if (DEBUG) {
+            Log.v(TAG, String.format(
+                    "%d groups: size=%dms (%d files), partial=%dms (%d files), " + //$NON-NLS-1$
+                    "full=%dms (%d files)", //$NON-NLS-1$
+                    Integer.valueOf(getGroups()),
+                    Long.valueOf(this.mStageTimes[STAGE_SIZE]),
+                    Integer.valueOf(this.mStageFiles[STAGE_SIZE]),
+                    Long.valueOf(this.mStageTimes[STAGE_PARTIAL_HASH]),
+                    Integer.valueOf(this.mStageFiles[STAGE_PARTIAL_HASH]),
+                    Long.valueOf(this.mStageTimes[STAGE_FULL_HASH]),
+                    Integer.valueOf(this.mStageFiles[STAGE_FULL_HASH])));
+        }
+        return !checkCancelled();
+    }
+
+    /**
+     * Method that walks the trees and groups the files by size (stage 1).
+     *
+     * @return List<int[]> The groups of files with the same size, the biggest first
+     */
+    private List<int[]> groupBySize() {
+        final int parallelism = this.mParallelism;
+        final FileList[] lists = new FileList[parallelism];
+        final long[][] attrs = new long[parallelism][5];
+        for (int i = 0; i < parallelism; i++) {
+            lists[i] = new FileList();
+        }
+        for (int i = 0; i < this.mRoots.length; i++) {
+            ParallelTreeWalker walker = new ParallelTreeWalker(parallelism) {
+                @Override
+                protected boolean onVisit(int worker, File file, boolean isDirectory) {
+                    if (isDirectory) {
+                        return true;
+                    }
+                    // Only the regular files (not the links, devices, ...) with data
+                    long[] a = attrs[worker];
+                    if (FileHelper.lstat(file, a)) {
+                        if ((a[0] & FileHelper.S_IFMT) == FileHelper.S_IFREG && a[1] > 0) {
+                            lists[worker].add(file, a[1], a[3], a[4]);
+                        }
+                    } else if (file.isFile() && !FileHelper.isLink(file)) {
+                        long size = file.length();
+                        if (size > 0) {
+                            lists[worker].add(file, size, -1, -1);
+                        }
+                    }
+                    return false;
+                }
+
+                @Override
+                public boolean isStopped() {
+                    return super.isStopped() || checkCancelled();
+                }
+            };
+            walker.setFollowSymlinks(false);
+            walker.walk(this.mRoots[i]);
+            if (checkCancelled()) {
+                return Collections.emptyList();
+            }
+        }
+
+        // Merge the files found by the workers
+        int count = 0;
+        for (int i = 0; i < parallelism; i++) {
+            count += lists[i].mCount;
+        }
+        this.mFiles = new File[count];
+        this.mSizes = new long[count];
+        long[] devs = new long[count];
+        long[] inodes = new long[count];
+        int pos = 0;
+        for (int i = 0; i < parallelism; i++) {
+            FileList list = lists[i];
+            for (int j = 0; j < list.mCount; j++) {
+                this.mFiles[pos + j] = list.mFiles.get(j);
+            }
+            System.arraycopy(list.mSizes, 0, this.mSizes, pos, list.mCount);
+            System.arraycopy(list.mDevs, 0, devs, pos, list.mCount);
+            System.arraycopy(list.mInodes, 0, inodes, pos, list.mCount);
+            pos += list.mCount;
+            lists[i] = null;
+        }
+        this.mStageFiles[STAGE_SIZE] = count;
+
+        // Group the files by size (the files of a size are linked through the next array)
+        SizeIndex index = new SizeIndex(count);
+        int[] next = new int[count];
+        for (int i = 0; i < count; i++) {
+            index.add(this.mSizes[i], i, next);
+        }
+        List<int[]> groups = new ArrayList<int[]>();
+        int slots = index.getSlots();
+        for (int i = 0; i < slots; i++) {
+            int files = index.getCount(i);
+            if (files < 2) {
+                continue;
+            }
+            int[] group = new int[files];
+            int file = index.getHead(i);
+            for (int j = 0; j < files; j++) {
+                group[j] = file;
+                file = next[file];
+            }
+            group = removeLinks(group, devs, inodes);
+            if (group.length >= 2) {
+                groups.add(group);
+            }
+        }
+        sortBySize(groups);
+        return groups;
+    }
+
+    /**
+     * Method that hashes the start and the end of the files of the groups (stage 2). The
+     * groups of files that were read completely are delivered.
+     *
+     * @param groups The groups of files with the same size
+     * @return List<int[]> The groups of files with the same partial hash that must be
+     * hashed completely, the biggest first
+     */
+    private List<int[]> hashPartially(List<int[]> groups) {
+        final List<int[]> survivors = new ArrayList<int[]>();
+        runParallel(groups, new GroupTask() {
+            @Override
+            void run(int[] group, Hasher hasher) {
+                long size = DuplicateFinder.this.mSizes[group[0]];
+                String[] digests = new String[group.length];
+                for (int i = 0; i < group.length; i++) {
+                    if (checkCancelled()) {
+                        return;
+                    }
+                    digests[i] = hasher.hashPartially(
+                            DuplicateFinder.this.mFiles[group[i]], size);
+                }
+                List<int[]> matches = splitByDigest(group, digests);
+                int cc = matches.size();
+                for (int i = 0; i < cc; i++) {
+                    if (size <= 2L * PARTIAL_SIZE) {
+                        // The whole file was hashed
+                        deliver(matches.get(i));
+                    } else {
+                        synchronized (survivors) {
+                            survivors.add(matches.get(i));
+                        }
+                    }
+                }
+            }
+        });
+        sortBySize(survivors);
+        return survivors;
+    }
+
+    /**
+     * Method that hashes completely the files of the groups, and delivers the groups
+     * of duplicate files (stage 3).
+     *
+     * @param groups The groups of files with the same partial hash
+     */
+    private void hashFully(List<int[]> groups) {
+        runParallel(groups, new GroupTask() {
+            @Override
+            void run(int[] group, Hasher hasher) {
+                long size = DuplicateFinder.this.mSizes[group[0]];
+                String[] digests = new String[group.length];
+                for (int i = 0; i < group.length; i++) {
+                    if (checkCancelled()) {
+                        return;
+                    }
+                    digests[i] = hasher.hashFully(DuplicateFinder.this.mFiles[group[i]], size);
+                }
+                List<int[]> matches = splitByDigest(group, digests);
+                int cc = matches.size();
+                for (int i = 0; i < cc; i++) {
+                    deliver(matches.get(i));
+                }
+            }
+        });
+    }
+
+    /**
+     * Method that runs a task over every group, in parallel.
+     *
+     * @param groups The groups
+     * @param task The task
+     */
+    private void runParallel(final List<int[]> groups, final GroupTask task) {
+        final AtomicInteger next = new AtomicInteger();
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                Hasher hasher = new Hasher();
+                int cc = groups.size();
+                int i;
+                while (!checkCancelled() && (i = next.getAndIncrement()) < cc) {
+                    task.run(groups.get(i), hasher);
+                }
+            }
+        };
+        int parallelism = Math.min(this.mParallelism, Math.max(1, groups.size()));
+        Thread[] threads = new Thread[parallelism - 1];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(worker, TAG + "#" + (i + 1)); //$NON-NLS-1$
+            threads[i].start();
+        }
+        worker.run();
+        boolean interrupted = false;
+        for (int i = 0; i < threads.length; i++) {
+            while (threads[i].isAlive()) {
+                try {
+                    threads[i].join();
+                } catch (InterruptedException e) {
+                    // Wait for the files being hashed
+                    this.mCancelled = true;
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Method that delivers a group of duplicate files to the listener.
+     *
+     * @param group The group of duplicate files
+     */
+    void deliver(int[] group) {
+        long size = this.mSizes[group[0]];
+        List<File> files = new ArrayList<File>(group.length);
+        for (int i = 0; i < group.length; i++) {
+            files.add(this.mFiles[group[i]]);
+        }
+        synchronized (this.mDeliverSync) {
+            if (this.mCancelled) {
+                return;
+            }
+            this.mGroups++;
+            this.mWastedSize += size * (group.length - 1);
+            if (this.mListener != null) {
+                this.mListener.onDuplicates(size, files);
+            }
+        }
+    }
+
+    /**
+     * Method that checks if the search was cancelled (or the current thread was
+     * interrupted).
+     *
+     * @return boolean If the search was cancelled
+     */
+    boolean checkCancelled() {
+        if (Thread.interrupted()) {
+            this.mCancelled = true;
+            Thread.currentThread().interrupt();
+        }
+        return this.mCancelled;
+    }
+
+    /**
+     * Method that splits a group of files by its digests.
+     *
+     * @param group The group of files
+     * @param digests The digest of every file (null if the file couldn't be read)
+     * @return List<int[]> The groups of two or more files with the same digest
+     */
+    static List<int[]> splitByDigest(int[] group, String[] digests) {
+        Map<String, List<Integer>> map = new LinkedHashMap<String, List<Integer>>();
+        for (int i = 0; i < group.length; i++) {
+            if (digests[i] == null) {
+                continue;
+            }
+            List<Integer> files = map.get(digests[i]);
+            if (files == null) {
+                files = new ArrayList<Integer>();
+                map.put(digests[i], files);
+            }
+            files.add(Integer.valueOf(group[i]));
+        }
+        List<int[]> matches = new ArrayList<int[]>();
+        for (List<Integer> files : map.values()) {
+            int cc = files.size();
+            if (cc < 2) {
+                continue;
+            }
+            int[] match = new int[cc];
+            for (int i = 0; i < cc; i++) {
+                match[i] = files.get(i).intValue();
+            }
+            matches.add(match);
+        }
+        return matches;
+    }
+
+    /**
+     * Method that removes from a group the files that are a link (a hard link or the
+     * same file through a bind mount) to other file of the group.
+     *
+     * @param group The group of files
+     * @param devs The devices of the files (-1 if unknown)
+     * @param inodes The inodes of the files (-1 if unknown)
+     * @return int[] The group without the links
+     */
+    private static int[] removeLinks(int[] group, long[] devs, long[] inodes) {
+        ParallelTreeWalker.InodeSet set = new ParallelTreeWalker.InodeSet();
+        int[] files = new int[group.length];
+        int cc = 0;
+        for (int i = 0; i < group.length; i++) {
+            int file = group[i];
+            if (inodes[file] == -1 || set.add(devs[file], inodes[file])) {
+                files[cc++] = file;
+            }
+        }
+        return cc == group.length ? group : Arrays.copyOf(files, cc);
+    }
+
+    /**
+     * Method that sorts the groups by the size of its files, the biggest first.
+     *
+     * @param groups The groups
+     */
+    private void sortBySize(List<int[]> groups) {
+        final long[] sizes = this.mSizes;
+        Collections.sort(groups, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] lhs, int[] rhs) {
+                long l = sizes[lhs[0]];
+                long r = sizes[rhs[0]];
+                return l < r ? 1 : (l > r ? -1 : 0);
+            }
+        });
+    }
+
+    /**
+     * Method that returns the number of files of the groups.
+     *
+     * @param groups The groups
+     * @return int The number of files
+     */
+    private static int countFiles(List<int[]> groups) {
+        int files = 0;
+        int cc = groups.size();
+        for (int i = 0; i < cc; i++) {
+            files += groups.get(i).length;
+        }
+        return files;
+    }
+
+    /**
+     * Method that removes the roots that are inside other root.
+     *
+     * @param roots The roots
+     * @return File[] The roots that don't overlap
+     */
+    private static File[] normalizeRoots(File[] roots) {
+        List<String> paths = new ArrayList<String>(roots.length);
+        for (int i = 0; i < roots.length; i++) {
+            paths.add(roots[i].getAbsolutePath());
+        }
+        // A parent is always sorted before its children
+        Collections.sort(paths);
+        List<File> normalized = new ArrayList<File>(roots.length);
+        int cc = paths.size();
+        for (int i = 0; i < cc; i++) {
+            String path = paths.get(i);
+            boolean nested = false;
+            int ccc = normalized.size();
+            for (int j = 0; j < ccc && !nested; j++) {
+                String parent = normalized.get(j).getPath();
+                nested = path.equals(parent) || path.startsWith(
+                        parent.endsWith(File.separator) ? parent : parent + File.separator);
+            }
+            if (!nested) {
+                normalized.add(new File(path));
+            }
+        }
+        return normalized.toArray(new File[normalized.size()]);
+    }
+
+    /**
+     * A task over a group of files.
+     */
+    private abstract static class GroupTask {
+        /**
+         * Method that runs the task over a group.
+         *
+         * @param group The group of files
+         * @param hasher The hasher of the worker
+         */
+        abstract void run(int[] group, Hasher hasher);
+    }
+
+    /**
+     * The files found by a worker, in growable primitive arrays.
+     */
+    private static final class FileList {
+        final List<File> mFiles = new ArrayList<File>();
+        long[] mSizes = new long[64];
+        long[] mDevs = new long[64];
+        long[] mInodes = new long[64];
+        int mCount = 0;
+
+        /**
+         * Method that adds a file to the list.
+         *
+         * @param file The file
+         * @param size The size of the file
+         * @param dev The device of the file (-1 if unknown)
+         * @param ino The inode of the file (-1 if unknown)
+         */
+        void add(File file, long size, long dev, long ino) {
+            if (this.mCount == this.mSizes.length) {
+                int length = this.mSizes.length * 2;
+                this.mSizes = Arrays.copyOf(this.mSizes, length);
+                this.mDevs = Arrays.copyOf(this.mDevs, length);
+                this.mInodes = Arrays.copyOf(this.mInodes, length);
+            }
+            this.mFiles.add(file);
+            this.mSizes[this.mCount] = size;
+            this.mDevs[this.mCount] = dev;
+            this.mInodes[this.mCount] = ino;
+            this.mCount++;
+        }
+    }
+
+    /**
+     * A map of sizes to the files of that size, in open-addressing primitive arrays. The
+     * files of a size are a linked list (the head is in the map, and every file points to
+     * the next one).
+     */
+    static final class SizeIndex {
+        // The size 0 marks an empty slot (the empty files are never indexed)
+        private final long[] mSizes;
+        private final int[] mHeads;
+        private final int[] mCounts;
+
+        /**
+         * Constructor of <code>SizeIndex</code>.
+         *
+         * @param capacity The number of files to index
+         */
+        SizeIndex(int capacity) {
+            int length = 16;
+            while (length < capacity * 2) {
+                length <<= 1;
+            }
+            this.mSizes = new long[length];
+            this.mHeads = new int[length];
+            this.mCounts = new int[length];
+        }
+
+        /**
+         * Method that adds a file to the index.
+         *
+         * @param size The size of the file (greater than 0)
+         * @param file The index of the file
+         * @param next The links between the files of the same size
+         */
+        void add(long size, int file, int[] next) {
+            int mask = this.mSizes.length - 1;
+            long h = size * 0x9E3779B97F4A7C15L;
+            int pos = (int)(h ^ (h >>> 32)) & mask;
+            while (this.mSizes[pos] != 0 && this.mSizes[pos] != size) {
+                pos = (pos + 1) & mask;
+            }
+            if (this.mSizes[pos] == 0) {
+                this.mSizes[pos] = size;
+                this.mHeads[pos] = -1;
+            }
+            next[file] = this.mHeads[pos];
+            this.mHeads[pos] = file;
+            this.mCounts[pos]++;
+        }
+
+        /**
+         * Method that returns the number of slots of the index.
+         *
+         * @return int The number of slots
+         */
+        int getSlots() {
+            return this.mSizes.length;
+        }
+
+        /**
+         * Method that returns the number of files of a slot.
+         *
+         * @param slot The slot
+         * @return int The number of files (0 if the slot is empty)
+         */
+        int getCount(int slot) {
+            return this.mCounts[slot];
+        }
+
+        /**
+         * Method that returns the first file of a slot.
+         *
+         * @param slot The slot
+         * @return int The index of the first file
+         */
+        int getHead(int slot) {
+            return this.mHeads[slot];
+        }
+    }
+
+    /**
+     * The digest and the buffer of a worker.
+     */
+    private final class Hasher {
+        private final MessageDigest mDigest;
+        private final ByteBuffer mBuffer = ByteBuffer.allocate(PARTIAL_SIZE);
+
+        /**
+         * Constructor of <code>Hasher</code>.
+         */
+        Hasher() {
+            super();
+            try {
+                this.mDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Method that hashes the first and the last {@link #PARTIAL_SIZE} bytes of a file.
+         *
+         * @param file The file
+         * @param size The size of the file
+         * @return String The digest, or null if the file couldn't be read (or changed)
+         */
+        String hashPartially(File file, long size) {
+            FileInputStream fis = null;
+            try {
+                fis = new FileInputStream(file);
+                FileChannel channel = fis.getChannel();
+                this.mDigest.reset();
+                if (!update(channel, 0, (int)Math.min(size, PARTIAL_SIZE))) {
+                    return null;
+                }
+                if (size > PARTIAL_SIZE) {
+                    long tail = Math.max(PARTIAL_SIZE, size - PARTIAL_SIZE);
+                    if (!update(channel, tail, (int)(size - tail))) {
+                        return null;
+                    }
+                }
+                return toHex(this.mDigest.digest());
+            } catch (IOException e) {
+                if (DEBUG) {
+                    Log.v(TAG, String.format("Failed to read %s", file), e); //$NON-NLS-1$
+                }
+                return null;
+            } finally {
+                try {
+                    if (fis != null) {
+                        fis.close();
+                    }
+                } catch (Throwable ex) {/**NON BLOCK**/}
+            }
+        }
+
+        /**
+         * Method that hashes a file completely, mapping it in memory by windows.
+         *
+         * @param file The file
+         * @param size The size of the file
+         * @return String The digest, or null if the file couldn't be read (or changed)
+         * or the search was cancelled
+         */
+        String hashFully(File file, long size) {
+            FileInputStream fis = null;
+            try {
+                fis = new FileInputStream(file);
+                FileChannel channel = fis.getChannel();
+                if (channel.size() != size) {
+                    return null;
+                }
+                this.mDigest.reset();
+                for (long pos = 0; pos < size; pos += MAP_WINDOW) {
+                    if (checkCancelled()) {
+                        return null;
+                    }
+                    this.mDigest.update(channel.map(
+                            FileChannel.MapMode.READ_ONLY, pos, Math.min(MAP_WINDOW, size - pos)));
+                }
+                return toHex(this.mDigest.digest());
+            } catch (IOException e) {
+                if (DEBUG) {
+                    Log.v(TAG, String.format("Failed to read %s", file), e); //$NON-NLS-1$
+                }
+                return null;
+            } finally {
+                try {
+                    if (fis != null) {
+                        fis.close();
+                    }
+                } catch (Throwable ex) {/**NON BLOCK**/}
+            }
+        }
+
+        /**
+         * Method that hashes a range of a file.
+         *
+         * @param channel The channel of the file
+         * @param position The start of the range
+         * @param length The length of the range (up to {@link #PARTIAL_SIZE} bytes)
+         * @return boolean If the range was read (false if the file is shorter)
+         * @throws IOException If the file can't be read
+         */
+        private boolean update(FileChannel channel, long position, int length)
+                throws IOException {
+            ByteBuffer buffer = this.mBuffer;
+            buffer.clear();
+            buffer.limit(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    return false;
+                }
+            }
+            this.mDigest.update(buffer.array(), 0, length);
+            return true;
+        }
+    }
+
+    /**
+     * Method that converts a digest to its hexadecimal representation.
+     *
+     * @param digest The digest
+     * @return String The hexadecimal digest
+     */
+    private static String toHex(byte[] digest) {
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0x0f];
+            hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0x0f];
+        }
+        return new String(hex);
+    }
+}
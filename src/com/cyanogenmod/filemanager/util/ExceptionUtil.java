@@ -34,6 +34,7 @@ import com.cyanogenmod.filemanager.console.ConsoleAllocException;
 import com.cyanogenmod.filemanager.console.ConsoleBuilder;
 import com.cyanogenmod.filemanager.console.ExecutionException;
 import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.console.InsufficientSpaceException;
 import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
 import com.cyanogenmod.filemanager.console.OperationTimeoutException;
 import com.cyanogenmod.filemanager.console.ReadOnlyFilesystemException;
@@ -92,6 +93,7 @@ public final class ExceptionUtil {
                                                 InsufficientPermissionsException.class,
                                                 CommandNotFoundException.class,
                                                 OperationTimeoutException.class,
+                                                InsufficientSpaceException.class,
                                                 ExecutionException.class,
                                                 ParseException.class,
                                                 ActivityNotFoundException.class
@@ -106,6 +108,7 @@ public final class ExceptionUtil {
                                                 R.string.msgs_insufficient_permissions,
                                                 R.string.msgs_command_not_found,
                                                 R.string.msgs_operation_timeout,
+                                                R.string.msgs_insufficient_space,
                                                 R.string.msgs_operation_failure,
                                                 R.string.msgs_operation_failure,
                                                 R.string.msgs_not_registered_app
@@ -122,6 +125,7 @@ public final class ExceptionUtil {
                                                             true,
                                                             true,
                                                             true,
+                                                            true,
                                                             false
                                                             };
 
@@ -26,12 +26,17 @@ import com.cyanogenmod.filemanager.FileManagerApplication;
 import com.cyanogenmod.filemanager.R;
 import com.cyanogenmod.filemanager.commands.shell.ResolveLinkCommand;
 import com.cyanogenmod.filemanager.console.ExecutionException;
+import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.console.InsufficientSpaceException;
+import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.console.ReadOnlyFilesystemException;
 import com.cyanogenmod.filemanager.model.AID;
 import com.cyanogenmod.filemanager.model.BlockDevice;
 import com.cyanogenmod.filemanager.model.CharacterDevice;
 import com.cyanogenmod.filemanager.model.Directory;
 import com.cyanogenmod.filemanager.model.DomainSocket;
 import com.cyanogenmod.filemanager.model.FileSystemObject;
+import com.cyanogenmod.filemanager.model.MountPoint;
 import com.cyanogenmod.filemanager.model.Group;
 import com.cyanogenmod.filemanager.model.NamedPipe;
 import com.cyanogenmod.filemanager.model.ParentDirectory;
@@ -42,6 +47,7 @@ import com.cyanogenmod.filemanager.model.SystemFile;
 import com.cyanogenmod.filemanager.model.User;
 import com.cyanogenmod.filemanager.preferences.DisplayRestrictions;
 import com.cyanogenmod.filemanager.preferences.FileManagerSettings;
+import com.cyanogenmod.filemanager.preferences.NavigationLayoutMode;
 import com.cyanogenmod.filemanager.preferences.NavigationSortMode;
 import com.cyanogenmod.filemanager.preferences.ObjectIdentifier;
 import com.cyanogenmod.filemanager.preferences.Preferences;
@@ -50,9 +56,17 @@ import com.cyanogenmod.filemanager.util.MimeTypeHelper.MimeTypeCategory;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -67,6 +81,35 @@ public final class FileHelper {
 
     private static final String TAG = "FileHelper"; //$NON-NLS-1$
 
+    // The maximum size of every kernel transfer of a copy
+    static final long TRANSFER_CHUNK = 8 * 1024 * 1024;
+    static final long PROGRESS_TRANSFER_CHUNK = 1024 * 1024;
+    private static final String ENOSPC = "ENOSPC"; //$NON-NLS-1$
+
+    // The posix_fallocate function (not available in all the platform versions)
+    private static Method sFallocate;
+    private static boolean sFallocateResolved = false;
+
+    // The stat, lstat and readlink functions and the fields of their result, and the
+    // functions for sync folders (not available in all the platform versions)
+    private static Object sOs;
+    private static Method sStat;
+    private static Method sLstat;
+    private static Method sReadlink;
+    private static Method sOpen;
+    private static Method sFsync;
+    private static Method sClose;
+    private static Field sStMode;
+    private static Field sStSize;
+    private static Field sStMtime;
+    private static Field sStDev;
+    private static Field sStIno;
+    private static volatile boolean sStatResolved = false;
+    static final int S_IFMT = 0170000;
+    static final int S_IFDIR = 0040000;
+    static final int S_IFLNK = 0120000;
+    static final int S_IFREG = 0100000;
+
     /**
      * Special extension for compressed tar files
      */
@@ -487,6 +530,9 @@ public final class FileHelper {
     public static List<FileSystemObject> applyUserPreferences(
             List<FileSystemObject> files, Map<DisplayRestrictions, Object> restrictions,
             boolean noSort, boolean chRooted) {
+        TraceHelper.begin(
+                "applyUserPreferences", TraceHelper.CAT_SORT, null, null); //$NON-NLS-1$
+
         //Retrieve user preferences
         SharedPreferences prefs = Preferences.getSharedPreferences();
         FileManagerSettings sortModePref = FileManagerSettings.SETTINGS_SORT_MODE;
@@ -585,6 +631,8 @@ public final class FileHelper {
         }
 
         //Return the files
+        TraceHelper.end(
+                "applyUserPreferences", TraceHelper.CAT_SORT, files.size()); //$NON-NLS-1$
         return files;
     }
 
@@ -891,28 +939,302 @@ public final class FileHelper {
             Group group = new Group(groupAID.getId(), groupAID.getName());
             Permissions perm = Permissions.fromRawString(PERMISSIONS);
 
-            // Build a directory?
-            if (file.isDirectory()) {
-                return
-                    new Directory(
-                            file.getName(),
-                            file.getParent(),
-                            user, group, perm,
-                            new Date(file.lastModified()));
-            }
+            return createFileSystemObject(file, file.isDirectory(), user, group, perm);
+        } catch (Exception e) {
+            Log.e(TAG, "Exception retrieving the fso", e); //$NON-NLS-1$
+        }
+        return null;
+    }
 
-            // Build a regular file
+    /**
+     * Method that creates a {@link FileSystemObject} from a {@link File}, with a known
+     * owner and permissions (so, without resolving them for every file)
+     *
+     * @param file The file or folder reference
+     * @param isDirectory If the file is a folder
+     * @param user The user owner of the file
+     * @param group The group owner of the file
+     * @param perm The permissions of the file
+     * @return FileSystemObject The file system object reference
+     */
+    public static FileSystemObject createFileSystemObject(
+            File file, boolean isDirectory, User user, Group group, Permissions perm) {
+        // Build a directory?
+        if (isDirectory) {
             return
-                new RegularFile(
+                new Directory(
                         file.getName(),
                         file.getParent(),
                         user, group, perm,
-                        new Date(file.lastModified()),
-                        file.length());
-        } catch (Exception e) {
-            Log.e(TAG, "Exception retrieving the fso", e); //$NON-NLS-1$
+                        new Date(file.lastModified()));
+        }
+
+        // Build a regular file
+        return
+            new RegularFile(
+                    file.getName(),
+                    file.getParent(),
+                    user, group, perm,
+                    new Date(file.lastModified()),
+                    file.length());
+    }
+
+    /**
+     * Method that creates a {@link FileSystemObject} from a {@link File} of a listing, with
+     * a known owner and permissions. The type, modification time and size of the file are
+     * read with a single <code>stat</code> (when the platform allows it); otherwise, the
+     * modification time and size can be read on demand.
+     *
+     * @param file The file or folder reference
+     * @param user The user owner of the file
+     * @param group The group owner of the file
+     * @param perm The permissions of the file
+     * @param lazy If the modification time and size can be read on demand
+     * @return FileSystemObject The file system object reference
+     * @see #isListingAttributesNeeded()
+     */
+    public static FileSystemObject createFileSystemObject(
+            File file, User user, Group group, Permissions perm, boolean lazy) {
+        long[] attrs = new long[3];
+        if (stat(file, attrs)) {
+            if ((attrs[0] & S_IFMT) == S_IFDIR) {
+                return new Directory(
+                        file.getName(), file.getParent(),
+                        user, group, perm,
+                        new Date(attrs[2]));
+            }
+            return new RegularFile(
+                    file.getName(), file.getParent(),
+                    user, group, perm,
+                    new Date(attrs[2]),
+                    attrs[1]);
+        }
+        if (!lazy) {
+            return createFileSystemObject(file, file.isDirectory(), user, group, perm);
+        }
+        FileSystemObject fso = file.isDirectory() ?
+                new Directory(file.getName(), file.getParent(), user, group, perm, null) :
+                new RegularFile(file.getName(), file.getParent(), user, group, perm, null, 0);
+        fso.setLazyAttributes(file);
+        return fso;
+    }
+
+    /**
+     * Method that returns if the current sort mode or layout mode of the navigation need
+     * the modification time and size of the listed files.
+     *
+     * @return boolean If the modification time and size of the listed files are needed
+     */
+    public static boolean isListingAttributesNeeded() {
+        SharedPreferences prefs = Preferences.getSharedPreferences();
+        FileManagerSettings sortModePref = FileManagerSettings.SETTINGS_SORT_MODE;
+        FileManagerSettings layoutModePref = FileManagerSettings.SETTINGS_LAYOUT_MODE;
+        NavigationSortMode sortMode =
+                NavigationSortMode.fromId(
+                        prefs.getInt(sortModePref.getId(),
+                        ((ObjectIdentifier)sortModePref.getDefaultValue()).getId()));
+        NavigationLayoutMode layoutMode =
+                NavigationLayoutMode.fromId(
+                        prefs.getInt(layoutModePref.getId(),
+                        ((ObjectIdentifier)layoutModePref.getDefaultValue()).getId()));
+        return sortMode.compareTo(NavigationSortMode.DATE_ASC) == 0 ||
+               sortMode.compareTo(NavigationSortMode.DATE_DESC) == 0 ||
+               layoutMode.compareTo(NavigationLayoutMode.DETAILS) == 0;
+    }
+
+    /**
+     * Method that reads the type, size and modification time of a file in a single
+     * <code>stat</code> call.
+     *
+     * @param file The file
+     * @param attrs The attributes read (the mode, the size and the modification time in
+     * milliseconds; and the device and the inode if the array has room for them)
+     * @return boolean If the attributes were read (false if the platform doesn't allow it
+     * or the file can't be read)
+     */
+    static boolean stat(File file, long[] attrs) {
+        resolveStat();
+        return invokeStat(sStat, file, attrs);
+    }
+
+    /**
+     * Method that reads the attributes of a file like {@link #stat(File, long[])}, but
+     * without following the file if it is a symbolic link (<code>lstat</code>).
+     *
+     * @param file The file
+     * @param attrs The attributes read (see {@link #stat(File, long[])})
+     * @return boolean If the attributes were read (false if the platform doesn't allow it
+     * or the file can't be read)
+     */
+    static boolean lstat(File file, long[] attrs) {
+        resolveStat();
+        return invokeStat(sLstat, file, attrs);
+    }
+
+    /**
+     * Method that checks if a file found in a folder is a symbolic link (only the file
+     * is checked, not its parent folders).
+     *
+     * @param file The file
+     * @return boolean If the file is a symbolic link (or it can't be resolved)
+     */
+    public static boolean isLink(File file) {
+        long[] attrs = new long[3];
+        if (lstat(file, attrs)) {
+            return (attrs[0] & S_IFMT) == S_IFLNK;
+        }
+        try {
+            // Compare the name of the file with the canonical path of the parent
+            File parent = file.getParentFile();
+            if (parent == null) {
+                return false;
+            }
+            File canonical = new File(parent.getCanonicalFile(), file.getName());
+            return canonical.getPath().compareTo(file.getCanonicalPath()) != 0;
+        } catch (IOException e) {
+            // Don't follow what can't be resolved
+            return true;
+        }
+    }
+
+    /**
+     * Method that reads the target of a symbolic link.
+     *
+     * @param link The symbolic link
+     * @return String The target of the link (as it was created, not resolved), or null if
+     * the platform doesn't allow it or the link can't be read
+     */
+    static String readLink(File link) {
+        resolveStat();
+        if (sReadlink == null) {
+            return null;
+        }
+        try {
+            return (String)sReadlink.invoke(sOs, link.getPath());
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Method that flushes the entries of a folder to the storage, so the files created
+     * in the folder survive a crash (a synced file is lost if its entry is not synced).
+     * Nothing is done if the platform doesn't allow to open a folder.
+     *
+     * @param folder The folder
+     * @throws IOException If the folder can't be synced
+     */
+    static void syncFolder(File folder) throws IOException {
+        resolveStat();
+        if (sOpen == null || sFsync == null || sClose == null) {
+            return;
+        }
+        FileDescriptor fd;
+        try {
+            // O_RDONLY
+            fd = (FileDescriptor)sOpen.invoke(sOs, folder.getPath(), Integer.valueOf(0),
+                    Integer.valueOf(0));
+        } catch (Exception ex) {
+            throw new IOException(String.format("Can't open %s", folder)); //$NON-NLS-1$
+        }
+        try {
+            sFsync.invoke(sOs, fd);
+        } catch (Exception ex) {
+            throw new IOException(String.format("Can't sync %s", folder)); //$NON-NLS-1$
+        } finally {
+            try {
+                sClose.invoke(sOs, fd);
+            } catch (Throwable ex) {/**NON BLOCK**/}
+        }
+    }
+
+    /**
+     * Method that resolves the stat (and readlink and sync) functions of the platform.
+     */
+    private static void resolveStat() {
+        if (sStatResolved) {
+            return;
+        }
+        synchronized (FileHelper.class) {
+            if (sStatResolved) {
+                return;
+            }
+            Class<?> os;
+            Class<?> st;
+            try {
+                // API 21+
+                os = Class.forName("android.system.Os"); //$NON-NLS-1$
+                st = Class.forName("android.system.StructStat"); //$NON-NLS-1$
+                sOs = null;
+            } catch (Throwable ex) {
+                try {
+                    // The same functions, through the internal api of the older versions
+                    os = Class.forName("libcore.io.Os"); //$NON-NLS-1$
+                    st = Class.forName("libcore.io.StructStat"); //$NON-NLS-1$
+                    sOs = Class.forName("libcore.io.Libcore") //$NON-NLS-1$
+                            .getField("os").get(null); //$NON-NLS-1$
+                } catch (Throwable ex2) {
+                    os = null;
+                    st = null;
+                }
+            }
+            try {
+                if (os != null) {
+                    sStat = os.getMethod("stat", String.class); //$NON-NLS-1$
+                    sLstat = os.getMethod("lstat", String.class); //$NON-NLS-1$
+                    sStMode = st.getField("st_mode"); //$NON-NLS-1$
+                    sStSize = st.getField("st_size"); //$NON-NLS-1$
+                    sStMtime = st.getField("st_mtime"); //$NON-NLS-1$
+                    sStDev = st.getField("st_dev"); //$NON-NLS-1$
+                    sStIno = st.getField("st_ino"); //$NON-NLS-1$
+                }
+            } catch (Throwable ex) {
+                sStat = null;
+                sLstat = null;
+            }
+            try {
+                if (os != null) {
+                    sReadlink = os.getMethod("readlink", String.class); //$NON-NLS-1$
+                    sOpen = os.getMethod(
+                            "open", String.class, int.class, int.class); //$NON-NLS-1$
+                    sFsync = os.getMethod("fsync", FileDescriptor.class); //$NON-NLS-1$
+                    sClose = os.getMethod("close", FileDescriptor.class); //$NON-NLS-1$
+                }
+            } catch (Throwable ex) {
+                sReadlink = null;
+                sOpen = null;
+                sFsync = null;
+                sClose = null;
+            }
+            sStatResolved = true;
+        }
+    }
+
+    /**
+     * Method that invokes a stat function.
+     *
+     * @param method The stat function
+     * @param file The file
+     * @param attrs The attributes read (see {@link #stat(File, long[])})
+     * @return boolean If the attributes were read
+     */
+    private static boolean invokeStat(Method method, File file, long[] attrs) {
+        if (method == null) {
+            return false;
+        }
+        try {
+            Object st = method.invoke(sOs, file.getPath());
+            attrs[0] = sStMode.getInt(st);
+            attrs[1] = sStSize.getLong(st);
+            attrs[2] = sStMtime.getLong(st) * 1000L;
+            if (attrs.length >= 5) {
+                attrs[3] = sStDev.getLong(st);
+                attrs[4] = sStIno.getLong(st);
+            }
+            return true;
+        } catch (Exception ex) {
+            return false;
         }
-        return null;
     }
 
     /**
@@ -922,38 +1244,299 @@ public final class FileHelper {
      * @param dst The destination file or folder
      * @param bufferSize The buffer size for the operation
      * @return boolean If the operation complete successfully
+     * @throws NoSuchFileOrDirectory If a source file disappeared during the operation
+     * @throws InsufficientPermissionsException If a file can't be read or written
+     * @throws ReadOnlyFilesystemException If the destination filesystem is read-only
+     * @throws InsufficientSpaceException If the destination filesystem is full
+     * @throws ExecutionException If a problem was detected in the operation
+     * @see #channelCopy(File, File, int)
+     */
+    public static boolean copyRecursive(
+            final File src, final File dst, int bufferSize)
+            throws NoSuchFileOrDirectory, InsufficientPermissionsException,
+            ReadOnlyFilesystemException, ExecutionException {
+        return copyRecursive(src, dst, bufferSize, null);
+    }
+
+    /**
+     * Method that copies recursively to the destination, reporting the progress
+     *
+     * @param src The source file or folder
+     * @param dst The destination file or folder
+     * @param bufferSize The buffer size for the operation
+     * @param tracker The tracker where to report the progress (or null)
+     * @return boolean If the operation complete successfully
+     * @throws NoSuchFileOrDirectory If a source file disappeared during the operation
+     * @throws InsufficientPermissionsException If a file can't be read or written
+     * @throws ReadOnlyFilesystemException If the destination filesystem is read-only
+     * @throws InsufficientSpaceException If the destination filesystem is full
      * @throws ExecutionException If a problem was detected in the operation
+     * @see TreeCopier
      */
     public static boolean copyRecursive(
-            final File src, final File dst, int bufferSize) throws ExecutionException {
-        if (src.isDirectory()) {
-            // Create the directory
-            if (dst.exists() && !dst.isDirectory()) {
-                Log.e(TAG,
-                        String.format("Failed to check destionation dir: %s", dst)); //$NON-NLS-1$
-                throw new ExecutionException("the path exists but is not a folder"); //$NON-NLS-1$
+            final File src, final File dst, int bufferSize, ProgressTracker tracker)
+            throws NoSuchFileOrDirectory, InsufficientPermissionsException,
+            ReadOnlyFilesystemException, ExecutionException {
+        // The tree is walked without recursion, and the loops of links are not followed
+        TreeCopier copier = new TreeCopier(src, dst, bufferSize);
+        copier.setProgressTracker(tracker);
+        return copier.copy();
+    }
+
+    /**
+     * Method that copies a file using the channels of the files. The data is transferred
+     * by the kernel when possible (<code>sendfile</code>), and through a direct buffer
+     * otherwise. The space of the destination file is preallocated (when the filesystem
+     * supports it) and the modification time and permissions of the source are preserved.
+     * If the copy fails, the destination file is deleted.
+     *
+     * @param src The source file
+     * @param dst The destination file
+     * @param bufferSize The buffer size for the operation (when the kernel can't transfer it)
+     * @throws NoSuchFileOrDirectory If the source file doesn't exists
+     * @throws InsufficientPermissionsException If a file can't be read or written
+     * @throws ReadOnlyFilesystemException If the destination filesystem is read-only
+     * @throws InsufficientSpaceException If the destination filesystem is full
+     * @throws ExecutionException If a problem was detected in the operation
+     */
+    public static void channelCopy(final File src, final File dst, int bufferSize)
+            throws NoSuchFileOrDirectory, InsufficientPermissionsException,
+            ReadOnlyFilesystemException, ExecutionException {
+        channelCopy(src, dst, bufferSize, null);
+    }
+
+    /**
+     * Method that copies a file using the channels of the files, reporting the progress
+     * of the copy.<br/>
+     * <br/>
+     * The copies of large files are journaled (see {@link CopyJournal}): if the copy fails
+     * after a checkpoint, the partial destination file is kept, and the next copy of the
+     * same file continues from the last good offset.
+     *
+     * @param src The source file
+     * @param dst The destination file
+     * @param bufferSize The buffer size for the operation (when the kernel can't transfer it)
+     * @param tracker The tracker where to report the progress (or null)
+     * @throws NoSuchFileOrDirectory If the source file doesn't exists
+     * @throws InsufficientPermissionsException If a file can't be read or written
+     * @throws ReadOnlyFilesystemException If the destination filesystem is read-only
+     * @throws InsufficientSpaceException If the destination filesystem is full
+     * @throws ExecutionException If a problem was detected in the operation
+     * @see #channelCopy(File, File, int)
+     */
+    public static void channelCopy(
+            final File src, final File dst, int bufferSize, ProgressTracker tracker)
+            throws NoSuchFileOrDirectory, InsufficientPermissionsException,
+            ReadOnlyFilesystemException, ExecutionException {
+        FileInputStream fis = null;
+        RandomAccessFile raf = null;
+        CopyJournal journal = null;
+        long copied = 0;
+        boolean done = false;
+        TraceHelper.begin(
+                "channelCopy", TraceHelper.CAT_IO, null, src.getPath()); //$NON-NLS-1$
+        try {
+            try {
+                fis = new FileInputStream(src);
+            } catch (FileNotFoundException e) {
+                if (!src.exists()) {
+                    throw new NoSuchFileOrDirectory(src.getAbsolutePath());
+                }
+                throw e;
+            }
+            raf = new RandomAccessFile(dst, "rw"); //$NON-NLS-1$
+            FileChannel in = fis.getChannel();
+            FileChannel out = raf.getChannel();
+            long size = in.size();
+            preallocate(raf, size);
+
+            // Resume an interrupted copy?
+            journal = CopyJournal.open(src, dst, size);
+            if (journal != null) {
+                copied = journal.getResumeOffset(out);
+                if (tracker != null && copied > 0) {
+                    tracker.addBytes(copied);
+                }
             }
-            if (!dst.exists()) {
-                if (!dst.mkdir()) {
-                    Log.e(TAG, String.format("Failed to create directory: %s", dst)); //$NON-NLS-1$
-                    return false;
+            // The transfer writes at the position of the destination channel (the
+            // checksums of the journal are read without moving it)
+            out.position(copied);
+
+            // Transfer the data in the kernel (in smaller chunks if the progress is reported)
+            long chunk = tracker == null ? TRANSFER_CHUNK : PROGRESS_TRANSFER_CHUNK;
+            while (copied < size) {
+                long transferred = in.transferTo(copied, Math.min(size - copied, chunk), out);
+                if (transferred <= 0) {
+                    // Transfer not supported (or the file was truncated)
+                    break;
+                }
+                copied += transferred;
+                if (tracker != null) {
+                    tracker.addBytes(transferred);
+                }
+                if (journal != null) {
+                    journal.checkpoint(out, copied);
                 }
             }
-            File[] files = src.listFiles();
-            if (files != null) {
-                for (int i = 0; i < files.length; i++) {
-                    if (!copyRecursive(files[i], new File(dst, files[i].getName()), bufferSize)) {
-                        return false;
+
+            // Copy the rest (the transfer is not supported, or the file has no size
+            // or it's growing)
+            in.position(copied);
+            out.position(copied);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, 1024));
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    int written = out.write(buffer);
+                    copied += written;
+                    if (tracker != null) {
+                        tracker.addBytes(written);
                     }
                 }
+                buffer.clear();
+                if (journal != null) {
+                    journal.checkpoint(out, copied);
+                }
             }
-        } else {
-            // Copy the directory
-            if (!bufferedCopy(src, dst,bufferSize)) {
-                return false;
+
+            // Remove the preallocated space not used
+            out.truncate(copied);
+            done = true;
+
+        } catch (IOException e) {
+            Log.e(TAG,
+                    String.format("Failed to copy from %s to %s", src, dst), e); //$NON-NLS-1$
+            throw translateCopyException(e, dst);
+        } finally {
+            try {
+                if (fis != null) {
+                    fis.close();
+                }
+            } catch (Throwable e) {/**NON BLOCK**/}
+            try {
+                if (raf != null) {
+                    raf.close();
+                }
+            } catch (Throwable e) {/**NON BLOCK**/}
+            if (journal != null && (done || !journal.hasCheckpoint())) {
+                journal.discard();
             }
+            if (!done && raf != null && (journal == null || !journal.hasCheckpoint())) {
+                dst.delete();
+            }
+            TraceHelper.end("channelCopy", TraceHelper.CAT_IO, copied); //$NON-NLS-1$
         }
-        return true;
+
+        preserveAttributes(src, dst);
+        if (tracker != null) {
+            tracker.addFile();
+        }
+    }
+
+    /**
+     * Method that flushes the data of a file to the storage.
+     *
+     * @param file The file
+     * @throws IOException If the file can't be synced
+     */
+    public static void syncFile(File file) throws IOException {
+        // fsync doesn't need a writable descriptor (the file could be read-only)
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            fis.getFD().sync();
+        } finally {
+            try {
+                fis.close();
+            } catch (Throwable e) {/**NON BLOCK**/}
+        }
+    }
+
+    /**
+     * Method that preallocates the space of a file (if the platform and the filesystem
+     * supports it), so the copy fails as soon as possible if there is no space, and the
+     * data is not fragmented.
+     *
+     * @param raf The file
+     * @param size The size to preallocate
+     * @throws IOException If there is no space for the file
+     */
+    private static void preallocate(RandomAccessFile raf, long size) throws IOException {
+        if (size <= 0) {
+            return;
+        }
+        synchronized (FileHelper.class) {
+            if (!sFallocateResolved) {
+                try {
+                    // API 21+
+                    Class<?> os = Class.forName("android.system.Os"); //$NON-NLS-1$
+                    sFallocate = os.getMethod("posix_fallocate", //$NON-NLS-1$
+                            FileDescriptor.class, long.class, long.class);
+                } catch (Throwable ex) {
+                    sFallocate = null;
+                }
+                sFallocateResolved = true;
+            }
+        }
+        if (sFallocate != null) {
+            try {
+                sFallocate.invoke(null, raf.getFD(), Long.valueOf(0), Long.valueOf(size));
+            } catch (InvocationTargetException ex) {
+                // Not supported by the filesystem is not an error
+                String msg = String.valueOf(ex.getCause().getMessage());
+                if (msg.indexOf(ENOSPC) != -1) {
+                    throw new IOException(msg);
+                }
+            } catch (Exception ex) {/**NON BLOCK**/}
+        }
+    }
+
+    /**
+     * Method that preserves the modification time and permissions of a copied file.
+     * Only the permissions of the owner can be changed by the java api.
+     *
+     * @param src The source file
+     * @param dst The destination file
+     */
+    static void preserveAttributes(File src, File dst) {
+        if (!dst.setLastModified(src.lastModified())) {
+            Log.w(TAG, String.format("Failed to preserve the mtime of %s", dst)); //$NON-NLS-1$
+        }
+        if (!src.isDirectory() && src.canExecute()) {
+            dst.setExecutable(true, false);
+        }
+        if (!src.canWrite()) {
+            dst.setWritable(false, false);
+        }
+    }
+
+    /**
+     * Method that translates an i/o exception of a copy operation.
+     *
+     * @param ex The i/o exception
+     * @param dst The destination file
+     * @return ExecutionException The translated exception (if isn't thrown a more
+     * specific exception)
+     * @throws InsufficientPermissionsException If a file can't be read or written
+     * @throws ReadOnlyFilesystemException If the destination filesystem is read-only
+     */
+    private static ExecutionException translateCopyException(IOException ex, File dst)
+            throws InsufficientPermissionsException, ReadOnlyFilesystemException {
+        String msg = String.valueOf(ex.getMessage());
+        if (msg.indexOf(ENOSPC) != -1 || msg.indexOf("No space left") != -1) { //$NON-NLS-1$
+            return new InsufficientSpaceException(dst.getAbsolutePath(), ex);
+        }
+        if (msg.indexOf("EROFS") != -1 || //$NON-NLS-1$
+            msg.indexOf("Read-only") != -1) { //$NON-NLS-1$
+            MountPoint mp = MountPointHelper.getMountPointFromDirectory(dst.getParent());
+            if (mp != null) {
+                throw new ReadOnlyFilesystemException(mp);
+            }
+        }
+        if (msg.indexOf("EACCES") != -1 || msg.indexOf("EPERM") != -1 || //$NON-NLS-1$ //$NON-NLS-2$
+            msg.indexOf("Permission denied") != -1) { //$NON-NLS-1$
+            throw new InsufficientPermissionsException();
+        }
+        return new ExecutionException(msg, ex);
     }
 
     /**
@@ -967,6 +1550,9 @@ public final class FileHelper {
     public static boolean bufferedCopy(final File src, final File dst, int bufferSize) {
         BufferedInputStream bis = null;
         BufferedOutputStream bos = null;
+        long copied = 0;
+        TraceHelper.begin(
+                "bufferedCopy", TraceHelper.CAT_IO, null, src.getPath()); //$NON-NLS-1$
         try {
             bis = new BufferedInputStream(new FileInputStream(src), bufferSize);
             bos = new BufferedOutputStream(new FileOutputStream(dst), bufferSize);
@@ -974,6 +1560,7 @@ public final class FileHelper {
             byte[] data = new byte[bufferSize];
             while ((read = bis.read(data, 0, bufferSize)) != -1) {
                 bos.write(data, 0, read);
+                copied += read;
             }
             return true;
 
@@ -992,30 +1579,19 @@ public final class FileHelper {
                     bos.close();
                 }
             } catch (Throwable e) {/**NON BLOCK**/}
+            TraceHelper.end("bufferedCopy", TraceHelper.CAT_IO, copied); //$NON-NLS-1$
         }
     }
 
     /**
-     * Method that deletes a folder recursively
+     * Method that deletes a folder recursively. The symbolic links are deleted, not
+     * followed.
      *
      * @param folder The folder to delete
      * @return boolean If the folder was deleted
+     * @see TreeDeleter
      */
     public static boolean deleteFolder(File folder) {
-        File[] files = folder.listFiles();
-        if (files != null) {
-            for (int i = 0; i < files.length; i++) {
-                if (files[i].isDirectory()) {
-                    if (!deleteFolder(files[i])) {
-                        return false;
-                    }
-                } else {
-                    if (!files[i].delete()) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return folder.delete();
+        return new TreeDeleter(folder).delete();
     }
 }
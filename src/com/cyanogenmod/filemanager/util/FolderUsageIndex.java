@@ -0,0 +1,658 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cyanogenmod.filemanager.util;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.commands.AsyncResultListener;
+import com.cyanogenmod.filemanager.commands.FolderUsageExecutable;
+import com.cyanogenmod.filemanager.model.FolderUsage;
+import com.cyanogenmod.filemanager.util.MimeTypeHelper.MimeTypeCategory;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A persistent index of the disk usage of the folders of a storage volume, so the usage of
+ * a folder scanned before is returned without walking it again.<br/>
+ * <br/>
+ * Every volume has its own database, with the direct usage of every folder (the number of
+ * subfolders and files, the size of the files and the number of files of every
+ * {@link MimeTypeCategory}) and its modification time. The usage of a folder is the sum of
+ * the rows of its subtree (a range of paths of the index).<br/>
+ * <br/>
+ * The updates are incremental: only the folders which modification time has changed are
+ * listed again. The size of a file modified in place doesn't change the modification time
+ * of its folder, so the usage of the index is shown with the time of its last scan.
+ */
+public final class FolderUsageIndex {
+
+    private static final String TAG = "FolderUsageIndex"; //$NON-NLS-1$
+
+    private static boolean DEBUG = false;
+
+    private static final String DATABASE_PREFIX = "folder-usage-"; //$NON-NLS-1$
+    private static final String DATABASE_SUFFIX = ".db"; //$NON-NLS-1$
+    private static final int DATABASE_VERSION = 1;
+
+    // The minimum time between partial results
+    private static final long PARTIAL_RESULT_INTERVAL = 250L;
+
+    // The indexes of the volumes, by root
+    private static final Map<String, FolderUsageIndex> sIndexes =
+            new HashMap<String, FolderUsageIndex>();
+
+    /**
+     * An interface to follow the progress of an update.
+     */
+    public interface OnProgressListener {
+        /**
+         * Invoked after every folder scanned.
+         *
+         * @param usage The usage of the folders scanned until now
+         * @return boolean If the update must continue (false to cancel it)
+         */
+        boolean onProgress(FolderUsage usage);
+    }
+
+    private final String mRoot;
+    private final DatabaseHelper mHelper;
+
+    /**
+     * Constructor of <code>FolderUsageIndex</code>.
+     *
+     * @param ctx The current context
+     * @param root The root folder of the index
+     */
+    FolderUsageIndex(Context ctx, String root) {
+        super();
+        this.mRoot = new File(root).getAbsolutePath();
+        this.mHelper = new DatabaseHelper(ctx, getDatabaseName(this.mRoot));
+    }
+
+    /**
+     * Method that returns the index of the storage volume of a folder.
+     *
+     * @param ctx The current context
+     * @param directory The folder
+     * @return FolderUsageIndex The index, or null if the folder isn't in a storage volume
+     */
+    public static FolderUsageIndex getIndex(Context ctx, String directory) {
+        String root = StorageHelper.getStorageVolumeRoot(ctx, directory);
+        if (root == null) {
+            return null;
+        }
+        synchronized (sIndexes) {
+            FolderUsageIndex index = sIndexes.get(root);
+            if (index == null) {
+                index = new FolderUsageIndex(ctx.getApplicationContext(), root);
+                sIndexes.put(root, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Method that returns the name of the database of an index.
+     *
+     * @param root The root folder of the index
+     * @return String The name of the database
+     */
+    static String getDatabaseName(String root) {
+        return DATABASE_PREFIX + Integer.toHexString(root.hashCode()) + DATABASE_SUFFIX;
+    }
+
+    /**
+     * Method that closes the database of the index.
+     */
+    void close() {
+        this.mHelper.close();
+    }
+
+    /**
+     * Method that returns the time of the last scan of a folder.
+     *
+     * @param directory The folder
+     * @return long The time of the last scan, or 0 if the folder wasn't scanned
+     */
+    public long getLastScan(String directory) {
+        SQLiteDatabase db = this.mHelper.getReadableDatabase();
+        Cursor c = db.rawQuery(
+                "SELECT scanned FROM dirs WHERE path = ?", //$NON-NLS-1$
+                new String[]{new File(directory).getAbsolutePath()});
+        try {
+            return c.moveToFirst() ? c.getLong(0) : 0;
+        } finally {
+            c.close();
+        }
+    }
+
+    /**
+     * Method that returns the usage of a folder from the index.
+     *
+     * @param directory The folder
+     * @return FolderUsage The usage of the folder in its last scan, or null if the folder
+     * wasn't scanned
+     */
+    public FolderUsage getFolderUsage(String directory) {
+        if (getLastScan(directory) == 0) {
+            return null;
+        }
+        String dir = new File(directory).getAbsolutePath();
+        String filter = StorageHelper.getPathRangeFilter("dirs.path"); //$NON-NLS-1$
+        String[] range = StorageHelper.getPathRangeArgs(dir);
+        SQLiteDatabase db = this.mHelper.getReadableDatabase();
+        FolderUsage usage = new FolderUsage(dir);
+        Cursor c = db.rawQuery(
+                "SELECT SUM(folders), SUM(files), SUM(bytes) FROM dirs " + //$NON-NLS-1$
+                "WHERE " + filter, range); //$NON-NLS-1$
+        try {
+            if (c.moveToFirst()) {
+                usage.addTotals(c.getInt(0), c.getInt(1), c.getLong(2));
+            }
+        } finally {
+            c.close();
+        }
+        c = db.rawQuery(
+                "SELECT categories.category, SUM(categories.files) " + //$NON-NLS-1$
+                "FROM categories, dirs WHERE categories.dir = dirs._id AND " + //$NON-NLS-1$
+                filter +
+                " GROUP BY categories.category", range); //$NON-NLS-1$
+        try {
+            while (c.moveToNext()) {
+                addCategory(usage, c.getInt(0), c.getLong(1));
+            }
+        } finally {
+            c.close();
+        }
+        return usage;
+    }
+
+    /**
+     * Method that scans a folder, listing only the new folders and the folders that were
+     * modified since the last scan, and returns its updated usage.
+     *
+     * @param directory The folder
+     * @param listener The listener of the progress of the update (can be null)
+     * @return FolderUsage The usage of the folder, or null if the update was cancelled
+     * (the index is not modified then)
+     */
+    public synchronized FolderUsage update(String directory, OnProgressListener listener) {
+        long start = System.currentTimeMillis();
+        String dir = new File(directory).getAbsolutePath();
+        String filter = StorageHelper.getPathRangeFilter("dirs.path"); //$NON-NLS-1$
+        String[] range = StorageHelper.getPathRangeArgs(dir);
+        SQLiteDatabase db = this.mHelper.getWritableDatabase();
+
+        // The known folders of the subtree (with its usage), and its subfolders
+        Map<String, long[]> known = new HashMap<String, long[]>();
+        Map<String, List<String>> children = new HashMap<String, List<String>>();
+        Cursor c = db.rawQuery(
+                "SELECT path, _id, mtime, folders, files, bytes FROM dirs " + //$NON-NLS-1$
+                "WHERE " + filter, range); //$NON-NLS-1$
+        try {
+            while (c.moveToNext()) {
+                String path = c.getString(0);
+                known.put(path, new long[]{
+                        c.getLong(1), c.getLong(2), c.getLong(3), c.getLong(4), c.getLong(5)});
+                String parent = new File(path).getParent();
+                List<String> subfolders = children.get(parent);
+                if (subfolders == null) {
+                    subfolders = new ArrayList<String>();
+                    children.put(parent, subfolders);
+                }
+                subfolders.add(path);
+            }
+        } finally {
+            c.close();
+        }
+        Map<Long, List<long[]>> categories = new HashMap<Long, List<long[]>>();
+        c = db.rawQuery(
+                "SELECT categories.dir, categories.category, categories.files " + //$NON-NLS-1$
+                "FROM categories, dirs WHERE categories.dir = dirs._id AND " + //$NON-NLS-1$
+                filter, range);
+        try {
+            while (c.moveToNext()) {
+                Long id = Long.valueOf(c.getLong(0));
+                List<long[]> dirCategories = categories.get(id);
+                if (dirCategories == null) {
+                    dirCategories = new ArrayList<long[]>();
+                    categories.put(id, dirCategories);
+                }
+                dirCategories.add(new long[]{c.getLong(1), c.getLong(2)});
+            }
+        } finally {
+            c.close();
+        }
+
+        // The whole update is a transaction, so a cancelled update doesn't leave folders
+        // listed without its subfolders
+        FolderUsage usage = new FolderUsage(dir);
+        int rescanned = 0;
+        db.beginTransaction();
+        try {
+            Set<String> seen = new HashSet<String>();
+            ArrayDeque<String> pending = new ArrayDeque<String>();
+            pending.push(dir);
+            while (!pending.isEmpty()) {
+                String path = pending.pop();
+                if (seen.contains(path)) {
+                    continue;
+                }
+                File folder = new File(path);
+                long mtime = folder.lastModified();
+                if (mtime == 0 && !folder.isDirectory()) {
+                    // Removed after its parent was scanned
+                    continue;
+                }
+                seen.add(path);
+                long[] info = known.get(path);
+                if (info != null && info[1] == mtime) {
+                    // Not modified. Its usage and subfolders are the same of the last scan
+                    usage.addTotals((int)info[2], (int)info[3], info[4]);
+                    List<long[]> dirCategories = categories.get(Long.valueOf(info[0]));
+                    if (dirCategories != null) {
+                        int cc = dirCategories.size();
+                        for (int i = 0; i < cc; i++) {
+                            long[] category = dirCategories.get(i);
+                            addCategory(usage, (int)category[0], category[1]);
+                        }
+                    }
+                    List<String> subfolders = children.get(path);
+                    if (subfolders != null) {
+                        pending.addAll(subfolders);
+                    }
+                } else {
+                    rescanned++;
+                    scanFolder(db, folder, info, mtime, usage, pending);
+                }
+
+                if (listener != null && !listener.onProgress(usage)) {
+                    return null;
+                }
+            }
+
+            // Remove the folders that doesn't exist anymore
+            for (Map.Entry<String, long[]> entry : known.entrySet()) {
+                if (!seen.contains(entry.getKey())) {
+                    String[] args = new String[]{String.valueOf(entry.getValue()[0])};
+                    db.delete("categories", "dir = ?", args); //$NON-NLS-1$ //$NON-NLS-2$
+                    db.delete("dirs", "_id = ?", args); //$NON-NLS-1$ //$NON-NLS-2$
+                }
+            }
+
+            // The subtree is up to date
+            ContentValues values = new ContentValues();
+            values.put("scanned", Long.valueOf(System.currentTimeMillis())); //$NON-NLS-1$
+            db.update("dirs", values, filter, range); //$NON-NLS-1$
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        if (DEBUG) {
+            Log.v(TAG, String.format(
+                    "Updated usage of %s: %d folders, %d rescanned, in %d ms", //$NON-NLS-1$
+                    dir, Integer.valueOf(usage.getNumberOfFolders() + 1),
+                    Integer.valueOf(rescanned),
+                    Long.valueOf(System.currentTimeMillis() - start)));
+        }
+        return usage;
+    }
+
+    /**
+     * Method that lists a folder and stores its direct usage in the index.
+     *
+     * @param db The database
+     * @param folder The folder
+     * @param info The row of the folder in the index, or null if the folder is new
+     * @param mtime The current modification time of the folder
+     * @param usage The usage where to add the usage of the folder
+     * @param pending The folders pending to scan, where the subfolders are added
+     */
+    private static void scanFolder(SQLiteDatabase db, File folder, long[] info, long mtime,
+            FolderUsage usage, ArrayDeque<String> pending) {
+        int folders = 0;
+        int files = 0;
+        long bytes = 0;
+        long[] categories = new long[MimeTypeCategory.values().length];
+        long[] attrs = new long[3];
+        File[] list = folder.listFiles();
+        int cc = list == null ? 0 : list.length;
+        for (int i = 0; i < cc; i++) {
+            File file = list[i];
+            boolean isDirectory;
+            long size;
+            if (FileHelper.lstat(file, attrs)) {
+                int type = (int)(attrs[0] & FileHelper.S_IFMT);
+                isDirectory = type == FileHelper.S_IFDIR;
+                size = type == FileHelper.S_IFLNK ? 0 : attrs[1];
+            } else {
+                // Don't walk the links to folders (they could loop)
+                isDirectory = file.isDirectory() && !FileHelper.isLink(file);
+                size = isDirectory ? 0 : file.length();
+            }
+            if (isDirectory) {
+                folders++;
+                pending.push(file.getAbsolutePath());
+            } else {
+                files++;
+                bytes += size;
+                categories[MimeTypeHelper.getCategoryFromName(null, file.getName()).ordinal()]++;
+            }
+        }
+
+        ContentValues values = new ContentValues();
+        values.put("path", folder.getAbsolutePath()); //$NON-NLS-1$
+        values.put("mtime", Long.valueOf(mtime)); //$NON-NLS-1$
+        values.put("scanned", Long.valueOf(0)); //$NON-NLS-1$
+        values.put("folders", Integer.valueOf(folders)); //$NON-NLS-1$
+        values.put("files", Integer.valueOf(files)); //$NON-NLS-1$
+        values.put("bytes", Long.valueOf(bytes)); //$NON-NLS-1$
+        long id;
+        if (info == null) {
+            id = db.insert("dirs", null, values); //$NON-NLS-1$
+        } else {
+            id = info[0];
+            String[] args = new String[]{String.valueOf(id)};
+            db.update("dirs", values, "_id = ?", args); //$NON-NLS-1$ //$NON-NLS-2$
+            db.delete("categories", "dir = ?", args); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        usage.addTotals(folders, files, bytes);
+        for (int i = 0; i < categories.length; i++) {
+            if (categories[i] != 0) {
+                ContentValues category = new ContentValues();
+                category.put("dir", Long.valueOf(id)); //$NON-NLS-1$
+                category.put("category", Integer.valueOf(i)); //$NON-NLS-1$
+                category.put("files", Long.valueOf(categories[i])); //$NON-NLS-1$
+                db.insert("categories", null, category); //$NON-NLS-1$
+                addCategory(usage, i, categories[i]);
+            }
+        }
+    }
+
+    /**
+     * Method that adds a number of files to a category of an usage.
+     *
+     * @param usage The usage
+     * @param category The ordinal of the category
+     * @param files The number of files
+     */
+    private static void addCategory(FolderUsage usage, int category, long files) {
+        MimeTypeCategory[] values = MimeTypeCategory.values();
+        if (category >= 0 && category < values.length) {
+            usage.addFilesToCategory(values[category], files);
+        }
+    }
+
+    /**
+     * Method that creates a computation of the usage of a folder through the index. The
+     * computation returns first the usage of the last scan (if any), and then updates it.
+     * Must be started with {@link IndexedFolderUsage#start()}.
+     *
+     * @param directory The folder
+     * @param asyncResultListener The partial result listener
+     * @return IndexedFolderUsage The computation of the usage
+     */
+    public IndexedFolderUsage newFolderUsage(
+            String directory, AsyncResultListener asyncResultListener) {
+        return new IndexedFolderUsage(this, directory, asyncResultListener);
+    }
+
+    /**
+     * A computation of the usage of a folder through the index, with the same results
+     * that the folder usage command.
+     */
+    public static final class IndexedFolderUsage
+            implements FolderUsageExecutable, OnProgressListener, Runnable {
+
+        private final FolderUsageIndex mIndex;
+        private final String mDirectory;
+        private final AsyncResultListener mAsyncResultListener;
+        private volatile FolderUsage mFolderUsage;
+        private volatile long mStaleSince;
+        private volatile boolean mCancelled;
+        private long mLastPartialResult;
+
+        /**
+         * Constructor of <code>IndexedFolderUsage</code>.
+         *
+         * @param index The index
+         * @param directory The folder
+         * @param asyncResultListener The partial result listener
+         */
+        IndexedFolderUsage(FolderUsageIndex index, String directory,
+                AsyncResultListener asyncResultListener) {
+            super();
+            this.mIndex = index;
+            this.mDirectory = directory;
+            this.mAsyncResultListener = asyncResultListener;
+            this.mFolderUsage = new FolderUsage(directory);
+            this.mStaleSince = 0;
+            this.mCancelled = false;
+        }
+
+        /**
+         * Method that starts the computation in background.
+         */
+        public void start() {
+            Thread t = new Thread(this, "FolderUsageIndex"); //$NON-NLS-1$
+            t.start();
+        }
+
+        /**
+         * Method that returns the time of the scan of the usage returned, while the usage
+         * is being updated.
+         *
+         * @return long The time of the scan of the usage, or 0 if the usage is up to date
+         * (or it's being computed for the first time)
+         */
+        public long getStaleSince() {
+            return this.mStaleSince;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run() {
+            AsyncResultListener listener = this.mAsyncResultListener;
+            if (listener != null) {
+                listener.onAsyncStart();
+            }
+            try {
+                // The usage of the last scan
+                FolderUsage usage = this.mIndex.getFolderUsage(this.mDirectory);
+                if (usage != null) {
+                    this.mStaleSince = this.mIndex.getLastScan(this.mDirectory);
+                    this.mFolderUsage = usage;
+                    if (listener != null) {
+                        listener.onPartialResult(usage);
+                    }
+                }
+
+                // Update it
+                usage = this.mIndex.update(this.mDirectory, this);
+                if (usage != null) {
+                    this.mFolderUsage = usage;
+                    this.mStaleSince = 0;
+                    if (listener != null) {
+                        listener.onPartialResult(usage);
+                    }
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to compute the folder usage of " + //$NON-NLS-1$
+                        this.mDirectory, e);
+                if (listener != null) {
+                    listener.onException(e);
+                }
+            }
+            if (listener != null) {
+                listener.onAsyncEnd(this.mCancelled);
+                listener.onAsyncExitCode(0);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean onProgress(FolderUsage usage) {
+            // Only the first computation has partial results (an update of a usage
+            // shows the usage of the last scan)
+            if (this.mStaleSince == 0 && this.mAsyncResultListener != null) {
+                long now = System.currentTimeMillis();
+                if (now - this.mLastPartialResult >= PARTIAL_RESULT_INTERVAL) {
+                    this.mLastPartialResult = now;
+                    this.mAsyncResultListener.onPartialResult(usage);
+                }
+            }
+            return !this.mCancelled;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public FolderUsage getFolderUsage() {
+            return this.mFolderUsage;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isCancelled() {
+            return this.mCancelled;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean cancel() {
+            this.mCancelled = true;
+            return true;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean end() {
+            this.mCancelled = true;
+            return true;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setOnEndListener(OnEndListener onEndListener) {
+            //Ignore. Not executed by a console
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setOnCancelListener(OnCancelListener onCancelListener) {
+            //Ignore. Not executed by a console
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isCancellable() {
+            return true;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public AsyncResultListener getAsyncResultListener() {
+            return this.mAsyncResultListener;
+        }
+    }
+
+    /**
+     * The database of an index.
+     */
+    private static class DatabaseHelper extends SQLiteOpenHelper {
+
+        /**
+         * Constructor of <code>DatabaseHelper</code>
+         *
+         * @param context The current context
+         * @param name The name of the database
+         */
+        DatabaseHelper(Context context, String name) {
+            super(context, name, null, DATABASE_VERSION);
+            // Let the dialogs read while an update writes
+            setWriteAheadLoggingEnabled(true);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE dirs (" + //$NON-NLS-1$
+                       "_id INTEGER PRIMARY KEY," + //$NON-NLS-1$
+                       "path TEXT UNIQUE NOT NULL," + //$NON-NLS-1$
+                       "mtime INTEGER NOT NULL," + //$NON-NLS-1$
+                       "scanned INTEGER NOT NULL," + //$NON-NLS-1$
+                       "folders INTEGER NOT NULL," + //$NON-NLS-1$
+                       "files INTEGER NOT NULL," + //$NON-NLS-1$
+                       "bytes INTEGER NOT NULL);"); //$NON-NLS-1$
+            db.execSQL("CREATE TABLE categories (" + //$NON-NLS-1$
+                       "dir INTEGER NOT NULL," + //$NON-NLS-1$
+                       "category INTEGER NOT NULL," + //$NON-NLS-1$
+                       "files INTEGER NOT NULL);"); //$NON-NLS-1$
+            db.execSQL("CREATE INDEX categories_dir ON categories (dir);"); //$NON-NLS-1$
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int currentVersion) {
+            if (DEBUG) {
+                Log.v(TAG, "Upgrading folder usage database from version " + //$NON-NLS-1$
+                    oldVersion + " to " + currentVersion + //$NON-NLS-1$
+                    ", which will destroy all old data"); //$NON-NLS-1$
+            }
+            db.execSQL("DROP TABLE IF EXISTS dirs"); //$NON-NLS-1$
+            db.execSQL("DROP TABLE IF EXISTS categories"); //$NON-NLS-1$
+            onCreate(db);
+        }
+    }
+}
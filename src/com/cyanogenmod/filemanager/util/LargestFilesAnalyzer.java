@@ -0,0 +1,440 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.model.SizeRanking;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A class for find the largest files and folders of a volume.<br/>
+ * <br/>
+ * The tree is walked once, in parallel (see {@link ParallelTreeWalker}). The symbolic links
+ * are not followed, and the walk doesn't leave the volume of the root folder. The K largest
+ * files and the K largest folders are kept in two bounded min-heaps of primitive arrays, so
+ * the ranking uses the same memory for any size of the tree. A file smaller than the
+ * smallest file of a full heap is discarded without taking its lock (the empty files and
+ * folders are never ranked).<br/>
+ * <br/>
+ * The size of a folder includes its subfolders. Only the folders being walked (and their
+ * parents) are accounted while the walk is in progress: when all the subfolders of a folder
+ * were walked, its total is ranked and added to its parent, and the folder is forgotten.
+ * The walker only compares every folder with its ancestors to detect the loops (see
+ * {@link ParallelTreeWalker#setAncestorLoopCheck(boolean)}), so the memory of the analysis
+ * is the ranking plus the folders being walked, and it doesn't grow with the size of the
+ * tree.<br/>
+ * <br/>
+ * The ranking is delivered periodically to a {@link OnRankingListener} while the walk is in
+ * progress (only the folders completely walked are ranked), and the analysis can be
+ * cancelled with {@link #cancel()} or interrupting the thread that calls {@link #analyze()}.
+ */
+public class LargestFilesAnalyzer {
+
+    private static final String TAG = "LargestFilesAnalyzer"; //$NON-NLS-1$
+
+    private static boolean DEBUG = false;
+
+    /**
+     * The default number of files and folders of the ranking.
+     */
+    public static final int DEFAULT_COUNT = 20;
+
+    // The minimum time between two deliveries of the ranking
+    private static final long RANKING_INTERVAL = 500L;
+
+    /**
+     * An interface for receive the ranking while the analysis is in progress.
+     */
+    public interface OnRankingListener {
+        /**
+         * Method invoked with the current ranking. It's invoked from the worker threads,
+         * but never concurrently.
+         *
+         * @param ranking The current ranking
+         */
+        void onRanking(SizeRanking ranking);
+    }
+
+    private final File mRoot;
+    private final int mParallelism;
+    private final BoundedHeap mFiles;
+    private final BoundedHeap mFolders;
+
+    // The folders not completely walked
+    private final ConcurrentHashMap<String, Node> mNodes = new ConcurrentHashMap<String, Node>();
+
+    private OnRankingListener mListener;
+    private volatile boolean mCancelled;
+    private volatile long mLastRanking;
+    private final Object mRankingSync = new Object();
+
+    /**
+     * Constructor of <code>LargestFilesAnalyzer</code>.
+     *
+     * @param root The folder to analyze
+     * @param count The number of files and folders of the ranking
+     */
+    public LargestFilesAnalyzer(File root, int count) {
+        this(root, count, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor of <code>LargestFilesAnalyzer</code>.
+     *
+     * @param root The folder to analyze
+     * @param count The number of files and folders of the ranking
+     * @param parallelism The number of threads that walk the tree
+     */
+    public LargestFilesAnalyzer(File root, int count, int parallelism) {
+        super();
+        this.mRoot = root;
+        this.mParallelism = Math.max(1, parallelism);
+        this.mFiles = new BoundedHeap(Math.max(1, count));
+        this.mFolders = new BoundedHeap(Math.max(1, count));
+        this.mCancelled = false;
+    }
+
+    /**
+     * Method that sets the listener of the ranking.
+     *
+     * @param listener The listener
+     */
+    public void setOnRankingListener(OnRankingListener listener) {
+        this.mListener = listener;
+    }
+
+    /**
+     * Method that cancels the analysis. The folders being walked are finished.
+     */
+    public void cancel() {
+        this.mCancelled = true;
+    }
+
+    /**
+     * Method that returns if the analysis was cancelled.
+     *
+     * @return boolean If the analysis was cancelled
+     */
+    public boolean isCancelled() {
+        return this.mCancelled;
+    }
+
+    /**
+     * Method that returns the current ranking (the final ranking when the analysis ends).
+     *
+     * @return SizeRanking The current ranking
+     */
+    public SizeRanking getRanking() {
+        return new SizeRanking(
+                this.mRoot.getAbsolutePath(), this.mFiles.toList(), this.mFolders.toList());
+    }
+
+    /**
+     * Method that analyzes the tree.
+     *
+     * @return boolean If the analysis was completed (false if was cancelled)
+     */
+    public boolean analyze() {
+        final int parallelism = this.mParallelism;
+        final long[][] attrs = new long[parallelism][5];
+        // The folder being walked by every worker, and the size of its files
+        final Node[] current = new Node[parallelism];
+        final long[] bytes = new long[parallelism];
+
+        // The device of the volume
+        final long dev = FileHelper.stat(this.mRoot, attrs[0]) ? attrs[0][3] : -1;
+        this.mNodes.put(this.mRoot.getPath(), new Node(this.mRoot.getPath(), null));
+
+        long start = System.currentTimeMillis();
+        ParallelTreeWalker walker = new ParallelTreeWalker(parallelism) {
+            @Override
+            protected boolean onVisit(int worker, File file, boolean isDirectory) {
+                Node parent = current[worker];
+                if (parent == null) {
+                    parent = LargestFilesAnalyzer.this.mNodes.get(file.getParent());
+                    current[worker] = parent;
+                }
+                long[] a = attrs[worker];
+                boolean hasAttrs = FileHelper.lstat(file, a);
+                if (isDirectory) {
+                    // Don't leave the volume
+                    if (parent == null || (hasAttrs && dev != -1 && a[3] != dev)) {
+                        return false;
+                    }
+                    parent.mPending.incrementAndGet();
+                    LargestFilesAnalyzer.this.mNodes.put(
+                            file.getPath(), new Node(file.getPath(), parent));
+                    return true;
+                }
+
+                // Only the regular files (not the links, devices, ...)
+                long size;
+                if (hasAttrs) {
+                    if ((a[0] & FileHelper.S_IFMT) != FileHelper.S_IFREG) {
+                        return false;
+                    }
+                    size = a[1];
+                } else {
+                    if (!file.isFile() || FileHelper.isLink(file)) {
+                        return false;
+                    }
+                    size = file.length();
+                }
+                bytes[worker] += size;
+                LargestFilesAnalyzer.this.mFiles.offer(file.getPath(), size);
+                return false;
+            }
+
+            @Override
+            protected void onFolderWalked(int worker, File folder) {
+                Node node = current[worker];
+                if (node == null) {
+                    // A folder without files
+                    node = LargestFilesAnalyzer.this.mNodes.get(folder.getPath());
+                }
+                if (node != null) {
+                    node.mSize.addAndGet(bytes[worker]);
+                    finish(node);
+                }
+                current[worker] = null;
+                bytes[worker] = 0;
+                notifyRanking(false);
+            }
+
+            @Override
+            protected void onFolderSkipped(int worker, File folder) {
+                Node node = LargestFilesAnalyzer.this.mNodes.get(folder.getPath());
+                if (node != null) {
+                    finish(node);
+                }
+            }
+
+            @Override
+            public boolean isStopped() {
+                return super.isStopped() || checkCancelled();
+            }
+        };
+        walker.setFollowSymlinks(false);
+        walker.setAncestorLoopCheck(true);
+        walker.walk(this.mRoot);
+        this.mNodes.clear();
+        if (checkCancelled()) {
+            return false;
+        }
+
+        if (DEBUG) {
+            Log.v(TAG, String.format("Analyzed %s in %dms", //$NON-NLS-1$
+                    this.mRoot, Long.valueOf(System.currentTimeMillis() - start)));
+        }
+        notifyRanking(true);
+        return true;
+    }
+
+    /**
+     * Method that finishes a pending task of a folder (its own walk, or the walk of a
+     * subfolder). When the folder has no more pending tasks, it's ranked and its size
+     * is added to its parent.
+     *
+     * @param node The folder
+     */
+    void finish(Node node) {
+        Node n = node;
+        while (n != null && n.mPending.decrementAndGet() == 0) {
+            this.mNodes.remove(n.mPath);
+            long size = n.mSize.get();
+            Node parent = n.mParent;
+            if (parent != null) {
+                // The root folder is not ranked (it's the total)
+                this.mFolders.offer(n.mPath, size);
+                parent.mSize.addAndGet(size);
+            }
+            n = parent;
+        }
+    }
+
+    /**
+     * Method that delivers the ranking to the listener (if the last one is old enough).
+     *
+     * @param force Deliver the ranking although the last one is recent
+     */
+    void notifyRanking(boolean force) {
+        if (this.mListener == null ||
+                (!force && System.currentTimeMillis() - this.mLastRanking < RANKING_INTERVAL)) {
+            return;
+        }
+        synchronized (this.mRankingSync) {
+            long now = System.currentTimeMillis();
+            if (force || now - this.mLastRanking >= RANKING_INTERVAL) {
+                this.mLastRanking = now;
+                this.mListener.onRanking(getRanking());
+            }
+        }
+    }
+
+    /**
+     * Method that checks if the analysis was cancelled (or the current thread was
+     * interrupted).
+     *
+     * @return boolean If the analysis was cancelled
+     */
+    boolean checkCancelled() {
+        if (Thread.interrupted()) {
+            this.mCancelled = true;
+            Thread.currentThread().interrupt();
+        }
+        return this.mCancelled;
+    }
+
+    /**
+     * A folder not completely walked.
+     */
+    private static final class Node {
+        final String mPath;
+        final Node mParent;
+        // The size of the files walked of the folder and its subfolders
+        final AtomicLong mSize = new AtomicLong();
+        // The walk of the folder and of every subfolder not completely walked
+        final AtomicInteger mPending = new AtomicInteger(1);
+
+        Node(String path, Node parent) {
+            super();
+            this.mPath = path;
+            this.mParent = parent;
+        }
+    }
+
+    /**
+     * A min-heap of the K largest sizes (and its paths) in primitive arrays.
+     */
+    static final class BoundedHeap {
+        private final String[] mPaths;
+        private final long[] mSizes;
+        private int mSize;
+        // The smallest size of the heap when it is full (smaller sizes are discarded
+        // without lock)
+        private volatile long mThreshold;
+
+        /**
+         * Constructor of <code>BoundedHeap</code>.
+         *
+         * @param capacity The number of sizes of the heap
+         */
+        BoundedHeap(int capacity) {
+            super();
+            this.mPaths = new String[capacity];
+            this.mSizes = new long[capacity];
+            this.mSize = 0;
+            this.mThreshold = 0;
+        }
+
+        /**
+         * Method that offers a size to the heap.
+         *
+         * @param path The path of the file or folder
+         * @param size The size
+         * @return boolean If the size was added to the heap
+         */
+        boolean offer(String path, long size) {
+            if (size <= this.mThreshold) {
+                return false;
+            }
+            synchronized (this) {
+                int capacity = this.mSizes.length;
+                if (this.mSize < capacity) {
+                    // Sift up the new size
+                    int pos = this.mSize++;
+                    while (pos > 0) {
+                        int parent = (pos - 1) >>> 1;
+                        if (this.mSizes[parent] <= size) {
+                            break;
+                        }
+                        this.mSizes[pos] = this.mSizes[parent];
+                        this.mPaths[pos] = this.mPaths[parent];
+                        pos = parent;
+                    }
+                    this.mSizes[pos] = size;
+                    this.mPaths[pos] = path;
+                } else {
+                    if (size <= this.mSizes[0]) {
+                        return false;
+                    }
+                    // Replace the smallest size, and sift it down
+                    int pos = 0;
+                    while (true) {
+                        int child = pos * 2 + 1;
+                        if (child >= capacity) {
+                            break;
+                        }
+                        if (child + 1 < capacity && this.mSizes[child + 1] < this.mSizes[child]) {
+                            child++;
+                        }
+                        if (size <= this.mSizes[child]) {
+                            break;
+                        }
+                        this.mSizes[pos] = this.mSizes[child];
+                        this.mPaths[pos] = this.mPaths[child];
+                        pos = child;
+                    }
+                    this.mSizes[pos] = size;
+                    this.mPaths[pos] = path;
+                }
+                if (this.mSize == capacity) {
+                    this.mThreshold = this.mSizes[0];
+                }
+                return true;
+            }
+        }
+
+        /**
+         * Method that returns the content of the heap, the biggest sizes first.
+         *
+         * @return List<SizeRanking.Entry> The content of the heap
+         */
+        synchronized List<SizeRanking.Entry> toList() {
+            int cc = this.mSize;
+            long[] sizes = new long[cc];
+            String[] paths = new String[cc];
+            System.arraycopy(this.mSizes, 0, sizes, 0, cc);
+            System.arraycopy(this.mPaths, 0, paths, 0, cc);
+            // Insertion sort (the heap is small)
+            for (int i = 1; i < cc; i++) {
+                long size = sizes[i];
+                String path = paths[i];
+                int j = i - 1;
+                while (j >= 0 && sizes[j] < size) {
+                    sizes[j + 1] = sizes[j];
+                    paths[j + 1] = paths[j];
+                    j--;
+                }
+                sizes[j + 1] = size;
+                paths[j + 1] = path;
+            }
+            List<SizeRanking.Entry> entries = new ArrayList<SizeRanking.Entry>(cc);
+            for (int i = 0; i < cc; i++) {
+                entries.add(new SizeRanking.Entry(paths[i], sizes[i]));
+            }
+            return entries;
+        }
+    }
+}
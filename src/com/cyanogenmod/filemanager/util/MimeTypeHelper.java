@@ -328,6 +328,22 @@ public final class MimeTypeHelper {
      * @return MimeTypeCategory The mime/type category
      */
     public static final MimeTypeCategory getCategory(Context context, File file) {
+        // Directory and Symlinks no computes as category
+        if (file.isDirectory()) {
+            return MimeTypeCategory.NONE;
+        }
+        return getCategoryFromName(context, file.getName());
+    }
+
+    /**
+     * Method that returns the mime/type category of a file from its name, without
+     * the need of a file system object reference.
+     *
+     * @param context The current context
+     * @param name The name of the file
+     * @return MimeTypeCategory The mime/type category
+     */
+    public static final MimeTypeCategory getCategoryFromName(Context context, String name) {
         // Ensure that have a context
         if (context == null && sMimeTypes == null) {
             // No category
@@ -338,13 +354,8 @@ public final class MimeTypeHelper {
             loadMimeTypes(context);
         }
 
-        // Directory and Symlinks no computes as category
-        if (file.isDirectory()) {
-            return MimeTypeCategory.NONE;
-        }
-
         //Get the extension and delivery
-        String ext = FileHelper.getExtension(file.getName());
+        String ext = FileHelper.getExtension(name);
         if (ext != null) {
             //Load from the database of mime types
             MimeTypeInfo mimeTypeInfo = sMimeTypes.get(ext);
@@ -370,10 +381,6 @@ public final class MimeTypeHelper {
             // No category
             return MimeTypeCategory.NONE;
         }
-        //Ensure that mime types are loaded
-        if (sMimeTypes == null) {
-            loadMimeTypes(context);
-        }
 
         // Directory and Symlinks no computes as category
         if (FileHelper.isDirectory(fso)) {
@@ -383,22 +390,12 @@ public final class MimeTypeHelper {
             return MimeTypeCategory.NONE;
         }
 
-        //Get the extension and delivery
-        String ext = FileHelper.getExtension(fso);
-        if (ext != null) {
-            //Load from the database of mime types
-            MimeTypeInfo mimeTypeInfo = sMimeTypes.get(ext);
-            if (mimeTypeInfo != null) {
-                return mimeTypeInfo.mCategory;
-            }
-        }
+        MimeTypeCategory category = getCategoryFromName(context, fso.getName());
         // Check  system file
-        if (fso instanceof SystemFile) {
+        if (category.compareTo(MimeTypeCategory.NONE) == 0 && fso instanceof SystemFile) {
             return MimeTypeCategory.SYSTEM;
         }
-
-        // No category
-        return MimeTypeCategory.NONE;
+        return category;
     }
 
     /**
@@ -0,0 +1,531 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cyanogenmod.filemanager.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.LinkedList;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A gzip output stream that deflates the data in parallel (in the way of <code>pigz</code>).<br/>
+ * <br/>
+ * The data is split in independent blocks that are deflated by a pool of worker threads. Every
+ * block is primed with the last 32KB of the previous block as dictionary (so the ratio is almost
+ * the same of a sequential deflate) and ends with a sync flush, so the raw deflate blocks can be
+ * concatenated in order. The crc of the blocks are combined in a single crc, so the result is a
+ * standard single member <code>.gz</code> file.<br/>
+ * <br/>
+ * The sync flush mode of the {@link Deflater} is only available from API 19, so it is resolved
+ * by reflection. Check {@link #isSupported()} before using this class.
+ */
+public class ParallelGZIPOutputStream extends OutputStream {
+
+    /**
+     * The default size of the blocks.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    // The maximum size of the deflate window
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    // Deflater.SYNC_FLUSH
+    private static final int SYNC_FLUSH = 2;
+
+    private static final byte[] HEADER =
+            {(byte)0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private static Method sDeflate;
+    private static volatile boolean sDeflateResolved = false;
+
+    // A block of data to deflate
+    private static class Block implements Runnable {
+        final byte[] mData;
+        final int mLength;
+        final byte[] mDictionary;
+        final int mDictionaryOffset;
+        final int mDictionaryLength;
+        final boolean mLast;
+        final int mLevel;
+
+        byte[] mOut;
+        int mOutLength;
+        int mCrc;
+        Throwable mError;
+        boolean mDone = false;
+
+        Block(byte[] data, int length, Block previous, boolean last, int level) {
+            super();
+            this.mData = data;
+            this.mLength = length;
+            if (previous != null) {
+                this.mDictionary = previous.mData;
+                this.mDictionaryLength = Math.min(DICTIONARY_SIZE, previous.mLength);
+                this.mDictionaryOffset = previous.mLength - this.mDictionaryLength;
+            } else {
+                this.mDictionary = null;
+                this.mDictionaryOffset = 0;
+                this.mDictionaryLength = 0;
+            }
+            this.mLast = last;
+            this.mLevel = level;
+        }
+
+        @Override
+        public void run() {
+            Deflater deflater = new Deflater(this.mLevel, true);
+            try {
+                if (this.mDictionaryLength > 0) {
+                    deflater.setDictionary(
+                            this.mDictionary, this.mDictionaryOffset, this.mDictionaryLength);
+                }
+                deflater.setInput(this.mData, 0, this.mLength);
+                byte[] out = new byte[this.mLength + (this.mLength >> 3) + 64];
+                int pos = 0;
+                if (this.mLast) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        if (pos == out.length) {
+                            out = grow(out);
+                        }
+                        pos += deflater.deflate(out, pos, out.length - pos);
+                    }
+                } else {
+                    // A sync flush is complete when it doesn't fill all the output buffer
+                    while (true) {
+                        int len = out.length - pos;
+                        int read = deflate(deflater, out, pos, len);
+                        pos += read;
+                        if (read < len) {
+                            break;
+                        }
+                        out = grow(out);
+                    }
+                }
+                CRC32 crc = new CRC32();
+                crc.update(this.mData, 0, this.mLength);
+                this.mCrc = (int)crc.getValue();
+                this.mOut = out;
+                this.mOutLength = pos;
+            } catch (Throwable ex) {
+                this.mError = ex;
+            } finally {
+                deflater.end();
+                synchronized (this) {
+                    this.mDone = true;
+                    notifyAll();
+                }
+            }
+        }
+
+        synchronized void await() throws InterruptedIOException {
+            while (!this.mDone) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+
+        private static byte[] grow(byte[] buffer) {
+            byte[] grown = new byte[buffer.length * 2];
+            System.arraycopy(buffer, 0, grown, 0, buffer.length);
+            return grown;
+        }
+    }
+
+    // The block that ends the workers
+    private static final Block POISON = new Block(new byte[0], 0, null, true, 0);
+
+    private final OutputStream mOut;
+    private final int mThreads;
+    private final int mBlockSize;
+    private final int mLevel;
+
+    private final BlockingQueue<Block> mQueue = new LinkedBlockingQueue<Block>();
+    // The submitted blocks, in the order that must be written
+    private final LinkedList<Block> mPending = new LinkedList<Block>();
+    private Thread[] mWorkers;
+
+    private byte[] mBuffer;
+    private int mCount;
+    private Block mPrevious;
+
+    private int mCrc = 0;
+    private long mSize = 0;
+    private boolean mFinished = false;
+    private boolean mClosed = false;
+
+    /**
+     * Constructor of <code>ParallelGZIPOutputStream</code>. The stream uses as many threads
+     * as processors.
+     *
+     * @param out The stream where to write the compressed data
+     */
+    public ParallelGZIPOutputStream(OutputStream out) {
+        this(out, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor of <code>ParallelGZIPOutputStream</code>.
+     *
+     * @param out The stream where to write the compressed data
+     * @param threads The number of threads that deflate the blocks
+     */
+    public ParallelGZIPOutputStream(OutputStream out, int threads) {
+        this(out, threads, DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Constructor of <code>ParallelGZIPOutputStream</code>.
+     *
+     * @param out The stream where to write the compressed data
+     * @param threads The number of threads that deflate the blocks
+     * @param blockSize The size of the blocks (at least 32KB)
+     * @param level The compression level (see {@link Deflater})
+     */
+    public ParallelGZIPOutputStream(OutputStream out, int threads, int blockSize, int level) {
+        super();
+        this.mOut = out;
+        this.mThreads = Math.max(1, threads);
+        this.mBlockSize = Math.max(DICTIONARY_SIZE, blockSize);
+        this.mLevel = level;
+        this.mBuffer = new byte[this.mBlockSize];
+        this.mCount = 0;
+    }
+
+    /**
+     * Method that returns if the parallel deflate is supported by the platform.
+     *
+     * @return boolean If the parallel deflate is supported
+     */
+    public static boolean isSupported() {
+        return getDeflateMethod() != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        this.mBuffer[this.mCount++] = (byte)b;
+        if (this.mCount == this.mBlockSize) {
+            submit(false);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, this.mBlockSize - this.mCount);
+            System.arraycopy(b, off, this.mBuffer, this.mCount, n);
+            this.mCount += n;
+            off += n;
+            len -= n;
+            if (this.mCount == this.mBlockSize) {
+                submit(false);
+            }
+        }
+    }
+
+    /**
+     * Method that finishes writing the compressed data, without closing the
+     * underlying stream.
+     *
+     * @throws IOException If the data can't be written
+     */
+    public void finish() throws IOException {
+        if (this.mFinished) {
+            return;
+        }
+        ensureOpen();
+        try {
+            submit(true);
+            while (!this.mPending.isEmpty()) {
+                writeBlock(this.mPending.removeFirst());
+            }
+
+            // The trailer (crc and size of the uncompressed data, little endian)
+            byte[] trailer = new byte[8];
+            writeInt(trailer, 0, this.mCrc);
+            writeInt(trailer, 4, (int)this.mSize);
+            this.mOut.write(trailer);
+            this.mFinished = true;
+        } finally {
+            stopWorkers();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void flush() throws IOException {
+        this.mOut.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.mClosed) {
+            return;
+        }
+        try {
+            finish();
+        } finally {
+            this.mClosed = true;
+            stopWorkers();
+            this.mOut.close();
+        }
+    }
+
+    /**
+     * Method that sends the current block to the workers, and writes the deflated blocks if
+     * there are too many blocks pending.
+     *
+     * @param last If the block is the last block of the stream
+     * @throws IOException If the data can't be written
+     */
+    private void submit(boolean last) throws IOException {
+        if (this.mWorkers == null) {
+            this.mOut.write(HEADER);
+            startWorkers();
+        }
+        Block block = new Block(this.mBuffer, this.mCount, this.mPrevious, last, this.mLevel);
+        this.mPending.addLast(block);
+        this.mQueue.add(block);
+        this.mPrevious = block;
+        this.mBuffer = new byte[this.mBlockSize];
+        this.mCount = 0;
+
+        // Limit the memory used by the blocks waiting to be written
+        while (this.mPending.size() > this.mThreads * 2) {
+            writeBlock(this.mPending.removeFirst());
+        }
+    }
+
+    /**
+     * Method that waits for a block to be deflated and writes it.
+     *
+     * @param block The block
+     * @throws IOException If the block can't be written
+     */
+    private void writeBlock(Block block) throws IOException {
+        block.await();
+        if (block.mError != null) {
+            if (block.mError instanceof IOException) {
+                throw (IOException)block.mError;
+            }
+            IOException ioex = new IOException("Failed to deflate the data"); //$NON-NLS-1$
+            ioex.initCause(block.mError);
+            throw ioex;
+        }
+        this.mOut.write(block.mOut, 0, block.mOutLength);
+        this.mCrc = combineCrc(this.mCrc, block.mCrc, block.mLength);
+        this.mSize += block.mLength;
+    }
+
+    /**
+     * Method that starts the workers.
+     */
+    private void startWorkers() {
+        this.mWorkers = new Thread[this.mThreads];
+        for (int i = 0; i < this.mThreads; i++) {
+            this.mWorkers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            Block block = ParallelGZIPOutputStream.this.mQueue.take();
+                            if (block == POISON) {
+                                break;
+                            }
+                            block.run();
+                        }
+                    } catch (InterruptedException ex) {/**NON BLOCK**/}
+                }
+            }, "ParallelGZIPOutputStream-" + i); //$NON-NLS-1$
+            this.mWorkers[i].setDaemon(true);
+            this.mWorkers[i].start();
+        }
+    }
+
+    /**
+     * Method that stops the workers.
+     */
+    private void stopWorkers() {
+        if (this.mWorkers == null) {
+            return;
+        }
+        // Pending blocks are not needed anymore
+        this.mQueue.clear();
+        for (int i = 0; i < this.mWorkers.length; i++) {
+            this.mQueue.add(POISON);
+        }
+        this.mWorkers = new Thread[0];
+    }
+
+    /**
+     * Method that checks that the stream is not closed.
+     *
+     * @throws IOException If the stream is closed
+     */
+    private void ensureOpen() throws IOException {
+        if (this.mClosed || this.mFinished) {
+            throw new IOException("Stream finished"); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Method that deflates data with a sync flush.
+     *
+     * @param deflater The deflater
+     * @param out The output buffer
+     * @param off The offset in the output buffer
+     * @param len The available length in the output buffer
+     * @return int The number of bytes written in the output buffer
+     * @throws IOException If the data can't be deflated
+     */
+    static int deflate(Deflater deflater, byte[] out, int off, int len) throws IOException {
+        Method m = getDeflateMethod();
+        if (m == null) {
+            throw new IOException("Sync flush is not supported"); //$NON-NLS-1$
+        }
+        try {
+            return ((Integer)m.invoke(deflater, out, Integer.valueOf(off),
+                    Integer.valueOf(len), Integer.valueOf(SYNC_FLUSH))).intValue();
+        } catch (InvocationTargetException ex) {
+            IOException ioex = new IOException("Failed to deflate the data"); //$NON-NLS-1$
+            ioex.initCause(ex.getCause());
+            throw ioex;
+        } catch (IllegalAccessException ex) {
+            IOException ioex = new IOException("Failed to deflate the data"); //$NON-NLS-1$
+            ioex.initCause(ex);
+            throw ioex;
+        }
+    }
+
+    /**
+     * Method that resolves the deflate method with flush mode.
+     *
+     * @return Method The method, or null if it isn't available
+     */
+    private static Method getDeflateMethod() {
+        if (!sDeflateResolved) {
+            synchronized (ParallelGZIPOutputStream.class) {
+                if (!sDeflateResolved) {
+                    try {
+                        sDeflate = Deflater.class.getMethod("deflate", //$NON-NLS-1$
+                                byte[].class, int.class, int.class, int.class);
+                    } catch (Exception ex) {
+                        sDeflate = null;
+                    }
+                    sDeflateResolved = true;
+                }
+            }
+        }
+        return sDeflate;
+    }
+
+    /**
+     * Method that combines the crc of two consecutive blocks of data (the
+     * <code>crc32_combine</code> function of zlib).
+     *
+     * @param crc1 The crc of the first block
+     * @param crc2 The crc of the second block
+     * @param len2 The length of the second block
+     * @return int The crc of both blocks
+     */
+    static int combineCrc(int crc1, int crc2, long len2) {
+        if (len2 <= 0) {
+            return crc1;
+        }
+        int[] even = new int[32];
+        int[] odd = new int[32];
+
+        // The operator for one zero bit
+        odd[0] = 0xedb88320;
+        int row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        // The operators for two and four zero bits
+        gf2MatrixSquare(even, odd);
+        gf2MatrixSquare(odd, even);
+
+        // Apply len2 zeros to crc1
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((len2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            len2 >>>= 1;
+            if (len2 == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((len2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            len2 >>>= 1;
+        } while (len2 != 0);
+        return crc1 ^ crc2;
+    }
+
+    private static int gf2MatrixTimes(int[] mat, int vec) {
+        int sum = 0;
+        int i = 0;
+        while (vec != 0) {
+            if ((vec & 1) != 0) {
+                sum ^= mat[i];
+            }
+            vec >>>= 1;
+            i++;
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(int[] square, int[] mat) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(mat, mat[n]);
+        }
+    }
+
+    private static void writeInt(byte[] b, int off, int v) {
+        b[off] = (byte)v;
+        b[off + 1] = (byte)(v >>> 8);
+        b[off + 2] = (byte)(v >>> 16);
+        b[off + 3] = (byte)(v >>> 24);
+    }
+}
@@ -0,0 +1,613 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A class for walk a tree of folders in parallel.<br/>
+ * <br/>
+ * Every folder is a task. Every worker thread takes the folders to walk from its own queue
+ * (depth-first) and, when its queue is empty, steals the oldest folders (the biggest subtrees)
+ * of the other workers. A worker without work to steal waits (it doesn't poll) until a folder
+ * is queued or the walk ends. The walker is stopped when all the folders were walked, or when
+ * {@link #isStopped()} returns <code>true</code> (the folders pending to walk are abandoned).<br/>
+ * <br/>
+ * The callbacks are invoked from the worker threads, with the index of the worker, so the
+ * subclasses can hold its state per worker without locks.<br/>
+ * <br/>
+ * The walk is safe against loops (symbolic links to a parent folder, bind mounts): the
+ * device and inode of every folder walked are recorded (for the whole walk, so the memory
+ * of the walk grows with the number of folders), and a folder is only walked once. A walk
+ * that only needs to break the loops can compare every folder with its ancestors instead
+ * (see {@link #setAncestorLoopCheck(boolean)}), so its memory grows with the depth of the
+ * tree. The symbolic links to folders can be followed or not (see
+ * {@link #setFollowSymlinks(boolean)}), and the depth of the walk can be limited (see
+ * {@link #setMaxDepth(int)}).
+ */
+public abstract class ParallelTreeWalker {
+
+    private static final String TAG = "ParallelTreeWalker"; //$NON-NLS-1$
+
+    private static final boolean DEBUG = false;
+
+    /**
+     * The depth of a walk without limit.
+     */
+    public static final int UNLIMITED_DEPTH = Integer.MAX_VALUE;
+
+    private final int mParallelism;
+    private volatile boolean mStopped;
+    private boolean mFollowSymlinks;
+    private boolean mAncestorLoopCheck;
+    private int mMaxDepth;
+
+    // The folders walked (by device and inode, or by canonical path when the platform
+    // can't stat the files)
+    private InodeSet mVisited;
+    private Set<String> mVisitedPaths;
+
+    // The number of folders queued or being walked
+    private final AtomicInteger mPending = new AtomicInteger();
+    private Worker[] mWorkers;
+
+    // The idle workers wait on the lock until new folders are queued or the walk ends
+    private final Object mIdleLock = new Object();
+    private final AtomicInteger mIdle = new AtomicInteger();
+    private int mSignals;
+
+    /**
+     * Constructor of <code>ParallelTreeWalker</code>.
+     *
+     * @param parallelism The number of threads that walks the tree
+     */
+    public ParallelTreeWalker(int parallelism) {
+        super();
+        this.mParallelism = Math.max(1, parallelism);
+        this.mStopped = false;
+        this.mFollowSymlinks = true;
+        this.mAncestorLoopCheck = false;
+        this.mMaxDepth = UNLIMITED_DEPTH;
+    }
+
+    /**
+     * Method that sets if the symbolic links to folders are walked. When the links are not
+     * followed, they are visited as files. Must be called before {@link #walk(File)}.
+     *
+     * @param follow If the symbolic links to folders are walked (true by default)
+     */
+    public void setFollowSymlinks(boolean follow) {
+        this.mFollowSymlinks = follow;
+    }
+
+    /**
+     * Method that sets if the loops are detected comparing every folder only with the
+     * folders of its path (its ancestors), instead of with all the folders walked. The
+     * memory of the walk doesn't grow with the number of folders, but a folder reachable
+     * through two paths that don't form a loop (a bind mount) is walked twice. Without the
+     * device and inode of the folders (the platform can't stat the files) the loops aren't
+     * detected, so this should only be used without following the symbolic links. Must be
+     * called before {@link #walk(File)}.
+     *
+     * @param ancestors If the folders are only compared with their ancestors (false by
+     * default)
+     */
+    public void setAncestorLoopCheck(boolean ancestors) {
+        this.mAncestorLoopCheck = ancestors;
+    }
+
+    /**
+     * Method that sets the maximum depth of the walk (the files of the root folder are in
+     * depth 1). The folders in the maximum depth are visited, but not walked. Must be called
+     * before {@link #walk(File)}.
+     *
+     * @param maxDepth The maximum depth, or {@link #UNLIMITED_DEPTH} (the default)
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.mMaxDepth = Math.max(1, maxDepth);
+    }
+
+    /**
+     * Method that returns the number of threads that walks the tree.
+     *
+     * @return int The number of threads
+     */
+    public int getParallelism() {
+        return this.mParallelism;
+    }
+
+    /**
+     * Method that walks the tree of a folder (the folder itself is not visited). The current
+     * thread is used as the first worker, and the method returns when all the workers ended.
+     *
+     * @param root The folder where to start the walk
+     */
+    public final void walk(File root) {
+        this.mWorkers = new Worker[this.mParallelism];
+        for (int i = 0; i < this.mParallelism; i++) {
+            this.mWorkers[i] = new Worker(i);
+        }
+        long[] attrs = this.mWorkers[0].mAttrs;
+        boolean hasAttrs = FileHelper.stat(root, attrs);
+        if (!this.mAncestorLoopCheck) {
+            this.mVisited = new InodeSet();
+            this.mVisitedPaths = new HashSet<String>();
+            markVisited(root, hasAttrs ? attrs : null);
+        }
+        this.mPending.set(1);
+        this.mWorkers[0].push(new Folder(root, 0, null, hasAttrs ? attrs : null));
+
+        Thread[] threads = new Thread[this.mParallelism - 1];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(this.mWorkers[i + 1],
+                    getClass().getSimpleName() + "#" + (i + 1)); //$NON-NLS-1$
+            threads[i].start();
+        }
+        try {
+            this.mWorkers[0].run();
+        } finally {
+            // Wait for all the workers (if interrupted, the walk is stopped, but the
+            // workers are still joined before the interrupt is re-asserted)
+            boolean interrupted = false;
+            for (int i = 0; i < threads.length; i++) {
+                while (true) {
+                    try {
+                        threads[i].join();
+                        break;
+                    } catch (InterruptedException e) {
+                        stop();
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Method that stops the walk. The folders being walked are finished, but the
+     * folders pending to walk are abandoned.
+     */
+    public void stop() {
+        this.mStopped = true;
+        signalWorkers();
+    }
+
+    /**
+     * Method that returns if the walk must stop.
+     *
+     * @return boolean If the walk must stop
+     */
+    public boolean isStopped() {
+        return this.mStopped;
+    }
+
+    /**
+     * Method invoked for every file or folder found in the tree.
+     *
+     * @param worker The index of the worker
+     * @param file The file or folder
+     * @param isDirectory If the file is a folder
+     * @return boolean If the folder must be walked (ignored for files)
+     */
+    protected abstract boolean onVisit(int worker, File file, boolean isDirectory);
+
+    /**
+     * Method invoked when a worker ends the visit of the files of a folder.
+     *
+     * @param worker The index of the worker
+     * @param folder The folder
+     */
+    protected void onFolderWalked(int worker, File folder) {/**NON BLOCK**/}
+
+    /**
+     * Method invoked when a folder accepted by {@link #onVisit(int, File, boolean)} is not
+     * walked (it is deeper than the depth limit, or it was already walked through other path).
+     *
+     * @param worker The index of the worker
+     * @param folder The folder
+     */
+    protected void onFolderSkipped(int worker, File folder) {/**NON BLOCK**/}
+
+    /**
+     * Method invoked when a worker ends (there is no more work or the walk was stopped).
+     *
+     * @param worker The index of the worker
+     */
+    protected void onWorkerEnd(int worker) {/**NON BLOCK**/}
+
+    /**
+     * Method that steals a folder from the queue of other worker.
+     *
+     * @param thief The worker that steals the folder
+     * @return Folder The folder stolen, or <code>null</code> if there is no work
+     */
+    Folder steal(Worker thief) {
+        int cc = this.mWorkers.length;
+        for (int i = 1; i < cc; i++) {
+            Folder folder = this.mWorkers[(thief.mId + i) % cc].pollOldest();
+            if (folder != null) {
+                return folder;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method that wakes up the idle workers (there are new folders queued, or the walk
+     * ended).
+     */
+    void signalWorkers() {
+        synchronized (this.mIdleLock) {
+            this.mSignals++;
+            this.mIdleLock.notifyAll();
+        }
+    }
+
+    /**
+     * Method that waits until there is a folder to steal or the walk ends.
+     *
+     * @param thief The idle worker
+     * @return Folder The folder stolen, or <code>null</code> if the walk ended
+     */
+    Folder awaitWork(Worker thief) {
+        this.mIdle.incrementAndGet();
+        try {
+            while (true) {
+                // Check the queues again once the worker is registered as idle, so a
+                // folder queued meanwhile is not missed
+                int signals;
+                synchronized (this.mIdleLock) {
+                    signals = this.mSignals;
+                }
+                Folder folder = steal(thief);
+                if (folder != null) {
+                    return folder;
+                }
+                synchronized (this.mIdleLock) {
+                    if (isStopped() || this.mPending.get() == 0) {
+                        return null;
+                    }
+                    if (signals == this.mSignals) {
+                        this.mIdleLock.wait();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            stop();
+            return null;
+        } finally {
+            this.mIdle.decrementAndGet();
+        }
+    }
+
+    /**
+     * Method that records a folder as walked.
+     *
+     * @param folder The folder
+     * @param attrs The attributes of the folder (with its device and inode), or null if
+     * they couldn't be read
+     * @return boolean If the folder wasn't walked yet
+     */
+    boolean markVisited(File folder, long[] attrs) {
+        boolean added;
+        if (attrs != null) {
+            synchronized (this.mVisited) {
+                added = this.mVisited.add(attrs[3], attrs[4]);
+            }
+        } else {
+            String path;
+            try {
+                path = folder.getCanonicalPath();
+            } catch (IOException e) {
+                path = folder.getAbsolutePath();
+            }
+            synchronized (this.mVisitedPaths) {
+                added = this.mVisitedPaths.add(path);
+            }
+        }
+        if (!added && DEBUG) {
+            Log.v(TAG, String.format("Folder already walked: %s", folder)); //$NON-NLS-1$
+        }
+        return added;
+    }
+
+    /**
+     * Method that checks if a folder is one of the folders of the path of other folder.
+     *
+     * @param parent The folder where the folder was found
+     * @param attrs The attributes of the folder (with its device and inode), or null if
+     * they couldn't be read
+     * @return boolean If the folder is the parent folder or one of its ancestors
+     */
+    boolean isAncestor(Folder parent, long[] attrs) {
+        if (attrs == null) {
+            return false;
+        }
+        for (Folder f = parent; f != null; f = f.mParent) {
+            if (f.mHasAttrs && f.mDev == attrs[3] && f.mIno == attrs[4]) {
+                if (DEBUG) {
+                    Log.v(TAG, String.format("Loop to folder: %s", f.mFile)); //$NON-NLS-1$
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A folder pending to walk.
+     */
+    static final class Folder {
+        final File mFile;
+        final int mDepth;
+        // The folder where it was found (only kept for the ancestor loop check)
+        final Folder mParent;
+        final boolean mHasAttrs;
+        final long mDev;
+        final long mIno;
+
+        Folder(File file, int depth, Folder parent, long[] attrs) {
+            super();
+            this.mFile = file;
+            this.mDepth = depth;
+            this.mParent = parent;
+            this.mHasAttrs = attrs != null;
+            this.mDev = attrs != null ? attrs[3] : 0;
+            this.mIno = attrs != null ? attrs[4] : 0;
+        }
+    }
+
+    /**
+     * A set of (device, inode) pairs, in open-addressing primitive arrays (no object
+     * is allocated by pair).
+     */
+    static final class InodeSet {
+        private long[] mDevs = new long[64];
+        private long[] mInodes = new long[64];
+        private boolean[] mUsed = new boolean[64];
+        private int mSize = 0;
+
+        /**
+         * Method that adds a pair to the set.
+         *
+         * @param dev The device
+         * @param ino The inode
+         * @return boolean If the pair wasn't in the set
+         */
+        boolean add(long dev, long ino) {
+            if ((this.mSize + 1) * 2 > this.mUsed.length) {
+                grow();
+            }
+            int mask = this.mUsed.length - 1;
+            int pos = hash(dev, ino) & mask;
+            while (this.mUsed[pos]) {
+                if (this.mDevs[pos] == dev && this.mInodes[pos] == ino) {
+                    return false;
+                }
+                pos = (pos + 1) & mask;
+            }
+            this.mUsed[pos] = true;
+            this.mDevs[pos] = dev;
+            this.mInodes[pos] = ino;
+            this.mSize++;
+            return true;
+        }
+
+        /**
+         * Method that returns the number of pairs of the set.
+         *
+         * @return int The number of pairs
+         */
+        int size() {
+            return this.mSize;
+        }
+
+        /**
+         * Method that doubles the capacity of the set.
+         */
+        private void grow() {
+            long[] devs = this.mDevs;
+            long[] inodes = this.mInodes;
+            boolean[] used = this.mUsed;
+            this.mDevs = new long[used.length * 2];
+            this.mInodes = new long[used.length * 2];
+            this.mUsed = new boolean[used.length * 2];
+            this.mSize = 0;
+            for (int i = 0; i < used.length; i++) {
+                if (used[i]) {
+                    add(devs[i], inodes[i]);
+                }
+            }
+        }
+
+        /**
+         * Method that returns the hash of a pair.
+         *
+         * @param dev The device
+         * @param ino The inode
+         * @return int The hash
+         */
+        private static int hash(long dev, long ino) {
+            long h = ino * 0x9E3779B97F4A7C15L + dev;
+            h ^= (h >>> 32);
+            return (int)(h ^ (h >>> 16));
+        }
+    }
+
+    /**
+     * A worker of the walk.
+     */
+    private class Worker implements Runnable {
+        final int mId;
+        // The attributes of the file being visited (mode, size, time, device and inode)
+        final long[] mAttrs = new long[5];
+        private final ArrayDeque<Folder> mQueue = new ArrayDeque<Folder>();
+
+        /**
+         * Constructor of <code>Worker</code>.
+         *
+         * @param id The index of the worker
+         */
+        Worker(int id) {
+            super();
+            this.mId = id;
+        }
+
+        /**
+         * Method that adds a folder to the queue of the worker, and wakes up the idle
+         * workers.
+         *
+         * @param folder The folder
+         */
+        void push(Folder folder) {
+            synchronized (this) {
+                this.mQueue.addFirst(folder);
+            }
+            if (ParallelTreeWalker.this.mIdle.get() > 0) {
+                signalWorkers();
+            }
+        }
+
+        /**
+         * Method that returns the newest folder of the queue.
+         *
+         * @return Folder The folder, or <code>null</code> if the queue is empty
+         */
+        synchronized Folder pollNewest() {
+            return this.mQueue.pollFirst();
+        }
+
+        /**
+         * Method that returns the oldest folder of the queue.
+         *
+         * @return Folder The folder, or <code>null</code> if the queue is empty
+         */
+        synchronized Folder pollOldest() {
+            return this.mQueue.pollLast();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run() {
+            try {
+                while (!isStopped()) {
+                    Folder folder = pollNewest();
+                    if (folder == null) {
+                        folder = steal(this);
+                    }
+                    if (folder == null) {
+                        folder = awaitWork(this);
+                        if (folder == null) {
+                            break;
+                        }
+                    }
+                    try {
+                        walkFolder(folder);
+                    } finally {
+                        if (ParallelTreeWalker.this.mPending.decrementAndGet() == 0) {
+                            signalWorkers();
+                        }
+                    }
+                }
+            } finally {
+                // The idle workers must check if the walk was stopped
+                signalWorkers();
+                onWorkerEnd(this.mId);
+            }
+        }
+
+        /**
+         * Method that visits the files of a folder, and queues its subfolders.
+         *
+         * @param folder The folder
+         */
+        private void walkFolder(Folder folder) {
+            File[] files = folder.mFile.listFiles();
+            if (files != null) {
+                int depth = folder.mDepth + 1;
+                boolean walkable = depth < ParallelTreeWalker.this.mMaxDepth;
+                int cc = files.length;
+                for (int i = 0; i < cc; i++) {
+                    File file = files[i];
+                    boolean hasAttrs = resolveType(file);
+                    boolean isDirectory =
+                            (this.mAttrs[0] & FileHelper.S_IFMT) == FileHelper.S_IFDIR;
+                    if (onVisit(this.mId, file, isDirectory) && isDirectory) {
+                        long[] attrs = hasAttrs ? this.mAttrs : null;
+                        boolean ancestors = ParallelTreeWalker.this.mAncestorLoopCheck;
+                        if (walkable && (ancestors ?
+                                !isAncestor(folder, attrs) :
+                                markVisited(file, attrs))) {
+                            ParallelTreeWalker.this.mPending.incrementAndGet();
+                            push(new Folder(file, depth, ancestors ? folder : null, attrs));
+                        } else {
+                            onFolderSkipped(this.mId, file);
+                        }
+                    }
+
+                    // Check if the walk was stopped
+                    if ((i & 0xff) == 0 && isStopped()) {
+                        break;
+                    }
+                }
+            }
+            onFolderWalked(this.mId, folder.mFile);
+        }
+
+        /**
+         * Method that resolves the type of a file (a followed link has the type, device
+         * and inode of its target; a link not followed is not a folder).
+         *
+         * @param file The file
+         * @return boolean If the device and inode of the file were read
+         */
+        private boolean resolveType(File file) {
+            long[] attrs = this.mAttrs;
+            if (FileHelper.lstat(file, attrs)) {
+                if ((attrs[0] & FileHelper.S_IFMT) != FileHelper.S_IFLNK) {
+                    return true;
+                }
+                if (ParallelTreeWalker.this.mFollowSymlinks && FileHelper.stat(file, attrs)) {
+                    return true;
+                }
+                attrs[0] = FileHelper.S_IFLNK;
+                return false;
+            }
+
+            // The platform can't stat the files
+            boolean isDirectory = file.isDirectory();
+            if (isDirectory && !ParallelTreeWalker.this.mFollowSymlinks &&
+                    FileHelper.isLink(file)) {
+                isDirectory = false;
+            }
+            attrs[0] = isDirectory ? FileHelper.S_IFDIR : 0;
+            return false;
+        }
+    }
+}
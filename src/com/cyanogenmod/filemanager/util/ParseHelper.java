@@ -274,7 +274,7 @@ public final class ParseHelper {
      * @throws ParseException If type couldn't be translate into a reference
      * file system object
      */
-    private static FileSystemObject createObject(
+    public static FileSystemObject createObject(
             String parentDir, char type, String name, String link, User user,
             Group group, Permissions permissions, Date lastModifiedTime, long size)
             throws ParseException {
@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import com.cyanogenmod.filemanager.commands.TransferProgressListener;
+import com.cyanogenmod.filemanager.model.TransferProgress;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A class for track the progress of a copy, move or delete operation (bytes and files
+ * processed, the rates and the remaining time), and notify it to a listener.<br/>
+ * <br/>
+ * The tracker can be updated from several threads. The notifications are throttled: the
+ * listener is never invoked more often than {@link #MIN_INTERVAL}, and the time spent in the
+ * listener is never more than a fixed fraction ({@link #MAX_COST_RATIO}) of the time of the
+ * operation (unless the listener takes more than a fraction of {@link #MAX_INTERVAL}).
+ */
+public class ProgressTracker {
+
+    /**
+     * The minimum time between notifications (in milliseconds).
+     */
+    public static final long MIN_INTERVAL = 500L;
+
+    /**
+     * The maximum time between notifications (in milliseconds), although the last one
+     * was slow.
+     */
+    public static final long MAX_INTERVAL = 5000L;
+
+    /**
+     * The minimum ratio between the time of the operation and the time spent in the
+     * notifications (a notification that takes 10ms is not followed by other in 500ms).
+     */
+    public static final int MAX_COST_RATIO = 50;
+
+    // The weight of the last measure in the smoothed transfer rate
+    private static final double RATE_SMOOTHING = 0.3;
+
+    private final TransferProgressListener mListener;
+    private volatile long mBytesTotal;
+    private final AtomicInteger mFilesTotal;
+
+    private final AtomicLong mBytesDone = new AtomicLong();
+    private final AtomicInteger mFilesDone = new AtomicInteger();
+    private volatile long mNextNotification;
+
+    private long mLastTime;
+    private long mLastBytes;
+    private int mLastFiles;
+    private double mRate;
+    private double mFilesRate;
+
+    /**
+     * Constructor of <code>ProgressTracker</code>.
+     *
+     * @param listener The listener to notify
+     * @param bytesTotal The number of bytes to transfer, or {@link TransferProgress#UNKNOWN}
+     * @param filesTotal The number of files to transfer, or {@link TransferProgress#UNKNOWN}
+     */
+    public ProgressTracker(TransferProgressListener listener, long bytesTotal, int filesTotal) {
+        super();
+        this.mListener = listener;
+        this.mBytesTotal = bytesTotal;
+        this.mFilesTotal = new AtomicInteger(filesTotal);
+        this.mLastTime = System.currentTimeMillis();
+        this.mLastBytes = 0;
+        this.mLastFiles = 0;
+        this.mRate = 0;
+        this.mFilesRate = 0;
+        this.mNextNotification = this.mLastTime + MIN_INTERVAL;
+    }
+
+    /**
+     * Method that creates a tracker for transfer a set of files or folders. The size of
+     * the sources is measured (the sources that can't be read are not measured).
+     *
+     * @param listener The listener to notify
+     * @param srcs The absolute paths of the files or folders to transfer
+     * @return ProgressTracker The tracker
+     */
+    public static ProgressTracker create(TransferProgressListener listener, String[] srcs) {
+        long[] size = new long[2];
+        for (int i = 0; i < srcs.length; i++) {
+            measure(new File(srcs[i]), size);
+        }
+        if (size[0] == 0 && size[1] == 0) {
+            return new ProgressTracker(
+                    listener, TransferProgress.UNKNOWN, (int)TransferProgress.UNKNOWN);
+        }
+        return new ProgressTracker(listener, size[0], (int)size[1]);
+    }
+
+    /**
+     * Method that measures the size (in bytes and files) of a file or folder. The symbolic
+     * links are not followed (they are measured as files without size), and every folder
+     * is only measured once.
+     *
+     * @param file The file or folder
+     * @param size The size (bytes and files) where to add the size of the file or folder
+     */
+    static void measure(File file, final long[] size) {
+        final long[] attrs = new long[5];
+        if (!isFolder(file, attrs)) {
+            addFile(file, attrs, size);
+            return;
+        }
+        ParallelTreeWalker walker = new ParallelTreeWalker(1) {
+            @Override
+            protected boolean onVisit(int worker, File f, boolean isDirectory) {
+                if (!isDirectory) {
+                    addFile(f, attrs, size);
+                }
+                return true;
+            }
+        };
+        walker.setFollowSymlinks(false);
+        walker.walk(file);
+    }
+
+    /**
+     * Method that returns if a file is a folder (and not a symbolic link to a folder).
+     *
+     * @param file The file
+     * @param attrs The attributes of the file (mode, size, time, device and inode)
+     * @return boolean If the file is a folder
+     */
+    private static boolean isFolder(File file, long[] attrs) {
+        if (FileHelper.lstat(file, attrs)) {
+            return (attrs[0] & FileHelper.S_IFMT) == FileHelper.S_IFDIR;
+        }
+        return file.isDirectory() && !FileHelper.isLink(file);
+    }
+
+    /**
+     * Method that adds the size of a file (a symbolic link has no size).
+     *
+     * @param file The file
+     * @param attrs The attributes of the file (mode, size, time, device and inode)
+     * @param size The size (bytes and files) where to add the size of the file
+     */
+    static void addFile(File file, long[] attrs, long[] size) {
+        if (FileHelper.lstat(file, attrs)) {
+            if ((attrs[0] & FileHelper.S_IFMT) == FileHelper.S_IFREG) {
+                size[0] += attrs[1];
+            }
+        } else if (!FileHelper.isLink(file)) {
+            if (!file.exists()) {
+                return;
+            }
+            size[0] += file.length();
+        }
+        size[1]++;
+    }
+
+    /**
+     * Method that adds bytes transferred.
+     *
+     * @param bytes The number of bytes transferred
+     */
+    public void addBytes(long bytes) {
+        this.mBytesDone.addAndGet(bytes);
+        notifyProgress(false);
+    }
+
+    /**
+     * Method that adds a file transferred.
+     */
+    public void addFile() {
+        this.mFilesDone.incrementAndGet();
+        notifyProgress(false);
+    }
+
+    /**
+     * Method that adds files to the total of the operation (when the files are discovered
+     * while the operation is in progress).
+     *
+     * @param files The number of files to add to the total
+     */
+    public void addFilesTotal(int files) {
+        while (true) {
+            int total = this.mFilesTotal.get();
+            int next = total == TransferProgress.UNKNOWN ? files : total + files;
+            if (this.mFilesTotal.compareAndSet(total, next)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Method that sets the totals of the operation (when the totals are only known once the
+     * operation is started).
+     *
+     * @param bytes The number of bytes to transfer, or {@link TransferProgress#UNKNOWN}
+     * @param files The number of files to transfer, or {@link TransferProgress#UNKNOWN}
+     */
+    public void setTotal(long bytes, int files) {
+        this.mBytesTotal = bytes;
+        this.mFilesTotal.set(files);
+    }
+
+    /**
+     * Method that sets the bytes and files transferred (when the progress is measured
+     * instead of counted).
+     *
+     * @param bytes The number of bytes transferred
+     * @param files The number of files transferred
+     */
+    public void setDone(long bytes, int files) {
+        this.mBytesDone.set(bytes);
+        this.mFilesDone.set(files);
+        notifyProgress(false);
+    }
+
+    /**
+     * Method that returns the number of bytes transferred.
+     *
+     * @return long The number of bytes transferred
+     */
+    public long getBytesDone() {
+        return this.mBytesDone.get();
+    }
+
+    /**
+     * Method that returns the number of files transferred.
+     *
+     * @return int The number of files transferred
+     */
+    public int getFilesDone() {
+        return this.mFilesDone.get();
+    }
+
+    /**
+     * Method that notifies the current progress, although the last notification is recent.
+     */
+    public void finish() {
+        notifyProgress(true);
+    }
+
+    /**
+     * Method that notifies the progress to the listener (if the last notification isn't
+     * recent).
+     *
+     * @param force Notify the progress although the last notification is recent
+     */
+    private void notifyProgress(boolean force) {
+        if (this.mListener == null ||
+            (!force && System.currentTimeMillis() < this.mNextNotification)) {
+            return;
+        }
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (!force && now < this.mNextNotification) {
+                // Other thread did the notification
+                return;
+            }
+
+            // Compute the rates (smoothed) and the remaining time
+            long bytes = this.mBytesDone.get();
+            int files = this.mFilesDone.get();
+            long bytesTotal = this.mBytesTotal;
+            int filesTotal = this.mFilesTotal.get();
+            long elapsed = now - this.mLastTime;
+            if (elapsed > 0) {
+                this.mRate = smooth(this.mRate, this.mLastBytes,
+                        (bytes - this.mLastBytes) * 1000.0 / elapsed);
+                this.mFilesRate = smooth(this.mFilesRate, this.mLastFiles,
+                        (files - this.mLastFiles) * 1000.0 / elapsed);
+                this.mLastTime = now;
+                this.mLastBytes = bytes;
+                this.mLastFiles = files;
+            }
+            long eta = TransferProgress.UNKNOWN;
+            if (bytesTotal >= 0 && this.mRate > 0) {
+                eta = (long)(Math.max(0, bytesTotal - bytes) * 1000 / this.mRate);
+            } else if (bytesTotal < 0 && filesTotal >= 0 && this.mFilesRate > 0) {
+                // No bytes are transferred (a delete operation)
+                eta = (long)(Math.max(0, filesTotal - files) * 1000 / this.mFilesRate);
+            }
+            this.mListener.onTransferProgress(
+                    new TransferProgress(
+                            bytes, bytesTotal,
+                            files, filesTotal,
+                            (long)this.mRate, (long)this.mFilesRate, eta));
+
+            // Throttle the next notification by the cost of this one
+            long end = System.currentTimeMillis();
+            this.mNextNotification = end +
+                    Math.min(MAX_INTERVAL,
+                            Math.max(MIN_INTERVAL, (end - now) * MAX_COST_RATIO));
+        }
+    }
+
+    /**
+     * Method that smooths a rate with the last measure.
+     *
+     * @param rate The current smoothed rate
+     * @param last The last count measured (0 if this is the first measure)
+     * @param measure The last rate measured
+     * @return double The smoothed rate
+     */
+    private static double smooth(double rate, long last, double measure) {
+        if (last == 0 && rate == 0) {
+            return measure;
+        }
+        return RATE_SMOOTHING * measure + (1 - RATE_SMOOTHING) * rate;
+    }
+}
@@ -91,6 +91,59 @@ public final class SearchHelper {
                     sb.toString(), javaRegExp ? REGEXP_WILCARD_JAVA : REGEXP_WILCARD);
     }
 
+    /**
+     * Method that compiles the slots of a user query in a single java pattern, that
+     * matches the names that match any of the slots.
+     *
+     * @param query The query requested by the user
+     * @return Pattern The pattern, or null if there is nothing to search
+     */
+    public static Pattern toPattern(Query query) {
+        StringBuilder sb = new StringBuilder();
+        int cc = query.getSlotsCount();
+        for (int i = 0; i < cc; i++) {
+            String regexp = toIgnoreCaseRegExp(query.getSlot(i), true);
+            if (regexp.length() == 0) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append("|"); //$NON-NLS-1$
+            }
+            sb.append("(?:").append(regexp).append(")"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        if (sb.length() == 0) {
+            return null;
+        }
+        return Pattern.compile(sb.toString());
+    }
+
+    /**
+     * Method that returns the literal fragments of a user query (the text between the
+     * wildcards, as it is matched by the regexp of the query).
+     *
+     * @param query The query requested by the user
+     * @return List<String> The fragments of the query
+     */
+    public static List<String> getQueryFragments(String query) {
+        List<String> fragments = new ArrayList<String>();
+        if (query == null) {
+            return fragments;
+        }
+        String q = prepareQuery(query);
+        int start = 0;
+        int pos;
+        while ((pos = q.indexOf(REGEXP_WILCARD_JAVA, start)) != -1) {
+            if (pos > start) {
+                fragments.add(q.substring(start, pos));
+            }
+            start = pos + REGEXP_WILCARD_JAVA.length();
+        }
+        if (start < q.length()) {
+            fragments.add(q.substring(start));
+        }
+        return fragments;
+    }
+
     /**
      * Method that cleans and prepares the query of the user to conform with a valid regexp.
      *
@@ -0,0 +1,748 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cyanogenmod.filemanager.util;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Process;
+import android.os.storage.StorageVolume;
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.model.Query;
+import com.cyanogenmod.filemanager.preferences.FileManagerSettings;
+import com.cyanogenmod.filemanager.preferences.Preferences;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A persistent index of the names of the files of a storage volume, for answer the
+ * searches without walking the filesystem.<br/>
+ * <br/>
+ * Every volume has its own database, with the folders of the volume (and its modification
+ * time), the names of the files of every folder, and a posting list of the trigrams (the
+ * lower case sequences of three characters) of the names. A search looks up the files
+ * that have all the trigrams of a term of the query, and then checks the names with the
+ * regexp of the query.<br/>
+ * <br/>
+ * The index is kept fresh by incremental rescans: only the folders which modification
+ * time has changed since the last scan are listed again (the rest of folders are only
+ * stat'ed). The results of the index may be stale between rescans, so the callers should
+ * confirm that the files still exist.
+ */
+public final class SearchIndex {
+
+    private static final String TAG = "SearchIndex"; //$NON-NLS-1$
+
+    private static boolean DEBUG = false;
+
+    private static final String DATABASE_PREFIX = "search-index-"; //$NON-NLS-1$
+    private static final String DATABASE_SUFFIX = ".db"; //$NON-NLS-1$
+    private static final int DATABASE_VERSION = 1;
+
+    // The key of the time of the last complete scan of the volume
+    private static final String META_LAST_SCAN = "last_scan"; //$NON-NLS-1$
+
+    // The maximum number of arguments of an IN clause
+    private static final int MAX_IN_ARGS = 500;
+
+    // The indexes of the volumes, by root
+    private static final Map<String, SearchIndex> sIndexes = new HashMap<String, SearchIndex>();
+
+    // The background indexer
+    private static ExecutorService sIndexer;
+
+    private final String mRoot;
+    private final DatabaseHelper mHelper;
+    private volatile boolean mCancelled;
+
+    /**
+     * Constructor of <code>SearchIndex</code>.
+     *
+     * @param ctx The current context
+     * @param root The root folder of the index
+     */
+    SearchIndex(Context ctx, String root) {
+        super();
+        this.mRoot = new File(root).getAbsolutePath();
+        this.mHelper = new DatabaseHelper(ctx, getDatabaseName(this.mRoot));
+        this.mCancelled = false;
+    }
+
+    /**
+     * Method that returns the root folder of the index.
+     *
+     * @return String The root folder
+     */
+    public String getRoot() {
+        return this.mRoot;
+    }
+
+    /**
+     * Method that returns if the background indexer is enabled by the user.
+     *
+     * @return boolean If the background indexer is enabled
+     */
+    public static boolean isEnabled() {
+        return Preferences.getSharedPreferences().getBoolean(
+                FileManagerSettings.SETTINGS_SEARCH_INDEX.getId(),
+                ((Boolean)FileManagerSettings.SETTINGS_SEARCH_INDEX.
+                        getDefaultValue()).booleanValue());
+    }
+
+    /**
+     * Method that returns the index of the storage volume of a folder.
+     *
+     * @param ctx The current context
+     * @param directory The folder
+     * @return SearchIndex The index, or null if the indexer is disabled or the folder
+     * isn't in a storage volume
+     */
+    public static SearchIndex getIndex(Context ctx, String directory) {
+        if (!isEnabled()) {
+            return null;
+        }
+        String root = StorageHelper.getStorageVolumeRoot(ctx, directory);
+        if (root == null) {
+            return null;
+        }
+        return getOrCreateIndex(ctx, root);
+    }
+
+    /**
+     * Method that requests an incremental rescan of the indexes of all the storage
+     * volumes, in background. Does nothing if the indexer is disabled.
+     *
+     * @param ctx The current context
+     */
+    public static void requestUpdate(Context ctx) {
+        if (!isEnabled()) {
+            return;
+        }
+        final Context appCtx = ctx.getApplicationContext();
+        synchronized (sIndexes) {
+            if (sIndexer == null) {
+                sIndexer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        Thread t = new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                                r.run();
+                            }
+                        }, "SearchIndexer"); //$NON-NLS-1$
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+            }
+            sIndexer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    StorageVolume[] volumes = StorageHelper.getStorageVolumes(appCtx);
+                    int cc = volumes.length;
+                    for (int i = 0; i < cc && isEnabled(); i++) {
+                        File root = new File(volumes[i].getPath());
+                        if (!root.isDirectory()) {
+                            // Not mounted
+                            continue;
+                        }
+                        try {
+                            getOrCreateIndex(appCtx, root.getAbsolutePath()).update();
+                        } catch (Throwable ex) {
+                            Log.w(TAG, "Failed to update the index of " + root, ex); //$NON-NLS-1$
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Method that cancels the rescans and removes the indexes of all the storage volumes.
+     *
+     * @param ctx The current context
+     */
+    public static void clear(Context ctx) {
+        final Context appCtx = ctx.getApplicationContext();
+        synchronized (sIndexes) {
+            for (SearchIndex index : sIndexes.values()) {
+                index.mCancelled = true;
+            }
+            if (sIndexer == null) {
+                deleteDatabases(appCtx);
+                return;
+            }
+            // Remove the databases after the running rescan was cancelled
+            sIndexer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    deleteDatabases(appCtx);
+                }
+            });
+        }
+    }
+
+    /**
+     * Method that closes and removes all the databases of the indexes.
+     *
+     * @param ctx The current context
+     */
+    static void deleteDatabases(Context ctx) {
+        synchronized (sIndexes) {
+            for (SearchIndex index : sIndexes.values()) {
+                index.close();
+            }
+            sIndexes.clear();
+        }
+        String[] databases = ctx.databaseList();
+        int cc = databases.length;
+        for (int i = 0; i < cc; i++) {
+            if (databases[i].startsWith(DATABASE_PREFIX) &&
+                    databases[i].endsWith(DATABASE_SUFFIX)) {
+                ctx.deleteDatabase(databases[i]);
+            }
+        }
+    }
+
+    /**
+     * Method that returns the cached index of a root folder, or creates it.
+     *
+     * @param ctx The current context
+     * @param root The root folder
+     * @return SearchIndex The index
+     */
+    private static SearchIndex getOrCreateIndex(Context ctx, String root) {
+        synchronized (sIndexes) {
+            SearchIndex index = sIndexes.get(root);
+            if (index == null) {
+                index = new SearchIndex(ctx.getApplicationContext(), root);
+                sIndexes.put(root, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Method that returns the name of the database of an index.
+     *
+     * @param root The root folder of the index
+     * @return String The name of the database
+     */
+    static String getDatabaseName(String root) {
+        return DATABASE_PREFIX + Integer.toHexString(root.hashCode()) + DATABASE_SUFFIX;
+    }
+
+    /**
+     * Method that closes the database of the index.
+     */
+    void close() {
+        this.mHelper.close();
+    }
+
+    /**
+     * Method that returns if the volume was completely scanned at least once (so the
+     * index can answer the searches).
+     *
+     * @return boolean If the volume was completely scanned
+     */
+    public boolean isComplete() {
+        return getLastScan() > 0;
+    }
+
+    /**
+     * Method that returns the time of the last complete scan of the volume.
+     *
+     * @return long The time of the last complete scan, or 0 if the volume wasn't scanned
+     */
+    public long getLastScan() {
+        SQLiteDatabase db = this.mHelper.getReadableDatabase();
+        Cursor c = db.rawQuery(
+                "SELECT value FROM meta WHERE name = ?", //$NON-NLS-1$
+                new String[]{META_LAST_SCAN});
+        try {
+            return c.moveToFirst() ? c.getLong(0) : 0;
+        } finally {
+            c.close();
+        }
+    }
+
+    /**
+     * Method that rescans the volume, listing only the new folders and the folders that
+     * were modified since the last scan.
+     *
+     * @return boolean If the rescan was completed (false if it was cancelled)
+     */
+    public synchronized boolean update() {
+        this.mCancelled = false;
+        long start = System.currentTimeMillis();
+        SQLiteDatabase db = this.mHelper.getWritableDatabase();
+
+        // The known folders, its modification time and its subfolders
+        Map<String, long[]> known = new HashMap<String, long[]>();
+        Map<String, List<String>> children = new HashMap<String, List<String>>();
+        Cursor c = db.rawQuery("SELECT path, _id, mtime FROM folders", null); //$NON-NLS-1$
+        try {
+            while (c.moveToNext()) {
+                known.put(c.getString(0), new long[]{c.getLong(1), c.getLong(2)});
+            }
+        } finally {
+            c.close();
+        }
+        // The subfolders are read from the listing of its parent (a cancelled scan could
+        // have listed a folder without scanning its subfolders)
+        c = db.rawQuery("SELECT folders.path, files.name FROM files, folders " + //$NON-NLS-1$
+                "WHERE files.directory = 1 AND files.folder = folders._id", null); //$NON-NLS-1$
+        try {
+            while (c.moveToNext()) {
+                String parent = c.getString(0);
+                List<String> subfolders = children.get(parent);
+                if (subfolders == null) {
+                    subfolders = new ArrayList<String>();
+                    children.put(parent, subfolders);
+                }
+                subfolders.add(new File(parent, c.getString(1)).getAbsolutePath());
+            }
+        } finally {
+            c.close();
+        }
+
+        SQLiteStatement insertFile = db.compileStatement(
+                "INSERT INTO files (folder, name, directory) VALUES (?, ?, ?)"); //$NON-NLS-1$
+        SQLiteStatement insertTrigram = db.compileStatement(
+                "INSERT INTO trigrams (trigram, file) VALUES (?, ?)"); //$NON-NLS-1$
+        int rescanned = 0;
+        try {
+            Set<String> seen = new HashSet<String>();
+            ArrayDeque<String> pending = new ArrayDeque<String>();
+            pending.push(this.mRoot);
+            while (!pending.isEmpty()) {
+                if (this.mCancelled) {
+                    return false;
+                }
+                String path = pending.pop();
+                if (seen.contains(path)) {
+                    continue;
+                }
+                File folder = new File(path);
+                long mtime = folder.lastModified();
+                if (mtime == 0 && !folder.isDirectory()) {
+                    // Removed after its parent was scanned
+                    continue;
+                }
+                seen.add(path);
+                long[] folderInfo = known.get(path);
+                if (folderInfo != null && folderInfo[1] == mtime) {
+                    // Not modified. Its subfolders are the same that in the last scan
+                    List<String> subfolders = children.get(path);
+                    if (subfolders != null) {
+                        pending.addAll(subfolders);
+                    }
+                    continue;
+                }
+                rescanned++;
+                rescanFolder(db, insertFile, insertTrigram, folder, folderInfo, mtime, pending);
+            }
+
+            // Remove the folders that doesn't exist anymore
+            db.beginTransaction();
+            try {
+                for (Map.Entry<String, long[]> entry : known.entrySet()) {
+                    if (!seen.contains(entry.getKey())) {
+                        deleteFolder(db, entry.getValue()[0]);
+                    }
+                }
+                ContentValues values = new ContentValues();
+                values.put("name", META_LAST_SCAN); //$NON-NLS-1$
+                values.put("value", Long.valueOf(System.currentTimeMillis())); //$NON-NLS-1$
+                db.replace("meta", null, values); //$NON-NLS-1$
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            if (DEBUG) {
+                Log.v(TAG, String.format(
+                        "Updated index of %s: %d folders, %d rescanned, in %d ms", //$NON-NLS-1$
+                        this.mRoot, Integer.valueOf(seen.size()), Integer.valueOf(rescanned),
+                        Long.valueOf(System.currentTimeMillis() - start)));
+            }
+            return true;
+        } finally {
+            insertFile.close();
+            insertTrigram.close();
+        }
+    }
+
+    /**
+     * Method that lists a folder and updates its files in the index.
+     *
+     * @param db The database
+     * @param insertFile The statement for insert files
+     * @param insertTrigram The statement for insert trigrams
+     * @param folder The folder
+     * @param folderInfo The id and modification time of the folder in the index, or null
+     * if the folder is new
+     * @param mtime The current modification time of the folder
+     * @param pending The folders pending to scan, where the subfolders are added
+     */
+    private static void rescanFolder(SQLiteDatabase db, SQLiteStatement insertFile,
+            SQLiteStatement insertTrigram, File folder, long[] folderInfo, long mtime,
+            ArrayDeque<String> pending) {
+        File[] files = folder.listFiles();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            values.put("path", folder.getAbsolutePath()); //$NON-NLS-1$
+            values.put("mtime", Long.valueOf(mtime)); //$NON-NLS-1$
+            long folderId;
+            Map<String, long[]> existing = new HashMap<String, long[]>();
+            if (folderInfo == null) {
+                folderId = db.insert("folders", null, values); //$NON-NLS-1$
+            } else {
+                folderId = folderInfo[0];
+                db.update("folders", values, "_id = ?", //$NON-NLS-1$ //$NON-NLS-2$
+                        new String[]{String.valueOf(folderId)});
+                Cursor c = db.rawQuery(
+                        "SELECT name, _id, directory FROM files WHERE folder = ?", //$NON-NLS-1$
+                        new String[]{String.valueOf(folderId)});
+                try {
+                    while (c.moveToNext()) {
+                        existing.put(c.getString(0), new long[]{c.getLong(1), c.getLong(2)});
+                    }
+                } finally {
+                    c.close();
+                }
+            }
+
+            int cc = files == null ? 0 : files.length;
+            for (int i = 0; i < cc; i++) {
+                File file = files[i];
+                String name = file.getName();
+                // Don't walk the links to folders (they could loop)
+                boolean isDirectory = file.isDirectory() && !FileHelper.isLink(file);
+                long[] fileInfo = existing.remove(name);
+                if (fileInfo == null) {
+                    insertFile.bindLong(1, folderId);
+                    insertFile.bindString(2, name);
+                    insertFile.bindLong(3, isDirectory ? 1 : 0);
+                    long fileId = insertFile.executeInsert();
+                    long[] trigrams = getTrigrams(name);
+                    int tc = trigrams.length;
+                    for (int j = 0; j < tc; j++) {
+                        insertTrigram.bindLong(1, trigrams[j]);
+                        insertTrigram.bindLong(2, fileId);
+                        insertTrigram.executeInsert();
+                    }
+                } else if ((fileInfo[1] != 0) != isDirectory) {
+                    db.execSQL("UPDATE files SET directory = ? WHERE _id = ?", //$NON-NLS-1$
+                            new Object[]{Integer.valueOf(isDirectory ? 1 : 0),
+                                         Long.valueOf(fileInfo[0])});
+                }
+                if (isDirectory) {
+                    pending.push(file.getAbsolutePath());
+                }
+            }
+
+            // Remove the files that doesn't exist anymore
+            for (long[] fileInfo : existing.values()) {
+                String[] args = new String[]{String.valueOf(fileInfo[0])};
+                db.delete("trigrams", "file = ?", args); //$NON-NLS-1$ //$NON-NLS-2$
+                db.delete("files", "_id = ?", args); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Method that removes a folder (and its files) from the index.
+     *
+     * @param db The database
+     * @param folderId The id of the folder
+     */
+    private static void deleteFolder(SQLiteDatabase db, long folderId) {
+        String[] args = new String[]{String.valueOf(folderId)};
+        db.delete("trigrams", //$NON-NLS-1$
+                "file IN (SELECT _id FROM files WHERE folder = ?)", args); //$NON-NLS-1$
+        db.delete("files", "folder = ?", args); //$NON-NLS-1$ //$NON-NLS-2$
+        db.delete("folders", "_id = ?", args); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Method that searches in the index the files of a folder that match a query.
+     *
+     * @param query The terms to be searched
+     * @param directory The folder where to search (must be inside the root of the index)
+     * @return List<File> The files found that still exist, or null if the index can't
+     * answer the search (the volume wasn't scanned yet)
+     */
+    public List<File> search(Query query, String directory) {
+        if (!isComplete() || !isInFolder(directory, this.mRoot)) {
+            return null;
+        }
+        List<File> result = new ArrayList<File>();
+        Pattern pattern = SearchHelper.toPattern(query);
+        if (pattern == null) {
+            return result;
+        }
+
+        // Resolve the trigrams of every term. A term without trigrams (too short)
+        // needs to check all the names of the folder
+        List<long[]> terms = new ArrayList<long[]>();
+        int cc = query.getSlotsCount();
+        for (int i = 0; i < cc; i++) {
+            String slot = query.getSlot(i);
+            if (slot == null || slot.trim().length() == 0) {
+                continue;
+            }
+            long[] trigrams = getQueryTrigrams(slot);
+            if (trigrams.length == 0) {
+                terms = null;
+                break;
+            }
+            terms.add(trigrams);
+        }
+
+        // The folder and its subtree (a range of paths, so the unique index of the paths
+        // is used and the comparison is case-sensitive)
+        String dir = new File(directory).getAbsolutePath();
+        String folderFilter = StorageHelper.getPathRangeFilter("folders.path"); //$NON-NLS-1$
+        String[] args = StorageHelper.getPathRangeArgs(dir);
+
+        SQLiteDatabase db = this.mHelper.getReadableDatabase();
+        Map<String, File> found = new LinkedHashMap<String, File>();
+        Matcher matcher = pattern.matcher(""); //$NON-NLS-1$
+        if (terms == null) {
+            String sql = "SELECT folders.path, files.name FROM files, folders " + //$NON-NLS-1$
+                    "WHERE files.folder = folders._id AND " + folderFilter; //$NON-NLS-1$
+            collect(db.rawQuery(sql, args), matcher, found);
+        } else {
+            int tc = terms.size();
+            for (int i = 0; i < tc; i++) {
+                long[] trigrams = terms.get(i);
+                int len = Math.min(trigrams.length, MAX_IN_ARGS);
+                StringBuilder in = new StringBuilder();
+                for (int j = 0; j < len; j++) {
+                    if (j > 0) {
+                        in.append(","); //$NON-NLS-1$
+                    }
+                    in.append(trigrams[j]);
+                }
+                String sql = "SELECT folders.path, files.name FROM files, folders " + //$NON-NLS-1$
+                        "WHERE files._id IN (SELECT file FROM trigrams " + //$NON-NLS-1$
+                        "WHERE trigram IN (" + in + ") " + //$NON-NLS-1$ //$NON-NLS-2$
+                        "GROUP BY file " + //$NON-NLS-1$
+                        "HAVING COUNT(*) = " + len + ") " + //$NON-NLS-1$ //$NON-NLS-2$
+                        "AND files.folder = folders._id AND " + folderFilter; //$NON-NLS-1$
+                collect(db.rawQuery(sql, args), matcher, found);
+            }
+        }
+
+        // Confirm that the files still exist
+        Iterator<File> it = found.values().iterator();
+        while (it.hasNext()) {
+            File file = it.next();
+            if (file.exists()) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Method that collects the files of a cursor that match the query.
+     *
+     * @param c The cursor (with the path of the folder and the name of the file)
+     * @param matcher The matcher of the query
+     * @param found Where to add the files found
+     */
+    private static void collect(Cursor c, Matcher matcher, Map<String, File> found) {
+        try {
+            while (c.moveToNext()) {
+                String name = c.getString(1);
+                if (matcher.reset(name).matches()) {
+                    File file = new File(c.getString(0), name);
+                    found.put(file.getPath(), file);
+                }
+            }
+        } finally {
+            c.close();
+        }
+    }
+
+    /**
+     * Method that returns the distinct trigrams of a name.
+     *
+     * @param name The name
+     * @return long[] The trigrams
+     */
+    static long[] getTrigrams(String name) {
+        int cc = name.length() - 2;
+        if (cc <= 0) {
+            return new long[0];
+        }
+        long[] trigrams = new long[cc];
+        int count = 0;
+        for (int i = 0; i < cc; i++) {
+            long trigram = toTrigram(name.charAt(i), name.charAt(i + 1), name.charAt(i + 2));
+            boolean duplicated = false;
+            for (int j = 0; j < count && !duplicated; j++) {
+                duplicated = trigrams[j] == trigram;
+            }
+            if (!duplicated) {
+                trigrams[count++] = trigram;
+            }
+        }
+        long[] result = new long[count];
+        System.arraycopy(trigrams, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Method that returns the distinct trigrams that a name must have to match a term of
+     * a query (the trigrams of the literal fragments of the term).
+     *
+     * @param term The term of the query
+     * @return long[] The trigrams (an empty array if the term hasn't fragments long enough)
+     */
+    static long[] getQueryTrigrams(String term) {
+        List<String> fragments = SearchHelper.getQueryFragments(term);
+        Set<Long> trigrams = new HashSet<Long>();
+        int cc = fragments.size();
+        for (int i = 0; i < cc; i++) {
+            long[] t = getTrigrams(fragments.get(i));
+            for (int j = 0; j < t.length; j++) {
+                trigrams.add(Long.valueOf(t[j]));
+            }
+        }
+        long[] result = new long[trigrams.size()];
+        int i = 0;
+        for (Long trigram : trigrams) {
+            result[i++] = trigram.longValue();
+        }
+        return result;
+    }
+
+    /**
+     * Method that encodes three characters (ignoring the case) as a trigram.
+     *
+     * @param a The first character
+     * @param b The second character
+     * @param c The third character
+     * @return long The trigram
+     */
+    private static long toTrigram(char a, char b, char c) {
+        return ((long)Character.toLowerCase(a) << 32) |
+                ((long)Character.toLowerCase(b) << 16) |
+                Character.toLowerCase(c);
+    }
+
+    /**
+     * Method that returns if a path is a folder or is inside of a folder.
+     *
+     * @param path The path
+     * @param folder The folder
+     * @return boolean If the path is the folder or is inside of it
+     */
+    static boolean isInFolder(String path, String folder) {
+        if (path.compareTo(folder) == 0) {
+            return true;
+        }
+        String prefix = folder.endsWith(File.separator) ? folder : folder + File.separator;
+        return path.startsWith(prefix);
+    }
+
+    /**
+     * The database of an index.
+     */
+    private static class DatabaseHelper extends SQLiteOpenHelper {
+
+        /**
+         * Constructor of <code>DatabaseHelper</code>
+         *
+         * @param context The current context
+         * @param name The name of the database
+         */
+        DatabaseHelper(Context context, String name) {
+            super(context, name, null, DATABASE_VERSION);
+            // Let the searches read while the indexer writes
+            setWriteAheadLoggingEnabled(true);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE meta (" + //$NON-NLS-1$
+                       "name TEXT PRIMARY KEY," + //$NON-NLS-1$
+                       "value INTEGER);"); //$NON-NLS-1$
+            db.execSQL("CREATE TABLE folders (" + //$NON-NLS-1$
+                       "_id INTEGER PRIMARY KEY," + //$NON-NLS-1$
+                       "path TEXT UNIQUE NOT NULL," + //$NON-NLS-1$
+                       "mtime INTEGER NOT NULL);"); //$NON-NLS-1$
+            db.execSQL("CREATE TABLE files (" + //$NON-NLS-1$
+                       "_id INTEGER PRIMARY KEY," + //$NON-NLS-1$
+                       "folder INTEGER NOT NULL," + //$NON-NLS-1$
+                       "name TEXT NOT NULL," + //$NON-NLS-1$
+                       "directory INTEGER NOT NULL);"); //$NON-NLS-1$
+            db.execSQL("CREATE INDEX files_folder ON files (folder);"); //$NON-NLS-1$
+            db.execSQL("CREATE TABLE trigrams (" + //$NON-NLS-1$
+                       "trigram INTEGER NOT NULL," + //$NON-NLS-1$
+                       "file INTEGER NOT NULL);"); //$NON-NLS-1$
+            db.execSQL("CREATE INDEX trigrams_trigram ON trigrams (trigram, file);"); //$NON-NLS-1$
+            db.execSQL("CREATE INDEX trigrams_file ON trigrams (file);"); //$NON-NLS-1$
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int currentVersion) {
+            if (DEBUG) {
+                Log.v(TAG, "Upgrading search index database from version " + //$NON-NLS-1$
+                    oldVersion + " to " + currentVersion + //$NON-NLS-1$
+                    ", which will destroy all old data"); //$NON-NLS-1$
+            }
+            db.execSQL("DROP TABLE IF EXISTS meta"); //$NON-NLS-1$
+            db.execSQL("DROP TABLE IF EXISTS folders"); //$NON-NLS-1$
+            db.execSQL("DROP TABLE IF EXISTS files"); //$NON-NLS-1$
+            db.execSQL("DROP TABLE IF EXISTS trigrams"); //$NON-NLS-1$
+            onCreate(db);
+        }
+    }
+}
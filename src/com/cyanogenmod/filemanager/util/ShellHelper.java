@@ -18,11 +18,24 @@ package com.cyanogenmod.filemanager.util;
 
 import com.cyanogenmod.filemanager.commands.shell.Command;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * A helper class with useful methods for deal with linux shells.
  */
 public final class ShellHelper {
 
+    /**
+     * The maximum length of the expanded arguments of a single command invocation. Linux
+     * ARG_MAX is 128Kb (arguments + environment), so half of it is a safe limit.
+     */
+    public static final int MAX_EXPANDED_ARGS_LENGTH = 65536;
+
     /**
      * Constructor of <code>ShellHelper</code>.
      */
@@ -45,6 +58,151 @@ public final class ShellHelper {
         return arg.replace("\"", "\\\""); //$NON-NLS-1$//$NON-NLS-2$
     }
 
+    /**
+     * Method that splits a set of arguments in chunks, so that every chunk can be passed
+     * as expanded arguments of a single command invocation without exceed the
+     * maximum length of the arguments.
+     *
+     * @param args The arguments
+     * @param maxLength The maximum length of the arguments of every chunk
+     * @return List<String[]> The chunks of arguments
+     */
+    public static List<String[]> splitArguments(String[] args, int maxLength) {
+        List<String[]> chunks = new ArrayList<String[]>();
+        List<String> chunk = new ArrayList<String>();
+        int length = 0;
+        for (int i = 0; i < args.length; i++) {
+            // Quotes + separator
+            int argLength = prepareArgument(args[i]).length() + 3;
+            if (chunk.size() > 0 && length + argLength > maxLength) {
+                chunks.add(chunk.toArray(new String[chunk.size()]));
+                chunk.clear();
+                length = 0;
+            }
+            chunk.add(args[i]);
+            length += argLength;
+        }
+        if (chunk.size() > 0) {
+            chunks.add(chunk.toArray(new String[chunk.size()]));
+        }
+        return chunks;
+    }
+
+    /**
+     * Method that parses the standard error of a command that operates over a set of
+     * paths, and returns the paths that fails with the reason of the failure. Every
+     * line of the standard error is assigned to the longest path that contains (the
+     * path itself or some of its children).
+     *
+     * @param paths The paths passed to the command
+     * @param err The standard error of the command
+     * @param ignored The errors messages that must not be treated as failures
+     * @return Map<String, String> The paths that fails with the reason of the failure
+     */
+    public static Map<String, String> parsePathFailures(
+            String[] paths, String err, String... ignored) {
+        Map<String, String> failures = new LinkedHashMap<String, String>();
+        if (err == null || err.length() == 0) {
+            return failures;
+        }
+        String[] lines = err.split(FileHelper.NEWLINE);
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.length() == 0 || isIgnoredFailure(line, ignored)) {
+                continue;
+            }
+            String path = findPathInLine(paths, line);
+            if (path != null && !failures.containsKey(path)) {
+                failures.put(path, line);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Method that parses the standard error of a command that copies or moves a set of
+     * sources to a destination directory, and returns the sources that fails with the
+     * reason of the failure. The errors that references the target of a source in the
+     * destination directory are assigned to the source.
+     *
+     * @param srcs The sources passed to the command
+     * @param dst The destination directory passed to the command
+     * @param err The standard error of the command
+     * @param ignored The errors messages that must not be treated as failures
+     * @return Map<String, String> The sources that fails with the reason of the failure
+     * @see #parsePathFailures(String[], String, String...)
+     */
+    public static Map<String, String> parseTargetFailures(
+            String[] srcs, String dst, String err, String... ignored) {
+        // Paths = sources + targets
+        String[] paths = new String[srcs.length * 2];
+        Map<String, String> targets = new HashMap<String, String>();
+        for (int i = 0; i < srcs.length; i++) {
+            String target = new File(dst, new File(srcs[i]).getName()).getAbsolutePath();
+            paths[i] = srcs[i];
+            paths[srcs.length + i] = target;
+            targets.put(target, srcs[i]);
+        }
+
+        // Resolve the failures of the targets to their sources
+        Map<String, String> failures = new LinkedHashMap<String, String>();
+        Map<String, String> pathFailures = parsePathFailures(paths, err, ignored);
+        for (Map.Entry<String, String> failure : pathFailures.entrySet()) {
+            String src = targets.get(failure.getKey());
+            if (src == null) {
+                src = failure.getKey();
+            }
+            if (!failures.containsKey(src)) {
+                failures.put(src, failure.getValue());
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Method that checks if an error line must be ignored
+     *
+     * @param line The error line
+     * @param ignored The errors messages that must be ignored
+     * @return boolean If the error line must be ignored
+     */
+    private static boolean isIgnoredFailure(String line, String... ignored) {
+        for (int i = 0; i < ignored.length; i++) {
+            if (line.indexOf(ignored[i]) != -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method that returns the longest path referenced by an error line
+     *
+     * @param paths The paths
+     * @param line The error line
+     * @return String The path referenced, or <code>null</code> if no path is referenced
+     */
+    private static String findPathInLine(String[] paths, String line) {
+        String found = null;
+        for (int i = 0; i < paths.length; i++) {
+            String path = paths[i];
+            if (found != null && found.length() >= path.length()) {
+                continue;
+            }
+            int pos = line.indexOf(path);
+            while (pos != -1) {
+                // The path must not continue with a different name
+                int end = pos + path.length();
+                if (end == line.length() || "/,':; \"".indexOf(line.charAt(end)) != -1) { //$NON-NLS-1$
+                    found = path;
+                    break;
+                }
+                pos = line.indexOf(path, pos + 1);
+            }
+        }
+        return found;
+    }
+
     /**
      * Method that returns the command line of a program command to be used as part as the
      * arguments of the shell command.
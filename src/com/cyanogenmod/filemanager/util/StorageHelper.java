@@ -139,6 +139,56 @@ public final class StorageHelper {
         return false;
     }
 
+    /**
+     * Method that returns the root of the storage volume of a path
+     *
+     * @param ctx The current context
+     * @param path The absolute path
+     * @return String The absolute root of the storage volume, or null if the path isn't
+     * in a storage volume
+     */
+    public static String getStorageVolumeRoot(Context ctx, String path) {
+        StorageVolume[] volumes = getStorageVolumes(ctx);
+        int cc = volumes.length;
+        for (int i = 0; i < cc; i++) {
+            String root = new File(volumes[i].getPath()).getAbsolutePath();
+            String prefix = root.endsWith(File.separator) ? root : root + File.separator;
+            if (path.compareTo(root) == 0 || path.startsWith(prefix)) {
+                return root;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method that returns the SQL filter of the rows of a folder and its subtree by the
+     * column of their absolute paths (see {@link #getPathRangeArgs(String)}). The filter is a
+     * range of paths, so an index of the column is used and the comparison is case-sensitive.
+     *
+     * @param column The column of the absolute paths
+     * @return String The filter
+     */
+    public static String getPathRangeFilter(String column) {
+        return "(" + column + " = ? OR " + //$NON-NLS-1$ //$NON-NLS-2$
+                "(" + column + " >= ? AND " + //$NON-NLS-1$ //$NON-NLS-2$
+                column + " < ?))"; //$NON-NLS-1$
+    }
+
+    /**
+     * Method that returns the arguments of the filter of a folder and its subtree (see
+     * {@link #getPathRangeFilter(String)}): the folder, and the range of the paths that start
+     * with the folder and a separator.
+     *
+     * @param dir The absolute path of the folder
+     * @return String[] The arguments of the filter
+     */
+    public static String[] getPathRangeArgs(String dir) {
+        String prefix = dir.endsWith(File.separator) ? dir : dir + File.separator;
+        String end = prefix.substring(0, prefix.length() - 1) +
+                (char)(File.separatorChar + 1);
+        return new String[]{dir, prefix, end};
+    }
+
     /**
      * Method that returns if the path is a storage volume
      *
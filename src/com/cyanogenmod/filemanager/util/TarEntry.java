@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+/**
+ * An entry of a tar archive (see {@link TarInputStream} and {@link TarOutputStream}).
+ */
+public class TarEntry {
+
+    /**
+     * A regular file.
+     */
+    public static final char TYPE_FILE = '0';
+    /**
+     * A hard link to a previous entry of the archive.
+     */
+    public static final char TYPE_LINK = '1';
+    /**
+     * A symbolic link.
+     */
+    public static final char TYPE_SYMLINK = '2';
+    /**
+     * A folder.
+     */
+    public static final char TYPE_DIRECTORY = '5';
+
+    private String mName;
+    private char mType;
+    private long mSize;
+    private int mMode;
+    private long mModifiedTime;
+    private String mLinkName;
+
+    /**
+     * Constructor of <code>TarEntry</code>.
+     *
+     * @param name The name of the entry (a relative path, with '/' as separator)
+     * @param type The type of the entry
+     * @param size The size of the data of the entry
+     * @param mode The permissions of the entry
+     * @param modifiedTime The last modification time of the entry (in milliseconds)
+     */
+    public TarEntry(String name, char type, long size, int mode, long modifiedTime) {
+        super();
+        this.mName = name;
+        this.mType = type;
+        this.mSize = size;
+        this.mMode = mode;
+        this.mModifiedTime = modifiedTime;
+        this.mLinkName = null;
+    }
+
+    /**
+     * Method that returns the name of the entry.
+     *
+     * @return String The name of the entry
+     */
+    public String getName() {
+        return this.mName;
+    }
+
+    /**
+     * Method that sets the name of the entry.
+     *
+     * @param name The name of the entry
+     */
+    public void setName(String name) {
+        this.mName = name;
+    }
+
+    /**
+     * Method that returns the type of the entry.
+     *
+     * @return char The type of the entry
+     */
+    public char getType() {
+        return this.mType;
+    }
+
+    /**
+     * Method that returns if the entry is a folder.
+     *
+     * @return boolean If the entry is a folder
+     */
+    public boolean isDirectory() {
+        return this.mType == TYPE_DIRECTORY;
+    }
+
+    /**
+     * Method that returns the size of the data of the entry.
+     *
+     * @return long The size of the data of the entry
+     */
+    public long getSize() {
+        return this.mSize;
+    }
+
+    /**
+     * Method that sets the size of the data of the entry.
+     *
+     * @param size The size of the data of the entry
+     */
+    public void setSize(long size) {
+        this.mSize = size;
+    }
+
+    /**
+     * Method that returns the permissions of the entry.
+     *
+     * @return int The permissions of the entry
+     */
+    public int getMode() {
+        return this.mMode;
+    }
+
+    /**
+     * Method that returns the last modification time of the entry.
+     *
+     * @return long The last modification time of the entry (in milliseconds)
+     */
+    public long getModifiedTime() {
+        return this.mModifiedTime;
+    }
+
+    /**
+     * Method that returns the target of a link entry.
+     *
+     * @return String The target of the link, or null if the entry is not a link
+     */
+    public String getLinkName() {
+        return this.mLinkName;
+    }
+
+    /**
+     * Method that sets the target of a link entry.
+     *
+     * @param linkName The target of the link
+     */
+    public void setLinkName(String linkName) {
+        this.mLinkName = linkName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "TarEntry [name=" + this.mName + ", type=" + this.mType //$NON-NLS-1$ //$NON-NLS-2$
+                + ", size=" + this.mSize + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream that reads a tar archive (ustar, with the GNU long names and the pax
+ * paths). Every call to {@link #getNextEntry()} positions the stream at the data of the
+ * next entry.
+ */
+public class TarInputStream extends FilterInputStream {
+
+    private static final int BLOCK_SIZE = TarOutputStream.BLOCK_SIZE;
+
+    private final byte[] mHeader = new byte[BLOCK_SIZE];
+    private final byte[] mSingle = new byte[1];
+    private long mEntryRemaining;
+    private int mEntryPadding;
+    private boolean mEof;
+
+    /**
+     * Constructor of <code>TarInputStream</code>.
+     *
+     * @param in The stream of the archive
+     */
+    public TarInputStream(InputStream in) {
+        super(in);
+        this.mEntryRemaining = 0;
+        this.mEntryPadding = 0;
+        this.mEof = false;
+    }
+
+    /**
+     * Method that returns the next entry of the archive (the data of the current entry
+     * is skipped).
+     *
+     * @return TarEntry The next entry, or null if the archive ended
+     * @throws IOException If the archive is not valid
+     */
+    public TarEntry getNextEntry() throws IOException {
+        String longName = null;
+        String longLink = null;
+        while (!this.mEof) {
+            skipEntry();
+            if (!readBlock(this.mHeader, true)) {
+                this.mEof = true;
+                break;
+            }
+            byte[] h = this.mHeader;
+            if (isZeroBlock(h)) {
+                this.mEof = true;
+                break;
+            }
+            if (!verifyChecksum(h)) {
+                throw new IOException("invalid tar header checksum"); //$NON-NLS-1$
+            }
+
+            char type = (char)h[156];
+            long size = readSize(h, 124);
+            this.mEntryRemaining = size;
+            this.mEntryPadding = (int)((BLOCK_SIZE - (size % BLOCK_SIZE)) % BLOCK_SIZE);
+
+            // Extended headers of the next entry
+            if (type == 'L' || type == 'K' || type == 'x' || type == 'g') {
+                byte[] data = readEntryData(size);
+                if (type == 'L') {
+                    longName = readString(data, 0, data.length);
+                } else if (type == 'K') {
+                    longLink = readString(data, 0, data.length);
+                } else if (type == 'x') {
+                    String[] pax = parsePax(data);
+                    if (pax[0] != null) longName = pax[0];
+                    if (pax[1] != null) longLink = pax[1];
+                }
+                continue;
+            }
+
+            String name = longName;
+            if (name == null) {
+                name = readString(h, 0, 100);
+                if (isUstar(h)) {
+                    String prefix = readString(h, 345, 155);
+                    if (prefix.length() > 0) {
+                        name = prefix + "/" + name; //$NON-NLS-1$
+                    }
+                }
+            }
+            if (type == 0 || type == '7') {
+                type = TarEntry.TYPE_FILE;
+            }
+            if (type == TarEntry.TYPE_FILE && name.endsWith("/")) { //$NON-NLS-1$
+                type = TarEntry.TYPE_DIRECTORY;
+            }
+            if (type != TarEntry.TYPE_FILE) {
+                // Only the regular files has data (the rest of the data is ignored)
+                if (type != TarEntry.TYPE_DIRECTORY &&
+                    type != TarEntry.TYPE_LINK && type != TarEntry.TYPE_SYMLINK) {
+                    skipEntry();
+                    continue;
+                }
+            }
+            TarEntry entry = new TarEntry(
+                    name, type, type == TarEntry.TYPE_FILE ? size : 0,
+                    (int)readOctal(h, 100, 8), readOctal(h, 136, 12) * 1000L);
+            if (type == TarEntry.TYPE_LINK || type == TarEntry.TYPE_SYMLINK) {
+                entry.setLinkName(longLink != null ? longLink : readString(h, 157, 100));
+            }
+            if (type != TarEntry.TYPE_FILE) {
+                skipEntry();
+            }
+            return entry;
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read() throws IOException {
+        int read = read(this.mSingle, 0, 1);
+        return read == -1 ? -1 : (this.mSingle[0] & 0xff);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (this.mEntryRemaining <= 0) {
+            return -1;
+        }
+        int read = this.in.read(b, off, (int)Math.min(len, this.mEntryRemaining));
+        if (read == -1) {
+            throw new IOException("unexpected end of the tar archive"); //$NON-NLS-1$
+        }
+        this.mEntryRemaining -= read;
+        return read;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buffer = new byte[(int)Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int)Math.min(buffer.length, n - skipped));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int available() throws IOException {
+        return (int)Math.min(this.in.available(), this.mEntryRemaining);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Method that skips the rest of the data of the current entry and its padding. The data
+     * is skipped in the underlying stream, so a seekable stream doesn't read it.
+     *
+     * @throws IOException If the archive is not valid
+     */
+    private void skipEntry() throws IOException {
+        long pad = this.mEntryRemaining + this.mEntryPadding;
+        this.mEntryRemaining = 0;
+        while (pad > 0) {
+            long skipped = this.in.skip(pad);
+            if (skipped <= 0) {
+                if (this.in.read() == -1) {
+                    throw new IOException("unexpected end of the tar archive"); //$NON-NLS-1$
+                }
+                skipped = 1;
+            }
+            pad -= skipped;
+        }
+        this.mEntryPadding = 0;
+    }
+
+    /**
+     * Method that reads the data of an entry (for extended headers).
+     *
+     * @param size The size of the data
+     * @return byte[] The data
+     * @throws IOException If the data can't be read
+     */
+    private byte[] readEntryData(long size) throws IOException {
+        if (size > 1024 * 1024) {
+            throw new IOException("extended header too big"); //$NON-NLS-1$
+        }
+        byte[] data = new byte[(int)size];
+        int pos = 0;
+        while (pos < data.length) {
+            int read = read(data, pos, data.length - pos);
+            if (read == -1) {
+                throw new IOException("unexpected end of the tar archive"); //$NON-NLS-1$
+            }
+            pos += read;
+        }
+        return data;
+    }
+
+    /**
+     * Method that reads a block of the archive.
+     *
+     * @param block The block
+     * @param eofAllowed If the end of the stream is allowed before the block
+     * @return boolean If the block was read (false if the stream ended)
+     * @throws IOException If the block is incomplete
+     */
+    private boolean readBlock(byte[] block, boolean eofAllowed) throws IOException {
+        int pos = 0;
+        while (pos < BLOCK_SIZE) {
+            int read = this.in.read(block, pos, BLOCK_SIZE - pos);
+            if (read == -1) {
+                if (pos == 0 && eofAllowed) {
+                    return false;
+                }
+                throw new IOException("unexpected end of the tar archive"); //$NON-NLS-1$
+            }
+            pos += read;
+        }
+        return true;
+    }
+
+    /**
+     * Method that parses the path and the link path of a pax extended header.
+     *
+     * @param data The data of the header
+     * @return String[] The path and the link path (or null if they are not present)
+     */
+    private static String[] parsePax(byte[] data) {
+        String[] out = new String[2];
+        int pos = 0;
+        while (pos < data.length) {
+            // Every record is "<length> <key>=<value>\n"
+            int sp = pos;
+            while (sp < data.length && data[sp] != ' ') sp++;
+            if (sp >= data.length) break;
+            int len;
+            try {
+                len = Integer.parseInt(new String(data, pos, sp - pos, TarOutputStream.UTF8));
+            } catch (NumberFormatException e) {
+                break;
+            }
+            if (len <= 0 || pos + len > data.length) break;
+            String record =
+                    new String(data, sp + 1, pos + len - sp - 2, TarOutputStream.UTF8);
+            int eq = record.indexOf('=');
+            if (eq != -1) {
+                String key = record.substring(0, eq);
+                String value = record.substring(eq + 1);
+                if (key.compareTo("path") == 0) { //$NON-NLS-1$
+                    out[0] = value;
+                } else if (key.compareTo("linkpath") == 0) { //$NON-NLS-1$
+                    out[1] = value;
+                }
+            }
+            pos += len;
+        }
+        return out;
+    }
+
+    /**
+     * Method that returns if a header is an ustar header (with a prefix field).
+     *
+     * @param h The header
+     * @return boolean If the header is an ustar header
+     */
+    private static boolean isUstar(byte[] h) {
+        // Only POSIX ustar has the prefix field (GNU tar uses it for other things)
+        return h[257] == 'u' && h[258] == 's' && h[259] == 't' && h[260] == 'a' &&
+               h[261] == 'r' && h[262] == 0;
+    }
+
+    /**
+     * Method that returns if a block is all zeros (the end of the archive).
+     *
+     * @param h The block
+     * @return boolean If the block is all zeros
+     */
+    private static boolean isZeroBlock(byte[] h) {
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            if (h[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method that verifies the checksum of a header (signed or unsigned, as old
+     * implementations computed it).
+     *
+     * @param h The header
+     * @return boolean If the checksum is valid
+     */
+    private static boolean verifyChecksum(byte[] h) {
+        long stored = readOctal(h, 148, 8);
+        long unsigned = 0;
+        long signed = 0;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            byte b = (i >= 148 && i < 156) ? (byte)' ' : h[i];
+            unsigned += b & 0xff;
+            signed += b;
+        }
+        return stored == unsigned || stored == signed;
+    }
+
+    /**
+     * Method that reads a size field (octal or base-256).
+     *
+     * @param h The header
+     * @param off The offset of the field
+     * @return long The size
+     * @throws IOException If the size is not valid
+     */
+    private static long readSize(byte[] h, int off) throws IOException {
+        long size;
+        if ((h[off] & 0x80) != 0) {
+            size = 0;
+            for (int i = off + 1; i < off + 12; i++) {
+                size = (size << 8) | (h[i] & 0xff);
+            }
+        } else {
+            size = readOctal(h, off, 12);
+        }
+        if (size < 0) {
+            throw new IOException("invalid tar entry size"); //$NON-NLS-1$
+        }
+        return size;
+    }
+
+    /**
+     * Method that reads an octal field (leading spaces and trailing NULs or spaces are
+     * ignored).
+     *
+     * @param h The header
+     * @param off The offset of the field
+     * @param len The length of the field
+     * @return long The value
+     */
+    private static long readOctal(byte[] h, int off, int len) {
+        long v = 0;
+        int end = off + len;
+        int i = off;
+        while (i < end && h[i] == ' ') i++;
+        for (; i < end; i++) {
+            byte b = h[i];
+            if (b < '0' || b > '7') {
+                break;
+            }
+            v = (v << 3) + (b - '0');
+        }
+        return v;
+    }
+
+    /**
+     * Method that reads a NUL terminated string field.
+     *
+     * @param h The header
+     * @param off The offset of the field
+     * @param len The length of the field
+     * @return String The string
+     */
+    private static String readString(byte[] h, int off, int len) {
+        int end = off;
+        while (end < off + len && h[end] != 0) end++;
+        return new String(h, off, end - off, TarOutputStream.UTF8);
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * An output stream that writes a tar archive (ustar format). The names that don't fit in
+ * the ustar header are written as GNU long names, and the sizes bigger than 8GB are written
+ * in base-256, so the archive can be read with the <code>tar</code> program.
+ */
+public class TarOutputStream extends FilterOutputStream {
+
+    /**
+     * The size of the blocks of a tar archive.
+     */
+    public static final int BLOCK_SIZE = 512;
+    // The size of the records of the archive (the archive is padded to a record)
+    private static final int RECORD_SIZE = 20 * BLOCK_SIZE;
+
+    private static final long MAX_OCTAL_SIZE = 077777777777L;
+    private static final String LONG_NAME = "././@LongLink"; //$NON-NLS-1$
+
+    static final Charset UTF8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+    private final byte[] mHeader = new byte[BLOCK_SIZE];
+    private final byte[] mSingle = new byte[1];
+    private long mWritten;
+    private long mEntryRemaining;
+    private boolean mInEntry;
+    private boolean mFinished;
+
+    /**
+     * Constructor of <code>TarOutputStream</code>.
+     *
+     * @param out The stream where to write the archive
+     */
+    public TarOutputStream(OutputStream out) {
+        super(out);
+        this.mWritten = 0;
+        this.mInEntry = false;
+        this.mFinished = false;
+    }
+
+    /**
+     * Method that writes the header of a new entry. The data of the entry (if it's a
+     * regular file) must be written before the next entry.
+     *
+     * @param entry The entry
+     * @throws IOException If the header can't be written
+     */
+    public void putNextEntry(TarEntry entry) throws IOException {
+        if (this.mInEntry) {
+            closeEntry();
+        }
+        String name = entry.getName();
+        if (entry.isDirectory() && !name.endsWith("/")) { //$NON-NLS-1$
+            name += "/"; //$NON-NLS-1$
+        }
+        long size = entry.getType() == TarEntry.TYPE_FILE ? entry.getSize() : 0;
+
+        // Names that don't fit in the header (split in prefix and name, or a long name)
+        byte[] nameBytes = name.getBytes(UTF8);
+        byte[] prefixBytes = null;
+        if (nameBytes.length > 100) {
+            int split = findPrefixSplit(nameBytes);
+            if (split == -1) {
+                writeLongName('L', nameBytes);
+                nameBytes = truncate(nameBytes, 100);
+            } else {
+                prefixBytes = new byte[split];
+                System.arraycopy(nameBytes, 0, prefixBytes, 0, split);
+                byte[] rest = new byte[nameBytes.length - split - 1];
+                System.arraycopy(nameBytes, split + 1, rest, 0, rest.length);
+                nameBytes = rest;
+            }
+        }
+        byte[] linkBytes = null;
+        if (entry.getLinkName() != null) {
+            linkBytes = entry.getLinkName().getBytes(UTF8);
+            if (linkBytes.length > 100) {
+                writeLongName('K', linkBytes);
+                linkBytes = truncate(linkBytes, 100);
+            }
+        }
+
+        byte[] h = this.mHeader;
+        clearHeader();
+        System.arraycopy(nameBytes, 0, h, 0, nameBytes.length);
+        writeOctal(h, 100, 8, entry.getMode() & 07777);
+        writeOctal(h, 108, 8, 0);
+        writeOctal(h, 116, 8, 0);
+        writeSize(h, 124, size);
+        writeOctal(h, 136, 12, Math.max(0, entry.getModifiedTime() / 1000L));
+        h[156] = (byte)entry.getType();
+        if (linkBytes != null) {
+            System.arraycopy(linkBytes, 0, h, 157, linkBytes.length);
+        }
+        if (prefixBytes != null) {
+            System.arraycopy(prefixBytes, 0, h, 345, prefixBytes.length);
+        }
+        writeHeader();
+
+        this.mEntryRemaining = size;
+        this.mInEntry = true;
+    }
+
+    /**
+     * Method that ends the current entry (the data of the entry is padded to a block).
+     *
+     * @throws IOException If the data written doesn't match the size of the entry
+     */
+    public void closeEntry() throws IOException {
+        if (!this.mInEntry) {
+            return;
+        }
+        if (this.mEntryRemaining != 0) {
+            throw new IOException(
+                    String.format("entry size mismatch: %d bytes pending", //$NON-NLS-1$
+                            Long.valueOf(this.mEntryRemaining)));
+        }
+        pad(BLOCK_SIZE);
+        this.mInEntry = false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(int b) throws IOException {
+        this.mSingle[0] = (byte)b;
+        write(this.mSingle, 0, 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (!this.mInEntry || len > this.mEntryRemaining) {
+            throw new IOException("data out of an entry"); //$NON-NLS-1$
+        }
+        this.out.write(b, off, len);
+        this.mEntryRemaining -= len;
+        this.mWritten += len;
+    }
+
+    /**
+     * Method that finishes the archive (the end of archive blocks), without closing the
+     * underlying stream.
+     *
+     * @throws IOException If the archive can't be written
+     */
+    public void finish() throws IOException {
+        if (this.mFinished) {
+            return;
+        }
+        closeEntry();
+        clearHeader();
+        this.out.write(this.mHeader);
+        this.out.write(this.mHeader);
+        this.mWritten += 2 * BLOCK_SIZE;
+        pad(RECORD_SIZE);
+        this.mFinished = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            super.close();
+        }
+    }
+
+    /**
+     * Method that writes a GNU long name entry.
+     *
+     * @param type The type of the entry ('L' for names, 'K' for link names)
+     * @param name The name
+     * @throws IOException If the entry can't be written
+     */
+    private void writeLongName(char type, byte[] name) throws IOException {
+        byte[] h = this.mHeader;
+        clearHeader();
+        byte[] longName = LONG_NAME.getBytes(UTF8);
+        System.arraycopy(longName, 0, h, 0, longName.length);
+        writeOctal(h, 100, 8, 0);
+        writeOctal(h, 108, 8, 0);
+        writeOctal(h, 116, 8, 0);
+        writeSize(h, 124, name.length + 1);
+        writeOctal(h, 136, 12, 0);
+        h[156] = (byte)type;
+        writeHeader();
+        this.out.write(name);
+        this.out.write(0);
+        this.mWritten += name.length + 1;
+        pad(BLOCK_SIZE);
+    }
+
+    /**
+     * Method that writes the current header (with the magic and the checksum).
+     *
+     * @throws IOException If the header can't be written
+     */
+    private void writeHeader() throws IOException {
+        byte[] h = this.mHeader;
+        // ustar\000
+        h[257] = 'u';
+        h[258] = 's';
+        h[259] = 't';
+        h[260] = 'a';
+        h[261] = 'r';
+        h[262] = 0;
+        h[263] = '0';
+        h[264] = '0';
+        for (int i = 148; i < 156; i++) {
+            h[i] = ' ';
+        }
+        long sum = 0;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            sum += h[i] & 0xff;
+        }
+        writeOctal(h, 148, 7, sum);
+        h[155] = ' ';
+        this.out.write(h);
+        this.mWritten += BLOCK_SIZE;
+    }
+
+    /**
+     * Method that clears the header buffer.
+     */
+    private void clearHeader() {
+        byte[] h = this.mHeader;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            h[i] = 0;
+        }
+    }
+
+    /**
+     * Method that pads the archive with zeros to a multiple of a size.
+     *
+     * @param size The size
+     * @throws IOException If the padding can't be written
+     */
+    private void pad(int size) throws IOException {
+        int rem = (int)(this.mWritten % size);
+        if (rem != 0) {
+            int n = size - rem;
+            byte[] zeros = new byte[n];
+            this.out.write(zeros);
+            this.mWritten += n;
+        }
+    }
+
+    /**
+     * Method that finds where to split a name in a ustar prefix and a name.
+     *
+     * @param name The name
+     * @return int The position of the separator, or -1 if the name can't be split
+     */
+    private static int findPrefixSplit(byte[] name) {
+        for (int i = Math.min(name.length - 1, 155); i > 0; i--) {
+            if (name[i] == '/' && name.length - i - 1 <= 100 && name.length - i - 1 > 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Method that truncates a name.
+     *
+     * @param name The name
+     * @param len The maximum length
+     * @return byte[] The name truncated
+     */
+    private static byte[] truncate(byte[] name, int len) {
+        byte[] out = new byte[Math.min(name.length, len)];
+        System.arraycopy(name, 0, out, 0, out.length);
+        return out;
+    }
+
+    /**
+     * Method that writes a size field (in octal, or in base-256 if it doesn't fit).
+     *
+     * @param h The header
+     * @param off The offset of the field
+     * @param size The size
+     */
+    private static void writeSize(byte[] h, int off, long size) {
+        if (size <= MAX_OCTAL_SIZE) {
+            writeOctal(h, off, 12, size);
+            return;
+        }
+        long v = size;
+        for (int i = off + 11; i > off; i--) {
+            h[i] = (byte)v;
+            v >>>= 8;
+        }
+        h[off] = (byte)0x80;
+    }
+
+    /**
+     * Method that writes an octal field (zero padded and NUL terminated).
+     *
+     * @param h The header
+     * @param off The offset of the field
+     * @param len The length of the field (including the NUL)
+     * @param value The value
+     */
+    private static void writeOctal(byte[] h, int off, int len, long value) {
+        long v = value;
+        for (int i = off + len - 2; i >= off; i--) {
+            h[i] = (byte)('0' + (v & 7));
+            v >>>= 3;
+        }
+        h[off + len - 1] = 0;
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.preferences.FileManagerSettings;
+import com.cyanogenmod.filemanager.preferences.Preferences;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A helper class for record structured traces of the operations of the application.<br/>
+ * <br/>
+ * Every trace event is stored in a fixed-size ring buffer of primitive arrays, so recording
+ * an event doesn't allocate any object (the oldest events are overwritten when the buffer is
+ * full). The events are begin/end spans of a name and a category, with an optional reference
+ * (the command identifier), the hash of the path affected and a count of bytes (or items).<br/>
+ * <br/>
+ * The buffer can be exported as a Chrome trace-event json file (<code>chrome://tracing</code>),
+ * to see how the console i/o, parse, sort and adapter operations overlap in time.
+ */
+public final class TraceHelper {
+
+    private static final String TAG = "TraceHelper"; //$NON-NLS-1$
+
+    /**
+     * The category of the console executions.
+     */
+    public static final String CAT_CONSOLE = "console"; //$NON-NLS-1$
+    /**
+     * The category of the parse of the programs results.
+     */
+    public static final String CAT_PARSE = "parse"; //$NON-NLS-1$
+    /**
+     * The category of the sort and filter of the listed files.
+     */
+    public static final String CAT_SORT = "sort"; //$NON-NLS-1$
+    /**
+     * The category of the adapters operations.
+     */
+    public static final String CAT_UI = "ui"; //$NON-NLS-1$
+    /**
+     * The category of the filesystem i/o operations.
+     */
+    public static final String CAT_IO = "io"; //$NON-NLS-1$
+
+    // The capacity of the ring buffer (must be a power of 2)
+    private static final int CAPACITY = 8192;
+    private static final int MASK = CAPACITY - 1;
+
+    private static final char PHASE_BEGIN = 'B';
+    private static final char PHASE_END = 'E';
+
+    // The ring buffer
+    private static final char[] sPhase = new char[CAPACITY];
+    private static final long[] sTimestamp = new long[CAPACITY];
+    private static final long[] sThreadId = new long[CAPACITY];
+    private static final String[] sThreadName = new String[CAPACITY];
+    private static final String[] sName = new String[CAPACITY];
+    private static final String[] sCategory = new String[CAPACITY];
+    private static final Object[] sRef = new Object[CAPACITY];
+    private static final int[] sPathHash = new int[CAPACITY];
+    private static final long[] sBytes = new long[CAPACITY];
+    private static long sCount = 0;
+    private static final Object SYNC = new Object();
+
+    private static volatile boolean sEnabled = false;
+
+    /**
+     * Constructor of <code>TraceHelper</code>.
+     */
+    private TraceHelper() {
+        super();
+    }
+
+    /**
+     * Method that returns if the traces are being recorded
+     *
+     * @return boolean If the traces are being recorded
+     */
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * Method that reload the status of trace setting
+     */
+    public static void reloadTrace() {
+        sEnabled = Preferences.getSharedPreferences().getBoolean(
+                FileManagerSettings.SETTINGS_SHOW_TRACES.getId(),
+                ((Boolean)FileManagerSettings.SETTINGS_SHOW_TRACES.getDefaultValue()).booleanValue());
+    }
+
+    /**
+     * Method that records the begin of a span.
+     *
+     * @param name The name of the span (should be a constant)
+     * @param category The category of the span
+     * @param ref The reference of the span (a command identifier or a class), or null
+     * @param path The path affected by the span, or null
+     */
+    public static void begin(String name, String category, Object ref, String path) {
+        if (!sEnabled) return;
+        record(PHASE_BEGIN, name, category, ref, path == null ? 0 : path.hashCode(), 0);
+    }
+
+    /**
+     * Method that records the end of a span.
+     *
+     * @param name The name of the span (must be the same passed in the begin call)
+     * @param category The category of the span
+     * @param bytes The number of bytes (or items) processed by the span
+     */
+    public static void end(String name, String category, long bytes) {
+        if (!sEnabled) return;
+        record(PHASE_END, name, category, null, 0, bytes);
+    }
+
+    /**
+     * Method that stores an event in the ring buffer.
+     *
+     * @param phase The phase of the event
+     * @param name The name of the event
+     * @param category The category of the event
+     * @param ref The reference of the event
+     * @param pathHash The path hash
+     * @param bytes The number of bytes
+     */
+    private static void record(
+            char phase, String name, String category, Object ref, int pathHash, long bytes) {
+        final long ts = System.nanoTime();
+        final Thread thread = Thread.currentThread();
+        synchronized (SYNC) {
+            int pos = (int)(sCount & MASK);
+            sPhase[pos] = phase;
+            sTimestamp[pos] = ts;
+            sThreadId[pos] = thread.getId();
+            sThreadName[pos] = thread.getName();
+            sName[pos] = name;
+            sCategory[pos] = category;
+            sRef[pos] = ref;
+            sPathHash[pos] = pathHash;
+            sBytes[pos] = bytes;
+            sCount++;
+        }
+    }
+
+    /**
+     * Method that clears the ring buffer.
+     */
+    public static void clear() {
+        synchronized (SYNC) {
+            for (int i = 0; i < CAPACITY; i++) {
+                sName[i] = null;
+                sCategory[i] = null;
+                sRef[i] = null;
+                sThreadName[i] = null;
+            }
+            sCount = 0;
+        }
+    }
+
+    /**
+     * Method that exports the current content of the ring buffer as a Chrome trace-event
+     * json file.
+     *
+     * @param file The file where to export the traces
+     * @return int The number of events exported
+     * @throws IOException If the file can't be written
+     */
+    public static int exportChromeTrace(File file) throws IOException {
+        // Copy the buffer, so the recording is not blocked while writing
+        int cc;
+        long first;
+        char[] phase = new char[CAPACITY];
+        long[] timestamp = new long[CAPACITY];
+        long[] threadId = new long[CAPACITY];
+        String[] threadName = new String[CAPACITY];
+        String[] name = new String[CAPACITY];
+        String[] category = new String[CAPACITY];
+        Object[] ref = new Object[CAPACITY];
+        int[] pathHash = new int[CAPACITY];
+        long[] bytes = new long[CAPACITY];
+        synchronized (SYNC) {
+            cc = (int)Math.min(sCount, CAPACITY);
+            first = sCount - cc;
+            for (int i = 0; i < cc; i++) {
+                int pos = (int)((first + i) & MASK);
+                phase[i] = sPhase[pos];
+                timestamp[i] = sTimestamp[pos];
+                threadId[i] = sThreadId[pos];
+                threadName[i] = sThreadName[pos];
+                name[i] = sName[pos];
+                category[i] = sCategory[pos];
+                ref[i] = sRef[pos];
+                pathHash[i] = sPathHash[pos];
+                bytes[i] = sBytes[pos];
+            }
+        }
+
+        Writer w = new BufferedWriter(new FileWriter(file));
+        try {
+            Map<Long, String> threads = new HashMap<Long, String>();
+            w.write("{\"traceEvents\":["); //$NON-NLS-1$
+            for (int i = 0; i < cc; i++) {
+                if (i > 0) {
+                    w.write(","); //$NON-NLS-1$
+                }
+                w.write(FileHelper.NEWLINE);
+                w.write("{\"ph\":\""); //$NON-NLS-1$
+                w.write(phase[i]);
+                w.write("\",\"name\":"); //$NON-NLS-1$
+                writeJsonString(w, name[i]);
+                w.write(",\"cat\":"); //$NON-NLS-1$
+                writeJsonString(w, category[i]);
+                w.write(",\"pid\":0,\"tid\":"); //$NON-NLS-1$
+                w.write(String.valueOf(threadId[i]));
+                w.write(",\"ts\":"); //$NON-NLS-1$
+                w.write(String.valueOf(timestamp[i] / 1000L));
+                w.write(",\"args\":{"); //$NON-NLS-1$
+                if (phase[i] == PHASE_BEGIN) {
+                    w.write("\"id\":"); //$NON-NLS-1$
+                    writeJsonString(w, toRefName(ref[i]));
+                    w.write(",\"path\":\""); //$NON-NLS-1$
+                    w.write(Integer.toHexString(pathHash[i]));
+                    w.write("\""); //$NON-NLS-1$
+                } else {
+                    w.write("\"bytes\":"); //$NON-NLS-1$
+                    w.write(String.valueOf(bytes[i]));
+                }
+                w.write("}}"); //$NON-NLS-1$
+                threads.put(Long.valueOf(threadId[i]), threadName[i]);
+            }
+
+            // Thread names metadata
+            for (Map.Entry<Long, String> thread : threads.entrySet()) {
+                w.write(","); //$NON-NLS-1$
+                w.write(FileHelper.NEWLINE);
+                w.write("{\"ph\":\"M\",\"name\":\"thread_name\",\"pid\":0,\"tid\":"); //$NON-NLS-1$
+                w.write(String.valueOf(thread.getKey()));
+                w.write(",\"args\":{\"name\":"); //$NON-NLS-1$
+                writeJsonString(w, thread.getValue());
+                w.write("}}"); //$NON-NLS-1$
+            }
+            w.write(FileHelper.NEWLINE);
+            w.write("]}"); //$NON-NLS-1$
+            w.write(FileHelper.NEWLINE);
+        } finally {
+            try {
+                w.close();
+            } catch (Throwable ex) {/**NON BLOCK**/}
+        }
+        Log.i(TAG, String.format("Exported %d trace events to %s", //$NON-NLS-1$
+                Integer.valueOf(cc), file));
+        return cc;
+    }
+
+    /**
+     * Method that resolves the name of reference of an event.
+     *
+     * @param ref The reference
+     * @return String The name of the reference
+     */
+    private static String toRefName(Object ref) {
+        if (ref == null) {
+            return ""; //$NON-NLS-1$
+        }
+        if (ref instanceof Class<?>) {
+            return ((Class<?>)ref).getSimpleName();
+        }
+        return String.valueOf(ref);
+    }
+
+    /**
+     * Method that writes a json string value.
+     *
+     * @param w The writer
+     * @param s The string
+     * @throws IOException If the string can't be written
+     */
+    private static void writeJsonString(Writer w, String s) throws IOException {
+        w.write('"');
+        if (s != null) {
+            int cc = s.length();
+            for (int i = 0; i < cc; i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') {
+                    w.write('\\');
+                    w.write(c);
+                } else if (c < 0x20) {
+                    w.write(String.format("\\u%04x", Integer.valueOf(c))); //$NON-NLS-1$
+                } else {
+                    w.write(c);
+                }
+            }
+        }
+        w.write('"');
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import java.io.File;
+
+/**
+ * A class for measure the progress of a copy or move operation that doesn't report its
+ * progress (the operations executed by a shell), polling the size of the destinations.<br/>
+ * <br/>
+ * The measure of the destinations is throttled like the notifications of the tracker (the
+ * time spent measuring is never more than a fixed fraction of the time of the operation).
+ */
+public class TransferPoller implements Runnable {
+
+    // The minimum time between measures
+    private static final long POLL_INTERVAL = 1000L;
+
+    private final ProgressTracker mTracker;
+    private final File[] mDsts;
+    private final long mBaseBytes;
+    private final int mBaseFiles;
+    private long mInitialBytes;
+    private int mInitialFiles;
+
+    private Thread mThread;
+    private volatile boolean mStopped;
+
+    /**
+     * Constructor of <code>TransferPoller</code>.
+     *
+     * @param tracker The tracker where to report the progress
+     * @param dsts The absolute paths of the destination files or folders
+     */
+    public TransferPoller(ProgressTracker tracker, String[] dsts) {
+        super();
+        this.mTracker = tracker;
+        this.mDsts = new File[dsts.length];
+        for (int i = 0; i < dsts.length; i++) {
+            this.mDsts[i] = new File(dsts[i]);
+        }
+        // The progress of previous operations of the same tracker
+        this.mBaseBytes = tracker.getBytesDone();
+        this.mBaseFiles = tracker.getFilesDone();
+        this.mStopped = false;
+    }
+
+    /**
+     * Method that starts the polling. The content that the destinations already have is
+     * measured first, to not count it as transferred.
+     */
+    public void start() {
+        long[] size = measure();
+        this.mInitialBytes = size[0];
+        this.mInitialFiles = (int)size[1];
+        this.mThread = new Thread(this, "TransferPoller"); //$NON-NLS-1$
+        this.mThread.setDaemon(true);
+        this.mThread.start();
+    }
+
+    /**
+     * Method that stops the polling, and reports the last measure.
+     */
+    public void stop() {
+        this.mStopped = true;
+        if (this.mThread != null) {
+            this.mThread.interrupt();
+            try {
+                this.mThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        report(measure());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+        while (!this.mStopped) {
+            long start = System.currentTimeMillis();
+            long[] size = measure();
+            long cost = System.currentTimeMillis() - start;
+            if (this.mStopped) {
+                break;
+            }
+            report(size);
+            try {
+                Thread.sleep(Math.min(ProgressTracker.MAX_INTERVAL,
+                        Math.max(POLL_INTERVAL, cost * ProgressTracker.MAX_COST_RATIO)));
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Method that measures the destinations.
+     *
+     * @return long[] The size (bytes and files) of the destinations
+     */
+    private long[] measure() {
+        long[] size = new long[2];
+        for (int i = 0; i < this.mDsts.length; i++) {
+            ProgressTracker.measure(this.mDsts[i], size);
+        }
+        return size;
+    }
+
+    /**
+     * Method that reports a measure to the tracker.
+     *
+     * @param size The size (bytes and files) of the destinations
+     */
+    private void report(long[] size) {
+        this.mTracker.setDone(
+                this.mBaseBytes + Math.max(0, size[0] - this.mInitialBytes),
+                this.mBaseFiles + Math.max(0, (int)size[1] - this.mInitialFiles));
+    }
+}
@@ -0,0 +1,544 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.console.ExecutionException;
+import com.cyanogenmod.filemanager.console.InsufficientPermissionsException;
+import com.cyanogenmod.filemanager.console.NoSuchFileOrDirectory;
+import com.cyanogenmod.filemanager.console.ReadOnlyFilesystemException;
+import com.cyanogenmod.filemanager.model.MountPoint;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A class for copy a tree of folders and files in parallel.<br/>
+ * <br/>
+ * The copy is done in two phases. First, the source tree is walked and the folder skeleton
+ * is created in the destination. Then the files are copied by a bounded pool of workers
+ * (see {@link FileHelper#channelCopy(File, File, int)}), so the copy of many small files is
+ * not bounded by the latency of every file. The number of workers depends on the source and
+ * destination filesystems (the filesystems of the external storages and the fuse daemons
+ * don't get any benefit of the concurrency).<br/>
+ * <br/>
+ * The symbolic links are not followed, but created again as links in the destination (the
+ * link of a file is copied as a file if the destination doesn't allow to create it).<br/>
+ * <br/>
+ * When a copy fails, no more files are copied and the failure of the first file (in the
+ * order of the source tree, not the first in time) is reported. The copy can be cancelled
+ * with {@link #cancel()} or interrupting the thread that calls {@link #copy()}.<br/>
+ * <br/>
+ * In move mode (see {@link #setMoveMode(boolean)}) every source file is deleted as soon as
+ * its copy (and the entry of the copy in its folder) is synced to the storage, and the source
+ * folders are deleted once they are empty. The symbolic links are moved as links (never the
+ * files that they reference, like {@link TreeDeleter} does).
+ * The extra space needed by the move is bounded by the files being copied at a time (not by
+ * the whole tree), and an interrupted move never loses data: every file is in the source,
+ * in the destination or in both.
+ */
+public class TreeCopier {
+
+    private static final String TAG = "TreeCopier"; //$NON-NLS-1$
+
+    // The filesystems that don't get any benefit of concurrent copies
+    private static final String[] SERIAL_FS_TYPES =
+        {
+         "fuse", "sdcardfs", "vfat", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+         "exfat", "texfat", "ntfs" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        };
+    private static final int SERIAL_FS_PARALLELISM = 2;
+    private static final int MAX_PARALLELISM = 4;
+
+    private final File mSrc;
+    private final File mDst;
+    private final int mBufferSize;
+
+    private ProgressTracker mTracker;
+    private boolean mMove;
+    private volatile boolean mCancelled;
+
+    // The files to copy (in the order of the source tree)
+    private final List<File> mSrcFiles = new ArrayList<File>();
+    private final List<File> mDstFiles = new ArrayList<File>();
+    // The folders created (parents before children)
+    private final List<File> mSrcFolders = new ArrayList<File>();
+    private final List<File> mDstFolders = new ArrayList<File>();
+
+    private final AtomicInteger mNext = new AtomicInteger();
+    private int mFailureIndex;
+    private Exception mFailure;
+
+    /**
+     * Constructor of <code>TreeCopier</code>.
+     *
+     * @param src The source file or folder
+     * @param dst The destination file or folder
+     * @param bufferSize The buffer size for the operation
+     */
+    public TreeCopier(File src, File dst, int bufferSize) {
+        super();
+        this.mSrc = src;
+        this.mDst = dst;
+        this.mBufferSize = bufferSize;
+        this.mCancelled = false;
+    }
+
+    /**
+     * Method that sets the tracker where to report the progress of the copy.
+     *
+     * @param tracker The progress tracker, or null to not report the progress
+     */
+    public void setProgressTracker(ProgressTracker tracker) {
+        this.mTracker = tracker;
+    }
+
+    /**
+     * Method that sets if the source files must be deleted once copied (a move between
+     * filesystems).
+     *
+     * @param move If the source files must be deleted once copied
+     */
+    public void setMoveMode(boolean move) {
+        this.mMove = move;
+    }
+
+    /**
+     * Method that cancels the copy. The files being copied are finished.
+     */
+    public void cancel() {
+        this.mCancelled = true;
+    }
+
+    /**
+     * Method that returns if the copy was cancelled.
+     *
+     * @return boolean If the copy was cancelled
+     */
+    public boolean isCancelled() {
+        return this.mCancelled;
+    }
+
+    /**
+     * Method that copies (or moves) the tree.
+     *
+     * @return boolean If the copy was completed (false if was cancelled)
+     * @throws NoSuchFileOrDirectory If a source file disappeared during the operation
+     * @throws InsufficientPermissionsException If a file or folder can't be read or written
+     * @throws ReadOnlyFilesystemException If the destination filesystem is read-only
+     * @throws ExecutionException If a problem was detected in the operation
+     */
+    public boolean copy()
+            throws NoSuchFileOrDirectory, InsufficientPermissionsException,
+            ReadOnlyFilesystemException, ExecutionException {
+        if (this.mMove && FileHelper.isLink(this.mSrc)) {
+            // Move the link, not what it references
+            copyLink(this.mSrc, this.mDst);
+            return true;
+        }
+        if (!this.mSrc.isDirectory()) {
+            copyFile(this.mSrc, this.mDst);
+            return true;
+        }
+
+        // Create the skeleton
+        try {
+            createSkeleton(this.mSrc, this.mDst);
+        } catch (ExecutionException e) {
+            deleteEmptySourceFolders();
+            throw e;
+        } catch (InsufficientPermissionsException e) {
+            deleteEmptySourceFolders();
+            throw e;
+        }
+        if (checkCancelled()) {
+            deleteEmptySourceFolders();
+            return false;
+        }
+
+        // Copy the files
+        int parallelism = Math.min(
+                Math.min(getParallelism(this.mSrc), getParallelism(this.mDst)),
+                Math.max(1, this.mSrcFiles.size()));
+        this.mFailureIndex = Integer.MAX_VALUE;
+        this.mFailure = null;
+        Thread[] threads = new Thread[parallelism - 1];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    copyFiles();
+                }
+            }, TAG + "#" + (i + 1)); //$NON-NLS-1$
+            threads[i].start();
+        }
+        copyFiles();
+        boolean interrupted = false;
+        for (int i = 0; i < threads.length; i++) {
+            while (threads[i].isAlive()) {
+                try {
+                    threads[i].join();
+                } catch (InterruptedException e) {
+                    // Wait for the files being copied
+                    this.mCancelled = true;
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (this.mFailure != null || checkCancelled()) {
+            deleteEmptySourceFolders();
+            throwFailure();
+            return false;
+        }
+
+        // Preserve the attributes of the folders (children before parents, because
+        // the copy of the children changes the modification time of the parents)
+        for (int i = this.mSrcFolders.size() - 1; i >= 0; i--) {
+            FileHelper.preserveAttributes(this.mSrcFolders.get(i), this.mDstFolders.get(i));
+        }
+        deleteEmptySourceFolders();
+        return true;
+    }
+
+    /**
+     * Method that copies a file. In move mode, the copy and its folder are synced to the
+     * storage and then the source file is deleted.
+     *
+     * @param src The source file
+     * @param dst The destination file
+     * @throws NoSuchFileOrDirectory If the source file disappeared during the operation
+     * @throws InsufficientPermissionsException If a file can't be read or written
+     * @throws ReadOnlyFilesystemException If the destination filesystem is read-only
+     * @throws ExecutionException If a problem was detected in the operation
+     */
+    private void copyFile(File src, File dst)
+            throws NoSuchFileOrDirectory, InsufficientPermissionsException,
+            ReadOnlyFilesystemException, ExecutionException {
+        FileHelper.channelCopy(src, dst, this.mBufferSize, this.mTracker);
+        if (!this.mMove) {
+            return;
+        }
+        try {
+            FileHelper.syncFile(dst);
+        } catch (IOException e) {
+            // Don't delete a source whose copy isn't in the storage
+            Log.e(TAG, String.format("Failed to sync %s", dst), e); //$NON-NLS-1$
+            throw new ExecutionException(String.valueOf(e.getMessage()), e);
+        }
+        deleteMovedSource(src, dst);
+    }
+
+    /**
+     * Method that deletes a moved source once the entry of its copy is synced to the
+     * storage (a crash could lose the copy if its folder is not synced).
+     *
+     * @param src The source file or link
+     * @param dst The destination file or link
+     * @throws ExecutionException If the folder of the destination can't be synced
+     */
+    private static void deleteMovedSource(File src, File dst) throws ExecutionException {
+        try {
+            FileHelper.syncFolder(dst.getAbsoluteFile().getParentFile());
+        } catch (IOException e) {
+            Log.e(TAG, String.format("Failed to sync the folder of %s", dst), e); //$NON-NLS-1$
+            throw new ExecutionException(String.valueOf(e.getMessage()), e);
+        }
+        if (!src.delete()) {
+            Log.w(TAG, String.format("Failed to delete the source %s", src)); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Method that deletes the source folders that are empty in move mode (children before
+     * parents). Only the folders whose destination was created are deleted.
+     */
+    private void deleteEmptySourceFolders() {
+        if (!this.mMove) {
+            return;
+        }
+        for (int i = this.mSrcFolders.size() - 1; i >= 0; i--) {
+            File folder = this.mSrcFolders.get(i);
+            String[] children = folder.list();
+            if (children != null && children.length == 0 && !folder.delete()) {
+                Log.w(TAG, String.format("Failed to delete the source %s", folder)); //$NON-NLS-1$
+            }
+        }
+    }
+
+    /**
+     * Method that walks the source tree, creates the folders and the symbolic links in the
+     * destination, and collects the files to copy. The links are not followed, so every
+     * folder is copied once by every path of the tree that reaches it.
+     *
+     * @param src The source folder
+     * @param dst The destination folder
+     * @throws InsufficientPermissionsException If a folder can't be created
+     * @throws ExecutionException If the destination exists and is not a folder
+     */
+    private void createSkeleton(File src, File dst)
+            throws InsufficientPermissionsException, ExecutionException {
+        createFolder(src, dst);
+
+        // A single worker, so the folders are created in the order of the source tree
+        final Map<File, File> dstFolders = new HashMap<File, File>();
+        dstFolders.put(src, dst);
+        final Exception[] failure = new Exception[1];
+        ParallelTreeWalker walker = new ParallelTreeWalker(1) {
+            @Override
+            protected boolean onVisit(int worker, File file, boolean isDirectory) {
+                File d = new File(dstFolders.get(file.getParentFile()), file.getName());
+                if (!isDirectory && FileHelper.isLink(file)) {
+                    try {
+                        if (!copyLink(file, d)) {
+                            // Copy the file that the link references
+                            if (!file.isFile()) {
+                                throw new ExecutionException(String.format(
+                                        "can't create the link %s", d)); //$NON-NLS-1$
+                            }
+                            TreeCopier.this.mSrcFiles.add(file);
+                            TreeCopier.this.mDstFiles.add(d);
+                        }
+                    } catch (Exception e) {
+                        failure[0] = e;
+                        stop();
+                    }
+                    return false;
+                }
+                if (!isDirectory) {
+                    TreeCopier.this.mSrcFiles.add(file);
+                    TreeCopier.this.mDstFiles.add(d);
+                    return false;
+                }
+                try {
+                    createFolder(file, d);
+                } catch (Exception e) {
+                    failure[0] = e;
+                    stop();
+                    return false;
+                }
+                dstFolders.put(file, d);
+                return true;
+            }
+
+            @Override
+            public boolean isStopped() {
+                return super.isStopped() || checkCancelled();
+            }
+        };
+        walker.setFollowSymlinks(false);
+        walker.walk(src);
+        if (failure[0] instanceof InsufficientPermissionsException) {
+            throw (InsufficientPermissionsException)failure[0];
+        }
+        if (failure[0] != null) {
+            throw (ExecutionException)failure[0];
+        }
+    }
+
+    /**
+     * Method that creates a symbolic link of the source in the destination, with the
+     * same target. In move mode, the source link is deleted once the destination is synced.
+     *
+     * @param src The source link
+     * @param dst The destination link
+     * @return boolean If the link was created (false if the platform or the destination
+     * don't allow it; never in move mode)
+     * @throws InsufficientPermissionsException If the destination can't be replaced
+     * @throws ExecutionException If the destination exists and is a folder, or the link
+     * can't be moved
+     */
+    boolean copyLink(File src, File dst)
+            throws InsufficientPermissionsException, ExecutionException {
+        String target = FileHelper.readLink(src);
+        if (target == null) {
+            return linkNotCreated(dst);
+        }
+        boolean isLink = FileHelper.isLink(dst);
+        if (!isLink && dst.isDirectory()) {
+            Log.e(TAG, String.format("Failed to check destination link: %s", dst)); //$NON-NLS-1$
+            throw new ExecutionException("the path exists but is a folder"); //$NON-NLS-1$
+        }
+        if ((isLink || dst.exists()) && !dst.delete()) {
+            Log.e(TAG, String.format("Failed to replace: %s", dst)); //$NON-NLS-1$
+            throw new InsufficientPermissionsException();
+        }
+        if (!Archiver.symlink(target, dst)) {
+            Log.w(TAG, String.format("Failed to create the link: %s", dst)); //$NON-NLS-1$
+            return linkNotCreated(dst);
+        }
+        if (this.mMove) {
+            deleteMovedSource(src, dst);
+        }
+        return true;
+    }
+
+    /**
+     * Method invoked when a link can't be created in the destination. A link can't be
+     * moved as what it references (it would delete the referenced files).
+     *
+     * @param dst The destination link
+     * @return boolean Always false (the link must be copied in other way)
+     * @throws ExecutionException In move mode
+     */
+    private boolean linkNotCreated(File dst) throws ExecutionException {
+        if (this.mMove) {
+            throw new ExecutionException(
+                    String.format("can't create the link %s", dst)); //$NON-NLS-1$
+        }
+        return false;
+    }
+
+    /**
+     * Method that creates a folder of the destination.
+     *
+     * @param src The source folder
+     * @param dst The destination folder
+     * @throws InsufficientPermissionsException If the folder can't be created
+     * @throws ExecutionException If the destination exists and is not a folder
+     */
+    void createFolder(File src, File dst)
+            throws InsufficientPermissionsException, ExecutionException {
+        if (dst.exists() && !dst.isDirectory()) {
+            Log.e(TAG,
+                    String.format("Failed to check destionation dir: %s", dst)); //$NON-NLS-1$
+            throw new ExecutionException("the path exists but is not a folder"); //$NON-NLS-1$
+        }
+        if (!dst.exists()) {
+            if (!dst.mkdir()) {
+                Log.e(TAG, String.format("Failed to create directory: %s", dst)); //$NON-NLS-1$
+                throw new InsufficientPermissionsException();
+            }
+        }
+        this.mSrcFolders.add(src);
+        this.mDstFolders.add(dst);
+    }
+
+    /**
+     * Method that copies the pending files until there is no more files, the copy
+     * was cancelled or a copy fails.
+     */
+    void copyFiles() {
+        int cc = this.mSrcFiles.size();
+        while (!this.mCancelled) {
+            if (Thread.currentThread().isInterrupted()) {
+                this.mCancelled = true;
+                break;
+            }
+            int i = this.mNext.getAndIncrement();
+            if (i >= cc) {
+                break;
+            }
+            try {
+                copyFile(this.mSrcFiles.get(i), this.mDstFiles.get(i));
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    // The copy was interrupted, not failed
+                    this.mCancelled = true;
+                    break;
+                }
+                synchronized (this) {
+                    if (i < this.mFailureIndex) {
+                        this.mFailureIndex = i;
+                        this.mFailure = e;
+                    }
+                }
+                break;
+            }
+            synchronized (this) {
+                if (this.mFailure != null) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Method that throws the failure of the first file (in the order of the tree)
+     * that couldn't be copied.
+     *
+     * @throws NoSuchFileOrDirectory If a source file disappeared during the operation
+     * @throws InsufficientPermissionsException If a file can't be read or written
+     * @throws ReadOnlyFilesystemException If the destination filesystem is read-only
+     * @throws ExecutionException If a problem was detected in the operation
+     */
+    private synchronized void throwFailure()
+            throws NoSuchFileOrDirectory, InsufficientPermissionsException,
+            ReadOnlyFilesystemException, ExecutionException {
+        Exception failure = this.mFailure;
+        if (failure == null) {
+            return;
+        }
+        Log.e(TAG, String.format("Failed to copy %s", //$NON-NLS-1$
+                this.mSrcFiles.get(this.mFailureIndex)), failure);
+        if (failure instanceof NoSuchFileOrDirectory) {
+            throw (NoSuchFileOrDirectory)failure;
+        }
+        if (failure instanceof InsufficientPermissionsException) {
+            throw (InsufficientPermissionsException)failure;
+        }
+        if (failure instanceof ReadOnlyFilesystemException) {
+            throw (ReadOnlyFilesystemException)failure;
+        }
+        if (failure instanceof ExecutionException) {
+            throw (ExecutionException)failure;
+        }
+        throw new ExecutionException(String.valueOf(failure.getMessage()), failure);
+    }
+
+    /**
+     * Method that checks if the copy was cancelled (or the current thread was interrupted).
+     *
+     * @return boolean If the copy was cancelled
+     */
+    boolean checkCancelled() {
+        if (Thread.interrupted()) {
+            this.mCancelled = true;
+            Thread.currentThread().interrupt();
+        }
+        return this.mCancelled;
+    }
+
+    /**
+     * Method that returns the number of concurrent copies that accepts a filesystem.
+     *
+     * @param file The file or folder
+     * @return int The number of concurrent copies
+     */
+    private static int getParallelism(File file) {
+        int parallelism =
+                Math.min(MAX_PARALLELISM, Runtime.getRuntime().availableProcessors());
+        MountPoint mp = MountPointHelper.getMountPointFromDirectory(file.getAbsolutePath());
+        if (mp == null) {
+            return Math.min(SERIAL_FS_PARALLELISM, parallelism);
+        }
+        for (int i = 0; i < SERIAL_FS_TYPES.length; i++) {
+            if (SERIAL_FS_TYPES[i].compareTo(mp.getType()) == 0) {
+                return Math.min(SERIAL_FS_PARALLELISM, parallelism);
+            }
+        }
+        return parallelism;
+    }
+}
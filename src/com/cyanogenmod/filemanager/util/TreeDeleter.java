@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A class for delete a tree of folders and files in parallel.<br/>
+ * <br/>
+ * The tree is listed once (in parallel, see {@link ParallelTreeWalker}). Then the files
+ * are deleted by a bounded pool of workers, and finally the folders are deleted bottom-up
+ * (children before parents). The symbolic links to folders are deleted, but never
+ * followed.<br/>
+ * <br/>
+ * A file that can't be deleted doesn't stop the operation: the failures are collected
+ * (see {@link #getFailures()}) and the rest of the tree is deleted. The progress (the files
+ * deleted per second) is reported to a {@link ProgressTracker}, and the operation can be
+ * cancelled with {@link #cancel()} or interrupting the thread that calls {@link #delete()}.
+ */
+public class TreeDeleter {
+
+    private static final String TAG = "TreeDeleter"; //$NON-NLS-1$
+
+    /**
+     * The maximum number of concurrent workers.
+     */
+    public static final int MAX_PARALLELISM = 4;
+
+    private static final String FAILED_TO_DELETE = "Failed to delete"; //$NON-NLS-1$
+
+    private final File mRoot;
+    private final int mParallelism;
+
+    private ProgressTracker mTracker;
+    private volatile boolean mCancelled;
+
+    // The files and folders to delete
+    private final List<File> mFiles = new ArrayList<File>();
+    private final List<File> mFolders = new ArrayList<File>();
+    private final AtomicInteger mNext = new AtomicInteger();
+    private final Map<String, String> mFailures = new LinkedHashMap<String, String>();
+
+    /**
+     * Constructor of <code>TreeDeleter</code>.
+     *
+     * @param root The folder to delete
+     */
+    public TreeDeleter(File root) {
+        this(root, Math.min(MAX_PARALLELISM, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Constructor of <code>TreeDeleter</code>.
+     *
+     * @param root The folder to delete
+     * @param parallelism The number of concurrent workers
+     */
+    public TreeDeleter(File root, int parallelism) {
+        super();
+        this.mRoot = root;
+        this.mParallelism = Math.max(1, parallelism);
+        this.mCancelled = false;
+    }
+
+    /**
+     * Method that sets the tracker where to report the progress of the delete (the
+     * files and folders found are added to the total of the tracker).
+     *
+     * @param tracker The progress tracker, or null to not report the progress
+     */
+    public void setProgressTracker(ProgressTracker tracker) {
+        this.mTracker = tracker;
+    }
+
+    /**
+     * Method that cancels the delete. The files being deleted are finished.
+     */
+    public void cancel() {
+        this.mCancelled = true;
+    }
+
+    /**
+     * Method that returns if the delete was cancelled.
+     *
+     * @return boolean If the delete was cancelled
+     */
+    public boolean isCancelled() {
+        return this.mCancelled;
+    }
+
+    /**
+     * Method that returns the files and folders that couldn't be deleted.
+     *
+     * @return Map<String, String> The paths that couldn't be deleted, with the reason
+     * of the failure
+     */
+    public synchronized Map<String, String> getFailures() {
+        return new LinkedHashMap<String, String>(this.mFailures);
+    }
+
+    /**
+     * Method that deletes the tree (the root folder included).
+     *
+     * @return boolean If the tree was deleted completely (false if was cancelled or
+     * some file or folder couldn't be deleted)
+     */
+    public boolean delete() {
+        // A link to a folder is deleted, not its target
+        if (FileHelper.isLink(this.mRoot)) {
+            if (!this.mRoot.delete()) {
+                addFailure(this.mRoot);
+                return false;
+            }
+            return true;
+        }
+
+        // List the tree once
+        if (!list()) {
+            return false;
+        }
+        if (this.mTracker != null) {
+            // The files, the folders and the root folder
+            this.mTracker.addFilesTotal(this.mFiles.size() + this.mFolders.size() + 1);
+        }
+
+        // Delete the files
+        int parallelism = Math.min(this.mParallelism, Math.max(1, this.mFiles.size()));
+        Thread[] threads = new Thread[parallelism - 1];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    deleteFiles();
+                }
+            }, TAG + "#" + (i + 1)); //$NON-NLS-1$
+            threads[i].start();
+        }
+        deleteFiles();
+        boolean interrupted = false;
+        for (int i = 0; i < threads.length; i++) {
+            while (threads[i].isAlive()) {
+                try {
+                    threads[i].join();
+                } catch (InterruptedException e) {
+                    // Wait for the files being deleted
+                    this.mCancelled = true;
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (checkCancelled()) {
+            return false;
+        }
+
+        // Delete the folders bottom-up (a child path is always longer than its parent)
+        Collections.sort(this.mFolders, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                return rhs.getPath().length() - lhs.getPath().length();
+            }
+        });
+        this.mFolders.add(this.mRoot);
+        int cc = this.mFolders.size();
+        for (int i = 0; i < cc; i++) {
+            if (checkCancelled()) {
+                return false;
+            }
+            File folder = this.mFolders.get(i);
+            if (folder.delete()) {
+                if (this.mTracker != null) {
+                    this.mTracker.addFile();
+                }
+                continue;
+            }
+            // Only report the folders that are empty (a folder with a child that
+            // couldn't be deleted is not a new failure)
+            String[] children = folder.list();
+            if (children != null && children.length == 0) {
+                addFailure(folder);
+            }
+        }
+        synchronized (this) {
+            if (this.mFailures.isEmpty() && this.mRoot.exists()) {
+                // New files were created while deleting
+                addFailure(this.mRoot);
+            }
+            return this.mFailures.isEmpty();
+        }
+    }
+
+    /**
+     * Method that lists the files and folders of the tree.
+     *
+     * @return boolean If the tree was listed (false if the delete was cancelled)
+     */
+    private boolean list() {
+        final int parallelism = this.mParallelism;
+        final List<List<File>> files = new ArrayList<List<File>>(parallelism);
+        final List<List<File>> folders = new ArrayList<List<File>>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            files.add(new ArrayList<File>());
+            folders.add(new ArrayList<File>());
+        }
+        ParallelTreeWalker walker = new ParallelTreeWalker(parallelism) {
+            @Override
+            protected boolean onVisit(int worker, File file, boolean isDirectory) {
+                if (isDirectory) {
+                    folders.get(worker).add(file);
+                    return true;
+                }
+                // A file or a symlink (the link is deleted, not the target)
+                files.get(worker).add(file);
+                return false;
+            }
+
+            @Override
+            public boolean isStopped() {
+                return super.isStopped() || checkCancelled();
+            }
+        };
+        walker.setFollowSymlinks(false);
+        walker.walk(this.mRoot);
+        if (checkCancelled()) {
+            return false;
+        }
+        for (int i = 0; i < parallelism; i++) {
+            this.mFiles.addAll(files.get(i));
+            this.mFolders.addAll(folders.get(i));
+        }
+        return true;
+    }
+
+    /**
+     * Method that deletes the pending files until there is no more files or the delete
+     * was cancelled.
+     */
+    void deleteFiles() {
+        int cc = this.mFiles.size();
+        while (!this.mCancelled) {
+            if (Thread.currentThread().isInterrupted()) {
+                this.mCancelled = true;
+                break;
+            }
+            int i = this.mNext.getAndIncrement();
+            if (i >= cc) {
+                break;
+            }
+            File file = this.mFiles.get(i);
+            if (!file.delete() && file.exists()) {
+                addFailure(file);
+            } else if (this.mTracker != null) {
+                this.mTracker.addFile();
+            }
+        }
+    }
+
+    /**
+     * Method that records a file or folder that couldn't be deleted.
+     *
+     * @param file The file or folder
+     */
+    private synchronized void addFailure(File file) {
+        Log.w(TAG, String.format("Failed to delete %s", file)); //$NON-NLS-1$
+        this.mFailures.put(file.getAbsolutePath(), FAILED_TO_DELETE);
+    }
+
+    /**
+     * Method that checks if the delete was cancelled (or the current thread was
+     * interrupted).
+     *
+     * @return boolean If the delete was cancelled
+     */
+    boolean checkCancelled() {
+        if (Thread.interrupted()) {
+            this.mCancelled = true;
+            Thread.currentThread().interrupt();
+        }
+        return this.mCancelled;
+    }
+}
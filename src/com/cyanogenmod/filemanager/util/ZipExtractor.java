@@ -0,0 +1,690 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cyanogenmod.filemanager.util;
+
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * A class for extract zip archives in parallel.<br/>
+ * <br/>
+ * The central directory of the archive is read once, the folders of the entries are created
+ * up front and then the entries are inflated concurrently by a bounded number of threads. Every
+ * thread reads the archive through its own random access file, so the threads don't share any
+ * file position. The progress is reported in uncompressed bytes.<br/>
+ * <br/>
+ * Zip64 archives are supported. Encrypted entries and compression methods other than stored
+ * and deflated are not.
+ */
+public class ZipExtractor {
+
+    private static final String TAG = "ZipExtractor"; //$NON-NLS-1$
+
+    /**
+     * The maximum number of threads that extract the entries (the flash storage doesn't
+     * scale beyond a few concurrent writers).
+     */
+    public static final int MAX_PARALLELISM = 4;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+    private static final int END_SIG = 0x06054b50;
+    private static final int ZIP64_END_SIG = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int END_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xffff;
+
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int FLAG_ENCRYPTED = 1;
+    private static final int MADE_BY_UNIX = 3;
+    private static final int S_IFMT = 0170000;
+    private static final int S_IFLNK = 0120000;
+
+    // The names are decoded as UTF-8, as the platform ZipFile does
+    private static final Charset UTF8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+    // An entry of the central directory
+    static class Entry {
+        String mName;
+        int mMethod;
+        int mFlags;
+        int mCrc;
+        long mCompressedSize;
+        long mSize;
+        long mOffset;
+        long mTime;
+        int mMode;
+
+        boolean isDirectory() {
+            return this.mName.endsWith("/"); //$NON-NLS-1$
+        }
+
+        boolean isSymlink() {
+            return (this.mMode & S_IFMT) == S_IFLNK;
+        }
+    }
+
+    private final File mSrc;
+    private final File mDst;
+    private final int mParallelism;
+    private ProgressTracker mTracker;
+    private Archiver.OnEntryListener mListener;
+    private volatile boolean mCancelled;
+
+    private List<Entry> mFiles;
+    private Map<Entry, File> mTargets;
+    private final AtomicInteger mNext = new AtomicInteger();
+    private IOException mFailure;
+
+    /**
+     * Constructor of <code>ZipExtractor</code>.
+     *
+     * @param src The zip archive
+     * @param dst The destination folder
+     */
+    public ZipExtractor(File src, File dst) {
+        this(src, dst, Math.min(MAX_PARALLELISM, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Constructor of <code>ZipExtractor</code>.
+     *
+     * @param src The zip archive
+     * @param dst The destination folder
+     * @param parallelism The number of threads that extract the entries
+     */
+    public ZipExtractor(File src, File dst, int parallelism) {
+        super();
+        this.mSrc = src;
+        this.mDst = dst;
+        this.mParallelism = Math.max(1, parallelism);
+        this.mCancelled = false;
+    }
+
+    /**
+     * Method that sets the tracker where the progress is reported. The totals of the tracker
+     * are set to the uncompressed size and the number of files of the archive.
+     *
+     * @param tracker The progress tracker, or null to not report the progress
+     */
+    public void setProgressTracker(ProgressTracker tracker) {
+        this.mTracker = tracker;
+    }
+
+    /**
+     * Method that sets the listener of the entries extracted.
+     *
+     * @param listener The listener, or null
+     */
+    public void setOnEntryListener(Archiver.OnEntryListener listener) {
+        this.mListener = listener;
+    }
+
+    /**
+     * Method that cancels the extraction.
+     */
+    public void cancel() {
+        this.mCancelled = true;
+    }
+
+    /**
+     * Method that returns if the extraction was cancelled.
+     *
+     * @return boolean If the extraction was cancelled
+     */
+    public boolean isCancelled() {
+        return this.mCancelled;
+    }
+
+    /**
+     * Method that extracts the archive.
+     *
+     * @return boolean If the archive was extracted (false if the extraction was cancelled)
+     * @throws IOException If the archive can't be extracted
+     */
+    public boolean extract() throws IOException {
+        List<Entry> entries = readCentralDirectory(this.mSrc);
+        if (!this.mDst.isDirectory() && !this.mDst.mkdirs()) {
+            throw new IOException("can't create the folder " + this.mDst); //$NON-NLS-1$
+        }
+
+        // Create the folders up front, so the threads only create files
+        String root = this.mDst.getCanonicalPath();
+        List<Entry> folders = new ArrayList<Entry>();
+        List<File> folderFiles = new ArrayList<File>();
+        List<Entry> files = new ArrayList<Entry>(entries.size());
+        final Map<Entry, File> targets = new HashMap<Entry, File>(entries.size() * 2);
+        Set<File> created = new HashSet<File>();
+        long bytes = 0;
+        for (Entry entry : entries) {
+            if (this.mCancelled) {
+                return false;
+            }
+            File file = Archiver.resolveEntry(root, entry.mName);
+            if (file == null) {
+                continue;
+            }
+            if (entry.isDirectory()) {
+                if (created.add(file)) {
+                    file.mkdirs();
+                }
+                folders.add(entry);
+                folderFiles.add(file);
+            } else {
+                File parent = file.getParentFile();
+                if (created.add(parent)) {
+                    parent.mkdirs();
+                }
+                files.add(entry);
+                targets.put(entry, file);
+                bytes += entry.mSize;
+            }
+        }
+        if (this.mTracker != null) {
+            this.mTracker.setTotal(bytes, files.size());
+        }
+
+        // Read the archive in order
+        Collections.sort(files, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry lhs, Entry rhs) {
+                return lhs.mOffset < rhs.mOffset ? -1 : (lhs.mOffset == rhs.mOffset ? 0 : 1);
+            }
+        });
+        this.mFiles = files;
+        this.mTargets = targets;
+        this.mNext.set(0);
+
+        // The current thread is one of the workers
+        int parallelism = Math.max(1, Math.min(this.mParallelism, files.size()));
+        Thread[] threads = new Thread[parallelism - 1];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    work();
+                }
+            }, TAG + "-" + i); //$NON-NLS-1$
+            threads[i].start();
+        }
+        work();
+        boolean interrupted = false;
+        for (int i = 0; i < threads.length; i++) {
+            try {
+                threads[i].join();
+            } catch (InterruptedException ex) {
+                // Stop the workers and wait for them
+                this.mCancelled = true;
+                interrupted = true;
+                i--;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        this.mFiles = null;
+        this.mTargets = null;
+
+        synchronized (this) {
+            if (this.mFailure != null) {
+                throw this.mFailure;
+            }
+        }
+        if (this.mCancelled) {
+            return false;
+        }
+
+        // The time of the folders (the deepest first)
+        for (int i = folders.size() - 1; i >= 0; i--) {
+            Entry folder = folders.get(i);
+            if (folder.mTime > 0) {
+                folderFiles.get(i).setLastModified(folder.mTime);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method that extracts entries until there is no more entries or the extraction
+     * is cancelled or failed.
+     */
+    void work() {
+        RandomAccessFile raf = null;
+        Inflater inflater = new Inflater(true);
+        byte[] in = new byte[BUFFER_SIZE];
+        byte[] out = new byte[BUFFER_SIZE];
+        try {
+            raf = new RandomAccessFile(this.mSrc, "r"); //$NON-NLS-1$
+            while (!this.mCancelled && !isFailed()) {
+                int next = this.mNext.getAndIncrement();
+                if (next >= this.mFiles.size()) {
+                    break;
+                }
+                Entry entry = this.mFiles.get(next);
+                File file = this.mTargets.get(entry);
+                notifyEntry(entry.mName);
+                try {
+                    extractEntry(raf, inflater, entry, file, in, out);
+                } catch (IOException ex) {
+                    file.delete();
+                    throw ex;
+                }
+            }
+        } catch (InterruptedIOException ex) {
+            this.mCancelled = true;
+        } catch (IOException ex) {
+            setFailure(ex);
+        } catch (RuntimeException ex) {
+            IOException ioex = new IOException("Failed to extract the archive"); //$NON-NLS-1$
+            ioex.initCause(ex);
+            setFailure(ioex);
+        } finally {
+            inflater.end();
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (Throwable ex) {/**NON BLOCK**/}
+            }
+        }
+    }
+
+    /**
+     * Method that extracts an entry.
+     *
+     * @param raf The archive
+     * @param inflater The inflater of the thread
+     * @param entry The entry
+     * @param file The file to create
+     * @param in The buffer of the compressed data
+     * @param out The buffer of the uncompressed data
+     * @throws IOException If the entry can't be extracted
+     */
+    private void extractEntry(RandomAccessFile raf, Inflater inflater,
+            Entry entry, File file, byte[] in, byte[] out) throws IOException {
+        if ((entry.mFlags & FLAG_ENCRYPTED) != 0) {
+            throw new ZipException("encrypted entry: " + entry.mName); //$NON-NLS-1$
+        }
+        if (entry.mMethod != METHOD_STORED && entry.mMethod != METHOD_DEFLATED) {
+            throw new ZipException(String.format(
+                    "unsupported compression method %d: %s", //$NON-NLS-1$
+                    Integer.valueOf(entry.mMethod), entry.mName));
+        }
+
+        // The data is after the local header, which extra field may differ from the
+        // central directory
+        raf.seek(entry.mOffset);
+        raf.readFully(in, 0, LOCAL_HEADER_SIZE);
+        if (readInt(in, 0) != LOCAL_HEADER_SIG) {
+            throw new ZipException("invalid local header: " + entry.mName); //$NON-NLS-1$
+        }
+        long pos = entry.mOffset + LOCAL_HEADER_SIZE
+                + readShort(in, 26) + readShort(in, 28);
+        raf.seek(pos);
+
+        CRC32 crc = new CRC32();
+        long remaining = entry.mCompressedSize;
+        long written = 0;
+        FileOutputStream fos = null;
+        ByteArrayOutputStream link = entry.isSymlink() ? new ByteArrayOutputStream() : null;
+        try {
+            if (link == null) {
+                fos = new FileOutputStream(file);
+            }
+            if (entry.mMethod == METHOD_STORED) {
+                while (remaining > 0) {
+                    checkCancelled();
+                    int read = (int)Math.min(remaining, in.length);
+                    raf.readFully(in, 0, read);
+                    remaining -= read;
+                    crc.update(in, 0, read);
+                    written += read;
+                    write(fos, link, in, read);
+                }
+            } else {
+                inflater.reset();
+                boolean dummy = false;
+                while (!inflater.finished()) {
+                    if (inflater.needsInput()) {
+                        checkCancelled();
+                        if (remaining > 0) {
+                            int read = (int)Math.min(remaining, in.length);
+                            raf.readFully(in, 0, read);
+                            remaining -= read;
+                            inflater.setInput(in, 0, read);
+                        } else if (!dummy) {
+                            // The raw inflater may need an extra byte to detect the end
+                            in[0] = 0;
+                            inflater.setInput(in, 0, 1);
+                            dummy = true;
+                        } else {
+                            throw new EOFException("truncated entry: " + entry.mName); //$NON-NLS-1$
+                        }
+                    }
+                    int inflated;
+                    try {
+                        inflated = inflater.inflate(out);
+                    } catch (DataFormatException ex) {
+                        ZipException zex =
+                                new ZipException("invalid data: " + entry.mName); //$NON-NLS-1$
+                        zex.initCause(ex);
+                        throw zex;
+                    }
+                    if (inflated == 0 && inflater.needsDictionary()) {
+                        throw new ZipException("invalid data: " + entry.mName); //$NON-NLS-1$
+                    }
+                    crc.update(out, 0, inflated);
+                    written += inflated;
+                    write(fos, link, out, inflated);
+                }
+            }
+        } finally {
+            if (fos != null) {
+                fos.close();
+            }
+        }
+        if ((int)crc.getValue() != entry.mCrc || written != entry.mSize) {
+            throw new ZipException("crc error: " + entry.mName); //$NON-NLS-1$
+        }
+
+        if (link != null) {
+            String target = new String(link.toByteArray(), UTF8);
+            if (!Archiver.symlink(target, file)) {
+                Log.w(TAG, String.format("Can't create the symlink %s", file)); //$NON-NLS-1$
+            }
+        } else {
+            if (entry.mTime > 0) {
+                file.setLastModified(entry.mTime);
+            }
+            if ((entry.mMode & 0100) != 0) {
+                file.setExecutable(true, (entry.mMode & 0011) == 0);
+            }
+        }
+        if (this.mTracker != null) {
+            this.mTracker.addFile();
+        }
+    }
+
+    /**
+     * Method that writes extracted data to the file (or the target of the symlink).
+     *
+     * @param fos The file, or null if the entry is a symlink
+     * @param link The target of the symlink, or null if the entry is a file
+     * @param data The data
+     * @param len The length of the data
+     * @throws IOException If the data can't be written
+     */
+    private void write(FileOutputStream fos, ByteArrayOutputStream link, byte[] data, int len)
+            throws IOException {
+        if (len == 0) {
+            return;
+        }
+        if (fos != null) {
+            fos.write(data, 0, len);
+        } else {
+            link.write(data, 0, len);
+        }
+        if (this.mTracker != null) {
+            this.mTracker.addBytes(len);
+        }
+    }
+
+    /**
+     * Method that extracts a single entry of an archive (the rest of the archive is
+     * not read).
+     *
+     * @param src The zip archive
+     * @param entry The entry (read from the central directory of the archive)
+     * @param file The file to create
+     * @throws IOException If the entry can't be extracted
+     */
+    static void extractEntry(File src, Entry entry, File file) throws IOException {
+        ZipExtractor extractor = new ZipExtractor(src, file.getParentFile(), 1);
+        RandomAccessFile raf = new RandomAccessFile(src, "r"); //$NON-NLS-1$
+        Inflater inflater = new Inflater(true);
+        try {
+            extractor.extractEntry(raf, inflater, entry, file,
+                    new byte[BUFFER_SIZE], new byte[BUFFER_SIZE]);
+        } catch (IOException ex) {
+            file.delete();
+            throw ex;
+        } finally {
+            inflater.end();
+            try {
+                raf.close();
+            } catch (Throwable ex) {/**NON BLOCK**/}
+        }
+    }
+
+    /**
+     * Method that reads the entries of the central directory of an archive.
+     *
+     * @param src The zip archive
+     * @return List<Entry> The entries
+     * @throws IOException If the central directory can't be read
+     */
+    static List<Entry> readCentralDirectory(File src) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(src, "r"); //$NON-NLS-1$
+        try {
+            // Find the end of central directory record (followed by a comment)
+            long length = raf.length();
+            int tail = (int)Math.min(length, END_SIZE + MAX_COMMENT_SIZE);
+            byte[] buffer = new byte[tail];
+            raf.seek(length - tail);
+            raf.readFully(buffer);
+            int end = -1;
+            for (int i = tail - END_SIZE; i >= 0; i--) {
+                if (readInt(buffer, i) == END_SIG) {
+                    end = i;
+                    break;
+                }
+            }
+            if (end == -1) {
+                throw new ZipException("not a zip archive: " + src); //$NON-NLS-1$
+            }
+            long count = readShort(buffer, end + 10);
+            long size = readUInt(buffer, end + 12);
+            long offset = readUInt(buffer, end + 16);
+
+            // Zip64?
+            long endPos = length - tail + end;
+            if ((count == 0xffff || size == 0xffffffffL || offset == 0xffffffffL)
+                    && endPos >= 20) {
+                byte[] locator = new byte[20];
+                raf.seek(endPos - 20);
+                raf.readFully(locator);
+                if (readInt(locator, 0) == ZIP64_LOCATOR_SIG) {
+                    byte[] end64 = new byte[56];
+                    raf.seek(readLong(locator, 8));
+                    raf.readFully(end64);
+                    if (readInt(end64, 0) != ZIP64_END_SIG) {
+                        throw new ZipException("invalid zip64 end record"); //$NON-NLS-1$
+                    }
+                    count = readLong(end64, 32);
+                    size = readLong(end64, 40);
+                    offset = readLong(end64, 48);
+                }
+            }
+            if (size > Integer.MAX_VALUE || offset + size > length) {
+                throw new ZipException("invalid central directory"); //$NON-NLS-1$
+            }
+
+            byte[] cd = new byte[(int)size];
+            raf.seek(offset);
+            raf.readFully(cd);
+            List<Entry> entries = new ArrayList<Entry>((int)Math.min(count, 65536));
+            int pos = 0;
+            while (pos + 46 <= cd.length && readInt(cd, pos) == CENTRAL_HEADER_SIG) {
+                Entry entry = new Entry();
+                int madeBy = readShort(cd, pos + 4) >> 8;
+                entry.mFlags = readShort(cd, pos + 8);
+                entry.mMethod = readShort(cd, pos + 10);
+                entry.mTime = dosToJavaTime(readShort(cd, pos + 14), readShort(cd, pos + 12));
+                entry.mCrc = readInt(cd, pos + 16);
+                entry.mCompressedSize = readUInt(cd, pos + 20);
+                entry.mSize = readUInt(cd, pos + 24);
+                int nameLen = readShort(cd, pos + 28);
+                int extraLen = readShort(cd, pos + 30);
+                int commentLen = readShort(cd, pos + 32);
+                if (madeBy == MADE_BY_UNIX) {
+                    entry.mMode = (int)(readUInt(cd, pos + 38) >>> 16);
+                }
+                entry.mOffset = readUInt(cd, pos + 42);
+                if (pos + 46 + nameLen + extraLen > cd.length) {
+                    throw new ZipException("invalid central directory"); //$NON-NLS-1$
+                }
+                entry.mName = new String(cd, pos + 46, nameLen, UTF8);
+                readZip64Extra(cd, pos + 46 + nameLen, extraLen, entry);
+                entries.add(entry);
+                pos += 46 + nameLen + extraLen + commentLen;
+            }
+            return entries;
+        } finally {
+            try {
+                raf.close();
+            } catch (Throwable ex) {/**NON BLOCK**/}
+        }
+    }
+
+    /**
+     * Method that reads the zip64 sizes and offset of an entry from its extra field.
+     *
+     * @param b The central directory
+     * @param off The offset of the extra field
+     * @param len The length of the extra field
+     * @param entry The entry
+     */
+    private static void readZip64Extra(byte[] b, int off, int len, Entry entry) {
+        int end = off + len;
+        while (off + 4 <= end) {
+            int id = readShort(b, off);
+            int size = readShort(b, off + 2);
+            int pos = off + 4;
+            off = pos + size;
+            if (id != 0x0001 || off > end) {
+                continue;
+            }
+            // Only the values that don't fit in the header are present, in this order
+            if (entry.mSize == 0xffffffffL && pos + 8 <= off) {
+                entry.mSize = readLong(b, pos);
+                pos += 8;
+            }
+            if (entry.mCompressedSize == 0xffffffffL && pos + 8 <= off) {
+                entry.mCompressedSize = readLong(b, pos);
+                pos += 8;
+            }
+            if (entry.mOffset == 0xffffffffL && pos + 8 <= off) {
+                entry.mOffset = readLong(b, pos);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Method that converts a MS-DOS date and time to java time.
+     *
+     * @param date The MS-DOS date
+     * @param time The MS-DOS time
+     * @return long The java time, or -1 if the date is invalid
+     */
+    private static long dosToJavaTime(int date, int time) {
+        if (date == 0) {
+            return -1;
+        }
+        GregorianCalendar calendar = new GregorianCalendar(
+                1980 + ((date >> 9) & 0x7f), ((date >> 5) & 0x0f) - 1, date & 0x1f,
+                (time >> 11) & 0x1f, (time >> 5) & 0x3f, (time & 0x1f) << 1);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Method that checks if the extraction was cancelled.
+     *
+     * @throws InterruptedIOException If the extraction was cancelled
+     */
+    private void checkCancelled() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            this.mCancelled = true;
+        }
+        if (this.mCancelled) {
+            throw new InterruptedIOException("cancelled"); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Method that notifies the entry extracted.
+     *
+     * @param name The name of the entry
+     */
+    private synchronized void notifyEntry(String name) {
+        if (this.mListener != null) {
+            this.mListener.onEntry(name);
+        }
+    }
+
+    private synchronized void setFailure(IOException ex) {
+        if (this.mFailure == null) {
+            this.mFailure = ex;
+        }
+    }
+
+    private synchronized boolean isFailed() {
+        return this.mFailure != null;
+    }
+
+    private static int readShort(byte[] b, int off) {
+        return (b[off] & 0xff) | ((b[off + 1] & 0xff) << 8);
+    }
+
+    private static int readInt(byte[] b, int off) {
+        return readShort(b, off) | (readShort(b, off + 2) << 16);
+    }
+
+    private static long readUInt(byte[] b, int off) {
+        return readInt(b, off) & 0xffffffffL;
+    }
+
+    private static long readLong(byte[] b, int off) {
+        return readUInt(b, off) | (readUInt(b, off + 4) << 32);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.java;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.model.FolderUsage;
+import com.cyanogenmod.filemanager.util.FileHelper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+/**
+ * A class for testing the parallel folder usage command of the java console.
+ *
+ * @see FolderUsageCommand
+ */
+public class FolderUsageCommandTest extends AndroidTestCase {
+
+    private static final String TAG = "FolderUsageCommandTest"; //$NON-NLS-1$
+
+    // A tree of 3 x 2 folders with 4 files each (the files of a folder have 1, 2, 3
+    // and 4 bytes)
+    private static final int TOP_FOLDERS = 3;
+    private static final int SUB_FOLDERS = 2;
+    private static final int FILES = 4;
+
+    // The benchmark tree: 20 x 5 folders with 200 empty files each (20k files)
+    private static final int BENCHMARK_TOP_FOLDERS = 20;
+    private static final int BENCHMARK_SUB_FOLDERS = 5;
+    private static final int BENCHMARK_FILES = 200;
+
+    private File mRoot;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.mRoot = new File(getContext().getCacheDir(), "folderusage"); //$NON-NLS-1$
+        FileHelper.deleteFolder(this.mRoot);
+        for (int i = 0; i < TOP_FOLDERS; i++) {
+            for (int j = 0; j < SUB_FOLDERS; j++) {
+                File folder = new File(this.mRoot, "d" + i + "/s" + j); //$NON-NLS-1$ //$NON-NLS-2$
+                assertTrue("mkdirs " + folder, folder.mkdirs()); //$NON-NLS-1$
+                for (int k = 0; k < FILES; k++) {
+                    FileOutputStream fos =
+                            new FileOutputStream(
+                                    new File(folder, "f" + k + ".txt")); //$NON-NLS-1$ //$NON-NLS-2$
+                    try {
+                        fos.write(new byte[k + 1]);
+                    } finally {
+                        fos.close();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void tearDown() throws Exception {
+        FileHelper.deleteFolder(this.mRoot);
+        super.tearDown();
+    }
+
+    /**
+     * Method that tests the folder usage computed by one thread.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testFolderUsage() throws Exception {
+        FolderUsageCommand cmd = new FolderUsageCommand(this.mRoot.getAbsolutePath(), null, 1);
+        cmd.execute();
+        assertUsage(cmd.getFolderUsage());
+    }
+
+    /**
+     * Method that tests that the folder usage computed by several threads counts every
+     * file and folder once.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testParallelFolderUsage() throws Exception {
+        FolderUsageCommand cmd = new FolderUsageCommand(this.mRoot.getAbsolutePath(), null, 4);
+        cmd.execute();
+        assertUsage(cmd.getFolderUsage());
+    }
+
+    /**
+     * Method that compares the time of the sequential and the parallel computation of
+     * the folder usage.
+     *
+     * @throws Exception If test failed
+     */
+    @LargeTest
+    public void testBenchmark() throws Exception {
+        File root = new File(this.mRoot, "benchmark"); //$NON-NLS-1$
+        for (int i = 0; i < BENCHMARK_TOP_FOLDERS; i++) {
+            for (int j = 0; j < BENCHMARK_SUB_FOLDERS; j++) {
+                File folder = new File(root, "d" + i + "/s" + j); //$NON-NLS-1$ //$NON-NLS-2$
+                assertTrue("mkdirs " + folder, folder.mkdirs()); //$NON-NLS-1$
+                for (int k = 0; k < BENCHMARK_FILES; k++) {
+                    new File(folder, "f" + k + ".txt").createNewFile(); //$NON-NLS-1$ //$NON-NLS-2$
+                }
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        FolderUsageCommand sequential = new FolderUsageCommand(root.getAbsolutePath(), null, 1);
+        sequential.execute();
+        long sequentialTime = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        FolderUsageCommand parallel = new FolderUsageCommand(root.getAbsolutePath(), null);
+        parallel.execute();
+        long parallelTime = System.currentTimeMillis() - start;
+
+        int files = BENCHMARK_TOP_FOLDERS * BENCHMARK_SUB_FOLDERS * BENCHMARK_FILES;
+        Log.i(TAG, String.format(
+                "folder usage of %d files: sequential=%dms, parallel(%d)=%dms", //$NON-NLS-1$
+                Integer.valueOf(files),
+                Long.valueOf(sequentialTime),
+                Integer.valueOf(Runtime.getRuntime().availableProcessors()),
+                Long.valueOf(parallelTime)));
+        assertEquals(files, sequential.getFolderUsage().getNumberOfFiles());
+        assertEquals(files, parallel.getFolderUsage().getNumberOfFiles());
+    }
+
+    /**
+     * Method that checks the usage of the tree.
+     *
+     * @param usage The usage computed
+     */
+    private static void assertUsage(FolderUsage usage) {
+        int folders = TOP_FOLDERS * SUB_FOLDERS;
+        assertEquals(TOP_FOLDERS + folders, usage.getNumberOfFolders());
+        assertEquals(folders * FILES, usage.getNumberOfFiles());
+        assertEquals(folders * FILES * (FILES + 1) / 2, usage.getTotalSize());
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.shell;
+
+import android.os.Environment;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.cyanogenmod.filemanager.util.CommandHelper;
+
+import java.util.Map;
+
+/**
+ * A class for testing the {@link CopyBatchCommand} command.
+ *
+ * @see CopyBatchCommand
+ */
+public class CopyBatchCommandTest extends AbstractConsoleTest {
+
+    private static final String PATH_FILE_SRC_1 =
+            Environment.getDataDirectory().getAbsolutePath() + "/copybatch1.txt"; //$NON-NLS-1$
+    private static final String PATH_FILE_SRC_2 =
+            Environment.getDataDirectory().getAbsolutePath() + "/copybatch2.txt"; //$NON-NLS-1$
+    private static final String PATH_DIR_DST =
+            Environment.getDataDirectory().getAbsolutePath() + "/copybatchdir"; //$NON-NLS-1$
+    private static final String PATH_FILE_ERROR = "/foo/foo121212/copytest.txt"; //$NON-NLS-1$
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isRootConsoleNeeded() {
+        return true;
+    }
+
+    /**
+     * Method that performs a test to copy a set of files to a directory.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testCopyBatchOk() throws Exception {
+        try {
+            CommandHelper.createFile(getContext(), PATH_FILE_SRC_1, getConsole());
+            CommandHelper.createFile(getContext(), PATH_FILE_SRC_2, getConsole());
+            CommandHelper.createDirectory(getContext(), PATH_DIR_DST, getConsole());
+            Map<String, String> failures =
+                    CommandHelper.copyFiles(
+                            getContext(),
+                            new String[]{PATH_FILE_SRC_1, PATH_FILE_SRC_2},
+                            PATH_DIR_DST,
+                            getConsole());
+            assertTrue("failures!=0", failures.isEmpty()); //$NON-NLS-1$
+        } finally {
+            try {
+                CommandHelper.deleteFiles(
+                        getContext(),
+                        new String[]{PATH_FILE_SRC_1, PATH_FILE_SRC_2, PATH_DIR_DST},
+                        getConsole());
+            } catch (Throwable ex) {
+                /**NON BLOCK**/
+            }
+        }
+    }
+
+    /**
+     * Method that performs a test to map the errors of the command to their sources.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testParseFailures() throws Exception {
+        CopyBatchCommand cmd =
+                new CopyBatchCommand(
+                        new String[]{PATH_FILE_SRC_1, PATH_FILE_ERROR}, PATH_DIR_DST);
+        cmd.parse(
+                "", //$NON-NLS-1$
+                "cp: can't create '" + PATH_DIR_DST + //$NON-NLS-1$
+                "/copybatch1.txt': Permission denied\n"); //$NON-NLS-1$
+        Map<String, String> failures = cmd.getResult();
+        assertTrue("failures!=1", failures.size() == 1); //$NON-NLS-1$
+        assertTrue(PATH_FILE_SRC_1, failures.containsKey(PATH_FILE_SRC_1));
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.shell;
+
+import android.os.Environment;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.cyanogenmod.filemanager.util.CommandHelper;
+
+import java.util.Map;
+
+/**
+ * A class for testing the {@link DeleteBatchCommand} command.
+ *
+ * @see DeleteBatchCommand
+ */
+public class DeleteBatchCommandTest extends AbstractConsoleTest {
+
+    private static final String PATH_DELFILE_1 =
+            Environment.getDataDirectory().getAbsolutePath() + "/delbatch1.txt"; //$NON-NLS-1$
+    private static final String PATH_DELFILE_2 =
+            Environment.getDataDirectory().getAbsolutePath() + "/delbatch2.txt"; //$NON-NLS-1$
+    private static final String PATH_DELDIR =
+            Environment.getDataDirectory().getAbsolutePath() + "/delbatchdir"; //$NON-NLS-1$
+    private static final String PATH_DELFILE_ERROR = "/foo/foo121212/deltest.txt"; //$NON-NLS-1$
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isRootConsoleNeeded() {
+        return true;
+    }
+
+    /**
+     * Method that performs a test to delete a set of files and folders.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testDeleteBatchOk() throws Exception {
+        CommandHelper.createFile(getContext(), PATH_DELFILE_1, getConsole());
+        CommandHelper.createFile(getContext(), PATH_DELFILE_2, getConsole());
+        CommandHelper.createDirectory(getContext(), PATH_DELDIR, getConsole());
+        Map<String, String> failures =
+                CommandHelper.deleteFiles(
+                        getContext(),
+                        new String[]{PATH_DELFILE_1, PATH_DELFILE_2, PATH_DELDIR},
+                        getConsole());
+        assertTrue("failures!=0", failures.isEmpty()); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that performs a test to delete a set of files with missing files.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testDeleteBatchMissing() throws Exception {
+        CommandHelper.createFile(getContext(), PATH_DELFILE_1, getConsole());
+        Map<String, String> failures =
+                CommandHelper.deleteFiles(
+                        getContext(),
+                        new String[]{PATH_DELFILE_1, PATH_DELFILE_ERROR},
+                        getConsole());
+        assertTrue("failures!=0", failures.isEmpty()); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that performs a test to map the errors of the command to their paths.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testParseFailures() throws Exception {
+        DeleteBatchCommand cmd =
+                new DeleteBatchCommand(new String[]{"/data/a", "/data/a b"}); //$NON-NLS-1$ //$NON-NLS-2$
+        cmd.parse(
+                "", //$NON-NLS-1$
+                "rm: can't remove '/data/a b': Permission denied\n"); //$NON-NLS-1$
+        Map<String, String> failures = cmd.getResult();
+        assertTrue("failures!=1", failures.size() == 1); //$NON-NLS-1$
+        assertTrue("/data/a b", failures.containsKey("/data/a b")); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+}
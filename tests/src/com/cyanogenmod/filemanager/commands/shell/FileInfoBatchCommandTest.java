@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.shell;
+
+import java.util.Map;
+
+import android.test.suitebuilder.annotation.MediumTest;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.cyanogenmod.filemanager.model.Directory;
+import com.cyanogenmod.filemanager.model.FileSystemObject;
+import com.cyanogenmod.filemanager.model.RegularFile;
+import com.cyanogenmod.filemanager.util.CommandHelper;
+
+/**
+ * A class for testing file info batch command.
+ *
+ * @see FileInfoBatchCommand
+ */
+public class FileInfoBatchCommandTest extends AbstractConsoleTest {
+
+    private static final String INFOFILE = "/boot.txt"; //$NON-NLS-1$
+    private static final String INFODIR = "/acct"; //$NON-NLS-1$
+    private static final String NOT_EXISTS = "/not_exists_file"; //$NON-NLS-1$
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isRootConsoleNeeded() {
+        return false;
+    }
+
+    /**
+     * Method that performs a test over the file info batch command.
+     *
+     * @throws Exception If test failed
+     */
+    @MediumTest
+    public void testFilesInfo() throws Exception {
+        String[] paths = new String[]{INFOFILE, NOT_EXISTS, INFODIR};
+        Map<String, FileSystemObject> files =
+                CommandHelper.getFilesInfo(getContext(), paths, false, getConsole());
+        assertNotNull("files==null", files); //$NON-NLS-1$
+        assertTrue("length!=3", files.size() == 3); //$NON-NLS-1$
+        assertNotNull("file==null", files.get(INFOFILE)); //$NON-NLS-1$
+        assertNull("missing file!=null", files.get(NOT_EXISTS)); //$NON-NLS-1$
+        assertNotNull("dir==null", files.get(INFODIR)); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that performs a test over a known parse result.
+     *
+     * @throws Exception If test failed
+     * {@link FileInfoBatchCommand#parse(String, String)}
+     */
+    @SmallTest
+    public void testParse() throws Exception {
+        String[] paths = new String[]{INFOFILE, NOT_EXISTS, INFODIR};
+        FileInfoBatchCommand cmd = new FileInfoBatchCommand(paths, false);
+        String in =
+            ">FILEINFO>\n" + //$NON-NLS-1$
+            "-rw-r--r-- root     root          229 2012-05-04 01:51 boot.txt\n" + //$NON-NLS-1$
+            ">FILEINFO>\n" + //$NON-NLS-1$
+            ">FILEINFO>\n" + //$NON-NLS-1$
+            "drwxr-xr-x root     root              2012-05-04 01:51 acct\n"; //$NON-NLS-1$
+        String err = "/not_exists_file: No such file or directory"; //$NON-NLS-1$
+        cmd.parse(in, err);
+        Map<String, FileSystemObject> files = cmd.getResult();
+        assertNotNull("files==null", files); //$NON-NLS-1$
+        assertTrue("length!=3", files.size() == 3); //$NON-NLS-1$
+        assertTrue(
+                "files(0) is not a file", //$NON-NLS-1$
+                files.get(INFOFILE) instanceof RegularFile);
+        assertNull("files(1)!=null", files.get(NOT_EXISTS)); //$NON-NLS-1$
+        assertTrue(
+                "files(2) is not a directory", //$NON-NLS-1$
+                files.get(INFODIR) instanceof Directory);
+        assertTrue(
+                "files(0) != parent", //$NON-NLS-1$
+                files.get(INFOFILE).getFullPath().compareTo(INFOFILE) == 0);
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.commands.shell;
+
+import android.os.Environment;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.cyanogenmod.filemanager.util.CommandHelper;
+
+import java.util.Map;
+
+/**
+ * A class for testing the {@link MoveBatchCommand} command.
+ *
+ * @see MoveBatchCommand
+ */
+public class MoveBatchCommandTest extends AbstractConsoleTest {
+
+    private static final String PATH_FILE_SRC_1 =
+            Environment.getDataDirectory().getAbsolutePath() + "/movebatch1.txt"; //$NON-NLS-1$
+    private static final String PATH_FILE_SRC_2 =
+            Environment.getDataDirectory().getAbsolutePath() + "/movebatch2.txt"; //$NON-NLS-1$
+    private static final String PATH_DIR_DST =
+            Environment.getDataDirectory().getAbsolutePath() + "/movebatchdir"; //$NON-NLS-1$
+    private static final String PATH_FILE_ERROR = "/foo/foo121212/movetest.txt"; //$NON-NLS-1$
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isRootConsoleNeeded() {
+        return true;
+    }
+
+    /**
+     * Method that performs a test to move a set of files to a directory.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testMoveBatchOk() throws Exception {
+        try {
+            CommandHelper.createFile(getContext(), PATH_FILE_SRC_1, getConsole());
+            CommandHelper.createFile(getContext(), PATH_FILE_SRC_2, getConsole());
+            CommandHelper.createDirectory(getContext(), PATH_DIR_DST, getConsole());
+            Map<String, String> failures =
+                    CommandHelper.moveFiles(
+                            getContext(),
+                            new String[]{PATH_FILE_SRC_1, PATH_FILE_SRC_2},
+                            PATH_DIR_DST,
+                            getConsole());
+            assertTrue("failures!=0", failures.isEmpty()); //$NON-NLS-1$
+        } finally {
+            try {
+                CommandHelper.deleteFiles(
+                        getContext(),
+                        new String[]{PATH_FILE_SRC_1, PATH_FILE_SRC_2, PATH_DIR_DST},
+                        getConsole());
+            } catch (Throwable ex) {
+                /**NON BLOCK**/
+            }
+        }
+    }
+
+    /**
+     * Method that performs a test to map the errors of the command to their sources.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testParseFailures() throws Exception {
+        MoveBatchCommand cmd =
+                new MoveBatchCommand(
+                        new String[]{PATH_FILE_SRC_1, PATH_FILE_ERROR}, PATH_DIR_DST);
+        cmd.parse(
+                "", //$NON-NLS-1$
+                "mv: can't create '" + PATH_DIR_DST + //$NON-NLS-1$
+                "/movebatch1.txt': Permission denied\n"); //$NON-NLS-1$
+        Map<String, String> failures = cmd.getResult();
+        assertTrue("failures!=1", failures.size() == 1); //$NON-NLS-1$
+        assertTrue(PATH_FILE_SRC_1, failures.containsKey(PATH_FILE_SRC_1));
+    }
+
+    /**
+     * Method that performs a test to check that a source that doesn't exist (and was not
+     * moved before) is reported as a failure.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testParseMissingSource() throws Exception {
+        MoveBatchCommand cmd =
+                new MoveBatchCommand(
+                        new String[]{PATH_FILE_SRC_1, PATH_FILE_ERROR}, PATH_DIR_DST);
+        cmd.parse(
+                "", //$NON-NLS-1$
+                "mv: can't rename '" + PATH_FILE_ERROR + //$NON-NLS-1$
+                "': No such file or directory\n"); //$NON-NLS-1$
+        Map<String, String> failures = cmd.getResult();
+        assertTrue("failures!=1", failures.size() == 1); //$NON-NLS-1$
+        assertTrue(PATH_FILE_ERROR, failures.containsKey(PATH_FILE_ERROR));
+    }
+
+}
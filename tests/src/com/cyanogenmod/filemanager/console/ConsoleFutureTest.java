@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.console;
+
+import android.os.Environment;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.cyanogenmod.filemanager.model.DiskUsage;
+import com.cyanogenmod.filemanager.model.FileSystemObject;
+import com.cyanogenmod.filemanager.util.CommandHelper;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+
+/**
+ * A class for testing the asynchronous operations of the consoles.
+ *
+ * @see ConsoleFuture
+ */
+public class ConsoleFutureTest extends AndroidTestCase {
+
+    private static final String PATH =
+            Environment.getExternalStorageDirectory().getAbsolutePath();
+    private static final long TIMEOUT = 15000L;
+
+    /**
+     * Method that performs a test over overlapped lookups in a console.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testOverlappedLookups() throws Exception {
+        final Console console = ConsoleBuilder.createNonPrivilegedConsole(getContext(), PATH);
+        try {
+            ConsoleFuture<List<FileSystemObject>> files = submitListFiles(console);
+            ConsoleFuture<FileSystemObject> info =
+                    console.submit(new Callable<FileSystemObject>() {
+                        @Override
+                        public FileSystemObject call() throws Exception {
+                            return CommandHelper.getFileInfo(
+                                    getContext(), PATH, true, console);
+                        }
+                    });
+            ConsoleFuture<DiskUsage> du =
+                    CommandHelper.getDiskUsageAsync(getContext(), PATH, console);
+            assertTrue("awaitAll", ConsoleFuture.awaitAll(TIMEOUT, files, info, du)); //$NON-NLS-1$
+            assertNotNull("files==null", files.getResult(0)); //$NON-NLS-1$
+            assertNotNull("info==null", info.getResult(0)); //$NON-NLS-1$
+            assertNotNull("du==null", du.getResult(0)); //$NON-NLS-1$
+        } finally {
+            try {
+                console.dealloc();
+            } catch (Throwable ex) {
+                /**NON BLOCK**/
+            }
+        }
+    }
+
+    /**
+     * Method that performs a test over the composition of operations.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testThen() throws Exception {
+        Console console = ConsoleBuilder.createNonPrivilegedConsole(getContext(), PATH);
+        try {
+            ConsoleFuture<Integer> count =
+                    submitListFiles(console).then(
+                            new ConsoleFuture.Continuation<List<FileSystemObject>, Integer>() {
+                                @Override
+                                public Integer onResult(List<FileSystemObject> result) {
+                                    return Integer.valueOf(result.size());
+                                }
+                            });
+            assertTrue("count==0", count.getResult(TIMEOUT).intValue() > 0); //$NON-NLS-1$
+        } finally {
+            try {
+                console.dealloc();
+            } catch (Throwable ex) {
+                /**NON BLOCK**/
+            }
+        }
+    }
+
+    /**
+     * Method that performs a test over the cancellation of queued operations.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testCancel() throws Exception {
+        Console console = ConsoleBuilder.createNonPrivilegedConsole(getContext(), PATH);
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            final boolean[] executed = {false};
+            ConsoleFuture<Boolean> blocker = console.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    latch.await();
+                    return Boolean.TRUE;
+                }
+            });
+            ConsoleFuture<Boolean> queued = console.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    executed[0] = true;
+                    return Boolean.TRUE;
+                }
+            });
+            ConsoleFuture<Boolean> chained = queued.then(
+                    new ConsoleFuture.Continuation<Boolean, Boolean>() {
+                        @Override
+                        public Boolean onResult(Boolean result) {
+                            return result;
+                        }
+                    });
+            if (!queued.isDone()) {
+                assertTrue("cancel", queued.cancel(false)); //$NON-NLS-1$
+                assertTrue("chained", chained.isCancelled()); //$NON-NLS-1$
+            }
+            latch.countDown();
+            assertTrue("blocker", blocker.getResult(TIMEOUT).booleanValue()); //$NON-NLS-1$
+            if (queued.isCancelled()) {
+                assertFalse("executed", executed[0]); //$NON-NLS-1$
+            }
+        } finally {
+            try {
+                console.dealloc();
+            } catch (Throwable ex) {
+                /**NON BLOCK**/
+            }
+        }
+    }
+
+    /**
+     * Method that submits the listing of the test directory to a console.
+     *
+     * @param console The console
+     * @return ConsoleFuture<List<FileSystemObject>> The future of the listing
+     */
+    private ConsoleFuture<List<FileSystemObject>> submitListFiles(final Console console) {
+        return console.submit(new Callable<List<FileSystemObject>>() {
+            @Override
+            public List<FileSystemObject> call() throws Exception {
+                return CommandHelper.listFiles(getContext(), PATH, console);
+            }
+        });
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.console.helper;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * A class for testing the privileged helper process. The helper is launched as a
+ * non-privileged child process (with <code>app_process</code> in a device, or with
+ * <code>java</code> in a Linux JVM), so the protocol can be tested without root access.
+ *
+ * @see HelperMain
+ * @see HelperClient
+ */
+public class HelperClientTest extends AndroidTestCase {
+
+    private HelperClient mClient;
+    private File mDir;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.mClient = launchHelper();
+        this.mDir = new File(getTmpDir(), "helpertest"); //$NON-NLS-1$
+        assertTrue("mkdir", this.mDir.mkdirs() || this.mDir.isDirectory()); //$NON-NLS-1$
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            this.mClient.delete(this.mDir.getAbsolutePath());
+        } catch (Throwable ex) {
+            /**NON BLOCK**/
+        }
+        this.mClient.close();
+        super.tearDown();
+    }
+
+    /**
+     * Method that performs a test over stat and list operations.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testStatAndList() throws Exception {
+        File file = createFile(this.mDir, "a.txt", "hello"); //$NON-NLS-1$ //$NON-NLS-2$
+        HelperStat stat = this.mClient.stat(file.getAbsolutePath(), false);
+        assertEquals("type", HelperStat.TYPE_FILE, stat.getType()); //$NON-NLS-1$
+        assertEquals("size", 5L, stat.getSize()); //$NON-NLS-1$
+        assertEquals("name", "a.txt", stat.getName()); //$NON-NLS-1$ //$NON-NLS-2$
+
+        List<HelperStat> stats = this.mClient.list(this.mDir.getAbsolutePath());
+        assertEquals("list", 1, stats.size()); //$NON-NLS-1$
+        assertEquals("name", "a.txt", stats.get(0).getName()); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Method that performs a test over chmod operation.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testChmod() throws Exception {
+        File file = createFile(this.mDir, "b.txt", "hello"); //$NON-NLS-1$ //$NON-NLS-2$
+        this.mClient.chmod(file.getAbsolutePath(), 0600);
+        HelperStat stat = this.mClient.stat(file.getAbsolutePath(), false);
+        assertEquals("mode", "0600", stat.toOctalString()); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Method that performs a test over copy, hash and delete operations.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testCopyHashAndDelete() throws Exception {
+        File src = new File(this.mDir, "src"); //$NON-NLS-1$
+        assertTrue("mkdir", src.mkdir()); //$NON-NLS-1$
+        File file = createFile(src, "c.txt", "hello"); //$NON-NLS-1$ //$NON-NLS-2$
+        File dst = new File(this.mDir, "dst"); //$NON-NLS-1$
+        this.mClient.copy(src.getAbsolutePath(), dst.getAbsolutePath());
+
+        File copied = new File(dst, "c.txt"); //$NON-NLS-1$
+        assertTrue("copied", copied.isFile()); //$NON-NLS-1$
+        byte[] h1 = this.mClient.hash(file.getAbsolutePath(), "MD5"); //$NON-NLS-1$
+        byte[] h2 = this.mClient.hash(copied.getAbsolutePath(), "MD5"); //$NON-NLS-1$
+        assertEquals("hash length", 16, h1.length); //$NON-NLS-1$
+        assertTrue("hash", Arrays.equals(h1, h2)); //$NON-NLS-1$
+
+        this.mClient.delete(dst.getAbsolutePath());
+        assertFalse("deleted", dst.exists()); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that performs a test over the copy of a directory into itself.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testCopyIntoItself() throws Exception {
+        File src = new File(this.mDir, "src"); //$NON-NLS-1$
+        assertTrue("mkdir", src.mkdir()); //$NON-NLS-1$
+        createFile(src, "c.txt", "hello"); //$NON-NLS-1$ //$NON-NLS-2$
+        File dst = new File(src, "dst"); //$NON-NLS-1$
+        try {
+            this.mClient.copy(src.getAbsolutePath(), dst.getAbsolutePath());
+            fail("copy of a directory into itself"); //$NON-NLS-1$
+        } catch (HelperException ex) {
+            assertEquals("status", HelperProtocol.STATUS_IO_ERROR, ex.getStatus()); //$NON-NLS-1$
+        }
+        assertFalse("dst", dst.exists()); //$NON-NLS-1$
+        try {
+            this.mClient.copy(src.getAbsolutePath(), src.getAbsolutePath());
+            fail("copy of a directory onto itself"); //$NON-NLS-1$
+        } catch (HelperException ex) {
+            assertEquals("status", HelperProtocol.STATUS_IO_ERROR, ex.getStatus()); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Method that performs a test over the errors of the helper.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testNotFound() throws Exception {
+        try {
+            this.mClient.stat(new File(this.mDir, "none").getAbsolutePath(), false); //$NON-NLS-1$
+            fail("stat of a non existent file"); //$NON-NLS-1$
+        } catch (HelperException ex) {
+            assertEquals("status", HelperProtocol.STATUS_NOT_FOUND, ex.getStatus()); //$NON-NLS-1$
+        }
+        // The helper must be still usable
+        assertFalse("closed", this.mClient.isClosed()); //$NON-NLS-1$
+        assertNotNull("stat", this.mClient.stat(this.mDir.getAbsolutePath(), false)); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that launches the helper as a child process of the current vm.
+     *
+     * @return HelperClient The client of the helper
+     * @throws IOException If the helper can't be launched
+     */
+    private HelperClient launchHelper() throws IOException {
+        final String main = HelperMain.class.getName();
+        final String cmd = "CLASSPATH=%s /system/bin/app_process /system/bin %s"; //$NON-NLS-1$
+        String vm = System.getProperty("java.vm.name", ""); //$NON-NLS-1$ //$NON-NLS-2$
+        if (vm.contains("Dalvik") || vm.contains("ART")) { //$NON-NLS-1$ //$NON-NLS-2$
+            return HelperClient.launch(
+                    "/system/bin/sh", "-c", //$NON-NLS-1$ //$NON-NLS-2$
+                    String.format(cmd, getContext().getPackageCodePath(), main));
+        }
+        String classpath = System.getProperty("java.class.path"); //$NON-NLS-1$
+        return HelperClient.launch("java", "-cp", classpath, main); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Method that returns a temporary directory for the test.
+     *
+     * @return File The temporary directory
+     */
+    private File getTmpDir() {
+        if (getContext() != null) {
+            return getContext().getCacheDir();
+        }
+        return new File(System.getProperty("java.io.tmpdir")); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that creates a file with a content.
+     *
+     * @param dir The parent directory
+     * @param name The name of the file
+     * @param content The content of the file
+     * @return File The file created
+     * @throws IOException If the file can't be created
+     */
+    private static File createFile(File dir, String name, String content) throws IOException {
+        File file = new File(dir, name);
+        Writer w = new FileWriter(file);
+        try {
+            w.write(content);
+        } finally {
+            w.close();
+        }
+        return file;
+    }
+
+}
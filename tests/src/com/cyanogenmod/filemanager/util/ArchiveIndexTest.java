@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cyanogenmod.filemanager.util;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.cyanogenmod.filemanager.model.Directory;
+import com.cyanogenmod.filemanager.model.FileSystemObject;
+import com.cyanogenmod.filemanager.model.ParentDirectory;
+import com.cyanogenmod.filemanager.model.RegularFile;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A class for testing the browsing of archives without extract them.
+ *
+ * @see ArchiveIndex
+ */
+public class ArchiveIndexTest extends AndroidTestCase {
+
+    private static final long TIME = 1356998400000L;
+
+    private File mZip;
+    private File mTar;
+    private File mDst;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        File cache = getContext().getCacheDir();
+        this.mZip = new File(cache, "archiveindex.zip"); //$NON-NLS-1$
+        this.mTar = new File(cache, "archiveindex.tar"); //$NON-NLS-1$
+        this.mDst = new File(cache, "archiveindex.dst"); //$NON-NLS-1$
+        this.mDst.delete();
+        ArchiveIndex.clearCache();
+
+        // The zip archive hasn't the entries of the folders
+        ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(this.mZip));
+        try {
+            writeZipEntry(zip, "a.txt", "hello"); //$NON-NLS-1$ //$NON-NLS-2$
+            writeZipEntry(zip, "docs/b.txt", "archive"); //$NON-NLS-1$ //$NON-NLS-2$
+            writeZipEntry(zip, "docs/deep/c.txt", "index"); //$NON-NLS-1$ //$NON-NLS-2$
+            writeZipEntry(zip, "../evil.txt", "evil"); //$NON-NLS-1$ //$NON-NLS-2$
+        } finally {
+            zip.close();
+        }
+
+        TarOutputStream tar = new TarOutputStream(new FileOutputStream(this.mTar));
+        try {
+            tar.putNextEntry(new TarEntry(
+                    "./docs/", TarEntry.TYPE_DIRECTORY, 0, 0755, TIME)); //$NON-NLS-1$
+            tar.closeEntry();
+            writeTarEntry(tar, "./docs/b.txt", new byte[1000]); //$NON-NLS-1$
+            writeTarEntry(tar, "./docs/d.txt", "tar data".getBytes()); //$NON-NLS-1$ //$NON-NLS-2$
+            TarEntry link = new TarEntry(
+                    "./e.txt", TarEntry.TYPE_LINK, 0, 0644, TIME); //$NON-NLS-1$
+            link.setLinkName("./docs/d.txt"); //$NON-NLS-1$
+            tar.putNextEntry(link);
+            tar.closeEntry();
+        } finally {
+            tar.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void tearDown() throws Exception {
+        ArchiveIndex.clearCache();
+        this.mZip.delete();
+        this.mTar.delete();
+        FileHelper.deleteFolder(this.mDst);
+        super.tearDown();
+    }
+
+    /**
+     * Method that tests the index of a zip archive (with the folders synthesized).
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testZipIndex() throws Exception {
+        ArchiveIndex index = ArchiveIndex.get(this.mZip);
+        List<ArchiveIndex.Entry> root = index.list(""); //$NON-NLS-1$
+        assertEquals(2, root.size());
+        assertNotNull(index.getEntry("a.txt")); //$NON-NLS-1$
+        assertTrue(index.getEntry("docs").isDirectory()); //$NON-NLS-1$
+        assertTrue(index.getEntry("docs/deep").isDirectory()); //$NON-NLS-1$
+        assertEquals(2, index.list("docs").size()); //$NON-NLS-1$
+        assertEquals(5, index.getEntry("docs/deep/c.txt").getSize()); //$NON-NLS-1$
+        assertNull(index.getEntry("evil.txt")); //$NON-NLS-1$
+        assertNull(index.list("a.txt")); //$NON-NLS-1$
+
+        index.extract(index.getEntry("docs/deep/c.txt"), this.mDst); //$NON-NLS-1$
+        assertEquals("index", readFile(this.mDst)); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that tests the index of a tar archive and the extraction of single entries.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testTarIndex() throws Exception {
+        ArchiveIndex index = ArchiveIndex.get(this.mTar);
+        assertEquals(2, index.list("").size()); //$NON-NLS-1$
+        assertEquals(2, index.list("docs").size()); //$NON-NLS-1$
+        assertEquals(0755, index.getEntry("docs").getMode()); //$NON-NLS-1$
+        assertEquals(TIME, index.getEntry("docs/d.txt").getModifiedTime()); //$NON-NLS-1$
+
+        index.extract(index.getEntry("docs/d.txt"), this.mDst); //$NON-NLS-1$
+        assertEquals("tar data", readFile(this.mDst)); //$NON-NLS-1$
+
+        // The hard link shares the data of the linked file
+        this.mDst.delete();
+        index.extract(index.getEntry("e.txt"), this.mDst); //$NON-NLS-1$
+        assertEquals("tar data", readFile(this.mDst)); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that tests the extraction of a folder of an archive.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testExtractFolder() throws Exception {
+        ArchiveIndex.extract(
+                new File(this.mZip, "docs").getAbsolutePath(), this.mDst); //$NON-NLS-1$
+        assertEquals("archive", readFile(new File(this.mDst, "b.txt"))); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals("index", //$NON-NLS-1$
+                readFile(new File(this.mDst, "deep/c.txt"))); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that tests the virtual paths of the entries of an archive.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testVirtualPaths() throws Exception {
+        String zip = this.mZip.getAbsolutePath();
+        assertTrue(ArchiveIndex.isArchivePath(zip));
+        assertFalse(ArchiveIndex.isInsideArchive(zip));
+        assertTrue(ArchiveIndex.isInsideArchive(zip + "/docs/b.txt")); //$NON-NLS-1$
+        assertFalse(ArchiveIndex.isArchivePath(this.mZip.getParent()));
+        String[] split = ArchiveIndex.splitVirtualPath(zip + "/docs/deep"); //$NON-NLS-1$
+        assertEquals(zip, split[0]);
+        assertEquals("docs/deep", split[1]); //$NON-NLS-1$
+
+        List<FileSystemObject> files = ArchiveIndex.listFiles(getContext(), zip);
+        assertEquals(3, files.size());
+        assertTrue(files.get(0) instanceof ParentDirectory);
+        assertEquals(this.mZip.getParent(), files.get(0).getParent());
+        for (int i = 1; i < files.size(); i++) {
+            FileSystemObject fso = files.get(i);
+            assertEquals(zip, fso.getParent());
+            if (fso.getName().compareTo("docs") == 0) { //$NON-NLS-1$
+                assertTrue(fso instanceof Directory);
+            } else {
+                assertTrue(fso instanceof RegularFile);
+                assertEquals(5, fso.getSize());
+            }
+        }
+        assertNotNull(ArchiveIndex.getFileInfo(getContext(), zip + "/docs/b.txt")); //$NON-NLS-1$
+        assertNull(ArchiveIndex.getFileInfo(getContext(), zip + "/docs/x.txt")); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that tests that the index is cached while the archive is not modified.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testCache() throws Exception {
+        ArchiveIndex index = ArchiveIndex.get(this.mZip);
+        assertSame(index, ArchiveIndex.get(this.mZip));
+
+        // A modified archive is indexed again
+        assertTrue(this.mZip.setLastModified(this.mZip.lastModified() - 10000L));
+        ArchiveIndex index2 = ArchiveIndex.get(this.mZip);
+        assertNotSame(index, index2);
+        RandomAccessFile raf = new RandomAccessFile(this.mZip, "rw"); //$NON-NLS-1$
+        try {
+            raf.setLength(raf.length() + 1);
+        } finally {
+            raf.close();
+        }
+        this.mZip.setLastModified(this.mZip.lastModified() - 10000L);
+        assertNotSame(index2, ArchiveIndex.get(this.mZip));
+    }
+
+    /**
+     * Method that writes a zip entry.
+     *
+     * @param zip The zip archive
+     * @param name The name of the entry
+     * @param data The data of the entry
+     * @throws Exception If the entry can't be written
+     */
+    private static void writeZipEntry(ZipOutputStream zip, String name, String data)
+            throws Exception {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(data.getBytes());
+        zip.closeEntry();
+    }
+
+    /**
+     * Method that writes a tar entry.
+     *
+     * @param tar The tar archive
+     * @param name The name of the entry
+     * @param data The data of the entry
+     * @throws Exception If the entry can't be written
+     */
+    private static void writeTarEntry(TarOutputStream tar, String name, byte[] data)
+            throws Exception {
+        tar.putNextEntry(new TarEntry(name, TarEntry.TYPE_FILE, data.length, 0644, TIME));
+        tar.write(data);
+        tar.closeEntry();
+    }
+
+    /**
+     * Method that reads a file as a string.
+     *
+     * @param file The file
+     * @return String The content of the file
+     * @throws Exception If the file can't be read
+     */
+    private static String readFile(File file) throws Exception {
+        byte[] data = new byte[(int)file.length()];
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            assertEquals(data.length, fis.read(data));
+        } finally {
+            fis.close();
+        }
+        return new String(data);
+    }
+}
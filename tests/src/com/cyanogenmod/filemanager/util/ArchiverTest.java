@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cyanogenmod.filemanager.util;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.MediumTest;
+
+import com.cyanogenmod.filemanager.preferences.CompressionMode;
+import com.cyanogenmod.filemanager.preferences.UncompressionMode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A class for testing the java archiver and the bzip2/tar streams.
+ *
+ * @see Archiver
+ */
+public class ArchiverTest extends AndroidTestCase {
+
+    private static final int FILES = 20;
+
+    private File mSrc;
+    private File mDst;
+    private File mArchive;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        File cache = getContext().getCacheDir();
+        this.mSrc = new File(cache, "archiver-src"); //$NON-NLS-1$
+        this.mDst = new File(cache, "archiver-dst"); //$NON-NLS-1$
+        this.mArchive = new File(cache, "archiver.out"); //$NON-NLS-1$
+        FileHelper.deleteFolder(this.mSrc);
+        FileHelper.deleteFolder(this.mDst);
+        this.mArchive.delete();
+
+        Random random = new Random(FILES);
+        File folder = new File(this.mSrc, "a/" + repeat('n', 120)); //$NON-NLS-1$
+        assertTrue("mkdirs " + folder, folder.mkdirs()); //$NON-NLS-1$
+        assertTrue(new File(this.mSrc, "empty").mkdir()); //$NON-NLS-1$
+        for (int i = 0; i < FILES; i++) {
+            byte[] data = new byte[i * 1000];
+            for (int j = 0; j < data.length; j++) {
+                // Some redundant data to compress
+                data[j] = (byte)(random.nextInt(4) + 'a');
+            }
+            write(new File(folder, "f" + i), data); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void tearDown() throws Exception {
+        FileHelper.deleteFolder(this.mSrc);
+        FileHelper.deleteFolder(this.mDst);
+        this.mArchive.delete();
+        super.tearDown();
+    }
+
+    /**
+     * Method that tests the archive and extraction of a tree as tar.
+     *
+     * @throws Exception If test failed
+     */
+    @MediumTest
+    public void testTar() throws Exception {
+        checkArchive(CompressionMode.A_TAR, UncompressionMode.A_UNTAR);
+    }
+
+    /**
+     * Method that tests the archive and extraction of a tree as tar.gz.
+     *
+     * @throws Exception If test failed
+     */
+    @MediumTest
+    public void testTarGzip() throws Exception {
+        checkArchive(CompressionMode.AC_GZIP, UncompressionMode.AC_GUNZIP);
+    }
+
+    /**
+     * Method that tests the archive and extraction of a tree as tar.bz2.
+     *
+     * @throws Exception If test failed
+     */
+    @MediumTest
+    public void testTarBzip2() throws Exception {
+        checkArchive(CompressionMode.AC_BZIP, UncompressionMode.AC_BUNZIP);
+    }
+
+    /**
+     * Method that tests the bzip2 streams with empty, small and multi-block data.
+     *
+     * @throws Exception If test failed
+     */
+    @MediumTest
+    public void testBzip2Streams() throws Exception {
+        Random random = new Random(0);
+        // 100k per block size level
+        int[] sizes = {0, 1, 1000, BZip2OutputStream.MAX_BLOCK_SIZE * 100000 * 2 + 17};
+        for (int size : sizes) {
+            byte[] data = new byte[size];
+            for (int i = 0; i < size; i++) {
+                data[i] = (byte)((i % 7 == 0) ? random.nextInt(256) : 'x');
+            }
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            BZip2OutputStream out = new BZip2OutputStream(baos);
+            out.write(data);
+            out.close();
+
+            InputStream in = new BZip2InputStream(new ByteArrayInputStream(baos.toByteArray()));
+            assertTrue("size " + size, Arrays.equals(data, readFully(in))); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Method that tests that the extraction ignores the entries outside of the destination.
+     *
+     * @throws Exception If test failed
+     */
+    @MediumTest
+    public void testExtractOutsideDestination() throws Exception {
+        TarOutputStream out = new TarOutputStream(new FileOutputStream(this.mArchive));
+        out.putNextEntry(new TarEntry("../evil", TarEntry.TYPE_FILE, 1, 0644, //$NON-NLS-1$
+                System.currentTimeMillis()));
+        out.write('x');
+        out.closeEntry();
+        out.close();
+
+        // The entry is ignored
+        assertTrue(new Archiver().extract(UncompressionMode.A_UNTAR, this.mArchive, this.mDst));
+        assertFalse(new File(this.mDst.getParentFile(), "evil").exists()); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that tests that a symbolic link to a folder is archived with its relative
+     * target (so it works in the extracted tree).
+     *
+     * @throws Exception If test failed
+     */
+    @MediumTest
+    public void testFolderLink() throws Exception {
+        File link = new File(this.mSrc, "a/link"); //$NON-NLS-1$
+        assertTrue(Archiver.symlink(repeat('n', 120), link));
+        assertEquals(repeat('n', 120), Archiver.getLinkTarget(link));
+        assertTrue(new Archiver().archive(CompressionMode.AC_GZIP, this.mArchive,
+                new File[]{this.mSrc}, this.mSrc.getParentFile()));
+        FileHelper.deleteFolder(this.mSrc);
+        assertTrue(new Archiver().extract(UncompressionMode.AC_GUNZIP, this.mArchive, this.mDst));
+
+        File extracted = new File(this.mDst, this.mSrc.getName() + "/a/link"); //$NON-NLS-1$
+        assertEquals(repeat('n', 120), FileHelper.readLink(extracted));
+        assertTrue(new File(extracted, "f1").isFile()); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that tests that a cancelled archive doesn't leave partial files.
+     *
+     * @throws Exception If test failed
+     */
+    @MediumTest
+    public void testCancelledArchive() throws Exception {
+        Archiver archiver = new Archiver();
+        archiver.cancel();
+        assertFalse(archiver.archive(CompressionMode.AC_GZIP, this.mArchive,
+                new File[]{this.mSrc}, this.mSrc.getParentFile()));
+        assertFalse(this.mArchive.exists());
+    }
+
+    /**
+     * Method that archives and extracts the source tree and compares the result.
+     *
+     * @param compression The compression mode
+     * @param uncompression The uncompression mode
+     * @throws Exception If test failed
+     */
+    private void checkArchive(CompressionMode compression, UncompressionMode uncompression)
+            throws Exception {
+        assertTrue(new Archiver().archive(compression, this.mArchive,
+                new File[]{this.mSrc}, this.mSrc.getParentFile()));
+        assertTrue(new Archiver().extract(uncompression, this.mArchive, this.mDst));
+
+        File extracted = new File(this.mDst, this.mSrc.getName());
+        assertTrue(new File(extracted, "empty").isDirectory()); //$NON-NLS-1$
+        File src = new File(this.mSrc, "a/" + repeat('n', 120)); //$NON-NLS-1$
+        File dst = new File(extracted, "a/" + repeat('n', 120)); //$NON-NLS-1$
+        for (int i = 0; i < FILES; i++) {
+            File f = new File(dst, "f" + i); //$NON-NLS-1$
+            assertTrue(Arrays.equals(
+                    read(new File(src, "f" + i)), read(f))); //$NON-NLS-1$
+            assertEquals(new File(src, "f" + i).lastModified() / 1000L, //$NON-NLS-1$
+                    f.lastModified() / 1000L);
+        }
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private static void write(File file, byte[] data) throws Exception {
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(data);
+        } finally {
+            fos.close();
+        }
+    }
+
+    private static byte[] read(File file) throws Exception {
+        return readFully(new FileInputStream(file));
+    }
+
+    private static byte[] readFully(InputStream in) throws Exception {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                baos.write(buffer, 0, read);
+            }
+            return baos.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A class for testing the resume of interrupted copies.
+ *
+ * @see CopyJournal
+ */
+public class CopyJournalTest extends AndroidTestCase {
+
+    private static final long SIZE = CopyJournal.MIN_SIZE + CopyJournal.CHECKPOINT_INTERVAL;
+
+    private File mJournalDir;
+    private File mSrc;
+    private File mDst;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.mJournalDir = new File(getContext().getCacheDir(), "journal"); //$NON-NLS-1$
+        this.mSrc = new File(getContext().getCacheDir(), "journal-src"); //$NON-NLS-1$
+        this.mDst = new File(getContext().getCacheDir(), "journal-dst"); //$NON-NLS-1$
+        FileHelper.deleteFolder(this.mJournalDir);
+        CopyJournal.setJournalDir(this.mJournalDir);
+
+        // A source with a different byte in every block
+        RandomAccessFile raf = new RandomAccessFile(this.mSrc, "rw"); //$NON-NLS-1$
+        try {
+            byte[] block = new byte[64 * 1024];
+            for (long pos = 0; pos < SIZE; pos += block.length) {
+                Arrays.fill(block, (byte)(pos / block.length));
+                raf.write(block);
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void tearDown() throws Exception {
+        this.mSrc.delete();
+        this.mDst.delete();
+        FileHelper.deleteFolder(this.mJournalDir);
+        CopyJournal.setJournalDir(null);
+        super.tearDown();
+    }
+
+    /**
+     * Method that tests that an interrupted copy is resumed from the last checkpoint.
+     *
+     * @throws Exception If test failed
+     */
+    @LargeTest
+    public void testResumeCopy() throws Exception {
+        long offset = CopyJournal.CHECKPOINT_INTERVAL + 1024;
+        interruptedCopy(offset);
+        assertTrue(CopyJournal.hasPendingCopies(this.mDst));
+        assertTrue(CopyJournal.hasPendingCopies(this.mDst.getParentFile()));
+
+        // The journal matches the partial file
+        RandomAccessFile raf = new RandomAccessFile(this.mDst, "rw"); //$NON-NLS-1$
+        try {
+            CopyJournal journal = CopyJournal.open(this.mSrc, this.mDst, SIZE);
+            assertEquals(offset, journal.getResumeOffset(raf.getChannel()));
+        } finally {
+            raf.close();
+        }
+
+        // Resume and check the result
+        FileHelper.channelCopy(this.mSrc, this.mDst, 4096);
+        assertFalse(CopyJournal.hasPendingCopies(this.mDst));
+        assertEquals(SIZE, this.mDst.length());
+        assertSameContent(this.mSrc, this.mDst);
+    }
+
+    /**
+     * Method that tests that a partial file that doesn't match the journal is not resumed.
+     *
+     * @throws Exception If test failed
+     */
+    @LargeTest
+    public void testDiscardCorruptedCopy() throws Exception {
+        long offset = CopyJournal.CHECKPOINT_INTERVAL + 1024;
+        interruptedCopy(offset);
+
+        // Corrupt the tail of the partial file
+        RandomAccessFile raf = new RandomAccessFile(this.mDst, "rw"); //$NON-NLS-1$
+        try {
+            raf.seek(offset - 1);
+            raf.write(0xff);
+            CopyJournal journal = CopyJournal.open(this.mSrc, this.mDst, SIZE);
+            assertEquals(0L, journal.getResumeOffset(raf.getChannel()));
+        } finally {
+            raf.close();
+        }
+        assertFalse(CopyJournal.hasPendingCopies(this.mDst));
+
+        // A new copy starts from zero
+        FileHelper.channelCopy(this.mSrc, this.mDst, 4096);
+        assertSameContent(this.mSrc, this.mDst);
+    }
+
+    /**
+     * Method that simulates a copy interrupted after a checkpoint.
+     *
+     * @param offset The offset of the checkpoint
+     * @throws Exception If the copy failed
+     */
+    private void interruptedCopy(long offset) throws Exception {
+        FileInputStream fis = new FileInputStream(this.mSrc);
+        RandomAccessFile raf = new RandomAccessFile(this.mDst, "rw"); //$NON-NLS-1$
+        try {
+            FileChannel out = raf.getChannel();
+            fis.getChannel().transferTo(0, offset + 4096, out);
+            CopyJournal journal = CopyJournal.open(this.mSrc, this.mDst, SIZE);
+            assertNotNull(journal);
+            journal.checkpoint(out, offset);
+            assertTrue(journal.hasCheckpoint());
+        } finally {
+            fis.close();
+            raf.close();
+        }
+    }
+
+    /**
+     * Method that asserts that two files have the same content.
+     *
+     * @param expected The expected file
+     * @param actual The actual file
+     * @throws Exception If the files can't be read
+     */
+    private static void assertSameContent(File expected, File actual) throws Exception {
+        assertEquals(expected.length(), actual.length());
+        FileInputStream is1 = new FileInputStream(expected);
+        FileInputStream is2 = new FileInputStream(actual);
+        try {
+            byte[] b1 = new byte[64 * 1024];
+            byte[] b2 = new byte[64 * 1024];
+            int read;
+            while ((read = is1.read(b1)) != -1) {
+                int read2 = 0;
+                while (read2 < read) {
+                    int r = is2.read(b2, read2, read - read2);
+                    assertTrue(r != -1);
+                    read2 += r;
+                }
+                assertTrue(Arrays.equals(b1, b2));
+            }
+        } finally {
+            is1.close();
+            is2.close();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A class for testing the stages of the search of duplicate files.
+ *
+ * @see DuplicateFinder
+ */
+public class DuplicateFinderTest extends AndroidTestCase {
+
+    // A size that is not hashed completely in the partial hash stage
+    private static final int BIG_SIZE = 3 * DuplicateFinder.PARTIAL_SIZE + 100;
+
+    private File mRoot;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.mRoot = new File(getContext().getCacheDir(), "duplicates"); //$NON-NLS-1$
+        FileHelper.deleteFolder(this.mRoot);
+        assertTrue(new File(this.mRoot, "a/b").mkdirs()); //$NON-NLS-1$
+        assertTrue(new File(this.mRoot, "c").mkdirs()); //$NON-NLS-1$
+
+        // Two small duplicates, and a file of the same size with other content
+        write("a/small1", 10, 0, (byte)1); //$NON-NLS-1$
+        write("c/small2", 10, 0, (byte)1); //$NON-NLS-1$
+        write("a/b/small3", 10, 0, (byte)2); //$NON-NLS-1$
+
+        // Three big files with the same start and end: only two are duplicates
+        write("big1", BIG_SIZE, BIG_SIZE / 2, (byte)1); //$NON-NLS-1$
+        write("a/b/big2", BIG_SIZE, BIG_SIZE / 2, (byte)1); //$NON-NLS-1$
+        write("c/big3", BIG_SIZE, BIG_SIZE / 2, (byte)2); //$NON-NLS-1$
+
+        // The empty files are not duplicates
+        assertTrue(new File(this.mRoot, "empty1").createNewFile()); //$NON-NLS-1$
+        assertTrue(new File(this.mRoot, "c/empty2").createNewFile()); //$NON-NLS-1$
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void tearDown() throws Exception {
+        FileHelper.deleteFolder(this.mRoot);
+        super.tearDown();
+    }
+
+    /**
+     * Method that tests that only the files with the same content are grouped, and
+     * that every stage only reads the survivors of the previous one.
+     */
+    @SmallTest
+    public void testFind() {
+        final List<List<File>> groups = new ArrayList<List<File>>();
+        DuplicateFinder finder = new DuplicateFinder(new File[]{this.mRoot}, 2);
+        finder.setOnDuplicatesListener(new DuplicateFinder.OnDuplicatesListener() {
+            @Override
+            public void onDuplicates(long size, List<File> files) {
+                groups.add(files);
+            }
+        });
+        assertTrue(finder.find());
+
+        assertEquals(2, groups.size());
+        assertEquals(2, finder.getGroups());
+        assertEquals(BIG_SIZE + 10, finder.getWastedSize());
+        assertGroup(groups, "big1", "a/b/big2"); //$NON-NLS-1$ //$NON-NLS-2$
+        assertGroup(groups, "a/small1", "c/small2"); //$NON-NLS-1$ //$NON-NLS-2$
+
+        assertEquals(6, finder.getStageFiles(DuplicateFinder.STAGE_SIZE));
+        assertEquals(6, finder.getStageFiles(DuplicateFinder.STAGE_PARTIAL_HASH));
+        assertEquals(3, finder.getStageFiles(DuplicateFinder.STAGE_FULL_HASH));
+    }
+
+    /**
+     * Method that tests that the files of overlapped roots are not duplicates of
+     * themselves.
+     */
+    @SmallTest
+    public void testOverlappedRoots() {
+        DuplicateFinder finder = new DuplicateFinder(new File[]{
+                new File(this.mRoot, "a"), //$NON-NLS-1$
+                new File(this.mRoot, "a/b"), //$NON-NLS-1$
+                new File(this.mRoot, "a")}, 2); //$NON-NLS-1$
+        assertTrue(finder.find());
+        assertEquals(0, finder.getGroups());
+        assertEquals(3, finder.getStageFiles(DuplicateFinder.STAGE_SIZE));
+    }
+
+    /**
+     * Method that tests that no group is delivered after the search is cancelled.
+     */
+    @SmallTest
+    public void testCancel() {
+        final DuplicateFinder finder = new DuplicateFinder(new File[]{this.mRoot}, 1);
+        finder.setOnDuplicatesListener(new DuplicateFinder.OnDuplicatesListener() {
+            @Override
+            public void onDuplicates(long size, List<File> files) {
+                finder.cancel();
+            }
+        });
+        assertFalse(finder.find());
+        assertTrue(finder.isCancelled());
+        assertEquals(1, finder.getGroups());
+    }
+
+    /**
+     * Method that asserts that a group of duplicates was found.
+     *
+     * @param groups The groups found
+     * @param names The relative paths of the files of the group
+     */
+    private void assertGroup(List<List<File>> groups, String... names) {
+        List<String> expected = new ArrayList<String>();
+        for (String name : names) {
+            expected.add(new File(this.mRoot, name).getAbsolutePath());
+        }
+        for (List<File> group : groups) {
+            List<String> paths = new ArrayList<String>();
+            for (File file : group) {
+                paths.add(file.getAbsolutePath());
+            }
+            if (paths.containsAll(expected) && expected.containsAll(paths)) {
+                return;
+            }
+        }
+        fail("Group not found: " + Arrays.toString(names)); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that writes a test file.
+     *
+     * @param name The relative path of the file
+     * @param size The size of the file
+     * @param pos The position of the byte that differs
+     * @param b The byte that differs
+     * @throws IOException If the file can't be written
+     */
+    private void write(String name, int size, int pos, byte b) throws IOException {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte)(i % 251);
+        }
+        data[pos] = b;
+        FileOutputStream fos = new FileOutputStream(new File(this.mRoot, name));
+        try {
+            fos.write(data);
+        } finally {
+            fos.close();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.model.TransferProgress;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * A class for testing the copy of files through the channels of the files.
+ *
+ * @see FileHelper#channelCopy(File, File, int)
+ * @see FileHelper#bufferedCopy(File, File, int)
+ */
+public class FileHelperCopyTest extends AndroidTestCase {
+
+    private static final String TAG = "FileHelperCopyTest"; //$NON-NLS-1$
+
+    private static final int BUFFER_SIZE = 4096;
+
+    // The sizes of the files (empty, around the buffer size, and around the size of a
+    // transfer of the kernel)
+    private static final long[] SIZES =
+        {
+         0L,
+         1L,
+         BUFFER_SIZE + 1L,
+         FileHelper.PROGRESS_TRANSFER_CHUNK - 1L,
+         FileHelper.PROGRESS_TRANSFER_CHUNK + 1L,
+         FileHelper.TRANSFER_CHUNK + 1L
+        };
+
+    // The sizes of the files of the benchmark (4KB to 64MB, so the source and two
+    // copies fit in the cache partition)
+    private static final long[] BENCHMARK_SIZES =
+        {
+         4L * 1024,
+         64L * 1024,
+         1024L * 1024,
+         16L * 1024 * 1024,
+         64L * 1024 * 1024
+        };
+
+    private File mDir;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.mDir = new File(getContext().getCacheDir(), "copy"); //$NON-NLS-1$
+        FileHelper.deleteFolder(this.mDir);
+        assertTrue("mkdirs " + this.mDir, this.mDir.mkdirs()); //$NON-NLS-1$
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void tearDown() throws Exception {
+        FileHelper.deleteFolder(this.mDir);
+        super.tearDown();
+    }
+
+    /**
+     * Method that tests that the copy preserves the content and the modification time.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testChannelCopy() throws Exception {
+        for (int i = 0; i < SIZES.length; i++) {
+            File src = createFile(new File(this.mDir, "src"), SIZES[i]); //$NON-NLS-1$
+            File dst = new File(this.mDir, "dst"); //$NON-NLS-1$
+            FileHelper.channelCopy(src, dst, BUFFER_SIZE);
+            assertSameFile(src, dst);
+            assertTrue(src.delete());
+            assertTrue(dst.delete());
+        }
+    }
+
+    /**
+     * Method that tests that the copy with progress (in smaller transfers) preserves the
+     * content, and reports all the bytes copied.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testChannelCopyWithProgress() throws Exception {
+        for (int i = 0; i < SIZES.length; i++) {
+            File src = createFile(new File(this.mDir, "src"), SIZES[i]); //$NON-NLS-1$
+            File dst = new File(this.mDir, "dst"); //$NON-NLS-1$
+            ProgressTracker tracker = new ProgressTracker(
+                    null, SIZES[i], (int)TransferProgress.UNKNOWN);
+            FileHelper.channelCopy(src, dst, BUFFER_SIZE, tracker);
+            assertSameFile(src, dst);
+            assertEquals(SIZES[i], tracker.getBytesDone());
+            assertTrue(src.delete());
+            assertTrue(dst.delete());
+        }
+    }
+
+    /**
+     * Method that compares the throughput of the channel and the buffered copies.
+     *
+     * @throws Exception If test failed
+     */
+    @LargeTest
+    public void testThroughput() throws Exception {
+        for (int i = 0; i < BENCHMARK_SIZES.length; i++) {
+            long size = BENCHMARK_SIZES[i];
+            if (size * 3 > this.mDir.getUsableSpace()) {
+                Log.i(TAG, String.format("Skipped %d KB: no free space", //$NON-NLS-1$
+                        Long.valueOf(size / 1024)));
+                continue;
+            }
+            File src = createFile(new File(this.mDir, "src"), size); //$NON-NLS-1$
+            File dst1 = new File(this.mDir, "buffered"); //$NON-NLS-1$
+            File dst2 = new File(this.mDir, "channel"); //$NON-NLS-1$
+
+            long start = System.currentTimeMillis();
+            assertTrue(FileHelper.bufferedCopy(src, dst1, BUFFER_SIZE));
+            long bufferedTime = Math.max(1, System.currentTimeMillis() - start);
+
+            start = System.currentTimeMillis();
+            FileHelper.channelCopy(src, dst2, BUFFER_SIZE);
+            long channelTime = Math.max(1, System.currentTimeMillis() - start);
+
+            Log.i(TAG, String.format(
+                    "%d KB: buffered=%dms (%d KB/s), channel=%dms (%d KB/s)", //$NON-NLS-1$
+                    Long.valueOf(size / 1024),
+                    Long.valueOf(bufferedTime), Long.valueOf(size / bufferedTime),
+                    Long.valueOf(channelTime), Long.valueOf(size / channelTime)));
+
+            assertSameFile(src, dst2);
+            assertTrue(src.delete());
+            assertTrue(dst1.delete());
+            assertTrue(dst2.delete());
+        }
+    }
+
+    /**
+     * Method that checks that a copy has the same size, content and modification time
+     * than its source.
+     *
+     * @param src The source file
+     * @param dst The copy
+     * @throws Exception If the files can't be read
+     */
+    private static void assertSameFile(File src, File dst) throws Exception {
+        assertEquals(src.length(), dst.length());
+        assertEquals(checksum(src), checksum(dst));
+        assertEquals(src.lastModified(), dst.lastModified());
+    }
+
+    /**
+     * Method that returns the checksum of the content of a file.
+     *
+     * @param file The file
+     * @return long The checksum
+     * @throws Exception If the file can't be read
+     */
+    private static long checksum(File file) throws Exception {
+        CRC32 crc = new CRC32();
+        byte[] data = new byte[BUFFER_SIZE];
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            int read;
+            while ((read = fis.read(data)) != -1) {
+                crc.update(data, 0, read);
+            }
+        } finally {
+            fis.close();
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Method that creates a file of the size requested, with a random content (so a
+     * block copied to a wrong offset changes the checksum).
+     *
+     * @param file The file to create
+     * @param size The size of the file
+     * @return File The file
+     * @throws Exception If the file can't be created
+     */
+    private static File createFile(File file, long size) throws Exception {
+        Random random = new Random(size);
+        byte[] data = new byte[64 * 1024];
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            long written = 0;
+            while (written < size) {
+                random.nextBytes(data);
+                int len = (int)Math.min(data.length, size - written);
+                fos.write(data, 0, len);
+                written += len;
+            }
+        } finally {
+            fos.close();
+        }
+        // Use a modification time in the past (with seconds precision)
+        file.setLastModified((System.currentTimeMillis() / 1000L - 3600L) * 1000L);
+        return file;
+    }
+
+}
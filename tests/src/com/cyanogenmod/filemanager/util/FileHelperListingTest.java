@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.cyanogenmod.filemanager.model.Directory;
+import com.cyanogenmod.filemanager.model.FileSystemObject;
+import com.cyanogenmod.filemanager.model.RegularFile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A class for testing the creation of the file system objects of a listing.
+ *
+ * @see FileHelper#createFileSystemObject(File, com.cyanogenmod.filemanager.model.User,
+ * com.cyanogenmod.filemanager.model.Group, com.cyanogenmod.filemanager.model.Permissions,
+ * boolean)
+ */
+public class FileHelperListingTest extends AndroidTestCase {
+
+    private File mDir;
+    private File mFile;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.mDir = new File(getContext().getCacheDir(), "listing"); //$NON-NLS-1$
+        FileHelper.deleteFolder(this.mDir);
+        new File(this.mDir, "folder").mkdirs(); //$NON-NLS-1$
+        this.mFile = new File(this.mDir, "file"); //$NON-NLS-1$
+        FileOutputStream fos = new FileOutputStream(this.mFile);
+        try {
+            fos.write(new byte[1234]);
+        } finally {
+            fos.close();
+        }
+        this.mFile.setLastModified(1000000000000L);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void tearDown() throws Exception {
+        FileHelper.deleteFolder(this.mDir);
+        super.tearDown();
+    }
+
+    /**
+     * Method that tests that the lazy and eager objects of a listing are the same.
+     *
+     * @throws Exception If an exception occurs while executing the test
+     */
+    @SmallTest
+    public void testLazyAttributes() throws Exception {
+        FileSystemObject template = FileHelper.createFileSystemObject(getContext(), this.mDir);
+        assertNotNull(template);
+        File[] files = this.mDir.listFiles();
+        assertEquals(2, files.length);
+        for (File f : files) {
+            FileSystemObject lazy = FileHelper.createFileSystemObject(
+                    f, template.getUser(), template.getGroup(), template.getPermissions(), true);
+            FileSystemObject eager = FileHelper.createFileSystemObject(
+                    f, template.getUser(), template.getGroup(), template.getPermissions(), false);
+            assertEquals(f.isDirectory(), lazy instanceof Directory);
+            assertEquals(f.isFile(), lazy instanceof RegularFile);
+            assertEquals(f.lastModified() / 1000L, lazy.getLastModifiedTime().getTime() / 1000L);
+            assertEquals(eager, lazy);
+        }
+        FileSystemObject file = FileHelper.createFileSystemObject(
+                this.mFile, null, null, null, true);
+        assertEquals(1234L, file.getSize());
+    }
+
+    /**
+     * Method that tests that the identity of the objects doesn't read the deferred
+     * attributes.
+     *
+     * @throws Exception If an exception occurs while executing the test
+     */
+    @SmallTest
+    public void testLazyIdentity() throws Exception {
+        FileSystemObject lazy = new RegularFile(
+                this.mFile.getName(), this.mDir.getAbsolutePath(), null, null, null, null, 0);
+        lazy.setLazyAttributes(this.mFile);
+        FileSystemObject eager = new RegularFile(
+                this.mFile.getName(), this.mDir.getAbsolutePath(), null, null, null, null, 0);
+        Set<FileSystemObject> set = new HashSet<FileSystemObject>();
+        assertTrue(set.add(lazy));
+        assertFalse(set.add(eager));
+        assertEquals(eager, lazy);
+        assertNotNull(lazy.toString());
+
+        // The attributes weren't read yet
+        FileOutputStream fos = new FileOutputStream(this.mFile, true);
+        try {
+            fos.write(new byte[100]);
+        } finally {
+            fos.close();
+        }
+        assertEquals(1334L, lazy.getSize());
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cyanogenmod.filemanager.util;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.MediumTest;
+
+import com.cyanogenmod.filemanager.model.FolderUsage;
+import com.cyanogenmod.filemanager.util.MimeTypeHelper.MimeTypeCategory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+/**
+ * A class for testing the persistent index of the folders usage.
+ *
+ * @see FolderUsageIndex
+ */
+public class FolderUsageIndexTest extends AndroidTestCase {
+
+    private File mRoot;
+    private FolderUsageIndex mIndex;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        MimeTypeHelper.loadMimeTypes(getContext());
+        this.mRoot = new File(getContext().getCacheDir(), "folderusageindex"); //$NON-NLS-1$
+        FileHelper.deleteFolder(this.mRoot);
+        assertTrue(new File(this.mRoot, "a/b").mkdirs()); //$NON-NLS-1$
+        assertTrue(new File(this.mRoot, "c").mkdirs()); //$NON-NLS-1$
+        writeFile("a/1.txt", 100); //$NON-NLS-1$
+        writeFile("a/b/2.mp3", 1000); //$NON-NLS-1$
+        writeFile("a/b/3.mp3", 2000); //$NON-NLS-1$
+        writeFile("c/4.jpg", 10); //$NON-NLS-1$
+        getContext().deleteDatabase(
+                FolderUsageIndex.getDatabaseName(this.mRoot.getAbsolutePath()));
+        this.mIndex = new FolderUsageIndex(getContext(), this.mRoot.getAbsolutePath());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void tearDown() throws Exception {
+        this.mIndex.close();
+        getContext().deleteDatabase(
+                FolderUsageIndex.getDatabaseName(this.mRoot.getAbsolutePath()));
+        FileHelper.deleteFolder(this.mRoot);
+        super.tearDown();
+    }
+
+    /**
+     * Method that tests the first scan of a folder, and the usage of its subfolders.
+     */
+    @MediumTest
+    public void testScan() {
+        String root = this.mRoot.getAbsolutePath();
+        assertNull(this.mIndex.getFolderUsage(root));
+        assertEquals(0, this.mIndex.getLastScan(root));
+
+        FolderUsage usage = this.mIndex.update(root, null);
+        assertUsage(usage, 3, 4, 3110);
+        assertEquals(2, usage.getStatisticsForCategory(MimeTypeCategory.AUDIO));
+        assertUsage(this.mIndex.getFolderUsage(root), 3, 4, 3110);
+        assertTrue(this.mIndex.getLastScan(root) > 0);
+
+        // The subfolders were scanned too
+        FolderUsage a =
+                this.mIndex.getFolderUsage(new File(this.mRoot, "a").getPath()); //$NON-NLS-1$
+        assertUsage(a, 1, 3, 3100);
+        assertEquals(2, a.getStatisticsForCategory(MimeTypeCategory.AUDIO));
+        assertUsage(this.mIndex.getFolderUsage(
+                new File(this.mRoot, "c").getPath()), 0, 1, 10); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that tests the incremental update of the modified folders.
+     *
+     * @throws Exception If the test fails
+     */
+    @MediumTest
+    public void testUpdate() throws Exception {
+        String root = this.mRoot.getAbsolutePath();
+        // A subfolder scanned before its parent
+        assertUsage(this.mIndex.update(
+                new File(this.mRoot, "a").getPath(), null), 1, 3, 3100); //$NON-NLS-1$
+        assertNull(this.mIndex.getFolderUsage(root));
+        assertUsage(this.mIndex.update(root, null), 3, 4, 3110);
+
+        // Make sure that the modification time of the folders changes
+        Thread.sleep(1100L);
+        assertTrue(FileHelper.deleteFolder(new File(this.mRoot, "a/b"))); //$NON-NLS-1$
+        assertTrue(new File(this.mRoot, "c/d").mkdirs()); //$NON-NLS-1$
+        writeFile("c/d/5.txt", 5); //$NON-NLS-1$
+        // The last scan until the update
+        assertUsage(this.mIndex.getFolderUsage(root), 3, 4, 3110);
+        assertUsage(this.mIndex.update(root, null), 3, 3, 115);
+        assertUsage(this.mIndex.getFolderUsage(root), 3, 3, 115);
+        assertNull(this.mIndex.getFolderUsage(
+                new File(this.mRoot, "a/b").getPath())); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that tests that a cancelled update doesn't modify the index.
+     */
+    @MediumTest
+    public void testCancel() {
+        String root = this.mRoot.getAbsolutePath();
+        FolderUsage usage = this.mIndex.update(root, new FolderUsageIndex.OnProgressListener() {
+            @Override
+            public boolean onProgress(FolderUsage partial) {
+                return false;
+            }
+        });
+        assertNull(usage);
+        assertNull(this.mIndex.getFolderUsage(root));
+        assertUsage(this.mIndex.update(root, null), 3, 4, 3110);
+    }
+
+    /**
+     * Method that checks the totals of an usage.
+     *
+     * @param usage The usage
+     * @param folders The expected number of folders
+     * @param files The expected number of files
+     * @param size The expected size
+     */
+    private static void assertUsage(FolderUsage usage, int folders, int files, long size) {
+        assertNotNull(usage);
+        assertEquals(folders, usage.getNumberOfFolders());
+        assertEquals(files, usage.getNumberOfFiles());
+        assertEquals(size, usage.getTotalSize());
+    }
+
+    /**
+     * Method that writes a file of a size.
+     *
+     * @param path The relative path of the file
+     * @param size The size of the file
+     * @throws Exception If the file can't be written
+     */
+    private void writeFile(String path, int size) throws Exception {
+        FileOutputStream fos = new FileOutputStream(new File(this.mRoot, path));
+        try {
+            fos.write(new byte[size]);
+        } finally {
+            fos.close();
+        }
+    }
+}
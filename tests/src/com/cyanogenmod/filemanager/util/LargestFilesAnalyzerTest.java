@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.cyanogenmod.filemanager.model.SizeRanking;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A class for testing the ranking of the largest files and folders.
+ *
+ * @see LargestFilesAnalyzer
+ */
+public class LargestFilesAnalyzerTest extends AndroidTestCase {
+
+    private File mRoot;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.mRoot = new File(getContext().getCacheDir(), "largest"); //$NON-NLS-1$
+        FileHelper.deleteFolder(this.mRoot);
+        assertTrue(new File(this.mRoot, "a/b/c").mkdirs()); //$NON-NLS-1$
+        assertTrue(new File(this.mRoot, "d").mkdirs()); //$NON-NLS-1$
+        assertTrue(new File(this.mRoot, "e").mkdirs()); //$NON-NLS-1$
+
+        write("f1", 100); //$NON-NLS-1$
+        write("a/f2", 200); //$NON-NLS-1$
+        write("a/b/f3", 300); //$NON-NLS-1$
+        write("a/b/c/f4", 400); //$NON-NLS-1$
+        write("d/f5", 500); //$NON-NLS-1$
+        write("d/f6", 50); //$NON-NLS-1$
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void tearDown() throws Exception {
+        FileHelper.deleteFolder(this.mRoot);
+        super.tearDown();
+    }
+
+    /**
+     * Method that tests that only the K largest files and folders are ranked, and that
+     * the size of the folders includes its subfolders.
+     */
+    @SmallTest
+    public void testRanking() {
+        LargestFilesAnalyzer analyzer = new LargestFilesAnalyzer(this.mRoot, 3, 2);
+        assertTrue(analyzer.analyze());
+        SizeRanking ranking = analyzer.getRanking();
+
+        List<SizeRanking.Entry> files = ranking.getFiles();
+        assertEquals(3, files.size());
+        assertEntry(files.get(0), "d/f5", 500); //$NON-NLS-1$
+        assertEntry(files.get(1), "a/b/c/f4", 400); //$NON-NLS-1$
+        assertEntry(files.get(2), "a/b/f3", 300); //$NON-NLS-1$
+
+        List<SizeRanking.Entry> folders = ranking.getFolders();
+        assertEquals(3, folders.size());
+        assertEntry(folders.get(0), "a", 900); //$NON-NLS-1$
+        assertEntry(folders.get(1), "a/b", 700); //$NON-NLS-1$
+        assertEntry(folders.get(2), "d", 550); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that tests that the final ranking is delivered to the listener.
+     */
+    @SmallTest
+    public void testListener() {
+        final SizeRanking[] last = new SizeRanking[1];
+        LargestFilesAnalyzer analyzer =
+                new LargestFilesAnalyzer(this.mRoot, LargestFilesAnalyzer.DEFAULT_COUNT, 1);
+        analyzer.setOnRankingListener(new LargestFilesAnalyzer.OnRankingListener() {
+            @Override
+            public void onRanking(SizeRanking ranking) {
+                last[0] = ranking;
+            }
+        });
+        assertTrue(analyzer.analyze());
+        assertNotNull(last[0]);
+        assertEquals(6, last[0].getFiles().size());
+        assertEquals(4, last[0].getFolders().size());
+    }
+
+    /**
+     * Method that tests that a cancelled analysis is not completed.
+     */
+    @SmallTest
+    public void testCancel() {
+        LargestFilesAnalyzer analyzer = new LargestFilesAnalyzer(this.mRoot, 3, 1);
+        analyzer.cancel();
+        assertFalse(analyzer.analyze());
+        assertTrue(analyzer.isCancelled());
+    }
+
+    /**
+     * Method that tests the bounded heap.
+     */
+    @SmallTest
+    public void testBoundedHeap() {
+        LargestFilesAnalyzer.BoundedHeap heap = new LargestFilesAnalyzer.BoundedHeap(3);
+        long[] sizes = {5, 1, 9, 3, 7, 2, 8};
+        for (long size : sizes) {
+            heap.offer(String.valueOf(size), size);
+        }
+        assertFalse(heap.offer("0", 0)); //$NON-NLS-1$
+        List<SizeRanking.Entry> entries = heap.toList();
+        assertEquals(3, entries.size());
+        assertEquals(9, entries.get(0).getSize());
+        assertEquals(8, entries.get(1).getSize());
+        assertEquals(7, entries.get(2).getSize());
+    }
+
+    /**
+     * Method that asserts an entry of the ranking.
+     *
+     * @param entry The entry
+     * @param name The expected relative path
+     * @param size The expected size
+     */
+    private void assertEntry(SizeRanking.Entry entry, String name, long size) {
+        assertEquals(new File(this.mRoot, name).getPath(), entry.getPath());
+        assertEquals(size, entry.getSize());
+    }
+
+    /**
+     * Method that writes a test file.
+     *
+     * @param name The relative path of the file
+     * @param size The size of the file
+     * @throws IOException If the file can't be written
+     */
+    private void write(String name, int size) throws IOException {
+        FileOutputStream fos = new FileOutputStream(new File(this.mRoot, name));
+        try {
+            fos.write(new byte[size]);
+        } finally {
+            fos.close();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cyanogenmod.filemanager.util;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A class for testing the parallel gzip compression and measure its throughput.
+ *
+ * @see ParallelGZIPOutputStream
+ */
+public class ParallelGZIPOutputStreamTest extends AndroidTestCase {
+
+    private static final String TAG = "ParallelGZIPOutputStreamTest"; //$NON-NLS-1$
+
+    // The size of the data of the benchmark
+    private static final int BENCHMARK_SIZE = 32 * 1024 * 1024;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        assertTrue("Sync flush not supported", //$NON-NLS-1$
+                ParallelGZIPOutputStream.isSupported());
+    }
+
+    /**
+     * Method that tests that the combined crc is the crc of the concatenated data.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testCombineCrc() throws Exception {
+        byte[] data = createData(100000);
+        int[] splits = {0, 1, 4096, 65536, 99999, 100000};
+        for (int split : splits) {
+            CRC32 crc1 = new CRC32();
+            crc1.update(data, 0, split);
+            CRC32 crc2 = new CRC32();
+            crc2.update(data, split, data.length - split);
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            assertEquals((int)crc.getValue(), ParallelGZIPOutputStream.combineCrc(
+                    (int)crc1.getValue(), (int)crc2.getValue(), data.length - split));
+        }
+    }
+
+    /**
+     * Method that tests that the compressed data is a standard gzip stream.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testRoundTrip() throws Exception {
+        int[] sizes = {0, 1, 1000,
+                ParallelGZIPOutputStream.DEFAULT_BLOCK_SIZE,
+                ParallelGZIPOutputStream.DEFAULT_BLOCK_SIZE + 1,
+                ParallelGZIPOutputStream.DEFAULT_BLOCK_SIZE * 10 + 17};
+        for (int size : sizes) {
+            byte[] data = createData(size);
+            byte[] compressed = compress(data, 4);
+            GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            in.close();
+            assertTrue("size " + size, Arrays.equals(data, out.toByteArray())); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Method that measures the throughput of the compression with the number of threads.
+     *
+     * @throws Exception If test failed
+     */
+    @LargeTest
+    public void testThroughput() throws Exception {
+        byte[] data = createData(BENCHMARK_SIZE);
+
+        long start = System.currentTimeMillis();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(BENCHMARK_SIZE);
+        GZIPOutputStream gzip = new GZIPOutputStream(baos, 64 * 1024);
+        gzip.write(data);
+        gzip.close();
+        logThroughput("GZIPOutputStream", 1, //$NON-NLS-1$
+                System.currentTimeMillis() - start, baos.size());
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores * 2; threads *= 2) {
+            start = System.currentTimeMillis();
+            byte[] compressed = compress(data, threads);
+            logThroughput("ParallelGZIPOutputStream", threads, //$NON-NLS-1$
+                    System.currentTimeMillis() - start, compressed.length);
+        }
+    }
+
+    private static void logThroughput(String name, int threads, long time, int size) {
+        Log.i(TAG, String.format("%s %d threads: %dms, %.1f MB/s, ratio %.3f", //$NON-NLS-1$
+                name, Integer.valueOf(threads), Long.valueOf(time),
+                Double.valueOf(BENCHMARK_SIZE / 1048576.0 / (Math.max(1, time) / 1000.0)),
+                Double.valueOf((double)size / BENCHMARK_SIZE)));
+    }
+
+    private static byte[] compress(byte[] data, int threads) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(data.length / 2 + 64);
+        OutputStream out = new ParallelGZIPOutputStream(baos, threads);
+        out.write(data);
+        out.close();
+        return baos.toByteArray();
+    }
+
+    private static byte[] createData(int size) {
+        // Text-like data, that can be compressed
+        Random random = new Random(size);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (i % 64 == 63) ? (byte)'\n' : (byte)('a' + random.nextInt(12));
+        }
+        return data;
+    }
+}
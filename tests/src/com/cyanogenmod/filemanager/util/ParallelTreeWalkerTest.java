@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cyanogenmod.filemanager.util;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A class for testing the loop detection, the symbolic link policy and the depth limit
+ * of the tree walks.
+ *
+ * @see ParallelTreeWalker
+ */
+public class ParallelTreeWalkerTest extends AndroidTestCase {
+
+    private File mRoot;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.mRoot = new File(getContext().getCacheDir(), "treewalker"); //$NON-NLS-1$
+        FileHelper.deleteFolder(this.mRoot);
+        // root/a/b/c/d, with a link from root/a/b/loop to root/a
+        assertTrue(new File(this.mRoot, "a/b/c/d").mkdirs()); //$NON-NLS-1$
+        assertTrue(new File(this.mRoot, "a/b/c/file").createNewFile()); //$NON-NLS-1$
+        assertTrue(Archiver.symlink("../../a", //$NON-NLS-1$
+                new File(this.mRoot, "a/b/loop"))); //$NON-NLS-1$
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void tearDown() throws Exception {
+        FileHelper.deleteFolder(this.mRoot);
+        assertFalse(this.mRoot.exists());
+        super.tearDown();
+    }
+
+    /**
+     * Method that tests that a symbolic link to a parent folder doesn't loop the walk.
+     */
+    @SmallTest
+    public void testFollowLoop() {
+        CountingWalker walker = new CountingWalker(4);
+        walker.walk(this.mRoot);
+        // a, b, c, d, file and loop are visited once; loop is not walked (a was walked)
+        assertEquals(6, walker.mVisited.get());
+        assertEquals(5, walker.mFolders.get());
+        assertEquals(5, walker.mWalked.get());
+        assertEquals(1, walker.mSkipped.get());
+    }
+
+    /**
+     * Method that tests that a symbolic link to a parent folder doesn't loop the walk
+     * when the folders are only compared with their ancestors.
+     */
+    @SmallTest
+    public void testAncestorLoop() {
+        CountingWalker walker = new CountingWalker(4);
+        walker.setAncestorLoopCheck(true);
+        walker.walk(this.mRoot);
+        // loop points to a, an ancestor of b, so it is not walked
+        assertEquals(6, walker.mVisited.get());
+        assertEquals(5, walker.mFolders.get());
+        assertEquals(5, walker.mWalked.get());
+        assertEquals(1, walker.mSkipped.get());
+    }
+
+    /**
+     * Method that tests that the symbolic links not followed are visited as files.
+     */
+    @SmallTest
+    public void testNoFollow() {
+        CountingWalker walker = new CountingWalker(2);
+        walker.setFollowSymlinks(false);
+        walker.walk(this.mRoot);
+        assertEquals(6, walker.mVisited.get());
+        assertEquals(4, walker.mFolders.get());
+        assertEquals(5, walker.mWalked.get());
+    }
+
+    /**
+     * Method that tests the depth limit of the walk.
+     */
+    @SmallTest
+    public void testMaxDepth() {
+        CountingWalker walker = new CountingWalker(2);
+        walker.setMaxDepth(2);
+        walker.walk(this.mRoot);
+        // a (depth 1) and b (depth 2) are visited; only the root and a are walked
+        assertEquals(2, walker.mVisited.get());
+        assertEquals(2, walker.mWalked.get());
+        assertEquals(1, walker.mSkipped.get());
+    }
+
+    /**
+     * Method that tests the set of visited inodes.
+     */
+    @SmallTest
+    public void testInodeSet() {
+        ParallelTreeWalker.InodeSet set = new ParallelTreeWalker.InodeSet();
+        for (long i = 0; i < 10000; i++) {
+            assertTrue(set.add(i % 3, i));
+        }
+        for (long i = 0; i < 10000; i++) {
+            assertFalse(set.add(i % 3, i));
+        }
+        assertTrue(set.add(5, 1));
+        assertEquals(10001, set.size());
+    }
+
+    /**
+     * A walker that counts the visited files.
+     */
+    private static class CountingWalker extends ParallelTreeWalker {
+        final AtomicInteger mVisited = new AtomicInteger();
+        final AtomicInteger mFolders = new AtomicInteger();
+        final AtomicInteger mWalked = new AtomicInteger();
+        final AtomicInteger mSkipped = new AtomicInteger();
+
+        CountingWalker(int parallelism) {
+            super(parallelism);
+        }
+
+        @Override
+        protected boolean onVisit(int worker, File file, boolean isDirectory) {
+            this.mVisited.incrementAndGet();
+            if (isDirectory) {
+                this.mFolders.incrementAndGet();
+            }
+            return true;
+        }
+
+        @Override
+        protected void onFolderWalked(int worker, File folder) {
+            this.mWalked.incrementAndGet();
+        }
+
+        @Override
+        protected void onFolderSkipped(int worker, File folder) {
+            this.mSkipped.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.cyanogenmod.filemanager.commands.TransferProgressListener;
+import com.cyanogenmod.filemanager.model.TransferProgress;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class for testing the progress tracker of the copy and move operations.
+ *
+ * @see ProgressTracker
+ */
+public class ProgressTrackerTest extends AndroidTestCase {
+
+    /**
+     * @hide
+     */
+    final List<TransferProgress> mEvents = new ArrayList<TransferProgress>();
+
+    /**
+     * Method that tests that the notifications are throttled.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testThrottledNotifications() throws Exception {
+        ProgressTracker tracker = new ProgressTracker(new TransferProgressListener() {
+            @Override
+            public void onTransferProgress(TransferProgress progress) {
+                ProgressTrackerTest.this.mEvents.add(progress);
+            }
+        }, 1000L, 10);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            tracker.addBytes(100L);
+            tracker.addFile();
+        }
+        tracker.finish();
+        long elapsed = System.currentTimeMillis() - start;
+
+        // At most one notification every MIN_INTERVAL, plus the final one
+        assertTrue(this.mEvents.size() <= elapsed / ProgressTracker.MIN_INTERVAL + 1);
+        TransferProgress last = this.mEvents.get(this.mEvents.size() - 1);
+        assertEquals(1000L, last.getBytesDone());
+        assertEquals(1000L, last.getBytesTotal());
+        assertEquals(10, last.getFilesDone());
+        assertEquals(100, last.getPercentage());
+    }
+
+    /**
+     * Method that tests that the measure of the sources doesn't follow the symbolic links
+     * (a link to the folder itself or to its parent doesn't loop the measure).
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testMeasureLinkLoop() throws Exception {
+        File root = new File(getContext().getCacheDir(), "measure"); //$NON-NLS-1$
+        FileHelper.deleteFolder(root);
+        try {
+            // root/a/file (100 bytes), with the links root/a/self -> . and root/a/up -> ..
+            File folder = new File(root, "a"); //$NON-NLS-1$
+            assertTrue(folder.mkdirs());
+            FileOutputStream fos = new FileOutputStream(new File(folder, "file")); //$NON-NLS-1$
+            try {
+                fos.write(new byte[100]);
+            } finally {
+                fos.close();
+            }
+            assertTrue(Archiver.symlink(".", new File(folder, "self"))); //$NON-NLS-1$ //$NON-NLS-2$
+            assertTrue(Archiver.symlink("..", new File(folder, "up"))); //$NON-NLS-1$ //$NON-NLS-2$
+
+            // The links are measured as files without size
+            long[] size = new long[2];
+            ProgressTracker.measure(root, size);
+            assertEquals(100L, size[0]);
+            assertEquals(3L, size[1]);
+
+            // A link as source is not followed either
+            size = new long[2];
+            ProgressTracker.measure(new File(folder, "up"), size); //$NON-NLS-1$
+            assertEquals(0L, size[0]);
+            assertEquals(1L, size[1]);
+        } finally {
+            FileHelper.deleteFolder(root);
+        }
+    }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cyanogenmod.filemanager.util;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.MediumTest;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.cyanogenmod.filemanager.model.Query;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A class for testing the search index of the names of the files.
+ *
+ * @see SearchIndex
+ */
+public class SearchIndexTest extends AndroidTestCase {
+
+    private File mRoot;
+    private SearchIndex mIndex;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.mRoot = new File(getContext().getCacheDir(), "searchindex"); //$NON-NLS-1$
+        FileHelper.deleteFolder(this.mRoot);
+        assertTrue(new File(this.mRoot, "music/rock").mkdirs()); //$NON-NLS-1$
+        assertTrue(new File(this.mRoot, "photos").mkdirs()); //$NON-NLS-1$
+        assertTrue(new File(this.mRoot, "music/Holiday.mp3").createNewFile()); //$NON-NLS-1$
+        assertTrue(new File(this.mRoot, "music/rock/holidays.ogg").createNewFile()); //$NON-NLS-1$
+        assertTrue(new File(this.mRoot, "photos/holiday1.jpg").createNewFile()); //$NON-NLS-1$
+        assertTrue(new File(this.mRoot, "photos/ab").createNewFile()); //$NON-NLS-1$
+        getContext().deleteDatabase(SearchIndex.getDatabaseName(this.mRoot.getAbsolutePath()));
+        this.mIndex = new SearchIndex(getContext(), this.mRoot.getAbsolutePath());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void tearDown() throws Exception {
+        this.mIndex.close();
+        getContext().deleteDatabase(SearchIndex.getDatabaseName(this.mRoot.getAbsolutePath()));
+        FileHelper.deleteFolder(this.mRoot);
+        super.tearDown();
+    }
+
+    /**
+     * Method that tests the trigrams of the names and the queries.
+     */
+    @SmallTest
+    public void testTrigrams() {
+        assertEquals(0, SearchIndex.getTrigrams("ab").length); //$NON-NLS-1$
+        // "aaa" is repeated
+        assertEquals(2, SearchIndex.getTrigrams("aaaab").length); //$NON-NLS-1$
+        // The case is ignored
+        assertTrue(Arrays.equals(
+                SearchIndex.getTrigrams("ABC"), //$NON-NLS-1$
+                SearchIndex.getTrigrams("abc"))); //$NON-NLS-1$
+        // The wildcards split the fragments; fragments shorter than 3 chars hasn't trigrams
+        assertEquals(2, SearchIndex.getQueryTrigrams("abc*de*fgh").length); //$NON-NLS-1$
+        assertEquals(0, SearchIndex.getQueryTrigrams("ab*cd").length); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that tests that the index can't answer before the first scan.
+     */
+    @SmallTest
+    public void testNotScanned() {
+        assertFalse(this.mIndex.isComplete());
+        assertNull(this.mIndex.search(createQuery("holiday"), //$NON-NLS-1$
+                this.mRoot.getAbsolutePath()));
+    }
+
+    /**
+     * Method that tests the search in the index.
+     */
+    @MediumTest
+    public void testSearch() {
+        assertTrue(this.mIndex.update());
+        assertTrue(this.mIndex.isComplete());
+        String root = this.mRoot.getAbsolutePath();
+
+        assertEquals(Arrays.asList(
+                    "music/Holiday.mp3", //$NON-NLS-1$
+                    "music/rock/holidays.ogg", //$NON-NLS-1$
+                    "photos/holiday1.jpg"), //$NON-NLS-1$
+                search(createQuery("HOLIDAY"), root)); //$NON-NLS-1$
+        assertEquals(Arrays.asList("photos/holiday1.jpg"), //$NON-NLS-1$
+                search(createQuery("hol*1"), root)); //$NON-NLS-1$
+        // Short terms check all the names
+        assertEquals(Arrays.asList("photos/ab"), //$NON-NLS-1$
+                search(createQuery("ab"), root)); //$NON-NLS-1$
+        // Folders are indexed too
+        assertEquals(Arrays.asList("music/rock"), //$NON-NLS-1$
+                search(createQuery("rock"), root)); //$NON-NLS-1$
+        // Only the files of the search directory
+        assertEquals(Arrays.asList("music/rock/holidays.ogg"), //$NON-NLS-1$
+                search(createQuery("holiday"), //$NON-NLS-1$
+                        new File(this.mRoot, "music/rock").getAbsolutePath())); //$NON-NLS-1$
+        // Outside the index
+        assertNull(this.mIndex.search(createQuery("holiday"), //$NON-NLS-1$
+                getContext().getCacheDir().getAbsolutePath()));
+    }
+
+    /**
+     * Method that tests that the search directory is case-sensitive.
+     *
+     * @throws Exception If the test fails
+     */
+    @MediumTest
+    public void testSearchCaseSensitiveDirectory() throws Exception {
+        assertTrue(new File(this.mRoot, "Music").mkdirs()); //$NON-NLS-1$
+        assertTrue(new File(this.mRoot, "Music/holiday4.mp3").createNewFile()); //$NON-NLS-1$
+        assertTrue(this.mIndex.update());
+
+        // The sibling folder that only differs in the case is not searched
+        assertEquals(Arrays.asList(
+                    "music/Holiday.mp3", //$NON-NLS-1$
+                    "music/rock/holidays.ogg"), //$NON-NLS-1$
+                search(createQuery("holiday"), //$NON-NLS-1$
+                        new File(this.mRoot, "music").getAbsolutePath())); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that tests the incremental rescan of the modified folders.
+     *
+     * @throws Exception If the test fails
+     */
+    @MediumTest
+    public void testUpdate() throws Exception {
+        assertTrue(this.mIndex.update());
+        String root = this.mRoot.getAbsolutePath();
+
+        // The removed files are not returned, even before the rescan
+        assertTrue(new File(this.mRoot, "photos/holiday1.jpg").delete()); //$NON-NLS-1$
+        assertEquals(Arrays.asList(
+                    "music/Holiday.mp3", //$NON-NLS-1$
+                    "music/rock/holidays.ogg"), //$NON-NLS-1$
+                search(createQuery("holiday"), root)); //$NON-NLS-1$
+
+        // Make sure that the modification time of the folders changes
+        Thread.sleep(1100L);
+        assertTrue(new File(this.mRoot, "photos/holiday2.jpg").createNewFile()); //$NON-NLS-1$
+        assertTrue(new File(this.mRoot, "music/new/deep").mkdirs()); //$NON-NLS-1$
+        assertTrue(new File(this.mRoot,
+                "music/new/deep/holiday3.png").createNewFile()); //$NON-NLS-1$
+        assertTrue(FileHelper.deleteFolder(new File(this.mRoot, "music/rock"))); //$NON-NLS-1$
+        assertTrue(this.mIndex.update());
+        assertEquals(Arrays.asList(
+                    "music/Holiday.mp3", //$NON-NLS-1$
+                    "music/new/deep/holiday3.png", //$NON-NLS-1$
+                    "photos/holiday2.jpg"), //$NON-NLS-1$
+                search(createQuery("holiday"), root)); //$NON-NLS-1$
+        assertEquals(0, search(createQuery("rock"), root).size()); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that creates a query of a single term.
+     *
+     * @param term The term
+     * @return Query The query
+     */
+    private static Query createQuery(String term) {
+        return new Query().setSlot(term, 0);
+    }
+
+    /**
+     * Method that searches in the index and returns the sorted relative paths found.
+     *
+     * @param query The query
+     * @param directory The search directory
+     * @return List<String> The relative paths of the files found
+     */
+    private List<String> search(Query query, String directory) {
+        List<File> files = this.mIndex.search(query, directory);
+        assertNotNull(files);
+        String root = this.mRoot.getAbsolutePath() + File.separator;
+        List<String> paths = new ArrayList<String>();
+        for (File file : files) {
+            paths.add(file.getAbsolutePath().substring(root.length()));
+        }
+        Collections.sort(paths);
+        return paths;
+    }
+}
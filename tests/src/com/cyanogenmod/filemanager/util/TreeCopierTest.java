@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.MediumTest;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+/**
+ * A class for testing the parallel copy of trees.
+ *
+ * @see TreeCopier
+ */
+public class TreeCopierTest extends AndroidTestCase {
+
+    private static final String TAG = "TreeCopierTest"; //$NON-NLS-1$
+
+    private static final int FOLDERS = 20;
+    private static final int FILES = 100;
+
+    private File mSrc;
+    private File mDst;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.mSrc = new File(getContext().getCacheDir(), "treecopier-src"); //$NON-NLS-1$
+        this.mDst = new File(getContext().getCacheDir(), "treecopier-dst"); //$NON-NLS-1$
+        FileHelper.deleteFolder(this.mSrc);
+        FileHelper.deleteFolder(this.mDst);
+        for (int i = 0; i < FOLDERS; i++) {
+            File folder = new File(this.mSrc, "d" + i + "/s"); //$NON-NLS-1$ //$NON-NLS-2$
+            assertTrue("mkdirs " + folder, folder.mkdirs()); //$NON-NLS-1$
+            for (int j = 0; j < FILES; j++) {
+                FileOutputStream fos =
+                        new FileOutputStream(new File(folder, "f" + j)); //$NON-NLS-1$
+                try {
+                    fos.write(new byte[j]);
+                } finally {
+                    fos.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void tearDown() throws Exception {
+        FileHelper.deleteFolder(this.mSrc);
+        FileHelper.deleteFolder(this.mDst);
+        super.tearDown();
+    }
+
+    /**
+     * Method that tests the copy of a tree with many small files.
+     *
+     * @throws Exception If test failed
+     */
+    @MediumTest
+    public void testCopyTree() throws Exception {
+        long start = System.currentTimeMillis();
+        assertTrue(new TreeCopier(this.mSrc, this.mDst, 4096).copy());
+        Log.i(TAG, String.format("Copied %d files in %dms", //$NON-NLS-1$
+                Integer.valueOf(FOLDERS * FILES),
+                Long.valueOf(System.currentTimeMillis() - start)));
+
+        for (int i = 0; i < FOLDERS; i++) {
+            File src = new File(this.mSrc, "d" + i + "/s"); //$NON-NLS-1$ //$NON-NLS-2$
+            File dst = new File(this.mDst, "d" + i + "/s"); //$NON-NLS-1$ //$NON-NLS-2$
+            assertTrue(dst.isDirectory());
+            assertEquals(src.lastModified(), dst.lastModified());
+            for (int j = 0; j < FILES; j++) {
+                assertEquals(j, new File(dst, "f" + j).length()); //$NON-NLS-1$
+            }
+        }
+    }
+
+    /**
+     * Method that tests that the symbolic links are copied as links, and that the folder
+     * referenced by a link is copied completely.
+     *
+     * @throws Exception If test failed
+     */
+    @MediumTest
+    public void testCopyLinks() throws Exception {
+        assertTrue(Archiver.symlink("d0", new File(this.mSrc, "l0"))); //$NON-NLS-1$ //$NON-NLS-2$
+        assertTrue(new TreeCopier(this.mSrc, this.mDst, 4096).copy());
+
+        File link = new File(this.mDst, "l0"); //$NON-NLS-1$
+        assertTrue(FileHelper.isLink(link));
+        assertEquals("d0", FileHelper.readLink(link)); //$NON-NLS-1$
+        File dst = new File(this.mDst, "d0/s"); //$NON-NLS-1$
+        for (int j = 0; j < FILES; j++) {
+            assertEquals(j, new File(dst, "f" + j).length()); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Method that tests that a cancelled copy is not completed.
+     *
+     * @throws Exception If test failed
+     */
+    @MediumTest
+    public void testCancelledCopy() throws Exception {
+        TreeCopier copier = new TreeCopier(this.mSrc, this.mDst, 4096);
+        copier.cancel();
+        assertFalse(copier.copy());
+        assertTrue(copier.isCancelled());
+    }
+
+    /**
+     * Method that tests the move of a tree (the source files and folders are deleted
+     * once copied).
+     *
+     * @throws Exception If test failed
+     */
+    @MediumTest
+    public void testMoveTree() throws Exception {
+        TreeCopier copier = new TreeCopier(this.mSrc, this.mDst, 4096);
+        copier.setMoveMode(true);
+        assertTrue(copier.copy());
+        assertFalse(this.mSrc.exists());
+
+        for (int i = 0; i < FOLDERS; i++) {
+            File dst = new File(this.mDst, "d" + i + "/s"); //$NON-NLS-1$ //$NON-NLS-2$
+            assertTrue(dst.isDirectory());
+            for (int j = 0; j < FILES; j++) {
+                assertEquals(j, new File(dst, "f" + j).length()); //$NON-NLS-1$
+            }
+        }
+    }
+
+    /**
+     * Method that tests that the move of a tree moves the symbolic links, not the files
+     * that they reference.
+     *
+     * @throws Exception If test failed
+     */
+    @MediumTest
+    public void testMoveLinks() throws Exception {
+        File target = new File(this.mSrc, "d0/s"); //$NON-NLS-1$
+        File tree = new File(this.mSrc, "tree"); //$NON-NLS-1$
+        assertTrue(new File(tree, "d").mkdirs()); //$NON-NLS-1$
+        assertTrue(Archiver.symlink(
+                target.getAbsolutePath(), new File(tree, "d/l"))); //$NON-NLS-1$
+        File link = new File(this.mSrc, "l"); //$NON-NLS-1$
+        assertTrue(Archiver.symlink(target.getAbsolutePath(), link));
+        assertTrue(this.mDst.mkdir());
+
+        // A tree with a link, and a link
+        TreeCopier copier = new TreeCopier(tree, new File(this.mDst, "tree"), 4096); //$NON-NLS-1$
+        copier.setMoveMode(true);
+        assertTrue(copier.copy());
+        copier = new TreeCopier(link, new File(this.mDst, "l"), 4096); //$NON-NLS-1$
+        copier.setMoveMode(true);
+        assertTrue(copier.copy());
+
+        assertFalse(tree.exists());
+        assertFalse(FileHelper.isLink(link));
+        assertTrue(FileHelper.isLink(new File(this.mDst, "tree/d/l"))); //$NON-NLS-1$
+        assertTrue(FileHelper.isLink(new File(this.mDst, "l"))); //$NON-NLS-1$
+        for (int j = 0; j < FILES; j++) {
+            assertEquals(j, new File(target, "f" + j).length()); //$NON-NLS-1$
+        }
+    }
+
+}
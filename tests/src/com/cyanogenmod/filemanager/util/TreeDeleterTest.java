@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cyanogenmod.filemanager.util;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.model.TransferProgress;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * A class for testing the parallel delete of trees.
+ *
+ * @see TreeDeleter
+ * @see FileHelper#deleteFolder(File)
+ */
+public class TreeDeleterTest extends AndroidTestCase {
+
+    private static final String TAG = "TreeDeleterTest"; //$NON-NLS-1$
+
+    // The benchmark tree: 20 x 5 folders with 200 empty files each (20k files)
+    private static final int BENCHMARK_TOP_FOLDERS = 20;
+    private static final int BENCHMARK_SUB_FOLDERS = 5;
+    private static final int BENCHMARK_FILES = 200;
+
+    private File mRoot;
+    private File mTarget;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        File base = getContext().getCacheDir();
+        this.mRoot = new File(base, "treedeleter"); //$NON-NLS-1$
+        this.mTarget = new File(base, "treedeleter-target"); //$NON-NLS-1$
+        FileHelper.deleteFolder(this.mRoot);
+        FileHelper.deleteFolder(this.mTarget);
+
+        // root/a/b/file1, root/a/file2 and root/file3, with a link from root/a/link to
+        // a folder outside the tree (target/file4)
+        assertTrue(new File(this.mRoot, "a/b").mkdirs()); //$NON-NLS-1$
+        assertTrue(new File(this.mRoot, "a/b/file1").createNewFile()); //$NON-NLS-1$
+        assertTrue(new File(this.mRoot, "a/file2").createNewFile()); //$NON-NLS-1$
+        assertTrue(new File(this.mRoot, "file3").createNewFile()); //$NON-NLS-1$
+        assertTrue(this.mTarget.mkdirs());
+        assertTrue(new File(this.mTarget, "file4").createNewFile()); //$NON-NLS-1$
+        assertTrue(Archiver.symlink(this.mTarget.getAbsolutePath(),
+                new File(this.mRoot, "a/link"))); //$NON-NLS-1$
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void tearDown() throws Exception {
+        new File(this.mRoot, "a/b").setWritable(true); //$NON-NLS-1$
+        FileHelper.deleteFolder(this.mRoot);
+        FileHelper.deleteFolder(this.mTarget);
+        super.tearDown();
+    }
+
+    /**
+     * Method that tests that the tree is deleted, but not the target of its links.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testDelete() throws Exception {
+        ProgressTracker tracker = new ProgressTracker(
+                null, TransferProgress.UNKNOWN, (int)TransferProgress.UNKNOWN);
+        TreeDeleter deleter = new TreeDeleter(this.mRoot, 2);
+        deleter.setProgressTracker(tracker);
+        assertTrue(deleter.delete());
+        assertTrue(deleter.getFailures().isEmpty());
+        assertFalse(this.mRoot.exists());
+
+        // The link was deleted, not its target
+        assertTrue(new File(this.mTarget, "file4").exists()); //$NON-NLS-1$
+
+        // The 3 files, the link, the 2 folders and the root
+        assertEquals(7, tracker.getFilesDone());
+    }
+
+    /**
+     * Method that tests that the entries that can't be deleted are reported.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testFailures() throws Exception {
+        // The files of a read-only folder can't be deleted
+        File folder = new File(this.mRoot, "a/b"); //$NON-NLS-1$
+        assertTrue(folder.setWritable(false));
+        TreeDeleter deleter = new TreeDeleter(this.mRoot, 2);
+        assertFalse(deleter.delete());
+
+        // Only the file is a failure (its parent folders aren't empty)
+        Map<String, String> failures = deleter.getFailures();
+        assertEquals(1, failures.size());
+        assertTrue(failures.containsKey(new File(folder, "file1").getAbsolutePath())); //$NON-NLS-1$
+        assertTrue(new File(folder, "file1").exists()); //$NON-NLS-1$
+        assertFalse(new File(this.mRoot, "file3").exists()); //$NON-NLS-1$
+    }
+
+    /**
+     * Method that tests that a cancelled delete is not completed.
+     *
+     * @throws Exception If test failed
+     */
+    @SmallTest
+    public void testCancelledDelete() throws Exception {
+        TreeDeleter deleter = new TreeDeleter(this.mRoot);
+        deleter.cancel();
+        assertFalse(deleter.delete());
+        assertTrue(deleter.isCancelled());
+        assertTrue(this.mRoot.exists());
+    }
+
+    /**
+     * Method that compares the time of the recursive and the parallel delete of a tree.
+     *
+     * @throws Exception If test failed
+     */
+    @LargeTest
+    public void testBenchmark() throws Exception {
+        File root = new File(getContext().getCacheDir(), "treedeleter-bench"); //$NON-NLS-1$
+        FileHelper.deleteFolder(root);
+        try {
+            createBenchmarkTree(root);
+            long start = System.currentTimeMillis();
+            assertTrue(FileHelper.deleteFolder(root));
+            long recursiveTime = System.currentTimeMillis() - start;
+
+            createBenchmarkTree(root);
+            TreeDeleter deleter = new TreeDeleter(root);
+            start = System.currentTimeMillis();
+            assertTrue(deleter.delete());
+            long parallelTime = System.currentTimeMillis() - start;
+
+            Log.i(TAG, String.format(
+                    "delete of %d files: recursive=%dms, parallel=%dms", //$NON-NLS-1$
+                    Integer.valueOf(
+                            BENCHMARK_TOP_FOLDERS * BENCHMARK_SUB_FOLDERS * BENCHMARK_FILES),
+                    Long.valueOf(recursiveTime),
+                    Long.valueOf(parallelTime)));
+            assertFalse(root.exists());
+        } finally {
+            FileHelper.deleteFolder(root);
+        }
+    }
+
+    /**
+     * Method that creates the tree of the benchmark.
+     *
+     * @param root The root folder of the tree
+     * @throws Exception If the tree can't be created
+     */
+    private static void createBenchmarkTree(File root) throws Exception {
+        for (int i = 0; i < BENCHMARK_TOP_FOLDERS; i++) {
+            for (int j = 0; j < BENCHMARK_SUB_FOLDERS; j++) {
+                File folder = new File(root, "d" + i + "/s" + j); //$NON-NLS-1$ //$NON-NLS-2$
+                assertTrue("mkdirs " + folder, folder.mkdirs()); //$NON-NLS-1$
+                for (int k = 0; k < BENCHMARK_FILES; k++) {
+                    new File(folder, "f" + k + ".txt").createNewFile(); //$NON-NLS-1$ //$NON-NLS-2$
+                }
+            }
+        }
+    }
+
+}
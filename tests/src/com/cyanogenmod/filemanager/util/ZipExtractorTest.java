@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2012 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cyanogenmod.filemanager.util;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.MediumTest;
+import android.util.Log;
+
+import com.cyanogenmod.filemanager.commands.TransferProgressListener;
+import com.cyanogenmod.filemanager.model.TransferProgress;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A class for testing the parallel extraction of zip archives, and measure it against the
+ * <code>unzip</code> program.
+ *
+ * @see ZipExtractor
+ */
+public class ZipExtractorTest extends AndroidTestCase {
+
+    private static final String TAG = "ZipExtractorTest"; //$NON-NLS-1$
+
+    private static final String[] UNZIP_PATHS =
+        {"/system/bin/unzip", "/system/xbin/unzip"}; //$NON-NLS-1$ //$NON-NLS-2$
+
+    private static final int FOLDERS = 50;
+    private static final int FILES = 2000;
+
+    private File mArchive;
+    private File mDst;
+    private long mSize;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.mArchive = new File(getContext().getCacheDir(), "zipextractor.zip"); //$NON-NLS-1$
+        this.mDst = new File(getContext().getCacheDir(), "zipextractor-dst"); //$NON-NLS-1$
+        FileHelper.deleteFolder(this.mDst);
+
+        // Many small entries, deflated and stored
+        this.mSize = 0;
+        ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(this.mArchive));
+        try {
+            zip.putNextEntry(new ZipEntry("empty/")); //$NON-NLS-1$
+            zip.closeEntry();
+            for (int i = 0; i < FILES; i++) {
+                byte[] data = createData(i);
+                ZipEntry entry = new ZipEntry(getName(i));
+                if (i % 10 == 0) {
+                    CRC32 crc = new CRC32();
+                    crc.update(data);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(data.length);
+                    entry.setCrc(crc.getValue());
+                }
+                zip.putNextEntry(entry);
+                zip.write(data);
+                zip.closeEntry();
+                this.mSize += data.length;
+            }
+        } finally {
+            zip.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void tearDown() throws Exception {
+        FileHelper.deleteFolder(this.mDst);
+        this.mArchive.delete();
+        super.tearDown();
+    }
+
+    /**
+     * Method that tests the extraction of an archive and the progress in uncompressed bytes.
+     *
+     * @throws Exception If test failed
+     */
+    @MediumTest
+    public void testExtract() throws Exception {
+        final TransferProgress[] last = new TransferProgress[1];
+        ProgressTracker tracker = new ProgressTracker(new TransferProgressListener() {
+            @Override
+            public void onTransferProgress(TransferProgress progress) {
+                last[0] = progress;
+            }
+        }, this.mArchive.length(), (int)TransferProgress.UNKNOWN);
+
+        ZipExtractor extractor = new ZipExtractor(this.mArchive, this.mDst, 4);
+        extractor.setProgressTracker(tracker);
+        assertTrue(extractor.extract());
+        tracker.finish();
+
+        assertEquals(this.mSize, last[0].getBytesTotal());
+        assertEquals(this.mSize, last[0].getBytesDone());
+        assertEquals(FILES, last[0].getFilesDone());
+        assertTrue(new File(this.mDst, "empty").isDirectory()); //$NON-NLS-1$
+        for (int i = 0; i < FILES; i++) {
+            File file = new File(this.mDst, getName(i));
+            byte[] data = new byte[(int)file.length()];
+            FileInputStream fis = new FileInputStream(file);
+            try {
+                assertEquals(data.length, fis.read(data));
+            } finally {
+                fis.close();
+            }
+            assertEquals(new String(createData(i)), new String(data));
+        }
+    }
+
+    /**
+     * Method that tests that a corrupted entry fails the extraction.
+     *
+     * @throws Exception If test failed
+     */
+    @MediumTest
+    public void testCorruptedEntry() throws Exception {
+        // Change a byte of the data of the first entry (a stored entry)
+        RandomAccessFile raf = new RandomAccessFile(this.mArchive, "rw"); //$NON-NLS-1$
+        try {
+            byte[] archive = new byte[(int)raf.length()];
+            raf.readFully(archive);
+            int pos = new String(archive, "ISO-8859-1").indexOf( //$NON-NLS-1$
+                    new String(createData(0), "ISO-8859-1")); //$NON-NLS-1$
+            assertTrue(pos > 0);
+            raf.seek(pos);
+            raf.write(archive[pos] ^ 0xff);
+        } finally {
+            raf.close();
+        }
+        try {
+            new ZipExtractor(this.mArchive, this.mDst, 4).extract();
+            fail("Extracted a corrupted archive"); //$NON-NLS-1$
+        } catch (ZipException ex) {
+            // The partial file is deleted
+            assertFalse(new File(this.mDst, getName(0)).exists());
+        }
+    }
+
+    /**
+     * Method that tests that a cancelled extraction is not completed.
+     *
+     * @throws Exception If test failed
+     */
+    @MediumTest
+    public void testCancelledExtract() throws Exception {
+        ZipExtractor extractor = new ZipExtractor(this.mArchive, this.mDst, 4);
+        extractor.cancel();
+        assertFalse(extractor.extract());
+        assertTrue(extractor.isCancelled());
+    }
+
+    /**
+     * Method that measures the extraction time with the number of threads, and the
+     * extraction time of the <code>unzip</code> program.
+     *
+     * @throws Exception If test failed
+     */
+    @LargeTest
+    public void testExtractThroughput() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= ZipExtractor.MAX_PARALLELISM * 2; threads *= 2) {
+            FileHelper.deleteFolder(this.mDst);
+            long start = System.currentTimeMillis();
+            assertTrue(new ZipExtractor(this.mArchive, this.mDst, threads).extract());
+            Log.i(TAG, String.format(
+                    "ZipExtractor %d threads (%d cores): %d files in %dms", //$NON-NLS-1$
+                    Integer.valueOf(threads), Integer.valueOf(cores), Integer.valueOf(FILES),
+                    Long.valueOf(System.currentTimeMillis() - start)));
+        }
+
+        for (String unzip : UNZIP_PATHS) {
+            if (!new File(unzip).exists()) {
+                continue;
+            }
+            FileHelper.deleteFolder(this.mDst);
+            assertTrue(this.mDst.mkdirs());
+            long start = System.currentTimeMillis();
+            Process process = Runtime.getRuntime().exec(new String[]{
+                    unzip, "-q", "-o", this.mArchive.getAbsolutePath(), //$NON-NLS-1$ //$NON-NLS-2$
+                    "-d", this.mDst.getAbsolutePath()}); //$NON-NLS-1$
+            assertEquals(0, process.waitFor());
+            Log.i(TAG, String.format("%s: %d files in %dms", //$NON-NLS-1$
+                    unzip, Integer.valueOf(FILES),
+                    Long.valueOf(System.currentTimeMillis() - start)));
+            break;
+        }
+    }
+
+    private static String getName(int i) {
+        return "d" + (i % FOLDERS) + "/f" + i + ".txt"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+
+    private static byte[] createData(int i) {
+        StringBuilder sb = new StringBuilder();
+        int lines = 1 + (i * 31) % 200;
+        for (int j = 0; j < lines; j++) {
+            sb.append("entry ").append(i); //$NON-NLS-1$
+            sb.append(" line ").append(j).append('\n'); //$NON-NLS-1$
+        }
+        return sb.toString().getBytes();
+    }
+}